@@ -350,17 +350,48 @@ public class ARQ
      * choosing the value.
      * <p>
      * Operations currently affected by this symbol: <br>
-     * ORDER BY, SPARQL Update, CONSTRUCT (optionally)
+     * ORDER BY, DISTINCT, GROUP BY (number of groups), hash joins, MINUS, SPARQL Update, CONSTRUCT (optionally)
      * <p>
      * A reasonable value here is 10000.
      * </p>
      * @see <a href="https://issues.apache.org/jira/browse/JENA-119">JENA-119</a>
      */
     // Some possible additions to the list:
-    // Sort: DISTINCT, merge joins<br>
-    // Hash table: GROUP BY, MINUS, SERVICE, VALUES, and hash joins <br>
+    // Sort: merge joins<br>
+    // Hash table: SERVICE, VALUES <br>
     public static final Symbol spillToDiskThreshold = SystemARQ.allocSymbol("spillToDiskThreshold");
 
+    /**
+     * An Integer value that, when positive, switches FILTER, BIND (extend), PROJECT,
+     * LIMIT/OFFSET and hash join evaluation to processing blocks of this many rows at
+     * a time, held as columns, instead of one binding at a time. Triple pattern
+     * matching reads its input in blocks and makes one graph lookup for rows that
+     * give the same pattern.
+     * Adjacent batch operators pass blocks directly between themselves;
+     * other operators are unaffected.
+     * <p>
+     * The value defaults to 0 (unset), which is row-at-a-time execution.
+     * Converting between rows and blocks has a cost; for in-memory data, batch
+     * execution is about the same speed as row-at-a-time.
+     */
+    public static final Symbol executionBatchSize = SystemARQ.allocSymbol("executionBatchSize");
+
+    /**
+     * An Integer value that, when greater than 1, enables parallel execution within a
+     * query and caps the number of worker tasks the query uses at any one time.
+     * UNION branches, the two sides of a join and, for TDB2, range-partitioned scans of
+     * the first triple pattern of a basic graph pattern are run on a fork/join pool and
+     * their results merged; the order of results is not preserved.
+     * <p>
+     * Parallel execution is only used when the dataset can provide each worker with a
+     * read view consistent with the query's own (for example, TDB2 in a read transaction).
+     * <p>
+     * The value defaults to 0 (unset), which is execution on the calling thread only.
+     *
+     * @see org.apache.jena.sparql.engine.main.ParallelExecution
+     */
+    public static final Symbol parallelism = SystemARQ.allocSymbol("parallelism");
+
     // Optimizer controls.
 
     /**
@@ -518,6 +549,17 @@ public class ARQ
      */
     public static final Symbol optIndexJoinStrategy = SystemARQ.allocSymbol("optIndexJoinStrategy");
 
+    /**
+     * Context key controlling whether the join strategy step of the standard optimizer is
+     * cost-based. Chains of joins, including those across OPTIONAL, UNION and sub-query
+     * boundaries, are reordered using estimated cardinalities, and each join is done as an
+     * index join or a hash join depending on the estimated cost.
+     * Estimates come from the {@link org.apache.jena.sparql.engine.optimizer.CardinalityEstimator}
+     * in the context, which storage with statistics (TDB2) provides.
+     * <p>This is a modifier to {@link #optIndexJoinStrategy}. By default, this is not applied.
+     */
+    public static final Symbol optCostBasedJoins = SystemARQ.allocSymbol("optCostBasedJoins");
+
     /**
      * Context key controlling whether the standard optimizer applies optimizations where by some
      * assignments may be eliminated/inlined into the operators where their values are used only once
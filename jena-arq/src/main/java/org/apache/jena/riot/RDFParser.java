@@ -21,6 +21,8 @@ package org.apache.jena.riot;
 import static org.apache.jena.riot.RDFLanguages.NQUADS;
 import static org.apache.jena.riot.RDFLanguages.NTRIPLES;
 import static org.apache.jena.riot.RDFLanguages.RDFJSON;
+import static org.apache.jena.riot.RDFLanguages.TRIG;
+import static org.apache.jena.riot.RDFLanguages.TURTLE;
 import static org.apache.jena.riot.RDFLanguages.sameLang;
 
 import java.io.*;
@@ -33,6 +35,8 @@ import java.nio.file.Path;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
 
 import org.apache.jena.atlas.io.IO;
 import org.apache.jena.atlas.lib.InternalErrorException;
@@ -47,6 +51,10 @@ import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.lang.ReaderRIOTNTuplesParallel;
+import org.apache.jena.riot.lang.ReaderRIOTTurtleParallel;
+import org.apache.jena.riot.lang.RiotParsers;
 import org.apache.jena.riot.process.normalize.StreamCanonicalLangTag;
 import org.apache.jena.riot.process.normalize.StreamCanonicalLiterals;
 import org.apache.jena.riot.system.*;
@@ -108,7 +116,10 @@ public class RDFParser {
     private final LangTagForm         langTagForm;
     private final Optional<Boolean>   checking;
     private final FactoryRDF          factory;
+    private final NodeInterner        nodeInterner;
     private final ErrorHandler        errorHandler;
+    private final int                 parallelThreads;
+    private final boolean             parallelOrdered;
     private final Context             context;
     // Some cases the parser is reusable (read a file), some are not (input streams).
     private boolean                 canUseThisParser = true;
@@ -204,7 +215,8 @@ public class RDFParser {
                             String parserBaseURI, boolean strict, Optional<Boolean> checking,
                             boolean canonicalLexicalValues, LangTagForm langTagForm,
                             boolean resolveURIs, IRIxResolver resolver, PrefixMap prefixMap,
-                            FactoryRDF factory, ErrorHandler errorHandler, Context context) {
+                            FactoryRDF factory, NodeInterner nodeInterner, ErrorHandler errorHandler,
+                            int parallelThreads, boolean parallelOrdered, Context context) {
         int x = countNonNull(uri, path, content, inputStream, javaReader);
         if ( x >= 2 )
             throw new IllegalArgumentException("Only one source allowed: one of uri, path, content, inputStream and javaReader must be set");
@@ -234,7 +246,10 @@ public class RDFParser {
         this.langTagForm = langTagForm;
         this.checking = checking;
         this.factory = factory;
+        this.nodeInterner = nodeInterner;
         this.errorHandler = errorHandler;
+        this.parallelThreads = parallelThreads;
+        this.parallelOrdered = parallelOrdered;
         this.context = context;
     }
 
@@ -520,13 +535,46 @@ public class RDFParser {
     }
 
     private ReaderRIOT createReader(ReaderRIOTFactory r, Lang lang) {
+        if ( parallelThreads > 1 && ( isStdNTuples(r, lang) || isStdTurtle(r, lang) ) ) {
+            // Each parser thread has its own FactoryRDF and prefix map.
+            // The shared seed gives the same blank node for a label in every thread.
+            UUID seed = UUID.randomUUID();
+            Function<ErrorHandler, ParserProfile> profileMaker =
+                eh->makeParserProfile(lang, RiotLib.factoryRDF(LabelToNode.createScopeByDocumentHashShared(seed), nodeInterner), eh,
+                                      ( prefixMap == null ) ? null : PrefixMapFactory.create(prefixMap));
+            if ( isStdTurtle(r, lang) )
+                return new ReaderRIOTTurtleParallel(lang, errorHandler, profileMaker, parallelThreads, parallelOrdered);
+            return new ReaderRIOTNTuplesParallel(lang, errorHandler, profileMaker, parallelThreads, parallelOrdered);
+        }
         ParserProfile profile = makeParserProfile(lang);
         ReaderRIOT reader = r.create(lang, profile);
         return reader ;
     }
 
-    // See also RiotLib.profile but this version has RDFParser specific features.
+    /** Whether the reader factory is the built-in N-Triples or N-Quads parser. */
+    private static boolean isStdNTuples(ReaderRIOTFactory r, Lang lang) {
+        if ( sameLang(NTRIPLES, lang) )
+            return r == RiotParsers.factoryNT;
+        if ( sameLang(NQUADS, lang) )
+            return r == RiotParsers.factoryNQ;
+        return false;
+    }
+
+    /** Whether the reader factory is the built-in Turtle or TriG parser. */
+    private static boolean isStdTurtle(ReaderRIOTFactory r, Lang lang) {
+        if ( sameLang(TURTLE, lang) )
+            return r == RiotParsers.factoryTTL;
+        if ( sameLang(TRIG, lang) )
+            return r == RiotParsers.factoryTRIG;
+        return false;
+    }
+
     private ParserProfile makeParserProfile(Lang lang) {
+        return makeParserProfile(lang, factory, errorHandler, prefixMap);
+    }
+
+    // See also RiotLib.profile but this version has RDFParser specific features.
+    private ParserProfile makeParserProfile(Lang lang, FactoryRDF factory, ErrorHandler errorHandler, PrefixMap prefixMap) {
         boolean resolve = resolveURIs;
         boolean allowRelative = false;
         boolean checking$ = strict;
@@ -555,7 +603,7 @@ public class RDFParser {
         IRIxResolver parserResolver = (resolver != null)
                 ? resolver
                 : IRIxResolver.create().base(baseStr).resolve(resolve).allowRelative(allowRelative).build();
-        PrefixMap pmap = ( this.prefixMap != null ) ? this.prefixMap : PrefixMapFactory.create();
+        PrefixMap pmap = ( prefixMap != null ) ? prefixMap : PrefixMapFactory.create();
         ParserProfileStd parserFactory = new CDTAwareParserProfile(factory, errorHandler,
                                                                    parserResolver, pmap,
                                                                    context, checking$, strict);
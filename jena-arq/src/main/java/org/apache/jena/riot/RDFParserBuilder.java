@@ -105,10 +105,15 @@ public class RDFParserBuilder {
     // Construction for the StreamRDF
     private FactoryRDF factory = null;
     private LabelToNode labelToNode = null;
+    private NodeInterner nodeInterner = null;
 
     // Bad news.
     private ErrorHandler errorHandler = null;
 
+    // N-Triples, N-Quads, Turtle and TriG on several threads.
+    private int parallelThreads = 1;
+    private boolean parallelOrdered = true;
+
     public static RDFParserBuilder create() { return new RDFParserBuilder() ; }
     private RDFParserBuilder() {}
 
@@ -492,6 +497,56 @@ public class RDFParserBuilder {
         return this;
     }
 
+    /**
+     * Share IRI nodes with other parsers through a {@link NodeInterner}, so the
+     * same IRI is the same {@code Node} object in every parse, on every thread,
+     * that uses the interner. {@link NodeInterner#get()} is a system-wide interner.
+     * The interner is thread-safe, and is used by all the threads of {@link #parallel}.
+     * <br/>
+     * Only applies when the {@link FactoryRDF} is not set in the
+     * {@code RDFParserBuilder}.
+     * @see #factory
+     * @param interner
+     * @return this
+     */
+    public RDFParserBuilder nodeInterner(NodeInterner interner) {
+        this.nodeInterner = interner;
+        return this;
+    }
+
+    /**
+     * Parse N-Triples, N-Quads, Turtle and TriG using several threads. The input is
+     * split into chunks which are parsed at the same time; any decompression
+     * is done on a separate thread. N-Triples and N-Quads chunks are whole lines;
+     * Turtle and TriG chunks end between top-level statements, and each chunk starts
+     * with the prefixes and base declared before it. The output is sent to the {@link StreamRDF} on
+     * the calling thread. 0 or 1 means parse on the calling thread (the default).
+     * <br/>
+     * This applies only when reading bytes (a file, URL or {@code InputStream}) and
+     * when neither {@link #factory} nor {@link #labelToNode} has been set, because
+     * each parser thread has its own {@link FactoryRDF}. Blank node labels are
+     * mapped to the same blank nodes in all threads. Other languages are not affected.
+     * @see #parallelOrdered
+     * @param threads
+     * @return this
+     */
+    public RDFParserBuilder parallel(int threads) {
+        this.parallelThreads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * When parsing with several threads ({@link #parallel}), whether the triples and
+     * quads are output in the order of the input (the default). If not, the output
+     * of each chunk of the input is sent as soon as it has been parsed.
+     * @param flag
+     * @return this
+     */
+    public RDFParserBuilder parallelOrdered(boolean flag) {
+        this.parallelOrdered = flag;
+        return this;
+    }
+
     // There are no strict/unstrict differences.
     // Strict is passed through to the RIOT reader.
 //    /**
@@ -673,6 +728,9 @@ public class RDFParserBuilder {
         if ( sMgr == null )
             sMgr = StreamManager.get(context);
 
+        // An application FactoryRDF or LabelToNode can not be shared between threads.
+        int parallel$ = ( factory == null && labelToNode == null ) ? parallelThreads : 1;
+
         // Can't build the profile here as it is Lang/conneg dependent.
         return new RDFParser(uri, path, stringToParse, inputStream, javaReader, sMgr,
                              appAcceptHeader, httpHeaders,
@@ -681,16 +739,14 @@ public class RDFParserBuilder {
                              parserBaseURI, strict, checking,
                              canonicalValues, langTagForm,
                              resolveURIs, resolver, prefixMap,
-                             factory$, errorHandler$, context);
+                             factory$, nodeInterner, errorHandler$, parallel$, parallelOrdered, context);
     }
 
     private FactoryRDF buildFactoryRDF() {
         FactoryRDF factory$ = factory;
         if ( factory$ == null ) {
-            if ( labelToNode != null )
-                factory$ = RiotLib.factoryRDF(labelToNode);
-            else
-                factory$ = RiotLib.factoryRDF();
+            LabelToNode labelToNode$ = ( labelToNode != null ) ? labelToNode : SyntaxLabels.createLabelToNode();
+            factory$ = RiotLib.factoryRDF(labelToNode$, nodeInterner);
         }
         return factory$;
     }
@@ -720,7 +776,10 @@ public class RDFParserBuilder {
         builder.resolveURIs =       this.resolveURIs;
         builder.factory =           this.factory;
         builder.labelToNode =       this.labelToNode;
+        builder.nodeInterner =      this.nodeInterner;
         builder.errorHandler =      this.errorHandler;
+        builder.parallelThreads =   this.parallelThreads;
+        builder.parallelOrdered =   this.parallelOrdered;
         return builder;
     }
 }
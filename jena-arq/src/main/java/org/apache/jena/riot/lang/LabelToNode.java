@@ -52,6 +52,16 @@ public class LabelToNode extends MapWithScope<String, Node, Node>
     public static LabelToNode createScopeByDocumentHash(UUID seed)
     { return new LabelToNode(new FixedScopePolicy(), nodeAllocatorHash(seed)); }
 
+    /**
+     * Allocation from a single scope, for one of several parsers each working on part of
+     * the same document. Labels are allocated as {@link #createScopeByDocumentHash(UUID)}
+     * so a label is the same blank node in all the parsers; fresh blank nodes (e.g. Turtle {@code []})
+     * are allocated independently in each parser so they do not clash.
+     * @param seed Seed, shared by the parsers.
+     */
+    public static LabelToNode createScopeByDocumentHashShared(UUID seed)
+    { return new LabelToNode(new FixedScopePolicy(), new AllocSharedSeed(seed)); }
+
     /**
      * Allocation, with a map from seen label to node. It uses the jena-core blank
      * node allocator and a map from label to blank node. This style works for any
@@ -213,6 +223,32 @@ public class LabelToNode extends MapWithScope<String, Node, Node>
         }
     }
 
+    /** Labels allocated from a shared seed; fresh blank nodes from a seed of its own. */
+    private static class AllocSharedSeed implements Allocator<String, Node, Node> {
+        final BlankNodeAllocator labels;
+        final BlankNodeAllocator fresh = new BlankNodeAllocatorHash();
+
+        AllocSharedSeed(UUID seed) {
+            this.labels = new BlankNodeAllocatorFixedSeedHash(seed);
+        }
+
+        @Override
+        public Node alloc(Node scope, String label) {
+            return labels.alloc(label);
+        }
+
+        @Override
+        public Node create() {
+            return fresh.create();
+        }
+
+        @Override
+        public void reset() {
+            labels.reset();
+            fresh.reset();
+        }
+    }
+
     /** Allocate a fresh blank node each time with a scope. */
     private static class AllocByScope implements Allocator<String, Node, Node> {
         BlankNodeAllocator dft = make();
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.system.ErrorHandler;
+import org.apache.jena.riot.system.ParserProfile;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerBytes;
+
+/**
+ * Parse N-Triples or N-Quads using several threads.
+ * <p>
+ * Both languages have one triple or quad per line, and a newline can not occur
+ * inside an RDF term, so the input is split into chunks that end at a newline.
+ * See {@link ReaderRIOTParallelBase}.
+ * <p>
+ * <b>This class is internal to RIOT.</b>
+ */
+public class ReaderRIOTNTuplesParallel extends ReaderRIOTParallelBase {
+
+    /**
+     * @param lang {@code Lang.NTRIPLES} or {@code Lang.NQUADS}
+     * @param errorHandler The error handler for the parse.
+     * @param profileMaker Create a parser profile, using the error handler given;
+     *     called once for each parser thread.
+     * @param threads Number of parser threads.
+     * @param ordered Whether the output is in the same order as the input.
+     */
+    public ReaderRIOTNTuplesParallel(Lang lang, ErrorHandler errorHandler, Function<ErrorHandler, ParserProfile> profileMaker,
+                                     int threads, boolean ordered) {
+        this(lang, errorHandler, profileMaker, threads, ordered, DftChunkSize);
+    }
+
+    /*package*/ ReaderRIOTNTuplesParallel(Lang lang, ErrorHandler errorHandler, Function<ErrorHandler, ParserProfile> profileMaker,
+                                          int threads, boolean ordered, int chunkSize) {
+        super(checkLang(lang), errorHandler, profileMaker, threads, ordered, chunkSize);
+    }
+
+    private static Lang checkLang(Lang lang) {
+        if ( ! Lang.NTRIPLES.equals(lang) && ! Lang.NQUADS.equals(lang) )
+            throw new IllegalArgumentException("Not N-Triples or N-Quads: "+lang);
+        return lang;
+    }
+
+    @Override
+    protected LangRIOT createParser(Tokenizer tokenizer, ParserProfile profile, StreamRDF output) {
+        if ( Lang.NTRIPLES.equals(lang) )
+            return new LangNTriples(tokenizer, profile, output);
+        return new LangNQuads(tokenizer, profile, output);
+    }
+
+    @Override
+    protected Tokenizer createTokenizer(byte[] bytes, int length, ErrorHandler errorHandler) {
+        return TokenizerBytes.create(ByteBuffer.wrap(bytes, 0, length), errorHandler);
+    }
+
+    @Override
+    protected Splitter createSplitter() {
+        return new Splitter() {
+            @Override
+            public int scan(byte[] bytes, int length, boolean eof) {
+                // After the last newline.
+                for ( int i = length - 1 ; i >= 0 ; i-- ) {
+                    if ( bytes[i] == '\n' )
+                        return i + 1;
+                }
+                return -1;
+            }
+
+            @Override
+            public Object chunk(byte[] bytes, int end) {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.atlas.web.ContentType;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.ReaderRIOT;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.ErrorHandler;
+import org.apache.jena.riot.system.ParserProfile;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerText;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.util.Context;
+
+/**
+ * Framework for parsing a text RDF syntax using several threads.
+ * <p>
+ * The input bytes are split into chunks on a reader thread, which also does any
+ * decompression. A {@link Splitter} decides where a chunk can end. Each chunk is
+ * parsed on one of a pool of threads, each with its own {@link ParserProfile}, and
+ * the output of a chunk is sent to the {@link StreamRDF} on the caller's thread,
+ * either in the order of the input or in the order the chunks finish.
+ * <p>
+ * The parser profiles must allocate the same blank node for the same label, for
+ * example by using a {@link LabelToNode} with a shared seed.
+ * Input from a {@link Reader} is parsed on the caller's thread.
+ * <p>
+ * <b>This class is internal to RIOT.</b>
+ */
+public abstract class ReaderRIOTParallelBase implements ReaderRIOT {
+    /** Default size of a chunk of input, in bytes. */
+    public static final int DftChunkSize = 4 * 1024 * 1024;
+
+    protected final Lang lang;
+    protected final ErrorHandler errorHandler;
+    protected final Function<ErrorHandler, ParserProfile> profileMaker;
+    private final int threads;
+    private final boolean ordered;
+    private final int chunkSize;
+
+    protected ReaderRIOTParallelBase(Lang lang, ErrorHandler errorHandler, Function<ErrorHandler, ParserProfile> profileMaker,
+                                     int threads, boolean ordered, int chunkSize) {
+        if ( threads < 1 )
+            throw new IllegalArgumentException("Threads must be at least 1: "+threads);
+        if ( chunkSize < 1 )
+            throw new IllegalArgumentException("Chunk size must be at least 1: "+chunkSize);
+        this.lang = lang;
+        this.errorHandler = Objects.requireNonNull(errorHandler);
+        this.profileMaker = Objects.requireNonNull(profileMaker);
+        this.threads = threads;
+        this.ordered = ordered;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Finds the places the input can be split. A splitter is used on the reader
+     * thread of one parse.
+     */
+    protected interface Splitter {
+        /**
+         * Look at the bytes {@code [0, length)}, continuing from any earlier call.
+         * Return the end (exclusive) of the last place a chunk could end, or -1 if
+         * there is none yet. At the end of the input, {@code eof} is true.
+         */
+        public int scan(byte[] bytes, int length, boolean eof);
+
+        /**
+         * The bytes {@code [0, end)} have been taken as a chunk, and the remaining
+         * bytes will be at the start of the next buffer. Return the state for
+         * {@link ReaderRIOTParallelBase#prepare} when parsing the chunk.
+         */
+        public Object chunk(byte[] bytes, int end);
+    }
+
+    /** Create the splitter for one parse. */
+    protected abstract Splitter createSplitter();
+
+    /** Create the language parser, for a chunk or for the whole input. */
+    protected abstract LangRIOT createParser(Tokenizer tokenizer, ParserProfile profile, StreamRDF output);
+
+    /**
+     * Set up the parser profile of a parser thread, before parsing a chunk, from
+     * the state returned by {@link Splitter#chunk}.
+     */
+    protected void prepare(ParserProfile profile, Object state) {}
+
+    /** Create the tokenizer for a chunk, the UTF-8 bytes from 0 to length. */
+    protected Tokenizer createTokenizer(byte[] bytes, int length, ErrorHandler errorHandler) {
+        return TokenizerText.create().source(new ByteArrayInputStream(bytes, 0, length)).errorHandler(errorHandler).build();
+    }
+
+    @Override
+    public void read(Reader reader, String baseURI, ContentType ct, StreamRDF output, Context context) {
+        ParserProfile profile = profileMaker.apply(errorHandler);
+        Tokenizer tokenizer = TokenizerText.create().source(reader).errorHandler(profile.getErrorHandler()).build();
+        createParser(tokenizer, profile, output).parse();
+    }
+
+    @Override
+    public void read(InputStream input, String baseURI, ContentType ct, StreamRDF output, Context context) {
+        new Run(input, output).exec();
+    }
+
+    /** The output of one chunk, in order, or the end marker. */
+    private static class Batch implements StreamRDF {
+        // Triples, quads and, for other events, a Consumer<StreamRDF>.
+        final List<Object> items = new ArrayList<>();
+        // End marker only: the number of chunks.
+        final long chunks;
+
+        Batch() { this(-1); }
+        Batch(long chunks) { this.chunks = chunks; }
+
+        boolean isEnd() { return chunks >= 0; }
+
+        @SuppressWarnings("unchecked")
+        void output(StreamRDF output) {
+            for ( Object x : items ) {
+                if ( x instanceof Triple triple )
+                    output.triple(triple);
+                else if ( x instanceof Quad quad )
+                    output.quad(quad);
+                else
+                    ((Consumer<StreamRDF>)x).accept(output);
+            }
+        }
+
+        @Override public void start()                       {}
+        @Override public void triple(Triple triple)         { items.add(triple); }
+        @Override public void quad(Quad quad)               { items.add(quad); }
+        @Override public void base(String base)             { items.add((Consumer<StreamRDF>)s->s.base(base)); }
+        @Override public void prefix(String prefix, String iri) { items.add((Consumer<StreamRDF>)s->s.prefix(prefix, iri)); }
+        @Override public void version(String version)       { items.add((Consumer<StreamRDF>)s->s.version(version)); }
+        @Override public void finish()                      {}
+    }
+
+    /** One parse: the reader thread, the parser threads and the output on the caller's thread. */
+    private class Run {
+        private final InputStream input;
+        private final StreamRDF output;
+        private final ExecutorService executor;
+        // Parsed or being parsed, not yet output. Bounds the memory used.
+        private final Semaphore inFlight = new Semaphore(2 * threads);
+        // Ordered: in input order, added when submitted; unordered: added when done.
+        private final BlockingQueue<CompletableFuture<Batch>> results = new LinkedBlockingQueue<>();
+        private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+        private volatile boolean stopped = false;
+
+        Run(InputStream input, StreamRDF output) {
+            this.input = input;
+            this.output = output;
+            String threadName = "Parser-"+lang.getLabel();
+            this.executor = Executors.newFixedThreadPool(threads, r->{
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        void exec() {
+            Thread reader = new Thread(this::readChunks, "Reader-"+lang.getLabel());
+            reader.setDaemon(true);
+            output.start();
+            try {
+                reader.start();
+                long received = 0;
+                long expected = -1;
+                while ( expected < 0 || received < expected ) {
+                    Batch batch = take().join();
+                    if ( batch.isEnd() ) {
+                        expected = batch.chunks;
+                        continue;
+                    }
+                    received++;
+                    batch.output(output);
+                    inFlight.release();
+                }
+            } catch (CompletionException ex) {
+                if ( ex.getCause() instanceof RuntimeException rex )
+                    throw rex;
+                if ( ex.getCause() instanceof Error err )
+                    throw err;
+                throw new RiotException(ex.getCause());
+            } finally {
+                stopped = true;
+                executor.shutdownNow();
+                reader.interrupt();
+                try {
+                    reader.join();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                output.finish();
+            }
+        }
+
+        private CompletableFuture<Batch> take() {
+            try {
+                return results.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RiotException("Interrupted", ex);
+            }
+        }
+
+        /** Reader thread: split the input into chunks. */
+        private void readChunks() {
+            long chunks = 0;
+            try {
+                Splitter splitter = createSplitter();
+                byte[] buffer = new byte[chunkSize];
+                int length = 0;
+                // Line number of the start of the buffer.
+                long line = 1;
+                for (;;) {
+                    int x = input.readNBytes(buffer, length, buffer.length - length);
+                    length += x;
+                    if ( length < buffer.length ) {
+                        // End of input.
+                        if ( length > 0 ) {
+                            splitter.scan(buffer, length, true);
+                            submit(buffer, length, line, splitter.chunk(buffer, length));
+                            chunks++;
+                        }
+                        break;
+                    }
+                    int end = splitter.scan(buffer, length, false);
+                    if ( end <= 0 ) {
+                        // No split point in the buffer.
+                        byte[] buffer2 = new byte[2 * buffer.length];
+                        System.arraycopy(buffer, 0, buffer2, 0, length);
+                        buffer = buffer2;
+                        continue;
+                    }
+                    byte[] next = new byte[Math.max(chunkSize, length - end + 1)];
+                    System.arraycopy(buffer, end, next, 0, length - end);
+                    long lines = countNewlines(buffer, end);
+                    submit(buffer, end, line, splitter.chunk(buffer, end));
+                    chunks++;
+                    line += lines;
+                    buffer = next;
+                    length = length - end;
+                }
+                results.add(CompletableFuture.completedFuture(new Batch(chunks)));
+            } catch (InterruptedException ex) {
+                // Stopped.
+            } catch (IOException ex) {
+                results.add(CompletableFuture.failedFuture(IOX.exception(ex)));
+            } catch (RuntimeException ex) {
+                results.add(CompletableFuture.failedFuture(ex));
+            }
+        }
+
+        private void submit(byte[] bytes, int length, long line, Object state) throws InterruptedException {
+            inFlight.acquire();
+            if ( stopped )
+                throw new InterruptedException();
+            CompletableFuture<Batch> cf = CompletableFuture.supplyAsync(()->parse(bytes, length, line, state), executor);
+            if ( ordered )
+                results.add(cf);
+            else
+                cf.whenComplete((b, ex)->results.add(cf));
+        }
+
+        /** Parse one chunk on a parser thread. */
+        private Batch parse(byte[] bytes, int length, long line, Object state) {
+            Worker worker = workers.get();
+            // Line numbers in errors are for the whole input.
+            worker.errorHandler.offset = line - 1;
+            prepare(worker.profile, state);
+            Tokenizer tokenizer = createTokenizer(bytes, length, worker.errorHandler);
+            Batch batch = new Batch();
+            createParser(tokenizer, worker.profile, batch).parse();
+            return batch;
+        }
+    }
+
+    private static long countNewlines(byte[] bytes, int length) {
+        long count = 0;
+        for ( int i = 0 ; i < length ; i++ ) {
+            if ( bytes[i] == '\n' )
+                count++;
+        }
+        return count;
+    }
+
+    /** The state of a parser thread. */
+    private class Worker {
+        final ErrorHandlerLineOffset errorHandler = new ErrorHandlerLineOffset(ReaderRIOTParallelBase.this.errorHandler);
+        final ParserProfile profile = profileMaker.apply(errorHandler);
+    }
+
+    /** Error handler that adds the line number of the start of the chunk being parsed. */
+    private static class ErrorHandlerLineOffset implements ErrorHandler {
+        private final ErrorHandler other;
+        long offset = 0;
+
+        ErrorHandlerLineOffset(ErrorHandler other) {
+            this.other = other;
+        }
+
+        @Override
+        public void warning(String message, long line, long col) {
+            other.warning(message, adjust(line), col);
+        }
+
+        @Override
+        public void error(String message, long line, long col) {
+            other.error(message, adjust(line), col);
+        }
+
+        @Override
+        public void fatal(String message, long line, long col) {
+            other.fatal(message, adjust(line), col);
+        }
+
+        private long adjust(long line) {
+            return ( line < 0 ) ? line : line + offset;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.*;
+import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerText;
+
+/**
+ * Parse Turtle or TriG using several threads.
+ * <p>
+ * The reader thread scans the bytes, without tokenizing, to find the ends of
+ * top-level statements: a {@code .} outside of strings, IRIs, comments and any
+ * brackets, and, for TriG, the {@code }} of a graph. Chunks end at one of these
+ * places. The scan also picks out the prefix and base directives; they are
+ * parsed on the reader thread so that each chunk starts with the prefixes and
+ * base in force at its start. Each chunk is then parsed on its own, see
+ * {@link ReaderRIOTParallelBase}.
+ * <p>
+ * The parser profiles must allocate the same blank node for the same label and
+ * different blank nodes for {@code []}, for example by using
+ * {@link LabelToNode#createScopeByDocumentHashShared}.
+ * <p>
+ * <b>This class is internal to RIOT.</b>
+ */
+public class ReaderRIOTTurtleParallel extends ReaderRIOTParallelBase {
+
+    /**
+     * @param lang {@code Lang.TURTLE} or {@code Lang.TRIG}
+     * @param errorHandler The error handler for the parse.
+     * @param profileMaker Create a parser profile, using the error handler given;
+     *     called once for each parser thread and for reading the directives.
+     *     Each profile must have its own prefix map.
+     * @param threads Number of parser threads.
+     * @param ordered Whether the output is in the same order as the input.
+     */
+    public ReaderRIOTTurtleParallel(Lang lang, ErrorHandler errorHandler, Function<ErrorHandler, ParserProfile> profileMaker,
+                                    int threads, boolean ordered) {
+        this(lang, errorHandler, profileMaker, threads, ordered, DftChunkSize);
+    }
+
+    /*package*/ ReaderRIOTTurtleParallel(Lang lang, ErrorHandler errorHandler, Function<ErrorHandler, ParserProfile> profileMaker,
+                                         int threads, boolean ordered, int chunkSize) {
+        super(checkLang(lang), errorHandler, profileMaker, threads, ordered, chunkSize);
+    }
+
+    private static Lang checkLang(Lang lang) {
+        if ( ! Lang.TURTLE.equals(lang) && ! Lang.TRIG.equals(lang) )
+            throw new IllegalArgumentException("Not Turtle or TriG: "+lang);
+        return lang;
+    }
+
+    @Override
+    protected LangRIOT createParser(Tokenizer tokenizer, ParserProfile profile, StreamRDF output) {
+        if ( Lang.TURTLE.equals(lang) )
+            return new LangTurtle(tokenizer, profile, output);
+        return new LangTriG(tokenizer, profile, output);
+    }
+
+    @Override
+    protected Splitter createSplitter() {
+        // Errors in directives are reported when the chunk is parsed.
+        ParserProfile profile = profileMaker.apply(ErrorHandlerFactory.errorHandlerNoLogging);
+        return new TurtleSplitter(profile, Lang.TRIG.equals(lang));
+    }
+
+    @Override
+    protected void prepare(ParserProfile profile, Object state) {
+        ChunkStart start = (ChunkStart)state;
+        PrefixMap pmap = profile.getPrefixMap();
+        pmap.clear();
+        pmap.putAll(start.prefixes);
+        profile.setBaseIRI(start.base);
+    }
+
+    /** The prefixes and base at the start of a chunk. */
+    private record ChunkStart(PrefixMap prefixes, String base) {}
+
+    /** A directive found by the scan, and where it starts. */
+    private record Directive(int start, String text) {}
+
+    /**
+     * The scan for the ends of statements. The state is kept between calls of
+     * {@link #scan} so each byte is looked at once.
+     */
+    /*package*/ static class TurtleSplitter implements Splitter {
+        // Bytes that must be available beyond the current position, except at the end.
+        private static final int Lookahead = 8;
+
+        private enum State { NORMAL, IRI, STRING1, STRING2, LONG_STRING1, LONG_STRING2, COMMENT }
+        private enum DirectiveKind { AT, KEYWORD }
+
+        private final ParserProfile profile;
+        private final boolean graphs;
+        private final List<Directive> directives = new ArrayList<>();
+
+        private State state = State.NORMAL;
+        // Depth of (), [], {}, << >>.
+        private int depth = 0;
+        // Next byte to look at.
+        private int position = 0;
+        // End of the last statement found, or -1.
+        private int lastEnd = -1;
+        // Start of the current directive, or -1.
+        private int directiveStart = -1;
+        private DirectiveKind directiveKind = null;
+        // The previous byte ended a string, so '@' is a language tag.
+        private boolean afterString = false;
+
+        // For the current call of scan.
+        private byte[] bytes;
+        private int length;
+
+        /*package*/ TurtleSplitter(ParserProfile profile, boolean graphs) {
+            this.profile = profile;
+            this.graphs = graphs;
+        }
+
+        @Override
+        public int scan(byte[] bytes, int length, boolean eof) {
+            this.bytes = bytes;
+            this.length = length;
+            int limit = eof ? length : length - Lookahead;
+            while ( position < limit )
+                step();
+            this.bytes = null;
+            return lastEnd;
+        }
+
+        @Override
+        public Object chunk(byte[] bytes, int end) {
+            ChunkStart start = new ChunkStart(PrefixMapFactory.create(profile.getPrefixMap()), profile.getBaseURI());
+            // Directives in the chunk change the start of the next chunk.
+            List<Directive> remaining = new ArrayList<>();
+            for ( Directive d : directives ) {
+                if ( d.start < end )
+                    parseDirective(d.text);
+                else
+                    remaining.add(new Directive(d.start - end, d.text));
+            }
+            directives.clear();
+            directives.addAll(remaining);
+            position = Math.max(0, position - end);
+            lastEnd = ( lastEnd > end ) ? lastEnd - end : -1;
+            if ( directiveStart >= 0 )
+                directiveStart -= end;
+            return start;
+        }
+
+        private void parseDirective(String text) {
+            Tokenizer tokenizer = TokenizerText.create().fromString(text).errorHandler(profile.getErrorHandler()).build();
+            try {
+                new LangTurtle(tokenizer, profile, StreamRDFLib.sinkNull()).parse();
+            } catch (RiotException ex) {
+                // Reported when the chunk is parsed.
+            }
+        }
+
+        // The byte at i, unsigned, or -1 if at or beyond the end of the input.
+        private int at(int i) {
+            return ( i < length ) ? bytes[i] & 0xFF : -1;
+        }
+
+        private void step() {
+            byte b = bytes[position];
+            switch (state) {
+                case NORMAL -> stepNormal(b);
+                case IRI -> {
+                    if ( b == '\\' ) {
+                        position += 2;
+                        return;
+                    }
+                    position++;
+                    if ( b == '>' ) {
+                        state = State.NORMAL;
+                        if ( directiveStart >= 0 && directiveKind == DirectiveKind.KEYWORD )
+                            // PREFIX and BASE end with the IRI.
+                            endDirective(position);
+                    }
+                }
+                case STRING1, STRING2 -> {
+                    if ( b == '\\' ) {
+                        position += 2;
+                        return;
+                    }
+                    position++;
+                    if ( b == quote() ) {
+                        state = State.NORMAL;
+                        afterString = true;
+                    } else if ( b == '\n' || b == '\r' ) {
+                        // Illegal; the parser reports it.
+                        state = State.NORMAL;
+                    }
+                }
+                case LONG_STRING1, LONG_STRING2 -> {
+                    if ( b == '\\' ) {
+                        position += 2;
+                        return;
+                    }
+                    byte q = quote();
+                    if ( b == q && at(position+1) == q && at(position+2) == q ) {
+                        position += 3;
+                        state = State.NORMAL;
+                        afterString = true;
+                        return;
+                    }
+                    position++;
+                }
+                case COMMENT -> {
+                    position++;
+                    if ( b == '\n' || b == '\r' )
+                        state = State.NORMAL;
+                }
+            }
+        }
+
+        private byte quote() {
+            return switch (state) {
+                case STRING1, LONG_STRING1 -> '\'';
+                default -> '"';
+            };
+        }
+
+        private void stepNormal(byte b) {
+            boolean langTag = afterString;
+            afterString = false;
+            switch (b) {
+                case '#' -> {
+                    state = State.COMMENT;
+                    position++;
+                }
+                case '<' -> {
+                    if ( at(position+1) == '<' ) {
+                        depth++;
+                        position += 2;
+                    } else {
+                        state = State.IRI;
+                        position++;
+                    }
+                }
+                case '>' -> {
+                    if ( at(position+1) == '>' ) {
+                        close();
+                        position += 2;
+                    } else
+                        position++;
+                }
+                case '"', '\'' -> {
+                    boolean isLong = at(position+1) == b && at(position+2) == b;
+                    if ( b == '"' )
+                        state = isLong ? State.LONG_STRING2 : State.STRING2;
+                    else
+                        state = isLong ? State.LONG_STRING1 : State.STRING1;
+                    position += isLong ? 3 : 1;
+                }
+                case '(', '[', '{' -> {
+                    depth++;
+                    position++;
+                }
+                case ')', ']' -> {
+                    close();
+                    position++;
+                }
+                case '}' -> {
+                    close();
+                    // Not the end of an annotation "|}".
+                    boolean endGraph = graphs && depth == 0 && ( position == 0 || bytes[position-1] != '|' );
+                    position++;
+                    if ( endGraph ) {
+                        directiveStart = -1;
+                        lastEnd = position;
+                    }
+                }
+                case '.' -> {
+                    // A '.' followed by white space can only end a statement,
+                    // not be part of a number or prefixed name.
+                    position++;
+                    if ( depth == 0 && isEndOfStatement(at(position)) ) {
+                        if ( directiveStart >= 0 )
+                            endDirective(position);
+                        lastEnd = position;
+                    }
+                }
+                case '@' -> {
+                    if ( ! langTag && depth == 0 && directiveStart < 0 )
+                        startDirective(DirectiveKind.AT);
+                    position++;
+                }
+                case '\\' ->
+                    // Escape in a prefixed name.
+                    position += 2;
+                default -> {
+                    if ( depth == 0 && directiveStart < 0 && isKeywordStart(b) && isDirectiveKeyword() )
+                        startDirective(DirectiveKind.KEYWORD);
+                    position++;
+                }
+            }
+        }
+
+        // Tolerate unbalanced input; the parser reports it.
+        private void close() {
+            if ( depth > 0 )
+                depth--;
+        }
+
+        private void startDirective(DirectiveKind kind) {
+            directiveStart = position;
+            directiveKind = kind;
+        }
+
+        private void endDirective(int end) {
+            String text = new String(bytes, directiveStart, end - directiveStart, StandardCharsets.UTF_8);
+            directives.add(new Directive(directiveStart, text));
+            directiveStart = -1;
+            directiveKind = null;
+        }
+
+        private static boolean isKeywordStart(byte b) {
+            return b == 'P' || b == 'p' || b == 'B' || b == 'b';
+        }
+
+        // "PREFIX" or "BASE", any case, as a word by itself.
+        private boolean isDirectiveKeyword() {
+            if ( position > 0 && ! isWhitespace(bytes[position-1]) )
+                return false;
+            return isWord("prefix") || isWord("base");
+        }
+
+        private boolean isWord(String word) {
+            int n = word.length();
+            for ( int i = 0 ; i < n ; i++ ) {
+                int b = at(position+i);
+                if ( b < 0 || Character.toLowerCase((char)b) != word.charAt(i) )
+                    return false;
+            }
+            int after = at(position+n);
+            return after >= 0 && isWhitespace((byte)after);
+        }
+
+        private static boolean isEndOfStatement(int b) {
+            return b < 0 || b == '#' || isWhitespace((byte)b);
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+        }
+    }
+}
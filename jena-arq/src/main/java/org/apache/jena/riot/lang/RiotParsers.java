@@ -33,6 +33,7 @@ import org.apache.jena.riot.system.*;
 import org.apache.jena.riot.thrift.RiotThriftException;
 import org.apache.jena.riot.thrift.ThriftRDF;
 import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerBytes;
 import org.apache.jena.riot.tokens.TokenizerText;
 import org.apache.jena.sparql.util.Context;
 
@@ -73,7 +74,8 @@ public class RiotParsers {
             (Lang language, ParserProfile profile) -> new ReaderRIOT_RDFJSON(profile);
 
 
-    // RIOT TokenizerText based parsers - Turtle, TriG, N-Triple, N-Quads
+    // RIOT tokenizer based parsers - Turtle, TriG, N-Triple, N-Quads
+    // N-Triples and N-Quads from an InputStream use TokenizerBytes.
 
     private static abstract class AbstractReaderRIOTLang implements ReaderRIOT {
         protected final Lang lang;
@@ -87,10 +89,14 @@ public class RiotParsers {
         @Override
         public void read(InputStream input, String baseURI, ContentType ct, StreamRDF output, Context context) {
             // Parser profile gets the base.
-            Tokenizer tokenizer = TokenizerText.create().source(input).errorHandler(parserProfile.getErrorHandler()).build();
+            Tokenizer tokenizer = createTokenizer(input);
             read(tokenizer,  output, context);
         }
 
+        protected Tokenizer createTokenizer(InputStream input) {
+            return TokenizerText.create().source(input).errorHandler(parserProfile.getErrorHandler()).build();
+        }
+
         /**
          * The parser profile has a base URI when created; the read operation has a
          * baseURI. What if they are different?
@@ -167,6 +173,11 @@ public class RiotParsers {
         protected LangRIOT create(Tokenizer tokenizer, StreamRDF output, Context context) {
             return new LangNTriples(tokenizer, super.parserProfile, output);
         }
+
+        @Override
+        protected Tokenizer createTokenizer(InputStream input) {
+            return TokenizerBytes.create(input, parserProfile.getErrorHandler());
+        }
     }
 
     private static class ReaderRIOTLangNQuads extends AbstractReaderRIOTLang {
@@ -178,6 +189,11 @@ public class RiotParsers {
         protected LangRIOT create(Tokenizer tokenizer, StreamRDF output, Context context) {
             return new LangNQuads(tokenizer, super.parserProfile, output);
         }
+
+        @Override
+        protected Tokenizer createTokenizer(InputStream input) {
+            return TokenizerBytes.create(input, parserProfile.getErrorHandler());
+        }
     }
 
 
@@ -19,6 +19,8 @@
 package org.apache.jena.riot.system;
 
 
+import java.util.function.Function;
+
 import org.apache.jena.atlas.lib.Cache;
 import org.apache.jena.atlas.lib.CacheFactory;
 import org.apache.jena.atlas.lib.cache.CacheInfo ;
@@ -34,15 +36,26 @@ public class FactoryRDFCaching extends FactoryRDFStd {
 
     private final int cacheSize ;
     private final Cache<String, Node> cache ;
+    // Cache miss.
+    private final Function<String, Node> createIRI ;
 
     public FactoryRDFCaching() {
         this(DftNodeCacheSize, SyntaxLabels.createLabelToNode());
     }
 
     public FactoryRDFCaching(int cacheSize, LabelToNode labelMapping) {
+        this(cacheSize, labelMapping, null);
+    }
+
+    /**
+     * Caching factory that, when its own cache misses, gets IRI nodes from a
+     * {@link NodeInterner} shared with other parsers.
+     */
+    public FactoryRDFCaching(int cacheSize, LabelToNode labelMapping, NodeInterner interner) {
         super(labelMapping) ;
         this.cacheSize = cacheSize;
         this.cache = setCache(cacheSize) ;
+        this.createIRI = ( interner == null ) ? RiotLib::createIRIorBNode : interner::intern ;
     }
 
     private Cache<String, Node> setCache(int cacheSize) {
@@ -52,7 +65,7 @@ public class FactoryRDFCaching extends FactoryRDFStd {
 
     @Override
     public Node createURI(String uriStr) {
-        return cache.get(uriStr, RiotLib::createIRIorBNode);
+        return cache.get(uriStr, createIRI);
     }
 
     // A few constants
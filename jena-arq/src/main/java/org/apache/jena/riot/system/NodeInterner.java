@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.system;
+
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
+import org.apache.jena.atlas.lib.cache.CacheInfo;
+import org.apache.jena.graph.Node;
+
+/**
+ * A thread-safe, size-bounded table of IRI nodes, shared by parsers, so that
+ * the same IRI is the same {@link Node} object in every parse that uses the
+ * table, on any thread. Predicates and classes are then one object each, however
+ * many times and in however many files they occur.
+ * <p>
+ * The least used entries are dropped when the table is full. With weak values,
+ * an entry is also dropped when the node is no longer used elsewhere, for
+ * example when the graph it was loaded into has gone.
+ * <p>
+ * A {@link FactoryRDFCaching} created with a {@code NodeInterner} keeps its own,
+ * unsynchronized, cache and looks in the interner when that misses.
+ * Use with {@link org.apache.jena.riot.RDFParserBuilder#nodeInterner}.
+ */
+public class NodeInterner {
+    /** Size of the {@link #get() system-wide} interner. */
+    public static final int DftInternerSize = 100_000;
+
+    // Initialized on first use.
+    private static class Shared {
+        static final NodeInterner interner = create(DftInternerSize, true);
+    }
+
+    /** The system-wide interner, with weak values. */
+    public static NodeInterner get() {
+        return Shared.interner;
+    }
+
+    /**
+     * Create an interner.
+     * @param maxSize The maximum number of entries.
+     * @param weakValues Whether entries are dropped when the node is not otherwise in use.
+     */
+    public static NodeInterner create(int maxSize, boolean weakValues) {
+        return new NodeInterner(maxSize, weakValues);
+    }
+
+    private final Cache<String, Node> cache;
+    private final int maxSize;
+
+    private NodeInterner(int maxSize, boolean weakValues) {
+        this.cache = CacheFactory.createCache(maxSize, weakValues, true);
+        this.maxSize = maxSize;
+    }
+
+    /** The node for an IRI string, as {@link FactoryRDF#createURI} would create it. */
+    public Node intern(String uriStr) {
+        return cache.get(uriStr, RiotLib::createIRIorBNode);
+    }
+
+    /**
+     * Return the interned node for the IRI of a node, adding this node if there is
+     * none. Other nodes are returned unchanged.
+     */
+    public Node intern(Node node) {
+        if ( !node.isURI() )
+            return node;
+        return cache.get(node.getURI(), k->node);
+    }
+
+    /** The maximum number of entries. */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** Approximate number of entries. */
+    public long size() {
+        return cache.size();
+    }
+
+    /** Remove all entries. The statistics are not reset. */
+    public void clear() {
+        cache.clear();
+    }
+
+    /** Requests, hits and misses since the interner was created. */
+    public CacheInfo stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public String toString() {
+        return "NodeInterner[size=" + size() + ", " + stats() + "]";
+    }
+}
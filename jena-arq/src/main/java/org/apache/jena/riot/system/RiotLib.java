@@ -207,6 +207,14 @@ public class RiotLib {
         return new FactoryRDFCaching(FactoryRDFCaching.DftNodeCacheSize, labelMapping);
     }
 
+    /**
+     * Create a {@code FactoryRDF} using the label to blank node scheme provided,
+     * that gets IRI nodes from a {@link NodeInterner}.
+     */
+    public static FactoryRDF factoryRDF(LabelToNode labelMapping, NodeInterner interner) {
+        return new FactoryRDFCaching(FactoryRDFCaching.DftNodeCacheSize, labelMapping, interner);
+    }
+
     /**
      * Create a new (not influenced by anything else) {@code FactoryRDF}
      * using the default label to blank node scheme.
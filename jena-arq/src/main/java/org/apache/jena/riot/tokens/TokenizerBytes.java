@@ -0,0 +1,782 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.tokens;
+
+import static org.apache.jena.atlas.lib.Chars.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.riot.RiotParseException;
+import org.apache.jena.riot.system.ErrorHandler;
+import org.apache.jena.riot.system.ErrorHandlerFactory;
+import org.apache.jena.riot.system.RiotChars;
+
+/**
+ * Tokenizer for N-Triples and N-Quads that works on the UTF-8 bytes of the input.
+ * <p>
+ * {@link TokenizerText} decodes all the input to characters, and then builds
+ * each token a character at a time. This tokenizer scans the bytes and only
+ * decodes the bytes of an IRI, a lexical form, a language tag or a blank node
+ * label when the token is created. There are no escapes in most terms, so
+ * that is one conversion of a range of bytes to a string. IRIs and language
+ * tags are cached by their bytes, so the same IRI in the input is decoded
+ * once and then is the same {@code String} object, with its hash code already
+ * calculated, for the node cache of the parser profile (see
+ * {@link org.apache.jena.riot.system.FactoryRDFCaching}).
+ * <p>
+ * The input is a {@link ByteBuffer}, which can be a memory mapped file, or an
+ * {@link InputStream}, which is read in blocks of whole lines.
+ * <p>
+ * The tokens are those of N-Triples and N-Quads (IRIs, blank nodes, strings,
+ * literals, {@code .}, {@code <<}, {@code >>}, {@code <<(} and {@code )>>}) and the errors and warnings
+ * are those of {@link TokenizerText}. Any other token is an error.
+ * Bytes that are not legal UTF-8 are replaced by U+FFFD, as for {@link TokenizerText}
+ * reading an {@code InputStream}.
+ */
+public final class TokenizerBytes implements Tokenizer {
+
+    private static final int BufferSize = 128 * 1024;
+    // Direct mapped caches of decoded strings, by their bytes. Sizes are powers of 2.
+    private static final int IRICacheSize = 4096;
+    private static final int LangCacheSize = 256;
+    // Longer IRIs are decoded every time.
+    private static final int MaxCachedLength = 256;
+
+    /** Tokenizer for the bytes between the position and the limit of a buffer. */
+    public static Tokenizer create(ByteBuffer bytes, ErrorHandler errorHandler) {
+        return new TokenizerBytes(bytes, null, errorHandler);
+    }
+
+    /** Tokenizer for an {@code InputStream} of UTF-8. */
+    public static Tokenizer create(InputStream input, ErrorHandler errorHandler) {
+        byte[] bytes = new byte[BufferSize];
+        ByteBuffer bb = ByteBuffer.wrap(bytes, 0, 0);
+        return new TokenizerBytes(bb, Objects.requireNonNull(input), errorHandler);
+    }
+
+    private final ErrorHandler errorHandler;
+    // Null when all the input is in the buffer.
+    private final InputStream input;
+    private ByteBuffer buffer;
+    // The array of a heap buffer, else null.
+    private byte[] array;
+    private int arrayOffset;
+
+    // Positions are the absolute index in the buffer.
+    // Next byte.
+    private int pos;
+    // End of the bytes that can be tokenized: after the last newline in
+    // the buffer, or the end of all the input.
+    private int end;
+    // End of the bytes in the buffer.
+    private int limit;
+    private boolean inputEOF = false;
+
+    private long line = 1;
+    // Start of the current line.
+    private int lineStart;
+    // Whether the current line has had a byte that is not ASCII.
+    // If not, the column is the byte offset.
+    private boolean lineHigh = false;
+    // Column, worked out when asked for, counting from the last time.
+    private int colPosn;
+    private long colNum = 1;
+
+    private Token token = null;
+    private boolean finished = false;
+
+    private final ByteCache iriCache = new ByteCache(IRICacheSize, false);
+    // Language tags are interned, as by TokenizerText.
+    private final ByteCache langCache = new ByteCache(LangCacheSize, true);
+    private final StringBuilder stringBuilder = new StringBuilder(200);
+    // For copying from a direct buffer.
+    private byte[] scratch = new byte[256];
+    // Result of codepointAt.
+    private int cpLength;
+
+    private TokenizerBytes(ByteBuffer bytes, InputStream input, ErrorHandler errorHandler) {
+        this.errorHandler = (errorHandler == null) ? ErrorHandlerFactory.errorHandlerStd : errorHandler;
+        this.input = input;
+        setBuffer(bytes);
+        this.pos = bytes.position();
+        this.limit = bytes.limit();
+        this.end = limit;
+        if ( input != null )
+            fill();
+        // Skip any byte order mark.
+        if ( at(pos) == 0xEF && at(pos+1) == 0xBB && at(pos+2) == 0xBF )
+            pos += 3;
+        this.lineStart = pos;
+        this.colPosn = pos;
+    }
+
+    private void setBuffer(ByteBuffer bytes) {
+        this.buffer = bytes;
+        if ( bytes.hasArray() ) {
+            this.array = bytes.array();
+            this.arrayOffset = bytes.arrayOffset();
+        } else {
+            this.array = null;
+            this.arrayOffset = 0;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if ( finished )
+            return false;
+        if ( token != null )
+            return true;
+        skip();
+        if ( pos >= end ) {
+            finished = true;
+            return false;
+        }
+        token = parseToken();
+        return true;
+    }
+
+    @Override
+    public boolean eof() {
+        return !hasNext();
+    }
+
+    @Override
+    public Token next() {
+        if ( !hasNext() )
+            throw new NoSuchElementException();
+        Token t = token;
+        token = null;
+        return t;
+    }
+
+    @Override
+    public Token peek() {
+        if ( !hasNext() )
+            return null;
+        return token;
+    }
+
+    @Override
+    public long getLine() {
+        return line;
+    }
+
+    @Override
+    public long getColumn() {
+        if ( !lineHigh )
+            return pos - lineStart + 1;
+        if ( colPosn < lineStart || colPosn > pos ) {
+            colPosn = lineStart;
+            colNum = 1;
+        }
+        // Count characters, not UTF-8 continuation bytes. A 4 byte sequence is a surrogate pair.
+        for ( ; colPosn < pos ; colPosn++ ) {
+            int b = byteAt(colPosn);
+            if ( (b & 0xC0) != 0x80 )
+                colNum++;
+            if ( b >= 0xF0 )
+                colNum++;
+        }
+        return colNum;
+    }
+
+    @Override
+    public void close() {
+        if ( input != null )
+            IO.close(input);
+    }
+
+    // ---- Input
+
+    private int byteAt(int i) {
+        if ( array != null )
+            return array[arrayOffset+i] & 0xFF;
+        return buffer.get(i) & 0xFF;
+    }
+
+    // The byte at i, or -1 if not available.
+    private int at(int i) {
+        return ( i < end ) ? byteAt(i) : -1;
+    }
+
+    /**
+     * Make more bytes available, moving the unread bytes to the start of the
+     * buffer. Return false at the end of the input.
+     */
+    private boolean fill() {
+        if ( input == null || inputEOF )
+            return false;
+        // Compact.
+        int shift = pos;
+        if ( shift > 0 ) {
+            System.arraycopy(array, pos, array, 0, limit - pos);
+            limit -= shift;
+            end = Math.max(0, end - shift);
+            pos = 0;
+            lineStart -= shift;
+            colPosn -= shift;
+        }
+        try {
+            for (;;) {
+                if ( limit == array.length ) {
+                    setBuffer(ByteBuffer.wrap(Arrays.copyOf(array, 2 * array.length)));
+                }
+                int n = input.read(array, limit, array.length - limit);
+                if ( n < 0 ) {
+                    inputEOF = true;
+                    end = limit;
+                    return pos < end;
+                }
+                int newLimit = limit + n;
+                // The bytes before limit have no newline after end.
+                for ( int i = newLimit - 1 ; i >= limit ; i-- ) {
+                    if ( array[i] == '\n' ) {
+                        end = i + 1;
+                        break;
+                    }
+                }
+                limit = newLimit;
+                if ( pos < end )
+                    return true;
+            }
+        } catch (IOException ex) {
+            throw new RiotParseException("Bad input stream [" + ex + "]", getLine(), getColumn());
+        }
+    }
+
+    // Skip white space, and comments.
+    private void skip() {
+        for (;;) {
+            if ( pos >= end && !fill() )
+                return;
+            int b = byteAt(pos);
+            switch (b) {
+                case ' ', '\t', '\r', '\f' -> pos++;
+                case '\n' -> {
+                    pos++;
+                    line++;
+                    lineStart = pos;
+                    lineHigh = false;
+                }
+                case '#' -> {
+                    // Comment. Skip to NL.
+                    pos++;
+                    for (;;) {
+                        if ( pos >= end && !fill() )
+                            return;
+                        b = byteAt(pos);
+                        if ( b == '\n' || b == '\r' )
+                            break;
+                        if ( b >= 0x80 )
+                            lineHigh = true;
+                        pos++;
+                    }
+                }
+                default -> { return; }
+            }
+        }
+    }
+
+    // ---- Tokens
+
+    private Token parseToken() {
+        Token t = new Token(getLine(), getColumn());
+        int b = byteAt(pos);
+        switch (b) {
+            case '<' -> {
+                if ( at(pos+1) == '<' ) {
+                    if ( at(pos+2) == '(' ) {
+                        pos += 3;
+                        return t.setType(TokenType.L_TRIPLE);
+                    }
+                    pos += 2;
+                    return t.setType(TokenType.LT2);
+                }
+                pos++;
+                return t.setType(TokenType.IRI).setImage(readIRI());
+            }
+            case '"', '\'' -> {
+                return readLiteral(t, b);
+            }
+            case '_' -> {
+                if ( at(pos+1) != ':' )
+                    break;
+                pos += 2;
+                return t.setType(TokenType.BNODE).setImage(readBlankNodeLabel());
+            }
+            case '.' -> {
+                pos++;
+                return t.setType(TokenType.DOT);
+            }
+            case '>' -> {
+                if ( at(pos+1) == '>' ) {
+                    pos += 2;
+                    return t.setType(TokenType.GT2);
+                }
+            }
+            case ')' -> {
+                if ( at(pos+1) == '>' && at(pos+2) == '>' ) {
+                    pos += 3;
+                    return t.setType(TokenType.R_TRIPLE);
+                }
+            }
+            default -> {}
+        }
+        int cp = codepointAt(pos);
+        fatal("Unexpected character for N-Triples or N-Quads: '%s' (U+%04X)", Character.toString(cp), cp);
+        return null;
+    }
+
+    private Token readLiteral(Token t, int quote) {
+        if ( at(pos+1) == quote ) {
+            if ( at(pos+2) == quote )
+                fatal("Triple quoted string not permitted");
+            // "" or ''
+            pos += 2;
+            t.setImage("");
+        } else {
+            pos++;
+            t.setImage(readString(quote));
+        }
+        t.setType(TokenType.STRING);
+        t.setStringType((quote == CH_QUOTE1) ? StringType.STRING1 : StringType.STRING2);
+
+        skip();
+        int b = at(pos);
+        if ( b == '@' ) {
+            pos++;
+            Token mainToken = new Token(t);
+            mainToken.setType(TokenType.LITERAL_LANG);
+            mainToken.setSubToken1(t);
+            mainToken.setImage2(langTag());
+            return mainToken;
+        }
+        if ( b == '^' ) {
+            if ( at(pos+1) != '^' )
+                fatal("expected \"^^\"");
+            pos += 2;
+            // White space is legal after a ^^.
+            skip();
+            Token mainToken = new Token(t);
+            mainToken.setSubToken1(t);
+            mainToken.setImage(t.getImage());
+            if ( at(pos) != '<' || at(pos+1) == '<' )
+                fatal("Datatype URI required after ^^ - URI or prefixed name expected");
+            Token subToken = parseToken();
+            mainToken.setSubToken2(subToken);
+            mainToken.setType(TokenType.LITERAL_DT);
+            return mainToken;
+        }
+        return t;
+    }
+
+    private String readIRI() {
+        int start = pos;
+        int segStart = pos;
+        int hash = 0;
+        boolean escapes = false;
+        for (;;) {
+            if ( pos >= end )
+                fatal("Broken IRI (End of file)");
+            int b = byteAt(pos);
+            switch (b) {
+                case '>' -> {
+                    String s;
+                    if ( escapes ) {
+                        appendDecoded(segStart);
+                        s = stringBuilder.toString();
+                    } else
+                        s = iriCache.get(hash, start, pos - start);
+                    pos++;
+                    return s;
+                }
+                case '\n' -> fatal("Broken IRI (newline): %s", partial(start, segStart, escapes));
+                case '\r' -> fatal("Broken IRI (CR): %s", partial(start, segStart, escapes));
+                case '\\' -> {
+                    if ( !escapes ) {
+                        stringBuilder.setLength(0);
+                        escapes = true;
+                    }
+                    appendDecoded(segStart);
+                    pos++;
+                    insertCodepoint(stringBuilder, readUnicodeEscape());
+                    segStart = pos;
+                    continue;
+                }
+                case '<' -> fatal("Bad character in IRI (bad character: '<'): <%s[<]...>", partial(start, segStart, escapes));
+                case '\t' -> error("Bad character in IRI (tab character): <%s[tab]...>", partial(start, segStart, escapes));
+                case '{', '}', '"', '|', '^', '`' ->
+                    warning("Illegal character in IRI (codepoint 0x%02X, '%c'): <%s[%c]...>", b, (char)b, partial(start, segStart, escapes), (char)b);
+                case ' ' -> error("Bad character in IRI (space): <%s[space]...>", partial(start, segStart, escapes));
+                default -> {
+                    if ( b <= 0x19 )
+                        warning("Illegal character in IRI (control char 0x%02X): <%s[0x%02X]...>", b, partial(start, segStart, escapes), b);
+                    else if ( b >= 0x80 )
+                        lineHigh = true;
+                }
+            }
+            hash = 31 * hash + b;
+            pos++;
+        }
+    }
+
+    // The string so far, for error messages.
+    private String partial(int start, int segStart, boolean escapes) {
+        if ( !escapes )
+            return decode(start, pos - start);
+        return stringBuilder.toString() + decode(segStart, pos - segStart);
+    }
+
+    // Read a unicode escape : does not allow \\ bypass
+    private int readUnicodeEscape() {
+        if ( pos >= end )
+            fatal("Broken escape sequence");
+        int ch = byteAt(pos++);
+        switch (ch) {
+            case 'u': return readHexSequence(4);
+            case 'U': return readUnicode8Escape();
+            default:
+                fatal("Illegal unicode escape sequence value: \\%c (0x%02X)", ch, ch);
+        }
+        return 0;
+    }
+
+    // After the opening quote.
+    private String readString(int quote) {
+        int segStart = pos;
+        boolean high = false;
+        boolean escapes = false;
+        for (;;) {
+            if ( pos >= end )
+                fatal("Broken token: %s", partial(segStart, segStart, escapes));
+            int b = byteAt(pos);
+            if ( b == quote ) {
+                String s;
+                if ( escapes ) {
+                    appendString(segStart, high);
+                    s = stringBuilder.toString();
+                } else
+                    s = decodeString(segStart, pos - segStart, high);
+                pos++;
+                return s;
+            }
+            switch (b) {
+                case '\n' -> fatal("Broken token (newline in string)");
+                case '\r' -> fatal("Broken token (carriage return in string)");
+                case '\\' -> {
+                    if ( !escapes ) {
+                        stringBuilder.setLength(0);
+                        escapes = true;
+                    }
+                    appendString(segStart, high);
+                    pos++;
+                    insertCodepoint(stringBuilder, readLiteralEscape());
+                    segStart = pos;
+                    high = false;
+                    continue;
+                }
+                default -> {
+                    if ( b >= 0x80 ) {
+                        high = true;
+                        lineHigh = true;
+                    }
+                }
+            }
+            pos++;
+        }
+    }
+
+    private void appendString(int segStart, boolean high) {
+        if ( segStart == pos )
+            return;
+        if ( high )
+            stringBuilder.append(decodeString(segStart, pos - segStart, true));
+        else
+            appendASCII(segStart);
+    }
+
+    // Decode the raw bytes of a string, with the warnings of TokenizerText.
+    private String decodeString(int start, int len, boolean high) {
+        String s = decode(start, len);
+        if ( high ) {
+            for ( int i = 0 ; i < s.length() ; i++ ) {
+                char ch = s.charAt(i);
+                if ( ch == NotACharacter || ch == ReverseOrderBOM )
+                    warning("Unicode non-character U+%04X in string", (int)ch);
+            }
+        }
+        return s;
+    }
+
+    private int readLiteralEscape() {
+        if ( pos >= end )
+            fatal("Escape sequence not completed");
+        int c = byteAt(pos++);
+        switch (c) {
+            case 'n':   return NL;
+            case 'r':   return CR;
+            case 't':   return TAB;
+            case 'f':   return '\f';
+            case 'b':   return BSPACE;
+            case '"':   return '"';
+            case '\'':  return '\'';
+            case '\\':  return '\\';
+            case 'u':   return readHexSequence(4);
+            case 'U':   return readUnicode8Escape();
+            default:
+                fatal("Illegal escape sequence value: %c (0x%02X)", c, c);
+                return 0;
+        }
+    }
+
+    private int readUnicode8Escape() {
+        int ch8 = readHexSequence(8);
+        if ( ch8 > Character.MAX_CODE_POINT )
+            fatal("Illegal code point in \\U sequence value: 0x%08X", ch8);
+        return ch8;
+    }
+
+    private int readHexSequence(int N) {
+        int x = 0;
+        for ( int i = 0 ; i < N ; i++ ) {
+            if ( pos >= end )
+                fatal("Not a hexadecimal character (end of file)");
+            int ch = byteAt(pos++);
+            int d = RiotChars.valHexChar(ch);
+            if ( d < 0 )
+                fatal("Not a hexadecimal character: '%c'", (char)ch);
+            x = (x << 4) + d;
+        }
+        return x;
+    }
+
+    private void insertCodepoint(StringBuilder buffer, int ch) {
+        if ( Character.charCount(ch) == 1 )
+            buffer.append((char)ch);
+        else {
+            if ( !Character.isDefined(ch) && !Character.isSupplementaryCodePoint(ch) )
+                fatal("Illegal codepoint: 0x%04X", ch);
+            buffer.append(Character.toChars(ch));
+        }
+    }
+
+    // After the '@'.
+    private String langTag() {
+        int start = pos;
+        int hash = 0;
+        int x = pos;
+        while ( isA2Z(at(pos)) )
+            hash = 31 * hash + byteAt(pos++);
+        if ( pos == x )
+            fatal("Bad language tag");
+        boolean seenTextDirection = false;
+        while ( at(pos) == '-' ) {
+            if ( seenTextDirection )
+                fatal("Bad language tag with base direction");
+            hash = 31 * hash + '-';
+            pos++;
+            if ( at(pos) == '-' ) {
+                // base direction
+                hash = 31 * hash + '-';
+                pos++;
+                seenTextDirection = true;
+            }
+            x = pos;
+            while ( isA2ZN(at(pos)) )
+                hash = 31 * hash + byteAt(pos++);
+            if ( pos == x )
+                fatal("Bad language tag");
+        }
+        return langCache.get(hash, start, pos - start);
+    }
+
+    private static boolean isA2Z(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    private static boolean isA2ZN(int b) {
+        return isA2Z(b) || (b >= '0' && b <= '9');
+    }
+
+    // BLANK_NODE_LABEL    ::=     '_:' (PN_CHARS_U | [0-9]) ((PN_CHARS | '.')* PN_CHARS)?
+    private String readBlankNodeLabel() {
+        int start = pos;
+        if ( pos >= end )
+            fatal("Blank node label missing (EOF found)");
+        int ch = codepointAt(pos);
+        if ( RiotChars.isWhitespace(ch) )
+            fatal("Blank node label missing");
+        if ( !RiotChars.isPNChars_U_N(ch) )
+            fatal("Blank node label does not start with alphabetic or _ : '%c'", (char)ch);
+        if ( ch == REPLACEMENT )
+            warning("Unicode replacement character U+FFFD in blank node label");
+        pos += cpLength;
+        // A trailing DOT is not part of the label.
+        int lastNonDot = pos;
+        while ( pos < end ) {
+            ch = codepointAt(pos);
+            if ( ch == CH_DOT ) {
+                pos++;
+                continue;
+            }
+            if ( !RiotChars.isPNChars(ch) )
+                break;
+            if ( ch == REPLACEMENT )
+                warning("Unicode replacement character U+FFFD in blank node label");
+            pos += cpLength;
+            lastNonDot = pos;
+        }
+        pos = lastNonDot;
+        return decode(start, pos - start);
+    }
+
+    /**
+     * The codepoint starting at byte i, and set {@code cpLength}. A byte
+     * sequence that is not UTF-8 is U+FFFD.
+     */
+    private int codepointAt(int i) {
+        int b0 = byteAt(i);
+        if ( b0 < 0x80 ) {
+            cpLength = 1;
+            return b0;
+        }
+        lineHigh = true;
+        int n;
+        int cp;
+        if ( b0 >= 0xC2 && b0 <= 0xDF ) {
+            n = 2;
+            cp = b0 & 0x1F;
+        } else if ( b0 >= 0xE0 && b0 <= 0xEF ) {
+            n = 3;
+            cp = b0 & 0x0F;
+        } else if ( b0 >= 0xF0 && b0 <= 0xF4 ) {
+            n = 4;
+            cp = b0 & 0x07;
+        } else {
+            cpLength = 1;
+            return REPLACEMENT;
+        }
+        for ( int j = 1 ; j < n ; j++ ) {
+            int b = at(i+j);
+            if ( b < 0 || (b & 0xC0) != 0x80 ) {
+                cpLength = j;
+                return REPLACEMENT;
+            }
+            cp = (cp << 6) | (b & 0x3F);
+        }
+        cpLength = n;
+        return cp;
+    }
+
+    // ---- Bytes to strings
+
+    // Append the bytes from start to the current position.
+    private void appendDecoded(int start) {
+        if ( start < pos )
+            stringBuilder.append(decode(start, pos - start));
+    }
+
+    private void appendASCII(int start) {
+        for ( int i = start ; i < pos ; i++ )
+            stringBuilder.append((char)byteAt(i));
+    }
+
+    private String decode(int start, int len) {
+        if ( array != null )
+            return new String(array, arrayOffset+start, len, StandardCharsets.UTF_8);
+        return new String(copy(start, len), 0, len, StandardCharsets.UTF_8);
+    }
+
+    // Copy from a direct buffer.
+    private byte[] copy(int start, int len) {
+        if ( scratch.length < len )
+            scratch = new byte[Math.max(len, 2 * scratch.length)];
+        buffer.get(start, scratch, 0, len);
+        return scratch;
+    }
+
+    /** Strings, by the bytes they are decoded from; each slot holds the last one used. */
+    private final class ByteCache {
+        private final byte[][] keys;
+        private final String[] values;
+        private final int mask;
+        private final boolean intern;
+
+        ByteCache(int size, boolean intern) {
+            keys = new byte[size][];
+            values = new String[size];
+            mask = size - 1;
+            this.intern = intern;
+        }
+
+        /** The string for the bytes, where hash is the hash of the bytes. */
+        String get(int hash, int start, int len) {
+            if ( len > MaxCachedLength )
+                return decode(start, len);
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            byte[] key = keys[slot];
+            byte[] src;
+            int srcStart;
+            if ( array != null ) {
+                src = array;
+                srcStart = arrayOffset + start;
+            } else {
+                src = copy(start, len);
+                srcStart = 0;
+            }
+            if ( key != null && Arrays.equals(key, 0, key.length, src, srcStart, srcStart + len) )
+                return values[slot];
+            String s = new String(src, srcStart, len, StandardCharsets.UTF_8);
+            if ( intern )
+                s = s.intern();
+            keys[slot] = Arrays.copyOfRange(src, srcStart, srcStart + len);
+            values[slot] = s;
+            return s;
+        }
+    }
+
+    // ---- Errors
+
+    private void warning(String message, Object... args) {
+        String msg = String.format(message, args);
+        errorHandler.warning(msg, getLine(), getColumn());
+    }
+
+    private void error(String message, Object... args) {
+        String msg = String.format(message, args);
+        errorHandler.error(msg, getLine(), getColumn());
+    }
+
+    private void fatal(String message, Object... args) {
+        String msg = String.format(message, args);
+        long line = getLine();
+        long col = getColumn();
+        errorHandler.fatal(msg, line, col);
+        // Stop, whatever the error handler does.
+        throw new RiotParseException(msg, line, col);
+    }
+}
@@ -191,8 +191,8 @@ public class ARQConstants
     /** Marker for variables renamed to make variables hidden because of quad transformation */
     public static final String allocVarQuad =  "*g" ;
 
-    // Spare primary marker.
-    //private static final String executionVar =  "@" ;
+    /** Marker for variables carrying GROUP BY keys through a spill to disk */
+    public static final String allocVarGroupKey =  "@" ;
 
     // These strings are without the leading "?"
 
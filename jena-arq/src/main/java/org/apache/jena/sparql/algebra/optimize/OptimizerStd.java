@@ -23,6 +23,8 @@ import org.apache.jena.sparql.ARQConstants;
 import org.apache.jena.sparql.SystemARQ;
 import org.apache.jena.sparql.algebra.*;
 import org.apache.jena.sparql.algebra.op.OpLabel;
+import org.apache.jena.sparql.engine.optimizer.CardinalityEstimator;
+import org.apache.jena.sparql.engine.optimizer.TransformJoinStrategyCost;
 import org.apache.jena.sparql.util.Context;
 import org.apache.jena.sparql.util.Symbol;
 import org.slf4j.Logger;
@@ -235,6 +237,8 @@ public class OptimizerStd implements Rewrite
     }
 
     protected Op transformJoinStrategy(Op op) {
+        if ( context.isTrue(ARQ.optCostBasedJoins) )
+            return apply("Cost-based join strategy", new TransformJoinStrategyCost(CardinalityEstimator.get(context)), op);
         return apply("Index Join strategy", new TransformJoinStrategy(), op);
     }
 
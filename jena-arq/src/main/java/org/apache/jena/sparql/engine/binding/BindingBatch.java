@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.binding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+
+/**
+ * A block of rows held as columns, one column of {@link Node Nodes} per variable.
+ * A {@code null} entry in a column means the variable is unbound in that row.
+ * <p>
+ * Batches are mutable and are passed between batch-aware query iterators
+ * (see {@link org.apache.jena.sparql.engine.iterator.QueryIterBatch1}) which
+ * process all the rows of a batch in one call. Rows are only turned into
+ * {@link Binding Bindings} when leaving batch processing.
+ */
+public final class BindingBatch {
+    private final int capacity;
+    private final List<Var> vars = new ArrayList<>();
+    private final List<Node[]> columns = new ArrayList<>();
+    private int size = 0;
+
+    public BindingBatch(int capacity) {
+        if ( capacity <= 0 )
+            throw new IllegalArgumentException("Batch capacity must be positive: "+capacity);
+        this.capacity = capacity;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size >= capacity;
+    }
+
+    /** The variables with a column in this batch. Do not modify the list. */
+    public List<Var> vars() {
+        return vars;
+    }
+
+    /** Column index for a variable, or -1. */
+    public int columnIndex(Var var) {
+        // Batches have few columns - a linear scan is faster than hashing.
+        for ( int i = 0 ; i < vars.size() ; i++ ) {
+            if ( vars.get(i).equals(var) )
+                return i;
+        }
+        return -1;
+    }
+
+    /** The column for a variable, or null if there is no column. */
+    public Node[] column(Var var) {
+        int idx = columnIndex(var);
+        return idx < 0 ? null : columns.get(idx);
+    }
+
+    private Node[] columnOrCreate(Var var) {
+        int idx = columnIndex(var);
+        if ( idx >= 0 )
+            return columns.get(idx);
+        Node[] col = new Node[capacity];
+        vars.add(var);
+        columns.add(col);
+        return col;
+    }
+
+    /** Append a row. */
+    public void add(Binding binding) {
+        if ( isFull() )
+            throw new IllegalStateException("Batch is full");
+        int row = size;
+        binding.forEach((v, n) -> columnOrCreate(v)[row] = n);
+        size++;
+    }
+
+    public Node get(int row, Var var) {
+        checkRow(row);
+        Node[] col = column(var);
+        return col == null ? null : col[row];
+    }
+
+    /** Set the value of a variable in a row; a {@code null} value unbinds the variable. */
+    public void set(int row, Var var, Node node) {
+        checkRow(row);
+        columnOrCreate(var)[row] = node;
+    }
+
+    private void checkRow(int row) {
+        if ( row < 0 || row >= size )
+            throw new IndexOutOfBoundsException("Row "+row+" : size = "+size);
+    }
+
+    /** Copy out one row as a {@link Binding}. */
+    public Binding binding(int row) {
+        checkRow(row);
+        BindingBuilder builder = Binding.builder();
+        for ( int i = 0 ; i < vars.size() ; i++ ) {
+            Node n = columns.get(i)[row];
+            if ( n != null )
+                builder.add(vars.get(i), n);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Keep only the rows marked in {@code keep}, in order.
+     * Only the first {@link #size()} entries of {@code keep} are used.
+     */
+    public void select(boolean[] keep) {
+        int dst = 0;
+        for ( int src = 0 ; src < size ; src++ ) {
+            if ( ! keep[src] )
+                continue;
+            if ( dst != src ) {
+                for ( Node[] col : columns )
+                    col[dst] = col[src];
+            }
+            dst++;
+        }
+        clearRows(dst, size);
+        size = dst;
+    }
+
+    /** Remove the first {@code n} rows. */
+    public void dropFirst(int n) {
+        if ( n <= 0 )
+            return;
+        n = Math.min(n, size);
+        int remaining = size - n;
+        for ( Node[] col : columns )
+            System.arraycopy(col, n, col, 0, remaining);
+        clearRows(remaining, size);
+        size = remaining;
+    }
+
+    /** Keep at most the first {@code n} rows. */
+    public void truncate(int n) {
+        if ( n >= size )
+            return;
+        n = Math.max(n, 0);
+        clearRows(n, size);
+        size = n;
+    }
+
+    /** Remove the columns for variables not in {@code projectVars}. */
+    public void project(Collection<Var> projectVars) {
+        for ( int i = vars.size()-1 ; i >= 0 ; i-- ) {
+            if ( ! projectVars.contains(vars.get(i)) ) {
+                vars.remove(i);
+                columns.remove(i);
+            }
+        }
+    }
+
+    private void clearRows(int from, int to) {
+        for ( Node[] col : columns ) {
+            for ( int i = from ; i < to ; i++ )
+                col[i] = null;
+        }
+    }
+
+    /** Iterator over the rows as {@link Binding Bindings}. */
+    public Iterator<Binding> iterator() {
+        return new Iterator<>() {
+            private int row = 0;
+            @Override
+            public boolean hasNext() {
+                return row < size;
+            }
+
+            @Override
+            public Binding next() {
+                if ( ! hasNext() )
+                    throw new NoSuchElementException();
+                return binding(row++);
+            }
+        };
+    }
+
+    /**
+     * A {@link Binding} that is a view of one row of this batch.
+     * The row can be changed with {@link RowView#setRow}, so the view must not be
+     * retained; use {@link #binding(int)} for a stable copy.
+     */
+    public RowView rowView() {
+        return new RowView();
+    }
+
+    public final class RowView extends BindingBase {
+        private int row = 0;
+
+        private RowView() {
+            super(null);
+        }
+
+        public RowView setRow(int row) {
+            checkRow(row);
+            this.row = row;
+            return this;
+        }
+
+        @Override
+        protected Iterator<Var> vars1() {
+            List<Var> x = new ArrayList<>(vars.size());
+            for ( int i = 0 ; i < vars.size() ; i++ ) {
+                if ( columns.get(i)[row] != null )
+                    x.add(vars.get(i));
+            }
+            return x.iterator();
+        }
+
+        @Override
+        protected int size1() {
+            int count = 0;
+            for ( Node[] col : columns ) {
+                if ( col[row] != null )
+                    count++;
+            }
+            return count;
+        }
+
+        @Override
+        protected boolean isEmpty1() {
+            return size1() == 0;
+        }
+
+        @Override
+        protected boolean contains1(Var var) {
+            return get1(var) != null;
+        }
+
+        @Override
+        protected Node get1(Var var) {
+            Node[] col = column(var);
+            return col == null ? null : col[row];
+        }
+
+        @Override
+        public Binding detach() {
+            return binding(row);
+        }
+
+        @Override
+        protected Binding detachWithNewParent(Binding newParent) {
+            throw new UnsupportedOperationException("Should never be called.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Batch[").append(size).append("]").append(vars);
+        return sb.toString();
+    }
+}
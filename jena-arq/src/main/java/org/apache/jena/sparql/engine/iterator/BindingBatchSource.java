@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.sparql.engine.iterator;
+
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.BindingBatch;
+
+/**
+ * A {@link QueryIterator} that can also return its results a {@link BindingBatch}
+ * at a time. Batch-aware query iterators read such an input a batch at a time.
+ *
+ * @see org.apache.jena.query.ARQ#executionBatchSize
+ */
+public interface BindingBatchSource extends QueryIterator {
+    /**
+     * Return the rest of the current batch, or the next batch, or null if there are
+     * no more rows. The batch returned is owned by the caller.
+     */
+    public BindingBatch nextBatch();
+
+    /**
+     * Read the next batch from a query iterator: the next batch of a
+     * {@code BindingBatchSource}, otherwise up to {@code batchSize} rows.
+     * Return null if there are no more rows.
+     */
+    public static BindingBatch nextBatch(QueryIterator input, int batchSize) {
+        if ( input instanceof BindingBatchSource batchInput )
+            return batchInput.nextBatch();
+        BindingBatch batch = new BindingBatch(Math.max(batchSize, 1));
+        while ( ! batch.isFull() && input.hasNext() )
+            batch.add(input.next());
+        return batch.isEmpty() ? null : batch;
+    }
+}
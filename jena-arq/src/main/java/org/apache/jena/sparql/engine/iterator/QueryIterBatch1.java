@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBatch;
+
+/**
+ * A query iterator that processes its input a {@link BindingBatch} at a time.
+ * <p>
+ * If the input is a {@link BindingBatchSource}, such as another
+ * {@code QueryIterBatch1}, batches are passed directly between the two iterators; otherwise the input is read row by row to fill a
+ * batch. The output is available as rows ({@code hasNext}/{@code next}) and as
+ * batches ({@link #nextBatch()}).
+ *
+ * @see ARQ#executionBatchSize
+ */
+public abstract class QueryIterBatch1 extends QueryIter1 implements BindingBatchSource {
+    /** Batch size used if none is given in the context. */
+    public static final int DefaultBatchSize = 256;
+
+    private final int batchSize;
+    private BindingBatch current = null;
+    private int cursor = 0;
+    private boolean inputFinished = false;
+
+    protected QueryIterBatch1(QueryIterator input, ExecutionContext execCxt) {
+        super(input, execCxt);
+        this.batchSize = batchSize(execCxt);
+    }
+
+    /**
+     * The batch size for the execution context, or 0 if batch execution is not
+     * enabled.
+     */
+    public static int batchSize(ExecutionContext execCxt) {
+        if ( execCxt == null || execCxt.getContext() == null )
+            return 0;
+        return execCxt.getContext().getInt(ARQ.executionBatchSize, 0);
+    }
+
+    /**
+     * Process a batch in place. Rows may be removed and columns added or
+     * removed.
+     */
+    protected abstract void process(BindingBatch batch);
+
+    /** Return true if no more input is needed (e.g. LIMIT reached). */
+    protected boolean inputNotNeeded() {
+        return false;
+    }
+
+    @Override
+    public BindingBatch nextBatch() {
+        if ( getRequestingCancel() ) {
+            close();
+            throw new QueryCancelledException();
+        }
+        if ( ! hasNext() )
+            return null;
+        BindingBatch batch = current;
+        batch.dropFirst(cursor);
+        current = null;
+        cursor = 0;
+        return batch;
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        if ( current != null && cursor < current.size() )
+            return true;
+        current = null;
+        cursor = 0;
+        for (;;) {
+            BindingBatch batch = readInput();
+            if ( batch == null )
+                return false;
+            process(batch);
+            if ( ! batch.isEmpty() ) {
+                current = batch;
+                return true;
+            }
+        }
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        return current.binding(cursor++);
+    }
+
+    private BindingBatch readInput() {
+        if ( inputFinished || inputNotNeeded() )
+            return null;
+        BindingBatch batch = BindingBatchSource.nextBatch(getInput(), batchSize);
+        if ( batch == null )
+            inputFinished = true;
+        return batch;
+    }
+
+    @Override
+    protected void closeSubIterator() {
+        current = null;
+    }
+
+    @Override
+    protected void requestSubCancel() {}
+}
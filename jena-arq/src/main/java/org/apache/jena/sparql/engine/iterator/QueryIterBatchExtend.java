@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.core.VarExprList;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.BindingBatch;
+import org.apache.jena.sparql.serializer.SerializationContext;
+
+/**
+ * Batch version of {@link QueryIterAssign}: extend each row by (var, expression),
+ * with "let*" semantics.
+ */
+public class QueryIterBatchExtend extends QueryIterBatch1 {
+    private final VarExprList exprs;
+    private boolean[] keep = new boolean[0];
+
+    public QueryIterBatchExtend(QueryIterator input, VarExprList exprs, ExecutionContext execCxt) {
+        super(input, execCxt);
+        this.exprs = exprs;
+    }
+
+    @Override
+    protected void process(BindingBatch batch) {
+        int size = batch.size();
+        if ( keep.length < size )
+            keep = new boolean[batch.capacity()];
+        boolean allKept = true;
+        BindingBatch.RowView row = batch.rowView();
+        for ( int i = 0 ; i < size ; i++ ) {
+            keep[i] = true;
+            for ( Var v : exprs.getVars() ) {
+                // The row view sees assignments already made to this row.
+                Node n = exprs.get(v, row.setRow(i), getExecContext());
+                if ( n == null )
+                    // Expression failed to evaluate - no assignment
+                    continue;
+                Node n2 = batch.get(i, v);
+                if ( n2 != null ) {
+                    // Already has a value; if so, must be sameValueAs
+                    if ( ! n2.sameValueAs(n) ) {
+                        keep[i] = false;
+                        allKept = false;
+                        break;
+                    }
+                    continue;
+                }
+                batch.set(i, v, n);
+            }
+        }
+        if ( ! allKept )
+            batch.select(keep);
+    }
+
+    @Override
+    protected void details(IndentedWriter out, SerializationContext cxt) {
+        out.print(Lib.className(this));
+        out.print(" ");
+        out.print(exprs.toString());
+    }
+}
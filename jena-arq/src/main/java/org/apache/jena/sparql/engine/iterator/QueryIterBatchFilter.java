@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.atlas.logging.Log;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.BindingBatch;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprException;
+import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.serializer.SerializationContext;
+import org.apache.jena.sparql.util.ExprUtils;
+
+/** Batch version of {@link QueryIterFilterExpr} for a list of filter expressions. */
+public class QueryIterBatchFilter extends QueryIterBatch1 {
+    private final ExprList exprs;
+    private boolean[] keep = new boolean[0];
+
+    public QueryIterBatchFilter(QueryIterator input, ExprList exprs, ExecutionContext execCxt) {
+        super(input, execCxt);
+        this.exprs = exprs;
+    }
+
+    @Override
+    protected void process(BindingBatch batch) {
+        int size = batch.size();
+        if ( keep.length < size )
+            keep = new boolean[batch.capacity()];
+        for ( int i = 0 ; i < size ; i++ )
+            keep[i] = true;
+        BindingBatch.RowView row = batch.rowView();
+        // Expression by expression, so later expressions only see the rows that
+        // passed the earlier ones.
+        for ( Expr expr : exprs ) {
+            for ( int i = 0 ; i < size ; i++ ) {
+                if ( keep[i] )
+                    keep[i] = isSatisfied(expr, row.setRow(i));
+            }
+        }
+        batch.select(keep);
+    }
+
+    private boolean isSatisfied(Expr expr, BindingBatch.RowView row) {
+        try {
+            // ExprNode.isSatisfied converts exceptions to ExprEvalException
+            return expr.isSatisfied(row, getExecContext());
+        } catch (QueryCancelledException ex) {
+            ex.addSuppressed(new RuntimeException("Query cancelled exception."));
+            throw ex;
+        } catch (ExprException ex) {
+            // Some evaluation exception: should not happen.
+            Log.warn(this, "Expression Exception in " + expr, ex);
+            return false;
+        } catch (Exception ex) {
+            Log.warn(this, "General exception in " + expr, ex);
+            return false;
+        }
+    }
+
+    @Override
+    protected void details(IndentedWriter out, SerializationContext cxt) {
+        out.print(Lib.className(this));
+        out.print(" ");
+        ExprUtils.fmtSPARQL(out, exprs, cxt);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import java.util.List;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.atlas.lib.ListUtils;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.BindingBatch;
+import org.apache.jena.sparql.serializer.SerializationContext;
+
+/** Batch version of {@link QueryIterProject}: removes the columns not projected. */
+public class QueryIterBatchProject extends QueryIterBatch1 {
+    private final List<Var> projectionVars;
+
+    public QueryIterBatchProject(QueryIterator input, List<Var> vars, ExecutionContext execCxt) {
+        super(input, execCxt);
+        this.projectionVars = vars;
+    }
+
+    public List<Var> getProjectionVars() {
+        return projectionVars;
+    }
+
+    @Override
+    protected void process(BindingBatch batch) {
+        batch.project(projectionVars);
+    }
+
+    @Override
+    protected void details(IndentedWriter out, SerializationContext cxt) {
+        out.print(Lib.className(this));
+        out.print(" ");
+        ListUtils.print(out, projectionVars);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecException;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.BindingBatch;
+
+/** Batch version of {@link QueryIterSlice}: OFFSET and LIMIT. */
+public class QueryIterBatchSlice extends QueryIterBatch1 {
+    private long toSkip;
+    private long remaining;
+
+    public QueryIterBatchSlice(QueryIterator input, long startPosition, long numItems, ExecutionContext execCxt) {
+        super(input, execCxt);
+        toSkip = ( startPosition == Query.NOLIMIT ) ? 0 : startPosition;
+        remaining = ( numItems == Query.NOLIMIT ) ? Long.MAX_VALUE : numItems;
+        if ( remaining < 0 )
+            throw new QueryExecException("Negative LIMIT: "+numItems);
+        if ( toSkip < 0 )
+            throw new QueryExecException("Negative OFFSET: "+startPosition);
+    }
+
+    @Override
+    protected void process(BindingBatch batch) {
+        if ( toSkip > 0 ) {
+            int n = (int)Math.min(toSkip, batch.size());
+            batch.dropFirst(n);
+            toSkip -= n;
+        }
+        if ( remaining < batch.size() )
+            batch.truncate((int)remaining);
+        remaining -= batch.size();
+    }
+
+    @Override
+    protected boolean inputNotNeeded() {
+        return remaining <= 0;
+    }
+}
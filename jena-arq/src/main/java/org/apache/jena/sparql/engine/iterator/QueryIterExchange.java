@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.sparql.engine.iterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QueryExecException;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.main.ParallelExecution;
+import org.apache.jena.sparql.engine.main.ParallelExecution.WorkerTxn;
+import org.apache.jena.sparql.serializer.SerializationContext;
+
+/**
+ * Exchange operator: run a number of producers of query iterators on the
+ * {@link ParallelExecution#pool() parallel execution pool} and return the
+ * union of their results, in no particular order.
+ * <p>
+ * At most {@link ParallelExecution#parallelism} workers are used. Each worker
+ * runs producers until there are none left. Workers pass results back in
+ * chunks through a bounded queue. A worker waiting for space in the queue is a
+ * {@linkplain ForkJoinPool.ManagedBlocker managed blocker}, so the pool adds
+ * threads while it waits and other work on the pool, such as the other side of
+ * a join, can still run.
+ * <p>
+ * Producers are given a worker {@link ExecutionContext}. If a worker can not
+ * obtain a view of the data ({@link WorkerTxn#begin()} returns false), its
+ * producers are run on the thread consuming this iterator after the workers
+ * have finished.
+ */
+public class QueryIterExchange extends QueryIter {
+    private static final int ChunkSize = 128;
+    private static final long PollMillis = 50;
+    // Marker: a worker has finished.
+    private static final List<Binding> END = new ArrayList<>(0);
+
+    private final List<Function<ExecutionContext, QueryIterator>> producers;
+    private final int numWorkers;
+    private final BlockingQueue<List<Binding>> queue;
+    private final AtomicInteger nextProducer = new AtomicInteger(0);
+    private final Set<QueryIterator> running = ConcurrentHashMap.newKeySet();
+    private final Queue<Function<ExecutionContext, QueryIterator>> deferred = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Throwable> error = new AtomicReference<>(null);
+    private final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    private volatile boolean stopping = false;
+
+    // Consumer state.
+    private boolean started = false;
+    private int finishedWorkers = 0;
+    private List<Binding> chunk = null;
+    private int chunkIdx = 0;
+    private QueryIterator localIter = null;
+
+    public QueryIterExchange(List<Function<ExecutionContext, QueryIterator>> producers, ExecutionContext execCxt) {
+        super(execCxt);
+        this.producers = List.copyOf(producers);
+        int degree = Math.max(1, ParallelExecution.parallelism(execCxt));
+        this.numWorkers = Math.min(degree, this.producers.size());
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, numWorkers) * 4);
+    }
+
+    /**
+     * Start the workers. This happens on the first call of {@code hasNext} if not
+     * called beforehand; calling it earlier allows the results to be computed
+     * while the caller does other work.
+     */
+    public void start() {
+        if ( started )
+            return;
+        started = true;
+        for ( int i = 0 ; i < numWorkers ; i++ )
+            tasks.add(ParallelExecution.pool().submit(this::worker));
+    }
+
+    // ---- Worker side.
+
+    private void worker() {
+        WorkerTxn workerTxn = ParallelExecution.workerTxn(getExecContext());
+        boolean inTxn = false;
+        try {
+            if ( workerTxn != null )
+                inTxn = workerTxn.begin();
+            ExecutionContext workerCxt = ParallelExecution.workerContext(getExecContext());
+            for (;;) {
+                int idx = nextProducer.getAndIncrement();
+                if ( idx >= producers.size() || stopping )
+                    break;
+                Function<ExecutionContext, QueryIterator> producer = producers.get(idx);
+                if ( workerTxn != null && ! inTxn ) {
+                    deferred.add(producer);
+                    continue;
+                }
+                produce(producer, workerCxt);
+            }
+        } catch (Throwable th) {
+            error.compareAndSet(null, th);
+        } finally {
+            if ( inTxn )
+                workerTxn.end();
+            put(END);
+        }
+    }
+
+    private void produce(Function<ExecutionContext, QueryIterator> producer, ExecutionContext workerCxt) {
+        QueryIterator qIter = producer.apply(workerCxt);
+        running.add(qIter);
+        try {
+            List<Binding> output = new ArrayList<>(ChunkSize);
+            while ( ! stopping && qIter.hasNext() ) {
+                output.add(qIter.next());
+                if ( output.size() >= ChunkSize ) {
+                    put(output);
+                    output = new ArrayList<>(ChunkSize);
+                }
+            }
+            if ( ! output.isEmpty() )
+                put(output);
+        } finally {
+            running.remove(qIter);
+            qIter.close();
+        }
+    }
+
+    /** Pass to the consumer, giving up if this iterator is closing. */
+    private void put(List<Binding> item) {
+        try {
+            ForkJoinPool.managedBlock(new Put(item));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new QueryCancelledException();
+        }
+    }
+
+    /** Wait for space in the queue without holding on to a pool thread. */
+    private class Put implements ForkJoinPool.ManagedBlocker {
+        private final List<Binding> item;
+        private boolean done = false;
+
+        Put(List<Binding> item) {
+            this.item = item;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if ( ! done && ! stopping )
+                done = queue.offer(item);
+            return done || stopping;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            while ( ! done && ! stopping )
+                done = queue.offer(item, PollMillis, TimeUnit.MILLISECONDS);
+            return true;
+        }
+    }
+
+    // ---- Consumer side.
+
+    @Override
+    protected boolean hasNextBinding() {
+        start();
+        for (;;) {
+            if ( chunk != null && chunkIdx < chunk.size() )
+                return true;
+            chunk = null;
+            checkError();
+            if ( stopping )
+                // Cancelled while waiting.
+                throw new QueryCancelledException();
+            if ( finishedWorkers < numWorkers ) {
+                List<Binding> item = take();
+                if ( item == END )
+                    finishedWorkers++;
+                else if ( item != null ) {
+                    chunk = item;
+                    chunkIdx = 0;
+                }
+                continue;
+            }
+            // Workers done. Run any producers they could not run.
+            if ( localIter != null ) {
+                if ( localIter.hasNext() )
+                    return true;
+                localIter.close();
+                localIter = null;
+            }
+            Function<ExecutionContext, QueryIterator> producer = deferred.poll();
+            if ( producer == null )
+                return false;
+            localIter = producer.apply(getExecContext());
+        }
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        if ( chunk != null )
+            return chunk.get(chunkIdx++);
+        return localIter.next();
+    }
+
+    private List<Binding> take() {
+        try {
+            return queue.poll(PollMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new QueryCancelledException();
+        }
+    }
+
+    private void checkError() {
+        Throwable th = error.get();
+        if ( th == null )
+            return;
+        if ( th instanceof RuntimeException ex )
+            throw ex;
+        if ( th instanceof Error err )
+            throw err;
+        throw new QueryExecException(th);
+    }
+
+    @Override
+    protected void requestCancel() {
+        stopping = true;
+        running.forEach(QueryIterator::cancel);
+        QueryIterator qIter = localIter;
+        if ( qIter != null )
+            qIter.cancel();
+    }
+
+    @Override
+    protected void closeIterator() {
+        stopping = true;
+        running.forEach(QueryIterator::cancel);
+        // Wait for the workers so no work continues (e.g. in a transaction)
+        // after this iterator is closed.
+        for ( ForkJoinTask<?> task : tasks )
+            task.quietlyJoin();
+        queue.clear();
+        chunk = null;
+        if ( localIter != null ) {
+            localIter.close();
+            localIter = null;
+        }
+    }
+
+    @Override
+    public void output(IndentedWriter out, SerializationContext sCxt) {
+        out.print(Lib.className(this));
+        out.print(" ");
+        out.print(producers.size());
+        out.print(" producers, ");
+        out.print(numWorkers);
+        out.print(" workers");
+    }
+}
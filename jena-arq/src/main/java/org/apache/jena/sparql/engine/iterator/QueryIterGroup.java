@@ -20,15 +20,25 @@ package org.apache.jena.sparql.engine.iterator;
 
 import java.util.ArrayList ;
 import java.util.Collection ;
+import java.util.Comparator ;
 import java.util.Iterator ;
 import java.util.List ;
 
 import org.apache.commons.collections4.MultiMapUtils;
 import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.SortedDataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
+import org.apache.jena.atlas.iterator.IteratorSlotted ;
+import org.apache.jena.atlas.iterator.PeekIterator ;
 import org.apache.jena.atlas.lib.Pair ;
 import org.apache.jena.graph.Node ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.sparql.ARQConstants ;
+import org.apache.jena.sparql.ARQException ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.core.VarExprList ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
@@ -39,40 +49,67 @@ import org.apache.jena.sparql.engine.binding.BindingFactory ;
 import org.apache.jena.sparql.expr.ExprAggregator ;
 import org.apache.jena.sparql.expr.NodeValue ;
 import org.apache.jena.sparql.expr.aggregate.Accumulator ;
+import org.apache.jena.sparql.system.SerializationFactoryFinder;
+import org.apache.jena.sparql.util.NodeCmp ;
 
+/**
+ * GROUP BY and aggregation.
+ * <p>
+ * Groups are accumulated in-memory until the number of groups reaches the
+ * threshold given by {@link ARQ#spillToDiskThreshold}. After that, input rows for
+ * groups already in memory continue to be aggregated in memory; rows for any new
+ * group are written, with their group key, to a disk-backed {@link SortedDataBag}
+ * ordered by key. The spilled rows are then read back one group at a time so that
+ * only one group of accumulators for spilled keys is live at any time.
+ * <p>
+ * The spilled groups are disjoint from the in-memory groups so no merging of
+ * accumulator state is needed and all aggregates, including DISTINCT and custom
+ * aggregates, are supported.
+ */
 public class QueryIterGroup extends QueryIterPlainWrapper
 {
 	private final QueryIterator embeddedIterator;
+	private long memThreshold = Long.MAX_VALUE ;    // Default "off" value.
+	/*package*/ SortedDataBag<Binding> db = null ;
 
 	public QueryIterGroup(QueryIterator qIter,
                           VarExprList groupVars,
                           List<ExprAggregator> aggregators,
                           ExecutionContext execCxt) {
+        super(null, execCxt);
+        this.embeddedIterator = qIter;
+        if ( execCxt != null ) {
+            memThreshold = execCxt.getContext().getLong(ARQ.spillToDiskThreshold, memThreshold) ;
+            if ( memThreshold < 0 )
+                throw new ARQException("Bad spillToDiskThreshold: "+memThreshold) ;
+        }
 	    // Delayed initalization
 	    // Does the group calculation when first used (typically hasNext)
-        super(calc(qIter, groupVars, aggregators, execCxt),
-              execCxt);
-        this.embeddedIterator = qIter;
+        setIterator(calc(qIter, groupVars, aggregators, execCxt));
     }
 
     @Override
     public void requestCancel() {
+        if ( db != null )
+            db.cancel();
         this.embeddedIterator.cancel();
         super.requestCancel();
     }
 
     @Override
     protected void closeIterator() {
+        if ( db != null )
+            db.close();
         this.embeddedIterator.close();
         super.closeIterator();
     }
 
 	private static Pair<Var, Accumulator> placeholder = Pair.create((Var)null, (Accumulator)null) ;
 
-    private static Iterator<Binding> calc(final QueryIterator iter,
-                                          final VarExprList groupVarExpr,
-                                          final List<ExprAggregator> aggregators,
-                                          final ExecutionContext execCxt) {
+    private Iterator<Binding> calc(final QueryIterator iter,
+                                   final VarExprList groupVarExpr,
+                                   final List<ExprAggregator> aggregators,
+                                   final ExecutionContext execCxt) {
         return new IteratorDelayedInitialization<Binding>() {
             @Override
             protected Iterator<Binding> initializeIterator() {
@@ -106,11 +143,18 @@ public class QueryIterGroup extends QueryIterPlainWrapper
 
                 // Case: there is input.
                 // Phase 1 : Create keys and aggregators per key, and pump bindings through the aggregators.
+                // Once there are too many groups in memory, rows for new groups are spilled.
+                List<Var> keyVars = groupVarExpr.getVars();
                 MultiValuedMap<Binding, Pair<Var, Accumulator>> accumulators = MultiMapUtils.newListValuedHashMap();
                 while (iter.hasNext()) {
                     Binding b = iter.nextBinding();
                     Binding key = genKey(groupVarExpr, b, execCxt);
 
+                    if ( !accumulators.containsKey(key) && accumulators.keySet().size() >= memThreshold ) {
+                        spill(keyVars, key, hasAggregators ? b : null, execCxt);
+                        continue;
+                    }
+
                     if ( !hasAggregators ) {
                         // Put in a dummy to remember the input.
                         accumulators.put(key, placeholder);
@@ -135,29 +179,157 @@ public class QueryIterGroup extends QueryIterPlainWrapper
                 // For each bucket, get binding, add aggregator values to the binding.
                 // We used AccNull so there are always accumulators.
 
+                Iterator<Binding> results;
                 if ( !hasAggregators )
                     // We used placeholder so there are always the key.
-                    return accumulators.keySet().iterator();
-
-                List<Binding> results = new ArrayList<>();
-                for ( Binding k : accumulators.keySet() ) {
-                    BindingBuilder builder2 = Binding.builder(k);
-                    Collection<Pair<Var, Accumulator>> accs = accumulators.get(k);
-
-                    for ( Pair<Var, Accumulator> pair : accs ) {
-                        NodeValue value = pair.getRight().getValue();
-                        if ( value == null )
-                            continue;
-                        Var v = pair.getLeft();
-                        builder2.add(v, value.asNode());
+                    results = accumulators.keySet().iterator();
+                else {
+                    List<Binding> x = new ArrayList<>();
+                    for ( Binding k : accumulators.keySet() ) {
+                        Collection<Pair<Var, Accumulator>> accs = accumulators.get(k);
+                        x.add(result(k, accs));
                     }
-                    results.add(builder2.build());
+                    results = x.iterator();
                 }
-                return results.iterator();
+
+                // Phase 3 : Groups that did not fit in memory, in key order.
+                if ( db == null )
+                    return results;
+                return Iter.concat(results, new SpilledGroups(db.iterator(), keyVars, aggregators, execCxt));
             }
         };
     }
 
+    /** Add a row for a group not held in memory to the data bag. */
+    private void spill(List<Var> keyVars, Binding key, Binding row, ExecutionContext execCxt) {
+        if ( db == null ) {
+            ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(execCxt.getContext()) ;
+            db = BagFactory.newSortedBag(policy, SerializationFactoryFinder.bindingSerializationFactory(), keyComparator(keyVars)) ;
+        }
+        db.add(encodeSpill(keyVars, key, row)) ;
+    }
+
+    private static Binding result(Binding key, Collection<Pair<Var, Accumulator>> accs) {
+        BindingBuilder builder = Binding.builder(key);
+        for ( Pair<Var, Accumulator> pair : accs ) {
+            NodeValue value = pair.getRight().getValue();
+            if ( value == null )
+                continue;
+            Var v = pair.getLeft();
+            builder.add(v, value.asNode());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Iterator over the groups that were spilled to disk. The input is sorted by
+     * group key so each group is a contiguous run of rows.
+     */
+    private static class SpilledGroups extends IteratorSlotted<Binding> {
+        private final Iterator<Binding> source;
+        private final PeekIterator<Binding> input;
+        private final List<Var> keyVars;
+        private final List<ExprAggregator> aggregators;
+        private final ExecutionContext execCxt;
+
+        SpilledGroups(Iterator<Binding> input, List<Var> keyVars, List<ExprAggregator> aggregators, ExecutionContext execCxt) {
+            this.source = input;
+            this.input = PeekIterator.create(input);
+            this.keyVars = keyVars;
+            this.aggregators = aggregators;
+            this.execCxt = execCxt;
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return input.hasNext();
+        }
+
+        @Override
+        protected Binding moveToNext() {
+            Binding first = input.peek();
+            Binding key = decodeKey(keyVars, first);
+            boolean hasAggregators = ( aggregators != null && ! aggregators.isEmpty() );
+            List<Pair<Var, Accumulator>> accs = new ArrayList<>();
+            if ( hasAggregators ) {
+                for ( ExprAggregator agg : aggregators )
+                    accs.add(Pair.create(agg.getVar(), agg.getAggregator().createAccumulator()));
+            }
+            while ( input.hasNext() && compareKeys(keyVars, first, input.peek()) == 0 ) {
+                Binding b = input.next();
+                if ( hasAggregators ) {
+                    Binding row = decodeRow(b);
+                    for ( Pair<Var, Accumulator> pair : accs )
+                        pair.getRight().accumulate(row, execCxt);
+                }
+            }
+            return result(key, accs);
+        }
+
+        @Override
+        protected void closeIterator() {
+            Iter.close(source);
+        }
+    }
+
+    // ---- Spill encoding
+    // The key is carried in variables using ARQConstants.allocVarGroupKey,
+    // one per group variable, alongside the row (if any) needed by the accumulators.
+
+    private static Var spillVar(int idx) {
+        return Var.alloc(ARQConstants.allocVarGroupKey+idx);
+    }
+
+    private static boolean isSpillVar(Var var) {
+        return var.getVarName().startsWith(ARQConstants.allocVarGroupKey);
+    }
+
+    private static Binding encodeSpill(List<Var> keyVars, Binding key, Binding row) {
+        BindingBuilder builder = Binding.builder();
+        if ( row != null )
+            builder.addAll(row);
+        for ( int i = 0 ; i < keyVars.size() ; i++ ) {
+            Node n = key.get(keyVars.get(i));
+            if ( n != null )
+                builder.add(spillVar(i), n);
+        }
+        return builder.build();
+    }
+
+    private static Binding decodeKey(List<Var> keyVars, Binding spilled) {
+        BindingBuilder builder = Binding.builder();
+        for ( int i = 0 ; i < keyVars.size() ; i++ ) {
+            Node n = spilled.get(spillVar(i));
+            if ( n != null )
+                builder.add(keyVars.get(i), n);
+        }
+        return builder.build();
+    }
+
+    private static Binding decodeRow(Binding spilled) {
+        BindingBuilder builder = Binding.builder();
+        spilled.forEach((v, n) -> {
+            if ( !isSpillVar(v) )
+                builder.add(v, n);
+        });
+        return builder.build();
+    }
+
+    private static int compareKeys(List<Var> keyVars, Binding b1, Binding b2) {
+        for ( int i = 0 ; i < keyVars.size() ; i++ ) {
+            Var v = spillVar(i);
+            int x = NodeCmp.compareRDFTerms(b1.get(v), b2.get(v));
+            if ( x != 0 )
+                return x;
+        }
+        return 0;
+    }
+
+    /** Total order on the encoded group key, consistent with term equality. */
+    private static Comparator<Binding> keyComparator(List<Var> keyVars) {
+        return (b1, b2) -> compareKeys(keyVars, b1, b2);
+    }
+
     static private Binding genKey(VarExprList vars, Binding binding, ExecutionContext execCxt) {
         return copyProject(vars, binding, execCxt);
     }
@@ -18,21 +18,41 @@
 
 package org.apache.jena.sparql.engine.iterator;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Supplier;
 
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorConcat;
+import org.apache.jena.atlas.iterator.IteratorDelayedInitialization;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.index.IndexFactory;
 import org.apache.jena.sparql.engine.index.IndexTable;
+import org.apache.jena.sparql.engine.join.JoinKey;
+import org.apache.jena.sparql.engine.join.JoinPartitions;
 
-/** Minus by materializing the RHS - this is not streamed on the right */
+/**
+ * Minus by materializing the RHS - this is not streamed on the right.
+ * <p>
+ * If the RHS is larger than {@link org.apache.jena.query.ARQ#spillToDiskThreshold},
+ * both sides are written to disk in {@link JoinPartitions} by the hash of the common
+ * variables and each partition is processed in turn.
+ */
 public class QueryIterMinus extends QueryIter2 {
     private IndexTable tableRight = null;
     private final Supplier<IndexTable> tableRightMaker;
+    private final Set<Var> commonVars;
     private Binding          slot = null;
+    // Spill to disk.
+    private JoinPartitions   leftPartitions = null;
+    private JoinPartitions   rightPartitions = null;
+    private Iterator<Binding> iterPartitioned = null;
 
     public static QueryIterator create(QueryIterator left, QueryIterator right, Set<Var> commonVars, ExecutionContext qCxt) {
         if ( ! right.hasNext() )
@@ -46,7 +66,8 @@ public class QueryIterMinus extends QueryIter2 {
         // Building tableRight is potentially doing a lot of work during this constructor.
         // Delay until the query starts executing started so it sees timeouts.
         // See JENA-2139.
-        tableRightMaker = ()->IndexFactory.createIndex(commonVars, right);
+        this.commonVars = commonVars;
+        tableRightMaker = ()->createIndex(right);
     }
 
     protected Binding getNextSlot(Binding bindingLeft) {
@@ -58,8 +79,88 @@ public class QueryIterMinus extends QueryIter2 {
         return bindingLeft;
     }
 
+    private IndexTable createIndex(QueryIterator right) {
+        long threshold = JoinPartitions.spillThreshold(getExecContext());
+        if ( threshold < 0 || commonVars.isEmpty() )
+            return IndexFactory.createIndex(commonVars, right);
+        List<Binding> rows = new ArrayList<>();
+        while ( right.hasNext() && rows.size() <= threshold )
+            rows.add(right.next());
+        if ( right.hasNext() ) {
+            // Too large: switch to partitioned on disk.
+            rightPartitions = new JoinPartitions(JoinKey.create(commonVars), getExecContext());
+            rows.forEach(rightPartitions::add);
+            rows = null;
+            right.forEachRemaining(rightPartitions::add);
+            iterPartitioned = partitionedMinus();
+            return null;
+        }
+        return IndexFactory.createIndex(commonVars, QueryIterPlainWrapper.create(rows.iterator(), getExecContext()));
+    }
+
+    /**
+     * MINUS when the RHS has been written to disk in partitions.
+     * <p>
+     * A left row that binds all the common variables can only be excluded by right
+     * rows in the same partition or by right rows that do not bind all the common
+     * variables. Left rows that do not bind all the common variables are checked in
+     * every pass and returned at the end if no pass excluded them.
+     */
+    private Iterator<Binding> partitionedMinus() {
+        leftPartitions = new JoinPartitions(rightPartitions.getJoinKey(), getExecContext());
+        getLeft().forEachRemaining(leftPartitions::add);
+        getLeft().close();
+
+        int N = leftPartitions.numPartitions();
+        BitSet excluded = new BitSet();
+        IteratorConcat<Binding> passes = new IteratorConcat<>();
+        // If there are any left rows without all the common variables, every pass is needed.
+        for ( int i = 0 ; i < N ; i++ ) {
+            if ( leftPartitions.size(i) == 0 && leftPartitions.partialSize() == 0 )
+                continue;
+            final int idx = i;
+            passes.add(delayed(()->{
+                IndexTable table = IndexFactory.createIndex(commonVars,
+                                                            QueryIterPlainWrapper.create(Iter.concat(rightPartitions.partition(idx),
+                                                                                                     rightPartitions.partial()),
+                                                                                         getExecContext()));
+                markExcluded(table, leftPartitions.partial(), excluded);
+                return Iter.filter(leftPartitions.partition(idx), b -> ! table.containsCompatibleWithSharedDomain(b));
+            }));
+        }
+        passes.add(delayed(()->{
+            int[] counter = { -1 };
+            return Iter.filter(leftPartitions.partial(), b -> ! excluded.get(++counter[0]));
+        }));
+        return passes;
+    }
+
+    private static void markExcluded(IndexTable table, Iterator<Binding> rows, BitSet excluded) {
+        int idx = -1;
+        while ( rows.hasNext() ) {
+            Binding b = rows.next();
+            idx++;
+            if ( ! excluded.get(idx) && table.containsCompatibleWithSharedDomain(b) )
+                excluded.set(idx);
+        }
+    }
+
+    private static Iterator<Binding> delayed(Supplier<Iterator<Binding>> maker) {
+        return new IteratorDelayedInitialization<>() {
+            @Override
+            protected Iterator<Binding> initializeIterator() {
+                return maker.get();
+            }
+        };
+    }
+
     @Override
-    protected final void closeSubIterator() {}
+    protected final void closeSubIterator() {
+        if ( leftPartitions != null )
+            leftPartitions.close();
+        if ( rightPartitions != null )
+            rightPartitions.close();
+    }
 
     @Override
     protected void requestSubCancel() {}
@@ -69,6 +170,22 @@ public class QueryIterMinus extends QueryIter2 {
         if ( slot != null )
             return true;
 
+        if ( tableRight == null && iterPartitioned == null ) {
+            // Build the table on the first left row: nothing to do for an empty left side.
+            if ( ! getLeft().hasNext() ) {
+                getLeft().close();
+                return false;
+            }
+            tableRight = tableRightMaker.get();
+        }
+        if ( iterPartitioned != null ) {
+            if ( iterPartitioned.hasNext() ) {
+                slot = iterPartitioned.next();
+                return true;
+            }
+            return false;
+        }
+
         while (getLeft().hasNext()) {
             Binding bindingLeft = getLeft().nextBinding();
             slot = getNextSlot(bindingLeft);
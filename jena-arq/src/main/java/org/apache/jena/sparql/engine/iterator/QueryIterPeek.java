@@ -40,6 +40,13 @@ public class QueryIterPeek extends QueryIter1
         super(iterator, cxt) ;
     }
 
+    /** A peek iterator passes on its input unchanged. */
+    @Override
+    public boolean isJoinIdentity()
+    {
+        return getInput().isJoinIdentity() ;
+    }
+
     /** Returns the next binding without moving on.  Returns "null" for no such element. */
     public Binding peek()
     {
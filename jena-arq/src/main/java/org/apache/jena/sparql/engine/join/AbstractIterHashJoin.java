@@ -18,10 +18,14 @@
 
 package org.apache.jena.sparql.engine.join;
 
+import java.util.BitSet ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.function.Supplier ;
 
 import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.IteratorConcat ;
+import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
 import org.apache.jena.sparql.algebra.Algebra ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
@@ -34,6 +38,10 @@ import org.apache.jena.sparql.engine.iterator.QueryIterPeek ;
  *
  * This code materializes one input into the probe table
  * then hash joins the other input from the stream side.
+ * <p>
+ * If the probe side grows beyond {@link org.apache.jena.query.ARQ#spillToDiskThreshold},
+ * both sides are written to disk in {@link JoinPartitions} by the hash of the join key
+ * and each partition is joined in turn (a "Grace" hash join).
  */
 
 public abstract class AbstractIterHashJoin extends QueryIter2 {
@@ -53,17 +61,24 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     // Hanlde any "post join" additions.
     private Iterator<Binding>           iterTail        = null ;
 
-    enum Phase { INIT, HASH , STREAM, TRAILER, DONE }
+    enum Phase { INIT, HASH , STREAM, PARTITIONED, TRAILER, DONE }
     Phase state = Phase.INIT ;
 
     private Binding slot = null ;
 
+    // Spill to disk.
+    private final long                  spillThreshold ;
+    private JoinPartitions              probePartitions = null ;
+    private JoinPartitions              streamPartitions = null ;
+    private Iterator<Binding>           iterPartitioned = null ;
+
     protected AbstractIterHashJoin(JoinKey initialJoinKey, QueryIterator probeIter, QueryIterator streamIter, ExecutionContext execCxt) {
         super(probeIter, streamIter, execCxt) ;
 
         this.joinKey = initialJoinKey ;
         this.iterStream = streamIter ;
         this.iterCurrent = null ;
+        this.spillThreshold = JoinPartitions.spillThreshold(execCxt) ;
     }
 
     private void doInit() {
@@ -97,11 +112,22 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
 
     private void buildHashTable(QueryIterator iter1) {
         state = Phase.HASH ;
-        iter1.forEachRemaining(row1 -> {
+        while ( iter1.hasNext() ) {
+            Binding row1 = iter1.next() ;
             s_countProbe ++ ;
+            if ( probePartitions != null ) {
+                probePartitions.add(row1) ;
+                continue ;
+            }
             hashTable.put(row1) ;
-        });
-        state = Phase.STREAM ;
+            // A join with no join key is a cross product and can not be partitioned.
+            if ( spillThreshold >= 0 && s_countProbe > spillThreshold && ! joinKey.isEmpty() ) {
+                probePartitions = new JoinPartitions(joinKey, getExecContext()) ;
+                hashTable.values().forEachRemaining(probePartitions::add) ;
+                hashTable.clear() ;
+            }
+        }
+        state = ( probePartitions == null ) ? Phase.STREAM : Phase.PARTITIONED ;
     }
 
     @Override
@@ -136,7 +162,11 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
                 throw new IllegalStateException() ;
             case INIT :
                 doInit();
+                if ( state == Phase.PARTITIONED )
+                    return doOnePartitioned() ;
                 break;
+            case PARTITIONED :
+                return doOnePartitioned() ;
             case TRAILER :
                 return doOneTail() ;
             case STREAM :
@@ -205,6 +235,137 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         return null ;
     }
 
+    private Binding doOnePartitioned() {
+        if ( iterPartitioned == null )
+            iterPartitioned = partitionedJoin() ;
+        if ( iterPartitioned.hasNext() ) {
+            s_countResults ++ ;
+            return iterPartitioned.next() ;
+        }
+        state = Phase.DONE ;
+        iterPartitioned = null ;
+        return null ;
+    }
+
+    /**
+     * The join when the probe side has been written to disk in partitions.
+     * <p>
+     * The stream side is partitioned in the same way. Each probe partition is loaded
+     * into a hash table in turn and is probed by the stream rows of the same
+     * partition and by the stream rows that do not bind every join key variable.
+     * The probe rows that do not bind every join key variable are joined with all the
+     * stream rows in a final pass.
+     * <p>
+     * {@link #joinFinished} is called at the end of each pass with {@code hashTable}
+     * holding the probe rows of that pass. Stream rows can take part in more than one
+     * pass so {@link #noYieldedRows} is called, if {@link #yieldsUnmatchedStreamRows}
+     * is true, after all the passes.
+     */
+    private Iterator<Binding> partitionedJoin() {
+        JoinPartitions streamParts = new JoinPartitions(joinKey, getExecContext()) ;
+        this.streamPartitions = streamParts ;
+        iterStream.forEachRemaining(row -> {
+            s_countScan ++ ;
+            streamParts.add(row) ;
+        });
+        iterStream.close() ;
+
+        int N = streamParts.numPartitions() ;
+        // Index N is the stream rows that do not bind every join key variable.
+        BitSet[] matched = new BitSet[N+1] ;
+        for ( int i = 0 ; i <= N ; i++ )
+            matched[i] = new BitSet() ;
+
+        IteratorConcat<Binding> passes = new IteratorConcat<>() ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            if ( probePartitions.size(i) == 0 )
+                continue ;
+            final int idx = i ;
+            passes.add(delayed(()->{
+                loadHashTable(probePartitions.partition(idx)) ;
+                Iterator<Binding> x = Iter.concat(probe(streamParts.partition(idx), matched[idx]),
+                                                  probe(streamParts.partial(), matched[N])) ;
+                return Iter.concat(x, delayed(this::passFinished)) ;
+            })) ;
+        }
+        if ( probePartitions.partialSize() > 0 ) {
+            passes.add(delayed(()->{
+                loadHashTable(probePartitions.partial()) ;
+                IteratorConcat<Binding> x = new IteratorConcat<>() ;
+                for ( int i = 0 ; i < N ; i++ )
+                    x.add(probe(streamParts.partition(i), matched[i])) ;
+                x.add(probe(streamParts.partial(), matched[N])) ;
+                return Iter.concat(x, delayed(this::passFinished)) ;
+            })) ;
+        }
+        if ( yieldsUnmatchedStreamRows() ) {
+            passes.add(delayed(()->{
+                IteratorConcat<Binding> x = new IteratorConcat<>() ;
+                for ( int i = 0 ; i < N ; i++ )
+                    x.add(unmatched(streamParts.partition(i), matched[i])) ;
+                x.add(unmatched(streamParts.partial(), matched[N])) ;
+                return x ;
+            })) ;
+        }
+        return passes ;
+    }
+
+    private void loadHashTable(Iterator<Binding> rows) {
+        hashTable = new MultiHashProbeTable(null, joinKey) ;
+        rows.forEachRemaining(hashTable::put) ;
+    }
+
+    private Iterator<Binding> passFinished() {
+        Iterator<Binding> iter = joinFinished() ;
+        return ( iter == null ) ? Iter.nullIterator() : iter ;
+    }
+
+    /** Probe the current hash table with stream rows, recording which stream rows had a match. */
+    private Iterator<Binding> probe(Iterator<Binding> streamRows, BitSet matched) {
+        int[] counter = { -1 } ;
+        return Iter.flatMap(streamRows, row -> {
+            int idx = ++counter[0] ;
+            Iterator<Binding> candidates = hashTable.getCandidates(row) ;
+            Iterator<Binding> results = Iter.map(candidates, probeRow -> {
+                Binding r = Algebra.merge(probeRow, row) ;
+                if ( r == null )
+                    return null ;
+                Binding r2 = yieldOneResult(probeRow, row, r) ;
+                if ( r2 != null )
+                    matched.set(idx) ;
+                return r2 ;
+            }) ;
+            return Iter.removeNulls(results) ;
+        }) ;
+    }
+
+    private Iterator<Binding> unmatched(Iterator<Binding> streamRows, BitSet matched) {
+        int[] counter = { -1 } ;
+        Iterator<Binding> iter = Iter.map(streamRows, row -> {
+            int idx = ++counter[0] ;
+            return matched.get(idx) ? null : noYieldedRows(row) ;
+        }) ;
+        return Iter.removeNulls(iter) ;
+    }
+
+    private static Iterator<Binding> delayed(Supplier<Iterator<Binding>> maker) {
+        return new IteratorDelayedInitialization<>() {
+            @Override
+            protected Iterator<Binding> initializeIterator() {
+                return maker.get() ;
+            }
+        } ;
+    }
+
+    /**
+     * Whether {@link #noYieldedRows} can return a row for a stream row with no matches.
+     * This is used when the join has been partitioned on disk to decide whether the
+     * unmatched stream rows need to be found.
+     */
+    protected boolean yieldsUnmatchedStreamRows() {
+        return false ;
+    }
+
     /**
      * Signal about to return a result.
      * @param rowCurrentProbe
@@ -240,7 +401,12 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         }
         // In case it's a peek iterator.
         iterStream.close() ;
-        hashTable.clear();
+        if ( hashTable != null )
+            hashTable.clear();
+        if ( probePartitions != null )
+            probePartitions.close() ;
+        if ( streamPartitions != null )
+            streamPartitions.close() ;
     }
 
     @Override
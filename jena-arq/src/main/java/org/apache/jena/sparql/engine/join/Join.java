@@ -28,6 +28,7 @@ import org.apache.jena.sparql.algebra.TableFactory ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.iterator.QueryIterBatch1 ;
 import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
 import org.apache.jena.sparql.engine.main.OpExecutor ;
 import org.apache.jena.sparql.expr.ExprList ;
@@ -69,6 +70,8 @@ public class Join {
                          (_left, _right)->hashJoin(joinKey, _left, _right, execCxt)) ;
         if ( useNestedLoopJoin )
             return nestedLoopJoin(left, right, execCxt) ;
+        if ( QueryIterBatch1.batchSize(execCxt) > 0 )
+            return QueryIterBatchHashJoin.create(joinKey, left, right, execCxt) ;
         return hashJoin(joinKey, left, right, execCxt) ;
     }
 
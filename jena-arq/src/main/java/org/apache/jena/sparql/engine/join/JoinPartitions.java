@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.join;
+
+import java.util.Iterator;
+
+import org.apache.jena.atlas.data.BagFactory;
+import org.apache.jena.atlas.data.DefaultDataBag;
+import org.apache.jena.atlas.data.ThresholdPolicy;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory;
+import org.apache.jena.atlas.lib.Closeable;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.system.SerializationFactoryFinder;
+
+/**
+ * Rows split into partitions by the hash of the values of the join key variables,
+ * with the partitions held in disk-backed {@link DefaultDataBag DataBags}.
+ * <p>
+ * Two rows that bind all the join key variables are only compatible if they are in
+ * the same partition. Rows that do not bind every join key variable may be
+ * compatible with rows in any partition and are kept separately (see
+ * {@link #partial()}).
+ * <p>
+ * This is used by hash joins (and MINUS) to switch to a partitioned, "Grace" hash
+ * join when the table side exceeds {@link ARQ#spillToDiskThreshold}.
+ * The in-memory buffers of all the partitions together are limited to
+ * approximately that threshold.
+ */
+public final class JoinPartitions implements Closeable {
+    /** Number of partitions. */
+    public static final int NumPartitions = 32;
+
+    private final JoinKey joinKey;
+    private final DefaultDataBag<Binding>[] partitions;
+    private final DefaultDataBag<Binding> partial;
+
+    /** Spill threshold from the context, or -1 for "never spill". */
+    public static long spillThreshold(ExecutionContext execCxt) {
+        if ( execCxt == null )
+            return -1;
+        return execCxt.getContext().getLong(ARQ.spillToDiskThreshold, -1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    public JoinPartitions(JoinKey joinKey, ExecutionContext execCxt) {
+        this.joinKey = joinKey;
+        long threshold = Math.max(spillThreshold(execCxt), 0);
+        long perPartition = Math.max(1, threshold / NumPartitions);
+        this.partitions = new DefaultDataBag[NumPartitions];
+        for ( int i = 0 ; i < NumPartitions ; i++ ) {
+            ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.count(perPartition);
+            partitions[i] = BagFactory.newDefaultBag(policy, SerializationFactoryFinder.bindingSerializationFactory());
+        }
+        ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.count(perPartition);
+        this.partial = BagFactory.newDefaultBag(policy, SerializationFactoryFinder.bindingSerializationFactory());
+    }
+
+    public JoinKey getJoinKey() {
+        return joinKey;
+    }
+
+    public void add(Binding row) {
+        int idx = partition(row);
+        if ( idx < 0 )
+            partial.add(row);
+        else
+            partitions[idx].add(row);
+    }
+
+    /**
+     * The partition for a row, or -1 if the row does not bind every variable of
+     * the join key.
+     */
+    public int partition(Binding row) {
+        int h = 17;
+        for ( Var v : joinKey ) {
+            Node n = row.get(v);
+            if ( n == null )
+                return -1;
+            h = 31 * h + n.hashCode();
+        }
+        // Spread the bits because the low bits are used to select the partition.
+        h = h ^ (h >>> 16);
+        return Math.floorMod(h, NumPartitions);
+    }
+
+    public int numPartitions() {
+        return partitions.length;
+    }
+
+    public long size(int idx) {
+        return partitions[idx].size();
+    }
+
+    /** The rows of a partition. This can be called multiple times. */
+    public Iterator<Binding> partition(int idx) {
+        return partitions[idx].iterator();
+    }
+
+    public long partialSize() {
+        return partial.size();
+    }
+
+    /** The rows that do not bind every join key variable. This can be called multiple times. */
+    public Iterator<Binding> partial() {
+        return partial.iterator();
+    }
+
+    @Override
+    public void close() {
+        for ( DefaultDataBag<Binding> bag : partitions )
+            bag.close();
+        partial.close();
+    }
+}
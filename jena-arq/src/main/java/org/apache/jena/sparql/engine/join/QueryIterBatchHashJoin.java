@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.sparql.engine.join;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBatch;
+import org.apache.jena.sparql.engine.iterator.BindingBatchSource;
+import org.apache.jena.sparql.engine.iterator.QueryIter2;
+import org.apache.jena.sparql.engine.iterator.QueryIterBatch1;
+import org.apache.jena.sparql.engine.iterator.QueryIterNullIterator;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.serializer.SerializationContext;
+
+/**
+ * Batch version of {@link QueryIterHashJoin}, used when {@link ARQ#executionBatchSize}
+ * is set.
+ * <p>
+ * The left side is read into a probe table. The right side is streamed, a batch at a
+ * time if it is a {@link BindingBatchSource}. Joined rows are passed as batches to a
+ * following batch operator ({@link #nextBatch()}) and as rows otherwise, so there is no
+ * conversion to and from batches when the next step is row-at-a-time.
+ * <p>
+ * If the left side has more rows than {@link ARQ#spillToDiskThreshold}, the join is
+ * done by {@link QueryIterHashJoin}, which can spill to disk.
+ */
+public class QueryIterBatchHashJoin extends QueryIter2 implements BindingBatchSource {
+    private final int batchSize;
+    private JoinKey joinKey;
+    private MultiHashProbeTable hashTable = null;
+    // Set if the left side is too large.
+    private QueryIterator delegate = null;
+    private boolean initialized = false;
+    private boolean finished = false;
+
+    // Stream (right) side : rows from a batch if the right side provides batches.
+    private BindingBatch streamBatch = null;
+    private BindingBatch.RowView streamView = null;
+    private int streamIdx = 0;
+    private Binding streamRow = null;
+    private Iterator<Binding> candidates = null;
+
+    // Lookahead.
+    private Binding slot = null;
+
+    /**
+     * Create a batch hash join QueryIterator.
+     * @param joinKey  Join key - if null, one is guessed from the first rows of each side
+     * @param left
+     * @param right
+     * @param execCxt
+     * @return QueryIterator
+     */
+    public static QueryIterator create(JoinKey joinKey, QueryIterator left, QueryIterator right, ExecutionContext execCxt) {
+        // Easy cases.
+        if ( ! left.hasNext() || ! right.hasNext() ) {
+            left.close();
+            right.close();
+            return QueryIterNullIterator.create(execCxt);
+        }
+        return new QueryIterBatchHashJoin(joinKey, left, right, execCxt);
+    }
+
+    private QueryIterBatchHashJoin(JoinKey joinKey, QueryIterator left, QueryIterator right, ExecutionContext execCxt) {
+        super(left, right, execCxt);
+        this.joinKey = joinKey;
+        this.batchSize = Math.max(1, QueryIterBatch1.batchSize(execCxt));
+    }
+
+    private void init() {
+        initialized = true;
+        QueryIterator left = getLeft();
+        long spillThreshold = JoinPartitions.spillThreshold(getExecContext());
+        List<Binding> rows = new ArrayList<>();
+        while ( left.hasNext() ) {
+            rows.add(left.next());
+            if ( spillThreshold >= 0 && rows.size() > spillThreshold ) {
+                // Hand over to the row hash join, which can spill to disk.
+                // The left and right inputs are closed by this iterator.
+                QueryIterator left2 = QueryIterPlainWrapper.create(Iter.concat(rows.iterator(), left), getExecContext());
+                delegate = QueryIterHashJoin.create(joinKey, left2, getRight(), getExecContext());
+                return;
+            }
+        }
+        if ( rows.isEmpty() || ! nextStreamRow() ) {
+            finished = true;
+            return;
+        }
+        if ( joinKey == null ) {
+            List<Var> varsLeft = Iter.toList(rows.get(0).vars());
+            List<Var> varsRight = Iter.toList(streamRow.vars());
+            joinKey = JoinKey.create(varsLeft, varsRight);
+        }
+        hashTable = new MultiHashProbeTable(null, joinKey);
+        rows.forEach(hashTable::put);
+    }
+
+    /** Move to the next row of the stream side. */
+    private boolean nextStreamRow() {
+        QueryIterator right = getRight();
+        if ( ! ( right instanceof BindingBatchSource ) ) {
+            streamRow = right.hasNext() ? right.next() : null;
+            return streamRow != null;
+        }
+        streamIdx++;
+        if ( streamBatch == null || streamIdx >= streamBatch.size() ) {
+            streamBatch = ((BindingBatchSource)right).nextBatch();
+            streamIdx = 0;
+            if ( streamBatch == null ) {
+                streamRow = null;
+                return false;
+            }
+            streamView = streamBatch.rowView();
+        }
+        streamRow = streamView.setRow(streamIdx);
+        return true;
+    }
+
+    /** The next joined row, or null. */
+    private Binding nextJoined() {
+        while ( ! finished ) {
+            if ( candidates == null )
+                candidates = hashTable.getCandidates(streamRow);
+            while ( candidates.hasNext() ) {
+                Binding r = Algebra.merge(candidates.next(), streamRow);
+                if ( r != null )
+                    return r;
+            }
+            candidates = null;
+            if ( ! nextStreamRow() )
+                finished = true;
+        }
+        return null;
+    }
+
+    @Override
+    public BindingBatch nextBatch() {
+        // hasNext() checks for cancellation.
+        if ( ! hasNext() )
+            return null;
+        if ( delegate != null )
+            return BindingBatchSource.nextBatch(delegate, batchSize);
+        BindingBatch batch = new BindingBatch(batchSize);
+        batch.add(slot);
+        slot = null;
+        while ( ! batch.isFull() ) {
+            Binding r = nextJoined();
+            if ( r == null )
+                break;
+            batch.add(r);
+        }
+        return batch;
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        if ( ! initialized )
+            init();
+        if ( delegate != null )
+            return delegate.hasNext();
+        if ( slot == null )
+            slot = nextJoined();
+        return slot != null;
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        if ( delegate != null )
+            return delegate.next();
+        Binding r = slot;
+        slot = null;
+        return r;
+    }
+
+    @Override
+    protected void requestSubCancel() {
+        if ( delegate != null )
+            delegate.cancel();
+    }
+
+    @Override
+    protected void closeSubIterator() {
+        if ( delegate != null )
+            delegate.close();
+        slot = null;
+        streamBatch = null;
+        streamView = null;
+        streamRow = null;
+        candidates = null;
+        if ( hashTable != null )
+            hashTable.clear();
+    }
+
+    @Override
+    public void output(IndentedWriter out, SerializationContext sCxt) {
+        out.println(Lib.className(this));
+        out.incIndent();
+        getLeft().output(out, sCxt);
+        out.println();
+        getRight().output(out, sCxt);
+        out.decIndent();
+    }
+}
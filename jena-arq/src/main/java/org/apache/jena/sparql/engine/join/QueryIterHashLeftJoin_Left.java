@@ -101,9 +101,12 @@ public class QueryIterHashLeftJoin_Left extends AbstractIterHashJoin {
         return null;
     }
     
+    // Called once at the end, or at the end of each pass if the join is partitioned on disk.
     @Override
     protected QueryIterator joinFinished() {
-        Iterator<Binding> iter = Iter.filter(hashTable.values(), b-> ! leftHits.contains(b) )  ;
+        Set<Binding> hits = leftHits ;
+        leftHits = new HashSet<>() ;
+        Iterator<Binding> iter = Iter.filter(hashTable.values(), b-> ! hits.contains(b) )  ;
         return QueryIterPlainWrapper.create(iter, getExecContext()) ;
     }
 }
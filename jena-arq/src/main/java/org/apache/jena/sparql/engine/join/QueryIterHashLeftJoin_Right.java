@@ -97,6 +97,11 @@ public class QueryIterHashLeftJoin_Right extends AbstractIterHashJoin {
     protected Binding noYieldedRows(Binding rowCurrentProbe) {
         return rowCurrentProbe;
     }
+
+    @Override
+    protected boolean yieldsUnmatchedStreamRows() {
+        return true ;
+    }
     
     @Override
     protected QueryIterator joinFinished() {
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.graph.Node;
@@ -210,6 +211,16 @@ public class OpExecutor {
             QueryIterator qIter = Join.join(left, right, execCxt);
             return qIter;
         }
+        if ( input.isJoinIdentity() && ParallelExecution.isEnabled(execCxt) ) {
+            // Evaluate both sides at the same time; the hash join builds its table
+            // from one side while the other side is already being computed.
+            input.close();
+            QueryIterExchange left = exchange(List.of(opJoin.getLeft()));
+            QueryIterExchange right = exchange(List.of(opJoin.getRight()));
+            left.start();
+            right.start();
+            return Join.join(left, right, execCxt);
+        }
         QueryIterator left = exec(opJoin.getLeft(), input);
         QueryIterator right = exec(opJoin.getRight(), root());
         // Join key.
@@ -281,10 +292,22 @@ public class OpExecutor {
 
     protected QueryIterator execute(OpUnion opUnion, QueryIterator input) {
         List<Op> x = flattenUnion(opUnion);
+        if ( input.isJoinIdentity() && ParallelExecution.isEnabled(execCxt) ) {
+            input.close();
+            return exchange(x);
+        }
         QueryIterator cIter = new QueryIterUnion(input, x, execCxt);
         return cIter;
     }
 
+    /** Evaluate each op, from the root, as a producer for a {@link QueryIterExchange}. */
+    private QueryIterExchange exchange(List<Op> ops) {
+        List<Function<ExecutionContext, QueryIterator>> producers = new ArrayList<>(ops.size());
+        for ( Op op : ops )
+            producers.add(cxt -> QC.execute(op, QueryIterRoot.create(cxt), cxt));
+        return new QueryIterExchange(producers, execCxt);
+    }
+
     // Based on code from Olaf Hartig.
     protected List<Op> flattenUnion(OpUnion opUnion) {
         List<Op> x = new ArrayList<>();
@@ -310,6 +333,8 @@ public class OpExecutor {
         Op base = opFilter.getSubOp();
         QueryIterator qIter = exec(base, input);
 
+        if ( QueryIterBatch1.batchSize(execCxt) > 0 )
+            return new QueryIterBatchFilter(qIter, exprs, execCxt);
         for ( Expr expr : exprs )
             qIter = new QueryIterFilterExpr(qIter, expr, execCxt);
         return qIter;
@@ -399,6 +424,8 @@ public class OpExecutor {
 
         if ( input instanceof QueryIterRoot ) {
             QueryIterator qIter = exec(opProject.getSubOp(), input);
+            if ( QueryIterBatch1.batchSize(execCxt) > 0 )
+                return new QueryIterBatchProject(qIter, opProject.getVars(), execCxt);
             qIter = QueryIterProject.create(qIter, opProject.getVars(), execCxt);
             return qIter;
         }
@@ -409,6 +436,8 @@ public class OpExecutor {
 
     protected QueryIterator execute(OpSlice opSlice, QueryIterator input) {
         QueryIterator qIter = exec(opSlice.getSubOp(), input);
+        if ( QueryIterBatch1.batchSize(execCxt) > 0 )
+            return new QueryIterBatchSlice(qIter, opSlice.getStart(), opSlice.getLength(), execCxt);
         qIter = new QueryIterSlice(qIter, opSlice.getStart(), opSlice.getLength(), execCxt);
         return qIter;
     }
@@ -454,6 +483,8 @@ public class OpExecutor {
         // the query so we can use QueryIterAssign knowing that it behaves
         // the same as extend. The boolean should only be a check.
         QueryIterator qIter = exec(opExtend.getSubOp(), input);
+        if ( QueryIterBatch1.batchSize(execCxt) > 0 )
+            return new QueryIterBatchExtend(qIter, opExtend.getVarExprList(), execCxt);
         qIter = new QueryIterAssign(qIter, opExtend.getVarExprList(), execCxt, true);
         return qIter;
     }
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.sparql.engine.main;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.SystemARQ;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+
+/**
+ * Support for intra-query parallelism, controlled by {@link ARQ#parallelism}.
+ * <p>
+ * Work is run on a shared fork/join pool and results are merged by
+ * {@link org.apache.jena.sparql.engine.iterator.QueryIterExchange}.
+ * <p>
+ * Transactional datasets usually bind a transaction to a thread. Such a dataset
+ * takes part in parallel execution by placing a {@link WorkerTxn} in the query
+ * context under {@link #symWorkerTxn}; without one, a query running in a
+ * transaction is executed on the calling thread.
+ */
+public class ParallelExecution {
+
+    /**
+     * Provide worker threads with a view of the data.
+     * Implementations must be safe to call from several threads at once.
+     */
+    public interface WorkerTxn {
+        /**
+         * Called on a worker thread before it runs any tasks. Return false if the
+         * worker can not see the same data as the query; the worker's tasks are
+         * then run on the query's own thread.
+         */
+        public boolean begin();
+
+        /** Called on the worker thread after its tasks, if {@link #begin} returned true. */
+        public void end();
+    }
+
+    /** Context symbol for the {@link WorkerTxn} of the query. Set by the query engine. */
+    public static final Symbol symWorkerTxn = SystemARQ.allocSymbol("parallelWorkerTxn");
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+    // Lazy initialization
+    private static class LazyPool {
+        static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                                                          p -> {
+                                                              ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                                                              t.setName("ARQ-parallel-"+threadCounter.incrementAndGet());
+                                                              t.setDaemon(true);
+                                                              return t;
+                                                          },
+                                                          null, false);
+    }
+
+    /** The pool used for parallel execution. */
+    public static ForkJoinPool pool() {
+        return LazyPool.pool;
+    }
+
+    /** The maximum number of workers for the query; 1 or less means no parallel execution. */
+    public static int parallelism(Context context) {
+        if ( context == null )
+            return 0;
+        return context.getInt(ARQ.parallelism, 0);
+    }
+
+    /**
+     * The number of workers to use for the execution context, or 0 if parallel
+     * execution is not possible.
+     */
+    public static int parallelism(ExecutionContext execCxt) {
+        if ( execCxt == null )
+            return 0;
+        int n = Math.min(parallelism(execCxt.getContext()), pool().getParallelism());
+        if ( n <= 1 )
+            return 0;
+        DatasetGraph dsg = execCxt.getDataset();
+        if ( dsg != null && dsg.supportsTransactions() && dsg.isInTransaction() && workerTxn(execCxt) == null )
+            return 0;
+        return n;
+    }
+
+    /** Whether parallel execution is enabled and possible for the execution context. */
+    public static boolean isEnabled(ExecutionContext execCxt) {
+        return parallelism(execCxt) > 0;
+    }
+
+    /** The {@link WorkerTxn} for the execution context, or null. */
+    public static WorkerTxn workerTxn(ExecutionContext execCxt) {
+        return (WorkerTxn)execCxt.getContext().get(symWorkerTxn);
+    }
+
+    /**
+     * An execution context for a worker. It shares the cancel signal of the query
+     * but tracks its own iterators. Parallel execution is switched off within a
+     * worker so nested operators run on the worker thread.
+     */
+    public static ExecutionContext workerContext(ExecutionContext execCxt) {
+        Context cxt = execCxt.getContext().copy();
+        cxt.set(ARQ.parallelism, 0);
+        return new ExecutionContext(cxt, execCxt.getActiveGraph(), execCxt.getDataset(), execCxt.getExecutor(), execCxt.getCancelSignal());
+    }
+}
@@ -18,10 +18,16 @@
 
 package org.apache.jena.sparql.engine.main.solver;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.graph.Graph;
@@ -32,6 +38,8 @@ import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterBatch1;
 import org.apache.jena.system.G;
 import org.apache.jena.util.iterator.ExtendedIterator;
 
@@ -40,6 +48,10 @@ import org.apache.jena.util.iterator.ExtendedIterator;
  * <p>
  * Plain matching - see {@link SolverRX3#rdfStarTriple} for matching with variables
  * in RDF-star embedded triples.
+ * <p>
+ * When batch execution is enabled ({@link QueryIterBatch1#batchSize}), the input is
+ * read in blocks and rows of a block that give the same triple pattern after
+ * substitution share one graph lookup.
  */
 public class StageMatchTriple {
     public static Iterator<Binding> accessTriple(Iterator<Binding> input, Graph graph, Triple pattern,
@@ -47,11 +59,77 @@ public class StageMatchTriple {
         if ( ! input.hasNext() )
             return Iter.nullIterator();
 
+        int batchSize = QueryIterBatch1.batchSize(execCxt);
+        if ( batchSize > 1 )
+            return Iter.flatMap(new Blocks(input, batchSize), block -> accessTriple(block, graph, pattern, filter, execCxt));
+
         return Iter.flatMap(input, binding -> {
             return accessTriple(binding, graph, pattern, filter, execCxt);
         });
     }
 
+    /**
+     * Match a block of rows. Rows that substitute to the same triple pattern as
+     * another row in the block use one lookup; the results are in the same order as
+     * row-by-row matching.
+     */
+    private static Iterator<Binding> accessTriple(List<Binding> block, Graph graph, Triple pattern, Predicate<Triple> filter, ExecutionContext execCxt) {
+        List<Triple> keys = new ArrayList<>(block.size());
+        Map<Triple, Integer> counts = new HashMap<>();
+        for ( Binding binding : block ) {
+            Triple t = Triple.create(substituteFlat(pattern.getSubject(), binding),
+                                     substituteFlat(pattern.getPredicate(), binding),
+                                     substituteFlat(pattern.getObject(), binding));
+            keys.add(t);
+            counts.merge(t, 1, Integer::sum);
+        }
+        if ( counts.size() == block.size() )
+            // No repeats.
+            return Iter.flatMap(block.iterator(), binding -> accessTriple(binding, graph, pattern, filter, execCxt));
+
+        Map<Triple, List<Binding>> shared = new HashMap<>();
+        Iterator<Integer> rows = IntStream.range(0, block.size()).iterator();
+        return Iter.flatMap(rows, i -> {
+            Binding binding = block.get(i);
+            Triple t = keys.get(i);
+            // Only patterns with a concrete term are shared: a pattern of all variables
+            // is the whole graph.
+            if ( counts.get(t) == 1 || ! hasConcreteTerm(t) )
+                return accessTriple(binding, graph, pattern, filter, execCxt);
+            // A null value records that the matches were too many to hold.
+            if ( ! shared.containsKey(t) )
+                shared.put(t, sharedMatches(graph, t, filter, execCxt));
+            List<Binding> matches = shared.get(t);
+            if ( matches == null )
+                // Too many matches to hold : stream for each row.
+                return accessTriple(binding, graph, pattern, filter, execCxt);
+            return Iter.map(matches.iterator(), m -> Binding.builder(binding).addAll(m).build());
+        });
+    }
+
+    // Matches of a pattern held to be shared between rows of a block.
+    private static final int MaxSharedMatches = 10_000;
+
+    /** The matches of a substituted pattern, or null if there are more than {@link #MaxSharedMatches}. */
+    private static List<Binding> sharedMatches(Graph graph, Triple t, Predicate<Triple> filter, ExecutionContext execCxt) {
+        Iterator<Binding> iter = accessTriple(BindingFactory.empty(), graph, t, filter, execCxt);
+        List<Binding> matches = new ArrayList<>();
+        try {
+            while ( iter.hasNext() ) {
+                if ( matches.size() >= MaxSharedMatches )
+                    return null;
+                matches.add(iter.next());
+            }
+            return matches;
+        } finally {
+            Iter.close(iter);
+        }
+    }
+
+    private static boolean hasConcreteTerm(Triple t) {
+        return t.getSubject().isConcrete() || t.getPredicate().isConcrete() || t.getObject().isConcrete();
+    }
+
     private static Iterator<Binding> accessTriple(Binding binding, Graph graph, Triple pattern, Predicate<Triple> filter, ExecutionContext execCxt) {
         Node s = substituteFlat(pattern.getSubject(), binding) ;
         Node p = substituteFlat(pattern.getPredicate(), binding) ;
@@ -104,6 +182,32 @@ public class StageMatchTriple {
         return true;
     }
 
+    /** Read an iterator in blocks. */
+    private static class Blocks implements Iterator<List<Binding>> {
+        private final Iterator<Binding> input;
+        private final int size;
+
+        Blocks(Iterator<Binding> input, int size) {
+            this.input = input;
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return input.hasNext();
+        }
+
+        @Override
+        public List<Binding> next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException();
+            List<Binding> block = new ArrayList<>(size);
+            while ( block.size() < size && input.hasNext() )
+                block.add(input.next());
+            return block;
+        }
+    }
+
     // Variable or not a variable. Not recursively inside a triple term <<?var>>
     private static Node substituteFlat(Node n, Binding binding) {
         return Var.lookup(binding::get, n);
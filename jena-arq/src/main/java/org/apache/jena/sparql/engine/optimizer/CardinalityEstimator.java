@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.optimizer;
+
+import static org.apache.jena.sparql.engine.optimizer.reorder.PatternElements.TERM;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.SystemARQ;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.OpVars;
+import org.apache.jena.sparql.algebra.op.*;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.graph.NodeConst;
+import org.apache.jena.sparql.sse.Item;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+
+/**
+ * Estimate the number of rows an algebra expression produces for each row of input
+ * that binds a given set of variables.
+ * <p>
+ * Triple pattern estimates come from a {@link StatsMatcher}, as used for BGP
+ * reordering by {@link org.apache.jena.sparql.engine.optimizer.reorder.ReorderWeighted},
+ * where a variable bound by the input is treated as {@code TERM}. Patterns with no
+ * statistics, and the whole estimate when there is no {@code StatsMatcher}, use fixed
+ * guesses based on which slots are set.
+ * <p>
+ * Estimates are only used to compare plans; they are not expected to be accurate.
+ */
+public class CardinalityEstimator {
+    /**
+     * Context key for the {@code CardinalityEstimator} used by cost-based join planning
+     * ({@link org.apache.jena.query.ARQ#optCostBasedJoins}). Storage layers with
+     * statistics set this for each query execution.
+     */
+    public static final Symbol symCardinalityEstimator = SystemARQ.allocSymbol("cardinalityEstimator");
+
+    /** Size assumed for the data when there are no statistics. */
+    public static final double DefaultTotal     = 1_000_000;
+    /** Fraction of rows assumed to pass each FILTER expression. */
+    public static final double FilterSelectivity = 0.5;
+
+    private static final double NOMATCH = -1;
+
+    /** The estimator in the context, or an estimator without statistics. */
+    public static CardinalityEstimator get(Context context) {
+        Object obj = context == null ? null : context.get(symCardinalityEstimator);
+        if ( obj instanceof CardinalityEstimator estimator )
+            return estimator;
+        return new CardinalityEstimator();
+    }
+
+    private final StatsMatcher stats;
+    private final double total;
+
+    /** An estimator with no statistics. */
+    public CardinalityEstimator() {
+        this(null);
+    }
+
+    /** An estimator using the triple pattern weights of a {@link StatsMatcher}. */
+    public CardinalityEstimator(StatsMatcher stats) {
+        this.stats = stats;
+        this.total = ( stats != null && stats.getCount() >= 0 ) ? stats.getCount() : DefaultTotal;
+    }
+
+    /** Estimate the number of rows for the algebra expression. */
+    public double estimate(Op op) {
+        return estimate(op, Set.of());
+    }
+
+    /**
+     * Estimate the number of rows for the algebra expression for each input row that
+     * binds the variables {@code bound}.
+     */
+    public double estimate(Op op, Set<Var> bound) {
+        if ( op instanceof OpBGP opBGP )
+            return estimate(opBGP.getPattern().getList(), bound);
+        if ( op instanceof OpQuadPattern opQuadPattern )
+            return estimate(opQuadPattern.getBasicPattern().getList(), bound);
+        if ( op instanceof OpTriple opTriple )
+            return estimate(List.of(opTriple.getTriple()), bound);
+        if ( op instanceof OpQuad opQuad )
+            return estimate(List.of(opQuad.getQuad().asTriple()), bound);
+        if ( op instanceof OpPath opPath )
+            return estimatePath(opPath.getTriplePath().getSubject(), opPath.getTriplePath().getObject(), bound);
+        if ( op instanceof OpTable opTable )
+            return opTable.isJoinIdentity() ? 1 : opTable.getTable().size();
+        if ( op instanceof OpNull )
+            return 0;
+
+        if ( op instanceof OpJoin opJoin )
+            return estimateJoin(List.of(opJoin.getLeft(), opJoin.getRight()), bound);
+        if ( op instanceof OpSequence opSequence )
+            return estimateJoin(opSequence.getElements(), bound);
+        if ( op instanceof OpLeftJoin opLeftJoin )
+            return estimateLeftJoin(opLeftJoin.getLeft(), opLeftJoin.getRight(), bound);
+        if ( op instanceof OpConditional opConditional )
+            return estimateLeftJoin(opConditional.getLeft(), opConditional.getRight(), bound);
+        if ( op instanceof OpUnion opUnion )
+            return estimate(opUnion.getLeft(), bound) + estimate(opUnion.getRight(), bound);
+        if ( op instanceof OpN opN ) {
+            // OpDisjunction
+            double x = 0;
+            for ( Op sub : opN.getElements() )
+                x += estimate(sub, bound);
+            return x;
+        }
+        if ( op instanceof OpMinus opMinus )
+            return estimate(opMinus.getLeft(), bound);
+        if ( op instanceof Op2 op2 )
+            return estimateJoin(List.of(op2.getLeft(), op2.getRight()), bound);
+
+        if ( op instanceof OpFilter opFilter ) {
+            double x = estimate(opFilter.getSubOp(), bound);
+            return x * Math.pow(FilterSelectivity, opFilter.getExprs().size());
+        }
+        if ( op instanceof OpSlice opSlice ) {
+            double x = estimate(opSlice.getSubOp(), bound);
+            return ( opSlice.getLength() >= 0 ) ? Math.min(x, opSlice.getLength()) : x;
+        }
+        if ( op instanceof OpTopN opTopN )
+            return Math.min(estimate(opTopN.getSubOp(), bound), opTopN.getLimit());
+        if ( op instanceof OpGroup opGroup ) {
+            if ( opGroup.getGroupVars().isEmpty() )
+                return 1;
+            return estimate(opGroup.getSubOp(), bound);
+        }
+        if ( op instanceof OpService )
+            return total;
+        // OpGraph, OpProject, OpDistinct, OpExtend, OpPropFunc ...
+        if ( op instanceof Op1 op1 )
+            return estimate(op1.getSubOp(), bound);
+        return total;
+    }
+
+    /**
+     * Estimate a basic graph pattern, taking the triple patterns in the order a
+     * greedy "most selective next" reordering would.
+     */
+    public double estimate(Collection<Triple> triples, Set<Var> bound) {
+        List<Triple> remaining = new ArrayList<>(triples);
+        Set<Var> vars = new HashSet<>(bound);
+        double rows = 1;
+        while ( !remaining.isEmpty() ) {
+            int idx = 0;
+            double best = Double.MAX_VALUE;
+            for ( int i = 0 ; i < remaining.size() ; i++ ) {
+                double w = estimate(remaining.get(i), vars);
+                if ( w < best ) {
+                    best = w;
+                    idx = i;
+                }
+            }
+            Triple t = remaining.remove(idx);
+            rows = rows * best;
+            if ( rows == 0 )
+                return 0;
+            addVars(vars, t);
+        }
+        return rows;
+    }
+
+    /**
+     * Estimate the number of matches of a triple pattern for each input row that binds
+     * the variables {@code bound}.
+     */
+    public double estimate(Triple triple, Set<Var> bound) {
+        Node p = triple.getPredicate();
+        if ( p.isConcrete() && !p.isURI() )
+            return 0;
+        if ( stats != null ) {
+            double w = stats.match(item(triple.getSubject(), bound), item(p, bound), item(triple.getObject(), bound));
+            if ( w != NOMATCH )
+                return w;
+        }
+        return guess(isSet(triple.getSubject(), bound), isSet(p, bound), isSet(triple.getObject(), bound),
+                     NodeConst.nodeRDFType.equals(p));
+    }
+
+    private double estimatePath(Node subject, Node object, Set<Var> bound) {
+        // Unknown path length: treat as an unknown predicate.
+        return guess(isSet(subject, bound), false, isSet(object, bound), false);
+    }
+
+    private double estimateJoin(List<Op> elements, Set<Var> bound) {
+        Set<Var> vars = new HashSet<>(bound);
+        double rows = 1;
+        for ( Op elt : elements ) {
+            rows = rows * estimate(elt, vars);
+            if ( rows == 0 )
+                return 0;
+            vars.addAll(OpVars.visibleVars(elt));
+        }
+        return rows;
+    }
+
+    private double estimateLeftJoin(Op left, Op right, Set<Var> bound) {
+        double rows = estimate(left, bound);
+        Set<Var> vars = new HashSet<>(bound);
+        vars.addAll(OpVars.visibleVars(left));
+        // Every left row appears at least once.
+        return rows * Math.max(1, estimate(right, vars));
+    }
+
+    // Fixed guesses in the style of ReorderFixed, scaled to the data size.
+    private double guess(boolean s, boolean p, boolean o, boolean rdfType) {
+        double w;
+        if ( s && p && o )
+            w = 1;
+        else if ( s && ( p || o ) )
+            w = StatsMatcher.weightSP;
+        else if ( p && o )
+            w = rdfType ? StatsMatcher.weightTypeO : StatsMatcher.weightPO;
+        else if ( s )
+            w = 20;
+        else if ( o )
+            w = 100;
+        else if ( p )
+            w = total / 10;
+        else
+            w = total;
+        return Math.min(w, total);
+    }
+
+    private static Item item(Node node, Set<Var> bound) {
+        if ( Var.isVar(node) && bound.contains(Var.alloc(node)) )
+            return TERM;
+        return Item.createNode(node);
+    }
+
+    private static boolean isSet(Node node, Set<Var> bound) {
+        if ( Var.isVar(node) )
+            return bound.contains(Var.alloc(node));
+        return node.isConcrete();
+    }
+
+    private static void addVars(Set<Var> acc, Triple triple) {
+        addVar(acc, triple.getSubject());
+        addVar(acc, triple.getPredicate());
+        addVar(acc, triple.getObject());
+    }
+
+    private static void addVar(Set<Var> acc, Node node) {
+        if ( Var.isVar(node) )
+            acc.add(Var.alloc(node));
+    }
+}
@@ -101,6 +101,11 @@ public final class StatsMatcher {
         init(stats);
     }
 
+    /** The number of triples the statistics describe, or -1 if not recorded. */
+    public long getCount() {
+        return count;
+    }
+
     private void init(Item stats) {
         if ( !stats.isTagged(STATS) )
             throw new ARQException("Not a tagged '" + STATS + "'");
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.optimizer;
+
+import java.util.*;
+
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.OpVars;
+import org.apache.jena.sparql.algebra.op.OpJoin;
+import org.apache.jena.sparql.algebra.op.OpLeftJoin;
+import org.apache.jena.sparql.algebra.op.OpSequence;
+import org.apache.jena.sparql.algebra.optimize.TransformJoinStrategy;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.main.JoinClassifier;
+import org.apache.jena.sparql.engine.main.LeftJoinClassifier;
+
+/**
+ * Cost-based join strategy.
+ * <p>
+ * A chain of joins is flattened into its elements, which are ordered greedily: start
+ * with the element with the smallest estimated cardinality, then repeatedly add the
+ * connected element (one sharing a variable with what is already joined) that gives the
+ * smallest estimated result. Elements include OPTIONALs, UNIONs and sub-queries, so joins
+ * are ordered across those boundaries.
+ * <p>
+ * Each join in the order is then done either as an index join
+ * ({@link OpSequence}, each row on the left is substituted into the right) or as a hash
+ * join ({@link OpJoin}, both sides evaluated once), whichever has the lower estimated cost;
+ * index joins are only used where {@link JoinClassifier} says they are safe.
+ * OPTIONAL ({@link OpLeftJoin}) is treated the same way, as a choice between the
+ * conditional (index) form and the hash left join.
+ *
+ * @see CardinalityEstimator
+ */
+public class TransformJoinStrategyCost extends TransformJoinStrategy {
+    /** Relative cost of one lookup into the right-hand side of an index join. */
+    public static final double ProbeCost = 1.0;
+    /** Relative cost of one row into the hash table of a hash join. */
+    public static final double BuildCost = 2.0;
+
+    private final CardinalityEstimator estimator;
+    // The join elements of each join this transform has produced, so that enclosing
+    // joins can reorder the whole chain. Identity-based: copies are different plans.
+    private final Map<Op, List<Op>> planned = new IdentityHashMap<>();
+
+    public TransformJoinStrategyCost(CardinalityEstimator estimator) {
+        this.estimator = Objects.requireNonNull(estimator);
+    }
+
+    @Override
+    public Op transform(OpJoin opJoin, Op left, Op right) {
+        List<Op> elements = new ArrayList<>();
+        flatten(left, elements);
+        flatten(right, elements);
+        if ( elements.isEmpty() )
+            // All join identities.
+            return left;
+        Op op = plan(order(elements));
+        planned.put(op, elements);
+        return op;
+    }
+
+    @Override
+    public Op transform(OpLeftJoin opLeftJoin, Op left, Op right) {
+        if ( !LeftJoinClassifier.isLinear(opLeftJoin) )
+            return super.transform(opLeftJoin, left, right);
+        double rows = estimator.estimate(left);
+        Set<Var> bound = OpVars.visibleVars(left);
+        if ( indexJoinCost(rows, right, bound) <= hashJoinCost(rows, right) )
+            // Conditional.
+            return super.transform(opLeftJoin, left, right);
+        return OpLeftJoin.createLeftJoin(left, right, opLeftJoin.getExprs());
+    }
+
+    private void flatten(Op op, List<Op> acc) {
+        if ( OpJoin.isJoinIdentify(op) )
+            return;
+        List<Op> elements = planned.get(op);
+        if ( elements == null )
+            acc.add(op);
+        else
+            acc.addAll(elements);
+    }
+
+    /** Order join elements, smallest and connected first. */
+    private List<Op> order(List<Op> elements) {
+        List<Op> remaining = new ArrayList<>(elements);
+        List<Op> ordered = new ArrayList<>(elements.size());
+        Set<Var> bound = new HashSet<>();
+        while ( !remaining.isEmpty() ) {
+            int idx = -1;
+            double best = Double.MAX_VALUE;
+            boolean connected = false;
+            for ( int i = 0 ; i < remaining.size() ; i++ ) {
+                Op op = remaining.get(i);
+                Set<Var> vars = OpVars.visibleVars(op);
+                boolean c = !Collections.disjoint(bound, vars);
+                // Avoid cross products: a connected element beats any unconnected one.
+                if ( connected && !c )
+                    continue;
+                double w = estimator.estimate(op, bound);
+                if ( idx < 0 || ( c && !connected ) || w < best ) {
+                    idx = i;
+                    best = w;
+                    connected = c;
+                }
+            }
+            Op op = remaining.remove(idx);
+            ordered.add(op);
+            bound.addAll(OpVars.visibleVars(op));
+        }
+        return ordered;
+    }
+
+    /** Build a left-deep plan, choosing index or hash join at each step. */
+    private Op plan(List<Op> ordered) {
+        Op acc = ordered.get(0);
+        OpSequence sequence = null;
+        Set<Var> bound = new HashSet<>(OpVars.visibleVars(acc));
+        double rows = estimator.estimate(acc);
+        for ( int i = 1 ; i < ordered.size() ; i++ ) {
+            Op next = ordered.get(i);
+            boolean indexJoin = JoinClassifier.isLinear(acc, next)
+                                && indexJoinCost(rows, next, bound) <= hashJoinCost(rows, next);
+            if ( indexJoin ) {
+                if ( sequence == null ) {
+                    sequence = OpSequence.create();
+                    sequence.add(acc);
+                }
+                sequence.add(next);
+                acc = sequence;
+            } else {
+                acc = OpJoin.create(acc, next);
+                sequence = null;
+            }
+            rows = rows * estimator.estimate(next, bound);
+            bound.addAll(OpVars.visibleVars(next));
+        }
+        return acc;
+    }
+
+    private double indexJoinCost(double rows, Op right, Set<Var> bound) {
+        return rows * ( ProbeCost + estimator.estimate(right, bound) );
+    }
+
+    private double hashJoinCost(double rows, Op right) {
+        return rows + BuildCost * estimator.estimate(right);
+    }
+}
@@ -29,6 +29,11 @@ public final class ReorderWeighted extends ReorderTransformationSubstitution
         this.stats = stats ;
     }
     
+    public StatsMatcher getStatsMatcher()
+    {
+        return stats ;
+    }
+
     @Override
     protected double weight(PatternTriple pTriple)
     {
@@ -48,6 +48,8 @@ import org.junit.runners.Suite ;
     , TestTriXBad.class
     // Protobuf is done in the "protobuf" package
     // Thrift is done in the "thrift" package
+    , TestReaderNTuplesParallel.class
+    , TestReaderTurtleParallel.class
     , TestParserFactory.class
     , TestCollectorStream.class
     , TC_RIOT_RDFXML.class
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotParseException;
+import org.apache.jena.riot.system.*;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.junit.Test;
+
+/** N-Triples and N-Quads parsed on several threads. */
+public class TestReaderNTuplesParallel {
+
+    // Lines of N-Triples without blank nodes.
+    private static String ntriples(int N) {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < N ; i++ ) {
+            switch (i % 4) {
+                case 0 -> sb.append("<http://example/s"+i+"> <http://example/p> \"abc"+i+"\" .\n");
+                case 1 -> sb.append("<http://example/s"+i+"> <http://example/p> \"été "+i+"\"@fr .\n");
+                case 2 -> sb.append("# Comment\n<http://example/s"+i+"> <http://example/q> \""+i+"\"^^<http://www.w3.org/2001/XMLSchema#integer> .\n");
+                default -> sb.append("\n<http://example/s"+i+"> <http://example/p> <http://example/o"+i+"> .\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Function<ErrorHandler, ParserProfile> profileMaker(Lang lang) {
+        UUID seed = UUID.randomUUID();
+        return eh->RiotLib.createParserProfile(RiotLib.factoryRDF(LabelToNode.createScopeByDocumentHash(seed)), eh, false);
+    }
+
+    private static List<Triple> parseParallel(String data, int threads, boolean ordered, int chunkSize) {
+        List<Triple> triples = new ArrayList<>();
+        StreamRDF dest = new StreamRDFBase() {
+            @Override public void triple(Triple triple) { triples.add(triple); }
+        };
+        ReaderRIOTNTuplesParallel reader = new ReaderRIOTNTuplesParallel(Lang.NTRIPLES, ErrorHandlerFactory.errorHandlerExceptions(),
+                                                                         profileMaker(Lang.NTRIPLES), threads, ordered, chunkSize);
+        reader.read(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), null, null, dest, null);
+        return triples;
+    }
+
+    private static List<Triple> parseSequential(String data) {
+        List<Triple> triples = new ArrayList<>();
+        RDFParser.fromString(data, Lang.NTRIPLES).parse(new StreamRDFBase() {
+            @Override public void triple(Triple triple) { triples.add(triple); }
+        });
+        return triples;
+    }
+
+    @Test public void parallel_ordered() {
+        String data = ntriples(2000);
+        List<Triple> expected = parseSequential(data);
+        assertEquals(2000, expected.size());
+        // Small chunks: many chunks, split inside multi-byte characters.
+        assertEquals(expected, parseParallel(data, 4, true, 1000));
+        assertEquals(expected, parseParallel(data, 1, true, 333));
+    }
+
+    @Test public void parallel_unordered() {
+        String data = ntriples(2000);
+        List<Triple> expected = parseSequential(data);
+        List<Triple> actual = parseParallel(data, 4, false, 500);
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
+    @Test public void parallel_empty() {
+        assertTrue(parseParallel("", 2, true, 100).isEmpty());
+        assertTrue(parseParallel("# Comment\n\n", 2, true, 4).isEmpty());
+    }
+
+    @Test public void parallel_no_final_newline() {
+        List<Triple> triples = parseParallel("<http://example/s> <http://example/p> \"1\" .\n<http://example/s> <http://example/p> \"2\" .", 2, true, 50);
+        assertEquals(2, triples.size());
+    }
+
+    @Test public void parallel_long_line() {
+        // A line longer than the chunk size.
+        String longString = "x".repeat(5000);
+        String data = "<http://example/s> <http://example/p> \""+longString+"\" .\n" + ntriples(10);
+        List<Triple> triples = parseParallel(data, 2, true, 100);
+        assertEquals(parseSequential(data), triples);
+    }
+
+    @Test public void parallel_blank_nodes() {
+        // The same label in different chunks is the same blank node.
+        StringBuilder sb = new StringBuilder();
+        sb.append("_:b0 <http://example/p> _:b1 .\n");
+        sb.append(ntriples(200));
+        sb.append("_:b1 <http://example/q> _:b0 .\n");
+        List<Triple> triples = parseParallel(sb.toString(), 3, true, 256);
+        Triple first = triples.get(0);
+        Triple last = triples.get(triples.size()-1);
+        assertTrue(first.getSubject().isBlank());
+        assertEquals(first.getSubject(), last.getObject());
+        assertEquals(first.getObject(), last.getSubject());
+        assertNotEquals(first.getSubject(), first.getObject());
+    }
+
+    @Test public void parallel_error_line() {
+        String data = ntriples(100) + "<http://example/s> <http://example/p> .\n" + ntriples(10);
+        long expectedLine = ntriples(100).lines().count() + 1;
+        try {
+            parseParallel(data, 3, true, 300);
+            fail("Expected a parse error");
+        } catch (RiotParseException ex) {
+            assertEquals(expectedLine, ex.getLine());
+        }
+    }
+
+    @Test public void parser_builder_ntriples() {
+        String data = "_:b <http://example/p> _:b .\n" + ntriples(1000);
+        Graph expected = RDFParser.fromString(data, Lang.NTRIPLES).toGraph();
+        Graph graph = GraphFactory.createDefaultGraph();
+        RDFParser.source(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)))
+                 .lang(Lang.NTRIPLES).parallel(4).parse(graph);
+        assertTrue(IsoMatcher.isomorphic(expected, graph));
+        Node b = graph.find(null, null, null).filterKeep(t->t.getSubject().isBlank()).next().getSubject();
+        assertTrue(graph.contains(b, null, b));
+    }
+
+    @Test public void parser_builder_nquads() {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < 1000 ; i++ )
+            sb.append("<http://example/s"+i+"> <http://example/p> \""+i+"\" "+(i%3==0 ? "" : "<http://example/g"+(i%3)+">")+" .\n");
+        sb.append("_:b <http://example/p> _:b _:g .\n");
+        String data = sb.toString();
+        DatasetGraph expected = RDFParser.fromString(data, Lang.NQUADS).toDatasetGraph();
+        List<Quad> quads = new ArrayList<>();
+        RDFParser.source(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)))
+                 .lang(Lang.NQUADS).parallel(3).parallelOrdered(false)
+                 .parse(new StreamRDFBase() {
+                     @Override public void quad(Quad quad) { quads.add(quad); }
+                 });
+        assertEquals(1001, quads.size());
+        DatasetGraph dsg = RDFParser.source(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)))
+                                    .lang(Lang.NQUADS).parallel(3).toDatasetGraph();
+        assertTrue(IsoMatcher.isomorphic(expected, dsg));
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotParseException;
+import org.apache.jena.riot.system.*;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.junit.Test;
+
+/** Turtle and TriG parsed on several threads. */
+public class TestReaderTurtleParallel {
+
+    private static final String PREFIXES = """
+        @prefix : <http://example/> .
+        PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>
+        """;
+
+    // Turtle statements, without blank nodes, with the awkward cases for finding the end of a statement.
+    private static String turtle(int N) {
+        StringBuilder sb = new StringBuilder(PREFIXES);
+        for ( int i = 0 ; i < N ; i++ ) {
+            switch (i % 8) {
+                case 0 -> sb.append(":s"+i+" :p \"abc. "+i+"\" .\n");
+                case 1 -> sb.append(":s"+i+" :p \"été "+i+"\"@fr ; :q 1.5 , 2 .\n");
+                case 2 -> sb.append("# Comment . \n:s"+i+" :q \""+i+"\"^^xsd:integer .  # Comment .\n");
+                case 3 -> sb.append(":s"+i+" :p \"\"\"Long .\n\"quoted\" .\n\"\"\" .\n");
+                case 4 -> sb.append(":s"+i+" :p <http://example/o.x> , :o.x"+i+" .\n");
+                case 5 -> sb.append(":s"+i+" :p '''single \\''' .\n''' ; :q 'x.' .\n");
+                case 6 -> sb.append(":s"+i+" :p :a\\."+i+" .\n");
+                default -> sb.append("\n<http://example/s"+i+">\n   <http://example/p>\n   .5 .\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Function<ErrorHandler, ParserProfile> profileMaker() {
+        UUID seed = UUID.randomUUID();
+        return eh->RiotLib.createParserProfile(RiotLib.factoryRDF(LabelToNode.createScopeByDocumentHashShared(seed)), eh, false);
+    }
+
+    private static void parseParallel(Lang lang, String data, int threads, boolean ordered, int chunkSize, StreamRDF dest) {
+        ReaderRIOTTurtleParallel reader = new ReaderRIOTTurtleParallel(lang, ErrorHandlerFactory.errorHandlerExceptions(),
+                                                                       profileMaker(), threads, ordered, chunkSize);
+        reader.read(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), null, null, dest, null);
+    }
+
+    private static List<Triple> parseParallel(String data, int threads, boolean ordered, int chunkSize) {
+        List<Triple> triples = new ArrayList<>();
+        parseParallel(Lang.TURTLE, data, threads, ordered, chunkSize, new StreamRDFBase() {
+            @Override public void triple(Triple triple) { triples.add(triple); }
+        });
+        return triples;
+    }
+
+    private static List<Triple> parseSequential(String data) {
+        List<Triple> triples = new ArrayList<>();
+        RDFParser.fromString(data, Lang.TURTLE).parse(new StreamRDFBase() {
+            @Override public void triple(Triple triple) { triples.add(triple); }
+        });
+        return triples;
+    }
+
+    @Test public void parallel_ordered() {
+        String data = turtle(2000);
+        List<Triple> expected = parseSequential(data);
+        // Small chunks: many chunks, split inside multi-byte characters and long strings.
+        assertEquals(expected, parseParallel(data, 4, true, 1000));
+        assertEquals(expected, parseParallel(data, 1, true, 333));
+    }
+
+    @Test public void parallel_unordered() {
+        String data = turtle(2000);
+        List<Triple> expected = parseSequential(data);
+        List<Triple> actual = parseParallel(data, 4, false, 500);
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
+    @Test public void parallel_empty() {
+        assertTrue(parseParallel("", 2, true, 100).isEmpty());
+        assertTrue(parseParallel(PREFIXES+"# Comment\n\n", 2, true, 4).isEmpty());
+    }
+
+    @Test public void parallel_no_final_newline() {
+        List<Triple> triples = parseParallel(PREFIXES+":s :p \"1\" .\n:s :p \"2\".", 2, true, 50);
+        assertEquals(2, triples.size());
+    }
+
+    @Test public void parallel_long_statement() {
+        // A statement longer than the chunk size.
+        StringBuilder sb = new StringBuilder(PREFIXES);
+        sb.append(":s :p ( ");
+        for ( int i = 0 ; i < 500 ; i++ )
+            sb.append(":o"+i+" ");
+        sb.append(") ; :q \"\"\""+"x. ".repeat(1000)+"\"\"\" .\n");
+        sb.append(turtle(20));
+        String data = sb.toString();
+        Graph expected = RDFParser.fromString(data, Lang.TURTLE).toGraph();
+        Graph graph = GraphFactory.createDefaultGraph();
+        parseParallel(Lang.TURTLE, data, 2, true, 100, StreamRDFLib.graph(graph));
+        assertEquals(expected.size(), graph.size());
+        assertEquals(1000, graph.find(null, null, null).filterKeep(t->t.getSubject().isBlank()).toList().size());
+        assertEquals(expected.find(null, null, null).filterDrop(t->t.getSubject().isBlank() || t.getObject().isBlank()).toSet(),
+                     graph.find(null, null, null).filterDrop(t->t.getSubject().isBlank() || t.getObject().isBlank()).toSet());
+    }
+
+    @Test public void parallel_prefix_changes() {
+        // The prefixes and base in force at each statement.
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < 200 ; i++ ) {
+            sb.append("@prefix ex: <http://example/ns"+i+"#> .\n");
+            sb.append("BASE <http://example/base"+i+"/>\n");
+            sb.append("ex:s ex:p <o> .\n");
+        }
+        List<Triple> triples = parseParallel(sb.toString(), 3, true, 64);
+        assertEquals(200, triples.size());
+        for ( int i = 0 ; i < 200 ; i++ ) {
+            Triple t = triples.get(i);
+            assertEquals("http://example/ns"+i+"#s", t.getSubject().getURI());
+            assertEquals("http://example/base"+i+"/o", t.getObject().getURI());
+        }
+    }
+
+    @Test public void parallel_prefix_events() {
+        String data = turtle(500);
+        List<String> prefixes = new ArrayList<>();
+        parseParallel(Lang.TURTLE, data, 3, true, 200, new StreamRDFBase() {
+            @Override public void prefix(String prefix, String iri) { prefixes.add(prefix); }
+        });
+        assertEquals(List.of("", "xsd"), prefixes);
+    }
+
+    @Test public void parallel_blank_nodes() {
+        // The same label in different chunks is the same blank node;
+        // each [] is a different blank node.
+        StringBuilder sb = new StringBuilder(PREFIXES);
+        sb.append("_:b0 :p _:b1 .\n");
+        for ( int i = 0 ; i < 200 ; i++ )
+            sb.append("[] :p [ :q "+i+" ] .\n");
+        sb.append("_:b1 :q _:b0 .\n");
+        List<Triple> triples = parseParallel(sb.toString(), 3, true, 256);
+        Triple first = triples.get(0);
+        Triple last = triples.get(triples.size()-1);
+        assertTrue(first.getSubject().isBlank());
+        assertEquals(first.getSubject(), last.getObject());
+        assertEquals(first.getObject(), last.getSubject());
+        Set<Node> anon = new HashSet<>();
+        triples.forEach(t->{ anon.add(t.getSubject()); if ( t.getObject().isBlank() ) anon.add(t.getObject()); });
+        assertEquals(2 + 2*200, anon.size());
+    }
+
+    @Test public void parallel_error_line() {
+        String data = turtle(100) + ":s :p .\n" + turtle(10);
+        long expectedLine = turtle(100).lines().count() + 1;
+        try {
+            parseParallel(data, 3, true, 300);
+            fail("Expected a parse error");
+        } catch (RiotParseException ex) {
+            assertEquals(expectedLine, ex.getLine());
+        }
+    }
+
+    @Test public void parallel_trig() {
+        StringBuilder sb = new StringBuilder(PREFIXES);
+        for ( int i = 0 ; i < 300 ; i++ ) {
+            switch (i % 3) {
+                case 0 -> sb.append(":g"+i+" { :s :p "+i+" . :s :q \"}.\" }\n");
+                case 1 -> sb.append("GRAPH :g { :s :p "+i+" .\n :s :q [ :r :o ] }\n");
+                default -> sb.append(":s :p "+i+" .\n");
+            }
+        }
+        String data = sb.toString();
+        DatasetGraph expected = RDFParser.fromString(data, Lang.TRIG).toDatasetGraph();
+        List<Quad> quads = new ArrayList<>();
+        parseParallel(Lang.TRIG, data, 3, true, 128, new StreamRDFBase() {
+            @Override public void quad(Quad quad) { quads.add(quad); }
+        });
+        assertEquals(expected.stream().count(), quads.size());
+        assertEquals(NodeFactory.createURI("http://example/g0"), quads.get(0).getGraph());
+        DatasetGraph dsg = RDFParser.source(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)))
+                                    .lang(Lang.TRIG).parallel(3).toDatasetGraph();
+        // Each [] is a different blank node.
+        assertEquals(expected.stream().count(), dsg.stream().count());
+        assertEquals(expected.stream().filter(q->!q.getObject().isBlank() && !q.getSubject().isBlank()).toList().size(),
+                     dsg.stream().filter(q->!q.getObject().isBlank() && !q.getSubject().isBlank()).toList().size());
+    }
+
+    @Test public void parser_builder_turtle() {
+        String data = "_:b <http://example/p> _:b .\n" + turtle(1000);
+        Graph expected = RDFParser.fromString(data, Lang.TURTLE).toGraph();
+        Graph graph = GraphFactory.createDefaultGraph();
+        RDFParser.source(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)))
+                 .lang(Lang.TURTLE).parallel(4).parse(graph);
+        assertTrue(IsoMatcher.isomorphic(expected, graph));
+        assertEquals("http://example/", graph.getPrefixMapping().getNsPrefixURI(""));
+    }
+
+    @Test public void parser_builder_prefixes() {
+        // Prefixes set on the builder are used, and not changed, by every parser thread.
+        PrefixMap pmap = PrefixMapFactory.create();
+        pmap.add("ex", "http://example/ns#");
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < 1000 ; i++ )
+            sb.append("ex:s ex:p "+i+" .\n");
+        sb.append("@prefix ex: <http://example/other#> .\nex:s ex:p 0 .\n");
+        Graph graph = GraphFactory.createDefaultGraph();
+        RDFParser.source(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)))
+                 .lang(Lang.TURTLE).prefixes(pmap).parallel(4).parse(graph);
+        assertEquals(1001, graph.size());
+        assertEquals("http://example/ns#", pmap.get("ex"));
+    }
+}
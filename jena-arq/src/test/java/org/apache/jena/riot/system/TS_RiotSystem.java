@@ -27,6 +27,7 @@ import org.junit.runners.Suite ;
     , TestStreamRDF.class
     , TestFactoryRDF.class
     , TestFactoryRDFCaching.class
+    , TestNodeInterner.class
 
     // Prefix Map implementations
     , TestPrefixMap.class
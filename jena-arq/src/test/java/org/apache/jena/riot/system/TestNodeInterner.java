@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.system;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.apache.jena.atlas.lib.cache.CacheInfo;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.junit.Test;
+
+public class TestNodeInterner {
+
+    @Test public void interner_01() {
+        NodeInterner interner = NodeInterner.create(100, false);
+        Node n1 = interner.intern("http://test/n1");
+        Node n2 = interner.intern("http://test/n2");
+        Node n3 = interner.intern("http://test/n1");
+        assertSame(n1, n3);
+        assertNotSame(n1, n2);
+        assertEquals(NodeFactory.createURI("http://test/n1"), n1);
+        CacheInfo info = interner.stats();
+        assertEquals(3, info.requests);
+        assertEquals(1, info.hits);
+        assertEquals(2, info.misses);
+    }
+
+    @Test public void interner_02() {
+        NodeInterner interner = NodeInterner.create(100, true);
+        Node n1 = NodeFactory.createURI("http://test/n1");
+        Node n2 = NodeFactory.createURI("http://test/n1");
+        assertSame(n1, interner.intern(n1));
+        assertSame(n1, interner.intern(n2));
+        assertSame(n1, interner.intern("http://test/n1"));
+        Node lit = NodeFactory.createLiteralString("abc");
+        assertSame(lit, interner.intern(lit));
+    }
+
+    @Test public void interner_03() {
+        // Bounded.
+        NodeInterner interner = NodeInterner.create(10, false);
+        for ( int i = 0 ; i < 1000 ; i++ )
+            interner.intern("http://test/n"+i);
+        assertTrue(interner.size() <= 10);
+        interner.clear();
+        assertEquals(0, interner.size());
+    }
+
+    @Test public void interner_04() throws Exception {
+        // Many threads.
+        NodeInterner interner = NodeInterner.create(1000, false);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Node[]>> results = new ArrayList<>();
+            for ( int t = 0 ; t < 4 ; t++ ) {
+                results.add(executor.submit(()->{
+                    Node[] nodes = new Node[100];
+                    for ( int i = 0 ; i < 100 ; i++ )
+                        nodes[i] = interner.intern("http://test/n"+i);
+                    return nodes;
+                }));
+            }
+            Node[] first = results.get(0).get();
+            for ( Future<Node[]> f : results ) {
+                Node[] nodes = f.get();
+                for ( int i = 0 ; i < 100 ; i++ )
+                    assertSame(first[i], nodes[i]);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test public void interner_factory() {
+        NodeInterner interner = NodeInterner.create(100, false);
+        FactoryRDF factory1 = new FactoryRDFCaching(10, LabelToNode.createUseLabelAsGiven(), interner);
+        FactoryRDF factory2 = new FactoryRDFCaching(10, LabelToNode.createUseLabelAsGiven(), interner);
+        assertSame(factory1.createURI("http://test/n1"), factory2.createURI("http://test/n1"));
+    }
+
+    @Test public void interner_parser() {
+        NodeInterner interner = NodeInterner.create(100, true);
+        String data = "<http://test/s> <http://test/p> <http://test/o> .";
+        Graph g1 = RDFParser.fromString(data, Lang.NTRIPLES).nodeInterner(interner).toGraph();
+        Graph g2 = RDFParser.fromString(data, Lang.TURTLE).nodeInterner(interner).toGraph();
+        Triple t1 = g1.find().next();
+        Triple t2 = g2.find().next();
+        assertSame(t1.getSubject(), t2.getSubject());
+        assertSame(t1.getPredicate(), t2.getPredicate());
+        assertSame(t1.getObject(), t2.getObject());
+    }
+
+    @Test public void interner_parser_parallel() {
+        NodeInterner interner = NodeInterner.create(100, false);
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < 5000 ; i++ )
+            sb.append("<http://test/s"+(i%10)+"> <http://test/p> \""+i+"\" .\n");
+        Graph graph = RDFParser.source(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)))
+                .lang(Lang.NTRIPLES).nodeInterner(interner).parallel(3).toGraph();
+        assertEquals(5000, graph.size());
+        Node p = interner.intern("http://test/p");
+        graph.find().forEachRemaining(t->assertSame(p, t.getPredicate()));
+    }
+}
@@ -24,6 +24,7 @@ import org.junit.runners.Suite ;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
       TestTokenizerText.class
+    , TestTokenizerBytes.class
     , TestTokenForNode.class
 })
 
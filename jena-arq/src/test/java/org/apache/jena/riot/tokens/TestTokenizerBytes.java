@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.tokens;
+
+import static org.apache.jena.riot.system.ErrorHandlerFactory.errorHandlerExceptions;
+import static org.apache.jena.riot.system.ErrorHandlerFactory.errorHandlerSimple;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.riot.RiotParseException;
+import org.apache.jena.riot.system.ErrorHandlerFactory.ErrorHandlerRecorder;
+import org.junit.Test;
+
+/** {@link TokenizerBytes} gives the same tokens as {@link TokenizerText}. */
+public class TestTokenizerBytes {
+
+    private static List<Token> tokensText(String string) {
+        Tokenizer tokenizer = TokenizerText.create().fromString(string).errorHandler(errorHandlerExceptions()).build();
+        List<Token> tokens = new ArrayList<>();
+        tokenizer.forEachRemaining(tokens::add);
+        return tokens;
+    }
+
+    private static List<Token> tokensBytes(Tokenizer tokenizer) {
+        List<Token> tokens = new ArrayList<>();
+        tokenizer.forEachRemaining(tokens::add);
+        return tokens;
+    }
+
+    private static Tokenizer tokenizerStream(String string) {
+        return TokenizerBytes.create(new ByteArrayInputStream(bytes(string)), errorHandlerExceptions());
+    }
+
+    private static Tokenizer tokenizerHeap(String string) {
+        return TokenizerBytes.create(ByteBuffer.wrap(bytes(string)), errorHandlerExceptions());
+    }
+
+    private static Tokenizer tokenizerDirect(String string) {
+        byte[] b = bytes(string);
+        ByteBuffer bb = ByteBuffer.allocateDirect(b.length);
+        bb.put(b).flip();
+        return TokenizerBytes.create(bb, errorHandlerExceptions());
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Same tokens, including the parts of literals, and in the same places.
+    private static void testSame(String string) {
+        List<Token> expected = tokensText(string);
+        testSame(expected, tokensBytes(tokenizerStream(string)));
+        testSame(expected, tokensBytes(tokenizerHeap(string)));
+        testSame(expected, tokensBytes(tokenizerDirect(string)));
+    }
+
+    private static void testSame(List<Token> expected, List<Token> actual) {
+        assertEquals(expected.size(), actual.size());
+        for ( int i = 0 ; i < expected.size() ; i++ ) {
+            Token t1 = expected.get(i);
+            Token t2 = actual.get(i);
+            assertEquals(t1, t2);
+            assertEquals(t1.getStringType(), t2.getStringType());
+            assertEquals(t1.getSubToken1(), t2.getSubToken1());
+            assertEquals(t1.getSubToken2(), t2.getSubToken2());
+            assertEquals("Line: "+t1, t1.getLine(), t2.getLine());
+            assertEquals("Column: "+t1, t1.getColumn(), t2.getColumn());
+        }
+    }
+
+    private static void testError(String string) {
+        testError(()->tokensBytes(tokenizerStream(string)));
+        testError(()->tokensBytes(tokenizerHeap(string)));
+        testError(()->tokensBytes(tokenizerDirect(string)));
+    }
+
+    private static void testError(Runnable action) {
+        try {
+            action.run();
+            fail("Expected RiotParseException");
+        } catch (RiotParseException ex) {}
+    }
+
+    private static long countWarnings(String string) {
+        ErrorHandlerRecorder errHandler = new ErrorHandlerRecorder(errorHandlerSimple());
+        Tokenizer tokenizer = TokenizerBytes.create(ByteBuffer.wrap(bytes(string)), errHandler);
+        tokensBytes(tokenizer);
+        assertEquals("Errors: ", 0, errHandler.getErrorCount());
+        assertEquals("Fatal: ", 0, errHandler.getFatalCount());
+        return errHandler.getWarningCount();
+    }
+
+    @Test public void tokenizer_bytes_01()  { testSame(""); }
+    @Test public void tokenizer_bytes_02()  { testSame("  # Comment\n\t\n"); }
+    @Test public void tokenizer_bytes_03()  { testSame("<http://example/s> <http://example/p> <http://example/o> ."); }
+    @Test public void tokenizer_bytes_04()  { testSame("_:b0 <http://example/p> _:b1 .\n_:a.b.c ."); }
+    @Test public void tokenizer_bytes_05()  { testSame("'abc' \"def\" '' \"\""); }
+    @Test public void tokenizer_bytes_06()  { testSame("\"abc\"@en \"abc\"@en-GB \"abc\"@en--ltr \"abc\"@en-GB--rtl"); }
+    @Test public void tokenizer_bytes_07()  { testSame("\"1\"^^<http://www.w3.org/2001/XMLSchema#integer> '2' ^^ <http://example/dt>"); }
+    @Test public void tokenizer_bytes_08()  { testSame("\"a\\tb\\n\\\"c\\u00E9\\U0001F600\\\\\""); }
+    @Test public void tokenizer_bytes_09()  { testSame("<http://example/\\u00E9\\U0001F600x>"); }
+    @Test public void tokenizer_bytes_10()  { testSame("<http://example/é> 'été' _:é \"😀x\"@fr ."); }
+    @Test public void tokenizer_bytes_11()  { testSame("<< <x> <y> <z> >> <<( <x> <y> 'z' )>> ."); }
+    @Test public void tokenizer_bytes_12()  { testSame("<s> <p> <o> <g> .\r\n<s> <p> 'o' . # Comment\n"); }
+    @Test public void tokenizer_bytes_13()  { testSame("'😀' <x> 'αβγ' <y>\n  'é' <z> ."); }
+
+    @Test public void tokenizer_bytes_bnode_dot() {
+        // The DOT after a blank node label.
+        String string = "_:b0 <http://example/p> _:b1.\n_:a.b.c.";
+        List<Token> expected = tokensText(string);
+        assertEquals(expected, tokensBytes(tokenizerStream(string)));
+        assertEquals(expected, tokensBytes(tokenizerDirect(string)));
+    }
+
+    @Test public void tokenizer_bytes_bom() {
+        Tokenizer tokenizer = tokenizerStream("\uFEFF'abc'");
+        Token t = tokenizer.next();
+        assertEquals(TokenType.STRING, t.getType());
+        assertEquals("abc", t.getImage());
+        assertFalse(tokenizer.hasNext());
+    }
+
+    @Test public void tokenizer_bytes_iri_cache() {
+        Tokenizer tokenizer = tokenizerHeap("<http://example/p> <http://example/p> <http://example/q>");
+        Token t1 = tokenizer.next();
+        Token t2 = tokenizer.next();
+        Token t3 = tokenizer.next();
+        assertSame(t1.getImage(), t2.getImage());
+        assertEquals("http://example/q", t3.getImage());
+    }
+
+    @Test public void tokenizer_bytes_long_lines() {
+        // Lines longer than the buffer, and many lines.
+        StringBuilder sb = new StringBuilder();
+        sb.append("<http://example/s> <http://example/p> \"").append("é".repeat(200_000)).append("\" .\n");
+        for ( int i = 0 ; i < 10_000 ; i++ )
+            sb.append("<http://example/s"+i+"> <http://example/p> \"o"+i+"\"@en .\n");
+        sb.append("<http://example/s> <http://example/p> \"").append("x".repeat(300_000)).append("\"");
+        testSame(sb.toString());
+    }
+
+    @Test public void tokenizer_bytes_bad_01()  { testError("<http://example/"); }
+    @Test public void tokenizer_bytes_bad_02()  { testError("<http://example/\n>"); }
+    @Test public void tokenizer_bytes_bad_03()  { testError("<http://example/<>"); }
+    @Test public void tokenizer_bytes_bad_04()  { testError("<http://example/ x>"); }
+    @Test public void tokenizer_bytes_bad_05()  { testError("'abc"); }
+    @Test public void tokenizer_bytes_bad_06()  { testError("'abc\n'"); }
+    @Test public void tokenizer_bytes_bad_07()  { testError("'''abc'''"); }
+    @Test public void tokenizer_bytes_bad_08()  { testError("'abc\\q'"); }
+    @Test public void tokenizer_bytes_bad_09()  { testError("'abc\\u00'"); }
+    @Test public void tokenizer_bytes_bad_10()  { testError("'abc'@"); }
+    @Test public void tokenizer_bytes_bad_11()  { testError("'abc'@en-"); }
+    @Test public void tokenizer_bytes_bad_12()  { testError("'abc'^^'dt'"); }
+    @Test public void tokenizer_bytes_bad_13()  { testError("_:"); }
+    @Test public void tokenizer_bytes_bad_14()  { testError("_:-a"); }
+    @Test public void tokenizer_bytes_bad_15()  { testError("ex:a"); }
+    @Test public void tokenizer_bytes_bad_16()  { testError("123"); }
+    @Test public void tokenizer_bytes_bad_17()  { testError("<http://example/\\n>"); }
+
+    @Test public void tokenizer_bytes_error_line() {
+        try {
+            tokensBytes(tokenizerStream("<s> <p> <o> .\n<s> <p> 'é\n"));
+            fail("Expected RiotParseException");
+        } catch (RiotParseException ex) {
+            assertEquals(2, ex.getLine());
+            assertEquals(11, ex.getCol());
+        }
+    }
+
+    @Test public void tokenizer_bytes_warning_01() {
+        assertEquals(1, countWarnings("<http://example/{x>"));
+    }
+
+    @Test public void tokenizer_bytes_warning_02() {
+        assertEquals(1, countWarnings("_:b\uFFFD"));
+    }
+
+    @Test public void tokenizer_bytes_warning_03() {
+        assertEquals(1, countWarnings("'abc\uFFFF'"));
+    }
+
+    @Test public void tokenizer_bytes_bad_encoding() {
+        // Not UTF-8: replaced, as when TokenizerText reads bytes.
+        byte[] b = {(byte)0x22, (byte)0xDF, (byte)0x22};
+        Tokenizer tokenizer = TokenizerBytes.create(new ByteArrayInputStream(b), errorHandlerExceptions());
+        Token t = tokenizer.next();
+        assertEquals(TokenType.STRING, t.getType());
+        assertEquals("\uFFFD", t.getImage());
+        assertFalse(tokenizer.hasNext());
+    }
+}
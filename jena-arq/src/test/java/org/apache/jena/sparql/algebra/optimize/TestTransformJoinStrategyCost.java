@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.algebra.optimize;
+
+import static org.apache.jena.sparql.algebra.optimize.TransformTests.testOp;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.Transform;
+import org.apache.jena.sparql.engine.optimizer.CardinalityEstimator;
+import org.apache.jena.sparql.engine.optimizer.TransformJoinStrategyCost;
+import org.apache.jena.sparql.solver.SolverLibTest;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.Context;
+import org.junit.Test;
+
+/** Cost-based join ordering and choice of index or hash join */
+public class TestTransformJoinStrategyCost {
+    private static CardinalityEstimator estimator =
+        new CardinalityEstimator(SolverLibTest.matcher("(meta (count 100000))",
+                                                       "(:big 100000)",
+                                                       "(:big2 50000)",
+                                                       "(:opt 100)",
+                                                       "(:small 10)",
+                                                       "((TERM :fan ANY) 500)",
+                                                       "(:fan 5000)"));
+
+    private static Transform transform() {
+        return new TransformJoinStrategyCost(estimator);
+    }
+
+    @Test public void estimate_01() {
+        assertEquals(10, estimator.estimate(SSE.parseOp("(prefix ((: <http://example/>)) (bgp (?s :small ?o)))")), 0);
+    }
+
+    @Test public void estimate_02() {
+        // Second triple pattern: ?s bound, TERM :big ANY
+        Op op = SSE.parseOp("(prefix ((: <http://example/>)) (bgp (?s :big ?o) (?s :small ?x)))");
+        assertEquals(10 * 2, estimator.estimate(op), 0);
+    }
+
+    @Test public void estimate_03() {
+        Op op = SSE.parseOp("(prefix ((: <http://example/>)) (union (bgp (?s :small ?o)) (bgp (?s :opt ?o))))");
+        assertEquals(110, estimator.estimate(op), 0);
+    }
+
+    @Test public void estimate_04() {
+        // Statistics for bound subject from the distinct count pattern.
+        Op op = SSE.parseOp("(prefix ((: <http://example/>)) (bgp (?s :small ?o) (?s :fan ?x)))");
+        assertEquals(10 * 500, estimator.estimate(op), 0);
+    }
+
+    @Test public void estimate_05() {
+        // No statistics: a fixed term is more selective.
+        CardinalityEstimator est = new CardinalityEstimator();
+        double x1 = est.estimate(SSE.parseOp("(bgp (?s <http://example/p> ?o))"));
+        double x2 = est.estimate(SSE.parseOp("(bgp (?s <http://example/p> 123))"));
+        assertTrue(x1 > x2);
+    }
+
+    @Test public void joinOrder_01() {
+        // Smallest first, then index join.
+        testOp("(join (bgp (?s :big ?o)) (bgp (?s :small ?x)))",
+               transform(),
+               "(sequence (bgp (?s :small ?x)) (bgp (?s :big ?o)))");
+    }
+
+    @Test public void joinOrder_02() {
+        // Large fan out each probe: hash join.
+        testOp("(join (bgp (?s :big ?o)) (bgp (?o :big2 ?x)))",
+               transform(),
+               "(join (bgp (?o :big2 ?x)) (bgp (?s :big ?o)))");
+    }
+
+    @Test public void joinOrder_03() {
+        // Reorder the whole chain, avoiding the cross product.
+        testOp("(join (join (bgp (?s :big ?o)) (bgp (?z :big2 ?w))) (bgp (?s :small ?z)))",
+               transform(),
+               "(sequence (bgp (?s :small ?z)) (bgp (?s :big ?o)) (bgp (?z :big2 ?w)))");
+    }
+
+    @Test public void joinOrder_04() {
+        // Join with an OPTIONAL: the small pattern goes first, across the OPTIONAL.
+        testOp("(join (leftjoin (bgp (?s :big ?o)) (bgp (?s :opt ?z))) (bgp (?s :small ?x)))",
+               transform(),
+               "(sequence (bgp (?s :small ?x)) (leftjoin (bgp (?s :big ?o)) (bgp (?s :opt ?z))))");
+    }
+
+    @Test public void joinOrder_05() {
+        // OPTIONAL with small left side: conditional (index) left join.
+        testOp("(leftjoin (bgp (?s :small ?o)) (bgp (?s :big ?z)))",
+               transform(),
+               "(conditional (bgp (?s :small ?o)) (bgp (?s :big ?z)))");
+    }
+
+    @Test public void joinOrder_06() {
+        // Not safe as an index join: FILTER using a variable from the other side.
+        testOp("(join (bgp (?s :small ?o)) (filter (= ?o 1) (bgp (?s :big ?x))))",
+               transform(),
+               "(join (bgp (?s :small ?o)) (filter (= ?o 1) (bgp (?s :big ?x))))");
+    }
+
+    @Test public void optimizer_01() {
+        Context cxt = ARQ.getContext().copy();
+        cxt.set(ARQ.optCostBasedJoins, true);
+        cxt.set(CardinalityEstimator.symCardinalityEstimator, estimator);
+        Op op = SSE.parseOp("(prefix ((: <http://example/>)) (join (bgp (?s :big ?o)) (distinct (bgp (?s :small ?x)))))");
+        Op op2 = new OptimizerStd(cxt).rewrite(op);
+        Op expected = SSE.parseOp("(prefix ((: <http://example/>)) (sequence (distinct (bgp (?s :small ?x))) (bgp (?s :big ?o))))");
+        assertEquals(expected, op2);
+    }
+}
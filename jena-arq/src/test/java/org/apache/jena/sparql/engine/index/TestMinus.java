@@ -18,23 +18,35 @@
 
 package org.apache.jena.sparql.engine.index;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.ListUtils;
 import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.query.ARQ;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryFactory;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.DatasetGraphZero;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryEngineFactory;
+import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
 import org.apache.jena.sparql.engine.binding.BindingRoot;
+import org.apache.jena.sparql.engine.iterator.QueryIterMinus;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
 import org.apache.jena.sparql.engine.main.QueryEngineMain;
 import org.apache.jena.sparql.engine.ref.QueryEngineRef;
+import org.apache.jena.sparql.util.Context;
 import org.junit.Test;
 
 // More tests for MINUS (JENA-1633)
@@ -89,12 +101,49 @@ public class TestMinus {
         test(x3);
      }
     
+    @Test
+    public void minus_spill_1() {
+        // Right hand side larger than the spill threshold: partitioned on disk.
+        String x = StrUtils.strjoinNL
+            ("SELECT * {"
+            ,"  VALUES ( ?x ?y ) { (1 1) (2 2) (3 UNDEF) (4 4) (UNDEF 5) (UNDEF 6) (7 UNDEF) }"
+            ,"  MINUS {"
+            ,"     VALUES ( ?x ?y ) { (1 1) (3 3) (4 UNDEF) (UNDEF 6) (8 8) }"
+            ,"  }"
+            ,"}"
+            );
+        Context cxt = ARQ.getContext().copy();
+        cxt.set(ARQ.spillToDiskThreshold, 1L);
+        test(x, cxt);
+    }
+
+    @Test
+    public void minus_emptyLeft() {
+        // The right hand side is not read if the left hand side is empty.
+        Var x = Var.alloc("x");
+        List<Binding> rows = List.of(BindingFactory.binding(x, NodeFactory.createURI("http://example/a")),
+                                     BindingFactory.binding(x, NodeFactory.createURI("http://example/b")));
+        AtomicInteger count = new AtomicInteger();
+        Iterator<Binding> rightRows = Iter.map(rows.iterator(), b -> { count.incrementAndGet(); return b; });
+        ExecutionContext execCxt = ExecutionContext.create(ARQ.getContext().copy());
+        QueryIterator left = QueryIterPlainWrapper.create(Iter.nullIterator(), execCxt);
+        QueryIterator right = QueryIterPlainWrapper.create(rightRows, execCxt);
+        QueryIterator qIter = QueryIterMinus.create(left, right, Set.of(x), execCxt);
+        assertFalse(qIter.hasNext());
+        qIter.close();
+        // QueryIterMinus.create looks at the first row.
+        assertTrue(count.get() <= 1);
+    }
+
     private static DatasetGraph dsgzero = DatasetGraphZero.create();
     
     private void test(String queryStr) {
-        Query ast = QueryFactory.create(queryStr);
-        List<Binding> x1 = exec(queryStr, QueryEngineRef.getFactory());
-        List<Binding> x2 = exec(queryStr, QueryEngineMain.getFactory());
+        test(queryStr, ARQ.getContext());
+    }
+
+    private void test(String queryStr, Context cxt) {
+        List<Binding> x1 = exec(queryStr, QueryEngineRef.getFactory(), cxt);
+        List<Binding> x2 = exec(queryStr, QueryEngineMain.getFactory(), cxt);
         boolean b = ListUtils.equalsUnordered(x1, x2);
 //        if ( !b ) {
 //            System.out.println("Ref:  "+x1);
@@ -103,9 +152,9 @@ public class TestMinus {
         assertTrue("Ref != main", b);
     }
     
-    private static List<Binding> exec(String queryStr, QueryEngineFactory factory) {
+    private static List<Binding> exec(String queryStr, QueryEngineFactory factory, Context cxt) {
         Query ast = QueryFactory.create(queryStr);
-        return Iter.toList(factory.create(ast, dsgzero, BindingRoot.create(), ARQ.getContext()).iterator());
+        return Iter.toList(factory.create(ast, dsgzero, BindingRoot.create(), cxt).iterator());
     }
 
 }
@@ -30,6 +30,9 @@ import org.junit.runners.Suite ;
     , TestDataBagDistinctOrder.class
     , TestCancelDistinct.class
     , TestSortedDataBagCancellation.class
+    , TestQueryIterGroup.class
+    , TestQueryIterBatch.class
+    , TestQueryIterExchange.class
 })
 public class TS_QueryIterators {
 
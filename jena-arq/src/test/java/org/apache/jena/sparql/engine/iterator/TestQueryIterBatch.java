@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSetRewindable;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.core.VarExprList;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBatch;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.join.QueryIterBatchHashJoin;
+import org.apache.jena.sparql.engine.join.QueryIterHashJoin;
+import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.ExprUtils;
+
+public class TestQueryIterBatch {
+
+    private static Var vKey = Var.alloc("k");
+    private static Var vVal = Var.alloc("v");
+    private static Var vX = Var.alloc("x");
+
+    private static List<Binding> data(int numRows) {
+        List<Binding> x = new ArrayList<>();
+        for ( int i = 0 ; i < numRows ; i++ ) {
+            Binding b = BindingFactory.binding(vKey, NodeFactory.createURI("http://example/k"+i),
+                                               vVal, NodeFactory.createLiteralDT(Integer.toString(i), XSDDatatype.XSDinteger));
+            x.add(b);
+        }
+        return x;
+    }
+
+    private static ExecutionContext execCxt(int batchSize) {
+        Context cxt = new Context();
+        cxt.set(ARQ.executionBatchSize, batchSize);
+        return ExecutionContext.create(cxt);
+    }
+
+    private static QueryIterator input(List<Binding> data) {
+        return QueryIterPlainWrapper.create(data.iterator());
+    }
+
+    private static List<Binding> toList(QueryIterator qIter) {
+        try {
+            return Iter.toList(qIter);
+        } finally {
+            qIter.close();
+        }
+    }
+
+    private static ExprList exprs(String... exprStrs) {
+        ExprList exprs = new ExprList();
+        for ( String s : exprStrs )
+            exprs.add(ExprUtils.parse(s));
+        return exprs;
+    }
+
+    private static VarExprList extend(Var var, String exprStr) {
+        VarExprList vel = new VarExprList();
+        vel.add(var, ExprUtils.parse(exprStr));
+        return vel;
+    }
+
+    @Test public void batch_basic_01() {
+        BindingBatch batch = new BindingBatch(10);
+        data(5).forEach(batch::add);
+        assertEquals(5, batch.size());
+        boolean[] keep = {true, false, true, false, true};
+        batch.select(keep);
+        assertEquals(3, batch.size());
+        assertEquals(data(5).get(2), batch.binding(1));
+        batch.dropFirst(1);
+        assertEquals(data(5).get(2), batch.binding(0));
+        batch.truncate(1);
+        assertEquals(1, batch.size());
+        batch.project(List.of(vVal));
+        assertNull(batch.get(0, vKey));
+        assertNotNull(batch.get(0, vVal));
+    }
+
+    @Test public void batch_filter_01() {
+        List<Binding> data = data(1000);
+        ExprList exprs = exprs("?v >= 10", "?v < 700");
+        ExecutionContext execCxt = execCxt(64);
+        QueryIterator qIter = new QueryIterBatchFilter(input(data), exprs, execCxt);
+        QueryIterator expected = input(data);
+        for ( var expr : exprs )
+            expected = new QueryIterFilterExpr(expected, expr, execCxt);
+        assertEquals(toList(expected), toList(qIter));
+    }
+
+    @Test public void batch_filter_02() {
+        // No rows pass.
+        List<Binding> data = data(100);
+        QueryIterator qIter = new QueryIterBatchFilter(input(data), exprs("?v < 0"), execCxt(16));
+        assertFalse(qIter.hasNext());
+        qIter.close();
+    }
+
+    @Test public void batch_extend_01() {
+        List<Binding> data = data(300);
+        VarExprList vel = extend(vX, "?v * 2");
+        ExecutionContext execCxt = execCxt(32);
+        QueryIterator qIter = new QueryIterBatchExtend(input(data), vel, execCxt);
+        QueryIterator expected = new QueryIterAssign(input(data), vel, execCxt, true);
+        assertEquals(toList(expected), toList(qIter));
+    }
+
+    @Test public void batch_extend_02() {
+        // Expression errors leave the variable unbound.
+        List<Binding> data = data(10);
+        QueryIterator qIter = new QueryIterBatchExtend(input(data), extend(vX, "?unbound + 1"), execCxt(4));
+        List<Binding> results = toList(qIter);
+        assertEquals(10, results.size());
+        results.forEach(b -> assertFalse(b.contains(vX)));
+    }
+
+    @Test public void batch_extend_03() {
+        // Existing value: rows kept only if the same value.
+        List<Binding> data = data(10);
+        QueryIterator qIter = new QueryIterBatchExtend(input(data), extend(vVal, "3"), execCxt(4));
+        List<Binding> results = toList(qIter);
+        assertEquals(1, results.size());
+        assertEquals(data.get(3), results.get(0));
+    }
+
+    @Test public void batch_slice_01() {
+        List<Binding> data = data(1000);
+        ExecutionContext execCxt = execCxt(64);
+        QueryIterator qIter = new QueryIterBatchSlice(input(data), 100, 150, execCxt);
+        assertEquals(data.subList(100, 250), toList(qIter));
+    }
+
+    @Test public void batch_slice_02() {
+        List<Binding> data = data(50);
+        QueryIterator qIter = new QueryIterBatchSlice(input(data), 45, 10, execCxt(8));
+        assertEquals(data.subList(45, 50), toList(qIter));
+    }
+
+    @Test public void batch_pipeline_01() {
+        // Batches passed directly between batch iterators.
+        List<Binding> data = data(1000);
+        ExecutionContext execCxt = execCxt(100);
+        QueryIterator qIter = input(data);
+        qIter = new QueryIterBatchFilter(qIter, exprs("?v > 50"), execCxt);
+        qIter = new QueryIterBatchExtend(qIter, extend(vX, "?v + 1"), execCxt);
+        qIter = new QueryIterBatchProject(qIter, List.of(vX), execCxt);
+        qIter = new QueryIterBatchSlice(qIter, 10, 20, execCxt);
+        List<Binding> results = toList(qIter);
+        assertEquals(20, results.size());
+        for ( int i = 0 ; i < results.size() ; i++ ) {
+            Binding b = results.get(i);
+            assertEquals(1, b.size());
+            assertTrue(b.contains(vX));
+            assertEquals(Integer.toString(i+51+10+1), b.get(vX).getLiteralLexicalForm());
+        }
+    }
+
+    private static List<Binding> joinData(int numRows, int numKeys) {
+        List<Binding> x = new ArrayList<>();
+        for ( int i = 0 ; i < numRows ; i++ ) {
+            Binding b = BindingFactory.binding(vKey, NodeFactory.createURI("http://example/k"+(i % numKeys)),
+                                               vX, NodeFactory.createLiteralDT(Integer.toString(i), XSDDatatype.XSDinteger));
+            x.add(b);
+        }
+        return x;
+    }
+
+    private static void testJoin(List<Binding> left, List<Binding> right, ExecutionContext execCxt) {
+        QueryIterator qIter = QueryIterBatchHashJoin.create(null, input(left), input(right), execCxt);
+        QueryIterator expected = QueryIterHashJoin.create(input(left), input(right), execCxt);
+        List<Binding> results = toList(qIter);
+        List<Binding> expectedResults = toList(expected);
+        assertEquals(expectedResults.size(), results.size());
+        assertEquals(new HashSet<>(expectedResults), new HashSet<>(results));
+    }
+
+    @Test public void batch_join_01() {
+        testJoin(data(100), joinData(1000, 50), execCxt(64));
+    }
+
+    @Test public void batch_join_02() {
+        // No matches.
+        QueryIterator qIter = QueryIterBatchHashJoin.create(null, input(data(10)), input(List.of()), execCxt(8));
+        assertFalse(qIter.hasNext());
+        qIter.close();
+        qIter = QueryIterBatchHashJoin.create(null, input(data(10)), input(data(20).subList(10, 20)), execCxt(8));
+        assertFalse(qIter.hasNext());
+        qIter.close();
+    }
+
+    @Test public void batch_join_03() {
+        // Left side over the spill threshold : row hash join.
+        ExecutionContext execCxt = execCxt(16);
+        execCxt.getContext().set(ARQ.spillToDiskThreshold, 20L);
+        testJoin(data(100), joinData(300, 100), execCxt);
+    }
+
+    @Test public void batch_join_04() {
+        // Join results as batches into a batch filter.
+        ExecutionContext execCxt = execCxt(32);
+        QueryIterator qIter = QueryIterBatchHashJoin.create(null, input(data(100)), input(joinData(1000, 100)), execCxt);
+        qIter = new QueryIterBatchFilter(qIter, exprs("?x >= 500"), execCxt);
+        List<Binding> results = toList(qIter);
+        assertEquals(500, results.size());
+        results.forEach(b -> assertEquals(3, b.size()));
+    }
+
+    @Test public void batch_join_05() {
+        // Right side provides batches.
+        ExecutionContext execCxt = execCxt(32);
+        List<Binding> right = joinData(1000, 100);
+        QueryIterator qIter = QueryIterBatchHashJoin.create(null, input(data(100)),
+                                                            new QueryIterBatchFilter(input(right), exprs("?x < 300"), execCxt), execCxt);
+        QueryIterator expected = QueryIterHashJoin.create(input(data(100)),
+                                                          new QueryIterFilterExpr(input(right), ExprUtils.parse("?x < 300"), execCxt), execCxt);
+        List<Binding> results = toList(qIter);
+        assertEquals(300, results.size());
+        assertEquals(new HashSet<>(toList(expected)), new HashSet<>(results));
+    }
+
+    private static Graph graph() {
+        // Many subjects share an object; each object has several values.
+        StringBuilder sb = new StringBuilder("(graph");
+        for ( int i = 0 ; i < 200 ; i++ )
+            sb.append(" (:s"+i+" :p :o"+(i % 7)+")");
+        for ( int j = 0 ; j < 7 ; j++ ) {
+            for ( int k = 0 ; k <= j ; k++ )
+                sb.append(" (:o"+j+" :q "+k+")");
+        }
+        sb.append(")");
+        return SSE.parseGraph(sb.toString());
+    }
+
+    private static void testQuery(Graph graph, String queryString) {
+        RowSetRewindable expected = QueryExec.graph(graph).query(queryString).build().select().rewindable();
+        RowSetRewindable actual = QueryExec.graph(graph).query(queryString).set(ARQ.executionBatchSize, 50).build().select().rewindable();
+        assertTrue(expected.size() > 0);
+        assertEquals(expected.size(), actual.size());
+        expected.reset();
+        actual.reset();
+        assertTrue(ResultSetCompare.equalsByTerm(expected, actual));
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+
+    @Test public void batch_bgp_01() {
+        // Repeated substitutions of the second triple pattern.
+        testQuery(graph(), PREFIX+"SELECT * { ?s :p ?o . ?o :q ?v }");
+    }
+
+    @Test public void batch_bgp_02() {
+        testQuery(graph(), PREFIX+"SELECT * { ?s :p ?o . ?s :p ?o2 . ?o :q ?v FILTER(?v > 2) }");
+    }
+
+    @Test public void batch_bgp_03() {
+        // A repeated pattern with more matches than are shared between rows.
+        Graph graph = GraphFactory.createDefaultGraph();
+        Node q = NodeFactory.createURI("http://example/q");
+        for ( int i = 0 ; i < 10_050 ; i++ )
+            graph.add(NodeFactory.createURI("http://example/s"+i), q, NodeFactory.createURI("http://example/o"+(i % 10)));
+        testQuery(graph, PREFIX+"SELECT (count(*) AS ?c) { VALUES ?x { 1 2 3 } ?s :q ?o }");
+        testQuery(graph, PREFIX+"SELECT (count(*) AS ?c) { VALUES ?x { 1 2 3 } ?s ?p ?o }");
+    }
+
+    @Test public void batch_bgp_join_01() {
+        testQuery(graph(), PREFIX+"SELECT * { { ?s :p ?o } { ?o :q ?v } }");
+    }
+}
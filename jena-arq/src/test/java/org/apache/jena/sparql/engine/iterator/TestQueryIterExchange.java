@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.main.ParallelExecution;
+import org.apache.jena.sparql.engine.main.QC;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.Context;
+
+public class TestQueryIterExchange {
+
+    private static Var vX = Var.alloc("x");
+
+    private static ExecutionContext execCxt(int parallelism) {
+        Context cxt = new Context();
+        cxt.set(ARQ.parallelism, parallelism);
+        return ExecutionContext.create(cxt);
+    }
+
+    private static List<Binding> data(int start, int numRows) {
+        List<Binding> x = new ArrayList<>();
+        for ( int i = start ; i < start+numRows ; i++ )
+            x.add(BindingFactory.binding(vX, NodeFactory.createURI("http://example/x"+i)));
+        return x;
+    }
+
+    private static List<Function<ExecutionContext, QueryIterator>> producers(int numProducers, int rowsEach) {
+        List<Function<ExecutionContext, QueryIterator>> producers = new ArrayList<>();
+        for ( int i = 0 ; i < numProducers ; i++ ) {
+            List<Binding> data = data(i*rowsEach, rowsEach);
+            producers.add(cxt -> QueryIterPlainWrapper.create(data.iterator(), cxt));
+        }
+        return producers;
+    }
+
+    private static Set<Binding> toSet(QueryIterator qIter) {
+        try {
+            List<Binding> x = Iter.toList(qIter);
+            Set<Binding> s = new HashSet<>(x);
+            assertEquals("Duplicates", x.size(), s.size());
+            return s;
+        } finally {
+            qIter.close();
+        }
+    }
+
+    @Test public void exchange_01() {
+        QueryIterator qIter = new QueryIterExchange(producers(10, 1000), execCxt(4));
+        Set<Binding> results = toSet(qIter);
+        assertEquals(new HashSet<>(data(0, 10*1000)), results);
+    }
+
+    @Test public void exchange_02() {
+        // More workers than producers.
+        QueryIterator qIter = new QueryIterExchange(producers(2, 5), execCxt(8));
+        assertEquals(10, toSet(qIter).size());
+    }
+
+    @Test public void exchange_03() {
+        // No producers.
+        QueryIterator qIter = new QueryIterExchange(List.of(), execCxt(4));
+        assertEquals(0, toSet(qIter).size());
+    }
+
+    @Test public void exchange_error_01() {
+        List<Function<ExecutionContext, QueryIterator>> producers = producers(3, 100);
+        producers.add(cxt -> { throw new IllegalStateException("Producer failed"); });
+        QueryIterator qIter = new QueryIterExchange(producers, execCxt(4));
+        try {
+            assertThrows(IllegalStateException.class, ()->Iter.count(qIter));
+        } finally {
+            qIter.close();
+        }
+    }
+
+    @Test public void exchange_cancel_01() {
+        QueryIterator qIter = new QueryIterExchange(producers(10, 10000), execCxt(4));
+        try {
+            assertTrue(qIter.hasNext());
+            qIter.next();
+            qIter.cancel();
+            assertThrows(QueryCancelledException.class, ()->Iter.count(qIter));
+        } finally {
+            qIter.close();
+        }
+    }
+
+    @Test public void exchange_close_01() {
+        // Close before the end.
+        QueryIterator qIter = new QueryIterExchange(producers(10, 10000), execCxt(4));
+        qIter.next();
+        qIter.close();
+    }
+
+    @Test(timeout = 60_000)
+    public void exchange_blocked_01() {
+        // Workers of one exchange are blocked on a full queue, using every thread of
+        // the pool, while the other exchange is read first (as the two sides of a join).
+        int poolSize = ParallelExecution.pool().getParallelism();
+        QueryIterExchange qIter1 = new QueryIterExchange(producers(2*poolSize, 10000), execCxt(poolSize));
+        QueryIterExchange qIter2 = new QueryIterExchange(producers(2*poolSize, 1000), execCxt(poolSize));
+        try {
+            qIter1.start();
+            assertTrue(qIter1.hasNext());
+            assertEquals(2*poolSize*1000, toSet(qIter2).size());
+            assertEquals(2*poolSize*10000, toSet(qIter1).size());
+        } finally {
+            qIter1.close();
+            qIter2.close();
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void exchange_blocked_02() {
+        // Concurrent exchanges, each with parallelism equal to the pool size.
+        int poolSize = ParallelExecution.pool().getParallelism();
+        int N = 4;
+        List<QueryIterExchange> iterators = new ArrayList<>();
+        try {
+            for ( int i = 0 ; i < N ; i++ ) {
+                QueryIterExchange qIter = new QueryIterExchange(producers(poolSize, 5000), execCxt(poolSize));
+                iterators.add(qIter);
+                qIter.start();
+            }
+            // Read in the reverse order of starting.
+            for ( int i = N-1 ; i >= 0 ; i-- )
+                assertEquals(poolSize*5000, toSet(iterators.get(i)).size());
+        } finally {
+            iterators.forEach(QueryIterator::close);
+        }
+    }
+
+    @Test public void exchange_workerTxn_01() {
+        // Workers that can not see the data: producers run on the calling thread.
+        Context cxt = new Context();
+        cxt.set(ARQ.parallelism, 4);
+        AtomicInteger ended = new AtomicInteger(0);
+        cxt.set(ParallelExecution.symWorkerTxn, new ParallelExecution.WorkerTxn() {
+            @Override public boolean begin() { return false; }
+            @Override public void end() { ended.incrementAndGet(); }
+        });
+        ExecutionContext execCxt = ExecutionContext.create(cxt);
+        Thread caller = Thread.currentThread();
+        List<Function<ExecutionContext, QueryIterator>> producers = new ArrayList<>();
+        for ( Function<ExecutionContext, QueryIterator> p : producers(5, 10) ) {
+            producers.add(c -> {
+                assertEquals(caller, Thread.currentThread());
+                return p.apply(c);
+            });
+        }
+        QueryIterator qIter = new QueryIterExchange(producers, execCxt);
+        assertEquals(50, toSet(qIter).size());
+        assertEquals(0, ended.get());
+    }
+
+    @Test public void exchange_union_01() {
+        // UNION over a dataset that is not in a transaction.
+        DatasetGraph dsg = DatasetGraphFactory.create();
+        for ( int i = 0 ; i < 100 ; i++ )
+            dsg.getDefaultGraph().add(SSE.parseTriple("(:s"+i+" :p "+i+")"));
+        Op op = SSE.parseOp("(union (union (bgp (?s :p ?o)) (bgp (?s :p ?o))) (bgp (?s :p ?o)))");
+        Context cxt = new Context();
+        cxt.set(ARQ.parallelism, 3);
+        ExecutionContext execCxt = ExecutionContext.create(dsg, cxt);
+        QueryIterator qIter = QC.execute(op, QueryIterRoot.create(execCxt), execCxt);
+        try {
+            // Single processor machines do not run in parallel.
+            if ( ParallelExecution.isEnabled(execCxt) )
+                assertTrue(qIter instanceof QueryIterExchange);
+            assertEquals(300, Iter.count(qIter));
+        } finally {
+            qIter.close();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import org.apache.jena.atlas.data.DataBagExaminer;
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.core.VarExprList;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.expr.ExprAggregator;
+import org.apache.jena.sparql.expr.ExprVar;
+import org.apache.jena.sparql.expr.aggregate.AggregatorFactory;
+import org.apache.jena.sparql.util.Context;
+
+public class TestQueryIterGroup {
+
+    private static Var vKey = Var.alloc("k");
+    private static Var vVal = Var.alloc("v");
+    private static Var vCount = Var.alloc("count");
+    private static Var vSum = Var.alloc("sum");
+    private static Var vMax = Var.alloc("max");
+
+    private static List<Binding> data(int numKeys, int rowsPerKey) {
+        List<Binding> x = new ArrayList<>();
+        // Interleave keys so every group is spread across the input.
+        for ( int i = 0 ; i < rowsPerKey ; i++ ) {
+            for ( int k = 0 ; k < numKeys ; k++ ) {
+                Binding b = BindingFactory.binding(vKey, NodeFactory.createURI("http://example/k"+k),
+                                                   vVal, NodeFactory.createLiteralDT(Integer.toString(i), XSDDatatype.XSDinteger));
+                x.add(b);
+            }
+        }
+        return x;
+    }
+
+    private static VarExprList groupVars() {
+        VarExprList vars = new VarExprList();
+        vars.add(vKey);
+        return vars;
+    }
+
+    private static List<ExprAggregator> aggregators() {
+        List<ExprAggregator> aggs = new ArrayList<>();
+        aggs.add(new ExprAggregator(vCount, AggregatorFactory.createCount(false)));
+        aggs.add(new ExprAggregator(vSum, AggregatorFactory.createSum(false, new ExprVar(vVal))));
+        aggs.add(new ExprAggregator(vMax, AggregatorFactory.createMax(false, new ExprVar(vVal))));
+        return aggs;
+    }
+
+    private static Set<Binding> group(List<Binding> data, List<ExprAggregator> aggs, Long threshold) {
+        Context cxt = new Context();
+        if ( threshold != null )
+            cxt.set(ARQ.spillToDiskThreshold, threshold);
+        QueryIterator input = QueryIterPlainWrapper.create(data.iterator());
+        QueryIterGroup qIter = new QueryIterGroup(input, groupVars(), aggs, ExecutionContext.create(cxt));
+        try {
+            List<Binding> results = Iter.toList(qIter);
+            Set<Binding> x = new HashSet<>(results);
+            assertEquals("Duplicate groups", results.size(), x.size());
+            return x;
+        } finally {
+            qIter.close();
+        }
+    }
+
+    @Test public void group_mem_01() {
+        List<Binding> data = data(10, 3);
+        Set<Binding> results = group(data, aggregators(), null);
+        assertEquals(10, results.size());
+    }
+
+    @Test public void group_spill_01() {
+        List<Binding> data = data(10, 3);
+        Set<Binding> expected = group(data, aggregators(), null);
+        Set<Binding> actual = group(data, aggregators(), 2L);
+        assertEquals(expected, actual);
+    }
+
+    @Test public void group_spill_02() {
+        // No aggregators - just the keys.
+        List<Binding> data = data(20, 2);
+        Set<Binding> expected = group(data, null, null);
+        Set<Binding> actual = group(data, null, 3L);
+        assertEquals(20, actual.size());
+        assertEquals(expected, actual);
+    }
+
+    @Test public void group_spill_03() {
+        // Threshold larger than the number of groups.
+        List<Binding> data = data(5, 4);
+        Context cxt = new Context();
+        cxt.set(ARQ.spillToDiskThreshold, 100L);
+        QueryIterGroup qIter = new QueryIterGroup(QueryIterPlainWrapper.create(data.iterator()),
+                                                  groupVars(), aggregators(), ExecutionContext.create(cxt));
+        try {
+            assertTrue(qIter.hasNext());
+            assertNull(qIter.db);
+        } finally {
+            qIter.close();
+        }
+    }
+
+    @Test public void group_spill_04() {
+        List<Binding> data = data(50, 2);
+        Context cxt = new Context();
+        cxt.set(ARQ.spillToDiskThreshold, 5L);
+        QueryIterGroup qIter = new QueryIterGroup(QueryIterPlainWrapper.create(data.iterator()),
+                                                  groupVars(), aggregators(), ExecutionContext.create(cxt));
+        try {
+            assertTrue(qIter.hasNext());
+            assertTrue(DataBagExaminer.countTemporaryFiles(qIter.db) > 0);
+            long count = Iter.count(qIter);
+            assertEquals(50, count);
+        } finally {
+            qIter.close();
+        }
+    }
+}
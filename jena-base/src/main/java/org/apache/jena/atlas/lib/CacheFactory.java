@@ -57,6 +57,17 @@ public class CacheFactory {
         return new CacheCaffeine<>(maxSize, dropHandler, initialCapacityFactor) ;
     }
 
+    /**
+     * Create a cache which has space for up to a certain number of objects.
+     * If {@code weakValues} is true, an entry is also removed when the value is
+     * no longer reachable except through the cache. If {@code recordStats} is true,
+     * {@link Cache#stats} returns the hits and misses.
+     * The cache is thread-safe for single operations.
+     */
+    public static <Key, Value> Cache<Key, Value> createCache(int maxSize, boolean weakValues, boolean recordStats) {
+        return new CacheCaffeine<>(maxSize, weakValues, recordStats) ;
+    }
+
     /** Wrap an existing Caffeine cache */
     public static <Key, Value> Cache<Key, Value> wrap(com.github.benmanes.caffeine.cache.Cache<Key,Value> caffeine) {
         // Use a configured and built Caffeine cache with this API.
@@ -70,6 +70,22 @@ final public class CacheCaffeine<K,V> implements Cache<K, V>
         this.size = size;
     }
 
+    /**
+     * Cache with values that are weakly held, if {@code weakValues} is true, and
+     * that records the statistics for {@link #stats}, if {@code recordStats} is true.
+     */
+    public CacheCaffeine(int size, boolean weakValues, boolean recordStats) {
+        Caffeine<Object,Object> builder = Caffeine.newBuilder()
+            .maximumSize(size)
+            .executor(c->c.run());
+        if ( weakValues )
+            builder = builder.weakValues();
+        if ( recordStats || WITH_STATS )
+            builder = builder.recordStats();
+        cache = builder.build();
+        this.size = size;
+    }
+
     public CacheCaffeine(com.github.benmanes.caffeine.cache.Cache<K,V> caffeine) {
         cache = caffeine;
         this.size = -1;     // Unknown
@@ -133,6 +149,13 @@ final public class CacheCaffeine<K,V> implements Cache<K, V>
         return cache.estimatedSize() ;
     }
 
+    @Override
+    public CacheInfo stats() {
+        if ( ! cache.policy().isRecordingStats() )
+            return null;
+        return new CacheInfo(cache.stats());
+    }
+
     /**
      * Forces the cache to clean up stale entries
      */
@@ -19,8 +19,11 @@
 package org.apache.jena.atlas.lib;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import org.apache.jena.atlas.lib.cache.CacheInfo;
+
 import org.junit.Test;
 
 // Non-parameterized tests
@@ -70,4 +73,25 @@ public class TestCache2 {
         assertEquals("10", str1);
     }
 
+    // Cache + statistics
+    @Test
+    public void cacheStats_1() {
+        Cache<Integer, String> cache = CacheFactory.createCache(10, true, true);
+        cache.get(1, k->k.toString());
+        cache.get(1, k->k.toString());
+        cache.get(2, k->k.toString());
+        CacheInfo info = cache.stats();
+        assertNotNull(info);
+        assertEquals(3, info.requests);
+        assertEquals(1, info.hits);
+        assertEquals(2, info.misses);
+    }
+
+    @Test
+    public void cacheStats_2() {
+        Cache<Integer, String> cache = CacheFactory.createCache(10, false, false);
+        cache.get(1, k->k.toString());
+        assertNull(cache.stats());
+    }
+
 }
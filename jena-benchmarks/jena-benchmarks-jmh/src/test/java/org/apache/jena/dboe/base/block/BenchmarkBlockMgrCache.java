@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.block;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.atlas.lib.ByteBufferLib;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmark of random block reads by several threads through the block cache used
+ * by direct mode TDB2 databases ({@link BlockMgrCache}).
+ * Most reads are of a "hot" set of blocks; the rest are spread over all the blocks.
+ * The junit runner is {@link TestBenchmarkBlockMgrCache}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkBlockMgrCache {
+    // Number of reads in one benchmark operation.
+    private static final int READS = 1000;
+    private static final int BlockSize = 8*1024;
+
+    @Param({
+        // TDB2 default
+        "10000",
+        "1000"
+    })
+    public int param0_readCacheSize;
+
+    @Param({
+        "50000"
+    })
+    public int param1_numBlocks;
+
+    @Param({
+        // Percentage of reads of the hot blocks.
+        "90"
+    })
+    public int param2_hotPercent;
+
+    private File file;
+    private BlockMgr blockMgr;
+    private long[] ids;
+
+    @Benchmark
+    public long randomReads() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Hot set: the same size as the cache.
+        int hot = Math.min(param0_readCacheSize, ids.length);
+        long x = 0;
+        for ( int i = 0 ; i < READS ; i++ ) {
+            int idx = ( random.nextInt(100) < param2_hotPercent ) ? random.nextInt(hot) : random.nextInt(ids.length);
+            Block block = blockMgr.getRead(ids[idx]);
+            x += block.getByteBuffer().get(0);
+        }
+        return x;
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        file = File.createTempFile("blocks", ".dat");
+        file.deleteOnExit();
+        blockMgr = BlockMgrFactory.createStdFile(file.getPath(), BlockSize, param0_readCacheSize, 100);
+        ids = new long[param1_numBlocks];
+        blockMgr.beginUpdate();
+        for ( int i = 0 ; i < param1_numBlocks ; i++ ) {
+            Block block = blockMgr.allocate(BlockSize);
+            ByteBufferLib.fill(block.getByteBuffer(), (byte)i);
+            blockMgr.write(block);
+            ids[i] = block.getId();
+        }
+        blockMgr.sync();
+        blockMgr.endUpdate();
+        blockMgr.beginRead();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        blockMgr.endRead();
+        if ( blockMgr instanceof BlockMgrCache cache )
+            System.out.printf("\nhits=%,d misses=%,d evictions=%,d\n",
+                              cache.getCacheReadHits(), cache.getCacheMisses(), cache.getReadCacheEvictions());
+        blockMgr.close();
+        file.delete();
+    }
+
+    public static ChainedOptionsBuilder getDefaults(Class<?> c) {
+        return new OptionsBuilder()
+                .include(c.getName())
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .warmupTime(TimeValue.NONE)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .measurementTime(TimeValue.NONE)
+                .threads(Runtime.getRuntime().availableProcessors())
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .jvmArgs("-Xmx8G")
+                .resultFormat(ResultFormatType.JSON)
+                .result(c.getSimpleName() + "_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".json");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = getDefaults(BenchmarkBlockMgrCache.class).build();
+        new Runner(opt).run();
+    }
+}
@@ -46,6 +46,7 @@ public class TestGraphMemoryConsumption {
             "GraphMem2Fast (current)",
             "GraphMem2Legacy (current)",
             "GraphMem2Roaring (current)",
+            "GraphMem2Compact (current)",
             "GraphMem (Jena 4.8.0)",
     })
     public String param1_GraphImplementation;
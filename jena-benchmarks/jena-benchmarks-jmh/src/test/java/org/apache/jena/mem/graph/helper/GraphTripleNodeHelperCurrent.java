@@ -21,6 +21,7 @@ import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.graph.Triple;
+import org.apache.jena.mem2.GraphMem2Compact;
 import org.apache.jena.mem2.GraphMem2Fast;
 import org.apache.jena.mem2.GraphMem2Legacy;
 import org.apache.jena.mem2.GraphMem2Roaring;
@@ -43,6 +44,8 @@ public class GraphTripleNodeHelperCurrent implements GraphTripleNodeHelper<Graph
                 return new GraphMem2Legacy();
             case GraphMem2Roaring:
                 return new GraphMem2Roaring();
+            case GraphMem2Compact:
+                return new GraphMem2Compact();
             default:
                 throw new IllegalArgumentException("Unknown graph class: " + graphClass);
         }
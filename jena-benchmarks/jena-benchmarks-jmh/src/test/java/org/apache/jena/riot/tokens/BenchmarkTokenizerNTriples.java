@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.tokens;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.riot.lang.LangNTriples;
+import org.apache.jena.riot.system.ErrorHandlerFactory;
+import org.apache.jena.riot.system.ParserProfile;
+import org.apache.jena.riot.system.RiotLib;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Throughput of tokenizing and parsing N-Triples with {@link TokenizerText}
+ * and with {@link TokenizerBytes}, reading a file as a stream and, for
+ * {@link TokenizerBytes}, as a memory mapped file.
+ * The generated data has IRIs, blank nodes and literals, with the repetition of
+ * real data: a few properties, and subjects with several triples.
+ * The junit runner is {@link TestBenchmarkTokenizerNTriples}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkTokenizerNTriples {
+
+    @Param({
+        "TokenizerText",
+        "TokenizerBytes",
+        "TokenizerBytes-mapped"
+    })
+    public String param0_tokenizer;
+
+    @Param({
+        "1000000"
+    })
+    public int param1_numTriples;
+
+    private Path file;
+    private FileChannel channel;
+
+    @Benchmark
+    public long tokenize() throws IOException {
+        try ( InputStream in = IO.openFile(file.toString()) ) {
+            Tokenizer tokenizer = tokenizer(in);
+            long count = 0;
+            while ( tokenizer.hasNext() ) {
+                tokenizer.next();
+                count++;
+            }
+            return count;
+        }
+    }
+
+    @Benchmark
+    public void parse() throws IOException {
+        try ( InputStream in = IO.openFile(file.toString()) ) {
+            Tokenizer tokenizer = tokenizer(in);
+            ParserProfile profile = RiotLib.dftProfile();
+            new LangNTriples(tokenizer, profile, StreamRDFLib.sinkNull()).parse();
+        }
+    }
+
+    private Tokenizer tokenizer(InputStream in) throws IOException {
+        return switch (param0_tokenizer) {
+            case "TokenizerText" ->
+                TokenizerText.create().source(in).errorHandler(ErrorHandlerFactory.errorHandlerStd).build();
+            case "TokenizerBytes" ->
+                TokenizerBytes.create(in, ErrorHandlerFactory.errorHandlerStd);
+            case "TokenizerBytes-mapped" -> {
+                ByteBuffer bb = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                yield TokenizerBytes.create(bb, ErrorHandlerFactory.errorHandlerStd);
+            }
+            default -> throw new IllegalArgumentException("Unknown tokenizer: " + param0_tokenizer);
+        };
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        String dir = "target/tokenizer-bench";
+        FileOps.ensureDir(dir);
+        file = Path.of(dir, "data.nt");
+        Random random = new Random(1234);
+        int numSubjects = Math.max(1, param1_numTriples / 5);
+        try ( OutputStream out = IO.openOutputFile(file.toString()) ) {
+            StringBuilder sb = new StringBuilder();
+            for ( int i = 0 ; i < param1_numTriples ; i++ ) {
+                int s = random.nextInt(numSubjects);
+                int p = random.nextInt(50);
+                if ( s % 10 == 0 )
+                    sb.append("_:b").append(s);
+                else
+                    sb.append("<http://example.org/resource/s").append(s).append('>');
+                sb.append(" <http://example.org/ontology#p").append(p).append("> ");
+                switch (i % 4) {
+                    case 0 -> sb.append("<http://example.org/resource/o").append(random.nextInt(param1_numTriples)).append('>');
+                    case 1 -> sb.append("\"Literal ").append(i).append(" été\"@fr");
+                    case 2 -> sb.append('"').append(random.nextInt()).append("\"^^<http://www.w3.org/2001/XMLSchema#integer>");
+                    default -> sb.append("\"A longer string, with \\\"escapes\\\" ").append(i).append('"');
+                }
+                sb.append(" .\n");
+                if ( sb.length() > 64 * 1024 ) {
+                    out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+                    sb.setLength(0);
+                }
+            }
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        channel.close();
+        FileOps.delete(file.toString());
+    }
+
+    public static ChainedOptionsBuilder getDefaults(Class<?> c) {
+        return new OptionsBuilder()
+                .include(c.getName())
+                .mode(Mode.SingleShotTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupTime(TimeValue.NONE)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .measurementTime(TimeValue.NONE)
+                .threads(1)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .jvmArgs("-Xmx2G")
+                .resultFormat(ResultFormatType.JSON)
+                .result(c.getSimpleName() + "_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".json");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = getDefaults(BenchmarkTokenizerNTriples.class).build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.sparql.engine.iterator;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmark of row-at-a-time against batch execution ({@link ARQ#executionBatchSize})
+ * for a pattern with FILTER, BIND and projection, a basic graph pattern, and a join.
+ * The junit runner is {@link TestBenchmarkBatchExecution}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkBatchExecution {
+    /** Value for {@link ARQ#executionBatchSize}; 0 is row-at-a-time. */
+    @Param({
+        "0",
+        "64",
+        "256",
+        "1024"
+    })
+    public int param0_batchSize;
+
+    @Param({
+        "100000",
+        "1000000"
+    })
+    public int param1_numTriples;
+
+    @Param({
+        "filter",
+        "bgp",
+        "join"
+    })
+    public String param2_query;
+
+    private static final String queryFilter = String.join("\n"
+        , "PREFIX : <http://example/>"
+        , "SELECT ?s ?x {"
+        , "  ?s :p ?o"
+        , "  FILTER(?o > 10 && ?o < 900)"
+        , "  BIND(?o * 2 AS ?x)"
+        , "}");
+
+    private static final String queryBGP = String.join("\n"
+        , "PREFIX : <http://example/>"
+        , "SELECT ?s ?v {"
+        , "  ?s :r ?g . ?g :q ?v"
+        , "}");
+
+    private static final String queryJoin = String.join("\n"
+        , "PREFIX : <http://example/>"
+        , "SELECT ?s ?v {"
+        , "  { ?s :r ?g } { ?g :q ?v }"
+        , "}");
+
+    private static final int numGroups = 50;
+
+    private DatasetGraph dsg;
+    private String queryString;
+    private long expected;
+
+    @Benchmark
+    public long runQuery() {
+        long count = exec();
+        if ( count != expected )
+            throw new IllegalStateException("Expected "+expected+" rows, got "+count);
+        return count;
+    }
+
+    private long exec() {
+        return exec(param0_batchSize);
+    }
+
+    private long exec(int batchSize) {
+        try ( QueryExec qExec = QueryExec.dataset(dsg).query(queryString)
+                                         .set(ARQ.executionBatchSize, batchSize).build() ) {
+            RowSet rowSet = qExec.select();
+            long count = 0;
+            while ( rowSet.hasNext() ) {
+                rowSet.next();
+                count++;
+            }
+            return count;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        dsg = DatasetGraphFactory.create();
+        queryString = switch (param2_query) {
+            case "filter" -> queryFilter;
+            case "bgp" -> queryBGP;
+            case "join" -> queryJoin;
+            default -> throw new IllegalArgumentException("Query: "+param2_query);
+        };
+        Node p = NodeFactory.createURI("http://example/p");
+        Node r = NodeFactory.createURI("http://example/r");
+        Node q = NodeFactory.createURI("http://example/q");
+        for ( int i = 0 ; i < param1_numTriples ; i++ ) {
+            Node s = NodeFactory.createURI("http://example/s"+i);
+            Node o = NodeFactory.createLiteralDT(Integer.toString(i % 1000), XSDDatatype.XSDinteger);
+            dsg.getDefaultGraph().add(s, p, o);
+            // Subjects in a few groups - repeated lookups of the second pattern.
+            dsg.getDefaultGraph().add(s, r, group(i % numGroups));
+        }
+        for ( int j = 0 ; j < numGroups ; j++ ) {
+            dsg.getDefaultGraph().add(group(j), q, NodeFactory.createLiteralDT(Integer.toString(j), XSDDatatype.XSDinteger));
+            dsg.getDefaultGraph().add(group(j), q, NodeFactory.createLiteralDT(Integer.toString(-j), XSDDatatype.XSDinteger));
+        }
+        // Row-at-a-time result.
+        expected = exec(0);
+    }
+
+    private static Node group(int j) {
+        return NodeFactory.createURI("http://example/g"+j);
+    }
+
+    public static ChainedOptionsBuilder getDefaults(Class<?> c) {
+        return new OptionsBuilder()
+                .include(c.getName())
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupTime(TimeValue.NONE)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .measurementTime(TimeValue.NONE)
+                .threads(1)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .jvmArgs("-Xmx4G")
+                .resultFormat(ResultFormatType.JSON)
+                .result(c.getSimpleName() + "_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".json");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = getDefaults(BenchmarkBatchExecution.class).build();
+        new Runner(opt).run();
+    }
+}
@@ -21,6 +21,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.jena.query.ARQ;
 import org.apache.jena.sparql.engine.benchmark.QueryTask;
 import org.apache.jena.sparql.engine.benchmark.QueryTaskReader;
 import org.apache.jena.sparql.engine.benchmark.QueryTaskTestUtils;
@@ -31,6 +32,7 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
@@ -56,10 +58,22 @@ public class BenchmarkHashJoin {
         "join/join_2columns_skewed_a_10.ttl",
         "join/join_matrix_skewed_a_10.ttl",
         "join/join_1column_simple_a_10k.ttl",
-        "join/join_1column_simple_a_100k.ttl"
+        "join/join_1column_simple_a_100k.ttl",
+        "join/join_1column_simple_a_1m.ttl"
     })
     public String param1_queryFile;
 
+    /**
+     * Value for {@link ARQ#spillToDiskThreshold} ("current" only).
+     * A value of -1 means no spilling. Build sides larger than the threshold
+     * are partitioned on disk.
+     */
+    @Param({
+        "-1",
+        "10000"
+    })
+    public long param2_spillToDiskThreshold;
+
     private QueryTask task;
 
     @Benchmark
@@ -70,6 +84,15 @@ public class BenchmarkHashJoin {
     @Setup(Level.Trial)
     public void setupTrial() throws Exception {
         task = QueryTaskReader.loadOne(param1_queryFile, param0_jenaVersion);
+        if ( param2_spillToDiskThreshold >= 0 )
+            ARQ.getContext().set(ARQ.spillToDiskThreshold, param2_spillToDiskThreshold);
+        else
+            ARQ.getContext().unset(ARQ.spillToDiskThreshold);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        ARQ.getContext().unset(ARQ.spillToDiskThreshold);
     }
 
     public static ChainedOptionsBuilder getDefaults(Class<?> c) {
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmark of TDB2 FILTER and ORDER BY on inline values evaluated on NodeIds
+ * ({@link SystemTDB#symInlineValues}) against evaluating them on Nodes.
+ * The junit runner is {@link TestBenchmarkInlineValues}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkInlineValues {
+    @Param({
+        "false",
+        "true"
+    })
+    public boolean param0_inlineValues;
+
+    @Param({
+        // Range of integers: POS range scan.
+        "SELECT * { ?s :p ?v FILTER(?v >= 100 && ?v < 200) }",
+        // Range of dateTimes, then join.
+        "SELECT * { ?s :date ?d . ?s :type :C1 FILTER(?d < '2000-03-01T00:00:00Z'^^xsd:dateTime) }",
+        // Sort on integers.
+        "SELECT * { ?s :p ?v } ORDER BY DESC(?v) LIMIT 100"
+    })
+    public String param1_query;
+
+    @Param({
+        "100000",
+        "1000000"
+    })
+    public int param2_numSubjects;
+
+    private static final String PREFIXES = "PREFIX : <http://example/> PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> ";
+
+    private DatasetGraph dsg;
+    private long expected;
+
+    @Benchmark
+    public long runQuery() {
+        long count = exec(param0_inlineValues);
+        if ( count != expected )
+            throw new IllegalStateException("Expected "+expected+" rows, got "+count);
+        return count;
+    }
+
+    private long exec(boolean inlineValues) {
+        return Txn.calculateRead(dsg, ()->{
+            try ( QueryExec qExec = QueryExec.dataset(dsg).query(PREFIXES+param1_query)
+                                             .set(SystemTDB.symInlineValues, inlineValues).build() ) {
+                RowSet rowSet = qExec.select();
+                long count = 0;
+                while ( rowSet.hasNext() ) {
+                    rowSet.next();
+                    count++;
+                }
+                return count;
+            }
+        });
+    }
+
+    private static Node uri(String localName) {
+        return NodeFactory.createURI("http://example/"+localName);
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        dsg = DatabaseMgr.createDatasetGraph();
+        Node type = uri("type");
+        Node p = uri("p");
+        Node date = uri("date");
+        Txn.executeWrite(dsg, ()->{
+            Graph graph = dsg.getDefaultGraph();
+            for ( int i = 0 ; i < param2_numSubjects ; i++ ) {
+                Node s = uri("s"+i);
+                graph.add(s, type, uri("C"+(i % 10)));
+                graph.add(s, p, NodeFactory.createLiteralDT(Integer.toString(i % 10000), XSDDatatype.XSDinteger));
+                String dt = String.format("%04d-%02d-%02dT%02d:00:00Z", 1990 + i % 20, 1 + i % 12, 1 + i % 28, i % 24);
+                graph.add(s, date, NodeFactory.createLiteralDT(dt, XSDDatatype.XSDdateTime));
+            }
+        });
+        expected = exec(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        dsg.close();
+    }
+
+    public static ChainedOptionsBuilder getDefaults(Class<?> c) {
+        return new OptionsBuilder()
+                .include(c.getName())
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupTime(TimeValue.NONE)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .measurementTime(TimeValue.NONE)
+                .threads(1)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .jvmArgs("-Xmx8G")
+                .resultFormat(ResultFormatType.JSON)
+                .result(c.getSimpleName() + "_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".json");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = getDefaults(BenchmarkInlineValues.class).build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Benchmark of TDB2 worst-case optimal join ({@link SystemTDB#symLeapfrogJoin}) of
+ * cyclic patterns against joining one pattern at a time.
+ * The junit runner is {@link TestBenchmarkLeapfrogJoin}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkLeapfrogJoin {
+    @Param({
+        "false",
+        "true"
+    })
+    public boolean param0_leapfrogJoin;
+
+    @Param({
+        // Triangle.
+        "SELECT * { ?a :knows ?b . ?b :knows ?c . ?c :knows ?a }",
+        // Triangle, two predicates.
+        "SELECT * { ?a :knows ?b . ?b :knows ?c . ?a :pays ?c }",
+        // 4-cycle.
+        "SELECT * { ?a :knows ?b . ?b :knows ?c . ?c :knows ?d . ?d :knows ?a }"
+    })
+    public String param1_query;
+
+    @Param({
+        "10000",
+        "100000"
+    })
+    public int param2_numNodes;
+
+    private DatasetGraph dsg;
+    private long expected;
+
+    @Benchmark
+    public long runQuery() {
+        long count = exec(param0_leapfrogJoin);
+        if ( count != expected )
+            throw new IllegalStateException("Expected "+expected+" rows, got "+count);
+        return count;
+    }
+
+    private long exec(boolean leapfrogJoin) {
+        return Txn.calculateRead(dsg, ()->{
+            try ( QueryExec qExec = QueryExec.dataset(dsg).query("PREFIX : <http://example/> "+param1_query)
+                                             .set(SystemTDB.symLeapfrogJoin, leapfrogJoin).build() ) {
+                RowSet rowSet = qExec.select();
+                long count = 0;
+                while ( rowSet.hasNext() ) {
+                    rowSet.next();
+                    count++;
+                }
+                return count;
+            }
+        });
+    }
+
+    private static Node uri(String localName) {
+        return NodeFactory.createURI("http://example/"+localName);
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        dsg = DatabaseMgr.createDatasetGraph();
+        Node knows = uri("knows");
+        Node pays = uri("pays");
+        // Skewed degree: a few nodes have many incoming edges.
+        Random random = new Random(1234);
+        Txn.executeWrite(dsg, ()->{
+            Graph graph = dsg.getDefaultGraph();
+            for ( int i = 0 ; i < param2_numNodes ; i++ ) {
+                Node s = uri("n"+i);
+                for ( int j = 0 ; j < 8 ; j++ ) {
+                    double r = random.nextDouble();
+                    int target = (int)(param2_numNodes * r * r * r);
+                    graph.add(s, knows, uri("n"+target));
+                    if ( j % 4 == 0 )
+                        graph.add(s, pays, uri("n"+target));
+                }
+            }
+        });
+        expected = exec(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        dsg.close();
+    }
+
+    public static ChainedOptionsBuilder getDefaults(Class<?> c) {
+        return new OptionsBuilder()
+                .include(c.getName())
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupTime(TimeValue.NONE)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .measurementTime(TimeValue.NONE)
+                .threads(1)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .jvmArgs("-Xmx8G")
+                .resultFormat(ResultFormatType.JSON)
+                .result(c.getSimpleName() + "_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".json");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = getDefaults(BenchmarkLeapfrogJoin.class).build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb2.xloader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Throughput of the xloader index build with the in-process sort
+ * ({@link ProcBuildIndexX#execParallel}), on generated triples, building the
+ * triple indexes one at a time or all together.
+ * The junit runner is {@link TestBenchmarkBuildIndexesX}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkBuildIndexesX {
+    private static final List<String> indexes = List.of("SPO", "POS", "OSP");
+
+    @Param({
+        "false",
+        "true"
+    })
+    public boolean param0_concurrent;
+
+    @Param({
+        "1000000",
+        "5000000"
+    })
+    public int param1_numTriples;
+
+    @Param({
+        // Bytes of sort memory.
+        "256000000"
+    })
+    public long param2_sortMemory;
+
+    private String TMPDIR;
+    private String DIR;
+    private XLoaderFiles loaderFiles;
+
+    @Benchmark
+    public void buildIndexes() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        if ( param0_concurrent ) {
+            ProcBuildIndexX.execParallel(DIR, indexes, threads, param2_sortMemory, loaderFiles);
+        } else {
+            for ( String indexName : indexes )
+                ProcBuildIndexX.execParallel(DIR, List.of(indexName), threads, param2_sortMemory, loaderFiles);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        TMPDIR = "target/xloader-bench/tmp";
+        DIR = "target/xloader-bench/DB";
+        FileOps.ensureDir(TMPDIR);
+        FileOps.clearAll(TMPDIR);
+        loaderFiles = new XLoaderFiles(TMPDIR);
+        // Triples, as written by the ingest step: hex NodeIds, in SPO order.
+        // Subjects have a few properties each, objects are drawn from a larger range.
+        Random random = new Random(1234);
+        int numSubjects = Math.max(1, param1_numTriples / 5);
+        try ( OutputStream out = IO.openOutputFile(loaderFiles.triplesFile) ) {
+            StringBuilder sb = new StringBuilder();
+            for ( int i = 0 ; i < param1_numTriples ; i++ ) {
+                long s = random.nextInt(numSubjects);
+                long p = random.nextInt(50);
+                long o = random.nextInt(param1_numTriples);
+                sb.append(String.format("%016X %016X %016X\n", s, p, o));
+                if ( sb.length() > 64 * 1024 ) {
+                    out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
+                    sb.setLength(0);
+                }
+            }
+            out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        // New, empty database for each build.
+        TDBInternal.reset();
+        FileOps.ensureDir(DIR);
+        FileOps.clearAll(DIR);
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(DIR);
+        TDBInternal.expel(dsg);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        TDBInternal.reset();
+        FileOps.clearAll(DIR);
+        FileOps.clearAll(TMPDIR);
+    }
+
+    public static ChainedOptionsBuilder getDefaults(Class<?> c) {
+        return new OptionsBuilder()
+                .include(c.getName())
+                .mode(Mode.SingleShotTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupTime(TimeValue.NONE)
+                .warmupIterations(1)
+                .measurementIterations(3)
+                .measurementTime(TimeValue.NONE)
+                .threads(1)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .jvmArgs("-Xmx4G")
+                .resultFormat(ResultFormatType.JSON)
+                .result(c.getSimpleName() + "_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".json");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = getDefaults(BenchmarkBuildIndexesX.class).build();
+        new Runner(opt).run();
+    }
+}
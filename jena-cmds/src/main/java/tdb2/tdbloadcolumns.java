@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tdb2;
+
+import org.apache.jena.cmd.ArgDecl;
+import org.apache.jena.cmd.CmdException;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.tdb2.DatabaseMgr;
+import tdb2.cmdline.CmdTDB;
+
+public class tdbloadcolumns extends CmdTDB {
+    private static final ArgDecl argDir = new ArgDecl(ArgDecl.HasValue, "dir");
+
+    private String directory = null;
+
+    static public void main(String...argv) {
+        CmdTDB.init();
+        new tdbloadcolumns(argv).mainRun();
+    }
+
+    protected tdbloadcolumns(String[] argv) {
+        super(argv);
+        super.add(argDir, "--dir", "Directory of a columnar export");
+    }
+
+    @Override
+    protected void processModulesAndArgs() {
+        super.processModulesAndArgs();
+        if ( ! contains(argDir) )
+            throw new CmdException("No export directory: --dir is required");
+        directory = getValue(argDir);
+    }
+
+    @Override
+    protected String getSummary() {
+        return getCommandName() + " --loc=DIR --dir=EXPORT : Build a TDB2 dataset from a columnar export";
+    }
+
+    @Override
+    protected void exec() {
+        // Not getDatasetGraph(): the database is created with the settings of the export.
+        Location location = getLocation();
+        if ( location == null )
+            throw new CmdException("No database location: --loc is required");
+        long start = System.currentTimeMillis();
+        DatabaseMgr.loadColumnar(directory, location);
+        long finish = System.currentTimeMillis();
+        System.out.printf("Loaded from %s in %.3fs\n", directory, (finish - start) / 1000.0);
+    }
+}
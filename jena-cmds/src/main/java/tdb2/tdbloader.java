@@ -51,7 +51,7 @@ public class tdbloader extends CmdTDBGraph {
     private static final ArgDecl argSyntax = new ArgDecl(ArgDecl.HasValue, "syntax");
 
     private enum LoaderEnum {
-        Basic, Parallel, Sequential, Light, Phased
+        Basic, Parallel, Sequential, Light, Phased, Merge
     }
 
     private boolean showProgress = true;
@@ -67,7 +67,7 @@ public class tdbloader extends CmdTDBGraph {
     protected tdbloader(String[] argv) {
         super(argv);
 // super.add(argStats, "Generate statistics");
-        super.add(argLoader, "--loader=", "Loader to use: 'basic', 'phased' (default), 'sequential', 'parallel' or 'light'");
+        super.add(argLoader, "--loader=", "Loader to use: 'basic', 'phased' (default), 'sequential', 'parallel', 'light' or 'merge'");
         super.add(argSyntax, "--syntax=LANG", "Syntax of data from stdin");
     }
 
@@ -87,6 +87,8 @@ public class tdbloader extends CmdTDBGraph {
                 loader = LoaderEnum.Parallel;
             else if ( loadername.matches("light") )
                 loader = LoaderEnum.Light;
+            else if ( loadername.matches("merge") )
+                loader = LoaderEnum.Merge;
             else
                 throw new CmdException("Unrecognized value for --loader: " + loadername);
         }
@@ -252,6 +254,8 @@ public class tdbloader extends CmdTDBGraph {
                 return LoaderFactory.createLoader(LoaderPlans.loaderPlanLight, dsg, output);
             case Basic :
                 return LoaderFactory.basicLoader(dsg, gn, output);
+            case Merge :
+                return LoaderFactory.mergeLoader(dsg, gn, output);
             default :
                 throw new InternalErrorException("Unrecognized loader: " + useLoader);
         }
@@ -47,6 +47,9 @@ abstract class AbstractCmdxLoad extends CmdGeneral {
     protected static ArgDecl argTmpdir       = new ArgDecl(true, "tmpdir", "tmp");
     protected static ArgDecl argIndex        = new ArgDecl(true, "index");
     protected static ArgDecl argSortThreads  = new ArgDecl(true, "threads",  "thread", "sortThreads", "sortthreads");
+    // In-process sort for the indexes.
+    protected static ArgDecl argJavaSort     = new ArgDecl(false, "javasort", "javaSort");
+    protected static ArgDecl argSortMemory   = new ArgDecl(true, "sortMemory", "sortmemory");
 
 //    // If this is put back, note there are two different sorts - one for the node table and several for the indexes.
 //    protected static ArgDecl argSortNodeTableArgs   = new ArgDecl(true, "sortNodeTableArgs");
@@ -57,6 +60,8 @@ abstract class AbstractCmdxLoad extends CmdGeneral {
     protected String indexName = null;
 
     protected int sortThreads = -1;
+    protected boolean javaSort = false;
+    protected long sortMemory = -1;
 
     // If we add support for arguments to sort(1)
     protected String sortNodeTableArgs = null;
@@ -115,11 +120,34 @@ abstract class AbstractCmdxLoad extends CmdGeneral {
             }
         }
 
+        javaSort = super.contains(argJavaSort);
+        if ( super.contains(argSortMemory) )
+            sortMemory = parseSize(super.getValue(argSortMemory));
+
         subCheckArgs();
 
         loaderFiles = new XLoaderFiles(tmpdir);
     }
 
+    // Number of bytes, with an optional suffix of K, M or G.
+    private static long parseSize(String str) {
+        String s = str.trim().toUpperCase();
+        long multiplier = 1;
+        if ( s.endsWith("K") )
+            multiplier = 1024L;
+        else if ( s.endsWith("M") )
+            multiplier = 1024L*1024;
+        else if ( s.endsWith("G") )
+            multiplier = 1024L*1024*1024;
+        if ( multiplier != 1 )
+            s = s.substring(0, s.length()-1);
+        try {
+            return Long.parseLong(s) * multiplier;
+        } catch (NumberFormatException ex) {
+            throw new CmdException("--sortMemory :: Failed to parse '"+str+"' as a size");
+        }
+    }
+
     private void checkDirectory(String dirname) {
         try {
             Path path = Paths.get(dirname);
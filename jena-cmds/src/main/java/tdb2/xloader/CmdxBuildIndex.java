@@ -18,6 +18,9 @@
 
 package tdb2.xloader;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.jena.atlas.lib.FileOps;
 import org.apache.jena.cmd.CmdException;
 import org.apache.jena.tdb2.xloader.ProcBuildIndexX;
@@ -38,6 +41,8 @@ public class CmdxBuildIndex extends AbstractCmdxLoad {
         super.add(argTmpdir,        "--tmpdir=", "Temporary directory (defaults to --loc)");
         super.add(argIndex,         "--index=", "Index name");
         super.add(argSortThreads,   "--threads=", "Number of threads; passed as an argument to sort(1)");
+        super.add(argJavaSort,      "--javasort", "Sort in-process, not with sort(1); --index may be a comma separated list of indexes to build together");
+        super.add(argSortMemory,    "--sortMemory=", "Memory for the in-process sort (e.g. 4G)");
         //super.add(argSortIndexArgs, "--sortIndexArgs=", "Specialised argument for the sort for the indexes");
     }
 
@@ -77,6 +82,10 @@ public class CmdxBuildIndex extends AbstractCmdxLoad {
 
         if ( tmpdir == null )
             tmpdir = location;
-        ProcBuildIndexX.exec(location, indexName, sortThreads, sortIndexArgs, loaderFiles);
+        if ( javaSort ) {
+            List<String> indexNames = Arrays.asList(indexName.split(","));
+            ProcBuildIndexX.execParallel(location, indexNames, sortThreads, sortMemory, loaderFiles);
+        } else
+            ProcBuildIndexX.exec(location, indexName, sortThreads, sortIndexArgs, loaderFiles);
     }
 }
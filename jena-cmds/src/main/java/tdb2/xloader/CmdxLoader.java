@@ -20,6 +20,8 @@ package tdb2.xloader;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.jena.atlas.io.IO;
 import org.apache.jena.atlas.io.IOX;
@@ -33,13 +35,15 @@ import org.apache.jena.tdb2.xloader.BulkLoaderX;
 /**
  * A version of xloader/TDB2 that runs in a single JVM.
  * <p>
- * This still requires an external sort programme.
+ * This still requires an external sort programme, unless run with {@code --javasort}
+ * when the indexes are built together and sorted in-process.
  * Normally, xloader is run by script which uses one JVM per operation.
  * Exiting the JVM and starting a new one clears the process state which is beneficial.
  * <p>
  * This program does not need much RAM. Do not set the heap size large.
  * 4Gbytes is enough, usually 2Gbytes is sufficient.
  * More heap is not faster (in fact, it is often slower).
+ * With {@code --javasort}, the heap must also hold the sort memory ({@code --sortMemory}).
  */
 public class CmdxLoader extends AbstractCmdxLoad {
 
@@ -56,6 +60,8 @@ public class CmdxLoader extends AbstractCmdxLoad {
         super.add(argLocation,      "--loc=", "Database location");
         super.add(argTmpdir,        "--tmpdir=", "Temporary directory (defaults to --loc)");
         super.add(argSortThreads,   "--threads=", "Number of threads; passed as an argument to sort(1)");
+        super.add(argJavaSort,      "--javasort", "Build all the indexes together, sorting in-process, not with sort(1)");
+        super.add(argSortMemory,    "--sortMemory=", "Memory for the in-process sort (e.g. 4G)");
     }
 
     @Override
@@ -104,6 +110,19 @@ public class CmdxLoader extends AbstractCmdxLoad {
 
         System.out.println("STEP 3 - build indexes");
 
+        if ( javaSort ) {
+            List<String> indexes = new ArrayList<>();
+            if ( !isEmptyFile(loaderFiles.triplesFile) )
+                indexes.add("SPO,POS,OSP");
+            if ( !isEmptyFile(loaderFiles.quadsFile) )
+                indexes.add("GSPO,GPOS,GOSP,SPOG,POSG,OSPG");
+            if ( !indexes.isEmpty() )
+                step(() -> CmdxBuildIndex.main("--loc=" + DIR, "--threads=" + super.sortThreads, "--sortMemory=" + super.sortMemory,
+                                               "--javasort", "--index=" + String.join(",", indexes)));
+            expel();
+            return;
+        }
+
         if ( !isEmptyFile(loaderFiles.triplesFile) ) {
             step(() -> CmdxBuildIndex.main("--loc=" + DIR, "--threads=" + super.sortThreads, "--index=SPO"));
             step(() -> CmdxBuildIndex.main("--loc=" + DIR, "--threads=" + super.sortThreads, "--index=POS"));
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem2;
+
+import org.apache.jena.mem2.store.TripleStore;
+import org.apache.jena.mem2.store.compact.CompactTripleStore;
+
+/**
+ * A graph that stores triples in memory. This class is not thread-safe.
+ * <p>
+ * Purpose: GraphMem2Compact is for large graphs that are loaded once and then mostly read, when memory is
+ * the limit.
+ * <p>
+ * Memory consumption is about 60-80% lower than {@link GraphMem2Fast} and 80-90% lower than
+ * {@link GraphMem2Roaring}. Once changes are merged, only the nodes of the triples are kept, not the triples.
+ * Triples are created when they are found, so Graph#find and Graph#stream are about 2-4 times slower than
+ * {@link GraphMem2Fast}.
+ * Graph#add and Graph#delete are collected and merged in batches; finding by a pattern right after a change
+ * may have to merge first. So mixing many changes with reads is slow.
+ * No heritage of GraphMem.
+ * <p>
+ * Internal structure:
+ * <ul>
+ * <li>A dictionary from nodes to int ids.
+ * <li>One int array with the ids of subject, predicate, and object of each triple, sorted in that order.
+ * <li>Two int arrays of positions in the first one, sorted by predicate, object, subject
+ * and by object, subject, predicate.
+ * <li>Patterns are found with binary searches in the array that fits them.
+ * </ul>
+ */
+public class GraphMem2Compact extends GraphMem2 {
+    public GraphMem2Compact() {
+        super(new CompactTripleStore());
+    }
+
+    private GraphMem2Compact(final TripleStore tripleStore) {
+        super(tripleStore);
+    }
+
+    @Override
+    public GraphMem2Compact copy() {
+        return new GraphMem2Compact(this.tripleStore.copy());
+    }
+}
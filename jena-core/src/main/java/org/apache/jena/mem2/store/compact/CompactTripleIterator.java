@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem2.store.compact;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.mem2.collection.FastHashSet;
+import org.apache.jena.util.iterator.NiceIterator;
+
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * A triple iterator over a range of records of node ids, as kept by {@link CompactTripleStore}.
+ * Each record is 3 ints, the ids of the subject, predicate and object. The nodes are looked up by their id,
+ * which is their index in a {@link FastHashSet}.
+ * The triples are created as the iterator goes.
+ * <p>
+ * The range is either of the records themselves, or, if an index is given, of the index,
+ * whose entries are record numbers.
+ */
+public class CompactTripleIterator extends NiceIterator<Triple> {
+    private final int[] records;
+    private final int[] index;
+    private final int to;
+    private final FastHashSet<Node> nodes;
+    private final Runnable checkForConcurrentModification;
+    private int pos;
+
+    /**
+     * @param records the records, 3 node ids each
+     * @param index   record numbers, or null to use the records in their own order
+     * @param from    the first position, inclusive
+     * @param to      the last position, exclusive
+     * @param nodes   the nodes, by id
+     * @param checkForConcurrentModification run before each triple is returned
+     */
+    public CompactTripleIterator(final int[] records, final int[] index, final int from, final int to,
+                                 final FastHashSet<Node> nodes, final Runnable checkForConcurrentModification) {
+        this.records = records;
+        this.index = index;
+        this.pos = from;
+        this.to = to;
+        this.nodes = nodes;
+        this.checkForConcurrentModification = checkForConcurrentModification;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.pos < this.to;
+    }
+
+    @Override
+    public Triple next() {
+        this.checkForConcurrentModification.run();
+        if (this.pos < this.to) {
+            return this.tripleAt(this.pos++);
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Triple> action) {
+        while (this.pos < this.to) {
+            action.accept(this.tripleAt(this.pos++));
+        }
+        this.checkForConcurrentModification.run();
+    }
+
+    private Triple tripleAt(final int position) {
+        final var record = this.index == null ? position : this.index[position];
+        return CompactTripleStore.createTriple(this.records, record, this.nodes);
+    }
+}
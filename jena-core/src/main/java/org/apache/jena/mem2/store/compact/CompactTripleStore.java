@@ -0,0 +1,670 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem2.store.compact;
+
+import org.apache.jena.atlas.lib.Copyable;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.mem2.collection.FastHashSet;
+import org.apache.jena.mem2.pattern.MatchPattern;
+import org.apache.jena.mem2.pattern.PatternClassifier;
+import org.apache.jena.mem2.store.TripleStore;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NiceIterator;
+import org.apache.jena.util.iterator.SingletonIterator;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.function.IntBinaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A triple store that keeps triples as node ids in sorted int arrays, for graphs that are loaded once and then
+ * mostly read.
+ * <p>
+ * Internal structure:
+ * - A dictionary from nodes to int ids. The id of a node is its index in an indexed hash set.
+ * - An int array with the subject, predicate and object ids of each triple, sorted by subject, predicate, object.
+ * - Two int arrays with the positions of the triples in the first array, sorted by predicate, object, subject and
+ * by object, subject, predicate.
+ * - A hash set of added triples and a hash set of removed triples that are not yet merged into the arrays.
+ * <p>
+ * A triple costs 20 bytes in the arrays, and each distinct node an entry in the dictionary.
+ * Triples are only created when they are returned by #find or #stream.
+ * <p>
+ * Triple patterns are answered with binary searches on the array that has the concrete nodes of the pattern
+ * at the start of its order.
+ * Changes are merged into the arrays when there are many of them, or before a pattern is looked up when there
+ * are more than a few. So reads that are mixed with writes are slower than with the other triple stores.
+ * <p>
+ * The arrays are never changed after they have been created, a merge creates new ones. So a copy of the store
+ * shares them with the original.
+ * Nodes that are no longer used by any triple are removed from the dictionary when the changes are merged, and
+ * their ids are used again. So iterators and streams throw a {@link ConcurrentModificationException} when the
+ * store has been changed since they were created.
+ */
+public class CompactTripleStore implements TripleStore {
+
+    private static final String UNKNOWN_PATTERN_CLASSIFIER = "Unknown pattern classifier: %s";
+
+    /**
+     * Reads merge the changes into the arrays when there are more changes than this.
+     */
+    static final int MAX_CHANGES_ON_READ = 1024;
+
+    /**
+     * Writes merge the changes into the arrays when there are more changes than this,
+     * and more than a quarter of the triples in the arrays.
+     */
+    static final int MIN_CHANGES_ON_WRITE = 1 << 16;
+
+    // The orders of the arrays, as the positions of the nodes in an SPO record.
+    private static final int[] SPO = {0, 1, 2};
+    private static final int[] POS = {1, 2, 0};
+    private static final int[] OSP = {2, 0, 1};
+
+    private static final int[] NO_INTS = new int[0];
+
+    final NodeDictionary nodes;
+    // The number of places in records that use each node id.
+    private int[] nodeUsage;
+    // Subject, predicate and object ids, 3 ints for each triple, sorted.
+    private int[] records;
+    // Record numbers sorted by predicate, object, subject.
+    private int[] pos;
+    // Record numbers sorted by object, subject, predicate.
+    private int[] osp;
+    private int recordCount;
+    // Triples that are not in the records.
+    private TripleSet added;
+    // Triples that are in the records.
+    private TripleSet deleted;
+    private int modifications = 0;
+
+    public CompactTripleStore() {
+        this.nodes = new NodeDictionary();
+        this.nodeUsage = NO_INTS;
+        this.records = NO_INTS;
+        this.pos = NO_INTS;
+        this.osp = NO_INTS;
+        this.recordCount = 0;
+        this.added = new TripleSet();
+        this.deleted = new TripleSet();
+    }
+
+    private CompactTripleStore(final CompactTripleStore storeToCopy) {
+        this.nodes = storeToCopy.nodes.copy();
+        this.nodeUsage = storeToCopy.nodeUsage.clone();
+        this.records = storeToCopy.records;
+        this.pos = storeToCopy.pos;
+        this.osp = storeToCopy.osp;
+        this.recordCount = storeToCopy.recordCount;
+        this.added = storeToCopy.added.copy();
+        this.deleted = storeToCopy.deleted.copy();
+    }
+
+    /**
+     * Create the triple with the ids in a record.
+     */
+    static Triple createTriple(final int[] records, final int record, final FastHashSet<Node> nodes) {
+        final var i = record * 3;
+        return Triple.create(nodes.getKeyAt(records[i]), nodes.getKeyAt(records[i + 1]), nodes.getKeyAt(records[i + 2]));
+    }
+
+    private static int compare(final int[] records1, final int record1, final int[] records2, final int record2,
+                               final int[] order) {
+        for (final int column : order) {
+            final var c = Integer.compare(records1[record1 * 3 + column], records2[record2 * 3 + column]);
+            if (c != 0)
+                return c;
+        }
+        return 0;
+    }
+
+    private static boolean matches(final Node match, final Node node) {
+        return !match.isConcrete() || match.equals(node);
+    }
+
+    private static Predicate<Triple> matcher(final Triple tripleMatch) {
+        return t -> matches(tripleMatch.getSubject(), t.getSubject())
+                && matches(tripleMatch.getPredicate(), t.getPredicate())
+                && matches(tripleMatch.getObject(), t.getObject());
+    }
+
+    @Override
+    public void add(final Triple triple) {
+        if (!this.deleted.isEmpty() && this.deleted.tryRemove(triple)) {
+            this.modifications++;
+            return;
+        }
+        if (this.recordOf(triple) >= 0 || !this.added.tryAdd(triple)) {
+            return;
+        }
+        this.modifications++;
+        this.mergeIfManyChangesOnWrite();
+    }
+
+    @Override
+    public void remove(final Triple triple) {
+        if (!this.added.isEmpty() && this.added.tryRemove(triple)) {
+            this.modifications++;
+            return;
+        }
+        if (this.recordOf(triple) < 0 || !this.deleted.tryAdd(triple)) {
+            return;
+        }
+        this.modifications++;
+        this.mergeIfManyChangesOnWrite();
+    }
+
+    @Override
+    public void clear() {
+        this.nodes.clear();
+        this.nodeUsage = NO_INTS;
+        this.records = NO_INTS;
+        this.pos = NO_INTS;
+        this.osp = NO_INTS;
+        this.recordCount = 0;
+        this.added = new TripleSet();
+        this.deleted = new TripleSet();
+        this.modifications++;
+    }
+
+    @Override
+    public int countTriples() {
+        return this.recordCount - this.deleted.size() + this.added.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.countTriples() == 0;
+    }
+
+    @Override
+    public boolean contains(final Triple tripleMatch) {
+        final var matchPattern = PatternClassifier.classify(tripleMatch);
+        switch (matchPattern) {
+
+            case SUB_PRE_OBJ:
+                return this.containsTriple(tripleMatch);
+
+            case SUB_PRE_ANY,
+                 SUB_ANY_OBJ,
+                 SUB_ANY_ANY,
+                 ANY_PRE_OBJ,
+                 ANY_PRE_ANY,
+                 ANY_ANY_OBJ: {
+                this.mergeIfManyChangesOnRead();
+                if (!this.deleted.isEmpty()) {
+                    return this.find(tripleMatch, matchPattern).hasNext();
+                }
+                final var range = this.range(tripleMatch, matchPattern);
+                return range.from < range.to || this.added.anyMatch(matcher(tripleMatch));
+            }
+
+            case ANY_ANY_ANY:
+                return !this.isEmpty();
+
+            default:
+                throw new IllegalStateException(String.format(UNKNOWN_PATTERN_CLASSIFIER, matchPattern));
+        }
+    }
+
+    @Override
+    public Stream<Triple> stream() {
+        return this.stream(Triple.ANY);
+    }
+
+    @Override
+    public Stream<Triple> stream(final Triple tripleMatch) {
+        final var matchPattern = PatternClassifier.classify(tripleMatch);
+        if (matchPattern == MatchPattern.SUB_PRE_OBJ) {
+            return this.containsTriple(tripleMatch) ? Stream.of(tripleMatch) : Stream.empty();
+        }
+        this.mergeIfManyChangesOnRead();
+        final var range = this.range(tripleMatch, matchPattern);
+        final var nodesForRange = this.nodes;
+        final var checkForConcurrentModification = this.checkForConcurrentModification();
+        var stream = IntStream.range(range.from, range.to)
+                .mapToObj(i -> {
+                    checkForConcurrentModification.run();
+                    return createTriple(range.records, range.recordAt(i), nodesForRange);
+                });
+        if (!this.deleted.isEmpty()) {
+            final var deletedForRange = this.deleted;
+            stream = stream.filter(t -> !deletedForRange.containsKey(t));
+        }
+        if (!this.added.isEmpty()) {
+            stream = Stream.concat(stream, this.added.keyStream().filter(matcher(tripleMatch)));
+        }
+        return stream;
+    }
+
+    @Override
+    public ExtendedIterator<Triple> find(final Triple tripleMatch) {
+        final var matchPattern = PatternClassifier.classify(tripleMatch);
+        if (matchPattern == MatchPattern.SUB_PRE_OBJ) {
+            return this.containsTriple(tripleMatch) ? new SingletonIterator<>(tripleMatch) : NiceIterator.emptyIterator();
+        }
+        this.mergeIfManyChangesOnRead();
+        return this.find(tripleMatch, matchPattern);
+    }
+
+    private ExtendedIterator<Triple> find(final Triple tripleMatch, final MatchPattern matchPattern) {
+        final var range = this.range(tripleMatch, matchPattern);
+        ExtendedIterator<Triple> iterator = new CompactTripleIterator(range.records, range.index, range.from, range.to,
+                this.nodes, this.checkForConcurrentModification());
+        if (!this.deleted.isEmpty()) {
+            final var deletedForRange = this.deleted;
+            iterator = iterator.filterDrop(deletedForRange::containsKey);
+        }
+        if (!this.added.isEmpty()) {
+            iterator = iterator.andThen(this.added.keyIterator().filterKeep(matcher(tripleMatch)));
+        }
+        return iterator;
+    }
+
+    /**
+     * A check that fails once the store has been changed. Merges change the node ids, so iterators and streams
+     * over the arrays must not go on after a change.
+     */
+    private Runnable checkForConcurrentModification() {
+        final var initialModifications = this.modifications;
+        return () -> {
+            if (this.modifications != initialModifications) throw new ConcurrentModificationException();
+        };
+    }
+
+    @Override
+    public CompactTripleStore copy() {
+        return new CompactTripleStore(this);
+    }
+
+    private boolean containsTriple(final Triple triple) {
+        if (!this.added.isEmpty() && this.added.containsKey(triple))
+            return true;
+        if (!this.deleted.isEmpty() && this.deleted.containsKey(triple))
+            return false;
+        return this.recordOf(triple) >= 0;
+    }
+
+    /**
+     * The record number of a triple, or -1 if it is not in the records.
+     */
+    private int recordOf(final Triple triple) {
+        if (this.recordCount == 0)
+            return -1;
+        final var s = this.nodes.idOf(triple.getSubject());
+        if (s < 0)
+            return -1;
+        final var p = this.nodes.idOf(triple.getPredicate());
+        if (p < 0)
+            return -1;
+        final var o = this.nodes.idOf(triple.getObject());
+        if (o < 0)
+            return -1;
+        var low = 0;
+        var high = this.recordCount - 1;
+        while (low <= high) {
+            final var mid = (low + high) >>> 1;
+            final var i = mid * 3;
+            var c = Integer.compare(this.records[i], s);
+            if (c == 0) {
+                c = Integer.compare(this.records[i + 1], p);
+                if (c == 0)
+                    c = Integer.compare(this.records[i + 2], o);
+            }
+            if (c < 0)
+                low = mid + 1;
+            else if (c > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * The records that match a pattern, as a range of one of the sorted arrays.
+     */
+    private Range range(final Triple tripleMatch, final MatchPattern matchPattern) {
+        switch (matchPattern) {
+
+            case SUB_ANY_ANY:
+                return this.range(SPO, null, tripleMatch.getSubject(), null);
+            case SUB_PRE_ANY:
+                return this.range(SPO, null, tripleMatch.getSubject(), tripleMatch.getPredicate());
+            case ANY_PRE_ANY:
+                return this.range(POS, this.pos, tripleMatch.getPredicate(), null);
+            case ANY_PRE_OBJ:
+                return this.range(POS, this.pos, tripleMatch.getPredicate(), tripleMatch.getObject());
+            case ANY_ANY_OBJ:
+                return this.range(OSP, this.osp, tripleMatch.getObject(), null);
+            case SUB_ANY_OBJ:
+                return this.range(OSP, this.osp, tripleMatch.getObject(), tripleMatch.getSubject());
+
+            case ANY_ANY_ANY:
+                return new Range(this.records, null, 0, this.recordCount);
+
+            case SUB_PRE_OBJ:
+                throw new IllegalArgumentException("Getting a range for match pattern SPO is not supported, use the record");
+
+            default:
+                throw new IllegalStateException(String.format(UNKNOWN_PATTERN_CLASSIFIER, matchPattern));
+        }
+    }
+
+    private Range range(final int[] order, final int[] index, final Node first, final Node second) {
+        final var id1 = this.nodes.idOf(first);
+        final var id2 = second == null ? 0 : this.nodes.idOf(second);
+        if (id1 < 0 || id2 < 0)
+            return new Range(this.records, index, 0, 0);
+        final var keyLength = second == null ? 1 : 2;
+        final var from = this.search(order, index, id1, id2, keyLength, false);
+        final var to = this.search(order, index, id1, id2, keyLength, true);
+        return new Range(this.records, index, from, to);
+    }
+
+    /**
+     * Binary search for the first position in the array of the order whose record starts with a key greater than,
+     * or with {@code upper} greater than or equal to, the given key.
+     */
+    private int search(final int[] order, final int[] index, final int id1, final int id2, final int keyLength,
+                       final boolean upper) {
+        var low = 0;
+        var high = this.recordCount;
+        while (low < high) {
+            final var mid = (low + high) >>> 1;
+            final var i = (index == null ? mid : index[mid]) * 3;
+            var c = Integer.compare(this.records[i + order[0]], id1);
+            if (c == 0 && keyLength == 2)
+                c = Integer.compare(this.records[i + order[1]], id2);
+            if (c < 0 || (upper && c == 0))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private void mergeIfManyChangesOnRead() {
+        if (this.added.size() + this.deleted.size() > MAX_CHANGES_ON_READ)
+            this.merge();
+    }
+
+    private void mergeIfManyChangesOnWrite() {
+        final var changes = this.added.size() + this.deleted.size();
+        if (changes > MIN_CHANGES_ON_WRITE && changes > this.recordCount >> 2)
+            this.merge();
+    }
+
+    /**
+     * Merge the added and deleted triples into new arrays.
+     * Iterators and streams that are still open keep the old arrays and sets.
+     */
+    void merge() {
+        final var addedCount = this.added.size();
+        final var deletedCount = this.deleted.size();
+        if (addedCount == 0 && deletedCount == 0)
+            return;
+
+        final var deletedRecords = this.encode(this.deleted, deletedCount);
+        final var addedRecords = this.encode(this.added, addedCount);
+        final var newCount = this.recordCount - deletedCount + addedCount;
+
+        // Merge the records in SPO order, and note where each record went.
+        final var newRecords = new int[newCount * 3];
+        final var oldToNew = new int[this.recordCount];
+        final var addedToNew = new int[addedCount];
+        var i = 0;
+        var j = 0;
+        var k = 0;
+        var r = 0;
+        while (i < this.recordCount || j < addedCount) {
+            if (j == addedCount || (i < this.recordCount && compare(this.records, i, addedRecords, j, SPO) < 0)) {
+                if (k < deletedCount && compare(this.records, i, deletedRecords, k, SPO) == 0) {
+                    oldToNew[i++] = -1;
+                    k++;
+                    continue;
+                }
+                System.arraycopy(this.records, i * 3, newRecords, r * 3, 3);
+                oldToNew[i++] = r++;
+            } else {
+                System.arraycopy(addedRecords, j * 3, newRecords, r * 3, 3);
+                addedToNew[j++] = r++;
+            }
+        }
+        final var newPos = mergeIndex(this.pos, POS, oldToNew, addedToNew, newRecords, newCount);
+        final var newOsp = mergeIndex(this.osp, OSP, oldToNew, addedToNew, newRecords, newCount);
+
+        // Nodes that are no longer used are removed, and their ids are free to be used again.
+        for (var d = 0; d < deletedCount * 3; d++) {
+            final var id = deletedRecords[d];
+            if (--this.nodeUsage[id] == 0)
+                this.nodes.removeUnchecked(this.nodes.getKeyAt(id));
+        }
+
+        this.records = newRecords;
+        this.pos = newPos;
+        this.osp = newOsp;
+        this.recordCount = newCount;
+        this.added = new TripleSet();
+        this.deleted = new TripleSet();
+    }
+
+    /**
+     * Merge an index with the added records, leaving out the deleted records.
+     */
+    private static int[] mergeIndex(final int[] index, final int[] order, final int[] oldToNew,
+                                    final int[] addedToNew, final int[] newRecords, final int newCount) {
+        final var added = addedToNew.clone();
+        sort(added, (a, b) -> compare(newRecords, a, newRecords, b, order));
+        final var merged = new int[newCount];
+        var i = 0;
+        var j = 0;
+        for (var r = 0; r < newCount; r++) {
+            while (i < oldToNew.length && oldToNew[index[i]] < 0)
+                i++;
+            if (j == added.length
+                    || (i < oldToNew.length && compare(newRecords, oldToNew[index[i]], newRecords, added[j], order) < 0))
+                merged[r] = oldToNew[index[i++]];
+            else
+                merged[r] = added[j++];
+        }
+        return merged;
+    }
+
+    /**
+     * The id records of the triples in a set, sorted in SPO order.
+     * The ids of the nodes of added triples are created if needed, and the usage of their nodes is counted.
+     */
+    private int[] encode(final TripleSet triples, final int count) {
+        final var isAdded = triples == this.added;
+        final var unsorted = new int[count * 3];
+        var i = 0;
+        final var iterator = triples.keyIterator();
+        while (iterator.hasNext()) {
+            final var triple = iterator.next();
+            unsorted[i++] = this.encode(triple.getSubject(), isAdded);
+            unsorted[i++] = this.encode(triple.getPredicate(), isAdded);
+            unsorted[i++] = this.encode(triple.getObject(), isAdded);
+        }
+        final var order = new int[count];
+        for (var r = 0; r < count; r++)
+            order[r] = r;
+        sort(order, (a, b) -> compare(unsorted, a, unsorted, b, SPO));
+        final var sorted = new int[count * 3];
+        for (var r = 0; r < count; r++)
+            System.arraycopy(unsorted, order[r] * 3, sorted, r * 3, 3);
+        return sorted;
+    }
+
+    private int encode(final Node node, final boolean isAdded) {
+        if (!isAdded)
+            return this.nodes.idOf(node);
+        final var id = this.nodes.getOrAddId(node);
+        if (id >= this.nodeUsage.length)
+            this.nodeUsage = Arrays.copyOf(this.nodeUsage, Math.max(id + 1, this.nodes.capacity()));
+        this.nodeUsage[id]++;
+        return id;
+    }
+
+    /**
+     * Sort ints with a comparator, without boxing them.
+     */
+    static void sort(final int[] values, final IntBinaryOperator comparator) {
+        sort(values, 0, values.length, comparator);
+    }
+
+    private static void sort(final int[] values, int from, int to, final IntBinaryOperator comparator) {
+        while (to - from > 16) {
+            // Median of three as pivot, then partition into < pivot, == pivot, > pivot.
+            final var mid = (from + to) >>> 1;
+            final var a = values[from];
+            final var b = values[mid];
+            final var c = values[to - 1];
+            final int pivot;
+            if (comparator.applyAsInt(a, b) < 0)
+                pivot = comparator.applyAsInt(b, c) < 0 ? b : (comparator.applyAsInt(a, c) < 0 ? c : a);
+            else
+                pivot = comparator.applyAsInt(a, c) < 0 ? a : (comparator.applyAsInt(b, c) < 0 ? c : b);
+            var lt = from;
+            var gt = to - 1;
+            var i = from;
+            while (i <= gt) {
+                final var cmp = comparator.applyAsInt(values[i], pivot);
+                if (cmp < 0)
+                    swap(values, lt++, i++);
+                else if (cmp > 0)
+                    swap(values, i, gt--);
+                else
+                    i++;
+            }
+            // Recurse into the smaller part, loop on the larger one.
+            if (lt - from < to - gt - 1) {
+                sort(values, from, lt, comparator);
+                from = gt + 1;
+            } else {
+                sort(values, gt + 1, to, comparator);
+                to = lt;
+            }
+        }
+        for (var i = from + 1; i < to; i++) {
+            final var value = values[i];
+            var j = i - 1;
+            while (j >= from && comparator.applyAsInt(values[j], value) > 0) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+    }
+
+    private static void swap(final int[] values, final int i, final int j) {
+        final var value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    /**
+     * Positions {@code from} to {@code to} of the records array, or of an index into it.
+     */
+    private record Range(int[] records, int[] index, int from, int to) {
+        int recordAt(final int position) {
+            return this.index == null ? position : this.index[position];
+        }
+    }
+
+    /**
+     * Dictionary from nodes to ids. The id of a node is its index in the set.
+     */
+    static class NodeDictionary
+            extends FastHashSet<Node>
+            implements Copyable<NodeDictionary> {
+
+        NodeDictionary() {
+            super();
+        }
+
+        private NodeDictionary(final NodeDictionary dictionaryToCopy) {
+            super(dictionaryToCopy);
+        }
+
+        @Override
+        protected Node[] newKeysArray(int size) {
+            return new Node[size];
+        }
+
+        /**
+         * The id of a node, or -1 if the node is not in the dictionary.
+         */
+        int idOf(final Node node) {
+            final var pIndex = findPosition(node, node.hashCode());
+            return pIndex < 0 ? -1 : ~positions[pIndex];
+        }
+
+        /**
+         * The id of a node, added to the dictionary if it is not there.
+         */
+        int getOrAddId(final Node node) {
+            final var index = addAndGetIndex(node);
+            return index < 0 ? ~index : index;
+        }
+
+        /**
+         * The number of ids that can be used before the dictionary grows.
+         */
+        int capacity() {
+            return keys.length;
+        }
+
+        @Override
+        public NodeDictionary copy() {
+            return new NodeDictionary(this);
+        }
+    }
+
+    /**
+     * Set of triples that are not yet merged into the arrays.
+     */
+    private static class TripleSet
+            extends FastHashSet<Triple>
+            implements Copyable<TripleSet> {
+
+        TripleSet() {
+            super();
+        }
+
+        private TripleSet(final TripleSet setToCopy) {
+            super(setToCopy);
+        }
+
+        @Override
+        protected Triple[] newKeysArray(int size) {
+            return new Triple[size];
+        }
+
+        @Override
+        public TripleSet copy() {
+            return new TripleSet(this);
+        }
+    }
+}
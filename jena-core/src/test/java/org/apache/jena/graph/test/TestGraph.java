@@ -29,6 +29,7 @@ import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.GraphMemFactory;
 import org.apache.jena.graph.impl.WrappedGraph;
 import org.apache.jena.mem.GraphMem;
+import org.apache.jena.mem2.GraphMem2Compact;
 import org.apache.jena.mem2.GraphMem2Fast;
 import org.apache.jena.mem2.GraphMem2Legacy;
 import org.apache.jena.mem2.GraphMem2Roaring;
@@ -62,6 +63,9 @@ public class TestGraph extends GraphTestBase
         result.addTest(suite(MetaTestGraph.class, GraphMem2Roaring.class));
         result.addTest(suite(TestReifier.class, GraphMem2Roaring.class));
 
+        result.addTest(suite(MetaTestGraph.class, GraphMem2Compact.class));
+        result.addTest(suite(TestReifier.class, GraphMem2Compact.class));
+
         result.addTest(TestGraphListener.suite());
         result.addTestSuite(TestRegisterGraphListener.class);
         return result;
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem2.store.compact;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.mem2.collection.FastHashSet;
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.apache.jena.testing_framework.GraphHelper.node;
+import static org.apache.jena.testing_framework.GraphHelper.triple;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.*;
+
+public class CompactTripleIteratorTest {
+
+    private static final Runnable NO_CHECK = () -> {
+    };
+
+    private static FastHashSet<Node> createNodeSet() {
+        return new FastHashSet<Node>() {
+
+            @Override
+            protected Node[] newKeysArray(int size) {
+                return new Node[size];
+            }
+        };
+    }
+
+    private static int[] records(final FastHashSet<Node> nodes, final Triple... triples) {
+        final var records = new int[triples.length * 3];
+        for (int i = 0; i < triples.length; i++) {
+            records[i * 3] = id(nodes, triples[i].getSubject());
+            records[i * 3 + 1] = id(nodes, triples[i].getPredicate());
+            records[i * 3 + 2] = id(nodes, triples[i].getObject());
+        }
+        return records;
+    }
+
+    private static int id(final FastHashSet<Node> nodes, final Node node) {
+        final var index = nodes.addAndGetIndex(node);
+        return index < 0 ? ~index : index;
+    }
+
+    @Test
+    public void testEmpty() {
+        final var nodes = createNodeSet();
+        final var sut = new CompactTripleIterator(new int[0], null, 0, 0, nodes, NO_CHECK);
+        assertFalse(sut.hasNext());
+        assertThrows(NoSuchElementException.class, () -> sut.next());
+    }
+
+    @Test
+    public void testSingle() {
+        final var nodes = createNodeSet();
+        final var records = records(nodes, triple("s P o"));
+        final var sut = new CompactTripleIterator(records, null, 0, 1, nodes, NO_CHECK);
+        assertTrue(sut.hasNext());
+        assertEquals(triple("s P o"), sut.next());
+        assertFalse(sut.hasNext());
+    }
+
+    @Test
+    public void testRange() {
+        final var nodes = createNodeSet();
+        final var records = records(nodes, triple("s P o"), triple("t Q s"), triple("u R t"), triple("v S u"));
+        final var sut = new CompactTripleIterator(records, null, 1, 3, nodes, NO_CHECK);
+        assertThat(sut.toList(), IsIterableContainingInAnyOrder.containsInAnyOrder(
+                triple("t Q s"),
+                triple("u R t")
+        ));
+    }
+
+    @Test
+    public void testIndex() {
+        final var nodes = createNodeSet();
+        final var records = records(nodes, triple("s P o"), triple("t Q s"), triple("u R t"));
+        final var sut = new CompactTripleIterator(records, new int[]{2, 0, 1}, 0, 2, nodes, NO_CHECK);
+        assertEquals(List.of(triple("u R t"), triple("s P o")), sut.toList());
+    }
+
+    @Test
+    public void testNextAndThenForEachRemaining() {
+        final var nodes = createNodeSet();
+        final var triples = new Triple[100];
+        for (int i = 0; i < triples.length; i++) {
+            triples[i] = triple("s" + i + " P" + i + " o" + i);
+        }
+        final var sut = new CompactTripleIterator(records(nodes, triples), null, 0, triples.length, nodes, NO_CHECK);
+        final var found = new ArrayList<Triple>();
+        found.add(sut.next());
+        sut.forEachRemaining(found::add);
+        assertFalse(sut.hasNext());
+        assertEquals(List.of(triples), found);
+    }
+
+    @Test
+    public void testNextConcurrentModification() {
+        final var nodes = createNodeSet();
+        final var records = records(nodes, triple("s P o"));
+        final var sut = new CompactTripleIterator(records, null, 0, 1, nodes,
+                () -> {
+                    if (nodes.size() != 3) throw new ConcurrentModificationException();
+                });
+        nodes.addAndGetIndex(node("x"));
+        assertTrue(sut.hasNext());
+        assertThrows(ConcurrentModificationException.class, () -> sut.next());
+    }
+
+    @Test
+    public void testForEachRemainingConcurrentModification() {
+        final var nodes = createNodeSet();
+        final var records = records(nodes, triple("s P o"));
+        final var sut = new CompactTripleIterator(records, null, 0, 1, nodes,
+                () -> {
+                    if (nodes.size() != 3) throw new ConcurrentModificationException();
+                });
+        nodes.addAndGetIndex(node("x"));
+        assertThrows(ConcurrentModificationException.class, () -> sut.forEachRemaining(t -> {
+        }));
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.mem2.store.compact;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.mem2.store.AbstractTripleStoreTest;
+import org.apache.jena.mem2.store.TripleStore;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.apache.jena.testing_framework.GraphHelper.node;
+import static org.apache.jena.testing_framework.GraphHelper.triple;
+import static org.junit.Assert.*;
+
+public class CompactTripleStoreTest extends AbstractTripleStoreTest {
+
+    @Override
+    protected TripleStore createTripleStore() {
+        return new CompactTripleStore();
+    }
+
+    private static List<Triple> patterns(final Triple t) {
+        final var s = t.getSubject();
+        final var p = t.getPredicate();
+        final var o = t.getObject();
+        return List.of(
+                Triple.create(s, p, o),
+                Triple.create(s, p, Node.ANY),
+                Triple.create(s, Node.ANY, o),
+                Triple.create(s, Node.ANY, Node.ANY),
+                Triple.create(Node.ANY, p, o),
+                Triple.create(Node.ANY, p, Node.ANY),
+                Triple.create(Node.ANY, Node.ANY, o),
+                Triple.ANY);
+    }
+
+    private static boolean matches(final Triple pattern, final Triple t) {
+        return (!pattern.getSubject().isConcrete() || pattern.getSubject().equals(t.getSubject()))
+                && (!pattern.getPredicate().isConcrete() || pattern.getPredicate().equals(t.getPredicate()))
+                && (!pattern.getObject().isConcrete() || pattern.getObject().equals(t.getObject()));
+    }
+
+    // The store gives the same answers as a set of the same triples.
+    private void assertSameAs(final Set<Triple> expected, final Triple t) {
+        assertEquals(expected.size(), sut.countTriples());
+        for (final var pattern : patterns(t)) {
+            final var matching = expected.stream().filter(e -> matches(pattern, e)).collect(Collectors.toSet());
+            final var found = sut.find(pattern).toList();
+            assertEquals(matching.size(), found.size());
+            assertEquals(matching, new HashSet<>(found));
+            assertEquals(matching, sut.stream(pattern).collect(Collectors.toSet()));
+            assertEquals(!matching.isEmpty(), sut.contains(pattern));
+        }
+    }
+
+    @Test
+    public void testMergeOnRead() {
+        final var expected = new HashSet<Triple>();
+        for (int i = 0; i < CompactTripleStore.MAX_CHANGES_ON_READ + 10; i++) {
+            final var t = triple("s" + (i % 7) + " p" + (i % 3) + " o" + i);
+            sut.add(t);
+            expected.add(t);
+        }
+        assertSameAs(expected, triple("s1 p1 o1"));
+        for (int i = 0; i < CompactTripleStore.MAX_CHANGES_ON_READ + 10; i += 2) {
+            final var t = triple("s" + (i % 7) + " p" + (i % 3) + " o" + i);
+            sut.remove(t);
+            expected.remove(t);
+        }
+        assertSameAs(expected, triple("s1 p1 o1"));
+        assertSameAs(expected, triple("s2 p0 o2"));
+    }
+
+    @Test
+    public void testChangesNotMerged() {
+        final var store = (CompactTripleStore) sut;
+        final var expected = new HashSet<Triple>();
+        for (int i = 0; i < 50; i++) {
+            final var t = triple("s" + (i % 5) + " p" + (i % 2) + " o" + (i % 11));
+            store.add(t);
+            expected.add(t);
+        }
+        store.merge();
+        // A few changes are kept aside, and found as well as the merged triples.
+        final var removed = triple("s1 p1 o1");
+        store.remove(removed);
+        expected.remove(removed);
+        store.add(triple("s1 p1 x"));
+        expected.add(triple("s1 p1 x"));
+        store.add(triple("s1 p1 x"));
+        store.remove(triple("s1 p1 y"));
+        assertFalse(store.contains(removed));
+        assertSameAs(expected, triple("s1 p1 x"));
+        assertSameAs(expected, triple("s0 p0 o0"));
+        // Adding a removed triple again.
+        store.add(removed);
+        expected.add(removed);
+        assertSameAs(expected, removed);
+        store.merge();
+        assertSameAs(expected, removed);
+        assertSameAs(expected, triple("s1 p1 x"));
+    }
+
+    @Test
+    public void testRandomChanges() {
+        final var random = new Random(42);
+        final var expected = new HashSet<Triple>();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 300; i++) {
+                final var t = triple("s" + random.nextInt(10) + " p" + random.nextInt(4) + " o" + random.nextInt(30));
+                if (random.nextInt(3) == 0) {
+                    sut.remove(t);
+                    expected.remove(t);
+                } else {
+                    sut.add(t);
+                    expected.add(t);
+                }
+            }
+            if (round % 3 == 0)
+                ((CompactTripleStore) sut).merge();
+            assertSameAs(expected, triple("s" + random.nextInt(10) + " p" + random.nextInt(4) + " o" + random.nextInt(30)));
+        }
+    }
+
+    @Test
+    public void testUnusedNodesRemoved() {
+        final var store = (CompactTripleStore) sut;
+        store.add(triple("s p o"));
+        store.add(triple("s p x"));
+        store.merge();
+        final var idOfX = store.nodes.idOf(node("x"));
+        assertTrue(idOfX >= 0);
+        store.remove(triple("s p x"));
+        store.merge();
+        assertEquals(-1, store.nodes.idOf(node("x")));
+        assertTrue(store.nodes.idOf(node("o")) >= 0);
+        // The id is used again.
+        store.add(triple("y p o"));
+        store.merge();
+        assertEquals(idOfX, store.nodes.idOf(node("y")));
+        assertEquals(4, store.nodes.size());
+        assertTrue(store.contains(triple("s p o")));
+        assertTrue(store.contains(triple("y p o")));
+        assertEquals(2, store.find(triple("?? p o")).toList().size());
+    }
+
+    @Test
+    public void testClearAfterMerge() {
+        final var store = (CompactTripleStore) sut;
+        store.add(triple("s p o"));
+        store.merge();
+        store.clear();
+        assertTrue(store.isEmpty());
+        assertEquals(0, store.nodes.size());
+        assertFalse(store.find(triple("s ?? ??")).hasNext());
+        store.add(triple("s p o"));
+        assertTrue(store.contains(triple("s ?? ??")));
+    }
+
+    @Test
+    public void testIteratorConcurrentModification() {
+        sut.add(triple("s p o"));
+        sut.add(triple("s p o2"));
+        ((CompactTripleStore) sut).merge();
+        final var iter = sut.find(triple("s ?? ??"));
+        assertTrue(iter.hasNext());
+        sut.add(triple("s p o3"));
+        assertThrows(ConcurrentModificationException.class, iter::next);
+    }
+
+    @Test
+    public void testStreamConcurrentModification() {
+        final var store = (CompactTripleStore) sut;
+        for (int i = 0; i < 10; i++) {
+            store.add(triple("s p o" + i));
+        }
+        store.merge();
+        final var iter = store.stream(triple("s ?? ??")).iterator();
+        assertNotNull(iter.next());
+        // The id of o9 is used again for x once the change is merged.
+        store.remove(triple("s p o9"));
+        store.merge();
+        store.add(triple("s p x"));
+        store.merge();
+        assertThrows(ConcurrentModificationException.class, () -> {
+            while (iter.hasNext()) {
+                iter.next();
+            }
+        });
+    }
+
+    @Test
+    public void testCopySharesNoChanges() {
+        final var store = (CompactTripleStore) sut;
+        for (int i = 0; i < 10; i++) {
+            store.add(triple("s p o" + i));
+        }
+        store.merge();
+        final var copy = store.copy();
+        copy.remove(triple("s p o1"));
+        copy.merge();
+        store.remove(triple("s p o2"));
+        store.merge();
+        assertTrue(store.contains(triple("s p o1")));
+        assertFalse(store.contains(triple("s p o2")));
+        assertFalse(copy.contains(triple("s p o1")));
+        assertTrue(copy.contains(triple("s p o2")));
+        assertEquals(9, store.find(triple("s p ??")).toList().size());
+        assertEquals(9, copy.find(triple("s p ??")).toList().size());
+    }
+
+    @Test
+    public void testSort() {
+        final var random = new Random(7);
+        for (final int n : new int[]{0, 1, 5, 17, 100, 1000}) {
+            final var values = new int[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = random.nextInt(n / 3 + 1);
+            }
+            final var expected = values.clone();
+            Arrays.sort(expected);
+            CompactTripleStore.sort(values, Integer::compare);
+            assertArrayEquals(expected, values);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.block;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of blocks, by block id, split into segments each with its own lock.
+ * Each segment is an LRU cache of a share of the total size.
+ * <p>
+ * Threads accessing blocks in different segments do not contend.
+ * All operations are thread-safe.
+ */
+class BlockCacheStriped {
+    // Minimum number of slots per segment before the cache is split further.
+    private static final int MinSegmentSize = 16;
+
+    private final Segment[] segments;
+    private final int mask;
+    private final LongAdder evictions = new LongAdder();
+
+    /** Create a cache for {@code size} blocks, with a number of segments based on the number of processors. */
+    BlockCacheStriped(int size) {
+        this(size, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Create a cache for {@code size} blocks with at most {@code maxSegments} segments (rounded to a power of two). */
+    BlockCacheStriped(int size, int maxSegments) {
+        int n = 1;
+        while ( n < maxSegments && size / (2 * n) >= MinSegmentSize )
+            n = 2 * n;
+        int segmentSize = ( size <= 0 ) ? 0 : (size + n - 1) / n;
+        segments = new Segment[n];
+        for ( int i = 0 ; i < n ; i++ )
+            segments[i] = new Segment(segmentSize);
+        mask = n - 1;
+    }
+
+    private Segment segment(long id) {
+        // Spread the bits: block ids are often allocated in sequence.
+        long h = id * 0x9E3779B97F4A7C15L;
+        return segments[(int)(h >>> 32) & mask];
+    }
+
+    Block getIfPresent(long id) {
+        Segment seg = segment(id);
+        synchronized(seg) {
+            return seg.get(id);
+        }
+    }
+
+    boolean containsKey(long id) {
+        Segment seg = segment(id);
+        synchronized(seg) {
+            return seg.containsKey(id);
+        }
+    }
+
+    void put(long id, Block block) {
+        Segment seg = segment(id);
+        synchronized(seg) {
+            if ( seg.capacity > 0 )
+                seg.put(id, block);
+        }
+    }
+
+    void remove(long id) {
+        Segment seg = segment(id);
+        synchronized(seg) {
+            seg.remove(id);
+        }
+    }
+
+    /** Remove all blocks with an id at or above the boundary. */
+    void removeFrom(long boundary) {
+        for ( Segment seg : segments ) {
+            synchronized(seg) {
+                List<Long> removals = new ArrayList<>();
+                seg.keySet().forEach(x -> {
+                    if ( x >= boundary )
+                        removals.add(x);
+                });
+                removals.forEach(seg::remove);
+            }
+        }
+    }
+
+    long size() {
+        long x = 0;
+        for ( Segment seg : segments ) {
+            synchronized(seg) {
+                x += seg.size();
+            }
+        }
+        return x;
+    }
+
+    int segments() {
+        return segments.length;
+    }
+
+    /** Number of blocks dropped to make space for other blocks. */
+    long evictions() {
+        return evictions.sum();
+    }
+
+    @SuppressWarnings("serial")
+    private class Segment extends LinkedHashMap<Long, Block> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Block> eldest) {
+            if ( size() <= capacity )
+                return false;
+            evictions.increment();
+            return true;
+        }
+    }
+}
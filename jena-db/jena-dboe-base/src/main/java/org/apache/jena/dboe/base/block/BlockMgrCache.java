@@ -21,6 +21,7 @@ package org.apache.jena.dboe.base.block;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 
 import org.apache.jena.atlas.lib.Cache;
@@ -32,13 +33,18 @@ import org.slf4j.LoggerFactory;
 public class BlockMgrCache extends BlockMgrSync {
     // Actually, this is two cache one on the read blocks and one on the write
     // blocks.
-    // The overridden public operations are sync'ed.
+    // The overridden public operations are sync'ed except for a read that
+    // finds the block in the read cache.
     // As sync is on "this", it also covers all the other operations via
     // BlockMgrSync
+    //
+    // Many readers, one writer: the read cache is lock-striped so that
+    // concurrent readers finding their blocks do not contend on "this".
+    // A read miss, and any writer operation, takes the lock on "this".
 
     private static Logger            log            = LoggerFactory.getLogger(BlockMgrCache.class);
     // Read cache : always present.
-    private final Cache<Long, Block> readCache;
+    private final BlockCacheStriped  readCache;
 
     // Delayed dirty writes. May be present, may not.
     private final Cache<Long, Block> writeCache;
@@ -47,9 +53,9 @@ public class BlockMgrCache extends BlockMgrSync {
     public static boolean            globalLogging  = false;
     private boolean                  logging        = false;
     // ---- stats
-    long                             cacheReadHits  = 0;
-    long                             cacheMisses    = 0;
-    long                             cacheWriteHits = 0;
+    private final LongAdder          cacheReadHits  = new LongAdder();
+    private final LongAdder          cacheMisses    = new LongAdder();
+    private final LongAdder          cacheWriteHits = new LongAdder();
 
     static BlockMgr create(int readSlots, int writeSlots, final BlockMgr blockMgr) {
         if ( readSlots < 0 && writeSlots < 0 )
@@ -60,10 +66,8 @@ public class BlockMgrCache extends BlockMgrSync {
     private BlockMgrCache(int readSlots, int writeSlots, final BlockMgr blockMgr) {
         super(blockMgr);
         // Caches are related so we can't use a Getter for cache management.
-        if ( readSlots < -1 )
-            readCache = CacheFactory.createNullCache();
-        else
-            readCache = CacheFactory.createCache(readSlots);
+        // A size of zero or less retains nothing.
+        readCache = new BlockCacheStriped(readSlots);
         if ( writeSlots <= 0 )
             writeCache = null;
         else {
@@ -92,28 +96,41 @@ public class BlockMgrCache extends BlockMgrSync {
         // An abort is rare (?). We do the operation very carefully.
         // Could (probably) delete in the loop or use Iteator.remove on keys().
         // (Check the Cache contract)
-        List<Long> removals = new ArrayList<>();
-        readCache.keys().forEachRemaining((x)->{
-            if ( x >= boundary )
-                removals.add(x);
-        });
-        removals.forEach(readCache::remove);
-        removals.clear();
-        writeCache.keys().forEachRemaining((x)->{
-            if ( x >= boundary )
-                removals.add(x);
-        });
-        removals.forEach(writeCache::remove);
+        readCache.removeFrom(boundary);
+        if ( writeCache != null ) {
+            List<Long> removals = new ArrayList<>();
+            writeCache.keys().forEachRemaining((x)->{
+                if ( x >= boundary )
+                    removals.add(x);
+            });
+            removals.forEach(writeCache::remove);
+        }
         super.resetAlloc(boundary);
     }
 
     @Override
-    synchronized public Block getRead(long id) {
+    public Block getRead(long id) {
+        // Not synchronized: the read cache is thread-safe and a hit does not
+        // need the lock. A writer only places committed blocks in the read
+        // cache or removes them so a reader sees the block before or after
+        // the change, as it would if it had taken the lock.
+        Block blk = readCache.getIfPresent(id);
+        if ( blk != null ) {
+            cacheReadHits.increment();
+            log("Hit(r->r) : %d", id);
+            return blk;
+        }
+        return getReadMiss(id);
+    }
+
+    synchronized private Block getReadMiss(long id) {
         // A Block may be in the read cache or the write cache.
         // It can be just in the write cache because the read cache is finite.
+        // Check again - another thread may have read the block while this
+        // one was waiting for the lock.
         Block blk = readCache.getIfPresent(id);
         if ( blk != null ) {
-            cacheReadHits++;
+            cacheReadHits.increment();
             log("Hit(r->r) : %d", id);
             return blk;
         }
@@ -126,12 +143,12 @@ public class BlockMgrCache extends BlockMgrSync {
             // Leave in write cache
             blk = writeCache.getIfPresent(id);
         if ( blk != null ) {
-            cacheWriteHits++;
+            cacheWriteHits.increment();
             log("Hit(r->w) : %d", id);
             return blk;
         }
 
-        cacheMisses++;
+        cacheMisses.increment();
         log("Miss/r: %d", id);
         blk = super.getRead(id);
         readCache.put(id, blk);
@@ -145,7 +162,7 @@ public class BlockMgrCache extends BlockMgrSync {
         if ( writeCache != null )
             blk = writeCache.getIfPresent(id);
         if ( blk != null ) {
-            cacheWriteHits++;
+            cacheWriteHits.increment();
             log("Hit(w->w) : %d", id);
             return blk;
         }
@@ -155,14 +172,14 @@ public class BlockMgrCache extends BlockMgrSync {
 
         if ( readCache.containsKey(id) ) {
             blk = readCache.getIfPresent(id);
-            cacheReadHits++;
+            cacheReadHits.increment();
             log("Hit(w->r) : %d", id);
             blk = promote(blk);
             return blk;
         }
 
         // Did not find.
-        cacheMisses++;
+        cacheMisses.increment();
         log("Miss/w: %d", id);
         // Pass operation to wrapper.
         blk = super.getWrite(id);
@@ -242,6 +259,31 @@ public class BlockMgrCache extends BlockMgrSync {
         super.close();
     }
 
+    /** Reads and writes that found the block in the read cache. */
+    public long getCacheReadHits() {
+        return cacheReadHits.sum();
+    }
+
+    /** Reads and writes that found the block in the write cache. */
+    public long getCacheWriteHits() {
+        return cacheWriteHits.sum();
+    }
+
+    /** Reads and writes that went to the underlying BlockMgr. */
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /** Blocks dropped from the read cache to make space. */
+    public long getReadCacheEvictions() {
+        return readCache.evictions();
+    }
+
+    /** Number of blocks in the read cache. */
+    public long getReadCacheSize() {
+        return readCache.size();
+    }
+
     @Override
     public String toString() {
         return "Cache:" + super.blockMgr.toString();
@@ -261,7 +303,7 @@ public class BlockMgrCache extends BlockMgrSync {
             String x = "";
             if ( getLabel() != null )
                 x = getLabel() + " : ";
-            log("%sH=%d, M=%d, W=%d", x, cacheReadHits, cacheMisses, cacheWriteHits);
+            log("%sH=%d, M=%d, W=%d, E=%d", x, getCacheReadHits(), getCacheMisses(), getCacheWriteHits(), getReadCacheEvictions());
         }
 
         if ( writeCache != null )
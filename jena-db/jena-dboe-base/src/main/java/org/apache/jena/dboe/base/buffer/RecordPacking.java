@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.base.record.RecordMapper;
+
+/**
+ * Prefix compression of a sorted sequence of records.
+ * <p>
+ * Each record is written as one byte, the length of the prefix it shares with the
+ * previous record, followed by the rest of the record. The first record is written
+ * in full. In a B+Tree leaf of a tuple index, neighbouring records usually share
+ * most of their bytes.
+ * <p>
+ * Packed records can only be decoded in order, starting with the first.
+ */
+public final class RecordPacking {
+    private RecordPacking() {}
+
+    // Longest shared prefix that can be recorded.
+    private static final int MaxPrefix = 0xFF;
+
+    /** The most space one packed record can take. */
+    public static int maxEntrySize(RecordFactory factory) {
+        return 1 + factory.recordLength();
+    }
+
+    /** The number of bytes needed to pack the records of a {@link RecordBuffer}. */
+    public static int packedSize(RecordBuffer rBuff) {
+        int len = rBuff.slotLen;
+        int n = rBuff.size();
+        if ( n == 0 )
+            return 0;
+        int x = 1 + len;
+        for ( int i = 1 ; i < n ; i++ )
+            x += entrySize(rBuff, i);
+        return x;
+    }
+
+    /**
+     * Choose the split point of a {@link RecordBuffer} so that each half packs to
+     * about the same size. Returns the index of the last record of the lower half.
+     * The buffer must have at least two records.
+     */
+    public static int splitIndex(RecordBuffer rBuff) {
+        int n = rBuff.size();
+        int half = packedSize(rBuff) / 2;
+        int x = 1 + rBuff.slotLen;
+        for ( int i = 1 ; i < n - 1 ; i++ ) {
+            int x2 = x + entrySize(rBuff, i);
+            if ( x2 > half )
+                return i - 1;
+            x = x2;
+        }
+        return n - 2;
+    }
+
+    // Packed size of the record at idx, after the record at idx-1.
+    private static int entrySize(RecordBuffer rBuff, int idx) {
+        int len = rBuff.slotLen;
+        return 1 + len - prefix(rBuff.bb, (idx - 1) * len, idx * len, len);
+    }
+
+    /**
+     * Pack the records of a {@link RecordBuffer} into {@code dst}, starting at
+     * {@code start}. Returns the number of bytes written.
+     */
+    public static int pack(RecordBuffer rBuff, ByteBuffer dst, int start) {
+        ByteBuffer src = rBuff.bb;
+        int len = rBuff.slotLen;
+        int n = rBuff.size();
+        int posn = start;
+        for ( int i = 0 ; i < n ; i++ ) {
+            int p = ( i == 0 ) ? 0 : prefix(src, (i - 1) * len, i * len, len);
+            dst.put(posn, (byte)p);
+            posn++;
+            dst.put(posn, src, i * len + p, len - p);
+            posn += len - p;
+        }
+        return posn - start;
+    }
+
+    /**
+     * Unpack {@code count} records, packed in {@code src} from {@code start}, into a
+     * {@link RecordBuffer}, replacing its contents.
+     */
+    public static void unpack(ByteBuffer src, int start, int count, RecordBuffer rBuff) {
+        if ( count > rBuff.maxSize() )
+            throw new BufferException(String.format("unpack: %d records, space for %d", count, rBuff.maxSize()));
+        Decoder decoder = new Decoder(src, start, count, rBuff.slotLen);
+        for ( int i = 0 ; i < count ; i++ ) {
+            decoder.advance();
+            rBuff.bb.put(i * rBuff.slotLen, decoder.record);
+        }
+        rBuff.numSlot = count;
+    }
+
+    /**
+     * Find a record by key in packed records.
+     * Returns the record, or null if there is no record with the key.
+     */
+    public static Record find(ByteBuffer src, int start, int count, RecordFactory factory, Record key) {
+        Decoder decoder = new Decoder(src, start, count, factory.recordLength());
+        byte[] k = key.getKey();
+        while ( decoder.advance() ) {
+            int x = decoder.compareKey(k);
+            if ( x == 0 )
+                return RecordFactory.mapperRecord.map(decoder.bb, 0, null, factory);
+            if ( x > 0 )
+                break;
+        }
+        return null;
+    }
+
+    /**
+     * Iterate over packed records from {@code minRecord} (inclusive) to
+     * {@code maxRecord} (exclusive). Records are decoded as the iterator moves on.
+     */
+    public static Iterator<Record> iterator(ByteBuffer src, int start, int count, RecordFactory factory,
+                                            Record minRecord, Record maxRecord) {
+        return iterator(src, start, count, factory, minRecord, maxRecord, RecordFactory.mapperRecord);
+    }
+
+    /**
+     * Iterate over packed records from {@code minRecord} (inclusive) to
+     * {@code maxRecord} (exclusive), applying a {@link RecordMapper}.
+     */
+    public static <X> Iterator<X> iterator(ByteBuffer src, int start, int count, RecordFactory factory,
+                                           Record minRecord, Record maxRecord, RecordMapper<X> mapper) {
+        return new PackedIterator<>(new Decoder(src, start, count, factory.recordLength()), factory,
+                                    minRecord, maxRecord, mapper);
+    }
+
+    // Length of the common prefix of the records at byte offsets x1 and x2.
+    private static int prefix(ByteBuffer bb, int x1, int x2, int len) {
+        int i = 0;
+        for ( ; i + Long.BYTES <= len ; i += Long.BYTES ) {
+            long d = bb.getLong(x1 + i) ^ bb.getLong(x2 + i);
+            if ( d != 0 ) {
+                int z = ( bb.order() == ByteOrder.BIG_ENDIAN ) ? Long.numberOfLeadingZeros(d) : Long.numberOfTrailingZeros(d);
+                return Math.min(MaxPrefix, i + z / 8);
+            }
+        }
+        for ( ; i < len ; i++ ) {
+            if ( bb.get(x1 + i) != bb.get(x2 + i) )
+                break;
+        }
+        return Math.min(MaxPrefix, i);
+    }
+
+    /** Decode packed records, one at a time, into a record-sized buffer. */
+    private static class Decoder {
+        private final ByteBuffer src;
+        private final int len;
+        private int posn;
+        private int remaining;
+        final byte[] record;
+        final ByteBuffer bb;
+
+        Decoder(ByteBuffer src, int start, int count, int len) {
+            this.src = src;
+            this.len = len;
+            this.posn = start;
+            this.remaining = count;
+            this.record = new byte[len];
+            this.bb = ByteBuffer.wrap(record);
+        }
+
+        boolean advance() {
+            if ( remaining <= 0 )
+                return false;
+            int p = src.get(posn) & 0xFF;
+            posn++;
+            src.get(posn, record, p, len - p);
+            posn += len - p;
+            remaining--;
+            return true;
+        }
+
+        // Compare the key of the current record with a key.
+        int compareKey(byte[] key) {
+            for ( int i = 0 ; i < key.length ; i++ ) {
+                byte b1 = record[i];
+                byte b2 = key[i];
+                if ( b1 == b2 )
+                    continue;
+                return (b1 & 0xFF) - (b2 & 0xFF);
+            }
+            return 0;
+        }
+    }
+
+    private static class PackedIterator<X> implements Iterator<X> {
+        private final Decoder decoder;
+        private final RecordFactory factory;
+        private final Record maxRecord;
+        private final RecordMapper<X> mapper;
+        private final byte[] keySlot;
+        private boolean pending;
+        private boolean finished = false;
+        private X slot = null;
+
+        PackedIterator(Decoder decoder, RecordFactory factory, Record minRecord, Record maxRecord, RecordMapper<X> mapper) {
+            this.decoder = decoder;
+            this.factory = factory;
+            this.maxRecord = maxRecord;
+            this.mapper = mapper;
+            this.keySlot = new byte[factory.keyLength()];
+            // Skip to the first record at or above minRecord.
+            boolean b;
+            do {
+                b = decoder.advance();
+            } while ( b && minRecord != null && decoder.compareKey(minRecord.getKey()) < 0 );
+            this.pending = b;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( slot != null )
+                return true;
+            if ( finished )
+                return false;
+            if ( ! pending && ! decoder.advance() ) {
+                finished = true;
+                return false;
+            }
+            pending = false;
+            if ( maxRecord != null && decoder.compareKey(maxRecord.getKey()) >= 0 ) {
+                finished = true;
+                return false;
+            }
+            slot = mapper.map(decoder.bb, 0, keySlot, factory);
+            return true;
+        }
+
+        @Override
+        public X next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException("RecordPacking");
+            X x = slot;
+            slot = null;
+            return x;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.dboe.base.file;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.apache.jena.atlas.RuntimeIOException;
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.dboe.sys.SystemIndex;
+
+/**
+ * Read-only access to an append-only file through memory mapped segments.
+ * <p>
+ * Only the stable part of the file is mapped: the bytes below a limit, given by
+ * the caller on each read, that will not be changed or truncated. The mapping is
+ * extended as the limit grows. Reads do not take a lock and do not change any
+ * shared state, so any number of threads can read at the same time.
+ * <p>
+ * This is for reading only; the file is written by some other means, such as a
+ * {@link BinaryDataFile}.
+ */
+public class MappedReadFile {
+    private final String filename;
+    private final int segmentSize;
+    private FileChannel channel;
+
+    // The segments and the length mapped, replaced as a whole when the mapping grows.
+    // The last segment may be short; it is mapped again when the file grows.
+    private volatile Mapping mapping = new Mapping(new MappedByteBuffer[0], 0);
+
+    private record Mapping(MappedByteBuffer[] segments, long length) {}
+
+    public MappedReadFile(String filename) {
+        this(filename, SystemIndex.SegmentSize);
+    }
+
+    public MappedReadFile(String filename, int segmentSize) {
+        if ( segmentSize <= 0 )
+            throw new IllegalArgumentException("Segment size must be positive: "+segmentSize);
+        this.filename = filename;
+        this.segmentSize = segmentSize;
+        try {
+            this.channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    /**
+     * Read bytes starting at {@code posn}, and not at or beyond {@code limit}, into
+     * the array {@code b}. The bytes below {@code limit} must be in the file and must
+     * not change.
+     *
+     * @return The number of bytes read, or -1 if {@code posn} is at or beyond the limit.
+     */
+    public int read(long posn, byte[] b, int start, int length, long limit) {
+        if ( posn < 0 )
+            throw new IllegalArgumentException("Negative position: "+posn);
+        if ( posn >= limit )
+            return -1;
+        long end = Math.min(limit, posn + length);
+        Mapping m = mapping;
+        if ( end > m.length )
+            m = extend(limit);
+        int n = (int)(end - posn);
+        int done = 0;
+        while ( done < n ) {
+            long p = posn + done;
+            int idx = (int)(p / segmentSize);
+            int offset = (int)(p % segmentSize);
+            int len = Math.min(n - done, segmentSize - offset);
+            // Absolute get: does not change the buffer position.
+            m.segments[idx].get(offset, b, start + done, len);
+            done += len;
+        }
+        return n;
+    }
+
+    /** The number of bytes currently mapped. */
+    public long mappedLength() {
+        return mapping.length;
+    }
+
+    // Map the file up to the limit.
+    private synchronized Mapping extend(long limit) {
+        checkOpen();
+        Mapping m = mapping;
+        if ( limit <= m.length )
+            return m;
+        try {
+            long size = channel.size();
+            if ( limit > size )
+                throw new FileException(filename+": limit "+limit+" is beyond the end of the file "+size);
+            int numSegments = (int)((limit + segmentSize - 1) / segmentSize);
+            MappedByteBuffer[] segments = Arrays.copyOf(m.segments, numSegments);
+            // The last segment of the old mapping may be short.
+            int first = (int)(m.length / segmentSize);
+            for ( int i = first ; i < numSegments ; i++ ) {
+                long start = (long)i * segmentSize;
+                long len = Math.min(segmentSize, limit - start);
+                segments[i] = channel.map(MapMode.READ_ONLY, start, len);
+            }
+            Mapping m2 = new Mapping(segments, limit);
+            mapping = m2;
+            return m2;
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    public boolean isOpen() {
+        return channel != null;
+    }
+
+    private void checkOpen() {
+        if ( ! isOpen() )
+            throw new RuntimeIOException("Not open: "+filename);
+    }
+
+    /**
+     * Close the file. The mapped memory is released when the buffers are garbage
+     * collected.
+     */
+    public synchronized void close() {
+        if ( ! isOpen() )
+            return;
+        mapping = new Mapping(new MappedByteBuffer[0], 0);
+        try { channel.close(); }
+        catch (IOException ex) { throw IOX.exception(ex); }
+        channel = null;
+    }
+}
@@ -18,14 +18,29 @@
 
 package org.apache.jena.dboe.base.recordbuffer;
 
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
 import org.apache.jena.dboe.base.block.Block;
+import org.apache.jena.dboe.base.buffer.RecordBuffer;
+import org.apache.jena.dboe.base.buffer.RecordPacking;
 import org.apache.jena.dboe.base.page.Page;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordException;
 import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.base.record.RecordMapper;
 import org.apache.jena.dboe.sys.SysDB;
 
 /**
  * B+Tree records nodes and hash buckets.
  * Add link field to a RecordBufferPageBase
+ * <p>
+ * A page is either plain, where the records are held in the block as a
+ * {@link RecordBuffer}, or packed, where the records are prefix compressed in the block
+ * (see {@link RecordPacking}). The records of a packed page are unpacked into a
+ * {@link RecordBuffer} in the heap when first needed; {@link #pack} writes them back
+ * into the block. Reading a packed page with {@link #iterator} or
+ * {@link #findGet} decodes from the block directly, without unpacking the page.
  */
 
 public final class RecordBufferPage extends RecordBufferPageBase
@@ -43,6 +58,10 @@ public final class RecordBufferPage extends RecordBufferPageBase
 
     private int link = Page.NO_ID;
 
+    private final boolean packed;
+    // Number of records of a packed page that has not been unpacked.
+    private int packedCount;
+
     public final int getLink() { return link; }
 
     public void setLink(int link) {
@@ -50,12 +69,136 @@ public final class RecordBufferPage extends RecordBufferPageBase
         getBackingBlock().getByteBuffer().putInt(LINK, link);
     }
 
+    /** Whether the records are prefix compressed in the block. */
+    public boolean isPacked() {
+        return packed;
+    }
+
     @Override
     protected void _reset(Block block) {
-        // Print this
+        // A packed page keeps its records: the new block is a copy of the old one
+        // and any changes have not yet been packed.
+        if ( packed )
+            return;
         super.rebuild(block, this.getCount());
     }
 
+    @Override
+    public RecordBuffer getRecordBuffer() {
+        if ( recBuff == null )
+            unpack();
+        return recBuff;
+    }
+
+    @Override
+    public int getCount() {
+        if ( recBuff == null )
+            return packedCount;
+        return recBuff.size();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return getRecordBuffer().maxSize();
+    }
+
+    @Override
+    public void setCount(int count) {
+        getRecordBuffer().setSize(count);
+    }
+
+    /**
+     * Make sure there is space for {@code n} records in the {@link RecordBuffer}.
+     * This may replace the {@link RecordBuffer} of a packed page.
+     * A plain page has a fixed size.
+     */
+    public void ensureCapacity(int n) {
+        if ( ! packed )
+            return;
+        RecordBuffer rBuff = getRecordBuffer();
+        if ( n <= rBuff.maxSize() )
+            return;
+        RecordBuffer rBuff2 = new RecordBuffer(getRecordFactory(), Math.max(n, 2 * rBuff.maxSize()));
+        rBuff.copy(0, rBuff2, 0, rBuff.size());
+        recBuff = rBuff2;
+    }
+
+    /** Whether the page may not have space for another record. */
+    public boolean isFull() {
+        if ( ! packed )
+            return recBuff.isFull();
+        int maxEntry = RecordPacking.maxEntrySize(getRecordFactory());
+        // Quick check: space for all the records unpacked.
+        if ( (getCount() + 1) * maxEntry <= dataSpace() )
+            return false;
+        return RecordPacking.packedSize(getRecordBuffer()) + maxEntry > dataSpace();
+    }
+
+    /**
+     * Whether the page is at or below the minimum size (half full).
+     * Two pages of minimum size can be merged.
+     */
+    public boolean isMinSize() {
+        if ( ! packed )
+            return recBuff.size() <= recBuff.maxSize() / 2;
+        int maxEntry = RecordPacking.maxEntrySize(getRecordFactory());
+        int limit = dataSpace() / 2 - maxEntry;
+        // A page with one record is always small enough to merge.
+        if ( getCount() <= 1 || getCount() * maxEntry <= limit )
+            return true;
+        return RecordPacking.packedSize(getRecordBuffer()) <= limit;
+    }
+
+    /** Index of the last record of the lower page when this page is split. */
+    public int splitIndex() {
+        if ( ! packed )
+            return recBuff.size() / 2 - 1;
+        return RecordPacking.splitIndex(getRecordBuffer());
+    }
+
+    /** Find a record by key, returning null if there is no such record. */
+    public Record findGet(Record key) {
+        if ( recBuff == null )
+            return RecordPacking.find(getBackingBlock().getByteBuffer(), headerLength, packedCount, getRecordFactory(), key);
+        return recBuff.findGet(key);
+    }
+
+    /** Iterator over the records from min (inclusive) to max (exclusive). */
+    public Iterator<Record> iterator(Record minRecord, Record maxRecord) {
+        if ( recBuff == null )
+            return RecordPacking.iterator(getBackingBlock().getByteBuffer(), headerLength, packedCount, getRecordFactory(), minRecord, maxRecord);
+        return recBuff.iterator(minRecord, maxRecord);
+    }
+
+    /** Iterator over the records from min (inclusive) to max (exclusive), applying a {@link RecordMapper}. */
+    public <X> Iterator<X> iterator(Record minRecord, Record maxRecord, RecordMapper<X> mapper) {
+        if ( recBuff == null )
+            return RecordPacking.iterator(getBackingBlock().getByteBuffer(), headerLength, packedCount, getRecordFactory(), minRecord, maxRecord, mapper);
+        return recBuff.iterator(minRecord, maxRecord, mapper);
+    }
+
+    /** Write the records of a packed page into the block. */
+    public void pack() {
+        if ( ! packed || recBuff == null )
+            return;
+        int size = RecordPacking.packedSize(recBuff);
+        if ( size > dataSpace() )
+            throw new RecordException(String.format("Packed records too large for block: %d > %d", size, dataSpace()));
+        RecordPacking.pack(recBuff, getBackingBlock().getByteBuffer(), headerLength);
+    }
+
+    private void unpack() {
+        ByteBuffer bb = getBackingBlock().getByteBuffer();
+        RecordBuffer rBuff = new RecordBuffer(getRecordFactory(), packedCount);
+        RecordPacking.unpack(bb, headerLength, packedCount, rBuff);
+        recBuff = rBuff;
+    }
+
+    // Space in the block for packed records.
+    private int dataSpace() {
+        return getBackingBlock().getByteBuffer().capacity() - headerLength;
+    }
+
     public static int calcRecordSize(RecordFactory factory, int blkSize)
     { return RecordBufferPageBase.calcRecordSize(factory, blkSize, FIELD_LENGTH); }
 
@@ -64,25 +207,52 @@ public final class RecordBufferPage extends RecordBufferPageBase
 
     /** The construction methods */
     public static RecordBufferPage createBlank(Block block,RecordFactory factory) {
+        return createBlank(block, factory, false);
+    }
+
+    public static RecordBufferPage createBlank(Block block, RecordFactory factory, boolean packed) {
         int count = 0;
         int linkId = NO_ID;
+        if ( packed ) {
+            RecordBufferPage rbp = new RecordBufferPage(block, factory, linkId);
+            // Start with space for as many records as a plain page.
+            rbp.recBuff = new RecordBuffer(factory, calcRecordSize(factory, block.getByteBuffer().capacity()));
+            return rbp;
+        }
         return new RecordBufferPage(block, factory, count, linkId);
     }
 
     public static RecordBufferPage format(Block block, RecordFactory factory) {
+        return format(block, factory, false);
+    }
+
+    public static RecordBufferPage format(Block block, RecordFactory factory, boolean packed) {
         int count = block.getByteBuffer().getInt(COUNT);
         int linkId = block.getByteBuffer().getInt(LINK);
+        if ( packed ) {
+            RecordBufferPage rbp = new RecordBufferPage(block, factory, linkId);
+            rbp.packedCount = count;
+            return rbp;
+        }
         return new RecordBufferPage(block, factory, count, linkId);
     }
 
     private RecordBufferPage(Block block, RecordFactory factory, int count, int linkId) {
         super(block, FIELD_LENGTH, factory, count);
         this.link = linkId;
+        this.packed = false;
+    }
+
+    // Packed page.
+    private RecordBufferPage(Block block, RecordFactory factory, int linkId) {
+        super(block, FIELD_LENGTH, factory);
+        this.link = linkId;
+        this.packed = true;
     }
 
     @Override
     public String toString()
-    { return String.format("RecordBufferPage[id=%d,link=%d]: %s", getBackingBlock().getId(), getLink(), recBuff); }
+    { return String.format("RecordBufferPage[id=%d,link=%d]: %s", getBackingBlock().getId(), getLink(), getRecordBuffer()); }
 
     @Override
     public String getRefStr() {
@@ -64,10 +64,15 @@ public abstract class RecordBufferPageBase extends PageBase // implements Page
 
     protected RecordBufferPageBase(Block block, int offset, RecordFactory factory, int count) {
         // This code knows the alignment of the records in the ByteBuffer.
+        this(block, offset, factory);
+        rebuild(block, count);
+    }
+
+    /** For subclasses that set the {@link RecordBuffer} themselves. */
+    protected RecordBufferPageBase(Block block, int offset, RecordFactory factory) {
         super(block);
         this.headerLength = FIELD_LENGTH + offset; // NB +4 for the count field
         this.factory = factory;
-        rebuild(block, count);
     }
 
     protected void rebuild(Block block, int count) {
@@ -78,18 +83,22 @@ public abstract class RecordBufferPageBase extends PageBase // implements Page
         this.recBuff = new RecordBuffer(bb, factory, count);
     }
 
-    public final RecordBuffer getRecordBuffer() {
+    public RecordBuffer getRecordBuffer() {
         return recBuff;
     }
 
-    public final int getCount() {
+    public int getCount() {
         return recBuff.size();
     }
 
-    public final int getMaxSize() {
+    public int getMaxSize() {
         return recBuff.maxSize();
     }
 
+    protected final RecordFactory getRecordFactory() {
+        return factory;
+    }
+
     public void setCount(int count) {
         recBuff.setSize(count);
     }
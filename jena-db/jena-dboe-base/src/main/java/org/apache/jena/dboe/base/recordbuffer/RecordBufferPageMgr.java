@@ -38,23 +38,38 @@ final
 public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
 {
     private final RecordFactory factory;
+    private final boolean packed;
 
     public RecordBufferPageMgr(RecordFactory factory, BlockMgr blockMgr) {
-        super(new Block2RecordBufferPage(factory), blockMgr);
+        this(factory, blockMgr, false);
+    }
+
+    /** Manager for pages of records, with the records prefix compressed if {@code packed} is true. */
+    public RecordBufferPageMgr(RecordFactory factory, BlockMgr blockMgr, boolean packed) {
+        super(new Block2RecordBufferPage(factory, packed), blockMgr);
         this.factory = factory;
+        this.packed = packed;
     }
 
     public RecordFactory getRecordFactory() { return factory; }
 
+    public boolean isPacked() { return packed; }
+
     public RecordBufferPage create() {
         return super.create(BlockType.RECORD_BLOCK);
     }
 
     public static class Block2RecordBufferPage implements BlockConverter<RecordBufferPage> {
         private RecordFactory factory;
+        private final boolean packed;
 
         public Block2RecordBufferPage(RecordFactory factory) {
+            this(factory, false);
+        }
+
+        public Block2RecordBufferPage(RecordFactory factory, boolean packed) {
             this.factory = factory;
+            this.packed = packed;
         }
 
         @Override
@@ -62,14 +77,14 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
             if ( blkType != BlockType.RECORD_BLOCK )
                 throw new RecordException("Not RECORD_BLOCK: " + blkType);
             // Initially empty
-            RecordBufferPage rb = RecordBufferPage.createBlank(block, factory);
+            RecordBufferPage rb = RecordBufferPage.createBlank(block, factory, packed);
             return rb;
         }
 
         @Override
         public RecordBufferPage fromBlock(Block block) {
             synchronized (block) {
-                RecordBufferPage rb = RecordBufferPage.format(block, factory);
+                RecordBufferPage rb = RecordBufferPage.format(block, factory, packed);
                 // int count = block.getByteBuffer().getInt(COUNT);
                 // int linkId = block.getByteBuffer().getInt(LINK);
                 // RecordBufferPage rb = new RecordBufferPage(block, linkId,
@@ -80,7 +95,7 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
 
         @Override
         public Block toBlock(RecordBufferPage rbp) {
-            int count = rbp.getRecordBuffer().size();
+            rbp.pack();
             ByteBuffer bb = rbp.getBackingBlock().getByteBuffer();
             bb.putInt(COUNT, rbp.getCount());
             bb.putInt(LINK, rbp.getLink());
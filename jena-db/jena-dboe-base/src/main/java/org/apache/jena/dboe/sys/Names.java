@@ -64,6 +64,7 @@ public class Names
     /* Node files */
     public static final String extBdfState              = "bdf";           // Node state
     public static final String extObjNodeData           = "obj";
+    public static final String extNodeHashFilter        = "bloom";         // Node hash filter
     public static final String nodeTableBaseName        = "nodes";         // Node table
 
     /** Prefixes file */
@@ -74,6 +75,7 @@ public class Names
     public static final String optFixed                 = "fixed.opt";
     public static final String optNone                  = "none.opt";
     public static final String optDefault               = optFixed;
+    public static final String statsBaseName            = "stats";         // Statistics maintained by transactions
 
     public static final String extMeta                  = "info";
     public static final String directoryMetafile        = "this";          // Root name of the directory for a metafile.
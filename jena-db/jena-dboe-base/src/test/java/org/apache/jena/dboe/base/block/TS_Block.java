@@ -27,6 +27,7 @@ import org.junit.runners.Suite;
     , TestBlockMgrDirect.class
     , TestBlockMgrMapped.class
     , TestBlockMgrTracked.class
+    , TestBlockMgrCache.class
 })
 
 public class TS_Block
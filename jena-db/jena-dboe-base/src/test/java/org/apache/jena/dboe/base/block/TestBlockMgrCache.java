@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.block;
+
+import static org.apache.jena.atlas.lib.ByteBufferLib.fill;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.ConfigTestDBOE;
+import org.apache.jena.dboe.base.file.BlockAccess;
+import org.apache.jena.dboe.base.file.BlockAccessDirect;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestBlockMgrCache extends AbstractTestBlockMgr
+{
+    static final String filename = ConfigTestDBOE.getTestingDir()+"/block-mgr-cache";
+
+    @BeforeClass static public void remove1() { FileOps.delete(filename); }
+    @AfterClass  static public void remove2() { FileOps.delete(filename); }
+
+    @Override
+    protected BlockMgr make() {
+        return make(64, 8);
+    }
+
+    private static BlockMgrCache make(int readSlots, int writeSlots) {
+        FileOps.delete(filename);
+        BlockAccess file = new BlockAccessDirect(filename, BlkSize);
+        BlockMgr mgr = new BlockMgrFileAccess(file, BlkSize);
+        return (BlockMgrCache)BlockMgrCache.create(readSlots, writeSlots, mgr);
+    }
+
+    // Write N blocks, each filled with its number, and flush.
+    private static long[] writeBlocks(BlockMgr mgr, int N) {
+        long[] ids = new long[N];
+        mgr.beginUpdate();
+        for ( int i = 0 ; i < N ; i++ ) {
+            Block block = mgr.allocate(BlkSize);
+            fill(block.getByteBuffer(), (byte)i);
+            mgr.write(block);
+            ids[i] = block.getId();
+        }
+        mgr.sync();
+        mgr.endUpdate();
+        return ids;
+    }
+
+    @Test public void cache_stats_1() {
+        BlockMgrCache mgr = make(100, 0);
+        try {
+            long[] ids = writeBlocks(mgr, 10);
+            mgr.beginRead();
+            // No write cache: blocks are read into the read cache.
+            for ( long id : ids )
+                mgr.getRead(id);
+            assertEquals(10, mgr.getCacheMisses());
+            assertEquals(0, mgr.getCacheReadHits());
+            for ( long id : ids )
+                mgr.getRead(id);
+            assertEquals(10, mgr.getCacheMisses());
+            assertEquals(10, mgr.getCacheReadHits());
+            assertEquals(0, mgr.getReadCacheEvictions());
+            mgr.endRead();
+        } finally { mgr.close(); }
+    }
+
+    @Test public void cache_stats_2() {
+        BlockMgrCache mgr = make(100, 10);
+        try {
+            long[] ids = writeBlocks(mgr, 5);
+            mgr.beginRead();
+            // Flushing the write cache moves the blocks to the read cache.
+            assertEquals(5, mgr.getReadCacheSize());
+            for ( int i = 0 ; i < ids.length ; i++ )
+                assertEquals((byte)i, mgr.getRead(ids[i]).getByteBuffer().get(0));
+            assertEquals(5, mgr.getCacheReadHits());
+            assertEquals(0, mgr.getCacheMisses());
+            mgr.endRead();
+        } finally { mgr.close(); }
+    }
+
+    @Test public void cache_evict_1() {
+        BlockMgrCache mgr = make(4, 20);
+        try {
+            long[] ids = writeBlocks(mgr, 20);
+            assertEquals(4, mgr.getReadCacheSize());
+            assertEquals(16, mgr.getReadCacheEvictions());
+            mgr.beginRead();
+            long misses = mgr.getCacheMisses();
+            // First block was evicted.
+            Block block = mgr.getRead(ids[0]);
+            assertEquals((byte)0, block.getByteBuffer().get(0));
+            assertEquals(misses+1, mgr.getCacheMisses());
+            mgr.endRead();
+        } finally { mgr.close(); }
+    }
+
+    @Test public void cache_none() {
+        BlockMgrCache mgr = make(0, 0);
+        try {
+            long[] ids = writeBlocks(mgr, 3);
+            mgr.beginRead();
+            mgr.getRead(ids[0]);
+            mgr.getRead(ids[0]);
+            assertEquals(0, mgr.getReadCacheSize());
+            assertEquals(2, mgr.getCacheMisses());
+            mgr.endRead();
+        } finally { mgr.close(); }
+    }
+
+    @Test public void cache_resetAlloc() {
+        BlockMgrCache mgr = make(100, 10);
+        try {
+            long[] ids = writeBlocks(mgr, 10);
+            mgr.beginUpdate();
+            mgr.resetAlloc(ids[5]);
+            mgr.endUpdate();
+            assertEquals(5, mgr.getReadCacheSize());
+        } finally { mgr.close(); }
+    }
+
+    @Test public void cache_striped_1() {
+        BlockCacheStriped cache = new BlockCacheStriped(1000, 8);
+        assertEquals(8, cache.segments());
+        assertEquals(1, new BlockCacheStriped(20, 8).segments());
+        assertEquals(1, new BlockCacheStriped(0, 8).segments());
+    }
+
+    @Test public void cache_concurrent_readers() throws Exception {
+        int N = 200;
+        BlockMgrCache mgr = make(64, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            long[] ids = writeBlocks(mgr, N);
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for ( int t = 0 ; t < 4 ; t++ ) {
+                final int seed = t;
+                tasks.add(()->{
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for ( int i = 0 ; i < 5000 ; i++ ) {
+                        int x = ( i + seed * 7 ) % 10 == 0 ? random.nextInt(N) : random.nextInt(16);
+                        Block block = mgr.getRead(ids[x]);
+                        if ( block.getId() != ids[x] || block.getByteBuffer().get(BlkSize-1) != (byte)x )
+                            return false;
+                    }
+                    return true;
+                });
+            }
+            mgr.beginRead();
+            for ( Future<Boolean> f : executor.invokeAll(tasks) )
+                assertTrue(f.get());
+            mgr.endRead();
+            assertEquals(20000, mgr.getCacheReadHits() + mgr.getCacheMisses());
+            assertTrue(mgr.getReadCacheSize() <= 64 + 16);
+        } finally {
+            executor.shutdown();
+            mgr.close();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.buffer;
+
+import static org.apache.jena.dboe.test.RecordLib.r;
+import static org.apache.jena.dboe.test.RecordLib.toIntList;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.test.RecordLib;
+import org.junit.Test;
+
+public class TestRecordPacking
+{
+    static RecordFactory recordFactory = RecordLib.recordFactory;
+
+    @Test public void packing_empty() {
+        RecordBuffer rb = make();
+        assertEquals(0, RecordPacking.packedSize(rb));
+        ByteBuffer bb = ByteBuffer.allocate(10);
+        assertEquals(0, RecordPacking.pack(rb, bb, 0));
+        assertFalse(RecordPacking.iterator(bb, 0, 0, recordFactory, null, null).hasNext());
+    }
+
+    @Test public void packing_roundTrip() {
+        RecordBuffer rb = make(1, 2, 3, 300, 70000, 70001);
+        int size = RecordPacking.packedSize(rb);
+        // Shared prefixes: the first record is in full.
+        assertTrue(size < rb.size() * (1 + RecordLib.TestRecordLength));
+        ByteBuffer bb = ByteBuffer.allocate(size + 3);
+        assertEquals(size, RecordPacking.pack(rb, bb, 3));
+        RecordBuffer rb2 = new RecordBuffer(recordFactory, 10);
+        RecordPacking.unpack(bb, 3, rb.size(), rb2);
+        assertEquals(rb.size(), rb2.size());
+        for ( int i = 0 ; i < rb.size() ; i++ )
+            assertEquals(rb.get(i), rb2.get(i));
+    }
+
+    @Test public void packing_find() {
+        RecordBuffer rb = make(2, 4, 6, 8);
+        ByteBuffer bb = pack(rb);
+        assertEquals(r(6), RecordPacking.find(bb, 0, 4, recordFactory, r(6)));
+        assertEquals(r(2), RecordPacking.find(bb, 0, 4, recordFactory, r(2)));
+        assertNull(RecordPacking.find(bb, 0, 4, recordFactory, r(5)));
+        assertNull(RecordPacking.find(bb, 0, 4, recordFactory, r(9)));
+    }
+
+    @Test public void packing_iterator() {
+        RecordBuffer rb = make(2, 4, 6, 8);
+        ByteBuffer bb = pack(rb);
+        assertEquals(toIntList(2, 4, 6, 8), iter(bb, null, null));
+        assertEquals(toIntList(4, 6), iter(bb, r(3), r(8)));
+        assertEquals(toIntList(6, 8), iter(bb, r(6), null));
+        assertEquals(toIntList(), iter(bb, r(9), null));
+    }
+
+    @Test public void packing_split() {
+        RecordBuffer rb = make(1, 2, 3, 4, 100000, 200000, 300000, 400000);
+        int idx = RecordPacking.splitIndex(rb);
+        assertTrue(idx >= 0 && idx <= rb.size() - 2);
+        // The records with less shared prefix take more space.
+        assertTrue(idx >= 3);
+    }
+
+    private static List<Integer> iter(ByteBuffer bb, Record min, Record max) {
+        Iterator<Record> iter = RecordPacking.iterator(bb, 0, 4, recordFactory, min, max);
+        return RecordLib.r(iter);
+    }
+
+    private static ByteBuffer pack(RecordBuffer rb) {
+        ByteBuffer bb = ByteBuffer.allocate(RecordPacking.packedSize(rb));
+        RecordPacking.pack(rb, bb, 0);
+        return bb;
+    }
+
+    private static RecordBuffer make(int... vals) {
+        RecordBuffer rb = new RecordBuffer(recordFactory, 10);
+        for ( int v : vals )
+            rb.add(r(v));
+        return rb;
+    }
+}
@@ -38,6 +38,7 @@ import org.junit.runners.Suite;
     , TestBinaryDataRAFInitial.class
     , TestBinaryDataRAF.class
     , TestBinaryDataFileWriteBufferedFile.class
+    , TestMappedReadFile.class
 
     , TestProcessFileLock.class
 })
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.dboe.base.file;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.ConfigTestDBOE;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMappedReadFile {
+    static String filename = ConfigTestDBOE.getTestingDir()+"/test-mapped-read-file";
+
+    private BinaryDataFile file;
+
+    @Before public void before() {
+        FileOps.ensureDir(ConfigTestDBOE.getTestingDir());
+        FileOps.delete(filename);
+        file = new BinaryDataFileRandomAccess(filename);
+        file.open();
+    }
+
+    @After public void after() {
+        file.close();
+        FileOps.delete(filename);
+    }
+
+    private static byte[] bytes(int start, int length) {
+        byte[] b = new byte[length];
+        for ( int i = 0 ; i < length ; i++ )
+            b[i] = (byte)(start + i);
+        return b;
+    }
+
+    private void append(byte[] b) {
+        file.write(b, 0, b.length);
+        file.sync();
+    }
+
+    @Test public void mapped_read_01() {
+        append(bytes(0, 10));
+        MappedReadFile mapped = new MappedReadFile(filename, 4);
+        byte[] b = new byte[10];
+        assertEquals(10, mapped.read(0, b, 0, 10, 10));
+        assertArrayEquals(bytes(0, 10), b);
+        mapped.close();
+    }
+
+    @Test public void mapped_read_02() {
+        // Across segments, within the limit.
+        append(bytes(0, 20));
+        MappedReadFile mapped = new MappedReadFile(filename, 4);
+        byte[] b = new byte[20];
+        assertEquals(7, mapped.read(3, b, 2, 7, 20));
+        for ( int i = 0 ; i < 7 ; i++ )
+            assertEquals(3 + i, b[2 + i]);
+        // Short read at the limit.
+        assertEquals(3, mapped.read(12, b, 0, 10, 15));
+        assertEquals(-1, mapped.read(15, b, 0, 10, 15));
+        assertEquals(20, mapped.mappedLength());
+        mapped.close();
+    }
+
+    @Test public void mapped_read_03() {
+        // The file grows after it is mapped.
+        append(bytes(0, 6));
+        MappedReadFile mapped = new MappedReadFile(filename, 4);
+        byte[] b = new byte[20];
+        assertEquals(6, mapped.read(0, b, 0, 20, 6));
+        append(bytes(6, 10));
+        assertEquals(10, mapped.read(4, b, 0, 10, 16));
+        assertEquals(16, mapped.mappedLength());
+        for ( int i = 0 ; i < 10 ; i++ )
+            assertEquals(4 + i, b[i]);
+        mapped.close();
+    }
+
+    @Test public void mapped_read_04() {
+        // Bytes after the limit can be truncated.
+        append(bytes(0, 8));
+        MappedReadFile mapped = new MappedReadFile(filename, 4);
+        byte[] b = new byte[8];
+        assertEquals(6, mapped.read(0, b, 0, 8, 6));
+        file.truncate(6);
+        append(bytes(50, 2));
+        assertEquals(2, mapped.read(6, b, 0, 8, 8));
+        assertEquals(50, b[0]);
+        assertEquals(51, b[1]);
+        mapped.close();
+    }
+
+    @Test(expected=FileException.class)
+    public void mapped_read_05() {
+        append(bytes(0, 4));
+        MappedReadFile mapped = new MappedReadFile(filename, 4);
+        try {
+            mapped.read(0, new byte[8], 0, 8, 8);
+        } finally { mapped.close(); }
+    }
+
+    @Test public void mapped_read_concurrent() throws InterruptedException {
+        int N = 1000;
+        append(bytes(0, N));
+        MappedReadFile mapped = new MappedReadFile(filename, 64);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for ( int t = 0 ; t < 4 ; t++ ) {
+            int seed = t;
+            Thread thread = new Thread(()->{
+                try {
+                    byte[] b = new byte[10];
+                    for ( int i = 0 ; i < 5000 ; i++ ) {
+                        int posn = (i * 7 + seed * 13) % (N - 10);
+                        assertEquals(10, mapped.read(posn, b, 0, 10, N));
+                        for ( int j = 0 ; j < 10 ; j++ )
+                            assertEquals((byte)(posn + j), b[j]);
+                    }
+                } catch (Throwable th) {
+                    synchronized (errors) { errors.add(th); }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for ( Thread thread : threads )
+            thread.join();
+        mapped.close();
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+}
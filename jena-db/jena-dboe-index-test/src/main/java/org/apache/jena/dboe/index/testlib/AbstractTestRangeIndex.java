@@ -33,6 +33,8 @@ import java.util.List;
 import org.junit.Test;
 
 import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.index.RangeCursor;
 import org.apache.jena.dboe.index.RangeIndex;
 
 public abstract class AbstractTestRangeIndex {
@@ -372,6 +374,50 @@ public abstract class AbstractTestRangeIndex {
         assertEquals(expected, x);
     }
 
+    @Test
+    public void tree_cursor_01() {
+        int[] keys = {0, 2, 4, 6, 8, 1, 3, 5, 7, 9};
+        RangeIndex rIndex = makeRangeIndex(2);
+        add(rIndex, keys);
+        RangeCursor<Record> cursor = rIndex.rangeCursor(RecordFactory.mapperRecord);
+        assertEquals(toIntList(1, 2), toIntList(cursor.iterator(r(1), r(3))));
+        assertEquals(toIntList(2), toIntList(cursor.iterator(r(2), r(3))));
+        assertEquals(toIntList(), toIntList(cursor.iterator(r(4), r(4))));
+        assertEquals(toIntList(5, 6, 7, 8), toIntList(cursor.iterator(r(5), r(9))));
+        assertEquals(toIntList(9), toIntList(cursor.iterator(r(9), null)));
+        assertEquals(toIntList(), toIntList(cursor.iterator(r(10), r(20))));
+    }
+
+    @Test
+    public void tree_cursor_02() {
+        // Not in ascending order.
+        int[] keys = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        RangeIndex rIndex = makeRangeIndex(2);
+        add(rIndex, keys);
+        RangeCursor<Record> cursor = rIndex.rangeCursor(RecordFactory.mapperRecord);
+        assertEquals(toIntList(8), toIntList(cursor.iterator(r(8), r(9))));
+        assertEquals(toIntList(0, 1, 2), toIntList(cursor.iterator(null, r(3))));
+        assertEquals(toIntList(6), toIntList(cursor.iterator(r(6), r(7))));
+        assertEquals(toIntList(keys), toIntList(cursor.iterator(null, null)));
+    }
+
+    @Test
+    public void tree_cursor_03() {
+        // Every single key lookup, ascending.
+        int N = 500;
+        int[] keys = new int[N];
+        for ( int i = 0; i < N ; i++ )
+            keys[i] = 2*i;
+        RangeIndex rIndex = makeRangeIndex(3);
+        add(rIndex, keys);
+        RangeCursor<Record> cursor = rIndex.rangeCursor(RecordFactory.mapperRecord);
+        for ( int i = 0; i < 2*N ; i++ ) {
+            List<Integer> x = toIntList(cursor.iterator(r(i), r(i+1)));
+            List<Integer> expected = ( i % 2 == 0 ) ? toIntList(i) : toIntList();
+            assertEquals(expected, x);
+        }
+    }
+
     @Test
     public void tree_ret_1() {
         int[] keys = {1, 2, 3, 4, 5};
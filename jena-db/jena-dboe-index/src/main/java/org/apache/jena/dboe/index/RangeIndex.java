@@ -19,6 +19,7 @@
 package org.apache.jena.dboe.index;
 
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordMapper;
@@ -35,4 +36,22 @@ public interface RangeIndex extends Index
 
     /** Return the record containing the greatest key - may or may not have the associated value */
     public Record maxKey();
+
+    /**
+     * Return up to {@code maxKeys} keys, in order, strictly between min (exclusive) and
+     * max (exclusive), that divide the range into parts of roughly similar size.
+     * A null min or max means that end of the range is open. The list may be
+     * empty if the index can not, or does not need to, divide the range.
+     */
+    public default List<Record> splitKeys(Record recordMin, Record recordMax, int maxKeys) {
+        return List.of();
+    }
+
+    /**
+     * Return a {@link RangeCursor} for a sequence of range lookups, such as the probes of
+     * a join, that are sorted by key. The default starts each lookup afresh.
+     */
+    public default <X> RangeCursor<X> rangeCursor(RecordMapper<X> mapper) {
+        return (recordMin, recordMax) -> iterator(recordMin, recordMax, mapper);
+    }
 }
@@ -73,6 +73,10 @@ public class RangeIndexWrapper implements RangeIndex
     public <X> Iterator<X> iterator(Record minRec, Record maxRec, RecordMapper<X> mapper)
     { return rIndex.iterator(minRec, maxRec, mapper); }
 
+    @Override
+    public <X> RangeCursor<X> rangeCursor(RecordMapper<X> mapper)
+    { return rIndex.rangeCursor(mapper); }
+
     @Override
     public boolean isEmpty()
     { return rIndex.isEmpty(); }
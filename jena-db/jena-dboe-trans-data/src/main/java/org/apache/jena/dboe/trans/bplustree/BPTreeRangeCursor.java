@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.trans.bplustree;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordMapper;
+import org.apache.jena.dboe.index.RangeCursor;
+
+/**
+ * Range lookups that keep the path from the root to the last records page used.
+ * A lookup goes back up the path only as far as the first node whose subtree holds
+ * the new minimum key, so lookups in ascending key order that fall in the same or
+ * nearby records pages do not start from the root each time.
+ * <p>
+ * A range that continues beyond the records page of its minimum key continues as a
+ * normal range iterator, started when the iteration reaches the end of that page.
+ */
+class BPTreeRangeCursor<X> implements RangeCursor<X> {
+
+    // A page on the path and the keys of its subtree: low (exclusive) to high (inclusive).
+    // null means unbounded.
+    private record Step(BPTreePage page, Record low, Record high) {}
+
+    private final BPTreeNode root;
+    private final int keyLength;
+    private final RecordMapper<X> mapper;
+    private final List<Step> path = new ArrayList<>();
+
+    BPTreeRangeCursor(BPTreeNode root, int keyLength, RecordMapper<X> mapper) {
+        this.root = root;
+        this.keyLength = keyLength;
+        this.mapper = mapper;
+        path.add(new Step(root, null, null));
+    }
+
+    @Override
+    public Iterator<X> iterator(Record minRec, Record maxRec) {
+        if ( minRec != null && maxRec != null && Record.keyGE(minRec, maxRec) )
+            return Iter.nullIterator();
+        root.bpTree.startReadBlkMgr();
+        try {
+            Step step = seek(minRec);
+            BPTreeRecords records = (BPTreeRecords)step.page;
+            Iterator<X> iter = records.iterator(minRec, maxRec, mapper);
+            if ( step.high == null || ( maxRec != null && !Record.keyGT(maxRec, step.high) ) )
+                return iter;
+            // May go into the following records pages.
+            // Only start that lookup if the caller reads past this records page.
+            Record after = keyAfter(step.high);
+            if ( after == null )
+                return iter;
+            Iterator<X> rest = Iter.flatMap(Iter.singletonIterator(after),
+                                            r -> BPTreeRangeIteratorMapper.create(root, r, maxRec, keyLength, mapper));
+            return Iter.concat(iter, rest);
+        } finally {
+            root.bpTree.finishReadBlkMgr();
+        }
+    }
+
+    /** Move the path to the records page for the key, and return the last step. */
+    private Step seek(Record key) {
+        // Up
+        while ( path.size() > 1 && !covers(path.get(path.size()-1), key) )
+            path.remove(path.size()-1);
+        // Down
+        Step step = path.get(path.size()-1);
+        while ( step.page instanceof BPTreeNode node ) {
+            int idx = ( key == null ) ? 0 : BPT.apply(node.findSlot(key));
+            Record low = ( idx == 0 ) ? step.low : node.getRecordBuffer().get(idx-1);
+            Record high = ( idx == node.getCount() ) ? step.high : node.getRecordBuffer().get(idx);
+            step = new Step(node.get(idx), low, high);
+            path.add(step);
+        }
+        return step;
+    }
+
+    /** The smallest key after the key of the record, or null if there is none. */
+    private static Record keyAfter(Record record) {
+        byte[] key = record.getKey().clone();
+        for ( int i = key.length-1 ; i >= 0 ; i-- ) {
+            if ( ++key[i] != 0 )
+                return new Record(key, null);
+        }
+        return null;
+    }
+
+    private static boolean covers(Step step, Record key) {
+        if ( step.low != null && ( key == null || Record.keyLE(key, step.low) ) )
+            return false;
+        if ( step.high != null && ( key == null || Record.keyGT(key, step.high) ) )
+            return false;
+        return true;
+    }
+}
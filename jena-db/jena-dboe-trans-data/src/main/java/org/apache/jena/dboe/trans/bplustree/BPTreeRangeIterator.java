@@ -96,7 +96,7 @@ class BPTreeRangeIterator implements Iterator<Record> {
 
     private static Iterator<Record> getRecordsIterator(BPTreeRecords records, Record minRecord, Record maxRecord) {
         records.bpTree.startReadBlkMgr();
-        Iterator<Record> iter = records.getRecordBuffer().iterator(minRecord, maxRecord);
+        Iterator<Record> iter = records.iterator(minRecord, maxRecord);
         records.bpTree.finishReadBlkMgr();
         return iter;
     }
@@ -107,7 +107,7 @@ class BPTreeRangeIteratorMapper<X> implements Iterator<X> {
 
     private static<X>  Iterator<X> getRecordsIterator(BPTreeRecords records, Record minRecord, Record maxRecord, RecordMapper<X> mapper) {
         records.bpTree.startReadBlkMgr();
-        Iterator<X> iter = records.getRecordBuffer().iterator(minRecord, maxRecord, mapper);
+        Iterator<X> iter = records.iterator(minRecord, maxRecord, mapper);
         records.bpTree.finishReadBlkMgr();
         return iter;
     }
@@ -23,6 +23,8 @@ import static org.apache.jena.atlas.lib.Alg.decodeIndex;
 import static org.apache.jena.dboe.trans.bplustree.BPT.CheckingNode;
 import static org.apache.jena.dboe.trans.bplustree.BPT.promotePage;
 
+import java.util.Iterator;
+
 import org.apache.jena.atlas.io.IndentedWriter;
 import org.apache.jena.dboe.base.StorageException;
 import org.apache.jena.dboe.base.block.Block;
@@ -30,6 +32,7 @@ import org.apache.jena.dboe.base.block.BlockMgr;
 import org.apache.jena.dboe.base.buffer.RecordBuffer;
 import org.apache.jena.dboe.base.page.Page;
 import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordMapper;
 import org.apache.jena.dboe.base.recordbuffer.RecordBufferPage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +40,9 @@ import org.slf4j.LoggerFactory;
 /**
  * B+Tree wrapper over a block of records in a RecordBufferPage.
  * This class adds no persistent state to a RecordBufferPage.
+ * <p>
+ * Whether the page is full, or small enough to merge, and where it splits are
+ * decided by the RecordBufferPage, which may hold the records packed.
  */
 public final class BPTreeRecords extends BPTreePage {
     private static Logger log = LoggerFactory.getLogger(BPTreeRecords.class);
@@ -48,14 +54,11 @@ public final class BPTreeRecords extends BPTreePage {
 
     private final RecordBufferPage rBuffPage;
     private final BPTreeRecordsMgr bprRecordsMgr;
-    private RecordBuffer           rBuff;        // Used heavily. Derived from
-                                                   // rBuffPage
 
     BPTreeRecords(BPTreeRecordsMgr mgr, RecordBufferPage rbp) {
         super(mgr.getBPTree());
         this.bprRecordsMgr = mgr;
         rBuffPage = rbp;
-        rBuff = rBuffPage.getRecordBuffer();
     }
 
     RecordBufferPage getRecordBufferPage() {
@@ -63,11 +66,27 @@ public final class BPTreeRecords extends BPTreePage {
     }
 
     RecordBuffer getRecordBuffer() {
-        return rBuff;
+        return rBuff();
+    }
+
+    // Used heavily. A packed page is unpacked on first use, and its RecordBuffer
+    // may be replaced to make space (RecordBufferPage.ensureCapacity) so do not keep it.
+    private RecordBuffer rBuff() {
+        return rBuffPage.getRecordBuffer();
+    }
+
+    /** Iterator over the records from min (inclusive) to max (exclusive). */
+    Iterator<Record> iterator(Record minRec, Record maxRec) {
+        return rBuffPage.iterator(minRec, maxRec);
+    }
+
+    /** Iterator over the records from min (inclusive) to max (exclusive), applying a {@link RecordMapper}. */
+    <X> Iterator<X> iterator(Record minRec, Record maxRec, RecordMapper<X> mapper) {
+        return rBuffPage.iterator(minRec, maxRec, mapper);
     }
 
     public final Record get(int idx) {
-        return rBuff.get(idx);
+        return rBuff().get(idx);
     }
 
     @Override
@@ -83,7 +102,6 @@ public final class BPTreeRecords extends BPTreePage {
     @Override
     public void reset(Block block) {
         rBuffPage.reset(block);
-        rBuff = rBuffPage.getRecordBuffer();
     }
 
     int getLink() {
@@ -92,27 +110,24 @@ public final class BPTreeRecords extends BPTreePage {
 
     @Override
     public boolean isFull() {
-        return (rBuff.size() >= rBuff.maxSize());
+        return rBuffPage.isFull();
     }
 
     @Override
     public boolean hasAnyKeys() {
-        return rBuff.size() > 0;
+        return rBuffPage.getCount() > 0;
     }
 
     @Override
     public boolean isMinSize() {
         // 50% packing minimum.
         // If of max length 5 (i.e. odd), min size is 2. Integer division works.
-        return (rBuff.size() <= rBuff.maxSize() / 2);
+        return rBuffPage.isMinSize();
     }
 
     @Override
     Record internalSearch(AccessPath path, Record rec) {
-        int i = rBuff.find(rec);
-        if ( i < 0 )
-            return null;
-        return rBuff.get(i);
+        return rBuffPage.findGet(rec);
     }
 
     @Override
@@ -155,19 +170,23 @@ public final class BPTreeRecords extends BPTreePage {
     @Override
     Record internalInsert(AccessPath path, Record record) {
         // Delay promotion until we know change will happen.
+        RecordBuffer rBuff = rBuff();
         int i = rBuff.find(record);
         Record r2 = null;
         if ( i < 0 ) {
             i = decodeIndex(i);
-            if ( rBuff.size() >= rBuff.maxSize() )
+            if ( rBuffPage.isFull() )
                 throw new StorageException("RecordBlock.put overflow");
             promotePage(path, this);
+            rBuffPage.ensureCapacity(rBuff.size() + 1);
+            rBuff = rBuff();
             rBuff.add(i, record);
         } else {
             r2 = rBuff.get(i);
             if ( Record.compareByKeyValue(record, r2) != 0 ) {
                 // Replace : return old
                 promotePage(path, this);
+                rBuff = rBuff();
                 rBuff.set(i, record);
             } else
                 // No promotion, no write
@@ -179,10 +198,12 @@ public final class BPTreeRecords extends BPTreePage {
 
     @Override
     Record internalDelete(AccessPath path, Record record) {
+        RecordBuffer rBuff = rBuff();
         int i = rBuff.find(record);
         if ( i < 0 )
             return null;
         promotePage(path, this);
+        rBuff = rBuff();
         Record r2 = rBuff.get(i);
         rBuff.remove(i);
         write();
@@ -191,8 +212,8 @@ public final class BPTreeRecords extends BPTreePage {
 
     @Override
     public Record getSplitKey() {
-        int splitIdx = rBuff.size() / 2 - 1;
-        Record r = rBuff.get(splitIdx);
+        int splitIdx = rBuffPage.splitIndex();
+        Record r = rBuff().get(splitIdx);
         return r;
     }
 
@@ -204,10 +225,12 @@ public final class BPTreeRecords extends BPTreePage {
     @Override
     public BPTreePage split() {
         BPTreeRecords other = insertNewPage();
-        int splitIdx = rBuff.size() / 2 - 1;
+        RecordBuffer rBuff = rBuff();
+        int splitIdx = rBuffPage.splitIndex();
         Record r = CheckingNode ? rBuff.get(splitIdx) : null;   // Only need key for checking later.
         int moveLen = rBuff.size() - (splitIdx + 1);            // Number to move.
         // Copy high end to new.
+        other.getRecordBufferPage().ensureCapacity(moveLen);
         rBuff.copy(splitIdx + 1, other.getRecordBufferPage().getRecordBuffer(), 0, moveLen);
         rBuff.clear(splitIdx + 1, moveLen);
         rBuff.setSize(splitIdx + 1);
@@ -243,7 +266,9 @@ public final class BPTreeRecords extends BPTreePage {
     public Record shiftRight(BPTreePage other, Record splitKey) {
         // Error checking by RecordBuffer
         BPTreeRecords page = cast(other);
-        rBuff.shiftRight(page.rBuff);
+        page.rBuffPage.ensureCapacity(page.getCount() + 1);
+        RecordBuffer rBuff = rBuff();
+        rBuff.shiftRight(page.rBuff());
         if ( rBuff.size() == 0 )
             return null;
         return rBuff.getHigh();
@@ -253,7 +278,9 @@ public final class BPTreeRecords extends BPTreePage {
     public Record shiftLeft(BPTreePage other, Record splitKey) {
         // Error checking by RecordBuffer
         BPTreeRecords page = cast(other);
-        rBuff.shiftLeft(page.rBuff);
+        rBuffPage.ensureCapacity(getCount() + 1);
+        RecordBuffer rBuff = rBuff();
+        rBuff.shiftLeft(page.rBuff());
         if ( rBuff.size() == 0 )
             return null;
         return rBuff.getHigh();
@@ -269,10 +296,11 @@ public final class BPTreeRecords extends BPTreePage {
     private static BPTreeRecords merge(BPTreeRecords left, BPTreeRecords right) {
         // Copy right to top of left.
         // The other way round needs a shift as well.
-        right.rBuff.copyToTop(left.rBuff);
+        left.rBuffPage.ensureCapacity(left.getCount() + right.getCount());
+        right.rBuff().copyToTop(left.rBuff());
         // Same as: right.rBuff.copy(0, left.rBuff, left.rBuff.size(),
         // right.rBuff.size());
-        right.rBuff.clear();
+        right.rBuff().clear();
 
         // The right page is released by the caller. left is still in use.
         // So the test code can poke around in the right block after merge.
@@ -312,31 +340,31 @@ public final class BPTreeRecords extends BPTreePage {
 
     @Override
     public final Record getLowRecord() {
-        if ( rBuff.size() == 0 )
+        if ( getCount() == 0 )
             return null;
-        return rBuff.getLow();
+        return rBuff().getLow();
     }
 
     @Override
     public final Record getHighRecord() {
-        if ( rBuff.size() == 0 )
+        if ( getCount() == 0 )
             return null;
-        return rBuff.getHigh();
+        return rBuff().getHigh();
     }
 
     @Override
     public final int getMaxSize() {
-        return rBuff.maxSize();
+        return rBuffPage.getMaxSize();
     }
 
     @Override
     public final int getCount() {
-        return rBuff.size();
+        return rBuffPage.getCount();
     }
 
     @Override
     public final void setCount(int count) {
-        rBuff.setSize(count);
+        rBuffPage.setCount(count);
     }
 
     @Override
@@ -344,9 +372,9 @@ public final class BPTreeRecords extends BPTreePage {
         if ( BPT.CheckingNode )
             this.checkNode();
         // return String.format("BPTreeRecords[id=%d, link=%d]: %s", getId(), getLink(), rBuff.toString( ));
-        Record min = rBuff.getLow();
-        Record max = rBuff.getHigh();
-        return String.format("BPTreeRecords[id=%d, count=%d, link=%d]: %s ... %s", getId(), rBuff.getSize(), getLink(), min, max);
+        Record min = getLowRecord();
+        Record max = getHighRecord();
+        return String.format("BPTreeRecords[id=%d, count=%d, link=%d]: %s ... %s", getId(), getCount(), getLink(), min, max);
     }
 
     @Override
@@ -358,6 +386,7 @@ public final class BPTreeRecords extends BPTreePage {
     public final void checkNode() {
         if ( !CheckingNode )
             return;
+        RecordBuffer rBuff = rBuff();
         if ( rBuff.size() < 0 || rBuff.size() > rBuff.maxSize() )
             error("Mis-sized: %s", this);
 
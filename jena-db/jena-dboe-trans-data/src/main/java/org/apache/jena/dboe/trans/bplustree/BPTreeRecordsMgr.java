@@ -39,7 +39,7 @@ final public class BPTreeRecordsMgr extends PageBlockMgr<BPTreeRecords>
     BPTreeRecordsMgr(BPlusTree bpTree, RecordFactory recordFactory, RecordBufferPageMgr rBuffPageMgr) {
         super(null , rBuffPageMgr.getBlockMgr());
         this.bpTree = bpTree;
-        super.setConverter(new Block2BPTreeRecords(this, recordFactory));
+        super.setConverter(new Block2BPTreeRecords(this, recordFactory, rBuffPageMgr.isPacked()));
         // bpt is uninitialized at this point.
         // so record rBuffPageMgr
         this.rBuffPageMgr = rBuffPageMgr;
@@ -50,9 +50,9 @@ final public class BPTreeRecordsMgr extends PageBlockMgr<BPTreeRecords>
         private Block2RecordBufferPage recordBufferConverter;
         private BPTreeRecordsMgr       recordsMgr;
 
-        Block2BPTreeRecords(BPTreeRecordsMgr mgr, RecordFactory recordFactory) {
+        Block2BPTreeRecords(BPTreeRecordsMgr mgr, RecordFactory recordFactory, boolean packed) {
             this.recordsMgr = mgr;
-            this.recordBufferConverter = new RecordBufferPageMgr.Block2RecordBufferPage(recordFactory);
+            this.recordBufferConverter = new RecordBufferPageMgr.Block2RecordBufferPage(recordFactory, packed);
         }
 
         @Override
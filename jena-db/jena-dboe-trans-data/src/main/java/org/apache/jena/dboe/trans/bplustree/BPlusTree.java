@@ -19,7 +19,9 @@
 package org.apache.jena.dboe.trans.bplustree;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.jena.atlas.io.IndentedWriter;
 import org.apache.jena.atlas.iterator.Iter;
@@ -27,6 +29,7 @@ import org.apache.jena.atlas.lib.InternalErrorException;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.base.record.RecordMapper;
+import org.apache.jena.dboe.index.RangeCursor;
 import org.apache.jena.dboe.index.RangeIndex;
 import org.apache.jena.dboe.transaction.txn.ComponentId;
 import org.apache.jena.dboe.transaction.txn.TransactionalComponentLifecycle;
@@ -326,6 +329,62 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
         return BPTreeDistinctKeyPrefixIterator.create(root, keyPrefixLength);
     }
 
+    /**
+     * Split keys are taken from the root node and, if that does not give enough keys,
+     * the next level down. They do not require reading the records pages.
+     */
+    @Override
+    public List<Record> splitKeys(Record minRec, Record maxRec, int maxKeys) {
+        if ( maxKeys <= 0 )
+            return List.of();
+        startReadBlkMgr();
+        BPTreeNode root = getRootRead();
+        try {
+            List<Record> keys = new ArrayList<>();
+            if ( root.isLeaf() ) {
+                // Children are records pages.
+                for ( int i = 0 ; i < root.getCount() ; i++ )
+                    addSplitKey(keys, root.getRecordBuffer().get(i), minRec, maxRec);
+            } else {
+                for ( int i = 0 ; i <= root.getCount() ; i++ ) {
+                    Record low = ( i == 0 ) ? null : root.getRecordBuffer().get(i-1);
+                    Record high = ( i == root.getCount() ) ? null : root.getRecordBuffer().get(i);
+                    boolean overlaps = ( maxRec == null || low == null || Record.keyLT(low, maxRec) )
+                                    && ( minRec == null || high == null || Record.keyGT(high, minRec) );
+                    if ( overlaps ) {
+                        BPTreeNode child = (BPTreeNode)root.get(i);
+                        try {
+                            for ( int j = 0 ; j < child.getCount() ; j++ )
+                                addSplitKey(keys, child.getRecordBuffer().get(j), minRec, maxRec);
+                        } finally { child.release(); }
+                    }
+                    if ( high != null )
+                        addSplitKey(keys, high, minRec, maxRec);
+                }
+            }
+            if ( keys.size() <= maxKeys )
+                return keys;
+            // Evenly spaced selection.
+            List<Record> selected = new ArrayList<>(maxKeys);
+            for ( int i = 1 ; i <= maxKeys ; i++ )
+                selected.add(keys.get((int)((long)i * keys.size() / (maxKeys+1))));
+            return selected;
+        } finally {
+            releaseRootRead(root);
+            finishReadBlkMgr();
+        }
+    }
+
+    private static void addSplitKey(List<Record> keys, Record key, Record minRec, Record maxRec) {
+        if ( minRec != null && Record.keyLE(key, minRec) )
+            return;
+        if ( maxRec != null && Record.keyGE(key, maxRec) )
+            return;
+        if ( ! keys.isEmpty() && Record.keyLE(key, keys.get(keys.size()-1)) )
+            return;
+        keys.add(key);
+    }
+
     /*
     @Override
     public <X> Iterator<X> iterator(Record minRec, Record maxRec, RecordMapper<X> mapper) {
@@ -364,6 +423,16 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
         return BPTreeRangeIteratorMapper.create(node, minRec, maxRec, keyLen, mapper);
     }
 
+    @Override
+    public <X> RangeCursor<X> rangeCursor(RecordMapper<X> mapper) {
+        startReadBlkMgr();
+        BPTreeNode root = getRootRead();
+        releaseRootRead(root);
+        finishReadBlkMgr();
+        int keyLen = recordsMgr.getRecordBufferPageMgr().getRecordFactory().keyLength();
+        return new BPTreeRangeCursor<>(root, keyLen, mapper);
+    }
+
     // Internal calls.
     void startReadBlkMgr() {
         nodeManager.startRead();
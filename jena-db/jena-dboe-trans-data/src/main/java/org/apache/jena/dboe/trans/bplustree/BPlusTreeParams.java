@@ -36,6 +36,7 @@ final public class BPlusTreeParams
     public static final String ParamKeyLength      = NS+".keyLength";
     public static final String ParamValueLength    = NS+".valueLength";
     public static final String ParamBlockSize      = NS+".blockSize";
+    public static final String ParamPackedLeaves   = NS+".packedLeaves";
 
     /* The gap is extra space in a node - some books have node size as 2*N
      * (often for the classic insertion algorithm where it's easier to implement
@@ -61,6 +62,9 @@ final public class BPlusTreeParams
     /** Factory for key-only records */
     final RecordFactory keyFactory;
 
+    /** Whether the records in leaf blocks are prefix compressed */
+    final boolean packedLeaves;
+
     // ---- Derived constants.
 
     /** Maximum number of keys per non-leaf block */
@@ -91,13 +95,14 @@ final public class BPlusTreeParams
 
     @Override
     public String toString() {
-        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d",
+        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d%s",
                              order,
                              keyFactory.keyLength() ,
                              recordFactory.valueLength() ,
                              MinRec, MaxRec,
                              MinPtr, MaxPtr,
-                             SplitIndex
+                             SplitIndex,
+                             packedLeaves ? " : packed leaves" : ""
                              );
     }
 
@@ -106,7 +111,8 @@ final public class BPlusTreeParams
             int pOrder = mf.getPropertyAsInteger(ParamOrder);
             int pKeyLen = mf.getPropertyAsInteger(ParamKeyLength);
             int pRecLen = mf.getPropertyAsInteger(ParamValueLength);
-            return new BPlusTreeParams(pOrder, pKeyLen, pRecLen);
+            boolean pPacked = Boolean.parseBoolean(mf.getProperty(ParamPackedLeaves, "false"));
+            return new BPlusTreeParams(pOrder, new RecordFactory(pKeyLen, pRecLen), pPacked);
         } catch (NumberFormatException ex) {
             Log.error(BPlusTreeParams.class, "Badly formed metadata for B+Tree");
             throw new DBOpEnvException("Failed to read metadata");
@@ -117,6 +123,8 @@ final public class BPlusTreeParams
         mf.setProperty(ParamOrder, order);
         mf.setProperty(ParamKeyLength, recordFactory.keyLength());
         mf.setProperty(ParamValueLength, recordFactory.valueLength());
+        if ( packedLeaves )
+            mf.setProperty(ParamPackedLeaves, "true");
         mf.flush();
     }
 
@@ -125,6 +133,16 @@ final public class BPlusTreeParams
     }
 
     public BPlusTreeParams(int order, RecordFactory factory) {
+        this(order, factory, false);
+    }
+
+    /**
+     * B+Tree parameters, with the choice of leaf block format.
+     * If {@code packedLeaves} is true, records in leaf blocks are prefix compressed
+     * so more records fit in a block. The format is fixed when the B+Tree is created.
+     * A packed leaf block must have space for at least four unpacked records.
+     */
+    public BPlusTreeParams(int order, RecordFactory factory, boolean packedLeaves) {
         // BTrees of order one aren't strictly BTrees
         // Order 1 => Min size = 0 and max size = 2*N-1 = 1.
         // If there is a gap, then the code may be defensive enough
@@ -137,6 +155,7 @@ final public class BPlusTreeParams
         this.order = order;
         recordFactory = factory;
         keyFactory = factory.keyFactory();
+        this.packedLeaves = packedLeaves;
 
         // Derived constants.
         MaxRec  = 2*order-1 + Gap;
@@ -174,6 +193,10 @@ final public class BPlusTreeParams
         return keyFactory;
     }
 
+    public boolean isPackedLeaves() {
+        return packedLeaves;
+    }
+
     public int getCalcBlockSize() {
         return calcBlockSize(order, recordFactory);
     }
@@ -193,10 +193,20 @@ public class BPlusTreeRewriter {
             if ( debug ) {
                 System.out.printf("Rebalance Data [%s, %s] %d %d\n", id1, id2, x1, x2);
             }
-            for ( int i = page2.getCount(); i < page1.getMaxSize() / 2 ; i++ ) {
-                Record r = page1.getRecordBuffer().getHigh();
-                page1.getRecordBuffer().removeTop();
-                page2.getRecordBuffer().add(0, r);
+            if ( page1.isPacked() ) {
+                // Move records until page2 is no longer below the minimum size.
+                while ( page2.isMinSize() && page1.getCount() > 1 ) {
+                    Record r = page1.getRecordBuffer().getHigh();
+                    page1.getRecordBuffer().removeTop();
+                    page2.ensureCapacity(page2.getCount() + 1);
+                    page2.getRecordBuffer().add(0, r);
+                }
+            } else {
+                for ( int i = page2.getCount(); i < page1.getMaxSize() / 2 ; i++ ) {
+                    Record r = page1.getRecordBuffer().getHigh();
+                    page1.getRecordBuffer().removeTop();
+                    page2.getRecordBuffer().add(0, r);
+                }
             }
 
             mgr.put(page1);
@@ -21,7 +21,6 @@ package org.apache.jena.dboe.trans.bplustree.rewriter;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-import org.apache.jena.dboe.base.buffer.RecordBuffer;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.recordbuffer.RecordBufferPage;
 import org.apache.jena.dboe.base.recordbuffer.RecordBufferPageMgr;
@@ -62,10 +61,10 @@ class RecordBufferPagePacker implements Iterator<RecordBufferPage> {
             // //System.out.println("Allocate : "+id);
             recordBufferPage = rbMgr.create();
 
-            RecordBuffer rb = recordBufferPage.getRecordBuffer();
-            while (!rb.isFull() && records.hasNext()) {
+            while (!recordBufferPage.isFull() && records.hasNext()) {
                 Record r = records.next();
-                rb.add(r);
+                recordBufferPage.ensureCapacity(recordBufferPage.getCount() + 1);
+                recordBufferPage.getRecordBuffer().add(r);
             }
             if ( !records.hasNext() )
                 records = null;
@@ -242,6 +242,15 @@ public class TransBinaryDataFile extends TransactionalComponentLifecycle<TransBi
         return binFile.length();
     }
 
+    /**
+     * The length of the file at the last commit. The bytes before this point are
+     * durable and are not changed or truncated, so they can be read outside of a
+     * transaction.
+     */
+    public long getCommittedLength() {
+        return committedLength.get();
+    }
+
     @Override
     public boolean isEmpty() {
         super.checkTxn();
@@ -29,6 +29,7 @@ import org.junit.runners.Suite;
     TestBPTreeRecordsNonTxn.class,
     TestBPlusTreeIndexNonTxn.class,
     TestBPlusTreeNonTxn.class,
+    TestBPlusTreePackedNonTxn.class,
     TestBPTreeModes.class,
 
     // Transactional tests
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.trans.bplustree;
+
+import static org.apache.jena.dboe.index.testlib.IndexTestLib.add;
+import static org.apache.jena.dboe.test.RecordLib.r;
+import static org.apache.jena.dboe.test.RecordLib.toIntList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.jena.dboe.test.RecordLib;
+import org.junit.Test;
+
+/** Run the tests for a tree with packed (prefix compressed) leaves in "non-transactional" mode */
+public class TestBPlusTreePackedNonTxn extends TestBPlusTreeNonTxn {
+
+    @Override
+    protected BPlusTree makeRangeIndex(int order, int minRecords) {
+        // A packed leaf must have space for at least 4 records unpacked.
+        BPlusTree bpt = BPlusTreeFactory.makeMem(null, order, Math.max(3, minRecords), RecordLib.TestRecordLength, 0, true);
+        bpt.nonTransactional();
+        return bpt;
+    }
+
+    @Test public void packed_leaves_1() {
+        BPlusTree bpt = makeRangeIndex(3, 3);
+        assertTrue(bpt.getParams().isPackedLeaves());
+        BPlusTree bpt2 = BPlusTreeFactory.makeMem(3, 3, RecordLib.TestRecordLength, 0);
+        bpt2.nonTransactional();
+        int N = 1000;
+        int[] keys = new int[N];
+        for ( int i = 0 ; i < N ; i++ )
+            keys[i] = i;
+        add(bpt, keys);
+        add(bpt2, keys);
+        assertEquals(N, bpt.size());
+        // Same block size, fewer blocks.
+        assertTrue(bpt.getRecordsMgr().allocLimit() < bpt2.getRecordsMgr().allocLimit());
+        List<Integer> x = toIntList(bpt.iterator(r(100), r(110)));
+        assertEquals(toIntList(100, 101, 102, 103, 104, 105, 106, 107, 108, 109), x);
+    }
+}
@@ -21,7 +21,9 @@ package org.apache.jena.fuseki.async;
 import static java.lang.String.format;
 
 import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
+import org.apache.jena.atlas.json.JsonValue;
 import org.apache.jena.atlas.lib.DateTimeUtils;
 import org.apache.jena.atlas.lib.InternalErrorException;
 import org.apache.jena.atlas.logging.FmtLog;
@@ -48,6 +50,8 @@ public class AsyncTask implements Callable<Object>
     private long requestId;
     
     private Boolean success = null;
+
+    private volatile Supplier<JsonValue> progress = null;
     
     /*package*/ AsyncTask(Callable<Object> callable,
                           AsyncPool pool,
@@ -74,6 +78,15 @@ public class AsyncTask implements Callable<Object>
 
     public DataService getDataService() { return dataService; }
 
+    /** Set the source of progress reports for this task. */
+    public void setProgress(Supplier<JsonValue> progress) { this.progress = progress; }
+
+    /** Progress of the task, or null if not reported. */
+    public JsonValue getProgress() {
+        Supplier<JsonValue> x = progress;
+        return ( x == null ) ? null : x.get();
+    }
+
     private void start() {
         if ( startPoint != null ) {
             FmtLog.warn(Fuseki.serverLog, "[Task %s] Async task has already been started", taskId);
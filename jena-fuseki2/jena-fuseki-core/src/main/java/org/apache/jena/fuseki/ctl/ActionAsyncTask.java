@@ -45,6 +45,8 @@ public abstract class ActionAsyncTask extends ActionItem
     protected JsonValue execPostItem(HttpAction action) {
         Runnable task = createRunnable(action);
         AsyncTask aTask = Async.execASyncTask(action, AsyncPool.get(), name, task);
+        if ( task instanceof TaskBase taskBase )
+            aTask.setProgress(taskBase::getProgress);
         return Async.asJson(aTask);
     }
 
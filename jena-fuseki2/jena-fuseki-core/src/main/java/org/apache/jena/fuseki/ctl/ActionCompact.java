@@ -22,12 +22,15 @@ import static java.lang.String.format;
 
 import java.util.function.Predicate;
 
+import org.apache.jena.atlas.json.JsonBuilder;
+import org.apache.jena.atlas.json.JsonValue;
 import org.apache.jena.fuseki.Fuseki;
 import org.apache.jena.fuseki.servlets.HttpAction;
 import org.apache.jena.fuseki.servlets.ServletOps;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.DatasetGraphWrapper;
 import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.sys.CompactProgress;
 import org.apache.jena.tdb2.sys.TDBInternal;
 import org.slf4j.Logger;
 
@@ -92,23 +95,55 @@ public class ActionCompact extends ActionAsyncTask
         static private final Logger log = Fuseki.compactLog;
 
         private final boolean shouldDeleteOld;
+        // Compact while readers and writers continue.
+        private final boolean online;
+        private final CompactProgress progress;
 
         public CompactTask(HttpAction action) {
             super(action);
 
             String deleteOldParam = action.getRequestParameter("deleteOld");
+            String onlineParam = action.getRequestParameter("online");
 
-            this.shouldDeleteOld = ( deleteOldParam != null
-                                     && ( deleteOldParam.isEmpty() || deleteOldParam.equalsIgnoreCase("true") ) );
+            this.shouldDeleteOld = isTrue(deleteOldParam);
+            this.online = isTrue(onlineParam);
+            this.progress = online ? new CompactProgress() : null;
+        }
+
+        private static boolean isTrue(String param) {
+            return param != null && ( param.isEmpty() || param.equalsIgnoreCase("true") );
+        }
+
+        @Override
+        public JsonValue getProgress() {
+            if ( progress == null )
+                return null;
+            JsonBuilder builder = new JsonBuilder();
+            builder.startObject("progress");
+            builder.key("phase").value(progress.getPhase().name());
+            builder.key("quadsCopied").value(progress.getQuadsCopied());
+            builder.key("changesApplied").value(progress.getChangesApplied());
+            builder.key("catchUpRounds").value(progress.getCatchUpRounds());
+            builder.key("elapsedMillis").value(progress.getElapsedMillis());
+            if ( progress.getSwitchMillis() >= 0 )
+                builder.key("switchMillis").value(progress.getSwitchMillis());
+            builder.finishObject("progress");
+            return builder.build();
         }
 
         @Override
         public void run() {
             try {
                 DatasetGraph dsg = getTDB2(dataset);
-                log.info(format("[%d] >>>> Start compact %s", actionId, datasetName));
-                DatabaseMgr.compact(dsg, this.shouldDeleteOld);
-                log.info(format("[%d] <<<< Finish compact %s", actionId, datasetName));
+                if ( online ) {
+                    log.info(format("[%d] >>>> Start online compact %s", actionId, datasetName));
+                    DatabaseMgr.compactOnline(dsg, this.shouldDeleteOld, progress);
+                    log.info(format("[%d] <<<< Finish online compact %s : %s", actionId, datasetName, progress));
+                } else {
+                    log.info(format("[%d] >>>> Start compact %s", actionId, datasetName));
+                    DatabaseMgr.compact(dsg, this.shouldDeleteOld);
+                    log.info(format("[%d] <<<< Finish compact %s", actionId, datasetName));
+                }
             } catch (Throwable ex) {
                 log.warn(format("[%d] **** Exception in compact", actionId), ex);
                 // Pass on - the async task tracking infrastructure will record this.
@@ -116,6 +116,9 @@ public class ActionTasks extends ActionCtl
             builder.key(JsonConstCtl.finished).value(aTask.getFinishPoint());
         if ( aTask.wasSuccessful() != null )
             builder.key(JsonConstCtl.success).value(aTask.wasSuccessful());
+        JsonValue progress = aTask.getProgress();
+        if ( progress != null )
+            builder.key(JsonConstCtl.progress).value(progress);
         builder.finishObject("SingleTask");
     }
 }
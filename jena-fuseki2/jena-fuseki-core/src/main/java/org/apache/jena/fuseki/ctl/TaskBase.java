@@ -18,6 +18,7 @@
 
 package org.apache.jena.fuseki.ctl;
 
+import org.apache.jena.atlas.json.JsonValue;
 import org.apache.jena.fuseki.servlets.HttpAction;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.Transactional;
@@ -40,4 +41,9 @@ public abstract class TaskBase implements Runnable {
         this.transactional = dataset;
         this.datasetName = ActionCtl.getItemDatasetName(action);
     }
+
+    /** Progress of the task so far, or null if the task does not report progress. */
+    public JsonValue getProgress() {
+        return null;
+    }
 }
@@ -407,6 +407,37 @@ public class TestAdmin {
         }
     }
 
+    @Test public void compact_online_01() {
+        assumeNotWindows();
+
+        String testDB = dsTestTdb2b;
+        try {
+            checkNotThere(testDB);
+            addTestDatasetTDB2(testDB);
+            checkExists(testDB);
+
+            String id = null;
+            try {
+                JsonValue v = httpPostRtnJSON(urlRoot() + "$/" + opCompact + "/" + testDB + "?online=true");
+                id = v.getAsObject().getString(JsonConstCtl.taskId);
+            } finally {
+                waitForTasksToFinish(1000, 500, 20_000);
+            }
+            assertNotNull(id);
+            checkInTasks(id);
+
+            JsonValue task = getTask(id);
+            assertNotNull(task, "Task value");
+            JsonObject obj = task.getAsObject();
+            assertTrue(obj.getBoolean(JsonConstCtl.success), "Expected task to be marked as successful");
+            JsonObject progress = obj.getObj(JsonConstCtl.progress);
+            assertNotNull(progress, "Task progress");
+            assertEquals("FINISHED", progress.getString("phase"));
+        } finally {
+            deleteDataset(testDB);
+        }
+    }
+
     @Test public void compact_02() {
         HttpTest.expect400(()->{
             JsonValue v = httpPostRtnJSON(urlRoot() + "$/" + opCompact + "/noSuchDataset");
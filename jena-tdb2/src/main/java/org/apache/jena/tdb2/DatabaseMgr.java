@@ -18,14 +18,20 @@
 
 package org.apache.jena.tdb2;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.tdb2.columnar.ColumnarExport;
+import org.apache.jena.tdb2.columnar.ColumnarLoader;
 import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.sys.CompactProgress;
 import org.apache.jena.tdb2.sys.DatabaseConnection;
 import org.apache.jena.tdb2.sys.DatabaseOps;
+import org.apache.jena.tdb2.sys.GroupCommit;
 import org.apache.jena.tdb2.sys.TDBInternal;
 
 /** Operations for TDBS DatasetGraph, including admin operations
@@ -92,6 +98,22 @@ public class DatabaseMgr {
         DatabaseOps.compact(dsg, shouldDeleteOld);
     }
 
+    /**
+     * Compact a dataset which must be a switchable TDB database, while it stays in
+     * use. Readers and writers continue while the database is copied; writers are held
+     * up only to apply the last changes and switch to the compacted database.
+     * <p>
+     * Deletes old database after successful compaction if {@code shouldDeleteOld} is {@code true}.
+     *
+     * @param container
+     * @param shouldDeleteOld
+     * @param progress Updated as the compaction runs. May be null.
+     */
+    public static void compactOnline(DatasetGraph container, boolean shouldDeleteOld, CompactProgress progress) {
+        DatasetGraphSwitchable dsg = requireSwitchable(container);
+        DatabaseOps.compactOnline(dsg, shouldDeleteOld, progress);
+    }
+
     /**
      * Create a backup for a switchable TDB database. This is the normal dataset type for
      * on-disk TDB2 databases.
@@ -109,6 +131,44 @@ public class DatabaseMgr {
         return DatabaseOps.backup(dsg);
     }
 
+    /**
+     * Export a TDB2 database as columnar files: one file of NodeIds for each column
+     * of each index, and a dictionary of the RDF terms.
+     * The export is a consistent snapshot, made in a read transaction.
+     *
+     * @param container
+     * @param directory Directory for the export. It must not already hold an export.
+     * @see ColumnarExport
+     */
+    public static void exportColumnar(DatasetGraph container, String directory) {
+        ColumnarExport.export(TDBInternal.requireStorage(container), directory);
+    }
+
+    /**
+     * Build a TDB2 database from a columnar export ({@link #exportColumnar}).
+     * The database is created if necessary and must be empty.
+     *
+     * @param directory The export.
+     * @param location The database.
+     * @return The database.
+     * @see ColumnarLoader
+     */
+    public static DatasetGraph loadColumnar(String directory, Location location) {
+        return ColumnarLoader.load(directory, location);
+    }
+
+    /**
+     * Create a {@link GroupCommit} for a TDB2 database. Updates submitted to the
+     * group commit are executed together, in one write transaction, with at most
+     * {@code maxBatchSize} updates and waiting at most {@code maxDelayMillis} for
+     * further updates. The {@code GroupCommit} should be closed after use.
+     */
+    public static GroupCommit groupCommit(DatasetGraph container, int maxBatchSize, long maxDelayMillis) {
+        if ( ! isTDB2(container) )
+            throw new TDBException("Not a TDB2 database");
+        return new GroupCommit(container, maxBatchSize, maxDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
     /** Create an in-memory TDB2-backed dataset (for testing) */
     public static DatasetGraph createDatasetGraph() {
         return connectDatasetGraph(Location.mem());
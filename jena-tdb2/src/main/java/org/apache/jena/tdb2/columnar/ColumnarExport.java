@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.columnar;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Iterator;
+
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.atlas.json.JsonArray;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.atlas.lib.Pair;
+import org.apache.jena.dboe.base.file.BinaryDataFile;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.graph.Node;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.riot.system.PrefixEntry;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.loader.base.LoaderOps;
+import org.apache.jena.tdb2.params.StoreParamsCodec;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+
+/**
+ * Write a columnar export of a database. See the package documentation for the format.
+ * <p>
+ * The export is made in one read transaction; other readers and writers continue.
+ * The index columns are written from the B+Tree records, without looking up any
+ * RDF terms.
+ */
+public class ColumnarExport {
+    private static final int BufferSize = 128 * 1024;
+
+    /**
+     * Export the database to a new directory, or an existing directory that does not
+     * already hold an export.
+     */
+    public static void export(DatasetGraphTDB dsgtdb, String directory) {
+        ColumnarFiles files = new ColumnarFiles(directory);
+        if ( files.exists() )
+            throw new TDBException("Columnar export already exists: "+directory);
+        try {
+            Files.createDirectories(files.directory);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+        Txn.executeRead(dsgtdb, ()->{
+            JsonObject manifest = new JsonObject();
+            manifest.put(ColumnarFiles.kVersion, ColumnarFiles.Version);
+            manifest.put(ColumnarFiles.kStoreParams, StoreParamsCodec.encodeToJson(dsgtdb.getStoreParams()));
+            long nodesLength = exportNodes(dsgtdb, files);
+            manifest.put(ColumnarFiles.kNodes, nodesLength);
+            JsonObject indexes = new JsonObject();
+            for ( TupleIndex index : dsgtdb.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes() )
+                indexes.put(index.getName(), exportIndex(index, files));
+            for ( TupleIndex index : dsgtdb.getQuadTable().getNodeTupleTable().getTupleTable().getIndexes() )
+                indexes.put(index.getName(), exportIndex(index, files));
+            manifest.put(ColumnarFiles.kIndexes, indexes);
+            manifest.put(ColumnarFiles.kPrefixes, exportPrefixes(dsgtdb));
+            // Last: the manifest marks a complete export.
+            files.writeManifest(manifest);
+        });
+    }
+
+    /** Copy the node data file, as seen by this transaction. */
+    private static long exportNodes(DatasetGraphTDB dsgtdb, ColumnarFiles files) {
+        BinaryDataFile data = LoaderOps.ntDataFile(dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable());
+        long length = data.length();
+        byte[] buffer = new byte[BufferSize];
+        try ( OutputStream out = Files.newOutputStream(files.nodes()) ) {
+            long posn = 0;
+            while ( posn < length ) {
+                int len = (int)Math.min(buffer.length, length - posn);
+                int x = data.read(posn, buffer, 0, len);
+                if ( x <= 0 )
+                    throw new TDBException("Node data file: short read at "+posn+" (length "+length+")");
+                out.write(buffer, 0, x);
+                posn += x;
+            }
+        } catch (IOException ex) { throw IOX.exception(ex); }
+        return length;
+    }
+
+    /** Write the columns of one index; return the number of rows. */
+    private static long exportIndex(TupleIndex index, ColumnarFiles files) {
+        String name = index.getName();
+        int width = index.getTupleLength();
+        OutputStream[] columns = new OutputStream[width];
+        try {
+            for ( int i = 0 ; i < width ; i++ )
+                columns[i] = new BufferedOutputStream(Files.newOutputStream(files.column(name, i)), BufferSize);
+            long count = 0;
+            Iterator<Record> iter = LoaderOps.idxBTree(index).iterator();
+            while ( iter.hasNext() ) {
+                byte[] key = iter.next().getKey();
+                for ( int i = 0 ; i < width ; i++ )
+                    columns[i].write(key, i*NodeId.SIZE, NodeId.SIZE);
+                count++;
+            }
+            return count;
+        } catch (IOException ex) {
+            throw IOX.exception(ex);
+        } finally {
+            for ( OutputStream out : columns ) {
+                if ( out != null ) {
+                    try { out.close(); } catch (IOException ex) { throw IOX.exception(ex); }
+                }
+            }
+        }
+    }
+
+    private static JsonArray exportPrefixes(DatasetGraphTDB dsgtdb) {
+        JsonArray prefixes = new JsonArray();
+        Iterator<Pair<Node, PrefixEntry>> iter = dsgtdb.getStoragePrefixes().listMappings();
+        iter.forEachRemaining(p->{
+            JsonObject obj = new JsonObject();
+            obj.put(ColumnarFiles.kGraph, NodeFmtLib.strNT(p.getLeft()));
+            obj.put(ColumnarFiles.kPrefix, p.getRight().getPrefix());
+            obj.put(ColumnarFiles.kUri, p.getRight().getUri());
+            prefixes.add(obj);
+        });
+        return prefixes;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.columnar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.tdb2.TDBException;
+
+/** The files of a columnar export. See the package documentation for the format. */
+public class ColumnarFiles {
+    /** Format version. */
+    public static final int    Version         = 1;
+
+    public static final String manifestFile    = "manifest.json";
+    public static final String nodesFile       = "nodes.dat";
+    public static final String extColumn       = "col";
+
+    // Manifest keys.
+    public static final String kVersion        = "version";
+    public static final String kStoreParams    = "store_params";
+    public static final String kNodes          = "nodes";
+    public static final String kIndexes        = "indexes";
+    public static final String kPrefixes       = "prefixes";
+    public static final String kGraph          = "graph";
+    public static final String kPrefix         = "prefix";
+    public static final String kUri            = "uri";
+
+    public final Path directory;
+
+    public ColumnarFiles(String directory) {
+        this.directory = Path.of(directory);
+    }
+
+    public Path manifest() {
+        return directory.resolve(manifestFile);
+    }
+
+    public Path nodes() {
+        return directory.resolve(nodesFile);
+    }
+
+    /** The file for a column of an index, named by the index and the column letter. */
+    public Path column(String indexName, int col) {
+        return directory.resolve(indexName+"-"+indexName.charAt(col)+"."+extColumn);
+    }
+
+    public boolean exists() {
+        return Files.exists(manifest());
+    }
+
+    public void writeManifest(JsonObject manifest) {
+        try ( OutputStream out = IO.ensureBuffered(Files.newOutputStream(manifest())) ) {
+            JSON.write(out, manifest);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    public JsonObject readManifest() {
+        if ( ! exists() )
+            throw new TDBException("No columnar export: "+directory);
+        JsonObject manifest;
+        try ( InputStream in = Files.newInputStream(manifest()) ) {
+            manifest = JSON.parse(in);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+        int version = manifest.get(kVersion).getAsNumber().value().intValue();
+        if ( version != Version )
+            throw new TDBException("Columnar export: unsupported version "+version+": "+directory);
+        return manifest;
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.columnar;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.atlas.json.JsonValue;
+import org.apache.jena.dboe.base.file.BinaryDataFile;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
+import org.apache.jena.dboe.trans.bplustree.rewriter.BPlusTreeRewriter;
+import org.apache.jena.dboe.transaction.txn.Transaction;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.riot.thrift.TRDF;
+import org.apache.jena.riot.thrift.ThriftConvert;
+import org.apache.jena.riot.thrift.wire.RDF_Term;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.util.NodeFactoryExtra;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.lib.NodeLib;
+import org.apache.jena.tdb2.loader.base.CoLib;
+import org.apache.jena.tdb2.loader.base.LoaderOps;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.params.StoreParamsCodec;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.Hash;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.apache.jena.tdb2.xloader.ExternalSortRecords;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TIOStreamTransport;
+
+/**
+ * Build a database from a columnar export. See the package documentation for the format.
+ * <p>
+ * The database is created with the {@link StoreParams} of the export and must be
+ * empty. The dictionary becomes the node data file, unchanged, so the NodeIds in the
+ * columns are valid without translation. The node index is built by sorting the
+ * hashes of the terms, and each tuple index is written in one pass from its columns.
+ * The node table and the tuple indexes are built at the same time.
+ * <p>
+ * The database should not be used while it is being loaded.
+ */
+public class ColumnarLoader {
+    private static final int BufferSize = 128 * 1024;
+
+    /**
+     * Load a columnar export into the database at the location, with the memory used
+     * for sorting node hashes being a quarter of the heap.
+     */
+    public static DatasetGraph load(String directory, Location location) {
+        return load(directory, location, Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    /**
+     * Load a columnar export into the database at the location.
+     *
+     * @param directory The export.
+     * @param location The database. It is created if it does not exist, and must be empty.
+     * @param sortMemory Memory, in bytes, for sorting the node hashes.
+     * @return The database.
+     */
+    public static DatasetGraph load(String directory, Location location, long sortMemory) {
+        ColumnarFiles files = new ColumnarFiles(directory);
+        JsonObject manifest = files.readManifest();
+        StoreParams params = StoreParamsCodec.decode(manifest.get(ColumnarFiles.kStoreParams).getAsObject());
+        long nodesLength = manifest.get(ColumnarFiles.kNodes).getAsNumber().value().longValue();
+        JsonObject indexCounts = manifest.get(ColumnarFiles.kIndexes).getAsObject();
+
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(location, params);
+        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+        NodeTable nodeTable = dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable();
+        TupleIndex[] tripleIndexes = dsgtdb.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes();
+        TupleIndex[] quadIndexes = dsgtdb.getQuadTable().getNodeTupleTable().getTupleTable().getIndexes();
+        List<TupleIndex> indexes = new ArrayList<>();
+        indexes.addAll(Arrays.asList(tripleIndexes));
+        indexes.addAll(Arrays.asList(quadIndexes));
+
+        Txn.executeRead(dsgtdb, ()->{
+            if ( ! dsgtdb.isEmpty() || ! dsgtdb.getStoragePrefixes().isEmpty()
+                 || LoaderOps.ntDataFile(nodeTable).length() != 0 )
+                throw new TDBException("Columnar load: the database is not empty: "+location);
+        });
+        Set<String> names = new HashSet<>();
+        indexes.forEach(idx->names.add(idx.getName()));
+        if ( ! names.equals(indexCounts.keys()) )
+            throw new TDBException("Columnar load: indexes do not match: "+names+" : "+indexCounts.keys());
+
+        // The node table and each tuple index, in parallel.
+        ExecutorService executor = Executors.newFixedThreadPool(indexes.size() + 1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            // Work space for sorting the node hashes.
+            Path tmpDir = location.isMem()
+                ? Files.createTempDirectory("columnar-")
+                : Files.createTempDirectory(Path.of(location.getDirectoryPath()), "columnar-");
+            try {
+                results.add(executor.submit(()->loadNodeTable(files, nodesLength, nodeTable, sortMemory, tmpDir)));
+                for ( TupleIndex index : indexes ) {
+                    long count = indexCounts.get(index.getName()).getAsNumber().value().longValue();
+                    results.add(executor.submit(()->loadIndex(files, index, count)));
+                }
+                for ( Future<?> f : results )
+                    f.get();
+            } finally {
+                IO.deleteAll(tmpDir);
+            }
+        } catch (IOException ex) {
+            throw IOX.exception(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException rex )
+                throw rex;
+            if ( cause instanceof Error err )
+                throw err;
+            throw new TDBException("Columnar load", cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TDBException("Columnar load: interrupted", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Txn.executeWrite(dsgtdb, ()->{
+            manifest.get(ColumnarFiles.kPrefixes).getAsArray().forEach(x->{
+                JsonObject obj = x.getAsObject();
+                Node graphNode = NodeFactoryExtra.parseNode(obj.getString(ColumnarFiles.kGraph));
+                dsgtdb.getStoragePrefixes().add(graphNode, obj.getString(ColumnarFiles.kPrefix), obj.getString(ColumnarFiles.kUri));
+            });
+            LoaderOps.recalculateStats(dsgtdb, null);
+        });
+        return dsg;
+    }
+
+    /**
+     * Copy the dictionary to the node data file, then build the node index from the
+     * hashes of the terms, in an independent transaction.
+     */
+    private static void loadNodeTable(ColumnarFiles files, long nodesLength, NodeTable nodeTable, long sortMemory, Path tmpDir) {
+        BinaryDataFile data = LoaderOps.ntDataFile(nodeTable);
+        BPlusTree bpt = LoaderOps.ntBPTree(nodeTable);
+        TransactionCoordinator coordinator = CoLib.newCoordinator();
+        CoLib.add(coordinator, nodeTable);
+        CoLib.start(coordinator);
+        Transaction txn = coordinator.begin(TxnType.WRITE);
+        try {
+            copyNodes(files, nodesLength, data);
+            RecordFactory factory = bpt.getRecordFactory();
+            try ( ExternalSortRecords sorter = new ExternalSortRecords(factory, sortMemory, 2, tmpDir) ) {
+                scanNodes(files, nodesLength, factory, sorter);
+                Iterator<Record> records = new DistinctKeys(sorter.sorted());
+                if ( records.hasNext() )
+                    BPlusTreeRewriter.packIntoBPlusTree(records, bpt.getParams(), factory,
+                                                        bpt.getStateManager().getBufferChannel(),
+                                                        bpt.getNodeManager().getBlockMgr(),
+                                                        bpt.getRecordsMgr().getBlockMgr());
+            }
+            txn.commit();
+            txn.end();
+        } catch (RuntimeException ex) {
+            txn.abort();
+            txn.end();
+            throw ex;
+        }
+    }
+
+    private static void copyNodes(ColumnarFiles files, long nodesLength, BinaryDataFile data) {
+        byte[] buffer = new byte[BufferSize];
+        try ( InputStream in = Files.newInputStream(files.nodes()) ) {
+            long total = 0;
+            for (;;) {
+                int x = in.read(buffer);
+                if ( x < 0 )
+                    break;
+                data.write(buffer, 0, x);
+                total += x;
+            }
+            if ( total != nodesLength )
+                throw new TDBException("Columnar load: dictionary length "+total+" but expected "+nodesLength);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    /** Read the terms of the dictionary, recording (hash, NodeId) for each. */
+    private static void scanNodes(ColumnarFiles files, long nodesLength, RecordFactory factory, ExternalSortRecords sorter) {
+        try ( CountingInputStream in = new CountingInputStream(new BufferedInputStream(Files.newInputStream(files.nodes()), BufferSize)) ) {
+            TProtocol protocol = TRDF.protocol(new TIOStreamTransport(in));
+            while ( in.count < nodesLength ) {
+                NodeId nodeId = NodeIdFactory.createPtr(in.count);
+                RDF_Term term = new RDF_Term();
+                term.read(protocol);
+                Node node = ThriftConvert.convert(term);
+                Hash hash = new Hash(factory.keyLength());
+                NodeLib.setHash(hash, node);
+                Record r = factory.create(hash.getBytes());
+                NodeIdFactory.set(nodeId, r.getValue(), 0);
+                sorter.add(r);
+            }
+        } catch (IOException ex) {
+            throw IOX.exception(ex);
+        } catch (TException ex) {
+            throw new TDBException("Columnar load: bad dictionary", ex);
+        }
+    }
+
+    /** Write a tuple index from its columns, in an independent transaction. */
+    private static void loadIndex(ColumnarFiles files, TupleIndex index, long count) {
+        if ( count == 0 )
+            return;
+        BPlusTree bpt = LoaderOps.idxBTree(index);
+        try ( ColumnRecords records = new ColumnRecords(files, index.getName(), bpt.getRecordFactory(), count) ) {
+            CoLib.executeWrite(index, ()->
+                BPlusTreeRewriter.packIntoBPlusTree(records, bpt.getParams(), bpt.getRecordFactory(),
+                                                    bpt.getStateManager().getBufferChannel(),
+                                                    bpt.getNodeManager().getBlockMgr(),
+                                                    bpt.getRecordsMgr().getBlockMgr())
+            );
+        }
+    }
+
+    /** The rows of an index, read from its column files. */
+    private static class ColumnRecords implements Iterator<Record>, AutoCloseable {
+        private final RecordFactory factory;
+        private final DataInputStream[] columns;
+        private final long count;
+        private long row = 0;
+
+        ColumnRecords(ColumnarFiles files, String indexName, RecordFactory factory, long count) {
+            this.factory = factory;
+            this.count = count;
+            this.columns = new DataInputStream[indexName.length()];
+            try {
+                for ( int i = 0 ; i < columns.length ; i++ ) {
+                    Path path = files.column(indexName, i);
+                    if ( Files.size(path) != count * NodeId.SIZE )
+                        throw new TDBException("Columnar load: wrong length for "+path);
+                    columns[i] = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BufferSize));
+                }
+            } catch (IOException ex) {
+                close();
+                throw IOX.exception(ex);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row < count;
+        }
+
+        @Override
+        public Record next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException("ColumnRecords");
+            Record r = factory.create();
+            byte[] key = r.getKey();
+            try {
+                for ( int i = 0 ; i < columns.length ; i++ )
+                    columns[i].readFully(key, i*NodeId.SIZE, NodeId.SIZE);
+            } catch (IOException ex) { throw IOX.exception(ex); }
+            row++;
+            return r;
+        }
+
+        @Override
+        public void close() {
+            for ( InputStream in : columns ) {
+                if ( in != null )
+                    IO.close(in);
+            }
+        }
+    }
+
+    /** Skip records with the same key (the same term written twice) keeping the first. */
+    private static class DistinctKeys implements Iterator<Record> {
+        private final Iterator<Record> iter;
+        private Record last = null;
+        private Record slot = null;
+
+        DistinctKeys(Iterator<Record> iter) {
+            this.iter = iter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( slot != null )
+                return true;
+            while ( iter.hasNext() ) {
+                Record r = iter.next();
+                if ( last == null || Record.keyNE(last, r) ) {
+                    slot = r;
+                    last = r;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Record next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException("DistinctKeys");
+            Record r = slot;
+            slot = null;
+            return r;
+        }
+    }
+
+    /** Track the number of bytes read, which is the offset of the next term. */
+    private static class CountingInputStream extends FilterInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int x = super.read();
+            if ( x >= 0 )
+                count++;
+            return x;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int x = super.read(b, off, len);
+            if ( x > 0 )
+                count += x;
+            return x;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long x = super.skip(n);
+            count += x;
+            return x;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Columnar, dictionary encoded, export of a TDB2 database, and a loader that builds
+ * a new database from an export.
+ * <p>
+ * An export is a directory ({@link ColumnarFiles}):
+ * <ul>
+ * <li>{@code manifest.json} : the format version, the {@code StoreParams} of the
+ *     database, the length of the dictionary, the number of rows of each index and
+ *     the prefixes.
+ * <li>{@code nodes.dat} : the dictionary. The RDF terms of the node table, one after
+ *     another, each in RDF Thrift (compact protocol) encoding. The NodeId of a term is
+ *     its byte offset in this file.
+ * <li>{@code <index>-<column>.col}, for example {@code SPO-S.col} : one file for each
+ *     column of each index, in the order of the index. Each is a sequence of 8 byte,
+ *     big-endian, NodeIds.
+ * </ul>
+ * NodeIds that are not byte offsets are values encoded inline (numbers, dates and
+ * other small literals); the type is in the high byte ({@code NodeIdType}) and these
+ * have no entry in the dictionary.
+ * <p>
+ * The export is written from a read transaction so it is a consistent snapshot. The
+ * indexes are copied straight from the B+Trees, without decoding NodeIds, and the
+ * dictionary is a copy of the node data file. The loader writes the dictionary
+ * as the node data file of the new database, so that NodeIds are unchanged, rebuilds
+ * the node index, and builds each tuple index from its columns, which are already in
+ * index order.
+ */
+package org.apache.jena.tdb2.columnar;
@@ -62,6 +62,13 @@ import org.apache.jena.riot.system.StreamRDF;
  * Because it uses many threads to write to persistent storage,
  * it can interfere with performance of other applications on the machine it is run on.
  *
+ * <h4>merge</h4>
+ * The merge loader is for adding large amounts of data to a database that already has data.
+ * The new data is sorted and merged with each existing index, in one sequential pass,
+ * into a new generation of the database which then replaces the current one.
+ * Writers are held up while loading; readers continue until the switch.
+ * It needs disk space for the sort and for the new generation.
+ *
  * <h4>{@code DataLoader} API</h4>
  *
  * To use a {@code DataLoader}:
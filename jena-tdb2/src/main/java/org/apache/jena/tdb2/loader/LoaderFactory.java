@@ -30,6 +30,7 @@ import org.apache.jena.tdb2.loader.main.LoaderParallel;
 import org.apache.jena.tdb2.loader.main.LoaderPhased;
 import org.apache.jena.tdb2.loader.main.LoaderPlan;
 import org.apache.jena.tdb2.loader.main.LoaderPlans;
+import org.apache.jena.tdb2.loader.merge.LoaderMerge;
 import org.apache.jena.tdb2.loader.sequential.LoaderSequential;
 import org.apache.jena.system.progress.MonitorOutput;
 
@@ -196,6 +197,40 @@ public class LoaderFactory {
         return new LoaderParallel(dsg, graphName, output);
     }
 
+    /**
+     * A loader for adding to a database that already has data. The new data is sorted
+     * and merged with each existing index, in one sequential pass, into a new generation
+     * of the database, which then replaces the current one.
+     * <p>
+     * Writers are held up while loading; readers continue on the current generation
+     * until the new generation is switched in. The database must be on disk.
+     * Previous generations are not deleted.
+     * <p>
+     * Supply a {@link MonitorOutput} for the desirable progress and summary output messages
+     * or {@code null} for no output.
+     */
+    public static DataLoader mergeLoader(DatasetGraph dsg, MonitorOutput output) {
+        Objects.requireNonNull(dsg);
+        return new LoaderMerge(dsg, null, output);
+    }
+
+    /**
+     * A merge loader to load a single graph in the destination {@code DatasetGraph}.
+     * See {@link #mergeLoader(DatasetGraph, MonitorOutput)} for loader characteristics.
+     * <p>
+     * Use {@link Quad#defaultGraphIRI} to load the default graph.
+     * <p>
+     * No other graphs in the destination {@code DatasetGraph} are touched. If quads
+     * data is read, default graph data is sent to the destination named graph but all
+     * other quad data is discarded.
+     *
+     * @see #mergeLoader(DatasetGraph, MonitorOutput)
+     */
+    public static DataLoader mergeLoader(DatasetGraph dsg, Node graphName, MonitorOutput output) {
+        Objects.requireNonNull(dsg);
+        return new LoaderMerge(dsg, graphName, output);
+    }
+
     /**
      * Return a loader to load a dataset, using the provided plan.
      * See {@link LoaderPlans} for the standard plans.
@@ -31,6 +31,7 @@ import org.apache.jena.dboe.trans.bplustree.BPlusTree;
 import org.apache.jena.dboe.trans.data.TransBinaryDataFile;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFParser;
 import org.apache.jena.riot.system.StreamRDF;
@@ -38,11 +39,16 @@ import org.apache.jena.riot.system.StreamRDFWrapper;
 import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.system.progress.*;
 import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.loader.BulkLoaderException;
+import org.apache.jena.tdb2.solver.stats.TransStats;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.TupleChangeLog;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
 import org.apache.jena.tdb2.store.tupletable.TupleIndex;
 import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+import org.apache.jena.tdb2.sys.SystemTDB;
 import org.slf4j.Logger;
 
 /**
@@ -73,12 +79,61 @@ public class LoaderOps {
         return bpt;
     }
 
+    /**
+     * Check that online compaction is not recording changes. Loaders that write
+     * directly to the indexes bypass the change log, so they can not be used while a
+     * compaction is in progress.
+     */
+    public static void checkNotCompacting(DatasetGraphTDB dsgtdb) {
+        TupleChangeLog changeLog = dsgtdb.getChangeLog();
+        if ( changeLog != null && changeLog.isRecording() )
+            throw new BulkLoaderException("Online compaction in progress: loading directly to the indexes is not possible");
+    }
+
     /** Wrap an existing {@link StreamRDF} to add output of progress messages. */
     private static StreamRDF streamWithProgressMonitor(StreamRDF dest, String label, MonitorOutput output, int dataTickPoint, int dataSuperTick) {
         ProgressMonitor monitor = ProgressMonitorOutput.create(output, label, dataTickPoint, dataSuperTick);
         return new ProgressStreamRDF(dest, monitor);
     }
 
+    /**
+     * Recalculate the statistics maintained by transactions, for example after loading
+     * data directly into the indexes. Requires a write transaction.
+     */
+    public static void recalculateStats(DatasetGraphTDB dsgtdb, MonitorOutput output) {
+        TransStats stats = dsgtdb.getStats();
+        if ( stats == null )
+            return;
+        if ( output != null )
+            output.print("Statistics");
+        stats.recalculate();
+    }
+
+    /**
+     * The statistics maintained by transactions after loading triples directly into the
+     * indexes. They are recalculated if the database had no triples before the load, or
+     * if {@link SystemTDB#symLoaderStats} is set; otherwise they are marked as not known.
+     * Requires a write transaction.
+     */
+    public static void updateStatsAfterLoad(DatasetGraphTDB dsgtdb, boolean wasEmpty, MonitorOutput output) {
+        TransStats stats = dsgtdb.getStats();
+        if ( stats == null )
+            return;
+        if ( wasEmpty || ARQ.getContext().isTrue(SystemTDB.symLoaderStats) ) {
+            recalculateStats(dsgtdb, output);
+            return;
+        }
+        if ( output != null )
+            output.print("Statistics not updated");
+        stats.invalidate();
+    }
+
+    /** Whether the statistics maintained by transactions are known and there are no triples. */
+    public static boolean isEmptyStats(DatasetGraphTDB dsgtdb) {
+        TransStats stats = dsgtdb.getStats();
+        return stats != null && stats.getCount() == 0;
+    }
+
     /** Calculate a label for a progress monitor. */
     public static String label(String fileName) {
         String basename = FileOps.splitDirFile(fileName).get(1);
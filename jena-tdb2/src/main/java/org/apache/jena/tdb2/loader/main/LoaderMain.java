@@ -31,8 +31,10 @@ import org.apache.jena.query.TxnType;
 import org.apache.jena.riot.lang.StreamRDFCounting;
 import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.tdb2.loader.BulkLoaderException;
 import org.apache.jena.tdb2.loader.DataLoader;
 import org.apache.jena.tdb2.loader.base.*;
+import org.apache.jena.system.Txn;
 import org.apache.jena.system.progress.MonitorOutput;
 import org.apache.jena.system.progress.ProgressMonitor;
 import org.apache.jena.system.progress.ProgressMonitorOutput;
@@ -108,6 +110,8 @@ public class LoaderMain extends LoaderBase implements DataLoader {
 
     private final StreamRDFCounting dataInput;
     private final List<BulkStartFinish> dataProcess = new ArrayList<>();
+    // Whether the triple table was empty before loading.
+    private boolean emptyAtStart = false;
 
     public LoaderMain(LoaderPlan loaderPlan, DatasetGraph dsg, MonitorOutput output) {
         this(loaderPlan, dsg, null, output);
@@ -240,8 +244,17 @@ public class LoaderMain extends LoaderBase implements DataLoader {
 
     @Override
     public void startBulk() {
+        LoaderOps.checkNotCompacting(dsgtdb);
+        emptyAtStart = LoaderOps.isEmptyStats(dsgtdb);
         // Lock everyone else out while we multithread.
         dsgtdb.getTxnSystem().getTxnMgr().startExclusiveMode();
+        try {
+            // A compaction may have started recording while waiting.
+            LoaderOps.checkNotCompacting(dsgtdb);
+        } catch (BulkLoaderException ex) {
+            dsgtdb.getTxnSystem().getTxnMgr().finishExclusiveMode();
+            throw ex;
+        }
         super.startBulk();
         // Set the data pipeline
         BulkProcesses.start(dataProcess);
@@ -268,6 +281,9 @@ public class LoaderMain extends LoaderBase implements DataLoader {
         }
         super.finishBulk();
         dsgtdb.getTxnSystem().getTxnMgr().finishExclusiveMode();
+        if ( doTriples )
+            // The triples went directly into the indexes.
+            Txn.executeWrite(dsgtdb, ()->LoaderOps.updateStatsAfterLoad(dsgtdb, emptyAtStart, output));
     }
 
     /** Execute secondary index building of a {@link LoaderPlan} */
@@ -0,0 +1,384 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.loader.merge;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.atlas.iterator.PeekIterator;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.base.block.BlockMgr;
+import org.apache.jena.dboe.base.file.BufferChannel;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
+import org.apache.jena.dboe.trans.bplustree.rewriter.BPlusTreeRewriter;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.system.progress.MonitorOutput;
+import org.apache.jena.system.progress.ProgressIterator;
+import org.apache.jena.system.progress.ProgressMonitor;
+import org.apache.jena.system.progress.ProgressMonitorOutput;
+import org.apache.jena.tdb2.lib.TupleLib;
+import org.apache.jena.tdb2.loader.BulkLoaderException;
+import org.apache.jena.tdb2.loader.base.CoLib;
+import org.apache.jena.tdb2.loader.base.LoaderBase;
+import org.apache.jena.tdb2.loader.base.LoaderOps;
+import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.sys.DatabaseOps;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.apache.jena.tdb2.xloader.ExternalSortRecords;
+
+/**
+ * Bulk loader that adds to a database, which need not be empty, by building a new
+ * generation of the database.
+ * <p>
+ * The nodes of the data are added to the node table in a write transaction. The
+ * tuples, as records for each index, are sorted with an {@link ExternalSortRecords}.
+ * At the finish, each tuple index of the new generation is written in one sequential
+ * pass from the existing index merged with the new records ({@link BPlusTreeRewriter}),
+ * and the new generation replaces the current one ({@link DatabaseOps#rebuildIndexes}).
+ * <p>
+ * Writers are held up while loading. Readers continue on the current generation
+ * until the switch. The database must be on disk.
+ */
+public class LoaderMerge extends LoaderBase {
+
+    public static final int DataTickPoint   = 1_000_000;
+    public static final int DataSuperTick   = 10;
+
+    private final DatasetGraphSwitchable container;
+    private final long sortMemory;
+    private final int threads;
+    private final boolean deleteOld;
+    private final StreamRDF stream;
+
+    // Set in startBulk.
+    private NodeTable nodeTable;
+    private TupleIndex[] tripleIndexes;
+    private TupleIndex[] quadIndexes;
+    private ExternalSortRecords[] tripleSorters;
+    private ExternalSortRecords[] quadSorters;
+    private Path workDir;
+
+    private long countTriples;
+    private long countQuads;
+
+    /** Merge loader with sort memory of half the heap, one sort thread per processor, keeping old generations. */
+    public LoaderMerge(DatasetGraph dsg, Node graphName, MonitorOutput output) {
+        this(dsg, graphName, output, -1, -1, false);
+    }
+
+    /**
+     * Merge loader.
+     *
+     * @param dsg The database.
+     * @param graphName Graph to load triples into, or null.
+     * @param output Progress output, or null.
+     * @param sortMemory Total memory for sorting, in bytes; 0 or less means half the maximum heap.
+     * @param threads Total number of sort threads; 0 or less means the number of processors.
+     * @param deleteOld Whether to delete the previous generation of the database.
+     */
+    public LoaderMerge(DatasetGraph dsg, Node graphName, MonitorOutput output, long sortMemory, int threads, boolean deleteOld) {
+        super(dsg, graphName, output);
+        if ( ! TDBInternal.isBackedByTDB(dsg) )
+            throw new BulkLoaderException("Not a TDB2 database");
+        if ( ! ( dsg instanceof DatasetGraphSwitchable sw ) || ! sw.hasContainerPath() )
+            throw new BulkLoaderException("Merge loader: the database must be on disk");
+        this.container = sw;
+        this.sortMemory = ( sortMemory > 0 ) ? sortMemory : Runtime.getRuntime().maxMemory() / 2;
+        this.threads = ( threads > 0 ) ? threads : Runtime.getRuntime().availableProcessors();
+        this.deleteOld = deleteOld;
+
+        StreamRDF s = StreamRDFLib.dataset(dsg);
+        s = new StreamRDFWrapper(s) {
+            @Override
+            public void triple(Triple triple) {
+                addTriple(triple.getSubject(), triple.getPredicate(), triple.getObject());
+            }
+
+            @Override
+            public void quad(Quad quad) {
+                if ( quad.isTriple() || quad.isDefaultGraph() )
+                    addTriple(quad.getSubject(), quad.getPredicate(), quad.getObject());
+                else
+                    addQuad(quad.getGraph(), quad.getSubject(), quad.getPredicate(), quad.getObject());
+            }
+        };
+        this.stream = LoaderOps.toNamedGraph(s, graphName);
+    }
+
+    @Override
+    public void startBulk() {
+        super.startBulk();
+        // Nodes and prefixes go into the current database.
+        // The write transaction holds up other writers, including a compaction.
+        dsg.begin(TxnType.WRITE);
+        try {
+            DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+            LoaderOps.checkNotCompacting(dsgtdb);
+            nodeTable = dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable();
+            tripleIndexes = dsgtdb.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes();
+            quadIndexes = dsgtdb.getQuadTable().getNodeTupleTable().getTupleTable().getIndexes();
+            int N = tripleIndexes.length + quadIndexes.length;
+            long memory = sortMemory / N;
+            int sortThreads = Math.max(1, threads / N);
+            workDir = Files.createTempDirectory(container.getContainerPath(), "merge-");
+            tripleSorters = sorters(tripleIndexes, memory, sortThreads);
+            quadSorters = sorters(quadIndexes, memory, sortThreads);
+        } catch (IOException ex) {
+            finishException(ex);
+            throw IOX.exception(ex);
+        } catch (RuntimeException ex) {
+            finishException(ex);
+            throw ex;
+        }
+    }
+
+    private ExternalSortRecords[] sorters(TupleIndex[] indexes, long memory, int sortThreads) {
+        ExternalSortRecords[] sorters = new ExternalSortRecords[indexes.length];
+        for ( int i = 0 ; i < indexes.length ; i++ )
+            sorters[i] = new ExternalSortRecords(recordFactory(indexes[i]), memory, sortThreads, workDir);
+        return sorters;
+    }
+
+    private static RecordFactory recordFactory(TupleIndex index) {
+        return LoaderOps.idxBTree(index).getRecordFactory();
+    }
+
+    @Override
+    public void finishBulk() {
+        try {
+            // The new nodes and the prefixes.
+            dsg.commit();
+            dsg.end();
+            if ( countTriples + countQuads > 0 )
+                DatabaseOps.rebuildIndexes(container, deleteOld, this::mergeIndexes);
+        } finally {
+            closeSorters();
+        }
+        super.finishBulk();
+    }
+
+    @Override
+    public void finishException(Exception ex) {
+        if ( dsg.isInTransaction() ) {
+            dsg.abort();
+            dsg.end();
+        }
+        closeSorters();
+        super.finishException(ex);
+    }
+
+    private void closeSorters() {
+        if ( tripleSorters != null ) {
+            for ( ExternalSortRecords sorter : tripleSorters )
+                sorter.close();
+            tripleSorters = null;
+        }
+        if ( quadSorters != null ) {
+            for ( ExternalSortRecords sorter : quadSorters )
+                sorter.close();
+            quadSorters = null;
+        }
+        if ( workDir != null ) {
+            IO.deleteAll(workDir);
+            workDir = null;
+        }
+    }
+
+    private void addTriple(Node s, Node p, Node o) {
+        Tuple<NodeId> tuple = TupleFactory.create3(nodeTable.getAllocateNodeId(s),
+                                                   nodeTable.getAllocateNodeId(p),
+                                                   nodeTable.getAllocateNodeId(o));
+        addTuple(tuple, tripleIndexes, tripleSorters);
+        countTriples++;
+    }
+
+    private void addQuad(Node g, Node s, Node p, Node o) {
+        Tuple<NodeId> tuple = TupleFactory.create4(nodeTable.getAllocateNodeId(g),
+                                                   nodeTable.getAllocateNodeId(s),
+                                                   nodeTable.getAllocateNodeId(p),
+                                                   nodeTable.getAllocateNodeId(o));
+        addTuple(tuple, quadIndexes, quadSorters);
+        countQuads++;
+    }
+
+    private static void addTuple(Tuple<NodeId> tuple, TupleIndex[] indexes, ExternalSortRecords[] sorters) {
+        for ( int i = 0 ; i < indexes.length ; i++ ) {
+            Record r = TupleLib.record(recordFactory(indexes[i]), tuple, indexes[i].getMapping());
+            sorters[i].add(r);
+        }
+    }
+
+    /** Build the indexes of the new generation, all at the same time. */
+    private void mergeIndexes(DatasetGraphTDB dsg1, DatasetGraphTDB dsg2) {
+        TupleIndex[] triples2 = dsg2.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes();
+        TupleIndex[] quads2 = dsg2.getQuadTable().getNodeTupleTable().getTupleTable().getIndexes();
+        int N = triples2.length + quads2.length;
+        ExecutorService executor = Executors.newFixedThreadPool(N);
+        try {
+            List<Future<?>> results = new ArrayList<>(N);
+            for ( int i = 0 ; i < triples2.length ; i++ ) {
+                TupleIndex idx1 = tripleIndexes[i];
+                TupleIndex idx2 = triples2[i];
+                ExternalSortRecords sorter = tripleSorters[i];
+                results.add(executor.submit(()->mergeIndex(dsg1, idx1, sorter, idx2)));
+            }
+            for ( int i = 0 ; i < quads2.length ; i++ ) {
+                TupleIndex idx1 = quadIndexes[i];
+                TupleIndex idx2 = quads2[i];
+                ExternalSortRecords sorter = quadSorters[i];
+                results.add(executor.submit(()->mergeIndex(dsg1, idx1, sorter, idx2)));
+            }
+            for ( Future<?> f : results )
+                f.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException rex )
+                throw rex;
+            if ( cause instanceof Error err )
+                throw err;
+            throw new BulkLoaderException("Merge indexes", cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BulkLoaderException("Merge indexes: interrupted", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+        Txn.executeWrite(dsg2, ()->LoaderOps.recalculateStats(dsg2, output));
+    }
+
+    /** Write the new index from the old index and the sorted new records. */
+    private void mergeIndex(DatasetGraphTDB dsg1, TupleIndex idx1, ExternalSortRecords sorter, TupleIndex idx2) {
+        if ( ! idx1.getName().equals(idx2.getName()) )
+            throw new BulkLoaderException("Index mismatch: "+idx1.getName()+" : "+idx2.getName());
+        Txn.executeRead(dsg1, ()->{
+            Iterator<Record> iter = new MergeRecords(LoaderOps.idxBTree(idx1).iterator(), sorter.sorted());
+            PeekIterator<Record> records = PeekIterator.create(iter);
+            if ( ! records.hasNext() )
+                return;
+            BPlusTree bpt = LoaderOps.idxBTree(idx2);
+            BlockMgr blkMgrNodes = bpt.getNodeManager().getBlockMgr();
+            BlockMgr blkMgrRecords = bpt.getRecordsMgr().getBlockMgr();
+            BufferChannel blkState = bpt.getStateManager().getBufferChannel();
+            ProgressMonitor monitor = null;
+            Iterator<Record> iter2 = records;
+            if ( output != null ) {
+                monitor = ProgressMonitorOutput.create(output, idx2.getName(), DataTickPoint, DataSuperTick);
+                iter2 = new ProgressIterator<>(records, monitor);
+                monitor.start();
+            }
+            Iterator<Record> iterRecords = iter2;
+            // Independent transaction on just this BPlusTree.
+            CoLib.executeWrite(idx2, ()->
+                BPlusTreeRewriter.packIntoBPlusTree(iterRecords, bpt.getParams(), bpt.getRecordFactory(), blkState, blkMgrNodes, blkMgrRecords)
+            );
+            if ( monitor != null ) {
+                monitor.finish();
+                output.print("Index %s : %,d records", idx2.getName(), monitor.getTicks());
+            }
+        });
+    }
+
+    /** Merge two sorted iterators of records, each without duplicates. */
+    private static class MergeRecords implements Iterator<Record> {
+        private final PeekIterator<Record> iter1;
+        private final PeekIterator<Record> iter2;
+
+        MergeRecords(Iterator<Record> iter1, Iterator<Record> iter2) {
+            this.iter1 = PeekIterator.create(iter1);
+            this.iter2 = PeekIterator.create(iter2);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iter1.hasNext() || iter2.hasNext();
+        }
+
+        @Override
+        public Record next() {
+            if ( ! iter1.hasNext() ) {
+                if ( ! iter2.hasNext() )
+                    throw new NoSuchElementException("MergeRecords");
+                return iter2.next();
+            }
+            if ( ! iter2.hasNext() )
+                return iter1.next();
+            int x = Record.compareByKeyValue(iter1.peek(), iter2.peek());
+            if ( x < 0 )
+                return iter1.next();
+            if ( x > 0 )
+                return iter2.next();
+            // Already in the index.
+            iter2.next();
+            return iter1.next();
+        }
+    }
+
+    @Override
+    public StreamRDF stream() {
+        return stream;
+    }
+
+    @Override
+    protected ProgressMonitor createProgressMonitor(MonitorOutput output) {
+        return ProgressMonitorOutput.create(output, "<unset>", DataTickPoint, DataSuperTick);
+    }
+
+    @Override
+    public boolean bulkUseTransaction() {
+        // The transaction, for the nodes, is managed by this loader.
+        return false;
+    }
+
+    @Override
+    public long countTriples() {
+        return countTriples;
+    }
+
+    @Override
+    public long countQuads() {
+        return countQuads;
+    }
+}
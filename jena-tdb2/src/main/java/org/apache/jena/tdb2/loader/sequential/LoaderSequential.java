@@ -53,6 +53,7 @@ public class LoaderSequential extends LoaderBase {
     private long countQuads;
     private long countTriples;
     private StreamRDF stream;
+    private boolean emptyAtStart = false;
 
     public LoaderSequential(DatasetGraph dsg, Node graphName, MonitorOutput output) {
         super(dsg, graphName, output);
@@ -84,6 +85,7 @@ public class LoaderSequential extends LoaderBase {
     public void startBulk() {
         //Not in a transaction.
         //dsgtdb.getTxnSystem().getTxnMgr().startExclusiveMode();
+        emptyAtStart = LoaderOps.isEmptyStats(dsgtdb);
         super.startBulk();
         triplesLoader.loadDataStart();
         quadsLoader.loadDataStart();
@@ -93,6 +95,9 @@ public class LoaderSequential extends LoaderBase {
     public void finishBulk() {
         triplesLoader.loadDataFinish();
         quadsLoader.loadDataFinish();
+        // Distinct counts are not kept while the secondary indexes are dropped.
+        if ( countTriples != 0 )
+            LoaderOps.updateStatsAfterLoad(dsgtdb, emptyAtStart, output);
         super.finishBulk();
         //dsgtdb.getTxnSystem().getTxnMgr().finishExclusiveMode();
     }
@@ -57,6 +57,9 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
     /*package*/ final Item<Integer>            prefixNodeId2NodeCacheSize;
     /*package*/ final Item<Integer>            prefixNodeMissCacheSize;
     /*package*/ final Item<Double>             nodeCacheInitialCapacityFactor;
+    /*package*/ final Item<Long>               nodeCacheOffHeapSize;
+    /*package*/ final Item<Boolean>            nodeHashFilter;
+    /*package*/ final Item<Boolean>            nodeDataMapped;
 
     /*
      * These are items affect database layout and
@@ -79,6 +82,8 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
     /*package*/ final Item<String>             primaryIndexPrefix;
     /*package*/ final Item<String[]>           prefixIndexes;
 
+    /*package*/ final Item<Boolean>            packedIndexLeaves;
+
     /** @deprecated Prefer {@link #builder(String)}. */
     @Deprecated
     public static StoreParamsBuilder builder() {
@@ -114,13 +119,17 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
                             Item<Integer> prefixNodeMissCacheSize,
 
                             Item<Double> nodeCacheInitialCapacityFactor,
+                            Item<Long> nodeCacheOffHeapSize,
+                            Item<Boolean> nodeHashFilter,
+                            Item<Boolean> nodeDataMapped,
 
                             Item<String> nodeTableBaseName,
                             Item<String> primaryIndexTriples, Item<String[]> tripleIndexes,
                             Item<String> primaryIndexQuads, Item<String[]> quadIndexes,
 
                             Item<String> prefixTableBasename,
-                            Item<String> primaryIndexPrefix, Item<String[]> prefixIndexes) {
+                            Item<String> primaryIndexPrefix, Item<String[]> prefixIndexes,
+                            Item<Boolean> packedIndexLeaves) {
         this.label                  = label;
         this.fileMode               = fileMode;
         this.blockSize              = blockSize;
@@ -136,6 +145,9 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         this.prefixNodeMissCacheSize      = prefixNodeMissCacheSize;
 
         this.nodeCacheInitialCapacityFactor = nodeCacheInitialCapacityFactor;
+        this.nodeCacheOffHeapSize   = nodeCacheOffHeapSize;
+        this.nodeHashFilter         = nodeHashFilter;
+        this.nodeDataMapped         = nodeDataMapped;
 
         this.nodeTableBaseName      = nodeTableBaseName;
 
@@ -147,6 +159,7 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         this.prefixIndexes          = prefixIndexes;
 
         this.prefixTableBaseName    = prefixTableBasename;
+        this.packedIndexLeaves      = packedIndexLeaves;
     }
 
     /** The system default settings. This is the normal set to use.
@@ -284,6 +297,36 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         return nodeCacheInitialCapacityFactor.isSet;
     }
 
+    @Override
+    public Long getNodeCacheOffHeapSize() {
+        return nodeCacheOffHeapSize.value;
+    }
+
+    @Override
+    public boolean isSetNodeCacheOffHeapSize() {
+        return nodeCacheOffHeapSize.isSet;
+    }
+
+    @Override
+    public Boolean isNodeHashFilter() {
+        return nodeHashFilter.value;
+    }
+
+    @Override
+    public boolean isSetNodeHashFilter() {
+        return nodeHashFilter.isSet;
+    }
+
+    @Override
+    public Boolean isNodeDataMapped() {
+        return nodeDataMapped.value;
+    }
+
+    @Override
+    public boolean isSetNodeDataMapped() {
+        return nodeDataMapped.isSet;
+    }
+
     public String getNodeTableBaseName() {
         return nodeTableBaseName.value;
     }
@@ -326,6 +369,18 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         return prefixIndexes.value;
     }
 
+    /**
+     * Whether the leaf blocks of the triple, quad and prefix indexes are prefix
+     * compressed. The node table index is not affected.
+     */
+    public Boolean isPackedIndexLeaves() {
+        return packedIndexLeaves.value;
+    }
+
+    public boolean isSetPackedIndexLeaves() {
+        return packedIndexLeaves.isSet;
+    }
+
     @Override
     public String toString() {
         StringBuilder buff = new StringBuilder();
@@ -343,6 +398,9 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         fmt(buff, "prefixNodeId2NodeCacheSize", getPrefixNodeId2NodeCacheSize(), prefixNodeId2NodeCacheSize.isSet);
         fmt(buff, "prefixNodeMissCacheSize", getPrefixNodeMissCacheSize(), prefixNodeMissCacheSize.isSet);
         fmt(buff, "nodeCacheInitialCapacityFactor", getNodeCacheInitialCapacityFactor(), nodeCacheInitialCapacityFactor.isSet);
+        fmt(buff, "nodeCacheOffHeapSize", getNodeCacheOffHeapSize(), nodeCacheOffHeapSize.isSet);
+        fmt(buff, "nodeHashFilter", isNodeHashFilter().toString(), nodeHashFilter.isSet);
+        fmt(buff, "nodeDataMapped", isNodeDataMapped().toString(), nodeDataMapped.isSet);
 
         fmt(buff, "nodeTableBaseName", getNodeTableBaseName(), nodeTableBaseName.isSet);
         fmt(buff, "primaryIndexTriples", getPrimaryIndexTriples(), primaryIndexTriples.isSet);
@@ -353,6 +411,7 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         fmt(buff, "prefixTableBaseName", getPrefixTableBaseName(), prefixTableBaseName.isSet);
         fmt(buff, "primaryIndexPrefix", getPrimaryIndexPrefix(), primaryIndexPrefix.isSet);
         fmt(buff, "prefixIndexes", getPrefixIndexes(), prefixIndexes.isSet);
+        fmt(buff, "packedIndexLeaves", isPackedIndexLeaves().toString(), packedIndexLeaves.isSet);
 
         return buff.toString();
     }
@@ -415,6 +474,12 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
             return false;
         if ( !sameValues(params1.nodeCacheInitialCapacityFactor, params2.nodeCacheInitialCapacityFactor) )
             return false;
+        if ( !sameValues(params1.nodeCacheOffHeapSize, params2.nodeCacheOffHeapSize) )
+            return false;
+        if ( !sameValues(params1.nodeHashFilter, params2.nodeHashFilter) )
+            return false;
+        if ( !sameValues(params1.nodeDataMapped, params2.nodeDataMapped) )
+            return false;
         if ( !sameValues(params1.nodeTableBaseName, params2.nodeTableBaseName) )
             return false;
         if ( !sameValues(params1.primaryIndexTriples, params2.primaryIndexTriples) )
@@ -431,6 +496,8 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
             return false;
         if ( !sameValues(params1.prefixIndexes, params2.prefixIndexes) )
             return false;
+        if ( !sameValues(params1.packedIndexLeaves, params2.packedIndexLeaves) )
+            return false;
         return true;
     }
 
@@ -449,6 +516,9 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         result = prime * result + ((prefixNodeId2NodeCacheSize == null) ? 0 : prefixNodeId2NodeCacheSize.hashCode());
         result = prime * result + ((prefixNodeMissCacheSize == null) ? 0 : prefixNodeMissCacheSize.hashCode());
         result = prime * result + ((nodeCacheInitialCapacityFactor == null) ? 0 : nodeCacheInitialCapacityFactor.hashCode());
+        result = prime * result + ((nodeCacheOffHeapSize == null) ? 0 : nodeCacheOffHeapSize.hashCode());
+        result = prime * result + ((nodeHashFilter == null) ? 0 : nodeHashFilter.hashCode());
+        result = prime * result + ((nodeDataMapped == null) ? 0 : nodeDataMapped.hashCode());
         result = prime * result + ((blockReadCacheSize == null) ? 0 : blockReadCacheSize.hashCode());
         result = prime * result + ((blockSize == null) ? 0 : blockSize.hashCode());
         result = prime * result + ((blockWriteCacheSize == null) ? 0 : blockWriteCacheSize.hashCode());
@@ -461,6 +531,7 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         result = prime * result + ((primaryIndexTriples == null) ? 0 : primaryIndexTriples.hashCode());
         result = prime * result + ((quadIndexes == null) ? 0 : quadIndexes.hashCode());
         result = prime * result + ((tripleIndexes == null) ? 0 : tripleIndexes.hashCode());
+        result = prime * result + ((packedIndexLeaves == null) ? 0 : packedIndexLeaves.hashCode());
         return result;
     }
 
@@ -508,6 +579,21 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
                 return false;
         } else if ( !nodeCacheInitialCapacityFactor.equals(other.nodeCacheInitialCapacityFactor) )
             return false;
+        if ( nodeCacheOffHeapSize == null ) {
+            if ( other.nodeCacheOffHeapSize != null )
+                return false;
+        } else if ( !nodeCacheOffHeapSize.equals(other.nodeCacheOffHeapSize) )
+            return false;
+        if ( nodeHashFilter == null ) {
+            if ( other.nodeHashFilter != null )
+                return false;
+        } else if ( !nodeHashFilter.equals(other.nodeHashFilter) )
+            return false;
+        if ( nodeDataMapped == null ) {
+            if ( other.nodeDataMapped != null )
+                return false;
+        } else if ( !nodeDataMapped.equals(other.nodeDataMapped) )
+            return false;
         if ( blockReadCacheSize == null ) {
             if ( other.blockReadCacheSize != null )
                 return false;
@@ -568,6 +654,11 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
                 return false;
         } else if ( !tripleIndexes.equals(other.tripleIndexes) )
             return false;
+        if ( packedIndexLeaves == null ) {
+            if ( other.packedIndexLeaves != null )
+                return false;
+        } else if ( !packedIndexLeaves.equals(other.packedIndexLeaves) )
+            return false;
         return true;
     }
 }
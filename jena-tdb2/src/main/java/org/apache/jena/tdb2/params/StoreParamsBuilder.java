@@ -85,6 +85,12 @@ public class StoreParamsBuilder {
 
     private Item<Double>             nodeCacheInitialCapacityFactor = new Item<>(StoreParamsConst.NodeCacheInitialCapacityFactor, false);
 
+    private Item<Long>               nodeCacheOffHeapSize  = new Item<>(StoreParamsConst.NodeCacheOffHeapSize, false);
+
+    private Item<Boolean>            nodeHashFilter        = new Item<>(StoreParamsConst.NodeHashFilter, false);
+
+    private Item<Boolean>            nodeDataMapped        = new Item<>(StoreParamsConst.NodeDataMapped, false);
+
     /** Database layout - ignored after a database is created */
 
     private Item<Integer>            blockSize             = new Item<>(StoreParamsConst.blockSize, false);
@@ -105,6 +111,8 @@ public class StoreParamsBuilder {
 
     private Item<String[]>           prefixIndexes         = new Item<>(StoreParamsConst.prefixIndexes, false);
 
+    private Item<Boolean>            packedIndexLeaves     = new Item<>(StoreParamsConst.packedIndexLeaves, false);
+
     /** @deprecated Prefer {@link #create(String)}. */
     @Deprecated
     public static StoreParamsBuilder create() {
@@ -164,6 +172,15 @@ public class StoreParamsBuilder {
         if ( additionalParams.isSetNodeCacheInitialCapacityFactor() )
             b.nodeCacheInitialCapacityFactor(additionalParams.getNodeCacheInitialCapacityFactor());
 
+        if ( additionalParams.isSetNodeCacheOffHeapSize() )
+            b.nodeCacheOffHeapSize(additionalParams.getNodeCacheOffHeapSize());
+
+        if ( additionalParams.isSetNodeHashFilter() )
+            b.nodeHashFilter(additionalParams.isNodeHashFilter());
+
+        if ( additionalParams.isSetNodeDataMapped() )
+            b.nodeDataMapped(additionalParams.isNodeDataMapped());
+
         return b.build();
     }
 
@@ -186,6 +203,9 @@ public class StoreParamsBuilder {
         this.prefixNodeMissCacheSize      = other.prefixNodeMissCacheSize;
 
         this.nodeCacheInitialCapacityFactor = other.nodeCacheInitialCapacityFactor;
+        this.nodeCacheOffHeapSize   = other.nodeCacheOffHeapSize;
+        this.nodeHashFilter         = other.nodeHashFilter;
+        this.nodeDataMapped         = other.nodeDataMapped;
 
         this.nodeTableBaseName      = other.nodeTableBaseName;
 
@@ -198,6 +218,8 @@ public class StoreParamsBuilder {
         this.prefixTableBaseName    = other.prefixTableBaseName;
         this.primaryIndexPrefix     = other.primaryIndexPrefix;
         this.prefixIndexes          = other.prefixIndexes;
+
+        this.packedIndexLeaves      = other.packedIndexLeaves;
     }
 
     public StoreParams build() {
@@ -206,11 +228,15 @@ public class StoreParamsBuilder {
                  Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize,
                  prefixNode2NodeIdCacheSize, prefixNodeId2NodeCacheSize, prefixNodeMissCacheSize,
                  nodeCacheInitialCapacityFactor,
+                 nodeCacheOffHeapSize,
+                 nodeHashFilter,
+                 nodeDataMapped,
                  nodeTableBaseName,
                  primaryIndexTriples, tripleIndexes,
                  primaryIndexQuads, quadIndexes,
                  prefixTableBaseName, primaryIndexPrefix,
-                 prefixIndexes);
+                 prefixIndexes,
+                 packedIndexLeaves);
     }
 
     public String label() {
@@ -321,6 +347,33 @@ public class StoreParamsBuilder {
         return this;
     }
 
+    public long getNodeCacheOffHeapSize() {
+        return nodeCacheOffHeapSize.value;
+    }
+
+    public StoreParamsBuilder nodeCacheOffHeapSize(long nodeCacheOffHeapSize) {
+        this.nodeCacheOffHeapSize = new Item<>(nodeCacheOffHeapSize, true);
+        return this;
+    }
+
+    public boolean isNodeHashFilter() {
+        return nodeHashFilter.value;
+    }
+
+    public StoreParamsBuilder nodeHashFilter(boolean nodeHashFilter) {
+        this.nodeHashFilter = new Item<>(nodeHashFilter, true);
+        return this;
+    }
+
+    public boolean isNodeDataMapped() {
+        return nodeDataMapped.value;
+    }
+
+    public StoreParamsBuilder nodeDataMapped(boolean nodeDataMapped) {
+        this.nodeDataMapped = new Item<>(nodeDataMapped, true);
+        return this;
+    }
+
     public String getNodeTableBaseName() {
         return nodeTableBaseName.value;
     }
@@ -393,4 +446,13 @@ public class StoreParamsBuilder {
         this.prefixIndexes = new Item<>(prefixIndexes, true);
         return this;
     }
+
+    public boolean isPackedIndexLeaves() {
+        return packedIndexLeaves.value;
+    }
+
+    public StoreParamsBuilder packedIndexLeaves(boolean packedIndexLeaves) {
+        this.packedIndexLeaves = new Item<>(packedIndexLeaves, true);
+        return this;
+    }
 }
@@ -98,6 +98,9 @@ public class StoreParamsCodec {
         encode(builder, key(fPrefixNodeId2NodeCacheSize),     params.getPrefixNodeId2NodeCacheSize());
         encode(builder, key(fPrefixNodeMissCacheSize),        params.getPrefixNodeMissCacheSize());
         encode(builder, key(fNodeCacheInitialCapacityFactor), params.getNodeCacheInitialCapacityFactor());
+        encodeIfNotDft(builder, key(fNodeCacheOffHeapSize),   params.getNodeCacheOffHeapSize(), NodeCacheOffHeapSize);
+        encodeIfNotDft(builder, key(fNodeHashFilter),         params.isNodeHashFilter(),        NodeHashFilter);
+        encodeIfNotDft(builder, key(fNodeDataMapped),         params.isNodeDataMapped(),        NodeDataMapped);
         encode(builder, key(fNodeTableBaseName),              params.getNodeTableBaseName());
         encode(builder, key(fPrimaryIndexTriples),            params.getPrimaryIndexTriples());
         encode(builder, key(fTripleIndexes),                  params.getTripleIndexes());
@@ -106,6 +109,7 @@ public class StoreParamsCodec {
         encode(builder, key(fPrefixTableBaseName),            params.getPrefixTableBaseName());
         encode(builder, key(fPrimaryIndexPrefix),             params.getPrimaryIndexPrefix());
         encode(builder, key(fPrefixIndexes),                  params.getPrefixIndexes());
+        encodeIfNotDft(builder, key(fPackedIndexLeaves),      params.isPackedIndexLeaves(),     packedIndexLeaves);
 
         builder.finishObject("StoreParams");
         return (JsonObject)builder.build();
@@ -145,6 +149,9 @@ public class StoreParamsCodec {
                 case fPrefixNodeId2NodeCacheSize:     builder.prefixNodeId2NodeCacheSize(getInt(json, key));        break ;
                 case fPrefixNodeMissCacheSize:        builder.prefixNodeMissCacheSize(getInt(json, key));           break ;
                 case fNodeCacheInitialCapacityFactor: builder.nodeCacheInitialCapacityFactor(getDouble(json, key)); break ;
+                case fNodeCacheOffHeapSize:           builder.nodeCacheOffHeapSize(getLong(json, key));             break ;
+                case fNodeHashFilter:                 builder.nodeHashFilter(getBoolean(json, key));                break ;
+                case fNodeDataMapped:                 builder.nodeDataMapped(getBoolean(json, key));                break ;
 
                 case fNodeTableBaseName:              builder.nodeTableBaseName(getString(json, key));              break ;
                 case fPrimaryIndexTriples:            builder.primaryIndexTriples(getString(json, key));            break ;
@@ -155,6 +162,7 @@ public class StoreParamsCodec {
                 case fPrefixTableBaseName:            builder.prefixTableBaseName(getString(json, key));            break ;
                 case fPrimaryIndexPrefix:             builder.primaryIndexPrefix(getString(json, key));             break ;
                 case fPrefixIndexes:                  builder.prefixIndexes(getStringArray(json, key));             break ;
+                case fPackedIndexLeaves:              builder.packedIndexLeaves(getBoolean(json, key));             break ;
 
                 default:
                     throw new TDBException("StoreParams key not recognized: "+key);
@@ -179,6 +187,13 @@ public class StoreParamsCodec {
         return x;
     }
 
+    private static Long getLong(JsonObject json, String key) {
+        if ( ! json.hasKey(key) )
+            throw new TDBException("StoreParamsCodec.getLong: no such key: "+key);
+        Long x = json.get(key).getAsNumber().value().longValue();
+        return x;
+    }
+
     private static Double getDouble(JsonObject json, String key) {
         if ( ! json.hasKey(key) )
             throw new TDBException("StoreParamsCodec.getDouble: no such key: "+key);
@@ -186,6 +201,13 @@ public class StoreParamsCodec {
         return x;
     }
 
+    private static Boolean getBoolean(JsonObject json, String key) {
+        if ( ! json.hasKey(key) )
+            throw new TDBException("StoreParamsCodec.getBoolean: no such key: "+key);
+        Boolean x = json.get(key).getAsBoolean().value();
+        return x;
+    }
+
     private static String[] getStringArray(JsonObject json, String key) {
         if ( ! json.hasKey(key) )
             throw new TDBException("StoreParamsCodec.getStringArray: no such key: "+key);
@@ -197,6 +219,15 @@ public class StoreParamsCodec {
         return x;
     }
 
+    // Encode helper for keys added after the original set.
+    // These are only written when not the default so that
+    // older versions, which reject unknown keys, can still open the database.
+    private static void encodeIfNotDft(JsonBuilder builder, String name, Object value, Object dftValue) {
+        if ( dftValue.equals(value) )
+            return;
+        encode(builder, name, value);
+    }
+
     // Encode helper.
     private static void encode(JsonBuilder builder, String name, Object value) {
         if ( value instanceof Double number ) {
@@ -208,6 +239,10 @@ public class StoreParamsCodec {
             builder.key(name).value(x);
             return;
         }
+        if ( value instanceof Boolean bool ) {
+            builder.key(name).value(bool.booleanValue());
+            return;
+        }
         if ( value instanceof String str ) {
             builder.key(name).value(str);
             return;
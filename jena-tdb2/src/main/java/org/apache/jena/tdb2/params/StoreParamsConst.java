@@ -61,6 +61,15 @@ public class StoreParamsConst {
     public static final String  fNodeCacheInitialCapacityFactor = "node_cache_initial_capacity_factor";
     public static final double  NodeCacheInitialCapacityFactor  = SystemTDB.NodeCacheInitialCapacityFactor;
 
+    public static final String  fNodeCacheOffHeapSize = "node_cache_offheap_size";
+    public static final long    NodeCacheOffHeapSize  = SystemTDB.NodeCacheOffHeapSize;
+
+    public static final String  fNodeHashFilter       = "node_hash_filter";
+    public static final boolean NodeHashFilter        = SystemTDB.NodeHashFilter;
+
+    public static final String  fNodeDataMapped       = "node_data_mapped";
+    public static final boolean NodeDataMapped        = SystemTDB.NodeDataMapped;
+
     /** Database layout - ignored after a database is created */
     public static final String   fBlockSize            = "block_size";
     public static final int      blockSize             = SystemTDB.BlockSize;
@@ -89,6 +98,9 @@ public class StoreParamsConst {
     public static final String   fPrefixIndexes        = "prefix_indexes";
     public static final String[] prefixIndexes         = Names.prefixIndexes;
 
+    public static final String   fPackedIndexLeaves    = "packed_index_leaves";
+    public static final boolean  packedIndexLeaves     = false;
+
     // Must be after the constants above to get initialization order right
     // because StoreParamsBuilder uses these constants.
 
@@ -77,4 +77,25 @@ public interface StoreParamsDynamic {
      */
     public Double getNodeCacheInitialCapacityFactor();
     public boolean isSetNodeCacheInitialCapacityFactor();
+
+    /**
+     * Size, in bytes, of the off-heap cache of nodes, used when a node is not in the
+     * on-heap node caches. 0 means no off-heap cache.
+     */
+    public Long getNodeCacheOffHeapSize();
+    public boolean isSetNodeCacheOffHeapSize();
+
+    /**
+     * Whether to keep a Bloom filter of the node hashes of the node table, so that
+     * looking up a node that is not in the database does not search the node index.
+     */
+    public Boolean isNodeHashFilter();
+    public boolean isSetNodeHashFilter();
+
+    /**
+     * Whether to read the node data file through memory mapped buffers, so that
+     * concurrent readers decode nodes without taking the node table lock.
+     */
+    public Boolean isNodeDataMapped();
+    public boolean isSetNodeDataMapped();
 }
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.jena.atlas.logging.Log;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecException;
+import org.apache.jena.query.SortCondition;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingComparator;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.expr.VariableNotBoundException;
+import org.apache.jena.sparql.function.FunctionEnv;
+import org.apache.jena.tdb2.store.NodeIdValues;
+
+/**
+ * The ORDER BY order of {@link BindingComparator}, where sort conditions that are a
+ * variable bound to inline numbers, dateTimes or dates in both bindings are compared on
+ * the NodeIds, without turning them into Nodes. Comparisons of equal values, and of
+ * values the NodeIds do not decide, are done as {@link BindingComparator} does them.
+ */
+class NodeIdComparator implements Comparator<Binding> {
+    private final List<SortCondition> conditions;
+    // The variable of each condition that is just a variable.
+    private final Var[] vars;
+    private final FunctionEnv env;
+
+    NodeIdComparator(List<SortCondition> conditions, FunctionEnv env) {
+        this.conditions = conditions;
+        this.env = env;
+        this.vars = new Var[conditions.size()];
+        for ( int i = 0 ; i < vars.length ; i++ ) {
+            Expr expr = conditions.get(i).getExpression();
+            if ( expr != null && expr.isVariable() )
+                vars[i] = expr.asVar();
+        }
+    }
+
+    @Override
+    public int compare(Binding bind1, Binding bind2) {
+        for ( int i = 0 ; i < vars.length ; i++ ) {
+            SortCondition sc = conditions.get(i);
+            int x = Expr.CMP_EQUAL;
+            if ( vars[i] != null && bind1 instanceof BindingTDB b1 && bind2 instanceof BindingTDB b2 )
+                x = NodeIdValues.compare(b1.getNodeId(vars[i]), b2.getNodeId(vars[i]));
+            // Equal values may be different terms.
+            if ( x != Expr.CMP_LESS && x != Expr.CMP_GREATER )
+                x = compareNodes(sc.getExpression(), bind1, bind2);
+            if ( x != Expr.CMP_EQUAL )
+                return sc.getDirection() == Query.ORDER_DESCENDING ? -x : x;
+        }
+        return BindingComparator.compareBindingsSyntactic(bind1, bind2);
+    }
+
+    private int compareNodes(Expr expr, Binding bind1, Binding bind2) {
+        if ( expr == null )
+            throw new QueryExecException("Broken sort condition");
+        return BindingComparator.compareNodesRaw(eval(expr, bind1), eval(expr, bind2));
+    }
+
+    private NodeValue eval(Expr expr, Binding binding) {
+        try {
+            return expr.eval(binding, env);
+        } catch (VariableNotBoundException ex) {
+        } catch (ExprEvalException ex) {
+            Log.warn(this, ex.getMessage());
+        }
+        return null;
+    }
+}
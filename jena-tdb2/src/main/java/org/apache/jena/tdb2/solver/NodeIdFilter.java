@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.expr.*;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdValues;
+
+/**
+ * FILTER conditions that compare a variable with an inline value (a number, dateTime
+ * or date), such as {@code ?x < 10}, evaluated on the NodeIds of basic graph pattern
+ * matches before they are turned into Nodes. The conditions also give the ranges of
+ * an index to scan for the variable.
+ * <p>
+ * This is a pre-filter: it only removes rows for which the FILTER is certainly false.
+ * The FILTER itself is still evaluated on the results.
+ */
+class NodeIdFilter {
+
+    private enum Cmp { LT, LE, EQ, GE, GT }
+
+    private static class Condition {
+        final Cmp cmp;
+        final NodeId value;
+        Condition(Cmp cmp, NodeId value) {
+            this.cmp = cmp;
+            this.value = value;
+        }
+    }
+
+    private final Map<Var, List<Condition>> conditions;
+
+    /**
+     * Return the {@code NodeIdFilter} for the conditions of a FILTER, or null if there
+     * are no conditions that can be evaluated on NodeIds.
+     */
+    static NodeIdFilter create(ExprList exprs) {
+        Map<Var, List<Condition>> conditions = new HashMap<>();
+        for ( Expr expr : exprs )
+            collect(expr, conditions);
+        if ( conditions.isEmpty() )
+            return null;
+        return new NodeIdFilter(conditions);
+    }
+
+    private NodeIdFilter(Map<Var, List<Condition>> conditions) {
+        this.conditions = conditions;
+    }
+
+    // Conditions of the top level conjunction.
+    private static void collect(Expr expr, Map<Var, List<Condition>> acc) {
+        if ( expr instanceof E_LogicalAnd and ) {
+            collect(and.getArg1(), acc);
+            collect(and.getArg2(), acc);
+            return;
+        }
+        Cmp cmp = cmp(expr);
+        if ( cmp == null )
+            return;
+        ExprFunction2 f = (ExprFunction2)expr;
+        Expr arg1 = f.getArg1();
+        Expr arg2 = f.getArg2();
+        if ( arg1.isConstant() && arg2.isVariable() ) {
+            // const op ?var
+            Expr x = arg1;
+            arg1 = arg2;
+            arg2 = x;
+            cmp = flip(cmp);
+        }
+        if ( !arg1.isVariable() || !arg2.isConstant() )
+            return;
+        NodeValue nv = arg2.getConstant();
+        if ( !nv.isLiteral() )
+            return;
+        NodeId value = NodeId.inline(nv.asNode());
+        if ( !NodeIdValues.isComparable(value) )
+            return;
+        acc.computeIfAbsent(arg1.asVar(), v -> new ArrayList<>()).add(new Condition(cmp, value));
+    }
+
+    private static Cmp cmp(Expr expr) {
+        if ( expr instanceof E_LessThan )
+            return Cmp.LT;
+        if ( expr instanceof E_LessThanOrEqual )
+            return Cmp.LE;
+        if ( expr instanceof E_Equals )
+            return Cmp.EQ;
+        if ( expr instanceof E_GreaterThanOrEqual )
+            return Cmp.GE;
+        if ( expr instanceof E_GreaterThan )
+            return Cmp.GT;
+        return null;
+    }
+
+    private static Cmp flip(Cmp cmp) {
+        switch (cmp) {
+            case LT : return Cmp.GT;
+            case LE : return Cmp.GE;
+            case GE : return Cmp.LE;
+            case GT : return Cmp.LT;
+            default : return cmp;
+        }
+    }
+
+    /** The variables with conditions. */
+    Set<Var> getVars() {
+        return conditions.keySet();
+    }
+
+    /**
+     * Return false if the FILTER is certainly false when the variable has this NodeId.
+     * Return true if it may be true, including when the NodeId is not an inline value.
+     */
+    boolean test(Var var, NodeId nodeId) {
+        List<Condition> x = conditions.get(var);
+        if ( x == null || nodeId == null )
+            return true;
+        for ( Condition condition : x ) {
+            int r = NodeIdValues.compare(nodeId, condition.value);
+            if ( r == NodeIdValues.UNKNOWN )
+                continue;
+            if ( r == NodeIdValues.INCOMPATIBLE )
+                // Evaluation error or false.
+                return false;
+            boolean b = switch (condition.cmp) {
+                case LT -> r == Expr.CMP_LESS;
+                case LE -> r != Expr.CMP_GREATER;
+                case EQ -> r == Expr.CMP_EQUAL;
+                case GE -> r != Expr.CMP_LESS;
+                case GT -> r == Expr.CMP_GREATER;
+            };
+            if ( !b )
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * The ranges of the index order (see {@link NodeIdValues#storedRanges}) that hold
+     * every NodeId for the variable that may pass the FILTER, or null if the conditions do
+     * not restrict the NodeIds.
+     */
+    long[] ranges(Var var) {
+        List<Condition> x = conditions.get(var);
+        if ( x == null )
+            return null;
+        long[] ranges = null;
+        for ( Condition condition : x ) {
+            long[] r = switch (condition.cmp) {
+                case LT, LE -> NodeIdValues.storedRanges(null, condition.value);
+                case EQ -> NodeIdValues.storedRanges(condition.value, condition.value);
+                case GE, GT -> NodeIdValues.storedRanges(condition.value, null);
+            };
+            if ( r == null )
+                continue;
+            ranges = ( ranges == null ) ? r : intersect(ranges, r);
+        }
+        return ranges;
+    }
+
+    /** Intersection of two sets of ranges, each as ascending pairs of unsigned longs. */
+    private static long[] intersect(long[] ranges1, long[] ranges2) {
+        long[] result = new long[ranges1.length + ranges2.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while ( i < ranges1.length && j < ranges2.length ) {
+            long lo = maxUnsigned(ranges1[i], ranges2[j]);
+            long hi = minUnsigned(ranges1[i + 1], ranges2[j + 1]);
+            if ( Long.compareUnsigned(lo, hi) <= 0 ) {
+                result[n++] = lo;
+                result[n++] = hi;
+            }
+            // Move on the range that ends first.
+            if ( Long.compareUnsigned(ranges1[i + 1], ranges2[j + 1]) < 0 )
+                i += 2;
+            else
+                j += 2;
+        }
+        long[] x = new long[n];
+        System.arraycopy(result, 0, x, 0, n);
+        return x;
+    }
+
+    private static long maxUnsigned(long x, long y) {
+        return Long.compareUnsigned(x, y) >= 0 ? x : y;
+    }
+
+    private static long minUnsigned(long x, long y) {
+        return Long.compareUnsigned(x, y) <= 0 ? x : y;
+    }
+}
@@ -34,18 +34,25 @@ import org.apache.jena.sparql.core.Substitute;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.iterator.QueryIterBatch1;
+import org.apache.jena.sparql.engine.iterator.QueryIterBatchFilter;
+import org.apache.jena.sparql.engine.iterator.QueryIterFilterExpr;
 import org.apache.jena.sparql.engine.iterator.QueryIterPeek;
+import org.apache.jena.sparql.engine.iterator.QueryIterSort;
+import org.apache.jena.sparql.engine.iterator.QueryIterTopN;
 import org.apache.jena.sparql.engine.main.OpExecutor;
 import org.apache.jena.sparql.engine.main.OpExecutorFactory;
 import org.apache.jena.sparql.engine.main.QC;
 import org.apache.jena.sparql.engine.main.iterator.QueryIterGraph;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.sparql.expr.Expr;
 import org.apache.jena.sparql.expr.ExprList;
 import org.apache.jena.sparql.mgt.Explain;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.sys.SystemTDB;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -134,6 +141,35 @@ public class OpExecutorTDB2 extends OpExecutor
         return super.execute(opFilter, input);
         }
 
+    @Override
+    protected QueryIterator execute(OpOrder opOrder, QueryIterator input)
+    {
+        if ( ! isForTDB || ! inlineValues(execCxt) )
+            return super.execute(opOrder, input);
+        QueryIterator qIter = exec(opOrder.getSubOp(), input);
+        return new QueryIterSort(qIter, new NodeIdComparator(opOrder.getConditions(), execCxt), execCxt);
+    }
+
+    @Override
+    protected QueryIterator execute(OpTopN opTop, QueryIterator input)
+    {
+        if ( ! isForTDB || ! inlineValues(execCxt) )
+            return super.execute(opTop, input);
+        NodeIdComparator comparator = new NodeIdComparator(opTop.getConditions(), execCxt);
+        // As OpExecutor: the strict case of (top (distinct ...)).
+        if ( opTop.getSubOp() instanceof OpDistinct opDistinct ) {
+            QueryIterator qIter = exec(opDistinct.getSubOp(), input);
+            return new QueryIterTopN(qIter, comparator, opTop.getLimit(), true, execCxt);
+        }
+        QueryIterator qIter = exec(opTop.getSubOp(), input);
+        return new QueryIterTopN(qIter, comparator, opTop.getLimit(), false, execCxt);
+    }
+
+    private static boolean inlineValues(ExecutionContext execCxt)
+    {
+        return execCxt.getContext().isTrueOrUndef(SystemTDB.symInlineValues);
+    }
+
     // ---- Triple patterns
 
     @Override
@@ -376,8 +412,37 @@ public class OpExecutorTDB2 extends OpExecutor
             filter = QC2.getFilter(execCxt.getContext());
         }
 
+        @Override
+        public QueryIterator execute(OpFilter opFilter, QueryIterator input)
+        {
+            // (filter (bgp ...)) or (filter (quadpattern ...)) from filter placement:
+            // test the conditions on inline values before NodeIds become Nodes.
+            Op sub = opFilter.getSubOp();
+            if ( !( sub instanceof OpBGP || sub instanceof OpQuadPattern ) || ! inlineValues(execCxt) )
+                return super.execute(opFilter, input);
+            NodeIdFilter nodeIdFilter = NodeIdFilter.create(opFilter.getExprs());
+            if ( nodeIdFilter == null )
+                return super.execute(opFilter, input);
+
+            QueryIterator qIter = ( sub instanceof OpBGP opBGP )
+                    ? execute(opBGP, input, nodeIdFilter)
+                    : execute((OpQuadPattern)sub, input, nodeIdFilter);
+            // The FILTER, as OpExecutor.
+            ExprList exprs = opFilter.getExprs();
+            if ( QueryIterBatch1.batchSize(execCxt) > 0 )
+                return new QueryIterBatchFilter(qIter, exprs, execCxt);
+            for ( Expr expr : exprs )
+                qIter = new QueryIterFilterExpr(qIter, expr, execCxt);
+            return qIter;
+        }
+
         @Override
         public QueryIterator execute(OpBGP opBGP, QueryIterator input)
+        {
+            return execute(opBGP, input, null);
+        }
+
+        private QueryIterator execute(OpBGP opBGP, QueryIterator input, NodeIdFilter nodeIdFilter)
         {
             Graph g = execCxt.getActiveGraph();
 
@@ -387,7 +452,7 @@ public class OpExecutorTDB2 extends OpExecutor
                 Explain.explain("Execute", bgp, execCxt.getContext());
                 // Triple-backed (but may be named as explicit default graph).
                 Node gn = decideGraphNode(gtdb.getGraphName(), execCxt);
-                return PatternMatchTDB2.execute(gtdb.getDSG(), gn, bgp, input, filter, execCxt);
+                return PatternMatchTDB2.execute(gtdb.getDSG(), gn, bgp, input, filter, nodeIdFilter, execCxt);
             }
             Log.warn(this, "Non-GraphTDB passed to OpExecutorPlainTDB: "+g.getClass().getSimpleName());
             return super.execute(opBGP, input);
@@ -395,6 +460,11 @@ public class OpExecutorTDB2 extends OpExecutor
 
         @Override
         public QueryIterator execute(OpQuadPattern opQuadPattern, QueryIterator input)
+        {
+            return execute(opQuadPattern, input, null);
+        }
+
+        private QueryIterator execute(OpQuadPattern opQuadPattern, QueryIterator input, NodeIdFilter nodeIdFilter)
         {
             Node gn = opQuadPattern.getGraphNode();
             gn = decideGraphNode(gn, execCxt);
@@ -403,7 +473,7 @@ public class OpExecutorTDB2 extends OpExecutor
             {
                 Explain.explain("Execute", opQuadPattern.getPattern(), execCxt.getContext());
                 BasicPattern bgp = opQuadPattern.getBasicPattern();
-                return PatternMatchTDB2.execute(dsgtdb, gn, bgp, input, filter, execCxt);
+                return PatternMatchTDB2.execute(dsgtdb, gn, bgp, input, filter, nodeIdFilter, execCxt);
             }
             // Maybe a TDB named graph inside a non-TDB dataset.
             Graph g = execCxt.getActiveGraph();
@@ -414,7 +484,7 @@ public class OpExecutorTDB2 extends OpExecutor
                 BasicPattern bgp = opQuadPattern.getBasicPattern();
                 Explain.explain("Execute", bgp, execCxt.getContext());
                 // Don't pass in G -- gn may be different.
-                return PatternMatchTDB2.execute(gtdb.getDSG(), gn, bgp, input, filter, execCxt);
+                return PatternMatchTDB2.execute(gtdb.getDSG(), gn, bgp, input, filter, nodeIdFilter, execCxt);
             }
             Log.warn(this, "Non-DatasetGraphTDB passed to OpExecutorPlainTDB");
             return super.execute(opQuadPattern, input);
@@ -21,9 +21,14 @@ package org.apache.jena.tdb2.solver;
 import static org.apache.jena.sparql.engine.main.solver.SolverLib.makeAbortable;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.tuple.Tuple;
@@ -32,17 +37,23 @@ import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.sparql.core.BasicPattern;
 import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.iterator.Abortable;
 import org.apache.jena.sparql.engine.iterator.QueryIterAbortable;
+import org.apache.jena.sparql.engine.iterator.QueryIterExchange;
+import org.apache.jena.sparql.engine.main.ParallelExecution;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.sys.SystemTDB;
 
 /**
  * Entry to the basic pattern solver for TDB2.
@@ -57,7 +68,7 @@ public class PatternMatchTDB2 {
     {
         // Maybe default graph or named graph.
         NodeTupleTable ntt = graph.getNodeTupleTable();
-        return execute(ntt, graph.getGraphName(), pattern, input, filter, execCxt);
+        return execute(ntt, graph.getGraphName(), pattern, input, filter, null, execCxt);
     }
 
     /**
@@ -68,9 +79,21 @@ public class PatternMatchTDB2 {
     public static QueryIterator execute(DatasetGraphTDB ds, Node graphNode, BasicPattern pattern,
                                         QueryIterator input, Predicate<Tuple<NodeId>> filter,
                                         ExecutionContext execCxt)
+    {
+        return execute(ds, graphNode, pattern, input, filter, null, execCxt);
+    }
+
+    /**
+     * Execution of a quad pattern, as {@link #execute(DatasetGraphTDB, Node, BasicPattern, QueryIterator, Predicate, ExecutionContext)},
+     * with FILTER conditions on inline values applied to NodeIds. The results may
+     * still include rows that the FILTER rejects.
+     */
+    static QueryIterator execute(DatasetGraphTDB ds, Node graphNode, BasicPattern pattern,
+                                 QueryIterator input, Predicate<Tuple<NodeId>> filter, NodeIdFilter nodeIdFilter,
+                                 ExecutionContext execCxt)
     {
         NodeTupleTable ntt = ds.chooseNodeTupleTable(graphNode);
-        return execute(ntt, graphNode, pattern, input, filter, execCxt);
+        return execute(ntt, graphNode, pattern, input, filter, nodeIdFilter, execCxt);
     }
 
     // The worker.  Callers choose the NodeTupleTable.
@@ -78,7 +101,7 @@ public class PatternMatchTDB2 {
     //     graphNode may be null, meaning default graph
 
     private static QueryIterator execute(NodeTupleTable nodeTupleTable, Node graphNode, BasicPattern pattern,
-                                         QueryIterator input, Predicate<Tuple<NodeId>> filter,
+                                         QueryIterator input, Predicate<Tuple<NodeId>> filter, NodeIdFilter nodeIdFilter,
                                          ExecutionContext execCxt)
     {
         if ( Quad.isUnionGraph(graphNode) )
@@ -98,10 +121,47 @@ public class PatternMatchTDB2 {
                 throw new TDBException("SolverLib: Graph node specified but tuples are of length " + tupleLen);
         }
 
+        if ( ! anyGraph && ! triples.isEmpty() && input.isJoinIdentity() && ParallelExecution.isEnabled(execCxt) ) {
+            QueryIterator qIter = executePartitioned(nodeTupleTable, graphNode, triples, input, filter, execCxt);
+            if ( qIter != null )
+                return qIter;
+        }
+
         // Convert from a QueryIterator (Bindings of Var/Node) to BindingNodeId
         NodeTable nodeTable = nodeTupleTable.getNodeTable();
         Iterator<BindingNodeId> chain = Iter.map(input, SolverLibTDB.convFromBinding(nodeTable));
         List<Abortable> killList = new ArrayList<>();
+        // Variables already tested by the nodeIdFilter.
+        Set<Var> tested = new HashSet<>();
+
+        if ( ! anyGraph && filter == null && triples.size() >= 3 && execCxt.getContext().isTrueOrUndef(SystemTDB.symLeapfrogJoin) ) {
+            Iterator<BindingNodeId> joined = executeLeapfrogJoin(nodeTupleTable, graphNode, triples, chain, execCxt);
+            if ( joined != null ) {
+                chain = makeAbortable(joined, killList);
+                chain = filterInline(chain, nodeIdFilter, triples, tested);
+                triples = List.of();
+            }
+        }
+
+        boolean rangeScan = false;
+        if ( nodeIdFilter != null && ! anyGraph && ! triples.isEmpty() && input.isJoinIdentity() ) {
+            Iterator<BindingNodeId> scanned = executeRangeScan(nodeTupleTable, graphNode, triples.get(0), filter, nodeIdFilter, execCxt);
+            if ( scanned != null ) {
+                rangeScan = true;
+                chain = makeAbortable(scanned, killList);
+                chain = filterInline(chain, nodeIdFilter, triples.subList(0, 1), tested);
+                triples = triples.subList(1, triples.size());
+            }
+        }
+
+        if ( ! anyGraph && triples.size() >= 2 && input.isJoinIdentity() && ! rangeScan && execCxt.getContext().isTrueOrUndef(SystemTDB.symMergeJoin) ) {
+            Iterator<BindingNodeId> merged = executeMergeJoin(nodeTupleTable, graphNode, triples.get(0), triples.get(1), filter, execCxt);
+            if ( merged != null ) {
+                chain = makeAbortable(merged, killList);
+                chain = filterInline(chain, nodeIdFilter, triples.subList(0, 2), tested);
+                triples = triples.subList(2, triples.size());
+            }
+        }
 
         for ( Triple triple : triples ) {
             Tuple<Node> patternTuple = null;
@@ -118,6 +178,7 @@ public class PatternMatchTDB2 {
             chain = matchQuadPattern(chain, graphNode, triple, nodeTupleTable, patternTuple, anyGraph, filter, execCxt);
 
             chain = makeAbortable(chain, killList);
+            chain = filterInline(chain, nodeIdFilter, List.of(triple), tested);
         }
 
         Iterator<Binding> iterBinding = SolverLibTDB.convertToNodes(chain, nodeTable);
@@ -127,6 +188,169 @@ public class PatternMatchTDB2 {
         return new QueryIterAbortable(iterBinding, killList, input, execCxt);
     }
 
+    /**
+     * Parallel execution: split the index scan of the first pattern into key ranges and
+     * run the whole basic graph pattern for each range in a {@link QueryIterExchange}.
+     * Returns null if the first pattern is not suitable for splitting.
+     */
+    private static QueryIterator executePartitioned(NodeTupleTable nodeTupleTable, Node graphNode, List<Triple> triples,
+                                                    QueryIterator input, Predicate<Tuple<NodeId>> filter,
+                                                    ExecutionContext execCxt) {
+        Triple first = triples.get(0);
+        Tuple<Node> firstTuple = patternTuple(graphNode, first);
+        for ( Node n : firstTuple ) {
+            // RDF-star patterns are handled by SolverRX.
+            if ( n.isTripleTerm() )
+                return null;
+        }
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        BindingNodeId root = new BindingNodeId();
+        NodeId[] ids = new NodeId[firstTuple.len()];
+        Var[] vars = new Var[firstTuple.len()];
+        if ( ! StageMatchTuple.prepare(nodeTable, firstTuple, root, ids, vars) )
+            return null;
+        // More parts than workers to even out the work.
+        int maxParts = 4 * ParallelExecution.parallelism(execCxt);
+        List<Supplier<Iterator<Tuple<NodeId>>>> parts =
+                nodeTupleTable.getTupleTable().findPartitioned(TupleFactory.create(ids), maxParts);
+        if ( parts.size() < 2 )
+            return null;
+        input.close();
+
+        List<Triple> rest = triples.subList(1, triples.size());
+        List<Function<ExecutionContext, QueryIterator>> producers = new ArrayList<>(parts.size());
+        for ( Supplier<Iterator<Tuple<NodeId>>> part : parts ) {
+            producers.add(cxt -> {
+                List<Abortable> killList = new ArrayList<>();
+                Iterator<BindingNodeId> chain = StageMatchTuple.matchesToBindings(part.get(), root, vars, filter, false, cxt);
+                chain = makeAbortable(chain, killList);
+                for ( Triple triple : rest ) {
+                    chain = matchQuadPattern(chain, graphNode, triple, nodeTupleTable, patternTuple(graphNode, triple), false, filter, cxt);
+                    chain = makeAbortable(chain, killList);
+                }
+                Iterator<Binding> iterBinding = SolverLibTDB.convertToNodes(chain, nodeTable);
+                return new QueryIterAbortable(iterBinding, killList, null, cxt);
+            });
+        }
+        return new QueryIterExchange(producers, execCxt);
+    }
+
+    /**
+     * Merge join of the first two patterns, if both can be read from indexes in order of
+     * a shared variable. Returns null if not.
+     */
+    private static Iterator<BindingNodeId> executeMergeJoin(NodeTupleTable nodeTupleTable, Node graphNode, Triple triple1, Triple triple2,
+                                                            Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
+        Tuple<Node> patternTuple1 = patternTuple(graphNode, triple1);
+        Tuple<Node> patternTuple2 = patternTuple(graphNode, triple2);
+        for ( int i = 0 ; i < patternTuple1.len() ; i++ ) {
+            // RDF-star patterns are handled by SolverRX.
+            if ( patternTuple1.get(i).isTripleTerm() || patternTuple2.get(i).isTripleTerm() )
+                return null;
+        }
+        return StageMergeJoin.access(nodeTupleTable, patternTuple1, patternTuple2, filter, execCxt);
+    }
+
+    /**
+     * Worst-case optimal join of the whole basic graph pattern, if it is cyclic and there
+     * are suitable indexes. Returns null if not.
+     */
+    private static Iterator<BindingNodeId> executeLeapfrogJoin(NodeTupleTable nodeTupleTable, Node graphNode, List<Triple> triples,
+                                                               Iterator<BindingNodeId> input, ExecutionContext execCxt) {
+        List<Tuple<Node>> patternTuples = new ArrayList<>(triples.size());
+        for ( Triple triple : triples ) {
+            Tuple<Node> patternTuple = patternTuple(graphNode, triple);
+            for ( Node n : patternTuple ) {
+                // RDF-star patterns are handled by SolverRX.
+                if ( n.isTripleTerm() )
+                    return null;
+            }
+            patternTuples.add(patternTuple);
+        }
+        if ( ! StageLeapfrogJoin.isCyclic(patternTuples) )
+            return null;
+        return StageLeapfrogJoin.access(nodeTupleTable, patternTuples, input, execCxt);
+    }
+
+    /**
+     * Scan of the first pattern over the parts of an index that hold the values of a
+     * variable that may pass the FILTER conditions on inline values. Returns null if no
+     * variable of the pattern is restricted or there is no index in order of that variable.
+     */
+    private static Iterator<BindingNodeId> executeRangeScan(NodeTupleTable nodeTupleTable, Node graphNode, Triple triple,
+                                                            Predicate<Tuple<NodeId>> filter, NodeIdFilter nodeIdFilter,
+                                                            ExecutionContext execCxt) {
+        Tuple<Node> patternTuple = patternTuple(graphNode, triple);
+        for ( Node n : patternTuple ) {
+            // RDF-star patterns are handled by SolverRX.
+            if ( n.isTripleTerm() )
+                return null;
+        }
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        BindingNodeId root = new BindingNodeId();
+        NodeId[] ids = new NodeId[patternTuple.len()];
+        Var[] vars = new Var[patternTuple.len()];
+        if ( ! StageMatchTuple.prepare(nodeTable, patternTuple, root, ids, vars) )
+            return null;
+        Tuple<NodeId> pattern = TupleFactory.create(ids);
+        TupleIndex[] indexes = nodeTupleTable.getTupleTable().getIndexes();
+        for ( int i = 0 ; i < vars.length ; i++ ) {
+            Var var = vars[i];
+            if ( var == null || StageMergeJoin.count(vars, var) != 1 )
+                continue;
+            long[] ranges = nodeIdFilter.ranges(var);
+            if ( ranges == null )
+                continue;
+            Function<NodeId, Iterator<Tuple<NodeId>>> find = StageMergeJoin.findOrdered(indexes, pattern, i);
+            if ( find == null )
+                continue;
+            int slot = i;
+            // Ranges are in index order, as findOrdered requires.
+            Iterator<Tuple<NodeId>> matches = Iter.flatMap(IntStream.range(0, ranges.length / 2).iterator(), r -> {
+                long hi = ranges[2 * r + 1];
+                Iterator<Tuple<NodeId>> iter = find.apply(NodeIdFactory.decodeStored(ranges[2 * r]));
+                return Iter.takeWhile(iter, t -> Long.compareUnsigned(NodeIdFactory.encodeStored(t.get(slot)), hi) <= 0);
+            });
+            return StageMatchTuple.matchesToBindings(matches, root, vars, filter, false, execCxt);
+        }
+        return null;
+    }
+
+    /**
+     * Add the tests of the nodeIdFilter for variables of the triples that have not
+     * already been tested.
+     */
+    private static Iterator<BindingNodeId> filterInline(Iterator<BindingNodeId> chain, NodeIdFilter nodeIdFilter,
+                                                        List<Triple> triples, Set<Var> tested) {
+        if ( nodeIdFilter == null )
+            return chain;
+        List<Var> vars = new ArrayList<>();
+        for ( Triple triple : triples ) {
+            for ( Node n : List.of(triple.getSubject(), triple.getPredicate(), triple.getObject()) ) {
+                if ( ! Var.isVar(n) )
+                    continue;
+                Var var = Var.alloc(n);
+                if ( nodeIdFilter.getVars().contains(var) && tested.add(var) )
+                    vars.add(var);
+            }
+        }
+        if ( vars.isEmpty() )
+            return chain;
+        return Iter.filter(chain, binding -> {
+            for ( Var var : vars ) {
+                if ( ! nodeIdFilter.test(var, binding.get(var)) )
+                    return false;
+            }
+            return true;
+        });
+    }
+
+    private static Tuple<Node> patternTuple(Node graphNode, Triple triple) {
+        if ( graphNode == null )
+            return TupleFactory.create3(triple.getSubject(), triple.getPredicate(), triple.getObject());
+        return TupleFactory.create4(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject());
+    }
+
     private static Iterator<BindingNodeId> matchQuadPattern(Iterator<BindingNodeId> chain, Node graphNode, Triple tPattern,
                                                             NodeTupleTable nodeTupleTable, Tuple<Node> patternTuple, boolean anyGraph,
                                                             Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
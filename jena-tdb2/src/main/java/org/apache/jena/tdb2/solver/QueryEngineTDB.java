@@ -20,7 +20,10 @@ package org.apache.jena.tdb2.solver;
 
 
 import org.apache.jena.atlas.lib.Lib ;
+import org.apache.jena.query.ARQ ;
 import org.apache.jena.query.Query ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.query.TxnType ;
 import org.apache.jena.sparql.algebra.Algebra ;
 import org.apache.jena.sparql.algebra.Op ;
 import org.apache.jena.sparql.algebra.OpLib;
@@ -33,7 +36,10 @@ import org.apache.jena.sparql.engine.QueryEngineFactory ;
 import org.apache.jena.sparql.engine.QueryEngineRegistry ;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.main.ParallelExecution ;
 import org.apache.jena.sparql.engine.main.QueryEngineMain ;
+import org.apache.jena.sparql.engine.optimizer.CardinalityEstimator ;
+import org.apache.jena.sparql.engine.optimizer.StatsMatcher ;
 import org.apache.jena.sparql.mgt.Explain ;
 import org.apache.jena.sparql.util.Context ;
 import org.apache.jena.tdb2.TDB2;
@@ -81,6 +87,8 @@ public class QueryEngineTDB extends QueryEngineMain
     protected Op modifyOp(Op op)
     {
         op = Substitute.substitute(op, getStartBinding());
+        if ( context.isTrue(ARQ.optCostBasedJoins) )
+            setCardinalityEstimator(context);
         // Optimize (high-level)
         op = super.modifyOp(op);
 
@@ -94,6 +102,17 @@ public class QueryEngineTDB extends QueryEngineMain
         return op;
     }
 
+    // Cost-based join planning: estimates from the statistics of the database.
+    private void setCardinalityEstimator(Context context) {
+        if ( context.isDefined(CardinalityEstimator.symCardinalityEstimator) )
+            return;
+        if ( ! ( originalDataset instanceof DatasetGraphTDB dsgtdb ) )
+            return;
+        StatsMatcher matcher = dsgtdb.getCostStatsMatcher();
+        if ( matcher != null )
+            context.set(CardinalityEstimator.symCardinalityEstimator, new CardinalityEstimator(matcher));
+    }
+
     @Override
     public QueryIterator eval(Op op, DatasetGraph dsg, Binding input, Context context)
     {
@@ -105,10 +124,48 @@ public class QueryEngineTDB extends QueryEngineMain
             op = OpLib.unionDefaultGraphQuads(op) ;
             Explain.explain("REWRITE(Union default graph)", op, context);
         }
+        if ( ParallelExecution.parallelism(context) > 1 )
+            setWorkerTxn(context);
         QueryIterator results = super.eval(op, dsg, input, context);
         return results;
     }
 
+    // Parallel execution: workers read the database in their own read transactions,
+    // at the same data version as the query's transaction.
+    private void setWorkerTxn(Context context) {
+        if ( ! ( originalDataset instanceof DatasetGraphTDB dsgtdb ) )
+            return;
+        if ( ! dsgtdb.isInTransaction() || dsgtdb.transactionMode() != ReadWrite.READ )
+            return;
+        long version = dsgtdb.getTxnSystem().getThreadTransaction().getDataVersion();
+        context.set(ParallelExecution.symWorkerTxn, new WorkerTxnTDB(dsgtdb, version));
+    }
+
+    private static class WorkerTxnTDB implements ParallelExecution.WorkerTxn {
+        private final DatasetGraphTDB dsgtdb;
+        private final long dataVersion;
+
+        WorkerTxnTDB(DatasetGraphTDB dsgtdb, long dataVersion) {
+            this.dsgtdb = dsgtdb;
+            this.dataVersion = dataVersion;
+        }
+
+        @Override
+        public boolean begin() {
+            dsgtdb.begin(TxnType.READ);
+            // Same data version means the same view of the data.
+            if ( dsgtdb.getTxnSystem().getThreadTransaction().getDataVersion() == dataVersion )
+                return true;
+            dsgtdb.end();
+            return false;
+        }
+
+        @Override
+        public void end() {
+            dsgtdb.end();
+        }
+    }
+
     // ---- Factory
     protected static QueryEngineFactory factory = new QueryEngineFactoryTDB();
 
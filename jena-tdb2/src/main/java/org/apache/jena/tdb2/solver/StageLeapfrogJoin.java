@@ -0,0 +1,410 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleSeek;
+
+/**
+ * Worst-case optimal join of the patterns of a basic graph pattern (leapfrog triejoin).
+ * <p>
+ * The variables are put in one order. Each pattern is read from an index where its
+ * variables come in that order, so the index is a trie over the variables. The join
+ * finds the values of one variable at a time: the patterns with that variable take
+ * turns to seek forward in their index to the largest value seen so far, until they all
+ * agree on a value. This does not build intermediate results larger than the final
+ * result, which binary joins do for cyclic patterns such as triangles.
+ * <p>
+ * Constants may come anywhere in the index order; see {@link TupleIndex#seekOrdered}.
+ */
+class StageLeapfrogJoin {
+    // Limit on the number of variables when searching orders for one with indexes.
+    private static final int MaxVarsSearch = 8;
+
+    /**
+     * Whether the patterns are cyclic, treating each pattern as the set of its variables
+     * (GYO reduction: repeatedly remove variables in only one pattern and patterns
+     * contained in another; the patterns are acyclic if at most one is left).
+     */
+    static boolean isCyclic(List<Tuple<Node>> patterns) {
+        List<Set<Var>> edges = new ArrayList<>();
+        for ( Tuple<Node> pattern : patterns ) {
+            Set<Var> edge = new HashSet<>();
+            for ( Node n : pattern ) {
+                if ( Var.isVar(n) )
+                    edge.add(Var.alloc(n));
+            }
+            edges.add(edge);
+        }
+        boolean changed = true;
+        while ( changed ) {
+            changed = false;
+            Map<Var, Integer> counts = new HashMap<>();
+            for ( Set<Var> edge : edges )
+                edge.forEach(v -> counts.merge(v, 1, Integer::sum));
+            for ( Set<Var> edge : edges ) {
+                if ( edge.removeIf(v -> counts.get(v) == 1) )
+                    changed = true;
+            }
+            for ( int i = 0 ; i < edges.size() ; i++ ) {
+                if ( containedInOther(edges, i) ) {
+                    edges.remove(i);
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return edges.size() > 1;
+    }
+
+    private static boolean containedInOther(List<Set<Var>> edges, int i) {
+        for ( int j = 0 ; j < edges.size() ; j++ ) {
+            if ( j != i && edges.get(j).containsAll(edges.get(i)) )
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return the join of the patterns for each input binding, or null if there are no
+     * suitable indexes. The patterns must not be RDF-star patterns with variables in
+     * triple terms.
+     */
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, List<Tuple<Node>> patterns, Iterator<BindingNodeId> input,
+                                          ExecutionContext execCxt) {
+        for ( Tuple<Node> pattern : patterns ) {
+            // A variable repeated in one pattern is not a trie.
+            Set<Node> seen = new HashSet<>();
+            for ( Node n : pattern ) {
+                if ( Var.isVar(n) && !seen.add(n) )
+                    return null;
+            }
+        }
+        TupleIndex[] indexes = nodeTupleTable.getTupleTable().getIndexes();
+        List<Var> order = heuristicOrder(patterns);
+        TupleIndex[] chosen = chooseIndexes(indexes, patterns, order);
+        if ( chosen == null ) {
+            if ( order.size() > MaxVarsSearch )
+                return null;
+            order = searchOrder(indexes, patterns, order, new ArrayList<>());
+            if ( order == null )
+                return null;
+            chosen = chooseIndexes(indexes, patterns, order);
+        }
+        List<Var> varOrder = order;
+        TupleIndex[] patternIndexes = chosen;
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        AtomicBoolean cancelSignal = execCxt.getCancelSignal();
+        return Iter.flatMap(input, binding -> join(nodeTupleTable, nodeTable, patterns, patternIndexes, varOrder, binding, cancelSignal));
+    }
+
+    /** Variables in more patterns first, then in order of first use. */
+    private static List<Var> heuristicOrder(List<Tuple<Node>> patterns) {
+        Map<Var, Integer> counts = new LinkedHashMap<>();
+        for ( Tuple<Node> pattern : patterns ) {
+            for ( Node n : pattern ) {
+                if ( Var.isVar(n) )
+                    counts.merge(Var.alloc(n), 1, Integer::sum);
+            }
+        }
+        List<Var> order = new ArrayList<>(counts.keySet());
+        // Stable sort.
+        order.sort((v1, v2) -> Integer.compare(counts.get(v2), counts.get(v1)));
+        return order;
+    }
+
+    /** First order, trying variables in heuristic order, with an index for every pattern. */
+    private static List<Var> searchOrder(TupleIndex[] indexes, List<Tuple<Node>> patterns, List<Var> vars, List<Var> acc) {
+        if ( acc.size() == vars.size() )
+            return chooseIndexes(indexes, patterns, acc) == null ? null : new ArrayList<>(acc);
+        for ( Var v : vars ) {
+            if ( acc.contains(v) )
+                continue;
+            acc.add(v);
+            List<Var> x = searchOrder(indexes, patterns, vars, acc);
+            acc.remove(acc.size() - 1);
+            if ( x != null )
+                return x;
+        }
+        return null;
+    }
+
+    /**
+     * Choose an index for each pattern with the variables of the pattern in the given
+     * order, preferring more constants at the start. Return null if there is a pattern
+     * with no such index.
+     */
+    private static TupleIndex[] chooseIndexes(TupleIndex[] indexes, List<Tuple<Node>> patterns, List<Var> order) {
+        TupleIndex[] chosen = new TupleIndex[patterns.size()];
+        for ( int p = 0 ; p < patterns.size() ; p++ ) {
+            int bestScore = -1;
+            for ( TupleIndex index : indexes ) {
+                if ( index == null )
+                    continue;
+                int score = score(index.getMapping(), patterns.get(p), order);
+                if ( score > bestScore ) {
+                    bestScore = score;
+                    chosen[p] = index;
+                }
+            }
+            if ( chosen[p] == null )
+                return null;
+        }
+        return chosen;
+    }
+
+    /**
+     * Number of constants before the first variable in index order, or -1 if the
+     * variables are not in the given order.
+     */
+    private static int score(TupleMap tupleMap, Tuple<Node> pattern, List<Var> order) {
+        Tuple<Node> indexOrder = tupleMap.map(pattern);
+        int score = 0;
+        int lastLevel = -1;
+        for ( Node n : indexOrder ) {
+            if ( !Var.isVar(n) ) {
+                if ( lastLevel < 0 )
+                    score++;
+                continue;
+            }
+            int level = order.indexOf(Var.alloc(n));
+            if ( level < lastLevel )
+                return -1;
+            lastLevel = level;
+        }
+        return score;
+    }
+
+    private static Iterator<BindingNodeId> join(NodeTupleTable nodeTupleTable, NodeTable nodeTable, List<Tuple<Node>> patterns,
+                                                TupleIndex[] indexes, List<Var> order, BindingNodeId input, AtomicBoolean cancelSignal) {
+        int N = patterns.size();
+        NodeId[][] ids = new NodeId[N][];
+        Var[][] vars = new Var[N][];
+        Set<Var> unbound = new HashSet<>();
+        for ( int p = 0 ; p < N ; p++ ) {
+            Tuple<Node> pattern = patterns.get(p);
+            ids[p] = new NodeId[pattern.len()];
+            vars[p] = new Var[pattern.len()];
+            if ( !StageMatchTuple.prepare(nodeTable, pattern, input, ids[p], vars[p]) )
+                return Iter.nullIterator();
+            boolean allSet = true;
+            for ( Var v : vars[p] ) {
+                if ( v != null ) {
+                    unbound.add(v);
+                    allSet = false;
+                }
+            }
+            // Patterns with no variables left are a test.
+            if ( allSet && !nodeTupleTable.getTupleTable().find(TupleFactory.create(ids[p])).hasNext() )
+                return Iter.nullIterator();
+        }
+        List<Var> levels = new ArrayList<>(order);
+        levels.retainAll(unbound);
+        if ( levels.isEmpty() )
+            return Iter.singletonIterator(input);
+        return new IteratorLeapfrog(input, ids, vars, indexes, levels, cancelSignal);
+    }
+
+    private static class IteratorLeapfrog implements Iterator<BindingNodeId> {
+        private final BindingNodeId input;
+        private final NodeId[][] ids;
+        private final TupleIndex[] indexes;
+        private final Var[] levelVars;
+        // For each level, the patterns with the variable and its slot in each.
+        private final int[][] levelPatterns;
+        private final int[][] levelSlots;
+        // For each pattern and slot, the level of the variable, or -1.
+        private final int[][] slotLevels;
+        private final AtomicBoolean cancelSignal;
+
+        // For each level, the seeks and patterns of the open level, their current keys
+        // and the agreed key.
+        private final TupleSeek[][] seeks;
+        private final List<List<Tuple<NodeId>>> patterns;
+        private final NodeId[][] keys;
+        private final NodeId[] key;
+        private int level = -1;
+        private BindingNodeId slot = null;
+        private boolean finished = false;
+
+        IteratorLeapfrog(BindingNodeId input, NodeId[][] ids, Var[][] vars, TupleIndex[] indexes, List<Var> levels, AtomicBoolean cancelSignal) {
+            this.input = input;
+            this.ids = ids;
+            this.indexes = indexes;
+            this.cancelSignal = cancelSignal;
+            int V = levels.size();
+            this.levelVars = levels.toArray(new Var[V]);
+            this.levelPatterns = new int[V][];
+            this.levelSlots = new int[V][];
+            this.slotLevels = new int[ids.length][];
+            for ( int p = 0 ; p < ids.length ; p++ ) {
+                slotLevels[p] = new int[vars[p].length];
+                for ( int i = 0 ; i < vars[p].length ; i++ )
+                    slotLevels[p][i] = ( vars[p][i] == null ) ? -1 : levels.indexOf(vars[p][i]);
+            }
+            for ( int lv = 0 ; lv < V ; lv++ ) {
+                List<int[]> x = new ArrayList<>();
+                for ( int p = 0 ; p < ids.length ; p++ ) {
+                    for ( int i = 0 ; i < slotLevels[p].length ; i++ ) {
+                        if ( slotLevels[p][i] == lv )
+                            x.add(new int[] {p, i});
+                    }
+                }
+                levelPatterns[lv] = x.stream().mapToInt(a -> a[0]).toArray();
+                levelSlots[lv] = x.stream().mapToInt(a -> a[1]).toArray();
+            }
+            this.seeks = new TupleSeek[V][];
+            this.patterns = new ArrayList<>(V);
+            for ( int lv = 0 ; lv < V ; lv++ )
+                patterns.add(new ArrayList<>(Collections.nCopies(levelPatterns[lv].length, null)));
+            this.keys = new NodeId[V][];
+            this.key = new NodeId[V];
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ( slot == null && !finished )
+                slot = step();
+            return slot != null;
+        }
+
+        @Override
+        public BindingNodeId next() {
+            if ( !hasNext() )
+                throw new NoSuchElementException();
+            BindingNodeId b = slot;
+            slot = null;
+            return b;
+        }
+
+        /** Find the next result, or null when there are no more. */
+        private BindingNodeId step() {
+            int V = levelVars.length;
+            if ( level < 0 ) {
+                level = 0;
+                open(0);
+                key[0] = search(0, null);
+            } else {
+                // After a result.
+                key[level] = nextKey(level);
+            }
+            for (;;) {
+                if ( cancelSignal != null && cancelSignal.get() )
+                    throw new QueryCancelledException();
+                if ( key[level] == null ) {
+                    if ( level == 0 ) {
+                        finished = true;
+                        return null;
+                    }
+                    level--;
+                    key[level] = nextKey(level);
+                    continue;
+                }
+                if ( level == V - 1 ) {
+                    BindingNodeId b = new BindingNodeId(input);
+                    for ( int lv = 0 ; lv < V ; lv++ )
+                        b.put(levelVars[lv], key[lv]);
+                    return b;
+                }
+                level++;
+                open(level);
+                key[level] = search(level, null);
+            }
+        }
+
+        /** Start a level: the patterns with the variable, given the keys of the levels before. */
+        private void open(int lv) {
+            int n = levelPatterns[lv].length;
+            if ( seeks[lv] == null ) {
+                seeks[lv] = new TupleSeek[n];
+                keys[lv] = new NodeId[n];
+            }
+            for ( int j = 0 ; j < n ; j++ ) {
+                int p = levelPatterns[lv][j];
+                NodeId[] pattern = new NodeId[ids[p].length];
+                for ( int i = 0 ; i < pattern.length ; i++ ) {
+                    int x = slotLevels[p][i];
+                    if ( x < 0 )
+                        pattern[i] = ids[p][i];
+                    else if ( x < lv )
+                        pattern[i] = key[x];
+                }
+                patterns.get(lv).set(j, TupleFactory.create(pattern));
+                keys[lv][j] = null;
+                if ( seeks[lv][j] == null ) {
+                    // The same slots are set each time the level is opened.
+                    seeks[lv][j] = indexes[p].seekOrdered(patterns.get(lv).get(j), levelSlots[lv][j]);
+                    if ( seeks[lv][j] == null )
+                        throw new TDBException("Index can not seek: "+indexes[p].getName());
+                }
+            }
+        }
+
+        /** The first key at or after {@code target} (null for the start) that all the seeks at the level have. */
+        private NodeId search(int lv, NodeId target) {
+            int n = seeks[lv].length;
+            int agree = 0;
+            for ( int j = 0 ; ; j = (j + 1) % n ) {
+                NodeId k = keys[lv][j];
+                if ( k == null || ( target != null && NodeIdFactory.compareStored(k, target) < 0 ) ) {
+                    k = keyOf(lv, j, seeks[lv][j].seek(patterns.get(lv).get(j), target));
+                    if ( k == null )
+                        return null;
+                }
+                if ( k.equals(target) ) {
+                    agree++;
+                } else {
+                    target = k;
+                    agree = 1;
+                }
+                if ( agree == n )
+                    return target;
+            }
+        }
+
+        private NodeId nextKey(int lv) {
+            NodeId k = keyOf(lv, 0, seeks[lv][0].seekAfter(patterns.get(lv).get(0), key[lv]));
+            if ( k == null )
+                return null;
+            return search(lv, k);
+        }
+
+        private NodeId keyOf(int lv, int j, Tuple<NodeId> tuple) {
+            NodeId k = ( tuple == null ) ? null : tuple.get(levelSlots[lv][j]);
+            keys[lv][j] = k;
+            return k;
+        }
+    }
+}
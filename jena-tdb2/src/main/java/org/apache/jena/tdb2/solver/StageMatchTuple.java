@@ -18,11 +18,17 @@
 
 package org.apache.jena.tdb2.solver;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.StrUtils;
@@ -35,6 +41,7 @@ import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
 
 class StageMatchTuple {
 
@@ -46,11 +53,90 @@ class StageMatchTuple {
      */
     static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, Tuple<Node> patternTuple,
                                           Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
-        return Iter.flatMap(input, bnid -> {
-            return StageMatchTuple.access(nodeTupleTable, bnid, patternTuple, filter, anyGraph, execCxt);
+        int batchSize = execCxt.getContext().getInt(SystemTDB.symProbeBatchSize, SystemTDB.DefaultProbeBatchSize);
+        if ( batchSize <= 1 ) {
+            return Iter.flatMap(input, bnid -> {
+                return StageMatchTuple.access(nodeTupleTable, bnid, patternTuple, filter, anyGraph, execCxt);
+            });
+        }
+        return Iter.flatMap(new IteratorBlocks<>(input, batchSize), block -> {
+            return StageMatchTuple.access(nodeTupleTable, block, patternTuple, filter, anyGraph, execCxt);
+        });
+    }
+
+    /**
+     * Match a block of input bindings. The lookups for bindings that set the same slots
+     * of the pattern are done together, in index order (see {@link NodeTupleTable#findBatch}).
+     * The results are in the same order as the input bindings.
+     */
+    private static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, List<BindingNodeId> block, Tuple<Node> patternTuple,
+                                                  Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
+        int N = block.size();
+        Var[][] vars = new Var[N][];
+        // Group by the slots set, as a bit mask.
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        List<Tuple<NodeId>> patterns = new ArrayList<>(Collections.nCopies(N, null));
+        for ( int i = 0 ; i < N ; i++ ) {
+            NodeId ids[] = new NodeId[patternTuple.len()];
+            vars[i] = new Var[patternTuple.len()];
+            if ( !prepare(nodeTupleTable.getNodeTable(), patternTuple, block.get(i), ids, vars[i]) )
+                continue;
+            int mask = 0;
+            for ( int j = 0 ; j < ids.length ; j++ ) {
+                if ( ids[j] != null )
+                    mask |= (1 << j);
+            }
+            patterns.set(i, TupleFactory.create(ids));
+            groups.computeIfAbsent(mask, k -> new ArrayList<>()).add(i);
+        }
+
+        List<Iterator<Tuple<NodeId>>> matches = new ArrayList<>(Collections.nCopies(N, null));
+        for ( List<Integer> group : groups.values() ) {
+            List<Tuple<NodeId>> groupPatterns = new ArrayList<>(group.size());
+            for ( int i : group )
+                groupPatterns.add(patterns.get(i));
+            List<Iterator<Tuple<NodeId>>> groupMatches = nodeTupleTable.findBatch(groupPatterns);
+            for ( int k = 0 ; k < group.size() ; k++ )
+                matches.set(group.get(k), groupMatches.get(k));
+        }
+
+        return Iter.flatMap(IntStream.range(0, N).iterator(), i -> {
+            Iterator<Tuple<NodeId>> iterMatches = matches.get(i);
+            if ( iterMatches == null )
+                // Known unknown NodeId
+                return Iter.nullIterator();
+            return matchesToBindings(iterMatches, block.get(i), vars[i], filter, anyGraph, execCxt);
         });
     }
 
+    /** Iterator of lists of items, doubling in size from one item up to a maximum size. */
+    private static class IteratorBlocks<T> implements Iterator<List<T>> {
+        private final Iterator<T> input;
+        private final int maxSize;
+        private int size = 1;
+
+        IteratorBlocks(Iterator<T> input, int maxSize) {
+            this.input = input;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return input.hasNext();
+        }
+
+        @Override
+        public List<T> next() {
+            if ( !input.hasNext() )
+                throw new NoSuchElementException();
+            List<T> block = new ArrayList<>(size);
+            while ( block.size() < size && input.hasNext() )
+                block.add(input.next());
+            size = Math.min(2*size, maxSize);
+            return block;
+        }
+    }
+
     private static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, BindingNodeId input, Tuple<Node> patternTuple,
                                                   Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
         // ---- Convert to NodeIds
@@ -69,7 +155,15 @@ class StageMatchTuple {
             System.out.println(x);
             iterMatches = x.iterator();
         }
+        return matchesToBindings(iterMatches, input, vars, filter, anyGraph, execCxt);
+    }
 
+    /**
+     * Turn the tuples matching a pattern into bindings, extending {@code input}
+     * with the variables in {@code vars} (null for slots that are not new variables).
+     */
+    static Iterator<BindingNodeId> matchesToBindings(Iterator<Tuple<NodeId>> iterMatches, BindingNodeId input, Var[] vars,
+                                                     Predicate<Tuple<NodeId>> filter, boolean anyGraph, ExecutionContext execCxt) {
         // Add cancel check.
         AtomicBoolean cancelSignal = execCxt.getCancelSignal();
         if (cancelSignal != null) {
@@ -133,7 +227,7 @@ class StageMatchTuple {
      * null in the NodeIds. A variable that is not bound by the binding is placed in
      * the var array. Return false if preparation detects the pattern can not match.
      */
-    private static boolean prepare(NodeTable nodeTable, Tuple<Node> patternTuple, BindingNodeId input, NodeId ids[], Var[] var) {
+    static boolean prepare(NodeTable nodeTable, Tuple<Node> patternTuple, BindingNodeId input, NodeId ids[], Var[] var) {
         // Process the Node to NodeId conversion ourselves because
         // we wish to abort if an unknown node is seen.
         for ( int i = 0 ; i < patternTuple.len() ; i++ ) {
@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorCloseable;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+
+/**
+ * Merge join of two patterns that share a variable, when there are indexes that
+ * return the matches of each pattern in order of that variable
+ * (see {@link TupleIndex#findOrdered}). The two index scans are read in step; when one
+ * side is behind, it moves forward in its index to the key of the other side instead
+ * of reading every tuple, so a small side drives lookups into a large side.
+ * <p>
+ * Results are in order of the join variable, not the order of the first pattern.
+ */
+class StageMergeJoin {
+
+    /**
+     * Return the merge join of the two patterns, or null if there are no suitable
+     * indexes. The patterns must not be RDF-star patterns with variables in triple terms.
+     */
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Tuple<Node> patternTuple1, Tuple<Node> patternTuple2,
+                                          Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        BindingNodeId root = new BindingNodeId();
+        int len = patternTuple1.len();
+        NodeId[] ids1 = new NodeId[len];
+        Var[] vars1 = new Var[len];
+        NodeId[] ids2 = new NodeId[len];
+        Var[] vars2 = new Var[len];
+        if ( !StageMatchTuple.prepare(nodeTable, patternTuple1, root, ids1, vars1) )
+            return null;
+        if ( !StageMatchTuple.prepare(nodeTable, patternTuple2, root, ids2, vars2) )
+            return null;
+        Tuple<NodeId> pattern1 = TupleFactory.create(ids1);
+        Tuple<NodeId> pattern2 = TupleFactory.create(ids2);
+        TupleIndex[] indexes = nodeTupleTable.getTupleTable().getIndexes();
+
+        for ( int slot1 = 0 ; slot1 < len ; slot1++ ) {
+            Var var = vars1[slot1];
+            if ( var == null || count(vars1, var) != 1 || count(vars2, var) != 1 )
+                continue;
+            int slot2 = indexOf(vars2, var);
+            Function<NodeId, Iterator<Tuple<NodeId>>> find1 = findOrdered(indexes, pattern1, slot1);
+            if ( find1 == null )
+                continue;
+            Function<NodeId, Iterator<Tuple<NodeId>>> find2 = findOrdered(indexes, pattern2, slot2);
+            if ( find2 == null )
+                continue;
+            Iterator<BindingNodeId> iter = new IteratorMergeJoin(find1, slot1, vars1, find2, slot2, vars2, filter, root);
+            AtomicBoolean cancelSignal = execCxt.getCancelSignal();
+            if ( cancelSignal != null ) {
+                iter = Iter.map(iter, x -> {
+                    if ( cancelSignal.get() )
+                        throw new QueryCancelledException();
+                    return x;
+                });
+            }
+            return iter;
+        }
+        return null;
+    }
+
+    /*package*/ static Function<NodeId, Iterator<Tuple<NodeId>>> findOrdered(TupleIndex[] indexes, Tuple<NodeId> pattern, int slot) {
+        for ( TupleIndex index : indexes ) {
+            if ( index == null )
+                continue;
+            Function<NodeId, Iterator<Tuple<NodeId>>> find = index.findOrdered(pattern, slot);
+            if ( find != null )
+                return find;
+        }
+        return null;
+    }
+
+    /*package*/ static int count(Var[] vars, Var var) {
+        int x = 0;
+        for ( Var v : vars ) {
+            if ( var.equals(v) )
+                x++;
+        }
+        return x;
+    }
+
+    private static int indexOf(Var[] vars, Var var) {
+        for ( int i = 0 ; i < vars.length ; i++ ) {
+            if ( var.equals(vars[i]) )
+                return i;
+        }
+        return -1;
+    }
+
+    /** One side of the merge join */
+    private static class Side {
+        private final Function<NodeId, Iterator<Tuple<NodeId>>> find;
+        private final int slot;
+        private final Predicate<Tuple<NodeId>> filter;
+        private Iterator<Tuple<NodeId>> iter;
+        private Tuple<NodeId> current;
+
+        Side(Function<NodeId, Iterator<Tuple<NodeId>>> find, int slot, Predicate<Tuple<NodeId>> filter) {
+            this.find = find;
+            this.slot = slot;
+            this.filter = filter;
+            this.iter = find.apply(null);
+            advance();
+        }
+
+        NodeId key() {
+            return current.get(slot);
+        }
+
+        void advance() {
+            current = null;
+            while ( iter.hasNext() ) {
+                Tuple<NodeId> t = iter.next();
+                if ( filter == null || filter.test(t) ) {
+                    current = t;
+                    return;
+                }
+            }
+        }
+
+        /** Move to the first tuple with a key at or after {@code target}. */
+        void skipTo(NodeId target) {
+            // Try the next tuple before going back to the index.
+            advance();
+            if ( current == null || NodeIdFactory.compareStored(key(), target) >= 0 )
+                return;
+            Iter.close(iter);
+            iter = find.apply(target);
+            advance();
+        }
+
+        void close() {
+            current = null;
+            Iter.close(iter);
+        }
+    }
+
+    /*package*/ static class IteratorMergeJoin implements IteratorCloseable<BindingNodeId> {
+        private final Side side1;
+        private final Side side2;
+        private final Var[] vars1;
+        private final Var[] vars2;
+        private final BindingNodeId root;
+        // The key and the tuples of the second pattern for the current key.
+        private NodeId groupKey = null;
+        private final List<Tuple<NodeId>> group = new ArrayList<>();
+        private int groupIdx = 0;
+        // Binding from the current tuple of the first pattern; null if it does not match.
+        private BindingNodeId binding1 = null;
+        private BindingNodeId slot = null;
+        private boolean finished = false;
+
+        /*package*/ IteratorMergeJoin(Function<NodeId, Iterator<Tuple<NodeId>>> find1, int slot1, Var[] vars1,
+                          Function<NodeId, Iterator<Tuple<NodeId>>> find2, int slot2, Var[] vars2,
+                          Predicate<Tuple<NodeId>> filter, BindingNodeId root) {
+            this.side1 = new Side(find1, slot1, filter);
+            this.side2 = new Side(find2, slot2, filter);
+            this.vars1 = vars1;
+            this.vars2 = vars2;
+            this.root = root;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ( slot == null && !finished )
+                slot = step();
+            return slot != null;
+        }
+
+        @Override
+        public BindingNodeId next() {
+            if ( !hasNext() )
+                throw new NoSuchElementException();
+            BindingNodeId b = slot;
+            slot = null;
+            return b;
+        }
+
+        @Override
+        public void close() {
+            finished = true;
+            side1.close();
+            side2.close();
+        }
+
+        /** Move on one step; return a result or null for none yet. */
+        private BindingNodeId step() {
+            if ( binding1 != null && groupIdx < group.size() )
+                // Null if another variable in both patterns does not match.
+                return bind(new BindingNodeId(binding1), group.get(groupIdx++), vars2);
+            if ( groupKey != null ) {
+                // Next tuple of the first pattern, same key.
+                side1.advance();
+                if ( side1.current != null && side1.key().equals(groupKey) ) {
+                    startTuple1();
+                    return null;
+                }
+                groupKey = null;
+            }
+            // Find the next key in both.
+            for (;;) {
+                if ( side1.current == null || side2.current == null ) {
+                    close();
+                    return null;
+                }
+                int x = NodeIdFactory.compareStored(side1.key(), side2.key());
+                if ( x == 0 )
+                    break;
+                if ( x < 0 )
+                    side1.skipTo(side2.key());
+                else
+                    side2.skipTo(side1.key());
+            }
+            groupKey = side2.key();
+            group.clear();
+            while ( side2.current != null && side2.key().equals(groupKey) ) {
+                group.add(side2.current);
+                side2.advance();
+            }
+            startTuple1();
+            return null;
+        }
+
+        private void startTuple1() {
+            // Null if a variable repeated in the first pattern does not match.
+            binding1 = bind(new BindingNodeId(root), side1.current, vars1);
+            groupIdx = 0;
+        }
+
+        private static BindingNodeId bind(BindingNodeId output, Tuple<NodeId> tuple, Var[] vars) {
+            for ( int i = 0 ; i < vars.length ; i++ ) {
+                Var v = vars[i];
+                if ( v == null )
+                    continue;
+                NodeId id = tuple.get(i);
+                if ( output.containsKey(v) ) {
+                    if ( ! output.get(v).equals(id) )
+                        return null;
+                    continue;
+                }
+                output.put(v, id);
+            }
+            return output;
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
 import org.apache.jena.sparql.engine.optimizer.StatsMatcher;
 import org.apache.jena.sparql.graph.NodeConst;
 import org.apache.jena.sparql.sse.Item;
@@ -47,25 +48,17 @@ public class Stats
 
     /** Write statistics */
     static public void write(String filename, StatsResults stats) {
-        write(filename, stats.getPredicates(), stats.getTypes(), stats.getCount());
-    }
-
-    /** Write statistics */
-    static public void write(OutputStream output, StatsResults stats) {
-        write(output, stats.getPredicates(), stats.getTypes(), stats.getCount());
-    }
-
-    static private void write(String filename, Map<Node, Long> predicateStats, Map<Node, Long> typeStats, long statsTotal) {
         // Write out the stats
         try (OutputStream statsOut = new BufferedOutputStream(new FileOutputStream(filename))) {
-            write(statsOut, predicateStats, typeStats, statsTotal);
+            write(statsOut, stats);
         } catch (IOException ex) {
             Log.warn(Stats.class, "Problem when writing stats file", ex);
         }
     }
 
-    static private void write(OutputStream output, Map<Node, Long> predicateStats, Map<Node, Long> typeStats, long statsTotal) {
-        Item item = format(predicateStats, typeStats, statsTotal);
+    /** Write statistics */
+    static public void write(OutputStream output, StatsResults stats) {
+        Item item = format(stats);
         ItemWriter.write(output, item);
     }
 
@@ -82,11 +75,27 @@ public class Stats
         return stats;
     }
 
+    /**
+     * Format statistics. The matches per bound subject and per bound object are included
+     * if {@link ARQ#optCostBasedJoins} is set.
+     */
     public static Item format(StatsResults stats) {
-        return format(stats.getPredicates(), stats.getTypes(), stats.getCount());
+        return format(stats, ARQ.getContext().isTrue(ARQ.optCostBasedJoins));
+    }
+
+    /**
+     * Format statistics, with or without the {@code ((TERM <p> ANY) n)} and
+     * {@code ((ANY <p> TERM) n)} rules for the matches per bound subject and per bound
+     * object. These are used by cost-based join planning.
+     */
+    public static Item format(StatsResults stats, boolean withDistinct) {
+        return format(stats.getPredicates(), stats.getTypes(),
+                      stats.getDistinctSubjects(), stats.getDistinctObjects(), stats.getCount(), withDistinct);
     }
 
-    private static Item format(Map<Node, Long> predicates, Map<Node, Long> types, long count) {
+    private static Item format(Map<Node, Long> predicates, Map<Node, Long> types,
+                               Map<Node, Long> distinctSubjects, Map<Node, Long> distinctObjects, long count,
+                               boolean withDistinct) {
         Item stats = Item.createList();
         ItemList statsList = stats.getList();
         statsList.add("stats");
@@ -108,7 +117,19 @@ public class Stats
             // Skip these - they just clog things up!
             if ( node.getURI().startsWith("http://www.w3.org/1999/02/22-rdf-syntax-ns#_") )
                 continue;
-            addPair(statsList, node, NodeFactoryExtra.intToNode(entry.getValue()));
+            long num = entry.getValue();
+            if ( withDistinct ) {
+                // Matches per bound subject, per bound object, from the distinct counts.
+                // These come before the predicate count so they take precedence over
+                // the guesses StatsMatcher makes from the count alone.
+                Long numSubj = distinctSubjects.get(node);
+                if ( numSubj != null && numSubj > 0 )
+                    addPatternTriple(statsList, "TERM", node, "ANY", num / (double)numSubj);
+                Long numObj = distinctObjects.get(node);
+                if ( numObj != null && numObj > 0 )
+                    addPatternTriple(statsList, "ANY", node, "TERM", num / (double)numObj);
+            }
+            addPair(statsList, node, NodeFactoryExtra.intToNode(num));
         }
 
         // Add a default rule.
@@ -117,6 +138,16 @@ public class Stats
         return stats;
     }
 
+    private static void addPatternTriple(ItemList statsList, String subj, Node predicate, String obj, double weight) {
+        ItemList triple = new ItemList();
+        triple.add(subj);
+        triple.add(predicate);
+        triple.add(obj);
+        // Two decimal places is enough.
+        double w = Math.round(weight * 100) / 100.0;
+        addPair(statsList, Item.createList(triple), Item.createNode(NodeFactoryExtra.doubleToNode(w)));
+    }
+
     private static void addTypeTriple(ItemList statsList, Node type, Node intCount) {
         ItemList triple = new ItemList();
         triple.add("VAR");
@@ -29,6 +29,16 @@ public class StatsCollector extends StatsCollectorBase<Node> {
         super(NodeConst.nodeRDFType);
     }
 
+    @Override
+    protected long key(Node node) {
+        // 64 bit string hash, with the 32 bit hash code to separate nodes with the same string form.
+        String str = node.toString();
+        long h = 1125899906842597L;
+        for ( int i = 0 ; i < str.length() ; i++ )
+            h = 31 * h + str.charAt(i);
+        return h ^ ((long)node.hashCode() << 32);
+    }
+
     @Override
     protected Map<Node, Long> convert(Map<Node, Long> map) {
         return map;
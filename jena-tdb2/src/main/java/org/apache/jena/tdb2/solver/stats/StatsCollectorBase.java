@@ -29,6 +29,9 @@ abstract class StatsCollectorBase<T> {
     private long            count      = 0;
     private Map<T, Long>    predicates = new HashMap<>(10000);
     private Map<T, Long>    types      = new HashMap<>(10000);
+    // Per predicate, distinct subjects and distinct objects.
+    private Map<T, DistinctCountSketch> subjects = new HashMap<>(10000);
+    private Map<T, DistinctCountSketch> objects  = new HashMap<>(10000);
     private T               typeTrigger;
 
     protected StatsCollectorBase(T typeTrigger) {
@@ -38,13 +41,25 @@ abstract class StatsCollectorBase<T> {
     public void record(T g, T s, T p, T o) {
         count++;
         predicates.put(p, predicates.getOrDefault(p, 0L) + 1);
+        subjects.computeIfAbsent(p, x -> new DistinctCountSketch()).add(key(s));
+        objects.computeIfAbsent(p, x -> new DistinctCountSketch()).add(key(o));
         if ( typeTrigger != null && typeTrigger.equals(p) )
             types.put(o, types.getOrDefault(o, 0L) + 1);
     }
 
+    /** A 64 bit key for distinct counting. Different values should have different keys. */
+    protected abstract long key(T value);
+
     protected abstract Map<Node, Long> convert(Map<T, Long> map);
 
     public StatsResults results() {
-        return new StatsResults(convert(predicates), convert(types), count);
+        return new StatsResults(convert(predicates), convert(types),
+                                convert(estimates(subjects)), convert(estimates(objects)), count);
+    }
+
+    private Map<T, Long> estimates(Map<T, DistinctCountSketch> sketches) {
+        Map<T, Long> map = new HashMap<>(sketches.size());
+        sketches.forEach((p, sketch) -> map.put(p, sketch.estimate()));
+        return map;
     }
 }
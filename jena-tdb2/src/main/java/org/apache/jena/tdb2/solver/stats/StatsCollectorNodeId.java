@@ -24,6 +24,7 @@ import java.util.Map;
 import org.apache.jena.graph.Node;
 import org.apache.jena.sparql.graph.NodeConst;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 
 /** Statistics collector, aggregates based on NodeId */
@@ -43,6 +44,12 @@ public class StatsCollectorNodeId extends StatsCollectorBase<NodeId> {
         return nodeId;
     }
 
+    @Override
+    protected long key(NodeId nodeId) {
+        // The stored form is different for different NodeIds.
+        return NodeIdFactory.encodeStored(nodeId);
+    }
+
     @Override
     protected Map<Node, Long> convert(Map<NodeId, Long> stats) {
         // Predicate -> Count
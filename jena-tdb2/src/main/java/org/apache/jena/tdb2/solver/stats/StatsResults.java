@@ -27,12 +27,17 @@ public class StatsResults
 {
     private final Map<Node, Long> predicates;
     private final Map<Node, Long> types;
+    private final Map<Node, Long> distinctSubjects;
+    private final Map<Node, Long> distinctObjects;
     private final long count;
 
-    StatsResults(Map<Node, Long> predicates, Map<Node, Long> types, long count) {
+    StatsResults(Map<Node, Long> predicates, Map<Node, Long> types,
+                 Map<Node, Long> distinctSubjects, Map<Node, Long> distinctObjects, long count) {
         this.count = count;
         this.predicates = predicates;
         this.types = types;
+        this.distinctSubjects = distinctSubjects;
+        this.distinctObjects = distinctObjects;
     }
 
     public Map<Node, Long> getPredicates() {
@@ -43,6 +48,16 @@ public class StatsResults
         return types;
     }
 
+    /** Predicate to the (estimated) number of distinct subjects with that predicate. */
+    public Map<Node, Long> getDistinctSubjects() {
+        return distinctSubjects;
+    }
+
+    /** Predicate to the (estimated) number of distinct objects with that predicate. */
+    public Map<Node, Long> getDistinctObjects() {
+        return distinctObjects;
+    }
+
     public long getCount() {
         return count;
     }
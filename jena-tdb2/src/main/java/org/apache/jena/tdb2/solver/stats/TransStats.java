@@ -0,0 +1,613 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.jena.atlas.RuntimeIOException;
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.Pair;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.dboe.base.file.BufferChannel;
+import org.apache.jena.dboe.transaction.txn.ComponentId;
+import org.apache.jena.dboe.transaction.txn.TransactionalComponentLifecycle;
+import org.apache.jena.dboe.transaction.txn.TxnId;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.sparql.engine.optimizer.StatsMatcher;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderWeighted;
+import org.apache.jena.sparql.graph.NodeConst;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleTableListener;
+
+/**
+ * Statistics for the triple table, maintained by each write transaction.
+ * <p>
+ * The statistics are the number of triples, and for each predicate, the number of
+ * triples, distinct subjects and distinct objects, and for each class, the number of
+ * {@code rdf:type} triples. They are updated from the changes reported by the
+ * {@link TupleTable} and committed with the rest of the database: the new statistics
+ * are written to the journal during prepare and then to the statistics file.
+ * <p>
+ * Distinct subjects and objects are exact. A write transaction records the net change
+ * for each subject-predicate and predicate-object pair it touches, and the SPO and POS
+ * indexes are checked once for each pair at commit, or earlier if a transaction touches
+ * more than {@link #MaxPending} pairs. If an index is not available (a loader may drop
+ * secondary indexes while loading), the distinct counts are not kept until
+ * {@link #recalculate}.
+ * <p>
+ * For a database created before statistics were kept, and after a bulk load that does not
+ * go through the tuple table, the statistics are not known until {@link #recalculate}.
+ */
+public class TransStats extends TransactionalComponentLifecycle<TransStats.StatsState> implements TupleTableListener {
+
+    private static final int VERSION = 1;
+    // Per predicate.
+    private static final int TRIPLES  = 0;
+    private static final int SUBJECTS = 1;
+    private static final int OBJECTS  = 2;
+
+    /** Number of changed pairs kept before the distinct counts are brought up to date. */
+    public static final int MaxPending = 100_000;
+
+    /** Statistics. Updated by the write transaction that created it; never changed once committed. */
+    static final class Counts {
+        boolean valid;
+        boolean distinctValid;
+        long count = 0;
+        final Map<NodeId, long[]> predicates;
+        final Map<NodeId, Long> types;
+
+        Counts(boolean valid) {
+            this(valid, valid, new HashMap<>(), new HashMap<>());
+        }
+
+        private Counts(boolean valid, boolean distinctValid, Map<NodeId, long[]> predicates, Map<NodeId, Long> types) {
+            this.valid = valid;
+            this.distinctValid = distinctValid;
+            this.predicates = predicates;
+            this.types = types;
+        }
+
+        Counts copy() {
+            Map<NodeId, long[]> predicates2 = new HashMap<>(predicates.size());
+            predicates.forEach((p, x) -> predicates2.put(p, x.clone()));
+            Counts counts = new Counts(valid, distinctValid, predicates2, new HashMap<>(types));
+            counts.count = count;
+            return counts;
+        }
+    }
+
+    static class StatsState {
+        private final Counts base;
+        // Copy on first change.
+        private Counts counts = null;
+        private NodeId rdfType = null;
+        // While rdf:type is not in the node table, the predicates seen that are not rdf:type.
+        private final Set<NodeId> notRdfType = new HashSet<>();
+        // Net change in the number of triples for each (predicate, subject) and each
+        // (predicate, object) since the distinct counts were last brought up to date.
+        private final Map<Tuple<NodeId>, Long> subjectChanges = new HashMap<>();
+        private final Map<Tuple<NodeId>, Long> objectChanges = new HashMap<>();
+
+        StatsState(Counts base) {
+            this.base = base;
+        }
+
+        Counts read() {
+            return counts != null ? counts : base;
+        }
+
+        Counts write() {
+            if ( counts == null )
+                counts = base.copy();
+            return counts;
+        }
+
+        boolean hasChanged() {
+            return counts != null;
+        }
+
+        boolean hasPending() {
+            return ! subjectChanges.isEmpty() || ! objectChanges.isEmpty();
+        }
+    }
+
+    // The last committed statistics.
+    private final AtomicReference<Counts> committed = new AtomicReference<>();
+    private final BufferChannel file;
+    private final TupleTable tupleTable;
+    private final NodeTable nodeTable;
+    // ReorderTransformation for some committed statistics.
+    private volatile Pair<Counts, ReorderTransformation> reorder = null;
+    private volatile Pair<Counts, StatsMatcher> costMatcher = null;
+
+    /**
+     * Statistics for the triples in the tuple table. If the file is empty, the
+     * statistics start from zero when {@code isNew} is true, otherwise they are unknown.
+     */
+    public TransStats(ComponentId cid, BufferChannel file, TupleTable tupleTable, NodeTable nodeTable, boolean isNew) {
+        super(cid);
+        this.file = file;
+        this.tupleTable = tupleTable;
+        this.nodeTable = nodeTable;
+        if ( file.size() == 0 ) {
+            committed.set(new Counts(isNew));
+            writeState();
+        } else
+            committed.set(read());
+        tupleTable.setListener(this);
+    }
+
+    private Counts read() {
+        long x = file.size();
+        ByteBuffer bb = ByteBuffer.allocate((int)x);
+        int len = file.read(bb, 0);
+        if ( len != x )
+            throw new RuntimeIOException("Short read: "+len+" of "+x);
+        bb.rewind();
+        return decode(bb);
+    }
+
+    private void writeState() {
+        ByteBuffer bb = encode(committed.get());
+        int x = bb.remaining();
+        file.truncate(0);
+        int len = file.write(bb);
+        if ( len != x )
+            throw new RuntimeIOException("Short write: "+len+" of "+x);
+        file.sync();
+    }
+
+    private static ByteBuffer encode(Counts counts) {
+        int size = 4 + 4 + 8 + 4 + 32 * counts.predicates.size() + 4 + 16 * counts.types.size();
+        ByteBuffer bb = ByteBuffer.allocate(size);
+        bb.putInt(VERSION);
+        bb.putInt((counts.valid ? 1 : 0) | (counts.distinctValid ? 2 : 0));
+        bb.putLong(counts.count);
+        bb.putInt(counts.predicates.size());
+        counts.predicates.forEach((p, x) -> {
+            NodeIdFactory.set(p, bb);
+            bb.putLong(x[TRIPLES]);
+            bb.putLong(x[SUBJECTS]);
+            bb.putLong(x[OBJECTS]);
+        });
+        bb.putInt(counts.types.size());
+        counts.types.forEach((t, x) -> {
+            NodeIdFactory.set(t, bb);
+            bb.putLong(x);
+        });
+        bb.flip();
+        return bb;
+    }
+
+    private static Counts decode(ByteBuffer bb) {
+        int version = bb.getInt();
+        if ( version != VERSION )
+            throw new TDBException("Statistics: unknown version: "+version);
+        int flags = bb.getInt();
+        Counts counts = new Counts((flags & 1) != 0);
+        counts.distinctValid = (flags & 2) != 0;
+        counts.count = bb.getLong();
+        int numPredicates = bb.getInt();
+        for ( int i = 0 ; i < numPredicates ; i++ ) {
+            NodeId p = NodeIdFactory.get(bb);
+            long[] x = { bb.getLong(), bb.getLong(), bb.getLong() };
+            counts.predicates.put(p, x);
+        }
+        int numTypes = bb.getInt();
+        for ( int i = 0 ; i < numTypes ; i++ ) {
+            NodeId t = NodeIdFactory.get(bb);
+            counts.types.put(t, bb.getLong());
+        }
+        return counts;
+    }
+
+    // ---- Changes
+
+    @Override
+    public void added(Tuple<NodeId> tuple) {
+        change(tuple, 1);
+    }
+
+    @Override
+    public void deleted(Tuple<NodeId> tuple) {
+        change(tuple, -1);
+    }
+
+    @Override
+    public void addedAll(List<Tuple<NodeId>> tuples) {
+        changeAll(tuples, 1);
+    }
+
+    @Override
+    public void deletedAll(List<Tuple<NodeId>> tuples) {
+        changeAll(tuples, -1);
+    }
+
+    @Override
+    public void cleared() {
+        requireWriteTxn();
+        StatsState state = getDataState();
+        state.subjectChanges.clear();
+        state.objectChanges.clear();
+        state.counts = new Counts(true);
+    }
+
+    private void changeAll(List<Tuple<NodeId>> tuples, int delta) {
+        requireWriteTxn();
+        StatsState state = getDataState();
+        if ( ! state.read().valid )
+            return;
+        for ( Tuple<NodeId> tuple : tuples )
+            change(state, tuple, delta);
+    }
+
+    private void change(Tuple<NodeId> tuple, int delta) {
+        requireWriteTxn();
+        StatsState state = getDataState();
+        if ( ! state.read().valid )
+            return;
+        change(state, tuple, delta);
+    }
+
+    private void change(StatsState state, Tuple<NodeId> tuple, int delta) {
+        Counts counts = state.write();
+        NodeId s = tuple.get(0);
+        NodeId p = tuple.get(1);
+        NodeId o = tuple.get(2);
+        counts.count += delta;
+        long[] x = counts.predicates.computeIfAbsent(p, k->new long[3]);
+        x[TRIPLES] += delta;
+        // Predicates with no triples left are removed when the distinct counts are updated.
+        if ( counts.distinctValid ) {
+            state.subjectChanges.merge(TupleFactory.create2(p, s), (long)delta, Long::sum);
+            state.objectChanges.merge(TupleFactory.create2(p, o), (long)delta, Long::sum);
+            if ( state.subjectChanges.size() + state.objectChanges.size() > MaxPending )
+                updateDistinct(state);
+        }
+        if ( isRdfType(state, p) ) {
+            long n = counts.types.getOrDefault(o, 0L) + delta;
+            if ( n <= 0 )
+                counts.types.remove(o);
+            else
+                counts.types.put(o, n);
+        }
+    }
+
+    private boolean isRdfType(StatsState state, NodeId p) {
+        if ( state.rdfType != null )
+            return p.equals(state.rdfType);
+        // rdf:type was not in the node table when last looked up.
+        // Only a predicate not seen since then can be a newly added rdf:type.
+        if ( state.notRdfType.contains(p) )
+            return false;
+        NodeId rdfType = rdfType(state);
+        if ( rdfType != null )
+            return p.equals(rdfType);
+        state.notRdfType.add(p);
+        return false;
+    }
+
+    private NodeId rdfType(StatsState state) {
+        if ( state.rdfType == null ) {
+            // It may not exist yet.
+            NodeId nodeId = nodeTable.getNodeIdForNode(NodeConst.nodeRDFType);
+            if ( ! NodeId.isDoesNotExist(nodeId) ) {
+                state.rdfType = nodeId;
+                state.notRdfType.clear();
+            }
+        }
+        return state.rdfType;
+    }
+
+    /**
+     * Bring the distinct subject and object counts up to date with the changes since
+     * the last update, looking each changed pair up once in the indexes.
+     */
+    private void updateDistinct(StatsState state) {
+        Counts counts = state.write();
+        if ( counts.distinctValid ) {
+            boolean ok = updateDistinct(counts, state.subjectChanges, SUBJECTS) &&
+                         updateDistinct(counts, state.objectChanges, OBJECTS);
+            if ( ! ok )
+                counts.distinctValid = false;
+        }
+        state.subjectChanges.clear();
+        state.objectChanges.clear();
+        counts.predicates.values().removeIf(x -> x[TRIPLES] <= 0);
+    }
+
+    private boolean updateDistinct(Counts counts, Map<Tuple<NodeId>, Long> changes, int slot) {
+        for ( Map.Entry<Tuple<NodeId>, Long> e : changes.entrySet() ) {
+            NodeId p = e.getKey().get(0);
+            NodeId n = e.getKey().get(1);
+            long delta = e.getValue();
+            Tuple<NodeId> pattern = ( slot == SUBJECTS )
+                ? TupleFactory.create3(n, p, NodeId.NodeIdAny)
+                : TupleFactory.create3(NodeId.NodeIdAny, p, n);
+            // The number of triples now, up to one more than were added:
+            // there were triples before if there are more now than the net number added.
+            long limit = Math.max(delta, 0) + 1;
+            long now = countUpTo(pattern, limit);
+            if ( now < 0 )
+                return false;
+            boolean after = now > 0;
+            boolean before = ( delta < 0 ) || now > delta;
+            long change = (after ? 1 : 0) - (before ? 1 : 0);
+            if ( change != 0 )
+                counts.predicates.get(p)[slot] += change;
+        }
+        return true;
+    }
+
+    /** Number of matches, up to a limit, using an index with the fixed slots as a prefix; -1 if there is no such index. */
+    private long countUpTo(Tuple<NodeId> pattern, long limit) {
+        for ( TupleIndex index : tupleTable.getIndexes() ) {
+            if ( index == null || index.weight(pattern) < 2 )
+                continue;
+            Iterator<Tuple<NodeId>> iter = index.find(pattern);
+            long n = 0;
+            while ( n < limit && iter.hasNext() ) {
+                iter.next();
+                n++;
+            }
+            Iter.close(iter);
+            return n;
+        }
+        return -1;
+    }
+
+    /**
+     * Calculate the statistics from the tuple table, replacing the current statistics.
+     * Requires a write transaction.
+     */
+    public void recalculate() {
+        requireWriteTxn();
+        StatsState state = getDataState();
+        state.subjectChanges.clear();
+        state.objectChanges.clear();
+        Counts counts = new Counts(true);
+        TupleIndex spo = tupleTable.selectIndex("SPO");
+        TupleIndex pos = tupleTable.selectIndex("POS");
+        counts.distinctValid = ( spo != null && pos != null );
+        NodeId rdfType = rdfType(state);
+
+        // Triples, predicates, types and, in SPO order, distinct subjects.
+        Iterator<Tuple<NodeId>> iter = ( spo != null ) ? spo.all() : tupleTable.getIndex(0).all();
+        NodeId lastS = null;
+        NodeId lastP = null;
+        while ( iter.hasNext() ) {
+            Tuple<NodeId> t = iter.next();
+            NodeId s = t.get(0);
+            NodeId p = t.get(1);
+            counts.count++;
+            long[] x = counts.predicates.computeIfAbsent(p, k->new long[3]);
+            x[TRIPLES]++;
+            if ( ! s.equals(lastS) || ! p.equals(lastP) )
+                x[SUBJECTS]++;
+            if ( p.equals(rdfType) )
+                counts.types.merge(t.get(2), 1L, Long::sum);
+            lastS = s;
+            lastP = p;
+        }
+        Iter.close(iter);
+
+        // Distinct objects in POS order.
+        if ( pos != null ) {
+            iter = pos.all();
+            lastP = null;
+            NodeId lastO = null;
+            while ( iter.hasNext() ) {
+                Tuple<NodeId> t = iter.next();
+                NodeId p = t.get(1);
+                NodeId o = t.get(2);
+                if ( ! p.equals(lastP) || ! o.equals(lastO) )
+                    counts.predicates.get(p)[OBJECTS]++;
+                lastP = p;
+                lastO = o;
+            }
+            Iter.close(iter);
+        }
+        state.counts = counts;
+    }
+
+    /**
+     * Mark the statistics as not known, for example after changes made directly to the
+     * indexes. Requires a write transaction.
+     */
+    public void invalidate() {
+        requireWriteTxn();
+        StatsState state = getDataState();
+        state.subjectChanges.clear();
+        state.objectChanges.clear();
+        state.counts = new Counts(false);
+    }
+
+    // ---- Access
+
+    /** Whether the statistics are known. */
+    public boolean isValid() {
+        return current().valid;
+    }
+
+    /** Whether the statistics are known, including the distinct subject and object counts. */
+    public boolean isComplete() {
+        Counts counts = current();
+        return counts.valid && counts.distinctValid;
+    }
+
+    /** Number of triples, or -1 if the statistics are not known. */
+    public long getCount() {
+        Counts counts = current();
+        return counts.valid ? counts.count : -1;
+    }
+
+    private Counts current() {
+        if ( isActiveTxn() )
+            return getDataState().read();
+        return committed.get();
+    }
+
+    /**
+     * The statistics as seen by the current transaction, or null if they are not
+     * known. Requires a transaction.
+     */
+    public StatsResults results() {
+        checkTxn();
+        StatsState state = getDataState();
+        if ( state.hasPending() )
+            updateDistinct(state);
+        Counts counts = state.read();
+        return counts.valid ? results(counts) : null;
+    }
+
+    private StatsResults results(Counts counts) {
+        Map<Node, Long> predicates = new HashMap<>();
+        Map<Node, Long> subjects = new HashMap<>();
+        Map<Node, Long> objects = new HashMap<>();
+        Map<Node, Long> types = new HashMap<>();
+        counts.predicates.forEach((p, x) -> {
+            Node n = nodeTable.getNodeForNodeId(p);
+            predicates.put(n, x[TRIPLES]);
+            if ( counts.distinctValid ) {
+                subjects.put(n, x[SUBJECTS]);
+                objects.put(n, x[OBJECTS]);
+            }
+        });
+        counts.types.forEach((t, x) -> types.put(nodeTable.getNodeForNodeId(t), x));
+        return new StatsResults(predicates, types, subjects, objects, counts.count);
+    }
+
+    /**
+     * A statistics-based {@link ReorderTransformation} for the last committed state, or
+     * null if the statistics are not known or there is no data. Requires a
+     * transaction.
+     */
+    public ReorderTransformation getReorderTransform() {
+        Counts counts = committed.get();
+        if ( ! counts.valid || counts.count == 0 )
+            return null;
+        Pair<Counts, ReorderTransformation> cached = reorder;
+        if ( cached != null && cached.getLeft() == counts )
+            return cached.getRight();
+        checkTxn();
+        ReorderTransformation x = new ReorderWeighted(new StatsMatcher(Stats.format(results(counts), false)));
+        reorder = Pair.create(counts, x);
+        return x;
+    }
+
+    /**
+     * A {@link StatsMatcher} for cost-based join planning for the last committed state,
+     * including the matches per bound subject and per bound object, or null if the
+     * statistics are not known or there is no data. Requires a transaction.
+     */
+    public StatsMatcher getCostStatsMatcher() {
+        Counts counts = committed.get();
+        if ( ! counts.valid || counts.count == 0 )
+            return null;
+        Pair<Counts, StatsMatcher> cached = costMatcher;
+        if ( cached != null && cached.getLeft() == counts )
+            return cached.getRight();
+        checkTxn();
+        StatsMatcher x = new StatsMatcher(Stats.format(results(counts), true));
+        costMatcher = Pair.create(counts, x);
+        return x;
+    }
+
+    // ---- Transaction lifecycle
+
+    private boolean recoveryChange = false;
+    @Override
+    public void startRecovery() {
+        recoveryChange = false;
+    }
+
+    @Override
+    public void recover(ByteBuffer ref) {
+        committed.set(decode(ref));
+        recoveryChange = true;
+    }
+
+    @Override
+    public void finishRecovery() {
+        if ( recoveryChange )
+            writeState();
+    }
+
+    @Override
+    public void cleanStart() { }
+
+    @Override
+    protected StatsState _begin(ReadWrite readWrite, TxnId txnId) {
+        return new StatsState(committed.get());
+    }
+
+    @Override
+    protected StatsState _promote(TxnId txnId, StatsState state) {
+        return new StatsState(committed.get());
+    }
+
+    @Override
+    protected ByteBuffer _commitPrepare(TxnId txnId, StatsState state) {
+        if ( ! state.hasChanged() )
+            return null;
+        if ( state.hasPending() )
+            updateDistinct(state);
+        return encode(state.counts);
+    }
+
+    @Override
+    protected void _commit(TxnId txnId, StatsState state) {
+        if ( ! state.hasChanged() )
+            return;
+        committed.set(state.counts);
+        // In the journal already; rewritten from the journal if there is a crash at this point.
+        writeState();
+    }
+
+    @Override
+    protected void _commitEnd(TxnId txnId, StatsState state) {}
+
+    @Override
+    protected void _abort(TxnId txnId, StatsState state) {}
+
+    @Override
+    protected void _complete(TxnId txnId, StatsState state) {}
+
+    @Override
+    protected void _shutdown() {}
+
+    @Override
+    public String toString()    { return getComponentId().label(); }
+}
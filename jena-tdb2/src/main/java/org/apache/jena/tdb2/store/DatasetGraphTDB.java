@@ -30,12 +30,17 @@ import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
 import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
 import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.engine.optimizer.StatsMatcher;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderWeighted;
+import org.apache.jena.system.Txn;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.lib.NodeLib;
 import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.solver.stats.TransStats;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+import org.apache.jena.tdb2.sys.SystemTDB;
 
 final
 public class DatasetGraphTDB extends DatasetGraphStorage
@@ -91,8 +96,51 @@ public class DatasetGraphTDB extends DatasetGraphStorage
         return storeParams;
     }
 
+    /**
+     * The BGP reorder transformation. This is the one set for the database, by the
+     * application, an optimizer settings file or the system default. If none was set,
+     * because {@link SystemTDB#symStatsReorder} is true, this is from the statistics
+     * maintained by transactions when they are known, otherwise the system default.
+     */
     public ReorderTransformation getReorderTransform() {
-        return reorderTransformation;
+        if ( reorderTransformation != null )
+            return reorderTransformation;
+        TransStats stats = storageTDB.getStats();
+        ReorderTransformation reorder = null;
+        if ( stats != null && ! isClosed )
+            reorder = isInTransaction()
+                ? stats.getReorderTransform()
+                : Txn.calculateRead(this, stats::getReorderTransform);
+        return reorder != null ? reorder : SystemTDB.getDefaultReorderTransform();
+    }
+
+    /**
+     * The {@link StatsMatcher} for cost-based join planning, or null if there are no
+     * statistics. This is from the reorder transformation set for the database, if it
+     * is weighted by statistics, otherwise from the statistics maintained by
+     * transactions when they are known.
+     */
+    public StatsMatcher getCostStatsMatcher() {
+        if ( reorderTransformation != null )
+            return ( reorderTransformation instanceof ReorderWeighted reorder ) ? reorder.getStatsMatcher() : null;
+        TransStats stats = storageTDB.getStats();
+        if ( stats == null || isClosed )
+            return null;
+        return isInTransaction()
+            ? stats.getCostStatsMatcher()
+            : Txn.calculateRead(this, stats::getCostStatsMatcher);
+    }
+
+    /** Statistics for the default graph maintained by transactions, or null. */
+    public TransStats getStats() {
+        checkNotClosed();
+        return storageTDB.getStats();
+    }
+
+    /** Log of committed changes, used by online compaction. */
+    public TupleChangeLog getChangeLog() {
+        checkNotClosed();
+        return storageTDB.getChangeLog();
     }
 
     @Override
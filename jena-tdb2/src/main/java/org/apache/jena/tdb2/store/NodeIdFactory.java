@@ -177,6 +177,21 @@ public class NodeIdFactory
         Bytes.setLong(v2+1, b, idx);
     }
 
+    /** The 64 bit form of a NodeId, as held in index records. */
+    public static long encodeStored(NodeId nodeId) {
+        return encode(nodeId);
+    }
+
+    /** The NodeId for the 64 bit form held in index records. */
+    public static NodeId decodeStored(long value) {
+        return decode(value);
+    }
+
+    /** Compare NodeIds in the order they have in index records. */
+    public static int compareStored(NodeId nodeId1, NodeId nodeId2) {
+        return Long.compareUnsigned(encode(nodeId1), encode(nodeId2));
+    }
+
     // (int,long) versions : check before use
 //    /** Relative {@code ByteBuffer} {@code get} */
 //    public static NodeId get(ByteBuffer b)   {
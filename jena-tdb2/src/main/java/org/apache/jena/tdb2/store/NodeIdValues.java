@@ -0,0 +1,365 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.jena.atlas.lib.BitsLong;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.tdb2.store.value.DecimalNode56;
+import org.apache.jena.tdb2.store.value.DoubleNode62;
+import org.apache.jena.tdb2.store.value.FloatNode;
+import org.apache.jena.tdb2.store.value.IntegerNode;
+
+/**
+ * Values of inline NodeIds (numbers, dateTimes and dates) without turning them into
+ * Nodes: comparison, and the ranges of the index order that hold a range of values.
+ * <p>
+ * When {@link #compare} gives a result, it is the same as comparing the values with
+ * {@link NodeValue#compare}: numbers use the XSD type promotion rules, and dateTimes and
+ * dates are only compared when they have the same datatype and the same timezone.
+ * NaN, and a zero compared to a zero of either sign, are left to {@link NodeValue}.
+ */
+public final class NodeIdValues {
+    /** The NodeIds do not determine the comparison. */
+    public static final int UNKNOWN      = Expr.CMP_INDETERMINATE;
+    /** The values are in different value spaces (e.g. a number and a dateTime). */
+    public static final int INCOMPATIBLE = Expr.CMP_UNEQUAL;
+
+    private NodeIdValues() {}
+
+    // Value spaces.
+    private static final int VS_NONE     = 0;
+    private static final int VS_NUMBER   = 1;
+    private static final int VS_TEMPORAL = 2;
+    private static final int VS_BOOLEAN  = 3;
+
+    // Numeric types, in order of type promotion.
+    private static final int NUM_INTEGER = 0;
+    private static final int NUM_DECIMAL = 1;
+    private static final int NUM_FLOAT   = 2;
+    private static final int NUM_DOUBLE  = 3;
+
+    // Inline types that are stored, in index order (the order of the type value).
+    private static final NodeIdType[] storedTypes = Arrays.stream(NodeIdType.values())
+            .filter(t -> t != NodeIdType.XSD_DOUBLE && NodeIdType.isInline(t))
+            .sorted(Comparator.comparingInt(NodeIdType::type))
+            .toArray(NodeIdType[]::new);
+
+    private static final long MASK56       = (1L << 56) - 1;
+    // The largest PTR, as held in index records.
+    private static final long PTR_MAX      = Long.MAX_VALUE;
+    // Doubles: bits 63 and 62 set; bit 61 is the sign. See DoubleNode62.
+    private static final long DOUBLE_BASE  = 0xC000_0000_0000_0000L;
+    private static final long DOUBLE_SIGN  = 1L << 61;
+    private static final long DOUBLE_MASK  = DOUBLE_SIGN - 1;
+    // Smallest double with an inline exponent (exponent 1, mantissa zero).
+    private static final long DOUBLE_SMALL = 1L << 52;
+    // DateTimeNode: timezone in bits 49-55.
+    private static final int  TZ           = 49;
+
+    /** Whether the NodeId is an inline number, dateTime or date. */
+    public static boolean isComparable(NodeId nodeId) {
+        if ( nodeId == null )
+            return false;
+        int vs = valueSpace(nodeId.type());
+        return vs == VS_NUMBER || vs == VS_TEMPORAL;
+    }
+
+    /**
+     * Compare the values of two NodeIds. Returns {@link Expr#CMP_LESS},
+     * {@link Expr#CMP_EQUAL} or {@link Expr#CMP_GREATER}, or {@link #INCOMPATIBLE} for
+     * inline values in different value spaces, or {@link #UNKNOWN} when the NodeIds are
+     * not enough to decide, including when either is not inline.
+     */
+    public static int compare(NodeId nodeId1, NodeId nodeId2) {
+        if ( nodeId1 == null || nodeId2 == null )
+            return UNKNOWN;
+        NodeIdType type1 = nodeId1.type();
+        NodeIdType type2 = nodeId2.type();
+        int vs1 = valueSpace(type1);
+        int vs2 = valueSpace(type2);
+        if ( vs1 == VS_NONE || vs2 == VS_NONE )
+            return UNKNOWN;
+        if ( vs1 != vs2 )
+            return INCOMPATIBLE;
+        switch (vs1) {
+            case VS_NUMBER :
+                return compareNumbers(nodeId1, nodeId2);
+            case VS_TEMPORAL :
+                if ( type1 != type2 || timezone(nodeId1) != timezone(nodeId2) )
+                    return UNKNOWN;
+                // Same timezone: the fields are in order year to millisecond.
+                return result(Long.compare(nodeId1.getValue2(), nodeId2.getValue2()));
+            default :
+                return UNKNOWN;
+        }
+    }
+
+    private static int compareNumbers(NodeId nodeId1, NodeId nodeId2) {
+        int kind = Math.max(numericKind(nodeId1.type()), numericKind(nodeId2.type()));
+        switch (kind) {
+            case NUM_INTEGER :
+                return result(Long.compare(IntegerNode.unpack56(nodeId1.getValue2()), IntegerNode.unpack56(nodeId2.getValue2())));
+            case NUM_DECIMAL :
+                return result(decimalValue(nodeId1).compareTo(decimalValue(nodeId2)));
+            case NUM_FLOAT : {
+                float f1 = floatValue(nodeId1);
+                float f2 = floatValue(nodeId2);
+                if ( Float.isNaN(f1) || Float.isNaN(f2) || ( f1 == 0 && f2 == 0 ) )
+                    return UNKNOWN;
+                return result(Float.compare(f1, f2));
+            }
+            default : {
+                double d1 = doubleValue(nodeId1);
+                double d2 = doubleValue(nodeId2);
+                if ( Double.isNaN(d1) || Double.isNaN(d2) || ( d1 == 0 && d2 == 0 ) )
+                    return UNKNOWN;
+                return result(Double.compare(d1, d2));
+            }
+        }
+    }
+
+    /**
+     * The ranges of the index order that include every stored NodeId whose value
+     * {@code v} may have {@code low <= v <= high}. {@code low} or {@code high} may be
+     * null for no bound; otherwise both must be the same kind of value. The result is the
+     * inclusive start and end of each range, as pairs, in ascending order of the 64 bit
+     * form held in index records.
+     * <p>
+     * The ranges include all NodeIds that are not inline, and may include values outside
+     * the bounds. They do not include inline values that can not be compared to the
+     * bounds. Returns null if the bounds are not inline numbers, dateTimes or dates.
+     */
+    public static long[] storedRanges(NodeId low, NodeId high) {
+        NodeId bound = ( low != null ) ? low : high;
+        if ( ! isComparable(bound) )
+            return null;
+        if ( low != null && high != null ) {
+            int x = compare(low, high);
+            if ( x == UNKNOWN || x == INCOMPATIBLE )
+                return null;
+        }
+        int vs = valueSpace(bound.type());
+        Ranges ranges = new Ranges();
+        ranges.add(0, PTR_MAX);
+        for ( NodeIdType type : storedTypes ) {
+            long base = BitsLong.set(0L, 63) | (long)type.type() << 56;
+            int typeVS = valueSpace(type);
+            if ( typeVS == VS_NONE || ( typeVS == VS_TEMPORAL && vs == VS_TEMPORAL && type != bound.type() ) )
+                ranges.add(base, base | MASK56);
+            else if ( typeVS != vs )
+                continue;
+            else if ( NodeIdType.isInteger(type) )
+                integerRanges(ranges, base, low, high);
+            else if ( vs == VS_TEMPORAL )
+                temporalRanges(ranges, base, bound, low, high);
+            else
+                // Decimal, float.
+                ranges.add(base, base | MASK56);
+        }
+        if ( vs == VS_NUMBER )
+            doubleRanges(ranges, low, high);
+        return ranges.toArray();
+    }
+
+    private static void integerRanges(Ranges ranges, long base, NodeId low, NodeId high) {
+        long lo = ( low == null ) ? IntegerNode.MIN : integerBound(low, true);
+        long hi = ( high == null ) ? IntegerNode.MAX : integerBound(high, false);
+        if ( lo > hi )
+            return;
+        // 56 bit two's complement: negative numbers come after positive ones.
+        if ( lo >= 0 || hi < 0 )
+            ranges.add(base | (lo & MASK56), base | (hi & MASK56));
+        else {
+            ranges.add(base, base | hi);
+            ranges.add(base | (lo & MASK56), base | MASK56);
+        }
+    }
+
+    /** Integer bound (ceiling or floor), clipped to the inline integer range. */
+    private static long integerBound(NodeId nodeId, boolean ceiling) {
+        long unbounded = ceiling ? IntegerNode.MIN : IntegerNode.MAX;
+        BigDecimal x;
+        switch (numericKind(nodeId.type())) {
+            case NUM_INTEGER :
+                return IntegerNode.unpack56(nodeId.getValue2());
+            case NUM_DECIMAL :
+                x = decimalValue(nodeId);
+                break;
+            default : {
+                // Integers convert exactly to float below 2^24 and to double below 2^53.
+                // Beyond that, rounding can make an integer outside the bound compare equal.
+                double d = doubleValue(nodeId);
+                double exact = ( nodeId.type() == NodeIdType.XSD_FLOAT ) ? 0x1p24 : 0x1p53;
+                if ( Double.isNaN(d) || Math.abs(d) >= exact )
+                    return unbounded;
+                x = new BigDecimal(d);
+            }
+        }
+        x = x.setScale(0, ceiling ? RoundingMode.CEILING : RoundingMode.FLOOR);
+        if ( x.compareTo(BigDecimal.valueOf(IntegerNode.MIN)) < 0 )
+            return ceiling ? IntegerNode.MIN : IntegerNode.MIN - 1;
+        if ( x.compareTo(BigDecimal.valueOf(IntegerNode.MAX)) > 0 )
+            return ceiling ? IntegerNode.MAX + 1 : IntegerNode.MAX;
+        return x.longValueExact();
+    }
+
+    private static void doubleRanges(Ranges ranges, NodeId low, NodeId high) {
+        double lo = ( low == null ) ? Double.NEGATIVE_INFINITY : doubleValue(low);
+        double hi = ( high == null ) ? Double.NaN : doubleValue(high);
+        if ( Double.isNaN(lo) )
+            lo = Double.NEGATIVE_INFINITY;
+        // Double.compare order: -infinity ... -0.0, +0.0 ... +infinity, NaN.
+        // Positive doubles are in ascending order; negative doubles follow, in order of magnitude.
+        if ( Double.isNaN(hi) || hi >= 0 ) {
+            long from = ( lo <= 0 ) ? 0 : packDouble(lo, false);
+            long to = Double.isNaN(hi) ? DOUBLE_MASK : packDouble(hi, true);
+            ranges.add(DOUBLE_BASE | from, DOUBLE_BASE | to);
+        }
+        if ( lo <= 0 ) {
+            long from = ( Double.isNaN(hi) || hi >= 0 ) ? 0 : packDouble(-hi, false);
+            long to = packDouble(-lo, true);
+            ranges.add(DOUBLE_BASE | DOUBLE_SIGN | from, DOUBLE_BASE | DOUBLE_SIGN | to);
+        }
+    }
+
+    /** Inline form of a non-negative double, rounded down or up if it is out of the inline range. */
+    private static long packDouble(double d, boolean roundUp) {
+        long x = DoubleNode62.pack(d);
+        if ( x != DoubleNode62.NO_ENCODING )
+            return x;
+        if ( d > 1 )
+            return DoubleNode62.POSITIVE_INFINITY_BITS;
+        return roundUp ? DOUBLE_SMALL : 0;
+    }
+
+    private static void temporalRanges(Ranges ranges, long base, NodeId bound, NodeId low, NodeId high) {
+        long tz = timezone(bound);
+        long tzBase = base | tz << TZ;
+        long tzMax = tzBase | ((1L << TZ) - 1);
+        // Other timezones can not be compared with the NodeId.
+        if ( tz > 0 )
+            ranges.add(base, tzBase - 1);
+        ranges.add(( low == null ) ? tzBase : base | low.getValue2(),
+                   ( high == null ) ? tzMax : base | high.getValue2());
+        if ( tzMax != (base | MASK56) )
+            ranges.add(tzMax + 1, base | MASK56);
+    }
+
+    /** Ranges, added in ascending order, merging adjacent ranges. */
+    private static class Ranges {
+        private final List<long[]> ranges = new ArrayList<>();
+
+        void add(long lo, long hi) {
+            if ( Long.compareUnsigned(lo, hi) > 0 )
+                return;
+            if ( ! ranges.isEmpty() ) {
+                long[] last = ranges.get(ranges.size() - 1);
+                if ( last[1] + 1 == lo ) {
+                    last[1] = hi;
+                    return;
+                }
+            }
+            ranges.add(new long[] {lo, hi});
+        }
+
+        long[] toArray() {
+            long[] x = new long[2 * ranges.size()];
+            for ( int i = 0 ; i < ranges.size() ; i++ ) {
+                x[2 * i] = ranges.get(i)[0];
+                x[2 * i + 1] = ranges.get(i)[1];
+            }
+            return x;
+        }
+    }
+
+    private static int valueSpace(NodeIdType type) {
+        if ( NodeIdType.isNumber(type) )
+            return VS_NUMBER;
+        switch (type) {
+            case XSD_DATETIME :
+            case XSD_DATETIMESTAMP :
+            case XSD_DATE :
+                return VS_TEMPORAL;
+            case XSD_BOOLEAN :
+                return VS_BOOLEAN;
+            default :
+                return VS_NONE;
+        }
+    }
+
+    private static int numericKind(NodeIdType type) {
+        if ( NodeIdType.isDouble(type) )
+            return NUM_DOUBLE;
+        if ( NodeIdType.isFloat(type) )
+            return NUM_FLOAT;
+        if ( NodeIdType.isDecimal(type) )
+            return NUM_DECIMAL;
+        return NUM_INTEGER;
+    }
+
+    private static long timezone(NodeId nodeId) {
+        return BitsLong.unpack(nodeId.getValue2(), TZ, 56);
+    }
+
+    private static BigDecimal decimalValue(NodeId nodeId) {
+        if ( NodeIdType.isDecimal(nodeId.type()) )
+            return DecimalNode56.unpackAsBigDecimal(nodeId.getValue2());
+        return BigDecimal.valueOf(IntegerNode.unpack56(nodeId.getValue2()));
+    }
+
+    private static float floatValue(NodeId nodeId) {
+        switch (numericKind(nodeId.type())) {
+            case NUM_FLOAT :
+                return FloatNode.unpack(nodeId.getValue2());
+            case NUM_DECIMAL :
+                return decimalValue(nodeId).floatValue();
+            default :
+                return IntegerNode.unpack56(nodeId.getValue2());
+        }
+    }
+
+    private static double doubleValue(NodeId nodeId) {
+        switch (numericKind(nodeId.type())) {
+            case NUM_DOUBLE :
+                return DoubleNode62.unpack(nodeId.getValue2());
+            case NUM_FLOAT :
+                return FloatNode.unpack(nodeId.getValue2());
+            case NUM_DECIMAL :
+                return decimalValue(nodeId).doubleValue();
+            default :
+                return IntegerNode.unpack56(nodeId.getValue2());
+        }
+    }
+
+    private static int result(int x) {
+        if ( x < 0 )
+            return Expr.CMP_LESS;
+        if ( x > 0 )
+            return Expr.CMP_GREATER;
+        return Expr.CMP_EQUAL;
+    }
+}
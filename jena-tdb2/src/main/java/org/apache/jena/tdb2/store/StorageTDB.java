@@ -30,12 +30,15 @@ import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.tdb2.solver.stats.TransStats;
 
 /** {@link StorageRDF} for TDB2 */
 public class StorageTDB implements StorageRDF {
     private TripleTable                 tripleTable;
     private QuadTable                   quadTable;
     private TransactionalSystem         txnSystem;
+    private TransStats                  stats;
+    private TupleChangeLog              changeLog;
 
     // In notifyAdd and notifyDelete,  check whether the change is a real change or not.
     // e.g. Adding a quad already present is not a real change.
@@ -45,9 +48,19 @@ public class StorageTDB implements StorageRDF {
     private boolean                     closed         = false;
 
     public StorageTDB(TransactionalSystem txnSystem, TripleTable tripleTable, QuadTable quadTable) {
+        this(txnSystem, tripleTable, quadTable, null);
+    }
+
+    public StorageTDB(TransactionalSystem txnSystem, TripleTable tripleTable, QuadTable quadTable, TransStats stats) {
+        this(txnSystem, tripleTable, quadTable, stats, null);
+    }
+
+    public StorageTDB(TransactionalSystem txnSystem, TripleTable tripleTable, QuadTable quadTable, TransStats stats, TupleChangeLog changeLog) {
         this.txnSystem = txnSystem;
         this.tripleTable = tripleTable;
         this.quadTable = quadTable;
+        this.stats = stats;
+        this.changeLog = changeLog;
     }
 
     public QuadTable getQuadTable() {
@@ -60,6 +73,16 @@ public class StorageTDB implements StorageRDF {
         return tripleTable;
     }
 
+    /** Statistics for the triple table, or null if they are not maintained. */
+    public TransStats getStats() {
+        return stats;
+    }
+
+    /** Log of committed changes, used by online compaction, or null if not available. */
+    public TupleChangeLog getChangeLog() {
+        return changeLog;
+    }
+
     private void checkActive() {}
 
     private final void notifyAdd(Node g, Node s, Node p, Node o) { }
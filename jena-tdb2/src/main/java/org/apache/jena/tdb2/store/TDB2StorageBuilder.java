@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.UUID;
 
+import org.apache.jena.atlas.lib.FileOps;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
 import org.apache.jena.dboe.DBOpEnvException;
 import org.apache.jena.dboe.base.file.*;
@@ -42,9 +43,11 @@ import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.solver.OpExecutorTDB2;
+import org.apache.jena.tdb2.solver.stats.TransStats;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetable.NodeTableCache;
 import org.apache.jena.tdb2.store.nodetable.NodeTableInline;
+import org.apache.jena.tdb2.store.nodetable.NodeTableNative;
 import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTableConcrete;
@@ -85,7 +88,8 @@ public class TDB2StorageBuilder {
                 params = StoreParams.getDftStoreParams();
         }
 
-        if ( reorderTransform == null )
+        // Left as null, the DatasetGraphTDB uses the statistics maintained by transactions.
+        if ( reorderTransform == null && ! SystemTDB.isStatsReorder() )
             reorderTransform = SystemTDB.getDefaultReorderTransform();
 
         // Builder pattern for adding components.
@@ -101,6 +105,9 @@ public class TDB2StorageBuilder {
         builder.listeners.forEach(txnCoord::addListener);
         // Freezes the TransactionCoordinator components
         txnCoord.start();
+        // Load or build the node hash filter now, not on first use under the node table lock.
+        if ( builder.hashFilterNodeTable != null )
+            txnSystem.executeRead(builder.hashFilterNodeTable::initHashFilter);
         DatasetGraphTDB dsg = new DatasetGraphTDB(location, params, reorderTransform,
                                                   storage, prefixes, txnSystem);
 
@@ -169,6 +176,8 @@ public class TDB2StorageBuilder {
     // Accumulate TransactionalComponents as they are used to build the database.
     private final Collection<TransactionalComponent> components = new ArrayList<>();
     private final Collection<TransactionListener> listeners = new ArrayList<>();
+    // The node table with a node hash filter, if any.
+    private NodeTableNative hashFilterNodeTable = null;
 
     private TDB2StorageBuilder(TransactionalSystem txnSystem,
                                Location location, StoreParams params,
@@ -185,13 +194,31 @@ public class TDB2StorageBuilder {
 //    private Collection<TransactionalComponent> getComponents() { return components; }
 
     private StorageTDB buildStorage() {
+        // Before the indexes are created.
+        boolean isNew = location.isMem() || ! new FileSet(location, params.getPrimaryIndexTriples()).exists(Names.extBptRecords);
         NodeTable nodeTable = buildNodeTable(params.getNodeTableBaseName(), true);
         TripleTable tripleTable = buildTripleTable(nodeTable);
         QuadTable quadTable = buildQuadTable(nodeTable);
-        StorageTDB dsg = new StorageTDB(txnSystem, tripleTable, quadTable);
+        TransStats stats = buildStats(tripleTable, isNew);
+        TupleChangeLog changeLog = new TupleChangeLog(txnSystem,
+                                                      tripleTable.getNodeTupleTable().getTupleTable(),
+                                                      quadTable.getNodeTupleTable().getTupleTable());
+        listeners.add(changeLog);
+        StorageTDB dsg = new StorageTDB(txnSystem, tripleTable, quadTable, stats, changeLog);
         return dsg;
     }
 
+    private TransStats buildStats(TripleTable tripleTable, boolean isNew) {
+        String name = Names.statsBaseName;
+        ComponentId cid = componentIdMgr.getComponentId(name);
+        FileSet fs = new FileSet(location, name);
+        BufferChannel file = FileFactory.createBufferChannel(fs, Names.extState);
+        NodeTupleTable ntt = tripleTable.getNodeTupleTable();
+        TransStats stats = new TransStats(cid, file, ntt.getTupleTable(), ntt.getNodeTable(), isNew);
+        components.add(stats);
+        return stats;
+    }
+
     private StoragePrefixesTDB buildPrefixes() {
         NodeTable nodeTablePrefixes = buildNodeTable(params.getPrefixTableBaseName(), false);
         StoragePrefixesTDB prefixes = buildPrefixTable(nodeTablePrefixes);
@@ -267,21 +294,21 @@ public class TDB2StorageBuilder {
     private TupleIndex makeTupleIndex(String primary, String index, String name) {
         TupleMap cmap = TupleMap.create(primary, index);
         RecordFactory rf = new RecordFactory(SystemTDB.SizeOfNodeId * cmap.length(), 0);
-        RangeIndex rIdx = makeRangeIndex(rf, index);
+        RangeIndex rIdx = makeRangeIndex(rf, index, params.isPackedIndexLeaves());
         TupleIndex tIdx = new TupleIndexRecord(primary.length(), cmap, index, rf, rIdx);
         return tIdx;
     }
 
-    private RangeIndex makeRangeIndex(RecordFactory recordFactory, String name) {
+    private RangeIndex makeRangeIndex(RecordFactory recordFactory, String name, boolean packedLeaves) {
         ComponentId cid = componentIdMgr.getComponentId(name);
         FileSet fs = new FileSet(location, name);
-        BPlusTree bpt = BPlusTreeFactory.createBPTree(cid, fs, recordFactory);
+        BPlusTree bpt = BPlusTreeFactory.createBPTree(cid, fs, recordFactory, packedLeaves);
         components.add(bpt);
         return bpt;
     }
 
     private NodeTable buildNodeTable(String name, boolean isData) {
-        NodeTable nodeTable = buildBaseNodeTable(name);
+        NodeTable nodeTable = buildBaseNodeTable(name, isData);
 
         nodeTable = addNodeTableCache(nodeTable, params, isData);
 
@@ -297,19 +324,39 @@ public class TDB2StorageBuilder {
         int idToNodeCacheSize   = isData ? params.getNodeId2NodeCacheSize() : params.getPrefixNodeId2NodeCacheSize();
         int missCacheSize       = isData ? params.getNodeMissCacheSize()    : params.getPrefixNodeMissCacheSize();
         double nodeCacheInitialCapacityFactor = params.getNodeCacheInitialCapacityFactor();
+        // Off-heap cache: data nodes only.
+        long offHeapSize        = isData ? params.getNodeCacheOffHeapSize() : 0;
         nodeTable = NodeTableCache.create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, missCacheSize,
-                nodeCacheInitialCapacityFactor);
+                nodeCacheInitialCapacityFactor, offHeapSize);
         return nodeTable;
     }
 
-    private NodeTable buildBaseNodeTable(String name) {
+    private NodeTable buildBaseNodeTable(String name, boolean isData) {
         RecordFactory recordFactory = new RecordFactory(SystemTDB.LenNodeHash, SystemTDB.SizeOfNodeId);
-        Index index = makeRangeIndex(recordFactory, name);
+        // Node hashes have little in common with their neighbours: never packed.
+        Index index = makeRangeIndex(recordFactory, name, false);
 
         String dataname = name+"-data";
         TransBinaryDataFile transBinFile = makeBinaryDataFile(dataname);
         components.add(transBinFile);
-        return new NodeTableTRDF(index, transBinFile);
+
+        // Node hash filter: data nodes only.
+        boolean useHashFilter = isData && params.isNodeHashFilter();
+        String hashFilterFile = location.isMem() ? null : location.getPath(name, Names.extNodeHashFilter);
+        // A file left from when there was a filter is out of date once nodes are added without it.
+        if ( hashFilterFile != null && ! useHashFilter )
+            FileOps.delete(hashFilterFile);
+        NodeTableTRDF nodeTable;
+        if ( location.isMem() || ! params.isNodeDataMapped() )
+            nodeTable = new NodeTableTRDF(index, transBinFile, useHashFilter, hashFilterFile);
+        else {
+            // Lock-free reads of the committed part of the node data file.
+            MappedReadFile mappedFile = new MappedReadFile(location.getPath(dataname, Names.extObjNodeData));
+            nodeTable = new NodeTableTRDF(index, transBinFile, useHashFilter, hashFilterFile, mappedFile, transBinFile::getCommittedLength);
+        }
+        if ( useHashFilter )
+            hashFilterNodeTable = nodeTable;
+        return nodeTable;
     }
 
     private TransBinaryDataFile makeBinaryDataFile(String name) {
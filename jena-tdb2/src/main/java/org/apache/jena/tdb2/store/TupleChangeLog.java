@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.apache.jena.atlas.RuntimeIOException;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.dboe.transaction.txn.Transaction;
+import org.apache.jena.dboe.transaction.txn.TransactionListener;
+import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleTableListener;
+import org.apache.jena.tdb2.sys.SystemTDB;
+
+/**
+ * Log of the changes to the triple table and the quad table made by committed write
+ * transactions. The log only records between {@link #start} and {@link #stop}. It is
+ * used by online compaction to bring the copy of a database up to date with the
+ * changes made while the copy was being made.
+ * <p>
+ * The changes of a write transaction are held until the transaction finishes, and
+ * are added to the log if it commits.
+ * <p>
+ * The log holds at most {@link SystemTDB#symCompactChangeLimit} committed changes in
+ * memory. Further committed changes are appended to a file in the directory given to
+ * {@link #start}, until they are taken by {@link #drain}. Writers do not wait for the
+ * log to be drained.
+ */
+public class TupleChangeLog implements TransactionListener {
+
+    public enum Action { ADD, DELETE, CLEAR }
+
+    /**
+     * A change: a tuple added or deleted, or the table cleared (the tuple is null).
+     * {@code quad} is true for the quad table, false for the triple table.
+     */
+    public record Change(Action action, boolean quad, Tuple<NodeId> tuple) {}
+
+    private static final Action[] actions = Action.values();
+
+    private final TransactionalSystem txnSystem;
+    private final TupleTable tripleTable;
+    private final TupleTable quadTable;
+
+    private volatile boolean recording = false;
+    private int maxChanges = SystemTDB.DefaultCompactChangeLimit;
+    // The listeners before recording started.
+    private TupleTableListener tripleListener = null;
+    private TupleTableListener quadListener = null;
+
+    // Guarded by "this".
+    // The write transaction making changes, and its changes so far.
+    private Transaction writer = null;
+    private List<Change> writerChanges = new ArrayList<>();
+    // Changes of committed transactions, in commit order: those in memory, then
+    // those in the spill file.
+    private List<Change> committed = new ArrayList<>();
+    private Path spillDir = null;
+    private int spillFileCount = 0;
+    private Path spillFile = null;
+    private DataOutputStream spillOut = null;
+    private long spilled = 0;
+    private RuntimeIOException spillError = null;
+
+    public TupleChangeLog(TransactionalSystem txnSystem, TupleTable tripleTable, TupleTable quadTable) {
+        this.txnSystem = txnSystem;
+        this.tripleTable = tripleTable;
+        this.quadTable = quadTable;
+    }
+
+    /**
+     * Start recording. Committed changes beyond the in-memory limit are written to a
+     * file in {@code spillDir}. The caller must ensure there are no writers or promote
+     * transactions active and none start until this method returns.
+     */
+    public synchronized void start(Path spillDir) {
+        if ( recording )
+            return;
+        maxChanges = Math.max(1, ARQ.getContext().getInt(SystemTDB.symCompactChangeLimit, SystemTDB.DefaultCompactChangeLimit));
+        this.spillDir = Objects.requireNonNull(spillDir);
+        committed = new ArrayList<>();
+        spilled = 0;
+        spillError = null;
+        writer = null;
+        writerChanges.clear();
+        tripleListener = tripleTable.getListener();
+        quadListener = quadTable.getListener();
+        tripleTable.setListener(new Recorder(false, tripleListener));
+        quadTable.setListener(new Recorder(true, quadListener));
+        recording = true;
+    }
+
+    /** Stop recording and discard any changes not yet taken by {@link #drain}. */
+    public synchronized void stop() {
+        if ( ! recording )
+            return;
+        recording = false;
+        tripleTable.setListener(tripleListener);
+        quadTable.setListener(quadListener);
+        tripleListener = null;
+        quadListener = null;
+        writer = null;
+        writerChanges.clear();
+        committed = new ArrayList<>();
+        Path file = closeSpill();
+        if ( file != null )
+            deleteSpill(file);
+        spilled = 0;
+        spillDir = null;
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Take the changes committed since the last call, in commit order, and pass them to
+     * {@code action} in lists of at most the in-memory limit. Writers continue while the
+     * changes are passed on.
+     */
+    public void drain(Consumer<List<Change>> action) {
+        List<Change> inMemory;
+        Path file;
+        long count;
+        synchronized(this) {
+            if ( spillError != null )
+                throw new TDBException("Change log: failed to write changes", spillError);
+            inMemory = committed;
+            committed = new ArrayList<>();
+            file = closeSpill();
+            count = spilled;
+            spilled = 0;
+        }
+        if ( ! inMemory.isEmpty() )
+            action.accept(inMemory);
+        if ( file == null )
+            return;
+        try {
+            readSpill(file, count, action);
+        } finally {
+            deleteSpill(file);
+        }
+    }
+
+    /** Number of changes committed and not yet taken by {@link #drain}. */
+    public synchronized long size() {
+        return committed.size() + spilled;
+    }
+
+    /** Number of changes committed and not yet taken by {@link #drain} that are in the spill file. */
+    public synchronized long spilled() {
+        return spilled;
+    }
+
+    private synchronized void record(Action action, boolean quad, Tuple<NodeId> tuple) {
+        if ( ! recording )
+            return;
+        writerChanges().add(new Change(action, quad, tuple));
+    }
+
+    private synchronized void recordAll(Action action, boolean quad, List<Tuple<NodeId>> tuples) {
+        if ( ! recording )
+            return;
+        List<Change> changes = writerChanges();
+        for ( Tuple<NodeId> tuple : tuples )
+            changes.add(new Change(action, quad, tuple));
+    }
+
+    // The changes of the thread's write transaction.
+    private List<Change> writerChanges() {
+        Transaction txn = txnSystem.getThreadTransaction();
+        if ( txn != writer ) {
+            // There is only one writer at a time. Any changes held are from a
+            // transaction that has finished without notifying a commit.
+            writer = txn;
+            writerChanges.clear();
+        }
+        return writerChanges;
+    }
+
+    @Override
+    public void notifyCommitFinish(Transaction transaction) {
+        if ( ! recording )
+            return;
+        synchronized(this) {
+            if ( transaction != writer )
+                return;
+            // Once changes are in the spill file, later changes follow them there.
+            if ( spilled == 0 && committed.size() + writerChanges.size() <= maxChanges )
+                committed.addAll(writerChanges);
+            else
+                spill(writerChanges);
+            writer = null;
+            writerChanges.clear();
+        }
+    }
+
+    @Override
+    public void notifyAbortFinish(Transaction transaction) {
+        if ( ! recording )
+            return;
+        synchronized(this) {
+            if ( transaction != writer )
+                return;
+            writer = null;
+            writerChanges.clear();
+        }
+    }
+
+    // ---- Spill file
+    // Each change is: action (byte), quad (byte), tuple length (byte, 0 for CLEAR),
+    // then the NodeIds in the stored 64 bit form.
+
+    private void spill(List<Change> changes) {
+        if ( spillError != null )
+            return;
+        try {
+            if ( spillOut == null ) {
+                spillFile = spillDir.resolve("changes-"+(++spillFileCount)+".spill");
+                spillOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile)));
+            }
+            for ( Change change : changes ) {
+                spillOut.writeByte(change.action().ordinal());
+                spillOut.writeBoolean(change.quad());
+                Tuple<NodeId> tuple = change.tuple();
+                int len = ( tuple == null ) ? 0 : tuple.len();
+                spillOut.writeByte(len);
+                for ( int i = 0 ; i < len ; i++ )
+                    spillOut.writeLong(NodeIdFactory.encodeStored(tuple.get(i)));
+            }
+            spilled += changes.size();
+        } catch (IOException ex) {
+            // Reported by the next drain; the commit has already happened.
+            spillError = new RuntimeIOException(ex);
+        }
+    }
+
+    // Close the spill file for writing and return it, or null if there is none.
+    private Path closeSpill() {
+        Path file = spillFile;
+        if ( spillOut != null ) {
+            try { spillOut.close(); }
+            catch (IOException ex) {
+                if ( spillError == null )
+                    spillError = new RuntimeIOException(ex);
+            }
+        }
+        spillOut = null;
+        spillFile = null;
+        return file;
+    }
+
+    private void readSpill(Path file, long count, Consumer<List<Change>> action) {
+        try ( DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))) ) {
+            List<Change> changes = new ArrayList<>();
+            for ( long n = 0 ; n < count ; n++ ) {
+                Action act = actions[in.readByte()];
+                boolean quad = in.readBoolean();
+                int len = in.readByte();
+                Tuple<NodeId> tuple = null;
+                if ( len > 0 ) {
+                    NodeId[] nodeIds = new NodeId[len];
+                    for ( int i = 0 ; i < len ; i++ )
+                        nodeIds[i] = NodeIdFactory.decodeStored(in.readLong());
+                    tuple = TupleFactory.create(nodeIds);
+                }
+                changes.add(new Change(act, quad, tuple));
+                if ( changes.size() >= maxChanges ) {
+                    action.accept(changes);
+                    changes = new ArrayList<>();
+                }
+            }
+            if ( ! changes.isEmpty() )
+                action.accept(changes);
+        } catch (IOException ex) {
+            throw new RuntimeIOException(ex);
+        }
+    }
+
+    private static void deleteSpill(Path file) {
+        try { Files.deleteIfExists(file); }
+        catch (IOException ex) { throw new RuntimeIOException(ex); }
+    }
+
+    /** Records changes, and passes them on to the listener there was before recording started. */
+    private class Recorder implements TupleTableListener {
+        private final boolean quad;
+        private final TupleTableListener other;
+
+        Recorder(boolean quad, TupleTableListener other) {
+            this.quad = quad;
+            this.other = other;
+        }
+
+        @Override
+        public void added(Tuple<NodeId> tuple) {
+            if ( other != null )
+                other.added(tuple);
+            record(Action.ADD, quad, tuple);
+        }
+
+        @Override
+        public void deleted(Tuple<NodeId> tuple) {
+            if ( other != null )
+                other.deleted(tuple);
+            record(Action.DELETE, quad, tuple);
+        }
+
+        @Override
+        public void addedAll(List<Tuple<NodeId>> tuples) {
+            if ( other != null )
+                other.addedAll(tuples);
+            recordAll(Action.ADD, quad, tuples);
+        }
+
+        @Override
+        public void deletedAll(List<Tuple<NodeId>> tuples) {
+            if ( other != null )
+                other.deletedAll(tuples);
+            recordAll(Action.DELETE, quad, tuples);
+        }
+
+        @Override
+        public void cleared() {
+            if ( other != null )
+                other.cleared();
+            record(Action.CLEAR, quad, null);
+        }
+    }
+}
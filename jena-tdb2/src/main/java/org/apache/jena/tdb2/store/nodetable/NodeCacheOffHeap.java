@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.graph.Node;
+import org.apache.jena.riot.thrift.ThriftConvert;
+import org.apache.jena.riot.thrift.wire.RDF_Term;
+import org.apache.jena.tdb2.lib.NodeLib;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+
+/**
+ * A cache of nodes held outside the Java heap, in direct memory, with a size in bytes.
+ * <p>
+ * It holds NodeId to node, as the Thrift encoding used by {@link NodeTableTRDF},
+ * and node hash to NodeId. A node is decoded each time it is found.
+ * <p>
+ * The cache is split into segments, each with its own lock. A segment is a circular
+ * log of entries with an index from key to the place in the log. New entries
+ * overwrite the oldest entries (FIFO).
+ * <p>
+ * Only nodes and NodeIds of committed data should be put in the cache;
+ * the cache is not transactional.
+ * <p>
+ * The JVM must be allowed enough direct memory ({@code -XX:MaxDirectMemorySize}).
+ */
+public class NodeCacheOffHeap {
+    // Entry kinds.
+    private static final byte KindNodeId = 1;      // NodeId -> Node
+    private static final byte KindHash   = 2;      // Hash -> NodeId
+
+    // Per segment limits.
+    private static final int  MaxSegmentBytes = 1<<30;
+    private static final int  MinSegmentBytes = 64*1024;
+    private static final int  MaxSegments     = 64;
+    private static final int  MinSegments     = 16;
+
+    // Share of the space for the index of each segment (1/IndexShare).
+    private static final int  IndexShare      = 5;
+
+    private final long byteSize;
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Create an off-heap node cache of (approximately) {@code byteSize} bytes.
+     * The maximum size is 64G.
+     */
+    public NodeCacheOffHeap(long byteSize) {
+        if ( byteSize < MinSegmentBytes )
+            throw new IllegalArgumentException("Off-heap node cache size too small: "+byteSize);
+        this.byteSize = byteSize;
+        long n = MinSegments;
+        while ( n > 1 && byteSize / n < MinSegmentBytes )
+            n = n / 2;
+        while ( n < MaxSegments && byteSize / n > MaxSegmentBytes )
+            n = n * 2;
+        long segmentBytes = Math.min(byteSize / n, MaxSegmentBytes);
+        int indexSlots = Integer.highestOneBit((int)Math.max(64, segmentBytes / IndexShare / Segment.SlotBytes));
+        int dataBytes = (int)(segmentBytes - (long)indexSlots * Segment.SlotBytes);
+        segments = new Segment[(int)n];
+        for ( int i = 0 ; i < n ; i++ )
+            segments[i] = new Segment(dataBytes, indexSlots);
+        segmentMask = (int)n - 1;
+    }
+
+    /** Get the node for a NodeId, or return null. */
+    public Node getNode(NodeId nodeId) {
+        if ( ! nodeId.isPtr() )
+            return null;
+        long k = nodeId.getPtrLocation();
+        byte[] bytes = segment(KindNodeId, k, 0).get(KindNodeId, k, 0);
+        if ( bytes == null ) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        RDF_Term term = ThriftConvert.termFromBytes(bytes);
+        return ThriftConvert.convert(term);
+    }
+
+    /** Add a NodeId to node entry. */
+    public void putNode(NodeId nodeId, Node node) {
+        if ( ! nodeId.isPtr() )
+            return;
+        long k = nodeId.getPtrLocation();
+        byte[] bytes = ThriftConvert.termToBytes(ThriftConvert.convert(node, true));
+        segment(KindNodeId, k, 0).put(KindNodeId, k, 0, bytes);
+    }
+
+    /** Get the NodeId for a node, or return null. */
+    public NodeId getNodeId(Node node) {
+        byte[] h = NodeLib.hash(node).getBytes();
+        long k1 = Bytes.getLong(h, 0);
+        long k2 = Bytes.getLong(h, 8);
+        byte[] bytes = segment(KindHash, k1, k2).get(KindHash, k1, k2);
+        if ( bytes == null ) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return NodeIdFactory.get(bytes, 0);
+    }
+
+    /** Add a node to NodeId entry. */
+    public void putNodeId(Node node, NodeId nodeId) {
+        byte[] h = NodeLib.hash(node).getBytes();
+        long k1 = Bytes.getLong(h, 0);
+        long k2 = Bytes.getLong(h, 8);
+        byte[] bytes = new byte[NodeId.SIZE];
+        NodeIdFactory.set(nodeId, bytes, 0);
+        segment(KindHash, k1, k2).put(KindHash, k1, k2, bytes);
+    }
+
+    /** Size, in bytes, of the cache. */
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    /** Number of lookups that found an entry. */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** Number of lookups that did not find an entry. */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** Number of entries written to the cache, including any since overwritten. */
+    public long getPuts() {
+        long x = 0;
+        for ( Segment seg : segments ) {
+            synchronized(seg) {
+                x += seg.puts;
+            }
+        }
+        return x;
+    }
+
+    private Segment segment(byte kind, long k1, long k2) {
+        long tag = tag(kind, k1, k2);
+        return segments[(int)(tag >>> 40) & segmentMask];
+    }
+
+    // Never 0 (0 marks an empty slot).
+    private static long tag(byte kind, long k1, long k2) {
+        long h = (k1 * 0x9E3779B97F4A7C15L) ^ Long.rotateLeft(k2 * 0xC2B2AE3D27D4EB4FL, 31) ^ kind;
+        h ^= (h >>> 29);
+        return ( h == 0 ) ? 1 : h;
+    }
+
+    /**
+     * A segment: a circular log of entries and an index.
+     * <p>
+     * Entry: [int length][byte kind][long key1][long key2][bytes].
+     * <br/>
+     * Index slot: [long tag][long position in the log].
+     * <p>
+     * Positions in the log increase; an entry has been overwritten if its position
+     * is more than the data size behind the head.
+     */
+    private static class Segment {
+        static final int SlotBytes = 2 * Long.BYTES;
+        static final int HeaderBytes = Integer.BYTES + 1 + 2 * Long.BYTES;
+        // Number of index slots tried for a key.
+        static final int Probe = 8;
+
+        private final ByteBuffer data;
+        private final int dataSize;
+        private final ByteBuffer index;
+        private final int slotMask;
+        // Next position to write in the log.
+        private long head = 0;
+        private long puts = 0;
+
+        Segment(int dataSize, int indexSlots) {
+            this.data = ByteBuffer.allocateDirect(dataSize);
+            this.dataSize = dataSize;
+            this.index = ByteBuffer.allocateDirect(indexSlots * SlotBytes);
+            this.slotMask = indexSlots - 1;
+        }
+
+        synchronized byte[] get(byte kind, long k1, long k2) {
+            long tag = tag(kind, k1, k2);
+            int slot = (int)tag & slotMask;
+            for ( int i = 0 ; i < Probe ; i++ ) {
+                int s = ((slot + i) & slotMask) * SlotBytes;
+                if ( index.getLong(s) != tag )
+                    continue;
+                long pos = index.getLong(s + Long.BYTES);
+                if ( ! isLive(pos) )
+                    continue;
+                int x = (int)(pos % dataSize);
+                if ( data.get(x + Integer.BYTES) != kind || data.getLong(x + 5) != k1 || data.getLong(x + 13) != k2 )
+                    continue;
+                int len = data.getInt(x);
+                byte[] bytes = new byte[len - HeaderBytes];
+                data.get(x + HeaderBytes, bytes);
+                return bytes;
+            }
+            return null;
+        }
+
+        synchronized void put(byte kind, long k1, long k2, byte[] value) {
+            int len = HeaderBytes + value.length;
+            // Large nodes are not cached.
+            if ( len > dataSize / 8 )
+                return;
+            int x = (int)(head % dataSize);
+            if ( x + len > dataSize ) {
+                // Does not fit before the end - start again at the beginning.
+                head += dataSize - x;
+                x = 0;
+            }
+            long pos = head;
+            data.putInt(x, len);
+            data.put(x + Integer.BYTES, kind);
+            data.putLong(x + 5, k1);
+            data.putLong(x + 13, k2);
+            data.put(x + HeaderBytes, value);
+            head += len;
+            puts++;
+
+            // Index: the slot with the same tag, or an unused slot, or the oldest slot.
+            long tag = tag(kind, k1, k2);
+            int slot = (int)tag & slotMask;
+            int choice = -1;
+            long oldest = Long.MAX_VALUE;
+            for ( int i = 0 ; i < Probe ; i++ ) {
+                int s = ((slot + i) & slotMask) * SlotBytes;
+                long t = index.getLong(s);
+                long p = index.getLong(s + Long.BYTES);
+                if ( t == tag || t == 0 || ! isLive(p) ) {
+                    choice = s;
+                    break;
+                }
+                if ( p < oldest ) {
+                    oldest = p;
+                    choice = s;
+                }
+            }
+            index.putLong(choice, tag);
+            index.putLong(choice + Long.BYTES, pos);
+        }
+
+        // Whether the entry at a position has not been overwritten.
+        private boolean isLive(long pos) {
+            return pos >= head - dataSize && pos < head;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.lib.Bytes;
+
+/**
+ * A Bloom filter over node hashes. It answers "definitely not present" or "may be
+ * present", so a lookup of a node that is not in the node table does not need to
+ * search the node hash index.
+ * <p>
+ * Entries are only ever added. The node table never removes nodes, so the filter
+ * does not need to follow transactions: an entry added by a transaction that
+ * aborts, or not yet committed, only causes a false positive.
+ * <p>
+ * The filter grows: when more entries than the capacity of the latest segment have
+ * been added, a new segment, twice the size, is added and takes the new entries. A
+ * lookup checks every segment. A filter with more than one segment is best rebuilt,
+ * at one size, when it is next loaded ({@link #isGrown}).
+ * <p>
+ * Not thread safe.
+ */
+public class NodeHashFilter {
+    private static final long MAGIC         = 0x4E6F646548617332L;  // "NodeHas2"
+    private static final int  BitsPerEntry  = 10;
+    private static final int  NumHashes     = 7;
+    private static final long MinBits       = 1L<<16;
+    private static final long MaxBits       = 1L<<36;
+
+    // Segments, oldest first. New entries go into the last segment.
+    private final List<Segment> segments;
+    private long count;
+
+    private static class Segment {
+        final long[] bits;
+        final long mask;
+        long count;
+
+        Segment(long[] bits, long count) {
+            this.bits = bits;
+            this.mask = (long)bits.length * Long.SIZE - 1;
+            this.count = count;
+        }
+
+        long capacity() {
+            return (long)bits.length * Long.SIZE / BitsPerEntry;
+        }
+
+        void add(long h1, long h2) {
+            for ( int i = 0 ; i < NumHashes ; i++ ) {
+                long b = (h1 + i * h2) & mask;
+                bits[(int)(b >>> 6)] |= (1L << b);
+            }
+            count++;
+        }
+
+        boolean mightContain(long h1, long h2) {
+            for ( int i = 0 ; i < NumHashes ; i++ ) {
+                long b = (h1 + i * h2) & mask;
+                if ( (bits[(int)(b >>> 6)] & (1L << b)) == 0 )
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /** Create a filter for about {@code expectedEntries} entries. */
+    public static NodeHashFilter create(long expectedEntries) {
+        long x = Math.max(MinBits, expectedEntries * BitsPerEntry);
+        long numBits = Math.min(MaxBits, Long.highestOneBit(x - 1) << 1);
+        List<Segment> segments = new ArrayList<>();
+        segments.add(new Segment(new long[(int)(numBits / Long.SIZE)], 0));
+        return new NodeHashFilter(segments);
+    }
+
+    private NodeHashFilter(List<Segment> segments) {
+        this.segments = segments;
+        this.count = 0;
+        for ( Segment seg : segments )
+            count += seg.count;
+    }
+
+    /** Add a node hash. */
+    public void add(byte[] hash) {
+        Segment seg = segments.get(segments.size()-1);
+        if ( seg.count >= seg.capacity() && (long)seg.bits.length * Long.SIZE < MaxBits )
+            // Full : grow.
+            segments.add(seg = new Segment(new long[2 * seg.bits.length], 0));
+        seg.add(Bytes.getLong(hash, 0), Bytes.getLong(hash, 8) | 1);
+        count++;
+    }
+
+    /** Return false if the node hash has definitely not been added. */
+    public boolean mightContain(byte[] hash) {
+        long h1 = Bytes.getLong(hash, 0);
+        long h2 = Bytes.getLong(hash, 8) | 1;
+        // Newest first - the largest segment.
+        for ( int i = segments.size()-1 ; i >= 0 ; i-- ) {
+            if ( segments.get(i).mightContain(h1, h2) )
+                return true;
+        }
+        return false;
+    }
+
+    /** Number of entries added. */
+    public long count() {
+        return count;
+    }
+
+    /** Number of entries the filter is sized for, including any growth. */
+    public long capacity() {
+        long x = 0;
+        for ( Segment seg : segments )
+            x += seg.capacity();
+        return x;
+    }
+
+    /** Whether the filter has grown since it was created. */
+    public boolean isGrown() {
+        return segments.size() > 1;
+    }
+
+    /**
+     * Write the filter to a file. The file records the length of the node data and
+     * the size of the node index so that {@link #read} can tell if the file is out of
+     * date.
+     */
+    public void write(Path path, long dataLength, long indexSize) throws IOException {
+        try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path))) ) {
+            out.writeLong(MAGIC);
+            out.writeLong(dataLength);
+            out.writeLong(indexSize);
+            out.writeInt(segments.size());
+            for ( Segment seg : segments ) {
+                out.writeInt(seg.bits.length);
+                out.writeLong(seg.count);
+                for ( long x : seg.bits )
+                    out.writeLong(x);
+            }
+        }
+    }
+
+    /**
+     * Read a filter from a file written by {@link #write}. Return null if the file was
+     * written for different node data length or node index size.
+     */
+    public static NodeHashFilter read(Path path, long dataLength, long indexSize) throws IOException {
+        try ( DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))) ) {
+            if ( in.readLong() != MAGIC )
+                throw new IOException("Not a node hash filter: "+path);
+            if ( in.readLong() != dataLength || in.readLong() != indexSize )
+                return null;
+            int numSegments = in.readInt();
+            if ( numSegments <= 0 )
+                throw new IOException("Bad node hash filter segment count: "+numSegments);
+            List<Segment> segments = new ArrayList<>(numSegments);
+            for ( int j = 0 ; j < numSegments ; j++ ) {
+                int len = in.readInt();
+                long count = in.readLong();
+                if ( len <= 0 || Integer.bitCount(len) != 1 )
+                    throw new IOException("Bad node hash filter size: "+len);
+                long[] bits = new long[len];
+                for ( int i = 0 ; i < len ; i++ )
+                    bits[i] = in.readLong();
+                segments.add(new Segment(bits, count));
+            }
+            return new NodeHashFilter(segments);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NodeHashFilter[count=%d, capacity=%d, segments=%d]", count, capacity(), segments.size());
+    }
+}
@@ -61,14 +61,21 @@ public class NodeTableCache implements NodeTable, TransactionListener {
     // not-present cache is only a speed-up and does not have to be correct
     // for missing nodes (it can't have entries for nodes that do exist in visible
     // data).
+    //
+    // The optional off-heap cache is a second level, looked at when there is a miss
+    // in the on-heap caches. It is not buffered so only entries of committed data are
+    // put in it: by readers and not by the writer.
 
     private ThreadBufferingCache<Node, NodeId> node2id_Cache = null;
     private ThreadBufferingCache<NodeId, Node> id2node_Cache = null;
 
     // A small cache of "known unknowns" to speed up searching for impossible things.
     private Cache<Node, Object> notPresent    = null;
+    private NodeCacheOffHeap    offHeap       = null;
     private NodeTable           baseTable;
     private final Object        lock          = new Object();
+    // The base table reads nodes without locking.
+    private final boolean       concurrentBaseRead;
     private volatile Thread     writingThread;
 
     /** Build a node table cache, based on the node/nodeIds setting in params. */
@@ -78,20 +85,33 @@ public class NodeTableCache implements NodeTable, TransactionListener {
         int idToNodeCacheSize   = isData ? params.getNodeId2NodeCacheSize() : params.getPrefixNodeId2NodeCacheSize();
         int missCacheSize       = isData ? params.getNodeMissCacheSize()    : params.getPrefixNodeMissCacheSize();
         return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, missCacheSize,
-                params.getNodeCacheInitialCapacityFactor());
+                params.getNodeCacheInitialCapacityFactor(), params.getNodeCacheOffHeapSize());
     }
 
     /** Build a node table cache. */
     public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize,
                                    double nodeCacheInitialCapacityFactor) {
+        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, nodeCacheInitialCapacityFactor, 0);
+    }
+
+    /**
+     * Build a node table cache, with an off-heap cache of {@code offHeapSize} bytes
+     * if that is greater than zero.
+     */
+    public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize,
+                                   double nodeCacheInitialCapacityFactor, long offHeapSize) {
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
             return nodeTable;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, nodeCacheInitialCapacityFactor);
+        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, nodeCacheInitialCapacityFactor,
+                                  offHeapSize);
     }
 
     private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize,
-                           double nodeCacheInitialCapacityFactor) {
+                           double nodeCacheInitialCapacityFactor, long offHeapSize) {
         this.baseTable = baseTable;
+        this.concurrentBaseRead = ( baseTable instanceof NodeTableNative nt ) && nt.isConcurrentRead();
+        if ( offHeapSize > 0 )
+            offHeap = new NodeCacheOffHeap(offHeapSize);
         if ( nodeToIdCacheSize > 0 )
             node2id_Cache = createCache("nodeToId", nodeToIdCacheSize, nodeCacheInitialCapacityFactor, 1000);
         if ( idToNodeCacheSize > 0 )
@@ -124,6 +144,11 @@ public class NodeTableCache implements NodeTable, TransactionListener {
         return getNodeIdForNodeCache(node) != null;
     }
 
+    /** The off-heap cache, or null if there isn't one. */
+    public NodeCacheOffHeap getOffHeapCache() {
+        return offHeap;
+    }
+
     // ---- Cache access
 
     @Override
@@ -201,6 +226,24 @@ public class NodeTableCache implements NodeTable, TransactionListener {
         Node n = cacheLookup(id);
         if ( n != null )
             return n;
+        // Off-heap cache access is thread-safe.
+        n = offHeapLookup(id);
+        if ( n != null ) {
+            synchronized (lock) {
+                cacheUpdate(n, id);
+            }
+            return n;
+        }
+
+        if ( concurrentBaseRead ) {
+            // Read outside the lock; the node for a NodeId does not change.
+            n = baseTable.getNodeForNodeId(id);
+            synchronized (lock) {
+                cacheUpdate(n, id);
+                offHeapUpdate(n, id);
+            }
+            return n;
+        }
 
         synchronized (lock) {
             // Lock to update two caches consistently.
@@ -211,6 +254,7 @@ public class NodeTableCache implements NodeTable, TransactionListener {
 
             n = baseTable.getNodeForNodeId(id);
             cacheUpdate(n, id);
+            offHeapUpdate(n, id);
             return n;
         }
     }
@@ -224,6 +268,13 @@ public class NodeTableCache implements NodeTable, TransactionListener {
         NodeId nodeId = cacheLookup(node);
         if ( nodeId != null )
             return nodeId;
+        nodeId = offHeapLookup(node);
+        if ( nodeId != null ) {
+            synchronized (lock) {
+                cacheUpdate(node, nodeId);
+            }
+            return nodeId;
+        }
         synchronized (lock) {
             // Update two caches inside synchronized.
             // Check still valid.
@@ -242,6 +293,7 @@ public class NodeTableCache implements NodeTable, TransactionListener {
             }
             // Ensure caches have it. Includes recording "no such node"
             cacheUpdate(node, nodeId);
+            offHeapUpdate(node, nodeId);
             return nodeId;
         }
     }
@@ -309,6 +361,33 @@ public class NodeTableCache implements NodeTable, TransactionListener {
             notPresent.remove(node);
     }
 
+    private Node offHeapLookup(NodeId id) {
+        if ( offHeap == null )
+            return null;
+        return offHeap.getNode(id);
+    }
+
+    private NodeId offHeapLookup(Node node) {
+        if ( offHeap == null )
+            return null;
+        return offHeap.getNodeId(node);
+    }
+
+    /**
+     * Update the off-heap cache. The writer does not update the cache because the
+     * node may be new in the transaction and the transaction may abort.
+     */
+    private void offHeapUpdate(Node node, NodeId id) {
+        if ( offHeap == null || node == null )
+            return;
+        if ( NodeId.isDoesNotExist(id) || id == NodeId.NodeIdAny )
+            return;
+        if ( writingThread == Thread.currentThread() )
+            return;
+        offHeap.putNode(id, node);
+        offHeap.putNodeId(node, id);
+    }
+
     // A top-level transaction can update the not-present cache.
     // It is either
     // - a write transaction or
@@ -394,6 +473,7 @@ public class NodeTableCache implements NodeTable, TransactionListener {
         node2id_Cache = null;
         id2node_Cache = null;
         notPresent = null;
+        offHeap = null;
         baseTable = null;
         writingThread = null;
     }
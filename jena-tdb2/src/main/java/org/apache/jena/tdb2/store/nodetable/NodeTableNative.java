@@ -18,14 +18,19 @@
 
 package org.apache.jena.tdb2.store.nodetable;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Function;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.Pair;
+import org.apache.jena.atlas.logging.FmtLog;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.index.Index;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
 import org.apache.jena.graph.Node;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.lib.NodeLib;
@@ -35,14 +40,36 @@ import org.apache.jena.tdb2.store.NodeIdFactory;
 
 /** A framework for a NodeTable based on native storage (string file and an index).
  *  This class manages the index, and delegates the node storage.
+ *  <p>
+ *  Optionally, a {@link NodeHashFilter} of the node hashes in the index is kept
+ *  so that looking up a node that is not in the table does not search the index.
+ *  The filter is read from a file written when the node table was last closed, if
+ *  that file is up to date, or built from the index. This is done by
+ *  {@link #initHashFilter} when the node table is opened, or else when the filter
+ *  is first needed.
  */
 public abstract class NodeTableNative implements NodeTable
 {
     protected Index nodeHashToId;        // hash -> int
     private boolean syncNeeded = false;
 
+    private final boolean useHashFilter;
+    private final String hashFilterFile;
+    private NodeHashFilter hashFilter = null;
+
     public NodeTableNative(Index nodeToId) {
+        this(nodeToId, false, null);
+    }
+
+    /**
+     * @param nodeToId The node hash index.
+     * @param useHashFilter Whether to keep a {@link NodeHashFilter}.
+     * @param hashFilterFile File for the filter between uses of the node table, or null.
+     */
+    public NodeTableNative(Index nodeToId, boolean useHashFilter, String hashFilterFile) {
         this.nodeHashToId = nodeToId;
+        this.useHashFilter = useHashFilter;
+        this.hashFilterFile = hashFilterFile;
     }
     // ---- Public interface for Node <==> NodeId
 
@@ -98,8 +125,11 @@ public abstract class NodeTableNative implements NodeTable
             return null;
         if ( NodeId.isAny(id) )
             return null;
+        Node n = readNodeFromTableConcurrent(id);
+        if ( n != null )
+            return n;
         synchronized (this) {
-            Node n = readNodeFromTable(id);
+            n = readNodeFromTable(id);
             return n;
         }
     }
@@ -126,13 +156,16 @@ public abstract class NodeTableNative implements NodeTable
 
         synchronized (this)  // Pair to readNodeFromTable.
         {
-            // Key and value, or null
-            Record r2 = nodeHashToId.find(r);
-            if ( r2 != null )
-            {
-                // Found.  Get the NodeId.
-                NodeId id = NodeIdFactory.get(r2.getValue(), 0);
-                return id;
+            // Without a filter, or if the filter says it may be there, look in the index.
+            if ( ! useHashFilter || getHashFilter().mightContain(k) ) {
+                // Key and value, or null
+                Record r2 = nodeHashToId.find(r);
+                if ( r2 != null )
+                {
+                    // Found.  Get the NodeId.
+                    NodeId id = NodeIdFactory.get(r2.getValue(), 0);
+                    return id;
+                }
             }
 
             // Not found.
@@ -146,6 +179,8 @@ public abstract class NodeTableNative implements NodeTable
             // r.value := id bytes;
             NodeIdFactory.set(id, r.getValue(), 0);
 
+            if ( useHashFilter )
+                hashFilter.add(k);
             // Put in index - may appear because of concurrency
             if ( ! nodeHashToId.insert(r) )
                 throw new TDBException("NodeTableBase::nodeToId - record mysteriously appeared");
@@ -153,6 +188,91 @@ public abstract class NodeTableNative implements NodeTable
         }
     }
 
+    /**
+     * Load or build the node hash filter, if one is used. This may scan the node
+     * index, and it does not hold the node table lock while doing so. Call in a
+     * transaction, after recovery and before the node table is used; otherwise the
+     * filter is loaded or built on first use.
+     */
+    public void initHashFilter() {
+        if ( ! useHashFilter )
+            return;
+        NodeHashFilter filter = loadOrBuildHashFilter();
+        synchronized (this) {
+            if ( hashFilter == null )
+                hashFilter = filter;
+        }
+    }
+
+    // The filter, loaded or built on first use if not by initHashFilter.
+    // Call inside synchronized(this).
+    // A writer always uses the filter before adding a node, so the filter is
+    // built before any node is added and no added node is missed.
+    /*package*/ NodeHashFilter getHashFilter() {
+        if ( hashFilter == null )
+            hashFilter = loadOrBuildHashFilter();
+        return hashFilter;
+    }
+
+    private NodeHashFilter loadOrBuildHashFilter() {
+        if ( hashFilterFile != null ) {
+            Path path = Path.of(hashFilterFile);
+            if ( Files.exists(path) ) {
+                try {
+                    NodeHashFilter filter = NodeHashFilter.read(path, dataLength(), indexSize());
+                    // The file is only valid until the node table changes.
+                    // It is written again on close; after a crash, the filter is rebuilt.
+                    Files.delete(path);
+                    // Not for this node data and index, or grown and better rebuilt at one size.
+                    if ( filter != null && ! filter.isGrown() )
+                        return filter;
+                } catch (IOException ex) {
+                    FmtLog.warn(NodeTableNative.class, "Failed to read node hash filter '%s': %s", hashFilterFile, ex.getMessage());
+                    deleteHashFilterFile();
+                }
+            }
+        }
+        long count = nodeHashToId.size();
+        NodeHashFilter filter = NodeHashFilter.create(2 * count);
+        nodeHashToId.iterator().forEachRemaining(record->filter.add(record.getKey()));
+        return filter;
+    }
+
+    /**
+     * The size of the node index, for checking a saved node hash filter is up to date,
+     * or -1 if not known. Nodes are only added, and each commit that adds nodes
+     * allocates new index blocks, so this is the number of record blocks.
+     */
+    private long indexSize() {
+        if ( nodeHashToId instanceof BPlusTree bpt )
+            return bpt.getStateManager().getRecordsBlocksLimit();
+        return -1;
+    }
+
+    private void deleteHashFilterFile() {
+        try {
+            Files.deleteIfExists(Path.of(hashFilterFile));
+        } catch (IOException ex) {
+            throw new TDBException("Failed to delete node hash filter: "+hashFilterFile, ex);
+        }
+    }
+
+    private void saveHashFilter() {
+        if ( hashFilter == null || hashFilterFile == null )
+            return;
+        long dataLength = dataLength();
+        long indexSize = indexSize();
+        if ( dataLength < 0 || indexSize < 0 )
+            // Can't be checked when read.
+            return;
+        try {
+            hashFilter.write(Path.of(hashFilterFile), dataLength, indexSize);
+        } catch (IOException ex) {
+            FmtLog.warn(NodeTableNative.class, "Failed to write node hash filter '%s': %s", hashFilterFile, ex.getMessage());
+            deleteHashFilterFile();
+        }
+    }
+
     // -------- NodeId<->Node
     // Synchronization:
     //   write: in accessIndex
@@ -161,6 +281,24 @@ public abstract class NodeTableNative implements NodeTable
 
     abstract protected NodeId writeNodeToTable(Node node);
     abstract protected Node readNodeFromTable(NodeId id);
+
+    /**
+     * The length of the node data, for checking a saved node hash filter is up to
+     * date, or -1 if not known.
+     */
+    protected long dataLength() { return -1; }
+
+    /**
+     * Read a node without holding the node table lock, or return null if the node
+     * can only be read with {@link #readNodeFromTable}.
+     */
+    protected Node readNodeFromTableConcurrent(NodeId id) { return null; }
+
+    /**
+     * Whether this node table can read some nodes without taking a lock, so callers
+     * need not serialize calls of {@link #getNodeForNodeId}.
+     */
+    public boolean isConcurrentRead() { return false; }
     abstract protected void syncSub();
     abstract protected void closeSub();
 
@@ -170,6 +308,7 @@ public abstract class NodeTableNative implements NodeTable
     public synchronized void close() {
         // Close once. This may be shared (e.g. triples table and quads table).
         if ( nodeHashToId != null ) {
+            saveHashFilter();
             nodeHashToId.close();
             closeSub();
             nodeHashToId = null;
@@ -18,9 +18,13 @@
 
 package org.apache.jena.tdb2.store.nodetable;
 
+import java.util.function.LongSupplier;
+
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.dboe.base.file.BinaryDataFile;
+import org.apache.jena.dboe.base.file.MappedReadFile;
 import org.apache.jena.dboe.index.Index;
+import org.apache.jena.dboe.trans.data.TransBinaryDataFile;
 import org.apache.jena.dboe.transaction.txn.TransactionException;
 import org.apache.jena.graph.Node;
 import org.apache.jena.riot.thrift.RiotThriftException;
@@ -40,9 +44,35 @@ public class NodeTableTRDF extends NodeTableNative {
     private final BinaryDataFile diskFile;
     private final TReadAppendFileTransport transport;
     private final TProtocol protocol;
+    // Optional lock-free read path.
+    private final MappedReadFile mappedFile;
+    private final LongSupplier stableLength;
 
     public NodeTableTRDF(Index nodeToId, BinaryDataFile objectFile) {
-        super(nodeToId);
+        this(nodeToId, objectFile, false, null);
+    }
+
+    /**
+     * A node table with the choice of keeping a {@link NodeHashFilter}.
+     * See {@link NodeTableNative#NodeTableNative(Index, boolean, String)}.
+     */
+    public NodeTableTRDF(Index nodeToId, BinaryDataFile objectFile, boolean useHashFilter, String hashFilterFile) {
+        this(nodeToId, objectFile, useHashFilter, hashFilterFile, null, null);
+    }
+
+    /**
+     * A node table that reads nodes from a memory mapped view of the data file, without
+     * locking, when the node is in the stable part of the file. The stable part, given by
+     * {@code stableLength}, is the part that is not changed or truncated, such as
+     * committed data. Other nodes are read through the {@code objectFile}.
+     */
+    public NodeTableTRDF(Index nodeToId, BinaryDataFile objectFile, boolean useHashFilter, String hashFilterFile,
+                         MappedReadFile mappedFile, LongSupplier stableLength) {
+        super(nodeToId, useHashFilter, hashFilterFile);
+        if ( (mappedFile == null) != (stableLength == null) )
+            throw new IllegalArgumentException("NodeTableTRDF: mapped file and stable length must both be set or both be null");
+        this.mappedFile = mappedFile;
+        this.stableLength = stableLength;
         try {
             this.diskFile = objectFile;
             transport = new TReadAppendFileTransport(diskFile);
@@ -92,6 +122,43 @@ public class NodeTableTRDF extends NodeTableNative {
         }
     }
 
+    @Override
+    protected Node readNodeFromTableConcurrent(NodeId id) {
+        if ( mappedFile == null )
+            return null;
+        long x = id.getPtrLocation();
+        // A node starting in the stable part is wholly in the stable part.
+        long limit = stableLength.getAsLong();
+        if ( x >= limit )
+            return null;
+        try {
+            TProtocol readProtocol = TRDF.protocol(new TMappedReadTransport(mappedFile, x, limit));
+            RDF_Term term = new RDF_Term();
+            term.read(readProtocol);
+            return ThriftConvert.convert(term);
+        }
+        catch (TException ex) {
+            throw new TDBException("NodeTableTRDF/Read", ex);
+        }
+        catch (RiotThriftException ex) {
+            Log.error(this, "Bad encoding: NodeId = "+id);
+            throw ex;
+        }
+    }
+
+    @Override
+    protected long dataLength() {
+        // Also called on close, outside a transaction.
+        if ( diskFile instanceof TransBinaryDataFile transBinFile )
+            return transBinFile.getCommittedLength();
+        return -1;
+    }
+
+    @Override
+    public boolean isConcurrentRead() {
+        return mappedFile != null;
+    }
+
     @Override
     protected void syncSub() {
         try { transport.flush(); }
@@ -104,6 +171,8 @@ public class NodeTableTRDF extends NodeTableNative {
             try { transport.close(); }
             catch (Exception ex) { throw new TDBException("NodeTableTRDF", ex); }
         }
+        if ( mappedFile != null )
+            mappedFile.close();
     }
 
     public Index getIndex()             { return nodeHashToId; }
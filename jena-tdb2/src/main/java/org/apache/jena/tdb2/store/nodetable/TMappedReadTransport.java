@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb2.store.nodetable;
+
+import org.apache.commons.lang3.NotImplementedException;
+import org.apache.jena.dboe.base.file.MappedReadFile;
+import org.apache.thrift.TConfiguration;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+/** A read-only transport for one read, from a position in a {@link MappedReadFile}.
+ *  <p>
+ *  Not shared between threads: create one for each read.
+ */
+class TMappedReadTransport extends TTransport {
+    private final MappedReadFile file;
+    private final long limit;
+    private long readPosn;
+
+    TMappedReadTransport(MappedReadFile file, long posn, long limit) {
+        this.file = file;
+        this.readPosn = posn;
+        this.limit = limit;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return file.isOpen();
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public int read(byte[] buf, int off, int len) {
+        int x = file.read(readPosn, buf, off, len, limit);
+        if ( x > 0 )
+            readPosn += x;
+        return x;
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) {
+        throw new UnsupportedOperationException("TMappedReadTransport.write");
+    }
+
+    @Override
+    public TConfiguration getConfiguration() {
+        throw new NotImplementedException("TMappedReadTransport.getConfiguration");
+    }
+
+    @Override
+    public void updateKnownMessageSize(long size) throws TTransportException {
+    }
+
+    @Override
+    public void checkReadBytesAvailable(long numBytes) throws TTransportException {
+    }
+}
@@ -18,7 +18,9 @@
 
 package org.apache.jena.tdb2.store.nodetupletable;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.jena.atlas.lib.Closeable;
 import org.apache.jena.atlas.lib.Sync;
@@ -49,6 +51,17 @@ public interface NodeTupleTable extends Sync, Closeable
     /** Find by NodeId. */
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> ids);
 
+    /**
+     * Find by NodeId, for each of a list of patterns. The iterators are returned in the
+     * same order as the patterns. The default calls {@link #find(Tuple)} for each pattern.
+     */
+    public default List<Iterator<Tuple<NodeId>>> findBatch(List<Tuple<NodeId>> patterns) {
+        List<Iterator<Tuple<NodeId>>> results = new ArrayList<>(patterns.size());
+        for ( Tuple<NodeId> pattern : patterns )
+            results.add(find(pattern));
+        return results;
+    }
+
     /** Find all tuples */
     public Iterator<Tuple<NodeId>> findAll();
 
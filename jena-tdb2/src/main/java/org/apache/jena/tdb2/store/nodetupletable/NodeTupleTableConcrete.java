@@ -21,6 +21,7 @@ package org.apache.jena.tdb2.store.nodetupletable;
 import static java.lang.String.format;
 
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.tuple.Tuple;
@@ -168,6 +169,18 @@ public class NodeTupleTableConcrete implements NodeTupleTable
         } finally { finishRead(); }
     }
 
+    /** Find by NodeId, for each pattern. */
+    @Override
+    public List<Iterator<Tuple<NodeId>>> findBatch(List<Tuple<NodeId>> patterns)
+    {
+        try {
+            startRead();
+            List<Iterator<Tuple<NodeId>>> results = tupleTable.findBatch(patterns);
+            results.replaceAll(this::iteratorControl);
+            return results;
+        } finally { finishRead(); }
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> findAll()
     {
@@ -19,7 +19,11 @@
 package org.apache.jena.tdb2.store.tupletable;
 
 import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.apache.jena.atlas.lib.Closeable;
 import org.apache.jena.atlas.lib.Sync;
@@ -29,11 +33,11 @@ import org.apache.jena.tdb2.store.NodeId;
 
 public interface TupleIndex extends Sync, Closeable
 {
-    /** Insert a tuple */
-    public void add(Tuple<NodeId> tuple);
+    /** Insert a tuple. Return true if the index changed (the tuple was not already present). */
+    public boolean add(Tuple<NodeId> tuple);
 
-    /** Delete a tuple */
-    public void delete(Tuple<NodeId> tuple);
+    /** Delete a tuple. Return true if the index changed (the tuple was present). */
+    public boolean delete(Tuple<NodeId> tuple);
 
     /** Insert tuples */
     public void addAll(Collection<Tuple<NodeId>> tuples);
@@ -58,6 +62,54 @@ public interface TupleIndex extends Sync, Closeable
     /** return an iterator of everything */
     public Iterator<Tuple<NodeId>> all();
 
+    /**
+     * Find all matching tuples, split into at most {@code maxParts} parts which can be
+     * read independently, for example on different threads. Each supplier creates its
+     * iterator when called. Together, the parts return the same tuples as
+     * {@link #find}. The default is not to split.
+     */
+    public default List<Supplier<Iterator<Tuple<NodeId>>>> findPartitioned(Tuple<NodeId> pattern, int maxParts) {
+        return List.of(() -> find(pattern));
+    }
+
+    /**
+     * Find the matching tuples for each of a list of patterns, for example the probes
+     * of an index join. The iterators are returned in the same order as the patterns.
+     * The default calls {@link #find} for each pattern.
+     */
+    public default List<Iterator<Tuple<NodeId>>> findBatch(List<Tuple<NodeId>> patterns) {
+        List<Iterator<Tuple<NodeId>>> results = new ArrayList<>(patterns.size());
+        for ( Tuple<NodeId> pattern : patterns )
+            results.add(find(pattern));
+        return results;
+    }
+
+    /**
+     * Return a function to find the tuples matching a pattern in order of the NodeId in
+     * {@code slot} (natural order), for example for a merge join. The function returns
+     * the matching tuples with a NodeId in {@code slot} at or after its argument, or all
+     * the matching tuples for null; it must be called with ascending arguments.
+     * <p>
+     * Returns null if this index can not do this; the index order must start with the
+     * slots set in the pattern, followed by {@code slot}. The default is null.
+     */
+    public default Function<NodeId, Iterator<Tuple<NodeId>>> findOrdered(Tuple<NodeId> pattern, int slot) {
+        return null;
+    }
+
+    /**
+     * Return a {@link TupleSeek} to move through the distinct NodeIds in {@code slot}
+     * (natural order) of the tuples matching patterns with the same slots set as
+     * {@code pattern}, for example for a worst-case optimal join. The slots set in the
+     * pattern may come before or after {@code slot} in index order.
+     * <p>
+     * Returns null if this index can not do this; every slot before {@code slot} in the
+     * index order must be set in the pattern. The default is null.
+     */
+    public default TupleSeek seekOrdered(Tuple<NodeId> pattern, int slot) {
+        return null;
+    }
+
     /** Weight a pattern - specified in normal order (not index order).
      * Large numbers means better match. */
     public int weight(Tuple<NodeId> pattern);
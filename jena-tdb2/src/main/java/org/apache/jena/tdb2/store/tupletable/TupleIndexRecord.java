@@ -21,9 +21,14 @@ package org.apache.jena.tdb2.store.tupletable;
 import static java.lang.String.format;
 import static org.apache.jena.tdb2.sys.SystemTDB.SizeOfNodeId;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.tuple.Tuple;
@@ -32,6 +37,7 @@ import org.apache.jena.atlas.lib.tuple.TupleMap;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.base.record.RecordMapper;
+import org.apache.jena.dboe.index.RangeCursor;
 import org.apache.jena.dboe.index.RangeIndex;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.lib.TupleLib;
@@ -87,16 +93,16 @@ public class TupleIndexRecord extends TupleIndexBase
 
     /** Insert a tuple */
     @Override
-    protected void performAdd(Tuple<NodeId> tuple) {
+    protected boolean performAdd(Tuple<NodeId> tuple) {
         Record r = TupleLib.record(factory, tuple, tupleMap);
-        index.insert(r);
+        return index.insert(r);
     }
 
     /** Delete a tuple */
     @Override
-    protected void performDelete(Tuple<NodeId> tuple) {
+    protected boolean performDelete(Tuple<NodeId> tuple) {
         Record r = TupleLib.record(factory, tuple, tupleMap);
-        index.delete(r);
+        return index.delete(r);
     }
 
     /** Insert tuples */
@@ -241,6 +247,219 @@ public class TupleIndexRecord extends TupleIndexBase
         return tuples;
     }
 
+    /**
+     * Split the range scan for the pattern at keys from the upper levels of the index.
+     * Patterns with all slots fixed are not split.
+     */
+    @Override
+    public List<Supplier<Iterator<Tuple<NodeId>>>> findPartitioned(Tuple<NodeId> patternNaturalOrder, int maxParts) {
+        Tuple<NodeId> pattern = tupleMap.map(patternNaturalOrder);
+        int leadingIdx = -1;
+        boolean partialScan = false;
+        for ( int i = 0; i < pattern.len() ; i++ ) {
+            if ( NodeId.isAny(pattern.get(i)) )
+                continue;
+            if ( leadingIdx == i-1 )
+                leadingIdx = i;
+            else
+                partialScan = true;
+        }
+        if ( maxParts <= 1 || leadingIdx == pattern.len()-1 )
+            return List.of(() -> find(patternNaturalOrder));
+
+        Record minRec = null;
+        Record maxRec = null;
+        if ( leadingIdx >= 0 ) {
+            minRec = factory.createKeyOnly();
+            maxRec = factory.createKeyOnly();
+            for ( int i = 0; i <= leadingIdx ; i++ ) {
+                NodeIdFactory.set(pattern.get(i), minRec.getKey(), i*SizeOfNodeId);
+                NodeIdFactory.set(pattern.get(i), maxRec.getKey(), i*SizeOfNodeId);
+            }
+            NodeIdFactory.setNext(pattern.get(leadingIdx), maxRec.getKey(), leadingIdx*SizeOfNodeId);
+        }
+
+        List<Record> splitKeys = index.splitKeys(minRec, maxRec, maxParts-1);
+        if ( splitKeys.isEmpty() )
+            return List.of(() -> find(patternNaturalOrder));
+
+        boolean filterNeeded = partialScan;
+        List<Supplier<Iterator<Tuple<NodeId>>>> parts = new ArrayList<>(splitKeys.size()+1);
+        Record low = minRec;
+        for ( int i = 0 ; i <= splitKeys.size() ; i++ ) {
+            Record from = low;
+            Record to = ( i < splitKeys.size() ) ? splitKeys.get(i) : maxRec;
+            parts.add(() -> {
+                Iterator<Tuple<NodeId>> tuples = index.iterator(from, to, recordMapper);
+                return filterNeeded ? scan(tuples, patternNaturalOrder) : tuples;
+            });
+            low = to;
+        }
+        return parts;
+    }
+
+    /**
+     * Find the tuples for each pattern using one {@link RangeCursor} on the index, with
+     * the lookups done in key order. Patterns that need a full or partial scan of the
+     * index are done with {@link #find}.
+     */
+    @Override
+    public List<Iterator<Tuple<NodeId>>> findBatch(List<Tuple<NodeId>> patternsNaturalOrder) {
+        int N = patternsNaturalOrder.size();
+        Record[] minRecs = new Record[N];
+        Record[] maxRecs = new Record[N];
+        List<Integer> order = new ArrayList<>(N);
+        for ( int k = 0 ; k < N ; k++ ) {
+            Tuple<NodeId> pattern = tupleMap.map(patternsNaturalOrder.get(k));
+            int leadingIdx = -1;
+            boolean prefix = true;
+            for ( int i = 0; i < pattern.len() ; i++ ) {
+                if ( NodeId.isAny(pattern.get(i)) )
+                    continue;
+                if ( leadingIdx == i-1 )
+                    leadingIdx = i;
+                else
+                    prefix = false;
+            }
+            if ( leadingIdx < 0 || !prefix )
+                continue;
+            Record minRec = factory.createKeyOnly();
+            Record maxRec = factory.createKeyOnly();
+            for ( int i = 0; i <= leadingIdx ; i++ ) {
+                NodeIdFactory.set(pattern.get(i), minRec.getKey(), i*SizeOfNodeId);
+                NodeIdFactory.set(pattern.get(i), maxRec.getKey(), i*SizeOfNodeId);
+            }
+            NodeIdFactory.setNext(pattern.get(leadingIdx), maxRec.getKey(), leadingIdx*SizeOfNodeId);
+            minRecs[k] = minRec;
+            maxRecs[k] = maxRec;
+            order.add(k);
+        }
+
+        order.sort((k1, k2) -> Record.compareByKey(minRecs[k1], minRecs[k2]));
+        List<Iterator<Tuple<NodeId>>> results = new ArrayList<>(Collections.nCopies(N, null));
+        RangeCursor<Tuple<NodeId>> cursor = index.rangeCursor(recordMapper);
+        for ( int k : order )
+            results.set(k, cursor.iterator(minRecs[k], maxRecs[k]));
+        for ( int k = 0 ; k < N ; k++ ) {
+            if ( results.get(k) == null )
+                results.set(k, find(patternsNaturalOrder.get(k)));
+        }
+        return results;
+    }
+
+    @Override
+    public Function<NodeId, Iterator<Tuple<NodeId>>> findOrdered(Tuple<NodeId> patternNaturalOrder, int slot) {
+        Tuple<NodeId> pattern = tupleMap.map(patternNaturalOrder);
+        // Position of the slot in index order.
+        int slotIdx = tupleMap.unmapIdx(slot);
+        for ( int i = 0; i < pattern.len() ; i++ ) {
+            boolean isSet = ! NodeId.isAny(pattern.get(i));
+            if ( isSet != ( i < slotIdx ) )
+                return null;
+        }
+        Record prefixRec = factory.createKeyOnly();
+        Record maxRec = null;
+        if ( slotIdx > 0 ) {
+            maxRec = factory.createKeyOnly();
+            for ( int i = 0; i < slotIdx ; i++ ) {
+                NodeIdFactory.set(pattern.get(i), prefixRec.getKey(), i*SizeOfNodeId);
+                NodeIdFactory.set(pattern.get(i), maxRec.getKey(), i*SizeOfNodeId);
+            }
+            NodeIdFactory.setNext(pattern.get(slotIdx-1), maxRec.getKey(), (slotIdx-1)*SizeOfNodeId);
+        }
+        Record maxRecord = maxRec;
+        RangeCursor<Tuple<NodeId>> cursor = index.rangeCursor(recordMapper);
+        return from -> {
+            if ( from == null )
+                return cursor.iterator(prefixRec, maxRecord);
+            Record minRec = factory.createKeyOnly();
+            System.arraycopy(prefixRec.getKey(), 0, minRec.getKey(), 0, slotIdx*SizeOfNodeId);
+            NodeIdFactory.set(from, minRec.getKey(), slotIdx*SizeOfNodeId);
+            return cursor.iterator(minRec, maxRecord);
+        };
+    }
+
+    @Override
+    public TupleSeek seekOrdered(Tuple<NodeId> patternNaturalOrder, int slot) {
+        Tuple<NodeId> template = tupleMap.map(patternNaturalOrder);
+        // Position of the slot in index order.
+        int slotIdx = tupleMap.unmapIdx(slot);
+        if ( ! NodeId.isAny(template.get(slotIdx)) )
+            return null;
+        for ( int i = 0; i < slotIdx ; i++ ) {
+            if ( NodeId.isAny(template.get(i)) )
+                return null;
+        }
+        // One cursor for all the seeks.
+        RangeCursor<Tuple<NodeId>> cursor = index.rangeCursor(recordMapper);
+        return new TupleSeek() {
+            @Override
+            public Tuple<NodeId> seek(Tuple<NodeId> pattern, NodeId nodeId) {
+                return seekOrdered(cursor, tupleMap.map(pattern), slotIdx, nodeId, false);
+            }
+
+            @Override
+            public Tuple<NodeId> seekAfter(Tuple<NodeId> pattern, NodeId nodeId) {
+                return seekOrdered(cursor, tupleMap.map(pattern), slotIdx, nodeId, true);
+            }
+        };
+    }
+
+    private Tuple<NodeId> seekOrdered(RangeCursor<Tuple<NodeId>> cursor, Tuple<NodeId> pattern, int slotIdx, NodeId nodeId, boolean after) {
+        Record minRec = factory.createKeyOnly();
+        for ( int i = 0; i < slotIdx ; i++ )
+            NodeIdFactory.set(pattern.get(i), minRec.getKey(), i*SizeOfNodeId);
+        if ( nodeId != null ) {
+            if ( after )
+                NodeIdFactory.setNext(nodeId, minRec.getKey(), slotIdx*SizeOfNodeId);
+            else
+                NodeIdFactory.set(nodeId, minRec.getKey(), slotIdx*SizeOfNodeId);
+        }
+        Record maxRec = null;
+        if ( slotIdx > 0 ) {
+            maxRec = factory.createKeyOnly();
+            System.arraycopy(minRec.getKey(), 0, maxRec.getKey(), 0, slotIdx*SizeOfNodeId);
+            NodeIdFactory.setNext(pattern.get(slotIdx-1), maxRec.getKey(), (slotIdx-1)*SizeOfNodeId);
+        }
+        return seekMatch(cursor, pattern, slotIdx, minRec, maxRec);
+    }
+
+    /**
+     * First tuple (natural order) at or after {@code minRec} that matches the slots set
+     * in the pattern (index order) after {@code slotIdx}. On a mismatch, seek to the
+     * next record that could match rather than reading the records in between.
+     */
+    private Tuple<NodeId> seekMatch(RangeCursor<Tuple<NodeId>> cursor, Tuple<NodeId> pattern, int slotIdx, Record minRec, Record maxRec) {
+        for (;;) {
+            Iterator<Tuple<NodeId>> iter = cursor.iterator(minRec, maxRec);
+            if ( ! iter.hasNext() )
+                return null;
+            Tuple<NodeId> tuple = iter.next();
+            Tuple<NodeId> t = tupleMap.map(tuple);
+            int j = slotIdx+1;
+            while ( j < tupleLength && ( NodeId.isAny(pattern.get(j)) || pattern.get(j).equals(t.get(j)) ) )
+                j++;
+            if ( j == tupleLength )
+                return tuple;
+            minRec = factory.createKeyOnly();
+            byte[] key = minRec.getKey();
+            if ( NodeIdFactory.compareStored(t.get(j), pattern.get(j)) < 0 ) {
+                // Forward to the pattern value in slot j.
+                for ( int i = 0; i < j ; i++ )
+                    NodeIdFactory.set(t.get(i), key, i*SizeOfNodeId);
+                NodeIdFactory.set(pattern.get(j), key, j*SizeOfNodeId);
+            } else {
+                // Past it: move on the nearest free slot before j.
+                int i = j-1;
+                while ( i > slotIdx && ! NodeId.isAny(pattern.get(i)) )
+                    i--;
+                for ( int m = 0; m < i ; m++ )
+                    NodeIdFactory.set(t.get(m), key, m*SizeOfNodeId);
+                NodeIdFactory.setNext(t.get(i), key, i*SizeOfNodeId);
+            }
+        }
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all()
     {
@@ -20,6 +20,8 @@ package org.apache.jena.tdb2.store.tupletable;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
 
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleMap;
@@ -37,8 +39,8 @@ public class TupleIndexWrapper implements TupleIndex
     }
 
     @Override
-    public void add(Tuple<NodeId> tuple) {
-        index.add(tuple);
+    public boolean add(Tuple<NodeId> tuple) {
+        return index.add(tuple);
     }
 
     @Override
@@ -47,8 +49,8 @@ public class TupleIndexWrapper implements TupleIndex
     }
 
     @Override
-    public void delete(Tuple<NodeId> tuple) {
-        index.delete(tuple);
+    public boolean delete(Tuple<NodeId> tuple) {
+        return index.delete(tuple);
     }
 
     @Override
@@ -61,6 +63,21 @@ public class TupleIndexWrapper implements TupleIndex
         return index.find(pattern);
     }
 
+    @Override
+    public List<Iterator<Tuple<NodeId>>> findBatch(List<Tuple<NodeId>> patterns) {
+        return index.findBatch(patterns);
+    }
+
+    @Override
+    public Function<NodeId, Iterator<Tuple<NodeId>>> findOrdered(Tuple<NodeId> pattern, int slot) {
+        return index.findOrdered(pattern, slot);
+    }
+
+    @Override
+    public TupleSeek seekOrdered(Tuple<NodeId> pattern, int slot) {
+        return index.seekOrdered(pattern, slot);
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all() {
         return index.all();
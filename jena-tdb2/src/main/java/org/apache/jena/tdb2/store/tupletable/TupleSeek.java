@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.tupletable;
+
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.tdb2.store.NodeId;
+
+/**
+ * Move through the distinct NodeIds of one slot of the tuples matching a pattern, in
+ * index order, by seeking. The patterns must have the same slots set as the pattern
+ * given to {@link TupleIndex#seekOrdered}; the NodeIds in those slots can change from
+ * call to call.
+ */
+public interface TupleSeek {
+    /**
+     * Return the first tuple matching the pattern with a NodeId in the slot at or after
+     * {@code nodeId}, or the first matching tuple for null. Return null if there is none.
+     */
+    public Tuple<NodeId> seek(Tuple<NodeId> pattern, NodeId nodeId);
+
+    /**
+     * Return the first tuple matching the pattern with a NodeId in the slot after
+     * {@code nodeId}. Return null if there is none.
+     */
+    public Tuple<NodeId> seekAfter(Tuple<NodeId> pattern, NodeId nodeId);
+}
@@ -20,8 +20,11 @@ package org.apache.jena.tdb2.store.tupletable;
 
 import static java.lang.String.format;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.Closeable;
@@ -43,6 +46,7 @@ public class TupleTable implements Sync, Closeable
     private final TupleIndex   scanAllIndex;   // Use this index if a complete scan is needed.
     private final int tupleLen;
     private boolean syncNeeded = false;
+    private TupleTableListener listener = null;
 
     public TupleTable(int tupleLen, TupleIndex[] indexes)
     {
@@ -90,15 +94,33 @@ public class TupleTable implements Sync, Closeable
         // the indexes when the triple is already present.
         if ( tupleLen != t.len() )
             throw new TDBException(format("Mismatch: inserting tuple of length %d into a table of tuples of length %d", t.len(), tupleLen));
+        boolean changed = false;
         for ( int i = 0; i < indexes.length ; i++ ) {
             if ( indexes[i] == null ) continue;
-            indexes[i].add(t);
+            boolean b = indexes[i].add(t);
+            // The primary index decides whether the table changed.
+            if ( i == 0 )
+                changed = b;
             syncNeeded = true;
         }
+        if ( changed && listener != null )
+            listener.added(t);
     }
 
     /** Insert tuples */
     public void addAll(List<Tuple<NodeId>> t) {
+        if ( listener != null ) {
+            // The primary index finds the changes; the other indexes only need those.
+            List<Tuple<NodeId>> changes = changes(t, indexes[0]::add, "inserting");
+            for ( int i = 1; i < indexes.length ; i++ ) {
+                if ( indexes[i] == null ) continue;
+                indexes[i].addAll(changes);
+            }
+            syncNeeded = true;
+            if ( ! changes.isEmpty() )
+                listener.addedAll(changes);
+            return;
+        }
         // Parallel.
         for ( int i = 0; i < indexes.length ; i++ ) {
             if ( indexes[i] == null ) continue;
@@ -112,15 +134,30 @@ public class TupleTable implements Sync, Closeable
         if ( tupleLen != t.len() )
             throw new TDBException(format("Mismatch: deleting tuple of length %d from a table of tuples of length %d", t.len(), tupleLen));
 
-        for ( TupleIndex index : indexes ) {
-            if ( index == null )
-                continue;
-            index.delete( t );
+        boolean changed = false;
+        for ( int i = 0; i < indexes.length ; i++ ) {
+            if ( indexes[i] == null ) continue;
+            boolean b = indexes[i].delete(t);
+            if ( i == 0 )
+                changed = b;
         }
+        if ( changed && listener != null )
+            listener.deleted(t);
     }
 
     /** Delete tuples */
     public void deleteAll(List<Tuple<NodeId>> t) {
+        if ( listener != null ) {
+            List<Tuple<NodeId>> changes = changes(t, indexes[0]::delete, "deleting");
+            for ( int i = 1; i < indexes.length ; i++ ) {
+                if ( indexes[i] == null ) continue;
+                indexes[i].deleteAll(changes);
+            }
+            syncNeeded = true;
+            if ( ! changes.isEmpty() )
+                listener.deletedAll(changes);
+            return;
+        }
         // Parallel.
         for ( int i = 0; i < indexes.length ; i++ ) {
             if ( indexes[i] == null ) continue;
@@ -129,6 +166,18 @@ public class TupleTable implements Sync, Closeable
         }
     }
 
+    /** Apply the operation to each tuple and return the tuples for which it made a change. */
+    private List<Tuple<NodeId>> changes(List<Tuple<NodeId>> tuples, Predicate<Tuple<NodeId>> operation, String label) {
+        List<Tuple<NodeId>> changes = new ArrayList<>(tuples.size());
+        for ( Tuple<NodeId> t : tuples ) {
+            if ( tupleLen != t.len() )
+                throw new TDBException(format("Mismatch: %s tuple of length %d in a table of tuples of length %d", label, t.len(), tupleLen));
+            if ( operation.test(t) )
+                changes.add(t);
+        }
+        return changes;
+    }
+
     /** Find all matching tuples - a slot of NodeId.NodeIdAny means match any */
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> pattern) {
         if ( tupleLen != pattern.len() )
@@ -146,7 +195,56 @@ public class TupleTable implements Sync, Closeable
 
         if ( numSlots == 0 )
             return scanAllIndex.all();
+        return chooseIndex(pattern).find(pattern);
+    }
+
+    /**
+     * Find all matching tuples, as up to {@code maxParts} parts that can be read
+     * independently. See {@link TupleIndex#findPartitioned}.
+     */
+    public List<Supplier<Iterator<Tuple<NodeId>>>> findPartitioned(Tuple<NodeId> pattern, int maxParts) {
+        if ( tupleLen != pattern.len() )
+            throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen));
+        int numSlots = 0;
+        for ( int i = 0; i < tupleLen ; i++ ) {
+            NodeId x = pattern.get(i);
+            if ( ! NodeId.isAny(x) )
+                numSlots++;
+            if ( NodeId.isDoesNotExist(x))
+                return List.of(Iter::nullIterator);
+        }
+        TupleIndex index = ( numSlots == 0 ) ? scanAllIndex : chooseIndex(pattern);
+        return index.findPartitioned(pattern, maxParts);
+    }
+
+    /**
+     * Find all matching tuples for each pattern. The patterns should all have the same
+     * slots set; the index is chosen using the first pattern. See {@link TupleIndex#findBatch}.
+     */
+    public List<Iterator<Tuple<NodeId>>> findBatch(List<Tuple<NodeId>> patterns) {
+        boolean useIndex = !patterns.isEmpty();
+        for ( Tuple<NodeId> pattern : patterns ) {
+            if ( tupleLen != pattern.len() )
+                throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen));
+            for ( NodeId x : pattern ) {
+                if ( NodeId.isDoesNotExist(x) )
+                    useIndex = false;
+            }
+        }
+        if ( useIndex ) {
+            for ( NodeId x : patterns.get(0) ) {
+                if ( ! NodeId.isAny(x) )
+                    return chooseIndex(patterns.get(0)).findBatch(patterns);
+            }
+        }
+        // Unusual cases.
+        List<Iterator<Tuple<NodeId>>> results = new ArrayList<>(patterns.size());
+        for ( Tuple<NodeId> pattern : patterns )
+            results.add(find(pattern));
+        return results;
+    }
 
+    private TupleIndex chooseIndex(Tuple<NodeId> pattern) {
         int indexNumSlots = 0;
         TupleIndex index = null;
         for ( TupleIndex idx : indexes ) {
@@ -162,7 +260,7 @@ public class TupleTable implements Sync, Closeable
         if ( index == null )
             // No index at all.  Scan.
             index = indexes[0];
-        return index.find(pattern);
+        return index;
     }
 
     @Override
@@ -192,6 +290,8 @@ public class TupleTable implements Sync, Closeable
                 idx.clear();
         }
         syncNeeded = true;
+        if ( listener != null )
+            listener.cleared();
     }
 
     public long size() {
@@ -252,6 +352,14 @@ public class TupleTable implements Sync, Closeable
         indexes[i] = index;
     }
 
+    /** Set the listener for changes to this table (null for none). */
+    public void setListener(TupleTableListener listener) {
+        this.listener = listener;
+    }
+
+    /** Get the listener for changes to this table, or null. */
+    public TupleTableListener getListener()             { return listener; }
+
     /** Number of indexes on this tuple table */
     public int numIndexes()                             { return indexes.length; }
 }
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.tupletable;
+
+import java.util.List;
+
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.tdb2.store.NodeId;
+
+/**
+ * Changes to a {@link TupleTable}. Only real changes are reported: adding a tuple
+ * that is already present, or deleting one that is not, is not a change.
+ * Called after all the indexes of the table have been updated.
+ */
+public interface TupleTableListener {
+    /** The tuple has been added. */
+    public void added(Tuple<NodeId> tuple);
+
+    /** The tuple has been deleted. */
+    public void deleted(Tuple<NodeId> tuple);
+
+    /** The tuples, each a change, have been added. The default calls {@link #added} for each tuple. */
+    public default void addedAll(List<Tuple<NodeId>> tuples) {
+        tuples.forEach(this::added);
+    }
+
+    /** The tuples, each a change, have been deleted. The default calls {@link #deleted} for each tuple. */
+    public default void deletedAll(List<Tuple<NodeId>> tuples) {
+        tuples.forEach(this::deleted);
+    }
+
+    /** The table has been cleared. */
+    public void cleared();
+}
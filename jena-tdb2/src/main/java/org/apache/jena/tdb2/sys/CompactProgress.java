@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of an online compaction (see {@link DatabaseOps#compactOnline}).
+ * The compaction updates the progress as it runs; other threads can read it at any time.
+ */
+public class CompactProgress {
+
+    public enum Phase {
+        /** Not started. */
+        WAITING,
+        /** Copying the database as it was when compaction started. */
+        COPY,
+        /** Applying the changes committed since the copy started. */
+        CATCH_UP,
+        /** Writers held up while the last changes are applied and the new database is switched in. */
+        SWITCH,
+        /** Finished: the compacted database is in use. */
+        FINISHED,
+        /** Compaction failed: the original database is still in use. */
+        FAILED
+    }
+
+    private volatile Phase phase        = Phase.WAITING;
+    private final AtomicLong quadsCopied    = new AtomicLong(0);
+    private final AtomicLong changesApplied = new AtomicLong(0);
+    private final AtomicLong catchUpRounds  = new AtomicLong(0);
+    private volatile long startTime     = -1;
+    private volatile long finishTime    = -1;
+    private volatile long switchMillis  = -1;
+
+    public CompactProgress() {}
+
+    public Phase getPhase()             { return phase; }
+
+    /** Quads and triples copied from the original database. */
+    public long getQuadsCopied()        { return quadsCopied.get(); }
+
+    /** Changes, made to the original database while compacting, applied to the new database. */
+    public long getChangesApplied()     { return changesApplied.get(); }
+
+    /** Rounds of applying changes while writers continue. */
+    public long getCatchUpRounds()      { return catchUpRounds.get(); }
+
+    /** Time, in milliseconds, writers were held up at the switch, or -1 if not reached. */
+    public long getSwitchMillis()       { return switchMillis; }
+
+    /** Time, in milliseconds since the start, or -1 if not started. */
+    public long getElapsedMillis() {
+        if ( startTime < 0 )
+            return -1;
+        long end = ( finishTime < 0 ) ? System.currentTimeMillis() : finishTime;
+        return end - startTime;
+    }
+
+    /*package*/ void setPhase(Phase phase) {
+        if ( phase == Phase.COPY )
+            startTime = System.currentTimeMillis();
+        if ( phase == Phase.FINISHED || phase == Phase.FAILED )
+            finishTime = System.currentTimeMillis();
+        this.phase = phase;
+    }
+
+    /*package*/ void incQuadsCopied()                { quadsCopied.incrementAndGet(); }
+    /*package*/ void addChangesApplied(long n)       { changesApplied.addAndGet(n); }
+    /*package*/ void incCatchUpRounds()              { catchUpRounds.incrementAndGet(); }
+    /*package*/ void setSwitchMillis(long millis)    { switchMillis = millis; }
+
+    @Override
+    public String toString() {
+        return String.format("Compact[%s copied=%d changes=%d rounds=%d elapsed=%dms switch=%dms]",
+                             phase, getQuadsCopied(), getChangesApplied(), getCatchUpRounds(),
+                             getElapsedMillis(), getSwitchMillis());
+    }
+}
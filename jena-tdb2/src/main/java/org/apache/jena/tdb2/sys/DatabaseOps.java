@@ -20,9 +20,8 @@ package org.apache.jena.tdb2.sys;
 
 import java.io.*;
 import java.nio.file.*;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
@@ -30,19 +29,25 @@ import java.util.zip.GZIPOutputStream;
 import org.apache.jena.atlas.RuntimeIOException;
 import org.apache.jena.atlas.io.IO;
 import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.DateTimeUtils;
 import org.apache.jena.atlas.lib.InternalErrorException;
 import org.apache.jena.atlas.lib.Pair;
 import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.logging.FmtLog;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.base.Sys;
 import org.apache.jena.dboe.DBOpEnvException;
 import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.storage.StoragePrefixes;
+import org.apache.jena.dboe.storage.StorageRDF;
 import org.apache.jena.dboe.sys.IO_DB;
 import org.apache.jena.dboe.sys.Names;
 import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.graph.Node;
 import org.apache.jena.query.ARQ;
+import org.apache.jena.query.TxnType;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.sparql.core.DatasetGraph;
@@ -57,6 +62,10 @@ import org.apache.jena.tdb2.params.StoreParamsCodec;
 import org.apache.jena.tdb2.params.StoreParamsFactory;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.TupleChangeLog;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -118,6 +127,9 @@ public class DatabaseOps {
             Location storageLocation = containerLocation;
             StoreParams params = appParams != null ? appParams : StoreParams.getDftMemStoreParams();
             ReorderTransformation reorderTransform = (appReorderTransform != null) ? appReorderTransform : ReorderLib.fixed();
+            if ( appReorderTransform == null && SystemTDB.isStatsReorder() )
+                // The statistics maintained by transactions.
+                reorderTransform = null;
             DatasetGraph dsg = StoreConnection.connectCreate(storageLocation, params, reorderTransform).getDatasetGraph();
             return new DatasetGraphSwitchable(null, containerLocation, dsg);
         }
@@ -157,10 +169,11 @@ public class DatabaseOps {
         ReorderTransformation reorderTransform = appReorderTransform;
         reorderTransform = maybeTransform(reorderTransform, storageLocation);
         reorderTransform = maybeTransform(reorderTransform, containerLocation);
-        if ( reorderTransform == null )
+        // Left as null, the dataset uses the statistics maintained by transactions.
+        if ( reorderTransform == null && ! SystemTDB.isStatsReorder() )
             reorderTransform = SystemTDB.getDefaultReorderTransform();
 
-        if ( reorderTransform == null && warnAboutOptimizer )
+        if ( reorderTransform == null && ! SystemTDB.isStatsReorder() && warnAboutOptimizer )
             ARQ.getExecLogger().warn("No BGP optimizer");
 
         DatasetGraphTDB dsg = StoreConnection.connectCreate(storageLocation, params, reorderTransform).getDatasetGraphTDB();
@@ -316,7 +329,85 @@ public class DatabaseOps {
             DatabaseOpsWindows.compact_win(container, shouldDeleteOld);
             return;
         }
+        compact(container, shouldDeleteOld, null);
+    }
+
+    /**
+     * Compact the database while it stays in use.
+     * <p>
+     * Writers are held up only at the start, for the time to start a read transaction,
+     * and at the end, while the changes committed since the last catch-up round are
+     * applied and the new database is switched in. The database is copied as it was at
+     * the start; the changes made by write transactions while copying are then applied
+     * to the copy, in rounds, while writers continue.
+     * <p>
+     * The changes are held in memory until applied. Loaders that write the indexes
+     * directly (not the sequential loader) must not be used on the database while it is
+     * being compacted.
+     *
+     * @param container
+     * @param shouldDeleteOld
+     * @param progress Updated as the compaction runs. May be null.
+     */
+    public static void compactOnline(DatasetGraphSwitchable container, boolean shouldDeleteOld, CompactProgress progress) {
+        if ( progress == null )
+            progress = new CompactProgress();
+        if ( Sys.isWindows) {
+            // The copy is made in a temporary directory which is moved into place.
+            Log.warn(DatabaseOps.class, "Online compaction is not supported on MS Windows: compacting with writers held up");
+            progress.setPhase(CompactProgress.Phase.COPY);
+            try {
+                DatabaseOpsWindows.compact_win(container, shouldDeleteOld);
+            } catch (Throwable th) {
+                progress.setPhase(CompactProgress.Phase.FAILED);
+                throw th;
+            }
+            progress.setPhase(CompactProgress.Phase.FINISHED);
+            return;
+        }
+        compact(container, shouldDeleteOld, progress);
+    }
 
+    // progress == null : compact with writers held up throughout.
+    private static void compact(DatasetGraphSwitchable container, boolean shouldDeleteOld, CompactProgress progress) {
+        newGeneration(container, shouldDeleteOld, progress, (loc1, loc2tmp, path2final)->{
+            if ( progress == null )
+                compaction(container, loc1, loc2tmp, path2final);
+            else
+                compactionOnline(container, loc1, loc2tmp, path2final, progress);
+        });
+    }
+
+    /**
+     * Create a new generation of the database, in which the tuple indexes are
+     * rebuilt, and switch to it. Writers are held up while the new generation is
+     * built; readers continue on the current generation.
+     * <p>
+     * The node tables, the prefixes, the statistics and the configuration files are
+     * copied from the current generation. The tuple indexes of the new generation are
+     * empty and {@code indexBuilder} must fill them. It is called, not in a
+     * transaction, with the current database, which may be read, and the new database.
+     *
+     * @param container
+     * @param shouldDeleteOld
+     * @param indexBuilder
+     */
+    public static void rebuildIndexes(DatasetGraphSwitchable container, boolean shouldDeleteOld,
+                                      BiConsumer<DatasetGraphTDB, DatasetGraphTDB> indexBuilder) {
+        if ( Sys.isWindows )
+            // The new generation is built in a temporary directory which is moved into place.
+            throw new TDBException("Rebuilding the indexes in a new generation is not supported on MS Windows");
+        newGeneration(container, shouldDeleteOld, null, (loc1, loc2tmp, path2final)->
+            rebuild(container, loc1, loc2tmp, path2final, indexBuilder));
+    }
+
+    // Build the next generation in a temporary location, then make it the current one.
+    private interface GenerationBuilder {
+        void build(Location loc1, Location loc2tmp, Path path2final);
+    }
+
+    private static void newGeneration(DatasetGraphSwitchable container, boolean shouldDeleteOld, CompactProgress progress,
+                                      GenerationBuilder builder) {
         checkSupportsAdmin(container);
         synchronized(compactionLock) {
             Path containerPath = container.getContainerPath();
@@ -340,7 +431,7 @@ public class DatabaseOps {
             String next = FilenameUtils.filename(dbNameBase, SEP, v+1);
 
             Path db2 = db1.getParent().resolve(next);
-            LOG.debug(String.format("Compact %s -> %s\n", db1.getFileName(), db2.getFileName()));
+            LOG.debug(String.format("New generation %s -> %s\n", db1.getFileName(), db2.getFileName()));
             if ( Files.exists(db2) )
                 throw new TDBException("Inconsistent : "+db2+" already exists");
             // End checks
@@ -356,15 +447,17 @@ public class DatabaseOps {
             Location loc2tmp = Location.create(tmpDir);
 
             try {
-                compaction(container, loc1, loc2tmp, db2);
+                builder.build(loc1, loc2tmp, db2);
                 // Container now using the new location.
                 // The original database is not in use.
             } catch (RuntimeIOException ex) {
                 // Clear up - disk problems.
+                failed(progress);
                 try { IO.deleteAll(tmpDir); } catch (Throwable th) { /* Continue with original error. */ }
                 throw ex;
             } catch (Throwable th) {
                 // Jena and Java errors
+                failed(progress);
                 try { IO.deleteAll(tmpDir); } catch (Throwable th2) { /* Continue with original error. */ }
                 throw th;
             }
@@ -373,12 +466,19 @@ public class DatabaseOps {
                 // Compact put each of the databases into exclusive mode to do the switchover.
                 // There are no previous transactions on the old database at this point.
                 Path loc1Path = IO_DB.asPath(loc1);
-                LOG.debug("Deleting old database after successful compaction (old db path='" + loc1Path + "')...");
+                LOG.debug("Deleting old database after successful new generation (old db path='" + loc1Path + "')...");
                 IO.deleteAll(loc1Path);
             }
+            if ( progress != null )
+                progress.setPhase(CompactProgress.Phase.FINISHED);
         }
     }
 
+    private static void failed(CompactProgress progress) {
+        if ( progress != null )
+            progress.setPhase(CompactProgress.Phase.FAILED);
+    }
+
     private static Path makeTempDirName(Path path) {
         String dirname = path.toString();
         if ( dirname.endsWith("/"))
@@ -388,24 +488,7 @@ public class DatabaseOps {
 
     /** Copy the latest version from one location to another. */
     private static void compaction(DatasetGraphSwitchable container, Location loc1, Location loc2tmp, Path path2final) {
-        if ( loc1.isMem() || loc2tmp.isMem() )
-            throw new TDBException("Compact involves a memory location: "+loc1+" : "+loc2tmp);
-
-        StoreConnection srcConn = StoreConnection.connectExisting(loc1);
-
-        if ( srcConn == null )
-            throw new TDBException("No database at location : "+loc1);
-        if ( ! ( container.get() instanceof DatasetGraphTDB ) )
-            throw new TDBException("Not a TDB2 database in DatasetGraphSwitchable");
-
-        DatasetGraphTDB dsgCurrent = (DatasetGraphTDB)container.get();
-        if ( ! dsgCurrent.getLocation().equals(loc1) )
-            throw new TDBException("Inconsistent locations for base : "+dsgCurrent.getLocation()+" , "+dsgCurrent.getLocation());
-
-        DatasetGraphTDB dsgBase = srcConn.getDatasetGraphTDB();
-        if ( dsgBase != dsgCurrent )
-            throw new TDBException("Inconsistent datasets : "+dsgCurrent.getLocation()+" , "+dsgBase.getLocation());
-
+        DatasetGraphTDB dsgBase = currentDatabase(container, loc1, loc2tmp);
         TransactionCoordinator txnMgr1 = dsgBase.getTxnSystem().getTxnMgr();
 
         // -- Stop updates.
@@ -434,35 +517,7 @@ public class DatabaseOps {
             // Now on-disk in tmp location.
 
             moveDirectory(loc2tmp, path2final);
-            Location loc2final = Location.create(path2final);   // Location must exist.
-
-            // Next generation storage datasetGraph.
-            DatasetGraphTDB dsgCompact = StoreConnection.connectCreate(loc2final).getDatasetGraphTDB();
-
-            // -- Switch
-            // Update TransactionCoordinator and switch over.
-            TransactionCoordinator txnMgr2 = dsgCompact.getTxnSystem().getTxnMgr();
-            txnMgr2.execExclusive(()->{
-                // No active transactions in either database.
-                txnMgr2.takeOverFrom(txnMgr1);
-
-                // Copy over external transaction components.
-                txnMgr2.modifyConfigDirect(()-> {
-                    txnMgr1.listExternals().forEach(txnMgr2::addExternal);
-                    // External listeners?
-                    // (the NodeTableCache listener is not external)
-                });
-
-                // No transactions on new database 2 (not exposed yet).
-                // No writers or promote transactions on database 1.
-                // Maybe old readers on database 1.
-                // -- Switch.
-                if ( ! container.change(dsgCurrent, dsgCompact) ) {
-                    Log.warn(DatabaseOps.class, "Inconsistent: old datasetgraph not as expected");
-                    container.set(dsgCompact);
-                }
-                // The compacted database is now active
-            });
+            switchDatabase(container, dsgBase, path2final);
             // New database running.
             // New transactions go to this database.
             // Old readers continue on db1.
@@ -480,6 +535,247 @@ public class DatabaseOps {
         StoreConnection.release(dsgBase.getLocation());
     }
 
+    /**
+     * Copy the current database, except the tuple indexes, to a new location and fill
+     * the tuple indexes with {@code indexBuilder}.
+     */
+    private static void rebuild(DatasetGraphSwitchable container, Location loc1, Location loc2tmp, Path path2final,
+                                BiConsumer<DatasetGraphTDB, DatasetGraphTDB> indexBuilder) {
+        DatasetGraphTDB dsgBase = currentDatabase(container, loc1, loc2tmp);
+        TransactionCoordinator txnMgr1 = dsgBase.getTxnSystem().getTxnMgr();
+
+        container.execReadOnlyDatabase(()->{
+            // No active writers or promote transactions on the current database.
+            copyStorageFiles(dsgBase, loc1, loc2tmp);
+            try {
+                DatasetGraphTDB dsgNext = StoreConnection.connectCreate(loc2tmp).getDatasetGraphTDB();
+                indexBuilder.accept(dsgBase, dsgNext);
+            } finally {
+                StoreConnection.internalExpel(loc2tmp, true);
+            }
+            moveDirectory(loc2tmp, path2final);
+            switchDatabase(container, dsgBase, path2final);
+        });
+
+        // Old readers may still be active on database 1.
+        txnMgr1.startExclusiveMode();
+        StoreConnection.release(dsgBase.getLocation());
+    }
+
+    /**
+     * Copy the files of a database, except those of the tuple indexes, to another location.
+     * The journal, lock and node hash filter files are not copied.
+     */
+    private static void copyStorageFiles(DatasetGraphTDB dsg, Location loc1, Location loc2) {
+        Set<String> indexNames = new HashSet<>();
+        for ( TupleIndex idx : dsg.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes() )
+            indexNames.add(idx.getName());
+        for ( TupleIndex idx : dsg.getQuadTable().getNodeTupleTable().getTupleTable().getIndexes() )
+            indexNames.add(idx.getName());
+        FileFilter copyFiles = (pathname)->{
+            if ( ! pathname.isFile() )
+                return false;
+            String fn = pathname.getName();
+            if ( fn.equals(Names.TDB_LOCK_FILE) || fn.equals(Names.journalFile) )
+                return false;
+            if ( fn.endsWith("."+Names.extNodeHashFilter) )
+                return false;
+            int i = fn.indexOf('.');
+            String base = ( i < 0 ) ? fn : fn.substring(0, i);
+            return ! indexNames.contains(base);
+        };
+        File d = new File(loc1.getDirectoryPath());
+        File[] files = d.listFiles(copyFiles);
+        copyFiles(loc1, loc2, files);
+    }
+
+    // Online compaction: changes are applied while writers continue until there are
+    // no more than CatchUpLimit changes to apply at the switch, or for at most
+    // CatchUpRounds rounds.
+    private static final int CatchUpLimit  = 10_000;
+    private static final int CatchUpRounds = 10;
+
+    /**
+     * Copy the latest version from one location to another while it is in use, then
+     * bring the copy up to date with the changes made while copying.
+     */
+    private static void compactionOnline(DatasetGraphSwitchable container, Location loc1, Location loc2tmp, Path path2final,
+                                         CompactProgress progress) {
+        DatasetGraphTDB dsgBase = currentDatabase(container, loc1, loc2tmp);
+        TransactionCoordinator txnMgr1 = dsgBase.getTxnSystem().getTxnMgr();
+        TupleChangeLog changeLog = dsgBase.getChangeLog();
+        if ( changeLog == null )
+            throw new TDBException("Online compaction not supported for this database: "+loc1);
+
+        copyConfigFiles(loc1, loc2tmp);
+        DatasetGraphTDB dsgTmpCompact = StoreConnection.connectCreate(loc2tmp).getDatasetGraphTDB();
+        try {
+            progress.setPhase(CompactProgress.Phase.COPY);
+            // Start recording changes, and start the read transaction for the copy, when
+            // there are no writers. The copy and the recorded changes then cover every
+            // commit. Changes beyond the in-memory limit go to a file in the new generation.
+            container.execReadOnlyDatabase(()->{
+                changeLog.start(IO_DB.asPath(loc2tmp));
+                dsgBase.begin(TxnType.READ);
+            });
+            try {
+                Txn.executeWrite(dsgTmpCompact, () -> {
+                    dsgBase.find().forEachRemaining(quad->{
+                        dsgTmpCompact.add(quad);
+                        progress.incQuadsCopied();
+                    });
+                });
+            } finally { dsgBase.end(); }
+
+            // -- Catch up while writers continue.
+            progress.setPhase(CompactProgress.Phase.CATCH_UP);
+            for ( int i = 0 ; i < CatchUpRounds && changeLog.size() > CatchUpLimit ; i++ ) {
+                applyChanges(dsgBase, dsgTmpCompact, changeLog, progress);
+                progress.incCatchUpRounds();
+            }
+
+            // -- Switch
+            container.execReadOnlyDatabase(()->{
+                // No active writers or promote transactions on the current database.
+                long startSwitch = System.currentTimeMillis();
+                progress.setPhase(CompactProgress.Phase.SWITCH);
+                applyChanges(dsgBase, dsgTmpCompact, changeLog, progress);
+                changeLog.stop();
+                // Prefix changes are not recorded; the prefixes are a small table.
+                Txn.executeRead(dsgBase, ()->{
+                    Txn.executeWrite(dsgTmpCompact, ()->replacePrefixes(dsgBase, dsgTmpCompact));
+                });
+                StoreConnection.internalExpel(loc2tmp, true);
+                moveDirectory(loc2tmp, path2final);
+                switchDatabase(container, dsgBase, path2final);
+                progress.setSwitchMillis(System.currentTimeMillis() - startSwitch);
+            });
+        } finally {
+            changeLog.stop();
+            // No-op if already released.
+            StoreConnection.internalExpel(loc2tmp, true);
+        }
+
+        // Old readers may still be active on database 1.
+        txnMgr1.startExclusiveMode();
+        StoreConnection.release(dsgBase.getLocation());
+    }
+
+    /** Apply the changes recorded in database 1 to database 2, and clear the change log. */
+    private static void applyChanges(DatasetGraphTDB dsg1, DatasetGraphTDB dsg2, TupleChangeLog changeLog, CompactProgress progress) {
+        changeLog.drain(changes->applyChanges(dsg1, dsg2, changes, progress));
+    }
+
+    private static void applyChanges(DatasetGraphTDB dsg1, DatasetGraphTDB dsg2, List<TupleChangeLog.Change> changes, CompactProgress progress) {
+        if ( changes.isEmpty() )
+            return;
+        NodeTable nodeTable = dsg1.getTripleTable().getNodeTupleTable().getNodeTable();
+        StorageRDF storage2 = dsg2.getData();
+        // The read transaction on database 1 sees the nodes of the committed changes.
+        Txn.executeRead(dsg1, ()->{
+            Txn.executeWrite(dsg2, ()->{
+                for ( TupleChangeLog.Change change : changes )
+                    applyChange(nodeTable, storage2, change);
+            });
+        });
+        progress.addChangesApplied(changes.size());
+    }
+
+    private static void applyChange(NodeTable nodeTable, StorageRDF storage, TupleChangeLog.Change change) {
+        if ( change.action() == TupleChangeLog.Action.CLEAR ) {
+            if ( change.quad() )
+                storage.removeAll(Node.ANY, Node.ANY, Node.ANY, Node.ANY);
+            else
+                storage.removeAll(Node.ANY, Node.ANY, Node.ANY);
+            return;
+        }
+        Tuple<NodeId> tuple = change.tuple();
+        Node[] nodes = new Node[tuple.len()];
+        for ( int i = 0 ; i < nodes.length ; i++ )
+            nodes[i] = nodeTable.getNodeForNodeId(tuple.get(i));
+        boolean add = ( change.action() == TupleChangeLog.Action.ADD );
+        if ( change.quad() ) {
+            if ( add )
+                storage.add(nodes[0], nodes[1], nodes[2], nodes[3]);
+            else
+                storage.delete(nodes[0], nodes[1], nodes[2], nodes[3]);
+        } else {
+            if ( add )
+                storage.add(nodes[0], nodes[1], nodes[2]);
+            else
+                storage.delete(nodes[0], nodes[1], nodes[2]);
+        }
+    }
+
+    /** Replace the prefixes of database 2 by those of database 1. */
+    private static void replacePrefixes(DatasetGraphTDB dsg1, DatasetGraphTDB dsg2) {
+        StoragePrefixes prefixes1 = dsg1.getStoragePrefixes();
+        StoragePrefixes prefixes2 = dsg2.getStoragePrefixes();
+        Iter.toList(prefixes2.listGraphNodes()).forEach(prefixes2::deleteAll);
+        Iter.toList(prefixes1.listGraphNodes()).forEach(gn->
+            prefixes1.get(gn).forEachRemaining(e->prefixes2.add(gn, e.getPrefix(), e.getUri()))
+        );
+    }
+
+    /** The database in use at {@code loc1}, after checks. */
+    private static DatasetGraphTDB currentDatabase(DatasetGraphSwitchable container, Location loc1, Location loc2tmp) {
+        if ( loc1.isMem() || loc2tmp.isMem() )
+            throw new TDBException("Compact involves a memory location: "+loc1+" : "+loc2tmp);
+
+        StoreConnection srcConn = StoreConnection.connectExisting(loc1);
+
+        if ( srcConn == null )
+            throw new TDBException("No database at location : "+loc1);
+        if ( ! ( container.get() instanceof DatasetGraphTDB ) )
+            throw new TDBException("Not a TDB2 database in DatasetGraphSwitchable");
+
+        DatasetGraphTDB dsgCurrent = (DatasetGraphTDB)container.get();
+        if ( ! dsgCurrent.getLocation().equals(loc1) )
+            throw new TDBException("Inconsistent locations for base : "+dsgCurrent.getLocation()+" , "+dsgCurrent.getLocation());
+
+        DatasetGraphTDB dsgBase = srcConn.getDatasetGraphTDB();
+        if ( dsgBase != dsgCurrent )
+            throw new TDBException("Inconsistent datasets : "+dsgCurrent.getLocation()+" , "+dsgBase.getLocation());
+        return dsgBase;
+    }
+
+    /**
+     * Switch the container to the database at {@code path2final}.
+     * Called with no writers or promote transactions active on the current database.
+     */
+    private static void switchDatabase(DatasetGraphSwitchable container, DatasetGraphTDB dsgCurrent, Path path2final) {
+        TransactionCoordinator txnMgr1 = dsgCurrent.getTxnSystem().getTxnMgr();
+        Location loc2final = Location.create(path2final);   // Location must exist.
+
+        // Next generation storage datasetGraph.
+        DatasetGraphTDB dsgCompact = StoreConnection.connectCreate(loc2final).getDatasetGraphTDB();
+
+        // -- Switch
+        // Update TransactionCoordinator and switch over.
+        TransactionCoordinator txnMgr2 = dsgCompact.getTxnSystem().getTxnMgr();
+        txnMgr2.execExclusive(()->{
+            // No active transactions in either database.
+            txnMgr2.takeOverFrom(txnMgr1);
+
+            // Copy over external transaction components.
+            txnMgr2.modifyConfigDirect(()-> {
+                txnMgr1.listExternals().forEach(txnMgr2::addExternal);
+                // External listeners?
+                // (the NodeTableCache listener is not external)
+            });
+
+            // No transactions on new database 2 (not exposed yet).
+            // No writers or promote transactions on database 1.
+            // Maybe old readers on database 1.
+            // -- Switch.
+            if ( ! container.change(dsgCurrent, dsgCompact) ) {
+                Log.warn(DatabaseOps.class, "Inconsistent: old datasetgraph not as expected");
+                container.set(dsgCompact);
+            }
+            // The compacted database is now active
+        });
+    }
+
     private static void moveDirectory(Location locTmp, Path pathDst) {
         Path pathSrc = IO_DB.asPath(locTmp);
         try {
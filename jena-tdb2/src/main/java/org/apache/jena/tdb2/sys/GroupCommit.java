@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDBException;
+
+/**
+ * Group commit: updates from many threads are executed in one write transaction
+ * and one commit, so the cost of the commit, including syncing the journal and the
+ * database files to disk, is shared between the updates.
+ * <p>
+ * An update is submitted with {@link #execute} or {@link #submit}. A single thread
+ * takes the updates waiting to be executed, waiting up to a maximum delay for more
+ * updates, up to a maximum batch size. It then executes the batch in a single
+ * write transaction and commits it.
+ * <p>
+ * Each update is atomic and durable: {@link #execute} returns, and the future
+ * from {@link #submit} completes, only after the commit of the transaction
+ * including the update. If an update throws an exception, the batch is aborted and
+ * the updates of the batch are executed again, each in its own transaction. Updates
+ * must therefore be repeatable, and not have side effects outside the dataset.
+ * <p>
+ * Updates are executed on the group commit thread and must not start transactions
+ * themselves. A thread must not call {@link #execute} while in a transaction
+ * on the dataset.
+ */
+public class GroupCommit implements AutoCloseable {
+
+    private record Request(Runnable update, CompletableFuture<Void> result) {}
+
+    // Marks the end of requests.
+    private static final Request END = new Request(null, null);
+
+    private final DatasetGraph dsg;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private boolean closed = false;
+
+    // Statistics.
+    private final AtomicLong countUpdates = new AtomicLong(0);
+    private final AtomicLong countCommits = new AtomicLong(0);
+    private final AtomicLong countRetries = new AtomicLong(0);
+
+    /**
+     * Create a group commit for a dataset.
+     *
+     * @param dsg The dataset.
+     * @param maxBatchSize The maximum number of updates in one transaction.
+     * @param maxDelay The longest time to wait for more updates, after taking the
+     *     first update of a batch. 0 means take only the updates already waiting.
+     * @param unit The time unit of {@code maxDelay}.
+     */
+    public GroupCommit(DatasetGraph dsg, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        if ( maxBatchSize < 1 )
+            throw new IllegalArgumentException("Batch size must be at least 1: "+maxBatchSize);
+        if ( maxDelay < 0 )
+            throw new IllegalArgumentException("Negative delay: "+maxDelay);
+        this.dsg = dsg;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.worker = new Thread(this::run, "TDB2-GroupCommit");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Execute an update and return after it has been committed.
+     * An exception from the update is thrown by this call.
+     */
+    public void execute(Runnable update) {
+        if ( dsg.isInTransaction() )
+            throw new TDBException("GroupCommit.execute: the thread is in a transaction");
+        try {
+            submit(update).get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException rex )
+                throw rex;
+            if ( cause instanceof Error err )
+                throw err;
+            throw new TDBException("GroupCommit", cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TDBException("GroupCommit: interrupted", ex);
+        }
+    }
+
+    /**
+     * Submit an update. The future completes after the update has been committed,
+     * or exceptionally if the update failed.
+     */
+    public CompletableFuture<Void> submit(Runnable update) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        synchronized(this) {
+            if ( closed )
+                throw new TDBException("GroupCommit is closed");
+            queue.add(new Request(update, result));
+        }
+        return result;
+    }
+
+    /** Execute any updates already submitted, then stop. */
+    @Override
+    public void close() {
+        synchronized(this) {
+            if ( closed )
+                return;
+            closed = true;
+            queue.add(END);
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Number of updates committed. */
+    public long getCountUpdates()   { return countUpdates.get(); }
+
+    /** Number of transactions committed. */
+    public long getCountCommits()   { return countCommits.get(); }
+
+    /** Number of batches that failed and were executed again one update at a time. */
+    public long getCountRetries()   { return countRetries.get(); }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        boolean finished = false;
+        while ( ! finished ) {
+            batch.clear();
+            try {
+                finished = nextBatch(batch);
+            } catch (InterruptedException ex) {
+                finished = true;
+            }
+            if ( ! batch.isEmpty() )
+                executeBatch(batch);
+        }
+        // Only after an interrupt can there be requests left.
+        Request r;
+        while ( (r = queue.poll()) != null ) {
+            if ( r != END )
+                r.result.completeExceptionally(new TDBException("GroupCommit stopped"));
+        }
+    }
+
+    // Get the next batch. Return true if there will be no more requests.
+    private boolean nextBatch(List<Request> batch) throws InterruptedException {
+        Request first = queue.take();
+        if ( first == END )
+            return true;
+        batch.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while ( batch.size() < maxBatchSize ) {
+            long wait = deadline - System.nanoTime();
+            Request r = ( wait > 0 ) ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+            if ( r == null )
+                break;
+            if ( r == END )
+                return true;
+            batch.add(r);
+        }
+        return false;
+    }
+
+    private void executeBatch(List<Request> batch) {
+        try {
+            Txn.executeWrite(dsg, ()->batch.forEach(r->r.update.run()));
+        } catch (Throwable th) {
+            if ( batch.size() == 1 ) {
+                batch.get(0).result.completeExceptionally(th);
+                return;
+            }
+            // Find the update (or updates) in error.
+            countRetries.incrementAndGet();
+            batch.forEach(this::executeOne);
+            return;
+        }
+        countCommits.incrementAndGet();
+        countUpdates.addAndGet(batch.size());
+        batch.forEach(r->r.result.complete(null));
+    }
+
+    private void executeOne(Request request) {
+        try {
+            Txn.executeWrite(dsg, request.update);
+        } catch (Throwable th) {
+            request.result.completeExceptionally(th);
+            return;
+        }
+        countCommits.incrementAndGet();
+        countUpdates.incrementAndGet();
+        request.result.complete(null);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GroupCommit[updates=%d commits=%d retries=%d]",
+                             getCountUpdates(), getCountCommits(), getCountRetries());
+    }
+}
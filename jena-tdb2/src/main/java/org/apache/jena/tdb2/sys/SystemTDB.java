@@ -120,6 +120,63 @@ public class SystemTDB
     /** Experimental : triple and quad filtering at scan level */
     public static final Symbol symTupleFilter       = allocSymbol("tupleFilter");
 
+    /**
+     * Maximum number of input rows looked up together for a triple or quad pattern in a
+     * basic graph pattern, in index order. Set to 1 to look up each row separately.
+     */
+    public static final Symbol symProbeBatchSize    = allocSymbol("probeBatchSize");
+
+    /** Default for {@link #symProbeBatchSize} */
+    public static final int DefaultProbeBatchSize   = 1000;
+
+    /**
+     * Whether to execute the first two patterns of a basic graph pattern as a merge join
+     * when there are indexes that return both in order of a shared variable. Default true.
+     */
+    public static final Symbol symMergeJoin         = allocSymbol("mergeJoin");
+
+    /**
+     * Whether to execute a cyclic basic graph pattern, such as a triangle, as a
+     * worst-case optimal join (leapfrog triejoin) when there are suitable indexes.
+     * Default true.
+     */
+    public static final Symbol symLeapfrogJoin      = allocSymbol("leapfrogJoin");
+
+    /**
+     * Whether to evaluate FILTER comparisons and ORDER BY on inline values (numbers,
+     * dateTimes and dates) directly on NodeIds, and use FILTER ranges to limit index
+     * scans. Default true.
+     */
+    public static final Symbol symInlineValues      = allocSymbol("inlineValues");
+
+    /**
+     * Whether a database with no BGP optimizer set, by the application or by an optimizer
+     * file such as {@code stats.opt}, reorders basic graph patterns using the statistics
+     * maintained by transactions. Default false: the {@linkplain #getDefaultReorderTransform
+     * default reorder transformation} is used. Set in the global context before the
+     * database is connected.
+     */
+    public static final Symbol symStatsReorder      = allocSymbol("statsReorder");
+
+    /**
+     * Whether a bulk loader that writes the indexes directly recalculates the statistics
+     * maintained by transactions after loading into a database that already has triples.
+     * This reads all the triples. Default false: the statistics are then not known until
+     * recalculated. The statistics are always calculated after loading into an empty database.
+     */
+    public static final Symbol symLoaderStats       = allocSymbol("loaderStats");
+
+    /**
+     * Maximum number of committed changes that online compaction holds in memory while
+     * it copies the database. Further changes are written to a file in the directory of
+     * the new generation until compaction applies them. Read from the global context
+     * when compaction starts.
+     */
+    public static final Symbol symCompactChangeLimit = allocSymbol("compactChangeLimit");
+
+    /** Default for {@link #symCompactChangeLimit} */
+    public static final int DefaultCompactChangeLimit = 1_000_000;
+
     private static final String PropertyFileKey1    = tdbPropertyRoot+".settings";
     private static final String PropertyFileKey2    = tdbSymbolPrefix+":settings";
 
@@ -171,6 +228,15 @@ public class SystemTDB
     /** Initial capacity factor for node caches. */
     public static final double NodeCacheInitialCapacityFactor = doubleValue("NodeCacheInitialCapacityFactor", 0.25);
 
+    /** Size, in bytes, of the off-heap node cache. 0 means no off-heap cache. */
+    public static final long NodeCacheOffHeapSize   = longValue("NodeCacheOffHeapSize", 0L);
+
+    /** Whether to keep a Bloom filter of the node hashes of the node table. */
+    public static final boolean NodeHashFilter      = booleanValue("NodeHashFilter", false);
+
+    /** Whether to read the node data file through memory mapped buffers. */
+    public static final boolean NodeDataMapped      = booleanValue("NodeDataMapped", false);
+
     /** Size of the delayed-write block cache (32 bit systems only). Per file. */
     public static final int BlockWriteCacheSize     = intValue("BlockWriteCacheSize", 1000);
 
@@ -190,6 +256,11 @@ public class SystemTDB
         return defaultReorderTransform;
     }
 
+    /** Whether {@link #symStatsReorder} is set. */
+    public static boolean isStatsReorder() {
+        return ARQ.getContext().isTrue(symStatsReorder);
+    }
+
     /** Unsupported (for non-standard setups)
      * @see #enableInlineLiterals
      */
@@ -268,10 +339,18 @@ public class SystemTDB
         return value(name, defaultValue, Integer::parseInt);
     }
 
+    private static long longValue(String name, long defaultValue) {
+        return value(name, defaultValue, Long::parseLong);
+    }
+
     private static double doubleValue(String name, double defaultValue) {
         return value(name, defaultValue, Double::parseDouble);
     }
 
+    private static boolean booleanValue(String name, boolean defaultValue) {
+        return value(name, defaultValue, Boolean::parseBoolean);
+    }
+
     private static <T> T value(String name, T defaultValue, Function<String, T> parse) {
         if ( name == null )
             return defaultValue;
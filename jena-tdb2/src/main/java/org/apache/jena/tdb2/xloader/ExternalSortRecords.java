@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.xloader;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.tdb2.TDBException;
+
+/**
+ * External merge sort of fixed length records, using a bounded amount of memory.
+ * Duplicate records are removed. The sort order is that of a B+Tree
+ * ({@link Record#compareByKeyValue}).
+ * <p>
+ * Records are collected in memory into runs. A full run is sorted and written to a
+ * temporary file by a pool of threads while the next run is collected. When all
+ * the records have been added, the run files are merged, many at a time, reading
+ * them through memory mapped buffers. If there are more runs than can be merged
+ * in one pass, groups of runs are first merged, in parallel, into longer runs.
+ * <p>
+ * Only one thread may add records.
+ */
+public class ExternalSortRecords implements AutoCloseable {
+    // Maximum number of runs merged in one pass.
+    private static final int DftMergeFanIn = 64;
+    // Largest part of a run file mapped at one time.
+    private static final int MapChunkSize = 64 * 1024 * 1024;
+    // Estimate of the heap used by one record, in addition to its bytes.
+    private static final int RecordOverhead = 64;
+    private static final int MinRunLength = 1000;
+
+    private final RecordFactory factory;
+    private final Path tmpDir;
+    private final int runLength;
+    private final int mergeFanIn;
+    private final ExecutorService executor;
+    // Limits the number of runs being sorted and written at the same time.
+    private final Semaphore inFlight;
+    private final List<Future<Path>> runFutures = new ArrayList<>();
+    private final List<Path> runFiles = new ArrayList<>();
+
+    private Record[] buffer;
+    private int count = 0;
+    private long added = 0;
+    private boolean finished = false;
+
+    /**
+     * Create a sorter.
+     *
+     * @param factory The record layout.
+     * @param memory The memory, in bytes, to use for records being sorted.
+     * @param threads The number of threads to sort and write runs, and to merge runs.
+     * @param tmpDir Directory for the run files.
+     */
+    public ExternalSortRecords(RecordFactory factory, long memory, int threads, Path tmpDir) {
+        this(factory, runLength(factory, memory, threads), DftMergeFanIn, threads, tmpDir);
+    }
+
+    /*package*/ ExternalSortRecords(RecordFactory factory, int runLength, int mergeFanIn, int threads, Path tmpDir) {
+        if ( runLength < 1 )
+            throw new IllegalArgumentException("Run length must be at least 1: "+runLength);
+        if ( mergeFanIn < 2 )
+            throw new IllegalArgumentException("Merge fan-in must be at least 2: "+mergeFanIn);
+        if ( threads < 1 )
+            throw new IllegalArgumentException("Threads must be at least 1: "+threads);
+        this.factory = Objects.requireNonNull(factory);
+        this.tmpDir = Objects.requireNonNull(tmpDir);
+        this.runLength = runLength;
+        this.mergeFanIn = mergeFanIn;
+        this.executor = Executors.newFixedThreadPool(threads, r->{
+            Thread thread = new Thread(r, "ExternalSort");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inFlight = new Semaphore(threads);
+        this.buffer = new Record[runLength];
+    }
+
+    // The memory is shared by the run being collected and the runs being sorted.
+    private static int runLength(RecordFactory factory, long memory, int threads) {
+        long bytesPerRecord = factory.recordLength() + RecordOverhead;
+        long x = memory / (threads + 1) / bytesPerRecord;
+        return (int)Math.max(MinRunLength, Math.min(x, Integer.MAX_VALUE - 8));
+    }
+
+    /** Add a record. The record must not be changed afterwards. */
+    public void add(Record record) {
+        if ( finished )
+            throw new TDBException("ExternalSortRecords: already finished");
+        buffer[count++] = record;
+        added++;
+        if ( count == runLength )
+            flushRun();
+    }
+
+    /** Number of records added, including duplicates. */
+    public long getAdded() {
+        return added;
+    }
+
+    /** Number of run files written so far. */
+    public int getRunCount() {
+        return runFutures.size();
+    }
+
+    /**
+     * Finish adding records and return the records, sorted, without duplicates.
+     * This can be called only once.
+     */
+    public Iterator<Record> sorted() {
+        if ( finished )
+            throw new TDBException("ExternalSortRecords: already finished");
+        finished = true;
+        if ( runFutures.isEmpty() ) {
+            // All in memory.
+            Record[] records = buffer;
+            int n = count;
+            buffer = null;
+            Arrays.sort(records, 0, n, Record::compareByKeyValue);
+            return new Distinct(Arrays.asList(records).subList(0, n).iterator());
+        }
+        if ( count > 0 )
+            flushRun();
+        buffer = null;
+        for ( Future<Path> f : runFutures )
+            runFiles.add(await(f));
+        runFutures.clear();
+        while ( runFiles.size() > mergeFanIn )
+            mergePass();
+        List<RunReader> readers = new ArrayList<>(runFiles.size());
+        for ( Path path : runFiles )
+            readers.add(new RunReader(path, factory));
+        return new Distinct(new MergeIterator(readers));
+    }
+
+    /** Delete any run files and stop the threads. */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for ( Future<Path> f : runFutures ) {
+            try {
+                if ( f.isDone() && ! f.isCancelled() )
+                    runFiles.add(f.get());
+            } catch (InterruptedException | ExecutionException ex) {}
+        }
+        runFiles.forEach(ExternalSortRecords::delete);
+        runFiles.clear();
+    }
+
+    // Sort and write the current buffer on a sort thread.
+    private void flushRun() {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TDBException("ExternalSortRecords: interrupted", ex);
+        }
+        Record[] records = buffer;
+        int n = count;
+        Callable<Path> task = ()->{
+            try {
+                Arrays.sort(records, 0, n, Record::compareByKeyValue);
+                return writeRun(Arrays.asList(records).subList(0, n).iterator());
+            } finally {
+                inFlight.release();
+            }
+        };
+        runFutures.add(executor.submit(task));
+        buffer = new Record[runLength];
+        count = 0;
+    }
+
+    // Merge the run files, mergeFanIn at a time, in parallel.
+    private void mergePass() {
+        List<Future<Path>> merges = new ArrayList<>();
+        for ( int i = 0 ; i < runFiles.size() ; i += mergeFanIn ) {
+            List<Path> group = List.copyOf(runFiles.subList(i, Math.min(i + mergeFanIn, runFiles.size())));
+            merges.add(executor.submit(()->{
+                List<RunReader> readers = new ArrayList<>(group.size());
+                for ( Path path : group )
+                    readers.add(new RunReader(path, factory));
+                Path path = writeRun(new MergeIterator(readers));
+                group.forEach(ExternalSortRecords::delete);
+                return path;
+            }));
+        }
+        List<Path> x = new ArrayList<>(merges.size());
+        for ( Future<Path> f : merges )
+            x.add(await(f));
+        runFiles.clear();
+        runFiles.addAll(x);
+    }
+
+    // Write sorted records to a new run file, dropping duplicates.
+    private Path writeRun(Iterator<Record> records) {
+        try {
+            Path path = Files.createTempFile(tmpDir, "sort-", ".run");
+            try ( OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 128 * 1024) ) {
+                Iterator<Record> iter = new Distinct(records);
+                while ( iter.hasNext() ) {
+                    Record r = iter.next();
+                    out.write(r.getKey());
+                    if ( r.getValue() != null )
+                        out.write(r.getValue());
+                }
+            }
+            return path;
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    private static <X> X await(Future<X> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException rex )
+                throw rex;
+            if ( cause instanceof Error err )
+                throw err;
+            throw new TDBException("ExternalSortRecords", cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TDBException("ExternalSortRecords: interrupted", ex);
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    /** Read the records of a run file through memory mapped buffers. */
+    private static class RunReader {
+        private final FileChannel channel;
+        private final RecordFactory factory;
+        private final long size;
+        private final int chunkSize;
+        private long position = 0;
+        private MappedByteBuffer mapped = null;
+        Record current = null;
+
+        RunReader(Path path, RecordFactory factory) {
+            this.factory = factory;
+            int recordLength = factory.recordLength();
+            this.chunkSize = Math.max(1, MapChunkSize / recordLength) * recordLength;
+            try {
+                this.channel = FileChannel.open(path, StandardOpenOption.READ);
+                this.size = channel.size();
+            } catch (IOException ex) { throw IOX.exception(ex); }
+            advance();
+        }
+
+        // Move to the next record; current is null at the end.
+        void advance() {
+            try {
+                if ( mapped == null || ! mapped.hasRemaining() ) {
+                    if ( position >= size ) {
+                        current = null;
+                        mapped = null;
+                        channel.close();
+                        return;
+                    }
+                    long len = Math.min(chunkSize, size - position);
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, len);
+                    position += len;
+                }
+            } catch (IOException ex) { throw IOX.exception(ex); }
+            Record r = factory.create();
+            mapped.get(r.getKey());
+            if ( r.getValue() != null )
+                mapped.get(r.getValue());
+            current = r;
+        }
+    }
+
+    /** K-way merge of sorted runs. */
+    private static class MergeIterator implements Iterator<Record> {
+        private final PriorityQueue<RunReader> queue;
+
+        MergeIterator(List<RunReader> readers) {
+            this.queue = new PriorityQueue<>(Math.max(1, readers.size()),
+                                             (r1, r2) -> Record.compareByKeyValue(r1.current, r2.current));
+            for ( RunReader r : readers ) {
+                if ( r.current != null )
+                    queue.add(r);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return ! queue.isEmpty();
+        }
+
+        @Override
+        public Record next() {
+            RunReader reader = queue.poll();
+            if ( reader == null )
+                throw new NoSuchElementException("MergeIterator");
+            Record r = reader.current;
+            reader.advance();
+            if ( reader.current != null )
+                queue.add(reader);
+            return r;
+        }
+    }
+
+    /** Remove adjacent duplicates from a sorted iterator. */
+    private static class Distinct implements Iterator<Record> {
+        private final Iterator<Record> iter;
+        private Record last = null;
+        private Record slot = null;
+
+        Distinct(Iterator<Record> iter) {
+            this.iter = iter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( slot != null )
+                return true;
+            while ( iter.hasNext() ) {
+                Record r = iter.next();
+                if ( last == null || Record.compareByKeyValue(last, r) != 0 ) {
+                    slot = r;
+                    last = r;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Record next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException("Distinct");
+            Record r = slot;
+            slot = null;
+            return r;
+        }
+    }
+}
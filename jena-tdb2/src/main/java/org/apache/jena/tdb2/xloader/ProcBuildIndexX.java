@@ -28,6 +28,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.jena.atlas.io.IO;
 import org.apache.jena.atlas.lib.Timer;
@@ -104,6 +108,89 @@ public class ProcBuildIndexX
         return x;
     }
 
+    /**
+     * Build several indexes at the same time, using the in-process sort
+     * ({@link ExternalSortRecords}) instead of sort(1).
+     * <p>
+     * Each index is built on its own thread: it reads the data file, sorts the
+     * records into index order and writes the B+Tree. The sort memory and the sort
+     * threads are shared equally between the indexes.
+     *
+     * @param location Database location
+     * @param indexNames Names of the indexes to build
+     * @param threads Total number of sort threads; 0 or less means the number of processors
+     * @param sortMemory Total memory for sorting, in bytes; 0 or less means half the maximum heap
+     * @param loaderFiles The files of this load
+     */
+    public static void execParallel(String location, List<String> indexNames, int threads, long sortMemory, XLoaderFiles loaderFiles) {
+        if ( indexNames.isEmpty() )
+            return;
+        if ( threads <= 0 )
+            threads = Runtime.getRuntime().availableProcessors();
+        if ( sortMemory <= 0 )
+            sortMemory = Runtime.getRuntime().maxMemory() / 2;
+        int N = indexNames.size();
+        int sortThreads = Math.max(1, threads / N);
+        long memory = sortMemory / N;
+
+        Timer timer = new Timer();
+        FmtLog.info(BulkLoaderX.LOG_Index, "Build indexes %s : sort threads %d, sort memory %,d per index", indexNames, sortThreads, memory);
+        timer.startTimer();
+
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(location);
+        ExecutorService executor = Executors.newFixedThreadPool(N);
+        long items = 0;
+        try {
+            List<Future<Long>> results = new ArrayList<>(N);
+            for ( String indexName : indexNames )
+                results.add(executor.submit(()->sortBuildIndex(dsg, indexName, sortThreads, memory, loaderFiles)));
+            for ( Future<Long> f : results )
+                items += f.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException rex )
+                throw rex;
+            if ( cause instanceof Error err )
+                throw err;
+            throw new TDBException("Build indexes", cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TDBException("Build indexes: interrupted", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+        TDBInternal.expel(dsg);
+
+        long timeMillis = timer.endTimer();
+        String elapsedStr = BulkLoaderX.milliToHMS(timeMillis);
+        String rateStr = BulkLoaderX.rateStr(items, timeMillis);
+        FmtLog.info(BulkLoaderX.LOG_Index, "%s Indexes %s : %s seconds - %s at %s TPS", BulkLoaderX.StepMarker, indexNames, Timer.timeStr(timeMillis), elapsedStr, rateStr);
+    }
+
+    private static long sortBuildIndex(DatasetGraph dsg, String indexName, int sortThreads, long memory, XLoaderFiles loaderFiles) {
+        String datafile;
+        switch (indexName.length()) {
+            case 3 -> datafile = loaderFiles.triplesFile;
+            case 4 -> datafile = loaderFiles.quadsFile;
+            default -> throw new TDBException("Index name: " + indexName);
+        }
+        TupleIndex index = TDBInternal.findIndex(dsg, indexName);
+        if ( index == null )
+            throw new TDBException("Can not find index: " + indexName);
+        RecordFactory recordFactory = ((TupleIndexRecord)index).getRangeIndex().getRecordFactory();
+
+        InputStream input = IO.ensureBuffered(IO.openFile(datafile));
+        try ( ExternalSortRecords sorter = new ExternalSortRecords(recordFactory, memory, sortThreads, Path.of(loaderFiles.TMPDIR)) ) {
+            int rowBlock = 1000;
+            Iterator<Record> iter = new RecordsFromInput(input, indexName.length(), colMap(indexName), rowBlock);
+            iter.forEachRemaining(sorter::add);
+            FmtLog.info(BulkLoaderX.LOG_Index, "Sort %s : %,d records, %d runs", indexName, sorter.getAdded(), sorter.getRunCount());
+            return indexBuilder(dsg, sorter.sorted(), indexName);
+        } finally {
+            IO.close(input);
+        }
+    }
+
     private static long buildIndex(DatasetGraph dsg, String indexName, int sortThreads, String sortIndexArgs, XLoaderFiles loaderFiles) {
         long tickPoint = BulkLoaderX.DataTick;
         int superTick = BulkLoaderX.DataSuperTick;
@@ -238,24 +325,17 @@ public class ProcBuildIndexX
     }
 
     private static long indexBuilder(DatasetGraph dsg, InputStream input, String indexName) {
-        long tickPoint = BulkLoaderX.DataTick;
-        int superTick = BulkLoaderX.DataSuperTick;
-
-        // Location of storage, not the DB.
-        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
-
-        int keyLength = SystemTDB.SizeOfNodeId * indexName.length();
-        int valueLength = 0;
-
-        // The name is the order. Input is already in the right order.
-
         int tupleLength = indexName.length();
+        int rowBlock = 1000;
+        Iterator<Record> iter = new RecordsFromInput(input, tupleLength, colMap(indexName), rowBlock);
+        return indexBuilder(dsg, iter, indexName);
+    }
 
-        TupleIndex index = TDBInternal.findIndex(dsg, indexName);
-        if ( index == null )
-            throw new TDBException("Can not find index: " + indexName);
-
+    // The mapping from the order of the data file to the index order.
+    private static TupleMap colMap(String indexName) {
+        // The name is the order.
         String primaryOrder;
+        int tupleLength = indexName.length();
         if ( tupleLength == 3 ) {
             primaryOrder = Names.primaryIndexTriples;
         } else if ( tupleLength == 4 ) {
@@ -263,7 +343,17 @@ public class ProcBuildIndexX
         } else {
             throw new TDBException("Index name: " + indexName);
         }
-        TupleMap colMap = TupleMap.create(primaryOrder, indexName);
+        return TupleMap.create(primaryOrder, indexName);
+    }
+
+    // Build an index from records in index order.
+    private static long indexBuilder(DatasetGraph dsg, Iterator<Record> iter, String indexName) {
+        long tickPoint = BulkLoaderX.DataTick;
+        int superTick = BulkLoaderX.DataSuperTick;
+
+        TupleIndex index = TDBInternal.findIndex(dsg, indexName);
+        if ( index == null )
+            throw new TDBException("Can not find index: " + indexName);
 
         int blockSize = SystemTDB.BlockSize;
         RecordFactory recordFactory = ((TupleIndexRecord)index).getRangeIndex().getRecordFactory();
@@ -278,8 +368,6 @@ public class ProcBuildIndexX
         BlockMgr blkMgrRecords = bpt.getRecordsMgr().getBlockMgr();
         BufferChannel blkState = bpt.getStateManager().getBufferChannel();
         // ----
-        int rowBlock = 1000;
-        Iterator<Record> iter = new RecordsFromInput(input, tupleLength, colMap, rowBlock);
         // ProgressMonitor.
         ProgressMonitor monitor = ProgressMonitorOutput.create(BulkLoaderX.LOG_Index, indexName, tickPoint, superTick);
         ProgressIterator<Record> iter2 = new ProgressIterator<>(iter, monitor);
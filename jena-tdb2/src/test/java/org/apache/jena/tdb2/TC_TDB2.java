@@ -22,6 +22,7 @@ import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
 import org.apache.jena.tdb2.assembler.TS_TDBAssembler;
+import org.apache.jena.tdb2.columnar.TS_Columnar;
 import org.apache.jena.tdb2.graph.TS_GraphTDB2;
 import org.apache.jena.tdb2.lib.TS_LibTDB;
 import org.apache.jena.tdb2.loader.TS_Loader;
@@ -33,6 +34,7 @@ import org.apache.jena.tdb2.store.tupletable.TS_TupleTable;
 import org.apache.jena.tdb2.store.value.TS_NodeValues;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.apache.jena.tdb2.sys.TS_Sys;
+import org.apache.jena.tdb2.xloader.TS_XLoader;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.runner.RunWith;
@@ -57,6 +59,8 @@ import org.junit.runners.Suite;
     , TS_TDBAssembler.class
     , TS_Sys.class
     , TS_Loader.class
+    , TS_XLoader.class
+    , TS_Columnar.class
     , TestMiscTDB2.class
     , Scripts_TDB2.class
 } )
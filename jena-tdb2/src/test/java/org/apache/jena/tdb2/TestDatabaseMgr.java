@@ -25,8 +25,11 @@ import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.FileOps;
 import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.sparql.sse.SSE;
@@ -110,4 +113,39 @@ public class TestDatabaseMgr
         StoreParams storeParams2 = TDBInternal.requireStorage(dg1).getStoreParams();
         assertEquals(testBlockSize, storeParams2.getBlockSize().intValue());
     }
+
+    @Test
+    public void testDatabaseMgrPackedIndexLeaves() {
+        TDBInternal.reset();
+        String DIRx = ConfigTest.getCleanDir();
+        Location LOC = Location.create(DIRx);
+        FileOps.clearAll(DIRx);
+        try {
+            StoreParams storeParams1 = StoreParamsBuilder.create("test").packedIndexLeaves(true).build();
+            DatasetGraph dg1 = DatabaseMgr.connectDatasetGraph(LOC, storeParams1);
+            int N = 2000;
+            Node s = NodeFactory.createURI("http://example/s");
+            Node p = NodeFactory.createURI("http://example/p");
+            Txn.executeWrite(dg1, ()->{
+                for ( int i = 0 ; i < N ; i++ )
+                    dg1.add(Quad.defaultGraphIRI, s, p, NodeFactory.createLiteralString("o"+i));
+            });
+            Txn.executeWrite(dg1, ()->dg1.delete(Quad.defaultGraphIRI, s, p, NodeFactory.createLiteralString("o0")));
+
+            // Connect again: the setting is kept with the database.
+            TDBInternal.expel(dg1);
+            DatasetGraph dg2 = DatabaseMgr.connectDatasetGraph(LOC);
+            assertTrue(TDBInternal.requireStorage(dg2).getStoreParams().isPackedIndexLeaves());
+            Txn.executeRead(dg2, ()->{
+                assertEquals(N-1, Iter.count(dg2.find(null, s, null, null)));
+                assertEquals(N-1, Iter.count(dg2.find(null, null, p, null)));
+                assertTrue(dg2.contains(Quad.defaultGraphIRI, s, p, NodeFactory.createLiteralString("o1")));
+                assertFalse(dg2.contains(Quad.defaultGraphIRI, s, p, NodeFactory.createLiteralString("o0")));
+            });
+        }
+        finally {
+            TDBInternal.reset();
+            FileOps.clearAll(DIRx);
+        }
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.columnar;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.solver.stats.TransStats;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestColumnar {
+    private static String DATA = "testing/Loader/";
+
+    private String dir;
+    private String exportDir;
+    private Location dbLocation;
+
+    @Before public void before() {
+        dir = ConfigTest.getCleanDir();
+        exportDir = dir + "/export";
+        dbLocation = Location.create(dir + "/DB");
+    }
+
+    @After public void after() {
+        TDBInternal.reset();
+        FileOps.clearAll(dir);
+    }
+
+    private static DatasetGraph source() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        Txn.executeWrite(dsg, ()->{
+            RDFDataMgr.read(dsg, DATA + "data-1.nq");
+            RDFDataMgr.read(dsg, DATA + "data-3.trig");
+            RDFDataMgr.read(dsg, DATA + "data-4.ttl");
+            // Inline values and a term in two graphs.
+            dsg.add(SSE.parseQuad("(<http://example/g2> <http://example/s> <http://example/p> 123)"));
+            dsg.add(SSE.parseQuad("(<http://example/g2> <http://example/s> <http://example/p> \"2020-01-01\"^^<http://www.w3.org/2001/XMLSchema#date>)"));
+        });
+        return dsg;
+    }
+
+    private void roundTrip(DatasetGraph src) {
+        DatabaseMgr.exportColumnar(src, exportDir);
+        DatasetGraph dsg = DatabaseMgr.loadColumnar(exportDir, dbLocation);
+        Txn.executeRead(src, ()->Txn.executeRead(dsg, ()->{
+            assertTrue("Not isomorphic", IsoMatcher.isomorphic(src, dsg));
+            assertEquals(src.getDefaultGraph().getPrefixMapping().getNsPrefixMap(),
+                         dsg.getDefaultGraph().getPrefixMapping().getNsPrefixMap());
+            TransStats stats = TDBInternal.getDatasetGraphTDB(dsg).getStats();
+            if ( stats != null )
+                assertEquals(dsg.getDefaultGraph().size(), stats.results().getCount());
+        }));
+    }
+
+    @Test public void columnar_roundtrip_1() {
+        roundTrip(source());
+        assertTrue(Files.exists(Path.of(exportDir, ColumnarFiles.manifestFile)));
+        assertTrue(Files.exists(Path.of(exportDir, "SPO-S.col")));
+        assertTrue(Files.exists(Path.of(exportDir, "GSPO-G.col")));
+    }
+
+    @Test public void columnar_roundtrip_empty() {
+        roundTrip(DatabaseMgr.createDatasetGraph());
+    }
+
+    @Test public void columnar_roundtrip_reopen() {
+        DatasetGraph src = source();
+        roundTrip(src);
+        TDBInternal.reset();
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dbLocation);
+        Txn.executeRead(src, ()->Txn.executeRead(dsg, ()->
+            assertTrue("Not isomorphic", IsoMatcher.isomorphic(src, dsg))
+        ));
+        // Can be updated.
+        Txn.executeWrite(dsg, ()->dsg.add(SSE.parseQuad("(_ <http://example/s> <http://example/p> <http://example/new>)")));
+        Txn.executeRead(dsg, ()->{
+            assertTrue(dsg.contains(SSE.parseQuad("(_ <http://example/s> <http://example/p> <http://example/new>)")));
+            assertTrue(dsg.contains(SSE.parseQuad("(<http://example/g2> <http://example/s> <http://example/p> 123)")));
+        });
+    }
+
+    @Test(expected=TDBException.class)
+    public void columnar_export_exists() {
+        DatasetGraph src = source();
+        DatabaseMgr.exportColumnar(src, exportDir);
+        DatabaseMgr.exportColumnar(src, exportDir);
+    }
+
+    @Test(expected=TDBException.class)
+    public void columnar_load_nonempty() {
+        DatabaseMgr.exportColumnar(source(), exportDir);
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dbLocation);
+        Txn.executeWrite(dsg, ()->dsg.add(SSE.parseQuad("(_ <http://example/s> <http://example/p> 1)")));
+        DatabaseMgr.loadColumnar(exportDir, dbLocation);
+    }
+
+    @Test(expected=TDBException.class)
+    public void columnar_load_missing() {
+        DatabaseMgr.loadColumnar(exportDir, dbLocation);
+    }
+}
@@ -56,7 +56,7 @@ public class BuildTestLib {
 
         Index index = buildRangeIndex(fs, recordFactory, params);
         BinaryDataFile bdf = createBinaryDataFile(location, basename+"-data");
-        NodeTable nt = new NodeTableTRDF(index, bdf);
+        NodeTable nt = new NodeTableTRDF(index, bdf, params.isNodeHashFilter(), null);
         return nt;
     }
 
@@ -41,6 +41,10 @@ import org.apache.jena.system.Txn;
 import org.apache.jena.system.progress.MonitorOutputs;
 import org.apache.jena.tdb2.DatabaseMgr;
 import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.solver.stats.StatsResults;
+import org.apache.jena.tdb2.solver.stats.TransStats;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
 import org.apache.jena.system.progress.MonitorOutput;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -213,6 +217,59 @@ public abstract class AbstractTestLoader {
         });
     }
 
+    @Test
+    public void load_dataset_stats() {
+        DatasetGraph dsg = fresh();
+        load(dsg, maker, DIR + "data-1.nq", DIR + "data-2.nt");
+        Txn.executeRead(dsg, ()->{
+            TransStats stats = TDBInternal.getDatasetGraphTDB(dsg).getStats();
+            assertTrue(stats.isComplete());
+            StatsResults results = stats.results();
+            assertEquals(2, results.getCount());
+            assertEquals(Long.valueOf(2), results.getPredicates().get(p));
+            assertEquals(Long.valueOf(1), results.getDistinctSubjects().get(p));
+            assertEquals(Long.valueOf(2), results.getDistinctObjects().get(p));
+        });
+    }
+
+    @Test
+    public void load_dataset_stats_2() {
+        // Loading into a database with triples: the statistics are correct or not known.
+        DatasetGraph dsg = fresh();
+        load(dsg, maker, DIR + "data-2.nt");
+        load(dsg, maker, DIR + "data-2.nt");
+        Txn.executeRead(dsg, ()->{
+            TransStats stats = TDBInternal.getDatasetGraphTDB(dsg).getStats();
+            if ( stats.isValid() )
+                checkStats(stats.results());
+        });
+    }
+
+    @Test
+    public void load_dataset_stats_3() {
+        // Loading into a database with triples, recalculating the statistics if necessary.
+        DatasetGraph dsg = fresh();
+        load(dsg, maker, DIR + "data-2.nt");
+        ARQ.getContext().set(SystemTDB.symLoaderStats, true);
+        try {
+            load(dsg, maker, DIR + "data-2.nt");
+        } finally {
+            ARQ.getContext().unset(SystemTDB.symLoaderStats);
+        }
+        Txn.executeRead(dsg, ()->{
+            TransStats stats = TDBInternal.getDatasetGraphTDB(dsg).getStats();
+            assertTrue(stats.isComplete());
+            checkStats(stats.results());
+        });
+    }
+
+    private static void checkStats(StatsResults results) {
+        assertEquals(2, results.getCount());
+        assertEquals(Long.valueOf(2), results.getPredicates().get(p));
+        assertEquals(Long.valueOf(1), results.getDistinctSubjects().get(p));
+        assertEquals(Long.valueOf(2), results.getDistinctObjects().get(p));
+    }
+
     @Test
     public void load_graph_1() {
         DatasetGraph dsg = fresh();
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.apache.jena.system.Txn;
+import org.apache.jena.system.progress.MonitorOutput;
+import org.apache.jena.system.progress.MonitorOutputs;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.solver.stats.TransStats;
+import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Test of loading into a non-empty database with the merge loader. */
+public class TestLoaderMerge {
+    private static String DIR = "testing/Loader/";
+    private static MonitorOutput output = MonitorOutputs.nullOutput();
+    private static final Node g  = NodeFactory.createURI("g");
+    private static final Node gn = NodeFactory.createURI("http://example/g");
+
+    private String dbDir;
+
+    @Before public void before() {
+        dbDir = ConfigTest.getCleanDir();
+        FileOps.ensureDir(dbDir);
+        FileOps.clearAll(dbDir);
+    }
+
+    @After public void after() {
+        TDBInternal.reset();
+        FileOps.clearAll(dbDir);
+    }
+
+    private static void load(DataLoader loader, String ... dataURLs) {
+        loader.startBulk();
+        try {
+            loader.load(dataURLs);
+            loader.finishBulk();
+        }
+        catch (RuntimeException ex) {
+            loader.finishException(ex);
+            throw ex;
+        }
+    }
+
+    private static Location location(DatasetGraph dsg) {
+        return ((DatasetGraphTDB)((DatasetGraphSwitchable)dsg).get()).getLocation();
+    }
+
+    private static long countMergeDirs(String dir) throws IOException {
+        try ( Stream<Path> s = Files.list(Path.of(dir)) ) {
+            return s.filter(p->p.getFileName().toString().startsWith("merge-")).count();
+        }
+    }
+
+    @Test public void merge_empty() throws IOException {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dbDir);
+        load(LoaderFactory.mergeLoader(dsg, output), DIR + "data-1.nq", DIR + "data-2.nt");
+        Txn.executeRead(dsg, ()->{
+            assertEquals(2, dsg.getDefaultGraph().size());
+            assertEquals(1, dsg.getGraph(g).size());
+        });
+        assertEquals(0, countMergeDirs(dbDir));
+    }
+
+    @Test public void merge_nonempty() throws IOException {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dbDir);
+        load(LoaderFactory.basicLoader(dsg, output), DIR + "data-1.nq", DIR + "data-3.trig");
+        Location loc1 = location(dsg);
+        // data-1.nq again: already in the database.
+        load(LoaderFactory.mergeLoader(dsg, output), DIR + "data-1.nq", DIR + "data-2.nt");
+        Location loc2 = location(dsg);
+        assertNotEquals(loc1, loc2);
+        assertEquals(0, countMergeDirs(dbDir));
+
+        DatasetGraph expected = RDFDataMgr.loadDatasetGraph(DIR + "data-1.nq");
+        RDFDataMgr.read(expected, DIR + "data-3.trig");
+        RDFDataMgr.read(expected, DIR + "data-2.nt");
+        Txn.executeRead(dsg, ()->{
+            assertTrue("Not isomorphic", IsoMatcher.isomorphic(expected, dsg));
+            // Prefixes from the first load.
+            assertEquals("http://example/", dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI(""));
+            TransStats stats = TDBInternal.getDatasetGraphTDB(dsg).getStats();
+            assertTrue(stats.isComplete());
+            assertEquals(dsg.getDefaultGraph().size(), stats.results().getCount());
+        });
+    }
+
+    @Test public void merge_indexes() {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dbDir);
+        Quad q1 = SSE.parseQuad("(<g> <s1> <p> 1)");
+        Quad q2 = SSE.parseQuad("(<g> <s2> <q> 2)");
+        Txn.executeWrite(dsg, ()->{
+            dsg.add(q1);
+            dsg.add(SSE.parseQuad("(_ <s1> <p> 1)"));
+        });
+        load(LoaderFactory.mergeLoader(dsg, output), DIR + "data-1.nq");
+        Txn.executeWrite(dsg, ()->dsg.add(q2));
+        Txn.executeRead(dsg, ()->{
+            assertTrue(dsg.contains(q1));
+            assertTrue(dsg.contains(q2));
+            assertEquals(3, dsg.getGraph(g).size());
+            assertEquals(1, dsg.getDefaultGraph().size());
+            // Each index.
+            Node s1 = NodeFactory.createURI("s1");
+            Node p = NodeFactory.createURI("p");
+            assertEquals(2, dsg.stream(null, s1, null, null).count());
+            assertEquals(2, dsg.getGraph(g).find(null, p, null).toList().size());
+            assertEquals(1, dsg.stream(g, null, null, SSE.parseNode("2")).count());
+        });
+    }
+
+    @Test public void merge_graph() {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dbDir);
+        load(LoaderFactory.basicLoader(dsg, output), DIR + "data-2.nt");
+        load(LoaderFactory.mergeLoader(dsg, gn, output), DIR + "data-2.nt");
+        Txn.executeRead(dsg, ()->{
+            assertEquals(2, dsg.getDefaultGraph().size());
+            assertEquals(2, dsg.getGraph(gn).size());
+        });
+    }
+
+    @Test public void merge_reopen() {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dbDir);
+        load(LoaderFactory.basicLoader(dsg, output), DIR + "data-1.nq");
+        load(LoaderFactory.mergeLoader(dsg, output), DIR + "data-2.nt");
+        TDBInternal.reset();
+        DatasetGraph dsg2 = DatabaseMgr.connectDatasetGraph(dbDir);
+        Txn.executeRead(dsg2, ()->{
+            assertEquals(2, dsg2.getDefaultGraph().size());
+            assertEquals(1, dsg2.getGraph(g).size());
+        });
+    }
+
+    @Test(expected=BulkLoaderException.class)
+    public void merge_memory() {
+        LoaderFactory.mergeLoader(DatabaseMgr.createDatasetGraph(), output);
+    }
+}
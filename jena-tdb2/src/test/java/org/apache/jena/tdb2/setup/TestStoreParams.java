@@ -73,6 +73,64 @@ public class TestStoreParams {
         assertEqualsStoreParams(paramsExpected,paramsActual);
     }
 
+    @Test public void store_params_07() {
+        // Larger than an int.
+        long offHeapSize = 20L*1024*1024*1024;
+        StoreParams params = StoreParams.builder(label()).nodeCacheOffHeapSize(offHeapSize).build();
+        StoreParams params2 = roundTrip(params);
+        assertEqualsStoreParams(params, params2);
+        assertEquals(offHeapSize, params2.getNodeCacheOffHeapSize().longValue());
+        assertTrue(params2.isSetNodeCacheOffHeapSize());
+    }
+
+    @Test public void store_params_08() {
+        StoreParams params = StoreParams.builder(label()).packedIndexLeaves(true).build();
+        StoreParams params2 = roundTrip(params);
+        assertEqualsStoreParams(params, params2);
+        assertTrue(params2.isPackedIndexLeaves());
+        assertFalse(StoreParams.getDftStoreParams().isPackedIndexLeaves());
+        assertFalse(StoreParams.sameValues(params, StoreParams.getDftStoreParams()));
+    }
+
+    @Test public void store_params_09() {
+        StoreParams params = StoreParams.builder(label()).nodeHashFilter(true).build();
+        StoreParams params2 = roundTrip(params);
+        assertEqualsStoreParams(params, params2);
+        assertTrue(params2.isNodeHashFilter());
+        assertTrue(params2.isSetNodeHashFilter());
+        // Dynamic: can be changed for an existing database.
+        StoreParams params3 = StoreParamsBuilder.modify(StoreParams.getDftStoreParams(), params);
+        assertTrue(params3.isNodeHashFilter());
+    }
+
+    @Test public void store_params_15() {
+        StoreParams params = StoreParams.builder(label()).nodeDataMapped(true).build();
+        StoreParams params2 = roundTrip(params);
+        assertEqualsStoreParams(params, params2);
+        assertTrue(params2.isNodeDataMapped());
+        assertFalse(StoreParams.getDftStoreParams().isNodeDataMapped());
+        // Dynamic: can be changed for an existing database.
+        StoreParams params3 = StoreParamsBuilder.modify(StoreParams.getDftStoreParams(), params);
+        assertTrue(params3.isNodeDataMapped());
+    }
+
+    @Test public void store_params_16() {
+        // Keys added in later versions are not written when they are the default.
+        JsonObject obj = StoreParamsCodec.encodeToJson(StoreParams.getDftStoreParams());
+        assertFalse(obj.hasKey("tdb.node_cache_offheap_size"));
+        assertFalse(obj.hasKey("tdb.node_hash_filter"));
+        assertFalse(obj.hasKey("tdb.node_data_mapped"));
+        assertFalse(obj.hasKey("tdb.packed_index_leaves"));
+        assertTrue(obj.hasKey("tdb.block_size"));
+        StoreParams params2 = StoreParamsCodec.decode(obj);
+        assertEqualsStoreParams(StoreParams.getDftStoreParams(), params2);
+
+        StoreParams params = StoreParams.builder(label()).packedIndexLeaves(true).build();
+        JsonObject obj2 = StoreParamsCodec.encodeToJson(params);
+        assertTrue(obj2.hasKey("tdb.packed_index_leaves"));
+        assertFalse(obj2.hasKey("tdb.node_hash_filter"));
+    }
+
     // ----
 
     @Test public void store_params_10() {
@@ -25,6 +25,12 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses( {
     TestSolverTDB.class
     , TestStats.class
+    , TestTransStats.class
+    , TestParallelTDB2.class
+    , TestProbeBatchTDB2.class
+    , TestMergeJoinTDB2.class
+    , TestLeapfrogJoinTDB2.class
+    , TestInlineValuesTDB2.class
 })
 
 public class TS_SolverTDB
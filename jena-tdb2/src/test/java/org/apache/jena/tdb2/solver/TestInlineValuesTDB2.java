@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.function.FunctionEnvBase;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdValues;
+import org.apache.jena.tdb2.sys.SystemTDB;
+
+/** FILTER and ORDER BY on inline values evaluated on NodeIds ({@link SystemTDB#symInlineValues}). */
+public class TestInlineValuesTDB2 {
+    static DatasetGraph dsg = null;
+
+    // Values of :v, inline and not inline.
+    private static final String[] values = {
+        "0", "1", "2", "7", "-1", "-3", "-100", "12345678", "-12345678",
+        "'5'^^xsd:int", "'-5'^^xsd:short", "'200'^^xsd:unsignedByte", "'3'^^xsd:positiveInteger",
+        "123456789012345678901234567890", "-123456789012345678901234567890",
+        "2.5", "-2.5", "0.0", "'1000.125'^^xsd:decimal",
+        "1.0e0", "-1.0e0", "2.5e0", "7.0e0", "-7.5e0", "1.0e100", "-1.0e100", "1.0e300", "'-0.0e0'^^xsd:double",
+        "'INF'^^xsd:double", "'-INF'^^xsd:double", "'NaN'^^xsd:double",
+        "'2.5'^^xsd:float", "'-10.5'^^xsd:float", "'NaN'^^xsd:float",
+        "'2020-01-01T00:00:00Z'^^xsd:dateTime", "'2021-06-15T12:30:00Z'^^xsd:dateTime",
+        "'2019-12-31T23:00:00-01:00'^^xsd:dateTime", "'2020-06-01T00:00:00+05:00'^^xsd:dateTime",
+        "'2020-03-01T00:00:00'^^xsd:dateTime", "'2022-01-01T00:00:00Z'^^xsd:dateTimeStamp",
+        "'2020-01-01'^^xsd:date", "'2021-01-01Z'^^xsd:date",
+        "true", "false", "'abc'", "'5'", "<http://example/x>", "'10'^^<http://example/dt>"
+    };
+
+    // NaN, zeros and infinities.
+    private static final String[] specialValues = {
+        "'NaN'^^xsd:double", "'NaN'^^xsd:float", "'0.0e0'^^xsd:double", "'-0.0e0'^^xsd:double",
+        "'0'^^xsd:float", "'-0'^^xsd:float", "0", "0.0", "'INF'^^xsd:double", "'-INF'^^xsd:double",
+        "'INF'^^xsd:float", "'-INF'^^xsd:float", "1.0e0", "-1.0e0"
+    };
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsg = TL.createTestDatasetGraphMem();
+        Txn.executeWrite(dsg, ()->{
+            Graph g = dsg.getDefaultGraph();
+            for ( int i = 0 ; i < values.length ; i++ ) {
+                g.add(SSE.parseTriple("(:s"+i+" :v "+values[i]+")"));
+                g.add(SSE.parseTriple("(:s"+i+" :q "+(i%3)+")"));
+                dsg.add(SSE.parseQuad("(:g :s"+i+" :v "+values[i]+")"));
+            }
+            for ( int i = 0 ; i < 500 ; i++ )
+                g.add(SSE.parseTriple("(:n"+i+" :w "+(i-250)+")"));
+            for ( int i = 0 ; i < specialValues.length ; i++ )
+                g.add(SSE.parseTriple("(:z"+i+" :z "+specialValues[i]+")"));
+        });
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsg);
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> ";
+
+    private static List<Binding> exec(String queryString, boolean inlineValues) {
+        return Txn.calculateRead(dsg, ()->{
+            try ( QueryExec qExec = QueryExec.dataset(dsg).query(PREFIX+queryString)
+                                             .set(SystemTDB.symInlineValues, inlineValues).build() ) {
+                return Iter.toList(Iter.map(qExec.select(), BindingFactory::copy));
+            }
+        });
+    }
+
+    private static void testFilter(String queryString, int expectedSize) {
+        List<Binding> expected = exec(queryString, false);
+        List<Binding> actual = exec(queryString, true);
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+        assertEquals(expectedSize, expected.size());
+        assertEquals(expectedSize, actual.size());
+    }
+
+    private static void testOrder(String queryString) {
+        List<Binding> expected = exec(queryString, false);
+        List<Binding> actual = exec(queryString, true);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    @Test public void filter_integer_01() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o > 2) }", 16);
+    }
+
+    @Test public void filter_integer_02() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o < -1) }", 10);
+    }
+
+    @Test public void filter_integer_03() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o = 7) }", 2);
+    }
+
+    @Test public void filter_integer_04() {
+        // Constant first.
+        testFilter("SELECT * { ?s :v ?o FILTER(0 <= ?o) }", 21);
+    }
+
+    @Test public void filter_integer_05() {
+        testFilter("SELECT * { ?s :w ?o FILTER(?o >= -10 && ?o < 10) }", 20);
+    }
+
+    @Test public void filter_integer_06() {
+        testFilter("SELECT * { ?s :w ?o FILTER(?o >= 10) FILTER(?o <= 20) }", 11);
+    }
+
+    @Test public void filter_decimal_01() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o > 2.5) }", 13);
+    }
+
+    @Test public void filter_decimal_02() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o <= -2.5) }", 10);
+    }
+
+    @Test public void filter_double_01() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o >= 1.0e0) }", 19);
+    }
+
+    @Test public void filter_double_02() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o < -1.0e50) }", 2);
+    }
+
+    @Test public void filter_double_03() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o > 1.0e200) }", 4);
+    }
+
+    @Test public void filter_double_04() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o = 0.0e0) }", 2);
+    }
+
+    @Test public void filter_float_01() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o > '2.0'^^xsd:float) }", 16);
+    }
+
+    @Test public void filter_dateTime_01() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o >= '2020-01-01T00:00:00Z'^^xsd:dateTime) }", 5);
+    }
+
+    @Test public void filter_dateTime_02() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o < '2020-06-01T00:00:00Z'^^xsd:dateTime) }", 4);
+    }
+
+    @Test public void filter_date_01() {
+        testFilter("SELECT * { ?s :v ?o FILTER(?o > '2019-01-01'^^xsd:date) }", 2);
+    }
+
+    @Test public void filter_join_01() {
+        testFilter("SELECT * { ?s :v ?o . ?s :q ?x FILTER(?o > 0 && ?x = 1) }", 7);
+    }
+
+    @Test public void filter_join_02() {
+        // Filtered variable bound by the second pattern.
+        testFilter("SELECT * { ?s :q 2 . ?s :v ?o FILTER(?o < 0) }", 7);
+    }
+
+    @Test public void filter_graph_01() {
+        testFilter("SELECT * { GRAPH :g { ?s :v ?o FILTER(?o > 2) } }", 16);
+    }
+
+    @Test public void filter_other_01() {
+        // Not a condition on inline values.
+        testFilter("SELECT * { ?s :v ?o FILTER(?o > 'abc' || ?o > 5) }", 11);
+    }
+
+    @Test public void order_01() {
+        testOrder("SELECT * { ?s :v ?o } ORDER BY ?o");
+    }
+
+    @Test public void order_02() {
+        testOrder("SELECT * { ?s :v ?o } ORDER BY DESC(?o) ?s");
+    }
+
+    @Test public void order_03() {
+        testOrder("SELECT * { ?s :q ?x . ?s :v ?o } ORDER BY ?x DESC(?o)");
+    }
+
+    @Test public void order_04() {
+        testOrder("SELECT * { ?s :w ?o } ORDER BY DESC(?o)");
+    }
+
+    @Test public void order_05() {
+        testOrder("SELECT * { ?s :v ?o OPTIONAL { ?s :w ?z } } ORDER BY ?z ?o");
+    }
+
+    @Test public void order_06() {
+        testOrder("SELECT * { ?s :z ?o } ORDER BY ?o");
+        testOrder("SELECT * { ?s :z ?o } ORDER BY DESC(?o)");
+    }
+
+    @Test public void order_07() {
+        // The same order as NodeValue.compareAlways.
+        List<Binding> results = exec("SELECT ?o { ?s :z ?o } ORDER BY ?o", true);
+        for ( int i = 1 ; i < results.size() ; i++ ) {
+            NodeValue nv1 = NodeValue.makeNode(results.get(i-1).get("o"));
+            NodeValue nv2 = NodeValue.makeNode(results.get(i).get("o"));
+            assertTrue(NodeValue.compareAlways(nv1, nv2) <= 0);
+        }
+    }
+
+    @Test public void topN_01() {
+        testOrder("SELECT * { ?s :v ?o } ORDER BY ?o LIMIT 10");
+    }
+
+    @Test public void topN_02() {
+        testOrder("SELECT DISTINCT ?o { ?s :v ?o } ORDER BY DESC(?o) LIMIT 10");
+    }
+
+    @Test public void nodeIdFilter_create_01() {
+        assertNull(filter("(= ?x 'abc')"));
+        assertNull(filter("(< ?x ?y)"));
+        assertNull(filter("(|| (< ?x 1) (> ?x 5))"));
+        // Not an inline value.
+        assertNull(filter("(> ?x 1.0e200)"));
+        assertNotNull(filter("(< ?x 1)"));
+        assertNotNull(filter("(&& (< ?x 1) (= ?y 'abc'))"));
+    }
+
+    @Test public void nodeIdFilter_test_01() {
+        NodeIdFilter f = filter("(&& (< ?x 10) (>= ?x 2.5))");
+        Var x = Var.alloc("x");
+        assertTrue(f.test(x, inline("5")));
+        assertTrue(f.test(x, inline("2.5e0")));
+        assertFalse(f.test(x, inline("10")));
+        assertFalse(f.test(x, inline("-3")));
+        assertFalse(f.test(x, inline("'2020-01-01'^^xsd:date")));
+        // Not inline: not decided here.
+        assertTrue(f.test(x, NodeIdFactory.createPtr(1)));
+        assertTrue(f.test(Var.alloc("y"), inline("-3")));
+    }
+
+    @Test public void nodeIdFilter_ranges_01() {
+        // Every value that passes the conditions is in the ranges.
+        String[] conditions = {
+            "(< ?x 0)", "(<= ?x 7)", "(> ?x -3)", "(>= ?x 2.5)", "(= ?x 7)", "(> ?x 1.0e50)", "(< ?x -1.0e0)",
+            "(>= ?x 0.0e0)", "(< ?x '2.0'^^xsd:float)", "(&& (> ?x -100) (< ?x 100))",
+            "(< ?x '2021-01-01T00:00:00Z'^^xsd:dateTime)", "(>= ?x '2020-01-01'^^xsd:date)"
+        };
+        Var x = Var.alloc("x");
+        for ( String condition : conditions ) {
+            Expr expr = SSE.parseExpr(condition);
+            NodeIdFilter f = filter(condition);
+            assertNotNull(condition, f);
+            long[] ranges = f.ranges(x);
+            assertNotNull(condition, ranges);
+            for ( String value : values ) {
+                Node n = SSE.parseNode(value);
+                NodeId nodeId = NodeId.inline(n);
+                if ( nodeId == null )
+                    continue;
+                boolean pass = eval(expr, x, n);
+                assertEquals(condition+" "+value, pass, pass && f.test(x, nodeId));
+                if ( pass )
+                    assertTrue(condition+" "+value, contains(ranges, NodeIdFactory.encodeStored(nodeId)));
+            }
+            assertTrue(condition, contains(ranges, NodeIdFactory.encodeStored(NodeIdFactory.createPtr(123))));
+        }
+    }
+
+    // FILTER evaluation: errors are false.
+    private static boolean eval(Expr expr, Var var, Node value) {
+        try {
+            return expr.eval(BindingFactory.binding(var, value), new FunctionEnvBase()).equals(NodeValue.TRUE);
+        } catch (ExprEvalException ex) {
+            return false;
+        }
+    }
+
+    private static NodeIdFilter filter(String exprStr) {
+        return NodeIdFilter.create(new ExprList(SSE.parseExpr(exprStr)));
+    }
+
+    private static NodeId inline(String nodeStr) {
+        return NodeId.inline(SSE.parseNode(nodeStr));
+    }
+
+    private static boolean contains(long[] ranges, long x) {
+        for ( int i = 0 ; i < ranges.length ; i += 2 ) {
+            if ( Long.compareUnsigned(ranges[i], x) <= 0 && Long.compareUnsigned(x, ranges[i+1]) <= 0 )
+                return true;
+        }
+        return false;
+    }
+
+    @Test public void nodeIdValues_compare_01() {
+        assertEquals(Expr.CMP_LESS, NodeIdValues.compare(inline("-5"), inline("2.5")));
+        assertEquals(Expr.CMP_EQUAL, NodeIdValues.compare(inline("7"), inline("7.0e0")));
+        assertEquals(Expr.CMP_GREATER, NodeIdValues.compare(inline("'-1.0e0'^^xsd:double"), inline("'-INF'^^xsd:double")));
+        assertEquals(NodeIdValues.INCOMPATIBLE, NodeIdValues.compare(inline("7"), inline("'2020-01-01'^^xsd:date")));
+        assertEquals(NodeIdValues.UNKNOWN, NodeIdValues.compare(inline("'2020-01-01T00:00:00Z'^^xsd:dateTime"),
+                                                                inline("'2020-01-01T00:00:00+01:00'^^xsd:dateTime")));
+        assertEquals(NodeIdValues.UNKNOWN, NodeIdValues.compare(inline("7"), NodeIdFactory.createPtr(1)));
+    }
+
+    @Test public void nodeIdValues_compare_02() {
+        // NaN and zeros are left to NodeValue.
+        assertEquals(NodeIdValues.UNKNOWN, NodeIdValues.compare(inline("'NaN'^^xsd:double"), inline("'INF'^^xsd:double")));
+        assertEquals(NodeIdValues.UNKNOWN, NodeIdValues.compare(inline("1"), inline("'NaN'^^xsd:double")));
+        assertEquals(NodeIdValues.UNKNOWN, NodeIdValues.compare(inline("'NaN'^^xsd:float"), inline("'2.5'^^xsd:float")));
+        assertEquals(NodeIdValues.UNKNOWN, NodeIdValues.compare(inline("'-0.0e0'^^xsd:double"), inline("'0.0e0'^^xsd:double")));
+        assertEquals(NodeIdValues.UNKNOWN, NodeIdValues.compare(inline("'-0'^^xsd:float"), inline("0")));
+        assertEquals(Expr.CMP_LESS, NodeIdValues.compare(inline("'-0.0e0'^^xsd:double"), inline("1.0e0")));
+        assertEquals(Expr.CMP_GREATER, NodeIdValues.compare(inline("'0'^^xsd:float"), inline("'-INF'^^xsd:float")));
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+
+/** Worst-case optimal join of cyclic basic graph patterns ({@link SystemTDB#symLeapfrogJoin}). */
+public class TestLeapfrogJoinTDB2 {
+    static DatasetGraph dsg = null;
+    static final int N = 200;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsg = TL.createTestDatasetGraphMem();
+        Txn.executeWrite(dsg, ()->{
+            Graph g = dsg.getDefaultGraph();
+            for ( int i = 0 ; i < N ; i++ ) {
+                int[] targets = { (i+1)%N, (i+2)%N, (i+N-3)%N, (i*7+3)%N };
+                for ( int j : targets ) {
+                    g.add(SSE.parseTriple("(:n"+i+" :knows :n"+j+")"));
+                    dsg.add(SSE.parseQuad("(:g2 :n"+i+" :knows :n"+j+")"));
+                    if ( i % 2 == 0 || j % 2 == 0 )
+                        dsg.add(SSE.parseQuad("(:g1 :n"+i+" :knows :n"+j+")"));
+                }
+                if ( i % 3 == 0 )
+                    g.add(SSE.parseTriple("(:n"+i+" :pays :n"+(i+2)%N+")"));
+            }
+        });
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsg);
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+
+    private static List<Binding> exec(String queryString, boolean leapfrogJoin) {
+        return Txn.calculateRead(dsg, ()->{
+            try ( QueryExec qExec = QueryExec.dataset(dsg).query(PREFIX+queryString)
+                                             .set(SystemTDB.symLeapfrogJoin, leapfrogJoin).build() ) {
+                return Iter.toList(Iter.map(qExec.select(), BindingFactory::copy));
+            }
+        });
+    }
+
+    private static void test(String queryString, int expectedSize) {
+        List<Binding> expected = exec(queryString, false);
+        List<Binding> actual = exec(queryString, true);
+        assertEquals(expectedSize, expected.size());
+        assertEquals(expectedSize, actual.size());
+        // Order is not preserved. The test queries do not have duplicates.
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
+    private static List<Tuple<Node>> patterns(String... triples) {
+        List<Tuple<Node>> patterns = new ArrayList<>();
+        for ( String str : triples ) {
+            Triple t = SSE.parseTriple(str);
+            patterns.add(TupleFactory.create3(t.getSubject(), t.getPredicate(), t.getObject()));
+        }
+        return patterns;
+    }
+
+    private static Iterator<BindingNodeId> access(List<Tuple<Node>> patterns) {
+        return Txn.calculateRead(dsg, ()->{
+            DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+            NodeTupleTable ntt = dsgtdb.getTripleTable().getNodeTupleTable();
+            ExecutionContext execCxt = new ExecutionContext(dsg);
+            return StageLeapfrogJoin.access(ntt, patterns, Iter.singletonIterator(new BindingNodeId()), execCxt);
+        });
+    }
+
+    @Test public void leapfrog_cyclic_01() {
+        assertTrue(StageLeapfrogJoin.isCyclic(patterns("(?a :p ?b)", "(?b :p ?c)", "(?c :p ?a)")));
+        assertTrue(StageLeapfrogJoin.isCyclic(patterns("(?a :p ?b)", "(?b :p ?c)", "(?c :p ?d)", "(?d :p ?a)")));
+        // Chain, star.
+        assertFalse(StageLeapfrogJoin.isCyclic(patterns("(?a :p ?b)", "(?b :p ?c)", "(?c :p ?d)")));
+        assertFalse(StageLeapfrogJoin.isCyclic(patterns("(?s :p ?a)", "(?s :p ?b)", "(?s :p ?c)")));
+        // Cycle covered by one pattern.
+        assertFalse(StageLeapfrogJoin.isCyclic(patterns("(?a ?b ?c)", "(?a :p ?b)", "(?b :p ?c)", "(?c :p ?a)")));
+        // Constant breaks the cycle.
+        assertFalse(StageLeapfrogJoin.isCyclic(patterns("(:x :p ?b)", "(?b :p ?c)", "(?c :p :x)")));
+    }
+
+    @Test public void leapfrog_choose_01() {
+        // Triangle: SPO for one direction, POS or OSP for the other.
+        assertNotNull(access(patterns("(?a :knows ?b)", "(?b :knows ?c)", "(?c :knows ?a)")));
+        // Repeated variable in a pattern.
+        assertNull(access(patterns("(?a :knows ?a)", "(?a :knows ?c)", "(?c :knows ?a)")));
+    }
+
+    @Test public void leapfrog_01() {
+        test("SELECT * { ?a :knows ?b . ?b :knows ?c . ?c :knows ?a }", 1200);
+    }
+
+    @Test public void leapfrog_02() {
+        // Different predicates.
+        test("SELECT * { ?a :knows ?b . ?b :knows ?c . ?a :pays ?c }", 67);
+    }
+
+    @Test public void leapfrog_03() {
+        // 4-cycle.
+        test("SELECT * { ?a :knows ?b . ?b :knows ?c . ?c :knows ?d . ?d :knows ?a }", 1128);
+    }
+
+    @Test public void leapfrog_04() {
+        // Variable predicate.
+        test("SELECT * { ?a ?p ?b . ?b :knows ?c . ?c :knows ?a }", 1334);
+    }
+
+    @Test public void leapfrog_05() {
+        // Named graphs.
+        test("SELECT * { GRAPH :g1 { ?a :knows ?b . ?b :knows ?c . ?c :knows ?a } }", 600);
+        test("SELECT * { GRAPH ?g { ?a :knows ?b . ?b :knows ?c . ?c :knows ?a } }", 1800);
+    }
+
+    @Test public void leapfrog_06() {
+        // Input bindings.
+        test("SELECT * { VALUES ?a { :n1 :n2 } ?a :knows ?b . ?b :knows ?c . ?c :knows ?a }", 12);
+    }
+
+    @Test public void leapfrog_07() {
+        // Unknown term.
+        test("SELECT * { ?a :knows ?b . ?b :knows ?c . ?c :unknown ?a }", 0);
+    }
+}
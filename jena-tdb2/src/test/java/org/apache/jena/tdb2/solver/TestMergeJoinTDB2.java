@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorCloseable;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+
+/** Merge join of the first two patterns of a basic graph pattern ({@link SystemTDB#symMergeJoin}). */
+public class TestMergeJoinTDB2 {
+    static DatasetGraph dsg = null;
+    static final int N = 5000;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsg = TL.createTestDatasetGraphMem();
+        Txn.executeWrite(dsg, ()->{
+            Graph g = dsg.getDefaultGraph();
+            for ( int i = 0 ; i < N ; i++ ) {
+                g.add(SSE.parseTriple("(:s"+i+" :p "+(i%100)+")"));
+                g.add(SSE.parseTriple("(:s"+i+" :q :o"+(i%10)+")"));
+                if ( i % 3 == 0 )
+                    g.add(SSE.parseTriple("(:s"+i+" :r :o"+(i%7)+")"));
+                if ( i % 50 == 0 )
+                    g.add(SSE.parseTriple("(:x"+i+" :v "+(i%200)+")"));
+            }
+            g.add(SSE.parseTriple("(:s5 :p :s5)"));
+            g.add(SSE.parseTriple("(:s5 :q :s5)"));
+            for ( int i = 0 ; i < N ; i += 7 ) {
+                dsg.add(SSE.parseQuad("(:g1 :s"+i+" :q :o"+(i%10)+")"));
+                dsg.add(SSE.parseQuad("(:g1 :s"+i+" :r :o"+(i%10)+")"));
+                dsg.add(SSE.parseQuad("(:g2 :s"+i+" :q :o"+(i%10)+")"));
+            }
+        });
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsg);
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+
+    private static List<Binding> exec(String queryString, boolean mergeJoin) {
+        return Txn.calculateRead(dsg, ()->{
+            try ( QueryExec qExec = QueryExec.dataset(dsg).query(PREFIX+queryString)
+                                             .set(SystemTDB.symMergeJoin, mergeJoin).build() ) {
+                return Iter.toList(Iter.map(qExec.select(), BindingFactory::copy));
+            }
+        });
+    }
+
+    private static void test(String queryString, int expectedSize) {
+        List<Binding> expected = exec(queryString, false);
+        List<Binding> actual = exec(queryString, true);
+        assertEquals(expectedSize, expected.size());
+        assertEquals(expectedSize, actual.size());
+        // Order is not preserved. The test queries do not have duplicates.
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
+    private static boolean isMergeJoin(String triple1, String triple2) {
+        Triple t1 = SSE.parseTriple(triple1);
+        Triple t2 = SSE.parseTriple(triple2);
+        return Txn.calculateRead(dsg, ()->{
+            DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+            NodeTupleTable ntt = dsgtdb.getTripleTable().getNodeTupleTable();
+            Tuple<Node> pattern1 = TupleFactory.create3(t1.getSubject(), t1.getPredicate(), t1.getObject());
+            Tuple<Node> pattern2 = TupleFactory.create3(t2.getSubject(), t2.getPredicate(), t2.getObject());
+            ExecutionContext execCxt = new ExecutionContext(dsg);
+            return StageMergeJoin.access(ntt, pattern1, pattern2, null, execCxt) != null;
+        });
+    }
+
+    @Test public void mergeJoin_choose_01() {
+        // POS and POS, ordered by S.
+        assertTrue(isMergeJoin("(?s :q :o3)", "(?s :r :o2)"));
+        // POS and POS, ordered by O.
+        assertTrue(isMergeJoin("(?s :p ?o)", "(?x :v ?o)"));
+        // No P?S index.
+        assertFalse(isMergeJoin("(?s :p ?o)", "(?s :q ?z)"));
+        // No shared variable.
+        assertFalse(isMergeJoin("(?s :p ?o)", "(?x :q ?z)"));
+    }
+
+    @Test public void mergeJoin_01() {
+        // Subject star, objects set.
+        test("SELECT * { ?s :q :o3 . ?s :r :o2 }", 24);
+    }
+
+    @Test public void mergeJoin_02() {
+        // Join on the object.
+        test("SELECT * { ?x :v ?o . ?s :p ?o }", 2500);
+    }
+
+    @Test public void mergeJoin_03() {
+        // More patterns after the merge join.
+        test("SELECT * { ?s :q :o3 . ?s :r :o2 . ?s :p ?v }", 24);
+    }
+
+    @Test public void mergeJoin_04() {
+        // Shared variable, other than the join variable.
+        test("SELECT * { ?s :p ?o . ?s :q ?o }", 1);
+        test("SELECT * { ?x :p ?y . ?z :q ?y }", 1);
+    }
+
+    @Test public void mergeJoin_05() {
+        // Repeated variable in a pattern.
+        test("SELECT * { ?s :p ?s . ?x :q ?s }", 1);
+    }
+
+    @Test public void mergeJoin_06() {
+        // Join on ?s, ?g in both.
+        test("SELECT * { GRAPH ?g { ?s :q :o0 . ?s :r :o0 } }", (N+69)/70);
+        test("SELECT * { GRAPH :g1 { ?s :q :o0 . ?s :r :o0 } }", (N+69)/70);
+    }
+
+    @Test public void mergeJoin_07() {
+        // Unknown term.
+        test("SELECT * { ?s :q :o3 . ?s :r :unknown }", 0);
+    }
+
+    // Index scans that count how many are open.
+    private static class Scans implements Function<NodeId, Iterator<Tuple<NodeId>>> {
+        private final List<Tuple<NodeId>> tuples;
+        int open = 0;
+        int opened = 0;
+
+        Scans(List<Tuple<NodeId>> tuples) {
+            this.tuples = tuples;
+        }
+
+        @Override
+        public Iterator<Tuple<NodeId>> apply(NodeId target) {
+            open++;
+            opened++;
+            Iterator<Tuple<NodeId>> iter = tuples.stream()
+                    .filter(t->target == null || NodeIdFactory.compareStored(t.get(0), target) >= 0).iterator();
+            return new IteratorCloseable<>() {
+                boolean closed = false;
+                @Override public boolean hasNext() { return iter.hasNext(); }
+                @Override public Tuple<NodeId> next() { return iter.next(); }
+                @Override public void close() {
+                    if ( !closed )
+                        open--;
+                    closed = true;
+                }
+            };
+        }
+    }
+
+    private static List<Tuple<NodeId>> tuples(int step, int n) {
+        List<Tuple<NodeId>> tuples = new ArrayList<>();
+        for ( int i = 0 ; i < n ; i++ )
+            tuples.add(TupleFactory.create3(NodeIdFactory.createPtr(i*step), NodeIdFactory.createPtr(1000), NodeIdFactory.createPtr(i)));
+        return tuples;
+    }
+
+    @Test public void mergeJoin_close_01() {
+        // Every skip opens a new scan; the one before is closed.
+        Scans scans1 = new Scans(tuples(1, 1000));
+        Scans scans2 = new Scans(tuples(100, 10));
+        Var[] vars1 = { Var.alloc("s"), null, Var.alloc("o1") };
+        Var[] vars2 = { Var.alloc("s"), null, Var.alloc("o2") };
+        StageMergeJoin.IteratorMergeJoin iter =
+                new StageMergeJoin.IteratorMergeJoin(scans1, 0, vars1, scans2, 0, vars2, null, new BindingNodeId());
+        assertEquals(10, Iter.count(iter));
+        assertTrue(scans1.opened > 2);
+        assertEquals(0, scans1.open);
+        assertEquals(0, scans2.open);
+    }
+
+    @Test public void mergeJoin_close_02() {
+        // Closed before the end.
+        Scans scans1 = new Scans(tuples(1, 1000));
+        Scans scans2 = new Scans(tuples(100, 10));
+        Var[] vars1 = { Var.alloc("s"), null, Var.alloc("o1") };
+        Var[] vars2 = { Var.alloc("s"), null, Var.alloc("o2") };
+        StageMergeJoin.IteratorMergeJoin iter =
+                new StageMergeJoin.IteratorMergeJoin(scans1, 0, vars1, scans2, 0, vars2, null, new BindingNodeId());
+        iter.next();
+        iter.next();
+        iter.close();
+        assertFalse(iter.hasNext());
+        assertEquals(0, scans1.open);
+        assertEquals(0, scans2.open);
+    }
+}
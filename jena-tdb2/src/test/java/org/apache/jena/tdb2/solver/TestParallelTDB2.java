@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.TL;
+
+/** Intra-query parallel execution ({@link ARQ#parallelism}) on TDB2. */
+public class TestParallelTDB2 {
+    static DatasetGraph dsg = null;
+    static final int N = 5000;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsg = TL.createTestDatasetGraphMem();
+        Txn.executeWrite(dsg, ()->{
+            Graph g = dsg.getDefaultGraph();
+            for ( int i = 0 ; i < N ; i++ ) {
+                g.add(SSE.parseTriple("(:s"+i+" :p "+i+")"));
+                g.add(SSE.parseTriple("(:s"+i+" :q :o"+(i%10)+")"));
+            }
+        });
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsg);
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+
+    private static List<Binding> exec(String queryString, int parallelism) {
+        return Txn.calculateRead(dsg, ()->{
+            try ( QueryExec qExec = QueryExec.dataset(dsg).query(PREFIX+queryString)
+                                             .set(ARQ.parallelism, parallelism).build() ) {
+                // Copy: TDB2 bindings resolve nodes lazily, inside the transaction.
+                return Iter.toList(Iter.map(qExec.select(), BindingFactory::copy));
+            }
+        });
+    }
+
+    private static void test(String queryString, int expectedSize) {
+        List<Binding> expected = exec(queryString, 0);
+        List<Binding> actual = exec(queryString, 4);
+        assertEquals(expectedSize, expected.size());
+        assertEquals(expectedSize, actual.size());
+        // Order is not preserved. The test queries do not have duplicates.
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
+    @Test public void parallel_bgp_01() {
+        test("SELECT * { ?s ?p ?o }", 2*N);
+    }
+
+    @Test public void parallel_bgp_02() {
+        test("SELECT * { ?s :p ?o . ?s :q ?z }", N);
+    }
+
+    @Test public void parallel_bgp_03() {
+        test("SELECT * { ?s :q :o3 . ?s :p ?o }", N/10);
+    }
+
+    @Test public void parallel_union_01() {
+        test("SELECT * { { ?s :p ?o } UNION { ?s :q ?o } }", 2*N);
+    }
+
+    @Test public void parallel_order_01() {
+        // ORDER BY above parallel execution.
+        List<Binding> expected = exec("SELECT * { ?s :p ?o } ORDER BY ?o", 0);
+        List<Binding> actual = exec("SELECT * { ?s :p ?o } ORDER BY ?o", 4);
+        assertEquals(expected, actual);
+    }
+
+    @Test public void parallel_limit_01() {
+        // Stop early.
+        List<Binding> actual = exec("SELECT * { ?s ?p ?o } LIMIT 10", 4);
+        assertEquals(10, actual.size());
+    }
+}
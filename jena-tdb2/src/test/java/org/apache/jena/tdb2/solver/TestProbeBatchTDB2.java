@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.QueryExec;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.sys.SystemTDB;
+
+/** Input rows looked up in blocks ({@link SystemTDB#symProbeBatchSize}) give the same results, in the same order. */
+public class TestProbeBatchTDB2 {
+    static DatasetGraph dsg = null;
+    static final int N = 5000;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dsg = TL.createTestDatasetGraphMem();
+        Txn.executeWrite(dsg, ()->{
+            Graph g = dsg.getDefaultGraph();
+            for ( int i = 0 ; i < N ; i++ ) {
+                g.add(SSE.parseTriple("(:s"+i+" :p "+i+")"));
+                g.add(SSE.parseTriple("(:s"+i+" :q :o"+(i%10)+")"));
+                if ( i % 3 == 0 )
+                    g.add(SSE.parseTriple("(:s"+i+" :r :s"+(N-i-1)+")"));
+            }
+            for ( int i = 0 ; i < N ; i += 7 ) {
+                dsg.add(SSE.parseQuad("(:g1 :s"+i+" :q :o"+(i%10)+")"));
+                dsg.add(SSE.parseQuad("(:g2 :s"+i+" :q :o"+(i%10)+")"));
+            }
+        });
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dsg);
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> ";
+
+    private static List<Binding> exec(String queryString, int batchSize, boolean unionDefaultGraph) {
+        return Txn.calculateRead(dsg, ()->{
+            try ( QueryExec qExec = QueryExec.dataset(dsg).query(PREFIX+queryString)
+                                             .set(SystemTDB.symProbeBatchSize, batchSize)
+                                             .set(TDB2.symUnionDefaultGraph, unionDefaultGraph).build() ) {
+                return Iter.toList(Iter.map(qExec.select(), BindingFactory::copy));
+            }
+        });
+    }
+
+    private static void test(String queryString, int expectedSize) {
+        test(queryString, expectedSize, false);
+    }
+
+    private static void test(String queryString, int expectedSize, boolean unionDefaultGraph) {
+        List<Binding> expected = exec(queryString, 1, unionDefaultGraph);
+        List<Binding> actual = exec(queryString, SystemTDB.DefaultProbeBatchSize, unionDefaultGraph);
+        List<Binding> actual2 = exec(queryString, 10, unionDefaultGraph);
+        assertEquals(expectedSize, expected.size());
+        assertEquals(expected, actual);
+        assertEquals(expected, actual2);
+    }
+
+    @Test public void probeBatch_01() {
+        test("SELECT * { ?s :q :o3 . ?s :p ?o }", N/10);
+    }
+
+    @Test public void probeBatch_02() {
+        // Lookups in reverse key order.
+        test("SELECT * { ?s :r ?x . ?x :p ?o }", (N+2)/3);
+    }
+
+    @Test public void probeBatch_03() {
+        // All slots set.
+        test("SELECT * { ?s :r ?x . ?s :p ?o . ?x :q :o1 }", 167);
+    }
+
+    @Test public void probeBatch_04() {
+        // Different slots set, and an unknown term.
+        test("SELECT * { VALUES (?s ?o) { (:s1 UNDEF) (:zzz UNDEF) (:s2 2) (:s3 99) (UNDEF 4) } ?s :p ?o }", 3);
+    }
+
+    @Test public void probeBatch_05() {
+        test("SELECT * { GRAPH ?g { ?s :q :o0 } ?s :p ?o }", 2*((N+69)/70));
+    }
+
+    @Test public void probeBatch_06() {
+        // Union default graph: quads to distinct triples.
+        test("SELECT * { ?s :q :o0 . ?s :q ?z }", (N+69)/70, true);
+    }
+
+    @Test public void probeBatch_limit_01() {
+        List<Binding> actual = exec("SELECT * { ?s :q ?z . ?s :p ?o } LIMIT 10", SystemTDB.DefaultProbeBatchSize, false);
+        assertEquals(10, actual.size());
+    }
+}
@@ -19,15 +19,21 @@
 package org.apache.jena.tdb2.solver;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Iterator;
 
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.system.Txn;
+import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.engine.optimizer.StatsMatcher;
 import org.apache.jena.sparql.sse.SSE;
 import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.solver.stats.Stats;
+import org.apache.jena.tdb2.solver.stats.StatsCollector;
 import org.apache.jena.tdb2.solver.stats.StatsCollectorNodeId;
 import org.apache.jena.tdb2.solver.stats.StatsResults;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
@@ -116,4 +122,44 @@ public class TestStats {
         assertEquals(1, r.getPredicates().keySet().size());
     }
 
+    @Test
+    public void stats_05() {
+        // Named graphs: <s> <p> 1, 2, 9
+        StatsResults r = statsForGraph(null);
+        Node p = NodeFactory.createURI("p");
+        assertEquals(1L, r.getDistinctSubjects().get(p).longValue());
+        assertEquals(3L, r.getDistinctObjects().get(p).longValue());
+    }
+
+    @Test
+    public void stats_06() {
+        // Written as patterns for a bound subject, bound object, for cost-based planning.
+        StatsResults r = statsForGraph(null);
+        assertFalse(Stats.format(r, false).toString().contains("TERM"));
+        StatsMatcher matcher = new StatsMatcher(Stats.format(r, true));
+        assertEquals(3.0, matcher.match(SSE.parseTriple("(<s> <p> ?o)")), 0);
+        assertEquals(1.0, matcher.match(SSE.parseTriple("(?s <p> 9)")), 0);
+        assertEquals(3.0, matcher.match(SSE.parseTriple("(?s <p> ?o)")), 0);
+    }
+
+    @Test
+    public void stats_07() {
+        // Distinct counts beyond exact counting.
+        StatsCollector stats = new StatsCollector();
+        Node p = NodeFactory.createURI("http://example/p");
+        Node o = NodeFactory.createURI("http://example/o");
+        int N = 20_000;
+        for ( int i = 0 ; i < N ; i++ ) {
+            Node s = NodeFactory.createURI("http://example/s" + i);
+            stats.record(null, s, p, o);
+            stats.record(null, s, p, NodeFactory.createURI("http://example/o" + (i % 100)));
+        }
+        StatsResults r = stats.results();
+        assertEquals(2 * N, r.getPredicates().get(p).longValue());
+        long numSubj = r.getDistinctSubjects().get(p);
+        assertTrue("Estimate: " + numSubj, Math.abs(numSubj - N) < N / 10);
+        long numObj = r.getDistinctObjects().get(p);
+        assertTrue("Estimate: " + numObj, Math.abs(numObj - 101) < 10);
+    }
+
 }
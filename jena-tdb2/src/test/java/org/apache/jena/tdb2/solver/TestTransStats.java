@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderWeighted;
+import org.apache.jena.sparql.graph.NodeConst;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.solver.stats.StatsResults;
+import org.apache.jena.tdb2.solver.stats.TransStats;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Statistics maintained by write transactions */
+public class TestTransStats {
+    private static Node p = SSE.parseNode("<http://example/p>");
+    private static Node q = SSE.parseNode("<http://example/q>");
+    private static Node c = SSE.parseNode("<http://example/C>");
+
+    private DatasetGraph dsg;
+    private DatasetGraphTDB dsgtdb;
+
+    @Before public void before() {
+        dsg = DatabaseMgr.createDatasetGraph();
+        dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+    }
+
+    private static void add(DatasetGraph dsg, String... triples) {
+        Txn.executeWrite(dsg, ()->{
+            for ( String str : triples ) {
+                Triple t = SSE.parseTriple(str);
+                dsg.getDefaultGraph().add(t);
+            }
+        });
+    }
+
+    private static void delete(DatasetGraph dsg, String... triples) {
+        Txn.executeWrite(dsg, ()->{
+            for ( String str : triples ) {
+                Triple t = SSE.parseTriple(str);
+                dsg.getDefaultGraph().delete(t);
+            }
+        });
+    }
+
+    private static StatsResults results(DatasetGraph dsg) {
+        TransStats stats = TDBInternal.getDatasetGraphTDB(dsg).getStats();
+        return Txn.calculateRead(dsg, stats::results);
+    }
+
+    private static void check(StatsResults results, Node predicate, long count, long subjects, long objects) {
+        assertEquals(Long.valueOf(count), results.getPredicates().get(predicate));
+        assertEquals(Long.valueOf(subjects), results.getDistinctSubjects().get(predicate));
+        assertEquals(Long.valueOf(objects), results.getDistinctObjects().get(predicate));
+    }
+
+    @Test public void transStats_01() {
+        StatsResults results = results(dsg);
+        assertEquals(0, results.getCount());
+        assertTrue(results.getPredicates().isEmpty());
+    }
+
+    @Test public void transStats_02() {
+        add(dsg, "(:s1 :p 1)", "(:s1 :p 2)", "(:s2 :p 1)", "(:s1 :q 1)");
+        StatsResults results = results(dsg);
+        assertEquals(4, results.getCount());
+        check(results, p, 3, 2, 2);
+        check(results, q, 1, 1, 1);
+    }
+
+    @Test public void transStats_03() {
+        // Adding a triple already present, or deleting one not present, is not a change.
+        add(dsg, "(:s1 :p 1)", "(:s1 :p 1)");
+        add(dsg, "(:s1 :p 1)");
+        delete(dsg, "(:s1 :p 2)");
+        StatsResults results = results(dsg);
+        assertEquals(1, results.getCount());
+        check(results, p, 1, 1, 1);
+    }
+
+    @Test public void transStats_04() {
+        add(dsg, "(:s1 :p 1)", "(:s1 :p 2)", "(:s2 :p 1)", "(:s1 :q 1)");
+        delete(dsg, "(:s1 :p 1)", "(:s1 :q 1)");
+        StatsResults results = results(dsg);
+        assertEquals(2, results.getCount());
+        check(results, p, 2, 2, 2);
+        assertFalse(results.getPredicates().containsKey(q));
+        delete(dsg, "(:s2 :p 1)");
+        check(results(dsg), p, 1, 1, 1);
+    }
+
+    @Test public void transStats_05() {
+        // Types
+        add(dsg, "(:s1 rdf:type :C)", "(:s2 rdf:type :C)", "(:s2 rdf:type :D)");
+        StatsResults results = results(dsg);
+        assertEquals(Long.valueOf(2), results.getTypes().get(c));
+        check(results, NodeConst.nodeRDFType, 3, 2, 2);
+        delete(dsg, "(:s1 rdf:type :C)");
+        assertEquals(Long.valueOf(1), results(dsg).getTypes().get(c));
+    }
+
+    @Test public void transStats_05a() {
+        // rdf:type is added to the node table during the transaction.
+        add(dsg, "(:s1 :p 1)", "(:s2 :p 2)", "(:s1 rdf:type :C)", "(:s1 :p 3)", "(:s2 rdf:type :C)");
+        StatsResults results = results(dsg);
+        assertEquals(Long.valueOf(2), results.getTypes().get(c));
+        check(results, NodeConst.nodeRDFType, 2, 2, 1);
+    }
+
+    @Test public void transStats_06() {
+        // Abort
+        add(dsg, "(:s1 :p 1)");
+        dsg.begin(TxnType.WRITE);
+        dsg.getDefaultGraph().add(SSE.parseTriple("(:s1 :p 2)"));
+        assertEquals(2, dsgtdb.getStats().getCount());
+        dsg.abort();
+        dsg.end();
+        StatsResults results = results(dsg);
+        assertEquals(1, results.getCount());
+        check(results, p, 1, 1, 1);
+    }
+
+    @Test public void transStats_07() {
+        // removeAll and clear
+        add(dsg, "(:s1 :p 1)", "(:s1 :p 2)", "(:s2 :q 1)");
+        Txn.executeWrite(dsg, ()->dsg.getDefaultGraph().remove(null, p, null));
+        StatsResults results = results(dsg);
+        assertEquals(1, results.getCount());
+        assertFalse(results.getPredicates().containsKey(p));
+        Txn.executeWrite(dsg, ()->dsg.getDefaultGraph().clear());
+        assertEquals(0, results(dsg).getCount());
+    }
+
+    @Test public void transStats_08() {
+        // Recalculate gives the same statistics.
+        add(dsg, "(:s1 :p 1)", "(:s1 :p 2)", "(:s2 :p 1)", "(:s1 :q 1)", "(:s1 rdf:type :C)");
+        StatsResults results1 = results(dsg);
+        Txn.executeWrite(dsg, ()->dsgtdb.getStats().recalculate());
+        StatsResults results2 = results(dsg);
+        assertEquals(results1.getCount(), results2.getCount());
+        assertEquals(results1.getPredicates(), results2.getPredicates());
+        assertEquals(results1.getDistinctSubjects(), results2.getDistinctSubjects());
+        assertEquals(results1.getDistinctObjects(), results2.getDistinctObjects());
+        assertEquals(results1.getTypes(), results2.getTypes());
+    }
+
+    @Test public void transStats_09() {
+        // Live statistics for the optimizer when there is data, if asked for.
+        ARQ.getContext().set(SystemTDB.symStatsReorder, true);
+        DatasetGraph dsg1 = DatabaseMgr.createDatasetGraph();
+        try {
+            DatasetGraphTDB dsgtdb1 = TDBInternal.getDatasetGraphTDB(dsg1);
+            assertSame(SystemTDB.getDefaultReorderTransform(), dsgtdb1.getReorderTransform());
+            add(dsg1, "(:s1 :p 1)");
+            assertTrue(dsgtdb1.getReorderTransform() instanceof ReorderWeighted);
+            // Same statistics, same transformation.
+            assertSame(dsgtdb1.getReorderTransform(), dsgtdb1.getReorderTransform());
+        } finally {
+            ARQ.getContext().unset(SystemTDB.symStatsReorder);
+            TDBInternal.expel(dsg1);
+        }
+    }
+
+    @Test public void transStats_09a() {
+        // Default: the fixed reorder transformation.
+        add(dsg, "(:s1 :p 1)");
+        assertFalse(dsgtdb.getReorderTransform() instanceof ReorderWeighted);
+    }
+
+    @Test public void transStats_12() {
+        // Several changes to the same subject and object in one transaction.
+        add(dsg, "(:s1 :p 1)", "(:s1 :p 2)");
+        Txn.executeWrite(dsg, ()->{
+            dsg.getDefaultGraph().delete(SSE.parseTriple("(:s1 :p 1)"));
+            dsg.getDefaultGraph().delete(SSE.parseTriple("(:s1 :p 2)"));
+            dsg.getDefaultGraph().add(SSE.parseTriple("(:s1 :p 1)"));
+            dsg.getDefaultGraph().add(SSE.parseTriple("(:s2 :p 3)"));
+            dsg.getDefaultGraph().add(SSE.parseTriple("(:s2 :p 4)"));
+            dsg.getDefaultGraph().delete(SSE.parseTriple("(:s2 :p 4)"));
+        });
+        StatsResults results = results(dsg);
+        assertEquals(2, results.getCount());
+        check(results, p, 2, 2, 2);
+        // A predicate removed then added again.
+        Txn.executeWrite(dsg, ()->{
+            dsg.getDefaultGraph().delete(SSE.parseTriple("(:s1 :p 1)"));
+            dsg.getDefaultGraph().delete(SSE.parseTriple("(:s2 :p 3)"));
+            dsg.getDefaultGraph().add(SSE.parseTriple("(:s1 :p 1)"));
+        });
+        check(results(dsg), p, 1, 1, 1);
+    }
+
+    @Test public void transStats_13() {
+        // More changes than are kept before the distinct counts are updated.
+        int N = TransStats.MaxPending;
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < N ; i++ )
+                dsg.getDefaultGraph().add(SSE.parseTriple("(:s"+(i%10)+" :p "+i+")"));
+            // Seen in the transaction.
+            check(dsgtdb.getStats().results(), p, N, 10, N);
+        });
+        check(results(dsg), p, N, 10, N);
+    }
+
+    @Test public void transStats_10() {
+        // Statistics are persistent.
+        Location location = Location.create(ConfigTest.getCleanDir());
+        DatasetGraph dsg1 = DatabaseMgr.connectDatasetGraph(location);
+        try {
+            add(dsg1, "(:s1 :p 1)", "(:s1 :p 2)", "(:s2 :q 1)");
+            TDBInternal.expel(dsg1);
+            DatasetGraph dsg2 = DatabaseMgr.connectDatasetGraph(location);
+            StatsResults results = results(dsg2);
+            assertEquals(3, results.getCount());
+            check(results, p, 2, 1, 2);
+            check(results, q, 1, 1, 1);
+            TDBInternal.expel(dsg2);
+        } finally {
+            FileOps.clearAll(location.getDirectoryPath());
+        }
+    }
+
+    @Test public void transStats_11() {
+        // A database without statistics: not known until recalculated.
+        Location location = Location.create(ConfigTest.getCleanDir());
+        DatasetGraph dsg1 = DatabaseMgr.connectDatasetGraph(location);
+        try {
+            add(dsg1, "(:s1 :p 1)", "(:s1 :p 2)");
+            Location storage = TDBInternal.getDatasetGraphTDB(dsg1).getLocation();
+            TDBInternal.expel(dsg1);
+            FileOps.delete(storage.getPath(Names.statsBaseName, Names.extState));
+
+            DatasetGraph dsg2 = DatabaseMgr.connectDatasetGraph(location);
+            DatasetGraphTDB dsgtdb2 = TDBInternal.getDatasetGraphTDB(dsg2);
+            assertFalse(dsgtdb2.getStats().isValid());
+            assertNull(results(dsg2));
+            assertSame(SystemTDB.getDefaultReorderTransform(), dsgtdb2.getReorderTransform());
+            // Changes do not make the statistics known.
+            add(dsg2, "(:s1 :p 3)");
+            assertNull(results(dsg2));
+
+            Txn.executeWrite(dsg2, ()->dsgtdb2.getStats().recalculate());
+            StatsResults results = results(dsg2);
+            assertEquals(3, results.getCount());
+            check(results, p, 3, 1, 3);
+            TDBInternal.expel(dsg2);
+        } finally {
+            FileOps.clearAll(location.getDirectoryPath());
+        }
+    }
+
+    @After public void after() {
+        TDBInternal.expel(dsg);
+    }
+}
@@ -47,6 +47,7 @@ import org.junit.runners.Suite;
     , TestTransPromoteTDB.class
     , TestQuadFilter.class
     , TestGraphView_Prefixes.class
+    , TestTupleChangeLog.class
 } )
 public class TS_Store
 {
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.system.progress.MonitorOutputs;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.loader.BulkLoaderException;
+import org.apache.jena.tdb2.loader.DataLoader;
+import org.apache.jena.tdb2.loader.LoaderFactory;
+import org.apache.jena.tdb2.store.TupleChangeLog.Action;
+import org.apache.jena.tdb2.store.TupleChangeLog.Change;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestTupleChangeLog {
+
+    private static Quad triple1 = SSE.parseQuad("(_ <s> <p> 1)");
+    private static Quad triple2 = SSE.parseQuad("(_ <s> <p> 2)");
+    private static Quad quad1   = SSE.parseQuad("(<g> <s> <p> 1)");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DatasetGraph dsg;
+    private TupleChangeLog changeLog;
+    private Path spillDir;
+
+    @Before
+    public void before() {
+        dsg = DatabaseMgr.createDatasetGraph();
+        changeLog = TDBInternal.getDatasetGraphTDB(dsg).getChangeLog();
+        assertNotNull(changeLog);
+        spillDir = folder.getRoot().toPath();
+    }
+
+    private List<Change> drain() {
+        List<Change> changes = new ArrayList<>();
+        changeLog.drain(changes::addAll);
+        return changes;
+    }
+
+    @Test public void changeLog_notRecording() {
+        Txn.executeWrite(dsg, ()->dsg.add(triple1));
+        changeLog.start(spillDir);
+        changeLog.stop();
+        Txn.executeWrite(dsg, ()->dsg.add(triple2));
+        assertEquals(0, changeLog.size());
+        assertTrue(drain().isEmpty());
+    }
+
+    @Test public void changeLog_commit() {
+        changeLog.start(spillDir);
+        Txn.executeWrite(dsg, ()->{
+            dsg.add(triple1);
+            dsg.add(quad1);
+        });
+        assertEquals(2, changeLog.size());
+        List<Change> changes = drain();
+        assertEquals(2, changes.size());
+        assertEquals(Action.ADD, changes.get(0).action());
+        assertFalse(changes.get(0).quad());
+        assertEquals(3, changes.get(0).tuple().len());
+        assertTrue(changes.get(1).quad());
+        assertEquals(4, changes.get(1).tuple().len());
+        assertEquals(0, changeLog.size());
+        changeLog.stop();
+    }
+
+    @Test public void changeLog_abort() {
+        changeLog.start(spillDir);
+        dsg.begin(ReadWrite.WRITE);
+        dsg.add(triple1);
+        dsg.abort();
+        dsg.end();
+        Txn.executeWrite(dsg, ()->dsg.add(triple2));
+        List<Change> changes = drain();
+        assertEquals(1, changes.size());
+        changeLog.stop();
+    }
+
+    @Test public void changeLog_realChanges() {
+        Txn.executeWrite(dsg, ()->dsg.add(triple1));
+        changeLog.start(spillDir);
+        Txn.executeWrite(dsg, ()->{
+            // Already present.
+            dsg.add(triple1);
+            // Not present.
+            dsg.delete(triple2);
+            dsg.delete(triple1);
+        });
+        List<Change> changes = drain();
+        assertEquals(1, changes.size());
+        assertEquals(Action.DELETE, changes.get(0).action());
+        changeLog.stop();
+    }
+
+    @Test public void changeLog_stats() {
+        // The statistics listener on the triple table still sees changes.
+        changeLog.start(spillDir);
+        Txn.executeWrite(dsg, ()->dsg.add(triple1));
+        changeLog.stop();
+        Txn.executeWrite(dsg, ()->dsg.add(triple2));
+        long count = Txn.calculateRead(dsg, ()->TDBInternal.getDatasetGraphTDB(dsg).getStats().getCount());
+        assertEquals(2, count);
+    }
+
+    @Test public void changeLog_spill() throws Exception {
+        // Changes beyond the limit go to a file: writers do not wait.
+        ARQ.getContext().set(SystemTDB.symCompactChangeLimit, 2);
+        try {
+            changeLog.start(spillDir);
+            Txn.executeWrite(dsg, ()->dsg.add(triple1));
+            Txn.executeWrite(dsg, ()->{
+                dsg.add(triple2);
+                dsg.add(quad1);
+            });
+            Txn.executeWrite(dsg, ()->dsg.delete(triple1));
+            assertEquals(4, changeLog.size());
+            assertEquals(3, changeLog.spilled());
+            assertEquals(1, spillFiles());
+
+            List<List<Change>> parts = new ArrayList<>();
+            changeLog.drain(parts::add);
+            // In memory, then from the file in lists of at most the limit.
+            assertEquals(3, parts.size());
+            List<Change> changes = new ArrayList<>();
+            parts.forEach(changes::addAll);
+            assertEquals(4, changes.size());
+            assertEquals(Action.ADD, changes.get(0).action());
+            assertTrue(changes.get(2).quad());
+            assertEquals(4, changes.get(2).tuple().len());
+            assertEquals(Action.DELETE, changes.get(3).action());
+            assertEquals(changes.get(0).tuple(), changes.get(3).tuple());
+            assertEquals(0, changeLog.size());
+            assertEquals(0, spillFiles());
+
+            // Recording continues in memory after a drain.
+            Txn.executeWrite(dsg, ()->dsg.add(triple1));
+            assertEquals(0, changeLog.spilled());
+            assertEquals(1, drain().size());
+        } finally {
+            ARQ.getContext().unset(SystemTDB.symCompactChangeLimit);
+            changeLog.stop();
+        }
+    }
+
+    @Test public void changeLog_spill_stop() throws Exception {
+        ARQ.getContext().set(SystemTDB.symCompactChangeLimit, 1);
+        try {
+            changeLog.start(spillDir);
+            Txn.executeWrite(dsg, ()->dsg.add(triple1));
+            Txn.executeWrite(dsg, ()->dsg.add(triple2));
+            assertEquals(1, spillFiles());
+            changeLog.stop();
+            assertEquals(0, spillFiles());
+        } finally {
+            ARQ.getContext().unset(SystemTDB.symCompactChangeLimit);
+            changeLog.stop();
+        }
+    }
+
+    @Test public void changeLog_loader() {
+        // Loaders that write directly to the indexes can not be used while recording.
+        changeLog.start(spillDir);
+        try {
+            DataLoader loader = LoaderFactory.parallelLoader(dsg, MonitorOutputs.nullOutput());
+            assertThrows(BulkLoaderException.class, loader::startBulk);
+            // Other writers continue.
+            Txn.executeWrite(dsg, ()->dsg.add(triple1));
+        } finally {
+            changeLog.stop();
+        }
+    }
+
+    private long spillFiles() throws IOException {
+        try ( Stream<Path> files = Files.list(spillDir) ) {
+            return files.count();
+        }
+    }
+}
@@ -27,6 +27,11 @@ import org.junit.runners.Suite;
     , TestNodeTableStoredBase.class
     , TestNodeTableStored.class
     , TestNodeTable.class
+    , TestNodeTableOffHeap.class
+    , TestNodeCacheOffHeap.class
+    , TestNodeTableHashFilter.class
+    , TestNodeHashFilter.class
+    , TestNodeDataMapped.class
 })
 public class TS_NodeTable
 {
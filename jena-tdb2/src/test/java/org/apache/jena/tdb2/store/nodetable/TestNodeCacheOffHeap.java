@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import static org.junit.Assert.*;
+
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.Test;
+
+public class TestNodeCacheOffHeap {
+    private static final long SIZE = 1024*1024;
+
+    private static Node node(String localName) {
+        return NodeFactory.createURI("http://example/"+localName);
+    }
+
+    @Test public void offheap_node_1() {
+        NodeCacheOffHeap cache = new NodeCacheOffHeap(SIZE);
+        NodeId nid = NodeIdFactory.createPtr(100);
+        Node n = SSE.parseNode("'abc'@en");
+        assertNull(cache.getNode(nid));
+        cache.putNode(nid, n);
+        assertEquals(n, cache.getNode(nid));
+        assertNull(cache.getNode(NodeIdFactory.createPtr(101)));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test public void offheap_nodeId_1() {
+        NodeCacheOffHeap cache = new NodeCacheOffHeap(SIZE);
+        NodeId nid = NodeIdFactory.createPtr(100);
+        Node n = node("s");
+        assertNull(cache.getNodeId(n));
+        cache.putNodeId(n, nid);
+        assertEquals(nid, cache.getNodeId(n));
+        assertNull(cache.getNodeId(node("o")));
+        // Not confused with the NodeId to Node entries.
+        assertNull(cache.getNode(nid));
+    }
+
+    @Test public void offheap_overwrite() {
+        // Many more entries than fit: old entries are overwritten, never wrong.
+        NodeCacheOffHeap cache = new NodeCacheOffHeap(SIZE);
+        int N = 100_000;
+        for ( int i = 0 ; i < N ; i++ ) {
+            NodeId nid = NodeIdFactory.createPtr(i);
+            Node n = node("n"+i);
+            cache.putNode(nid, n);
+            cache.putNodeId(n, nid);
+        }
+        assertEquals(2*N, cache.getPuts());
+        int found = 0;
+        for ( int i = 0 ; i < N ; i++ ) {
+            NodeId nid = NodeIdFactory.createPtr(i);
+            Node n = cache.getNode(nid);
+            if ( n != null ) {
+                assertEquals(node("n"+i), n);
+                found++;
+            }
+            NodeId nid2 = cache.getNodeId(node("n"+i));
+            if ( nid2 != null )
+                assertEquals(nid, nid2);
+        }
+        assertTrue(found > 0);
+        assertTrue(found < N);
+        // The most recent entry is present.
+        assertEquals(node("n"+(N-1)), cache.getNode(NodeIdFactory.createPtr(N-1)));
+    }
+
+    @Test public void offheap_large_node() {
+        NodeCacheOffHeap cache = new NodeCacheOffHeap(SIZE);
+        NodeId nid = NodeIdFactory.createPtr(100);
+        Node n = NodeFactory.createLiteralString("x".repeat(100_000));
+        cache.putNode(nid, n);
+        assertNull(cache.getNode(nid));
+    }
+
+    @Test public void offheap_dataset_abort() {
+        StoreParams params = StoreParams.builder()
+                .node2NodeIdCacheSize(10)
+                .nodeId2NodeCacheSize(10)
+                .nodeCacheOffHeapSize(SIZE)
+                .build();
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(Location.mem(), params);
+        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+        Quad quad1 = SSE.parseQuad("(_ <http://example/s> <http://example/p> 'aborted')");
+        Quad quad2 = SSE.parseQuad("(_ <http://example/s> <http://example/p> 'committed')");
+        dsg.begin(ReadWrite.WRITE);
+        dsg.add(quad1);
+        dsg.abort();
+        dsg.end();
+        Txn.executeWrite(dsg, ()->dsg.add(quad2));
+        // Lots of nodes, to push nodes out of the small on-heap caches.
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < 100 ; i++ )
+                dsg.add(Quad.defaultGraphIRI, node("s"+i), node("p"), node("o"+i));
+        });
+        for ( int i = 0 ; i < 2 ; i++ ) {
+            Txn.executeRead(dsg, ()->{
+                assertFalse(dsg.contains(quad1));
+                assertTrue(dsg.contains(quad2));
+                assertEquals(101, dsg.getDefaultGraph().size());
+                dsg.find().forEachRemaining(q->{});
+            });
+        }
+        NodeTable nodeTable = dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable();
+        NodeCacheOffHeap cache = findCache(nodeTable).getOffHeapCache();
+        assertNotNull(cache);
+        assertTrue(cache.getHits() > 0);
+        dsg.close();
+    }
+
+    private static NodeTableCache findCache(NodeTable nodeTable) {
+        while ( nodeTable != null ) {
+            if ( nodeTable instanceof NodeTableCache cache )
+                return cache;
+            nodeTable = nodeTable.wrapped();
+        }
+        return null;
+    }
+}
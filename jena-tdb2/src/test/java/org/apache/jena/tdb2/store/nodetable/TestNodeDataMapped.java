@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb2.store.nodetable;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Node table reads through the memory mapped node data file. */
+public class TestNodeDataMapped {
+    private String DIR;
+
+    @Before public void before() {
+        DIR = ConfigTest.getCleanDir();
+        FileOps.ensureDir(DIR);
+        FileOps.clearAll(DIR);
+    }
+
+    @After public void after() {
+        TDBInternal.reset();
+        FileOps.clearAll(DIR);
+    }
+
+    private static Node node(String localName) {
+        return NodeFactory.createURI("http://example/"+localName);
+    }
+
+    private DatasetGraph dataset() {
+        // Small caches so that most reads go to the node data file.
+        StoreParams params = StoreParams.builder()
+                .node2NodeIdCacheSize(10)
+                .nodeId2NodeCacheSize(10)
+                .nodeMissCacheSize(10)
+                .nodeDataMapped(true)
+                .build();
+        return DatabaseMgr.connectDatasetGraph(Location.create(DIR), params);
+    }
+
+    private static NodeTable nodeTable(DatasetGraph dsg) {
+        return TDBInternal.getDatasetGraphTDB(dsg).getTripleTable().getNodeTupleTable().getNodeTable();
+    }
+
+    private static NodeTableTRDF baseNodeTable(DatasetGraph dsg) {
+        return (NodeTableTRDF)nodeTable(dsg).baseNodeTable();
+    }
+
+    @Test public void mapped_read_1() {
+        DatasetGraph dsg = dataset();
+        assertTrue(baseNodeTable(dsg).isConcurrentRead());
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < 100 ; i++ )
+                dsg.add(Quad.defaultGraphIRI, node("s"+i), node("p"), NodeFactory.createLiteralString("x".repeat(i)));
+        });
+        Txn.executeRead(dsg, ()->{
+            assertEquals(100, dsg.getDefaultGraph().size());
+            for ( int i = 0 ; i < 100 ; i++ )
+                assertTrue(dsg.contains(Quad.defaultGraphIRI, node("s"+i), node("p"), NodeFactory.createLiteralString("x".repeat(i))));
+        });
+    }
+
+    @Test public void mapped_read_writer() {
+        // The writer reads nodes it has added but not committed.
+        DatasetGraph dsg = dataset();
+        Txn.executeWrite(dsg, ()->dsg.add(Quad.defaultGraphIRI, node("s"), node("p"), node("o")));
+        Txn.executeWrite(dsg, ()->{
+            dsg.add(Quad.defaultGraphIRI, node("s"), node("p"), node("o1"));
+            List<Quad> quads = Iter.toList(dsg.find(null, node("s"), null, null));
+            assertEquals(2, quads.size());
+        });
+    }
+
+    @Test public void mapped_read_abort() {
+        DatasetGraph dsg = dataset();
+        Txn.executeWrite(dsg, ()->dsg.add(Quad.defaultGraphIRI, node("s"), node("p"), node("o")));
+        dsg.begin(ReadWrite.WRITE);
+        dsg.add(Quad.defaultGraphIRI, node("s"), node("p"), node("aborted"));
+        dsg.abort();
+        dsg.end();
+        Txn.executeWrite(dsg, ()->dsg.add(Quad.defaultGraphIRI, node("s"), node("p"), node("committed")));
+        Txn.executeRead(dsg, ()->{
+            NodeTable nt = nodeTable(dsg);
+            NodeId nid = nt.getNodeIdForNode(node("committed"));
+            assertEquals(node("committed"), nt.getNodeForNodeId(nid));
+            assertEquals(2, dsg.getDefaultGraph().size());
+        });
+    }
+
+    @Test public void mapped_read_concurrent() throws InterruptedException {
+        DatasetGraph dsg = dataset();
+        int N = 1000;
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < N ; i++ )
+                dsg.add(Quad.defaultGraphIRI, node("s"+i), node("p"), node("o"+i));
+        });
+        NodeTable nt = nodeTable(dsg);
+        List<NodeId> ids = Txn.calculateRead(dsg, ()->{
+            List<NodeId> x = new ArrayList<>();
+            for ( int i = 0 ; i < N ; i++ )
+                x.add(nt.getNodeIdForNode(node("o"+i)));
+            return x;
+        });
+        List<Throwable> errors = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for ( int t = 0 ; t < 4 ; t++ ) {
+            int seed = t;
+            Thread thread = new Thread(()->{
+                try {
+                    Txn.executeRead(dsg, ()->{
+                        for ( int j = 0 ; j < 5 * N ; j++ ) {
+                            int i = (j * 7 + seed) % N;
+                            assertEquals(node("o"+i), nt.getNodeForNodeId(ids.get(i)));
+                        }
+                    });
+                } catch (Throwable th) {
+                    synchronized (errors) { errors.add(th); }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        // A writer at the same time.
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < 100 ; i++ )
+                dsg.add(Quad.defaultGraphIRI, node("s"+i), node("q"), node("new"+i));
+        });
+        for ( Thread thread : threads )
+            thread.join();
+        assertTrue(errors.toString(), errors.isEmpty());
+        Txn.executeRead(dsg, ()->assertEquals(N + 100, dsg.getDefaultGraph().size()));
+    }
+
+    @Test public void mapped_read_reopen() {
+        DatasetGraph dsg = dataset();
+        Txn.executeWrite(dsg, ()->dsg.add(Quad.defaultGraphIRI, node("s"), node("p"), node("o")));
+        TDBInternal.expel(dsg);
+        DatasetGraph dsg2 = dataset();
+        Txn.executeRead(dsg2, ()->assertTrue(dsg2.contains(Quad.defaultGraphIRI, node("s"), node("p"), node("o"))));
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.lib.NodeLib;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.Test;
+
+public class TestNodeHashFilter {
+
+    private static Node node(String localName) {
+        return NodeFactory.createURI("http://example/"+localName);
+    }
+
+    private static byte[] hash(Node node) {
+        return NodeLib.hash(node).getBytes();
+    }
+
+    @Test public void hash_filter_1() {
+        NodeHashFilter filter = NodeHashFilter.create(1000);
+        assertFalse(filter.mightContain(hash(node("a"))));
+        filter.add(hash(node("a")));
+        assertTrue(filter.mightContain(hash(node("a"))));
+        assertEquals(1, filter.count());
+    }
+
+    @Test public void hash_filter_2() {
+        int N = 10_000;
+        NodeHashFilter filter = NodeHashFilter.create(N);
+        for ( int i = 0 ; i < N ; i++ )
+            filter.add(hash(node("n"+i)));
+        // No false negatives.
+        for ( int i = 0 ; i < N ; i++ )
+            assertTrue(filter.mightContain(hash(node("n"+i))));
+        // Few false positives.
+        int x = 0;
+        for ( int i = 0 ; i < N ; i++ ) {
+            if ( filter.mightContain(hash(node("m"+i))) )
+                x++;
+        }
+        assertTrue("False positives: "+x, x < N / 20);
+    }
+
+    @Test public void hash_filter_file() throws Exception {
+        File f = File.createTempFile("nodes", ".bloom");
+        try {
+            NodeHashFilter filter = NodeHashFilter.create(100);
+            for ( int i = 0 ; i < 100 ; i++ )
+                filter.add(hash(node("n"+i)));
+            filter.write(f.toPath(), 1000, 10);
+            NodeHashFilter filter2 = NodeHashFilter.read(f.toPath(), 1000, 10);
+            assertEquals(filter.count(), filter2.count());
+            assertEquals(filter.capacity(), filter2.capacity());
+            for ( int i = 0 ; i < 100 ; i++ )
+                assertTrue(filter2.mightContain(hash(node("n"+i))));
+            // Written for different node data or node index.
+            assertNull(NodeHashFilter.read(f.toPath(), 1001, 10));
+            assertNull(NodeHashFilter.read(f.toPath(), 1000, 11));
+        } finally {
+            f.delete();
+        }
+    }
+
+    @Test public void hash_filter_grow() throws Exception {
+        NodeHashFilter filter = NodeHashFilter.create(100);
+        long capacity = filter.capacity();
+        int N = (int)(4 * capacity);
+        for ( int i = 0 ; i < N ; i++ )
+            filter.add(hash(node("n"+i)));
+        assertTrue(filter.isGrown());
+        assertTrue(filter.capacity() >= N);
+        for ( int i = 0 ; i < N ; i++ )
+            assertTrue(filter.mightContain(hash(node("n"+i))));
+        int x = 0;
+        for ( int i = 0 ; i < N ; i++ ) {
+            if ( filter.mightContain(hash(node("m"+i))) )
+                x++;
+        }
+        assertTrue("False positives: "+x, x < N / 20);
+
+        File f = File.createTempFile("nodes", ".bloom");
+        try {
+            filter.write(f.toPath(), 0, 0);
+            NodeHashFilter filter2 = NodeHashFilter.read(f.toPath(), 0, 0);
+            assertTrue(filter2.isGrown());
+            assertEquals(filter.count(), filter2.count());
+            assertEquals(filter.capacity(), filter2.capacity());
+            for ( int i = 0 ; i < N ; i++ )
+                assertTrue(filter2.mightContain(hash(node("n"+i))));
+        } finally {
+            f.delete();
+        }
+    }
+
+    @Test public void hash_filter_dataset() throws Exception {
+        TDBInternal.reset();
+        String DIR = ConfigTest.getCleanDir();
+        FileOps.clearAll(DIR);
+        Location location = Location.create(DIR);
+        StoreParams params = StoreParams.builder("test").nodeHashFilter(true).build();
+        try {
+            DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(location, params);
+            Txn.executeWrite(dsg, ()->{
+                for ( int i = 0 ; i < 100 ; i++ )
+                    dsg.add(Quad.defaultGraphIRI, node("s"+i), node("p"), node("o"+i));
+            });
+            TDBInternal.expel(dsg);
+            // Written on close.
+            Path filterFile = findFile(DIR, "nodes.bloom");
+            assertNotNull(filterFile);
+
+            DatasetGraph dsg2 = DatabaseMgr.connectDatasetGraph(location);
+            NodeTable nodeTable = TDBInternal.getDatasetGraphTDB(dsg2).getTripleTable().getNodeTupleTable().getNodeTable();
+            Txn.executeRead(dsg2, ()->{
+                assertTrue(dsg2.contains(Quad.defaultGraphIRI, node("s1"), node("p"), node("o1")));
+                assertFalse(dsg2.contains(Quad.defaultGraphIRI, node("s1"), node("p"), node("o2")));
+                assertEquals(NodeId.NodeDoesNotExist, nodeTable.getNodeIdForNode(node("missing")));
+            });
+            // The file is removed while the database is in use.
+            assertFalse(Files.exists(filterFile));
+            Txn.executeWrite(dsg2, ()->dsg2.add(Quad.defaultGraphIRI, node("s"), node("p"), node("new")));
+            Txn.executeRead(dsg2, ()->assertTrue(dsg2.contains(Quad.defaultGraphIRI, node("s"), node("p"), node("new"))));
+            TDBInternal.expel(dsg2);
+            assertTrue(Files.exists(filterFile));
+
+            // A file that does not match the database is not used.
+            Files.copy(filterFile, Path.of(DIR, "saved.bloom"));
+            DatasetGraph dsg2a = DatabaseMgr.connectDatasetGraph(location);
+            Txn.executeWrite(dsg2a, ()->dsg2a.add(Quad.defaultGraphIRI, node("s"), node("p"), node("new2")));
+            TDBInternal.expel(dsg2a);
+            Files.copy(Path.of(DIR, "saved.bloom"), filterFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(Path.of(DIR, "saved.bloom"));
+            DatasetGraph dsg2b = DatabaseMgr.connectDatasetGraph(location);
+            Txn.executeRead(dsg2b, ()->assertTrue(dsg2b.contains(Quad.defaultGraphIRI, node("s"), node("p"), node("new2"))));
+            TDBInternal.expel(dsg2b);
+
+            // Without the filter, the file is removed.
+            DatasetGraph dsg3 = DatabaseMgr.connectDatasetGraph(location, StoreParams.builder("test").nodeHashFilter(false).build());
+            assertFalse(Files.exists(filterFile));
+            Txn.executeRead(dsg3, ()->assertTrue(dsg3.contains(Quad.defaultGraphIRI, node("s"), node("p"), node("new"))));
+        } finally {
+            TDBInternal.reset();
+            FileOps.clearAll(DIR);
+        }
+    }
+
+    private static Path findFile(String dir, String filename) {
+        try ( var stream = Files.walk(Path.of(dir)) ) {
+            return stream.filter(p->p.getFileName().toString().equals(filename)).findFirst().orElse(null);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -22,7 +22,9 @@ import static org.apache.jena.atlas.lib.tuple.TupleFactory.tuple;
 import static org.apache.jena.tdb2.store.tupletable.NData.*;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 import org.apache.jena.atlas.iterator.Iter;
 import static org.junit.Assert.*;
@@ -160,6 +162,84 @@ public abstract class AbstractTestTupleIndex
         }
     }
 
+    @Test public void TupleIndexFindBatch_1()
+    {
+        TupleIndex index = create("SPO");
+        add(index, n1, n2, n3);
+        add(index, n1, n2, n4);
+        add(index, n2, n3, n4);
+        add(index, n3, n1, n2);
+
+        // Not in index order, with a pattern not matching and a pattern that is a scan.
+        List<Tuple<NodeId>> patterns = List.of(tuple(n3, NodeId.NodeIdAny, NodeId.NodeIdAny),
+                                               tuple(n1, n2, NodeId.NodeIdAny),
+                                               tuple(n4, NodeId.NodeIdAny, NodeId.NodeIdAny),
+                                               tuple(n2, n3, n4),
+                                               tuple(NodeId.NodeIdAny, n2, NodeId.NodeIdAny),
+                                               tuple(n1, n2, n4));
+        List<Iterator<Tuple<NodeId>>> results = index.findBatch(patterns);
+        assertEquals(patterns.size(), results.size());
+        for ( int i = 0 ; i < patterns.size() ; i++ )
+            assertEquals(Iter.toSet(index.find(patterns.get(i))), Iter.toSet(results.get(i)));
+        assertEquals(Set.of(tuple(n1, n2, n3), tuple(n1, n2, n4)), Iter.toSet(index.findBatch(patterns).get(1)));
+    }
+
+    @Test public void TupleIndexFindOrdered_1()
+    {
+        TupleIndex index = create("POS");
+        add(index, n3, n1, n2);
+        add(index, n1, n1, n2);
+        add(index, n2, n1, n2);
+        add(index, n2, n1, n3);
+        add(index, n1, n2, n2);
+
+        // P and O set, ordered by S.
+        Function<NodeId, Iterator<Tuple<NodeId>>> find = index.findOrdered(tuple(NodeId.NodeIdAny, n1, n2), 0);
+        assertNotNull(find);
+        assertEquals(List.of(tuple(n1, n1, n2), tuple(n2, n1, n2), tuple(n3, n1, n2)), Iter.toList(find.apply(null)));
+        assertEquals(List.of(tuple(n2, n1, n2), tuple(n3, n1, n2)), Iter.toList(find.apply(n2)));
+        // Not in the order of this index.
+        assertNull(index.findOrdered(tuple(NodeId.NodeIdAny, n1, NodeId.NodeIdAny), 0));
+        assertNull(index.findOrdered(tuple(n1, NodeId.NodeIdAny, NodeId.NodeIdAny), 2));
+        // P set, ordered by O.
+        find = index.findOrdered(tuple(NodeId.NodeIdAny, n1, NodeId.NodeIdAny), 2);
+        assertNotNull(find);
+        assertEquals(4, Iter.count(find.apply(null)));
+        assertEquals(List.of(tuple(n2, n1, n3)), Iter.toList(find.apply(n3)));
+    }
+
+    @Test public void TupleIndexSeekOrdered_1()
+    {
+        TupleIndex index = create("SPO");
+        add(index, n1, n2, n3);
+        add(index, n2, n1, n2);
+        add(index, n2, n3, n1);
+        add(index, n3, n2, n2);
+
+        // P set, after S in the index order.
+        Tuple<NodeId> pattern = tuple(NodeId.NodeIdAny, n2, NodeId.NodeIdAny);
+        TupleSeek seek = index.seekOrdered(pattern, 0);
+        assertNotNull(seek);
+        assertEquals(tuple(n1, n2, n3), seek.seek(pattern, null));
+        assertEquals(tuple(n3, n2, n2), seek.seekAfter(pattern, n1));
+        assertEquals(tuple(n3, n2, n2), seek.seek(pattern, n2));
+        assertNull(seek.seekAfter(pattern, n3));
+        // Same slots set, different NodeIds.
+        assertEquals(tuple(n2, n1, n2), seek.seek(tuple(NodeId.NodeIdAny, n1, NodeId.NodeIdAny), null));
+        pattern = tuple(NodeId.NodeIdAny, n2, n2);
+        seek = index.seekOrdered(pattern, 0);
+        assertEquals(tuple(n3, n2, n2), seek.seek(pattern, null));
+        // S set, ordered by P.
+        pattern = tuple(n2, NodeId.NodeIdAny, NodeId.NodeIdAny);
+        seek = index.seekOrdered(pattern, 1);
+        assertEquals(tuple(n2, n1, n2), seek.seek(pattern, null));
+        assertEquals(tuple(n2, n3, n1), seek.seekAfter(pattern, n1));
+        assertNull(seek.seekAfter(pattern, n3));
+        // Not in the order of this index.
+        assertNull(index.seekOrdered(tuple(n1, NodeId.NodeIdAny, NodeId.NodeIdAny), 0));
+        assertNull(index.seekOrdered(tuple(NodeId.NodeIdAny, NodeId.NodeIdAny, n1), 1));
+    }
+
     @Test public void TupleIndexRecordPOS_1()
     {
         TupleIndex index = create("POS");
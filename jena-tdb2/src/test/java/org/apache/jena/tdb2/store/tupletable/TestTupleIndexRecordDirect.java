@@ -21,8 +21,11 @@ package org.apache.jena.tdb2.store.tupletable;
 import static org.apache.jena.atlas.lib.tuple.TupleFactory.tuple;
 import static org.apache.jena.tdb2.store.tupletable.NData.*;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.apache.jena.atlas.iterator.Iter;
 import static org.junit.Assert.*;
@@ -35,6 +38,7 @@ import org.apache.jena.dboe.index.RangeIndex;
 import org.apache.jena.tdb2.junit.BuildTestLib;
 import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.junit.Test;
 
@@ -311,5 +315,62 @@ public class TestTupleIndexRecordDirect
         assertFalse(iter.hasNext());
    }
 
+    static TupleIndexRecord createLarge(String description, int numSubjects, int numObjects)
+    {
+        TupleIndexRecord index = create(description);
+        for ( int s = 0 ; s < numSubjects ; s++ )
+            for ( int o = 0 ; o < numObjects ; o++ )
+                add(index, NodeIdFactory.createPtr(100+s), n2, NodeIdFactory.createPtr(100000+o));
+        return index;
+    }
+
+    static List<Tuple<NodeId>> allParts(List<Supplier<Iterator<Tuple<NodeId>>>> parts)
+    {
+        List<Tuple<NodeId>> x = new ArrayList<>();
+        parts.forEach(p -> p.get().forEachRemaining(x::add));
+        return x;
+    }
 
+    @Test public void TupleIndexRecordPartitioned_1()
+    {
+        TupleIndexRecord index = createLarge("SPO", 200, 100);
+        Tuple<NodeId> pattern = tuple(null, null, null);
+        List<Supplier<Iterator<Tuple<NodeId>>>> parts = index.findPartitioned(pattern, 8);
+        assertTrue(parts.size() > 1);
+        assertTrue(parts.size() <= 8);
+        // Ranges are disjoint and in order.
+        assertEquals(Iter.toList(index.find(pattern)), allParts(parts));
+    }
+
+    @Test public void TupleIndexRecordPartitioned_2()
+    {
+        // Leading slot fixed.
+        TupleIndexRecord index = createLarge("POS", 200, 100);
+        Tuple<NodeId> pattern = tuple(null, n2, null);
+        List<Supplier<Iterator<Tuple<NodeId>>>> parts = index.findPartitioned(pattern, 8);
+        assertTrue(parts.size() > 1);
+        List<Tuple<NodeId>> x = allParts(parts);
+        assertEquals(200*100, x.size());
+        assertEquals(Iter.toList(index.find(pattern)), x);
+    }
+
+    @Test public void TupleIndexRecordPartitioned_3()
+    {
+        // Partial scan: slot after a wildcard is fixed.
+        TupleIndexRecord index = createLarge("SPO", 200, 100);
+        Tuple<NodeId> pattern = tuple(null, null, NodeIdFactory.createPtr(100005));
+        List<Tuple<NodeId>> x = allParts(index.findPartitioned(pattern, 8));
+        assertEquals(200, x.size());
+        assertEquals(Iter.toList(index.find(pattern)), x);
+    }
+
+    @Test public void TupleIndexRecordPartitioned_4()
+    {
+        // Small index or fully bound pattern - one part.
+        TupleIndexRecord index = create("SPO");
+        add(index, n1, n2, n3);
+        assertEquals(1, index.findPartitioned(tuple(n1, n2, n3), 8).size());
+        assertEquals(1, index.findPartitioned(tuple(null, null, null), 8).size());
+        assertEquals(1, allParts(index.findPartitioned(tuple(null, null, null), 8)).size());
+    }
 }
@@ -21,6 +21,7 @@ package org.apache.jena.tdb2.store.tupletable;
 import static org.apache.jena.atlas.lib.tuple.TupleFactory.tuple;
 import static org.apache.jena.tdb2.store.tupletable.NData.*;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -185,4 +186,28 @@ public class TestTupleTable
         Assert.assertNull(wrapperByG);
     }
 
+    @Test public void addAllListener()
+    {
+        TupleTable table = create();
+        add(table, n1, n2, n3);
+        List<Tuple<NodeId>> added = new ArrayList<>();
+        List<Tuple<NodeId>> deleted = new ArrayList<>();
+        table.setListener(new TupleTableListener() {
+            @Override public void added(Tuple<NodeId> tuple)   { added.add(tuple); }
+            @Override public void deleted(Tuple<NodeId> tuple) { deleted.add(tuple); }
+            @Override public void cleared() {}
+            @Override public void addedAll(List<Tuple<NodeId>> tuples)   { added.addAll(tuples); }
+            @Override public void deletedAll(List<Tuple<NodeId>> tuples) { deleted.addAll(tuples); }
+        });
+        // Only the changes are reported.
+        table.addAll(List.of(tuple(n1, n2, n3), tuple(n1, n2, n4), tuple(n1, n2, n4)));
+        assertEquals(List.of(tuple(n1, n2, n4)), added);
+        List<Tuple<NodeId>> x = Iter.toList(table.find(tuple(null, null, n4)));
+        assertEquals(1, x.size());
+
+        table.deleteAll(List.of(tuple(n1, n2, n3), tuple(n4, n2, n3)));
+        assertEquals(List.of(tuple(n1, n2, n3)), deleted);
+        x = Iter.toList(table.find(tuple(null, n2, null)));
+        assertEquals(List.of(tuple(n1, n2, n4)), x);
+    }
 }
@@ -31,6 +31,7 @@ import org.junit.runners.Suite;
     , TestTransactionalSystemControl.class
     , TestNormalizationTDB2.class
     , TestNormalizedTermsTDB2.class
+    , TestGroupCommit.class
 })
 
 public class TS_Sys
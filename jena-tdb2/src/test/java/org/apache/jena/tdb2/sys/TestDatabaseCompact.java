@@ -24,16 +24,23 @@ import static org.junit.Assume.assumeFalse;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.FileOps;
 import org.apache.jena.base.Sys;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.dboe.sys.IO_DB;
 import org.apache.jena.dboe.transaction.txn.*;
 import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.TxnType;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.sparql.sse.SSE;
@@ -333,4 +340,115 @@ public class TestDatabaseCompact
         assertFalse(Files.exists(pathFile2));
         assertFalse(Files.exists(pathTmp2));
     }
+    @Test public void compact_online_1() {
+        assumeFalse(Sys.isWindows);
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        DatasetGraphSwitchable dsgs = (DatasetGraphSwitchable)dsg;
+        DatasetGraph dsg1 = dsgs.get();
+        Location loc1 = ((DatasetGraphTDB)dsg1).getLocation();
+
+        Txn.executeWrite(dsg, ()-> {
+            dsg.add(quad2);
+            dsg.add(quad1);
+            dsg.getDefaultGraph().getPrefixMapping().setNsPrefix("ex", "http://example/");
+        });
+        CompactProgress progress = new CompactProgress();
+        DatabaseMgr.compactOnline(dsg, false, progress);
+
+        assertEquals(CompactProgress.Phase.FINISHED, progress.getPhase());
+        assertEquals(2, progress.getQuadsCopied());
+        assertEquals(0, progress.getChangesApplied());
+        assertFalse(StoreConnection.isSetup(loc1));
+
+        DatasetGraph dsg2 = dsgs.get();
+        Location loc2 = ((DatasetGraphTDB)dsg2).getLocation();
+        assertNotEquals(loc1, loc2);
+
+        Txn.executeRead(dsg, ()-> {
+            assertTrue(dsg.contains(quad2));
+            assertTrue(dsg.contains(quad1));
+            assertEquals("http://example/", dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("ex"));
+        });
+        // The change log has stopped.
+        Txn.executeWrite(dsg, ()->dsg.add(quad(99)));
+        assertFalse(((DatasetGraphTDB)dsg2).getChangeLog().isRecording());
+    }
+
+    @Test public void compact_online_concurrent_writer() throws Exception {
+        compactOnlineConcurrentWriter();
+    }
+
+    @Test public void compact_online_concurrent_writer_spill() throws Exception {
+        // Changes beyond the in-memory limit of the change log are written to a file.
+        ARQ.getContext().set(SystemTDB.symCompactChangeLimit, 10);
+        try {
+            compactOnlineConcurrentWriter();
+        } finally {
+            ARQ.getContext().unset(SystemTDB.symCompactChangeLimit);
+        }
+    }
+
+    private void compactOnlineConcurrentWriter() throws Exception {
+        assumeFalse(Sys.isWindows);
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        int N = 20_000;
+        Txn.executeWrite(dsg, ()-> {
+            for ( int i = 0 ; i < N ; i++ )
+                dsg.add(quad(i));
+        });
+
+        // Writer: add a triple and a quad, delete a triple, and abort every tenth transaction.
+        AtomicBoolean finished = new AtomicBoolean(false);
+        AtomicInteger commits = new AtomicInteger(0);
+        Set<Quad> expectedAdded = ConcurrentHashMap.newKeySet();
+        Set<Quad> expectedDeleted = ConcurrentHashMap.newKeySet();
+        Thread writer = new Thread(()->{
+            for ( int i = 0 ; ! finished.get() || i < 20 ; i++ ) {
+                Quad q1 = quad(N+i);
+                Quad q2 = Quad.create(NodeFactory.createURI("http://example/g"), q1.asTriple());
+                Quad q3 = quad(i);
+                dsg.begin(TxnType.WRITE);
+                dsg.add(q1);
+                dsg.add(q2);
+                dsg.delete(q3);
+                if ( i % 10 == 9 ) {
+                    dsg.abort();
+                } else {
+                    dsg.commit();
+                    expectedAdded.add(q1);
+                    expectedAdded.add(q2);
+                    expectedDeleted.add(q3);
+                    commits.incrementAndGet();
+                }
+                dsg.end();
+            }
+        });
+
+        CompactProgress progress = new CompactProgress();
+        writer.start();
+        try {
+            DatabaseMgr.compactOnline(dsg, true, progress);
+        } finally {
+            finished.set(true);
+            writer.join();
+        }
+
+        assertEquals(CompactProgress.Phase.FINISHED, progress.getPhase());
+        assertTrue(commits.get() > 0);
+        assertTrue(progress.getSwitchMillis() >= 0);
+
+        Txn.executeRead(dsg, ()-> {
+            expectedAdded.forEach(q->assertTrue(q.toString(), dsg.contains(q)));
+            expectedDeleted.forEach(q->assertFalse(q.toString(), dsg.contains(q)));
+            long expectedSize = N + expectedAdded.size() - expectedDeleted.size();
+            assertEquals(expectedSize, Iter.count(dsg.find()));
+        });
+    }
+
+    private static Quad quad(int i) {
+        return Quad.create(Quad.defaultGraphIRI,
+                           NodeFactory.createURI("http://example/s"+i),
+                           NodeFactory.createURI("http://example/p"),
+                           NodeFactory.createLiteralString(Integer.toString(i)));
+    }
 }
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.TDBException;
+import org.junit.Test;
+
+public class TestGroupCommit {
+
+    private static Quad quad(int i) {
+        return SSE.parseQuad("(:g :s :p "+i+")");
+    }
+
+    private static long count(DatasetGraph dsg) {
+        return Txn.calculateRead(dsg, ()->dsg.stream().count());
+    }
+
+    @Test public void groupCommit_1() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        try ( GroupCommit gc = DatabaseMgr.groupCommit(dsg, 10, 0) ) {
+            gc.execute(()->dsg.add(quad(1)));
+            assertEquals(1, count(dsg));
+            assertEquals(1, gc.getCountUpdates());
+            assertEquals(1, gc.getCountCommits());
+        }
+    }
+
+    @Test public void groupCommit_batch() throws Exception {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        int N = 50;
+        try ( GroupCommit gc = DatabaseMgr.groupCommit(dsg, 20, 100) ) {
+            List<CompletableFuture<Void>> results = new ArrayList<>();
+            for ( int i = 0 ; i < N ; i++ ) {
+                int x = i;
+                results.add(gc.submit(()->dsg.add(quad(x))));
+            }
+            for ( CompletableFuture<Void> f : results )
+                f.get();
+            assertEquals(N, count(dsg));
+            assertEquals(N, gc.getCountUpdates());
+            // At most 20 in a batch; fewer commits than updates.
+            assertTrue(gc.getCountCommits() >= 3);
+            assertTrue(gc.getCountCommits() < N);
+        }
+    }
+
+    @Test public void groupCommit_error() throws Exception {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        try ( GroupCommit gc = DatabaseMgr.groupCommit(dsg, 10, 100) ) {
+            CompletableFuture<Void> f1 = gc.submit(()->dsg.add(quad(1)));
+            CompletableFuture<Void> f2 = gc.submit(()->{ dsg.add(quad(2)); throw new IllegalStateException(); });
+            CompletableFuture<Void> f3 = gc.submit(()->dsg.add(quad(3)));
+            f1.get();
+            f3.get();
+            try {
+                f2.get();
+                fail("Expected an exception");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof IllegalStateException);
+            }
+            assertEquals(2, count(dsg));
+            assertFalse(Txn.calculateRead(dsg, ()->dsg.contains(quad(2))));
+            assertEquals(2, gc.getCountUpdates());
+        }
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void groupCommit_execute_error() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        try ( GroupCommit gc = DatabaseMgr.groupCommit(dsg, 10, 0) ) {
+            gc.execute(()->{ throw new IllegalStateException(); });
+        }
+    }
+
+    @Test public void groupCommit_close() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        GroupCommit gc = DatabaseMgr.groupCommit(dsg, 5, 10);
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for ( int i = 0 ; i < 12 ; i++ ) {
+            int x = i;
+            results.add(gc.submit(()->dsg.add(quad(x))));
+        }
+        gc.close();
+        // Close waits for the submitted updates.
+        results.forEach(f->assertTrue(f.isDone() && !f.isCompletedExceptionally()));
+        assertEquals(12, count(dsg));
+        assertThrows(TDBException.class, ()->gc.submit(()->{}));
+    }
+
+    @Test(expected=TDBException.class)
+    public void groupCommit_in_transaction() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        try ( GroupCommit gc = DatabaseMgr.groupCommit(dsg, 10, 0) ) {
+            Txn.executeRead(dsg, ()->gc.execute(()->{}));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.xloader;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.tdb2.ConfigTest;
+import org.junit.Test;
+
+public class TestExternalSortRecords {
+    private static RecordFactory factory = new RecordFactory(3*Long.BYTES, 0);
+
+    private static Record record(long... x) {
+        Record r = factory.create();
+        for ( int i = 0 ; i < x.length ; i++ )
+            Bytes.setLong(x[i], r.getKey(), i*Long.BYTES);
+        return r;
+    }
+
+    private static List<Record> randomRecords(int N, int range, long seed) {
+        Random random = new Random(seed);
+        List<Record> records = new ArrayList<>(N);
+        for ( int i = 0 ; i < N ; i++ )
+            records.add(record(random.nextInt(range), random.nextLong(), random.nextInt(range)));
+        return records;
+    }
+
+    private static Path tmpDir() {
+        return Path.of(ConfigTest.getCleanDir());
+    }
+
+    private static long countRunFiles(Path dir) throws IOException {
+        try ( Stream<Path> s = Files.list(dir) ) {
+            return s.filter(p->p.getFileName().toString().endsWith(".run")).count();
+        }
+    }
+
+    // Sort with the sorter and check against a TreeSet.
+    private static void test(List<Record> records, int runLength, int fanIn, int threads) throws IOException {
+        Path dir = tmpDir();
+        SortedSet<Record> expected = new TreeSet<>(Record::compareByKeyValue);
+        expected.addAll(records);
+        List<Record> actual = new ArrayList<>();
+        try ( ExternalSortRecords sorter = new ExternalSortRecords(factory, runLength, fanIn, threads, dir) ) {
+            records.forEach(sorter::add);
+            assertEquals(records.size(), sorter.getAdded());
+            sorter.sorted().forEachRemaining(actual::add);
+        }
+        assertEquals(expected.size(), actual.size());
+        Iterator<Record> iter = expected.iterator();
+        for ( Record r : actual )
+            assertTrue(Record.equals(iter.next(), r));
+        assertEquals(0, countRunFiles(dir));
+    }
+
+    @Test public void sort_empty() throws IOException {
+        test(List.of(), 10, 4, 2);
+    }
+
+    @Test public void sort_in_memory() throws IOException {
+        test(randomRecords(100, 10, 1), 1000, 4, 2);
+    }
+
+    @Test public void sort_runs_1() throws IOException {
+        // One merge pass.
+        test(randomRecords(1000, 10, 2), 100, 16, 2);
+    }
+
+    @Test public void sort_runs_2() throws IOException {
+        // Several merge passes.
+        test(randomRecords(5000, 10, 3), 50, 4, 3);
+    }
+
+    @Test public void sort_runs_3() throws IOException {
+        // Exact multiple of the run length, one thread.
+        test(randomRecords(400, 1000, 4), 100, 2, 1);
+    }
+
+    @Test public void sort_duplicates() throws IOException {
+        List<Record> records = new ArrayList<>();
+        for ( int i = 0 ; i < 500 ; i++ )
+            records.add(record(i % 7, 0, i % 3));
+        test(records, 32, 4, 2);
+    }
+
+    @Test public void sort_unsigned() throws IOException {
+        // B+Tree order: high bit set sorts last.
+        Path dir = tmpDir();
+        try ( ExternalSortRecords sorter = new ExternalSortRecords(factory, 2, 2, 1, dir) ) {
+            sorter.add(record(-1L, 0, 0));
+            sorter.add(record(1, 0, 0));
+            sorter.add(record(Long.MIN_VALUE, 0, 0));
+            sorter.add(record(0, 0, 0));
+            assertTrue(sorter.getRunCount() > 0);
+            Iterator<Record> iter = sorter.sorted();
+            assertEquals(0L, Bytes.getLong(iter.next().getKey(), 0));
+            assertEquals(1L, Bytes.getLong(iter.next().getKey(), 0));
+            assertEquals(Long.MIN_VALUE, Bytes.getLong(iter.next().getKey(), 0));
+            assertEquals(-1L, Bytes.getLong(iter.next().getKey(), 0));
+            assertFalse(iter.hasNext());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.xloader;
+
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+import java.util.*;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.index.RangeIndex;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Build indexes with the in-process sort. */
+public class TestProcBuildIndexX {
+    private String DIR;
+    private XLoaderFiles loaderFiles;
+
+    @Before public void before() {
+        DIR = ConfigTest.getCleanDir();
+        FileOps.clearAll(DIR);
+        loaderFiles = new XLoaderFiles(DIR);
+    }
+
+    @After public void after() {
+        TDBInternal.reset();
+        FileOps.clearAll(DIR);
+    }
+
+    // Rows, in primary order, with duplicates.
+    private static List<long[]> rows(int N, int width, long seed) {
+        Random random = new Random(seed);
+        List<long[]> rows = new ArrayList<>(N);
+        for ( int i = 0 ; i < N ; i++ ) {
+            long[] row = new long[width];
+            for ( int j = 0 ; j < width ; j++ )
+                row[j] = random.nextInt(20);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static void writeRows(String filename, List<long[]> rows, int width) {
+        OutputStream out = IO.openOutputFile(filename);
+        WriteRows writer = new WriteRows(out, width, 100);
+        for ( long[] row : rows ) {
+            for ( long x : row )
+                writer.write(x);
+            writer.endOfRow();
+        }
+        writer.close();
+        IO.close(out);
+    }
+
+    // Expected records of an index.
+    private static SortedSet<Record> expected(List<long[]> rows, String indexName) {
+        int width = indexName.length();
+        String primary = ( width == 3 ) ? "SPO" : "GSPO";
+        TupleMap tmap = TupleMap.create(primary, indexName);
+        RecordFactory factory = new RecordFactory(width*Long.BYTES, 0);
+        SortedSet<Record> records = new TreeSet<>(Record::compareByKeyValue);
+        for ( long[] row : rows ) {
+            Record r = factory.create();
+            for ( int i = 0 ; i < width ; i++ )
+                Bytes.setLong(row[i], r.getKey(), tmap.putSlotIdx(i)*Long.BYTES);
+            records.add(r);
+        }
+        return records;
+    }
+
+    private void check(List<long[]> rows, String indexName) {
+        SortedSet<Record> expected = expected(rows, indexName);
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(DIR);
+        RangeIndex index = ((TupleIndexRecord)TDBInternal.findIndex(dsg, indexName)).getRangeIndex();
+        List<Record> actual = new ArrayList<>();
+        Txn.executeRead(dsg, ()->index.iterator().forEachRemaining(actual::add));
+        assertEquals(indexName, expected.size(), actual.size());
+        Iterator<Record> iter = expected.iterator();
+        for ( Record r : actual )
+            assertTrue(indexName, Record.equals(iter.next(), r));
+    }
+
+    @Test public void build_parallel_triples() {
+        List<long[]> triples = rows(5000, 3, 1);
+        writeRows(loaderFiles.triplesFile, triples, 3);
+        List<String> indexes = List.of("SPO", "POS", "OSP");
+        // Small sort memory: many runs.
+        ProcBuildIndexX.execParallel(DIR, indexes, 3, 200_000, loaderFiles);
+        for ( String idx : indexes )
+            check(triples, idx);
+    }
+
+    @Test public void build_parallel_all() {
+        List<long[]> triples = rows(2000, 3, 2);
+        List<long[]> quads = rows(2000, 4, 3);
+        writeRows(loaderFiles.triplesFile, triples, 3);
+        writeRows(loaderFiles.quadsFile, quads, 4);
+        List<String> indexes = List.of("SPO", "POS", "OSP", "GSPO", "GPOS", "GOSP", "SPOG", "POSG", "OSPG");
+        ProcBuildIndexX.execParallel(DIR, indexes, 2, 0, loaderFiles);
+        for ( String idx : indexes )
+            check(idx.length() == 3 ? triples : quads, idx);
+    }
+}